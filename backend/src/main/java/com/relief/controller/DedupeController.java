@@ -3,7 +3,9 @@ package com.relief.controller;
 import com.relief.security.Permission;
 import com.relief.security.RequiresPermission;
 import com.relief.service.DedupeService;
+import com.relief.service.DedupeService.BulkMergeResult;
 import com.relief.service.DedupeService.DedupeCandidate;
+import com.relief.service.DedupeService.GroupMerge;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -61,6 +63,14 @@ public class DedupeController {
         return ResponseEntity.ok(Map.of("status", "MERGED"));
     }
 
+    @PostMapping("/groups/merge")
+    @Operation(summary = "Merge many dedupe groups, each into its canonical entity")
+    @RequiresPermission(Permission.ADMIN_USERS)
+    public ResponseEntity<BulkMergeResult> mergeGroups(@RequestBody BulkMergeBody body, Authentication authentication) {
+        var user = (com.relief.entity.User) authentication.getPrincipal();
+        return ResponseEntity.ok(dedupeService.mergeGroups(body.toMerges(), user));
+    }
+
     @PostMapping("/merge")
     @Operation(summary = "Merge duplicate requests into a group")
     @RequiresPermission(Permission.ADMIN_USERS)
@@ -89,6 +99,21 @@ public class DedupeController {
         public String reason;
     }
 
+    public static class BulkMergeBody {
+        public List<GroupMergeItem> merges;
+
+        public List<GroupMerge> toMerges() {
+            return merges == null ? List.of() : merges.stream()
+                    .map(m -> new GroupMerge(m.groupId, m.canonicalId))
+                    .toList();
+        }
+    }
+
+    public static class GroupMergeItem {
+        public UUID groupId;
+        public UUID canonicalId;
+    }
+
     public static class MergeBody {
         private List<UUID> requestIds;
         private String reason;
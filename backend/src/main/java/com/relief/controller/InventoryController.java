@@ -7,16 +7,21 @@ import com.relief.entity.StockMovement;
 import com.relief.entity.User;
 import com.relief.repository.UserRepository;
 import com.relief.service.InventoryService;
+import com.relief.service.inventory.InventorySnapshot;
+import com.relief.service.inventory.RebalancingPlanner;
+import com.relief.service.inventory.StockReservationEngine;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -26,6 +31,7 @@ import java.util.UUID;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final RebalancingPlanner rebalancingPlanner;
     private final UserRepository userRepository;
     
     private UUID getUserIdFromPrincipal(UserDetails principal) {
@@ -54,7 +60,7 @@ public class InventoryController {
     }
 
     @GetMapping("/stock")
-    @Operation(summary = "Get stock by hub or item, or all stock if no parameters")
+    @Operation(summary = "Get stock by hub or item, or all stock if no parameters (deprecated without parameters, use /stock/snapshot)")
     public ResponseEntity<List<InventoryStock>> getStock(
             @RequestParam(required = false) UUID hub,
             @RequestParam(required = false) UUID item
@@ -64,11 +70,28 @@ public class InventoryController {
         } else if (item != null) {
             return ResponseEntity.ok(inventoryService.getStockByItem(item));
         } else {
-            // Return all stock when no parameters provided
+            // All stock when no parameters are provided; new clients page through /stock/snapshot
             return ResponseEntity.ok(inventoryService.getAllStock());
         }
     }
 
+    @GetMapping("/stock/snapshot")
+    @Operation(summary = "Page through flat stock rows, optionally filtered by hub, item or low stock")
+    public ResponseEntity<Page<InventorySnapshot.StockRow>> getStockSnapshot(
+            @RequestParam(required = false) UUID hub,
+            @RequestParam(required = false) UUID item,
+            @RequestParam(defaultValue = "false") boolean lowStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(inventoryService.getStockSnapshot(hub, item, lowStock, page, size));
+    }
+
+    @GetMapping("/stock/summary")
+    @Operation(summary = "Total, low-stock and out-of-stock counts per hub and overall")
+    public ResponseEntity<Map<String, Object>> getStockSummary() {
+        return ResponseEntity.ok(inventoryService.getStockSummary());
+    }
+
     @PutMapping("/stock")
     @Operation(summary = "Update stock quantities")
     public ResponseEntity<InventoryStock> updateStock(
@@ -113,6 +136,65 @@ public class InventoryController {
         ));
     }
     
+    @PostMapping("/reserve/batch")
+    @Operation(summary = "Reserve stock for several items at once, all or nothing")
+    public ResponseEntity<List<InventoryStock>> reserveStockBatch(
+            @RequestBody List<ReserveStockRequest> requests,
+            @AuthenticationPrincipal UserDetails principal) {
+        UUID userId = getUserIdFromPrincipal(principal);
+        return ResponseEntity.ok(inventoryService.reserveStock(toLines(requests), userId));
+    }
+
+    @PostMapping("/release/batch")
+    @Operation(summary = "Release reserved stock for several items at once, all or nothing")
+    public ResponseEntity<List<InventoryStock>> releaseStockBatch(
+            @RequestBody List<ReserveStockRequest> requests,
+            @AuthenticationPrincipal UserDetails principal) {
+        UUID userId = getUserIdFromPrincipal(principal);
+        return ResponseEntity.ok(inventoryService.releaseReservations(toLines(requests), userId));
+    }
+
+    private static List<StockReservationEngine.Line> toLines(List<ReserveStockRequest> requests) {
+        return requests.stream()
+                .map(request -> new StockReservationEngine.Line(
+                        request.getHubId(),
+                        request.getItemId(),
+                        request.getQuantity() != null ? request.getQuantity() : 0))
+                .toList();
+    }
+    
+    @PostMapping("/movements/batch")
+    @Operation(summary = "Apply a batch of stock movements, all or nothing")
+    public ResponseEntity<Map<String, Object>> applyMovements(
+            @RequestBody List<MovementRequest> requests,
+            @AuthenticationPrincipal UserDetails principal) {
+        UUID userId = getUserIdFromPrincipal(principal);
+        List<InventoryService.MovementLine> lines = requests.stream()
+                .map(request -> new InventoryService.MovementLine(
+                        request.getHubId(),
+                        request.getItemId(),
+                        request.getMovementType(),
+                        request.getQuantity() != null ? request.getQuantity() : 0,
+                        request.getReason()))
+                .toList();
+        return ResponseEntity.ok(Map.of("applied", inventoryService.applyMovements(lines, userId)));
+    }
+
+    @GetMapping("/rebalancing/plan")
+    @Operation(summary = "Latest proposed transfers between hubs to cover open demand, 202 until the first is ready")
+    public ResponseEntity<RebalancingPlanner.RebalancingPlan> getRebalancingPlan() {
+        return rebalancingPlanner.getLatestPlan()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.accepted().build());
+    }
+
+    @PostMapping("/rebalancing/plan")
+    @Operation(summary = "Recompute the rebalancing plan from current stock and demand in the background")
+    public ResponseEntity<Void> computeRebalancingPlan() {
+        rebalancingPlanner.requestPlan();
+        return ResponseEntity.accepted().build();
+    }
+
     @GetMapping("/movements")
     @Operation(summary = "Get stock movements")
     public ResponseEntity<List<StockMovement>> getStockMovements(
@@ -162,7 +244,29 @@ public class InventoryController {
         public Integer getQuantity() { return quantity; }
         public void setQuantity(Integer quantity) { this.quantity = quantity; }
     }
-}
 
+    @Data
+    public static class MovementRequest {
+        private UUID hubId;
+        private UUID itemId;
+        private String movementType;
+        private Integer quantity;
+        private String reason;
 
+        // Explicit getters and setters for Lombok compatibility
+        public UUID getHubId() { return hubId; }
+        public void setHubId(UUID hubId) { this.hubId = hubId; }
 
+        public UUID getItemId() { return itemId; }
+        public void setItemId(UUID itemId) { this.itemId = itemId; }
+
+        public String getMovementType() { return movementType; }
+        public void setMovementType(String movementType) { this.movementType = movementType; }
+
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+        public String getReason() { return reason; }
+        public void setReason(String reason) { this.reason = reason; }
+    }
+}
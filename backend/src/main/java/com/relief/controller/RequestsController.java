@@ -1,12 +1,11 @@
 package com.relief.controller;
 
 import com.relief.dto.RequestsFilter;
-import com.relief.entity.NeedsRequest;
 import com.relief.service.RequestQueryService;
+import com.relief.service.search.RequestSearchIndex;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,17 +16,18 @@ import org.springframework.web.bind.annotation.*;
 public class RequestsController {
 
     private final RequestQueryService requestQueryService;
+    private final RequestSearchIndex requestSearchIndex;
 
     @GetMapping
-    @Operation(summary = "List requests with filters and optional bbox")
-    public ResponseEntity<Page<NeedsRequest>> list(
+    @Operation(summary = "List requests matching all given filters, newest first; pass nextCursor back as cursor for the next page")
+    public ResponseEntity<RequestQueryService.RequestPage> list(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String type,
             @RequestParam(required = false) Integer minSeverity,
             @RequestParam(required = false) String from,
             @RequestParam(required = false) String to,
             @RequestParam(required = false) String bbox,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size
     ) {
         RequestsFilter filter = new RequestsFilter();
@@ -37,11 +37,17 @@ public class RequestsController {
         filter.setFrom(from);
         filter.setTo(to);
         filter.setBbox(bbox);
-        return ResponseEntity.ok(requestQueryService.search(filter, page, size));
+        filter.setCursor(cursor);
+        return ResponseEntity.ok(requestQueryService.search(filter, size));
     }
-}
-
-
-
-
 
+    @GetMapping("/search")
+    @Operation(summary = "Full-text search over request notes, tolerant of typos, with counts per type and highlighted snippets")
+    public ResponseEntity<RequestSearchIndex.RequestSearchResult> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(requestSearchIndex.search(q, type, limit));
+    }
+}
@@ -9,6 +9,8 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserRepository userRepository;
+    private final GeometryFactory geometryFactory;
 
     @GetMapping("/me")
     @Operation(summary = "Get current user profile")
@@ -60,6 +63,26 @@ public class UserController {
         
         return ResponseEntity.ok(updatedUser);
     }
+
+    @PutMapping("/me/location")
+    @Operation(summary = "Report current user's last known position")
+    @RequiresPermission(Permission.USER_WRITE)
+    public ResponseEntity<Void> updateMyLocation(
+            @AuthenticationPrincipal UserDetails principal,
+            @RequestParam double latitude,
+            @RequestParam double longitude) {
+        
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Invalid coordinates");
+        }
+        User user = userRepository.findByEmail(principal.getUsername()).orElseGet(() ->
+                userRepository.findByPhone(principal.getUsername()).orElseThrow());
+        
+        user.setGeomPoint(geometryFactory.createPoint(new Coordinate(longitude, latitude)));
+        userRepository.save(user);
+        
+        return ResponseEntity.noContent().build();
+    }
 }
 
 
@@ -1,7 +1,14 @@
 package com.relief.controller.indoor;
 
 import com.relief.domain.indoor.*;
+import com.relief.service.indoor.EvacuationFieldService;
+import com.relief.service.indoor.EvacuationFieldService.EvacuationPlan;
+import com.relief.service.indoor.EvacuationFieldService.EvacuationRoute;
 import com.relief.service.indoor.IndoorNavigationService;
+import com.relief.service.indoor.IndoorPositionIngestService;
+import com.relief.service.indoor.IndoorPositionIngestService.FusedPosition;
+import com.relief.service.indoor.IndoorPositionIngestService.IngestResult;
+import com.relief.service.indoor.IndoorPositionIngestService.PositionReading;
 import com.relief.service.indoor.IndoorNavigationService.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -33,6 +40,8 @@ public class IndoorNavigationController {
     private static final Logger log = LoggerFactory.getLogger(IndoorNavigationController.class);
     
     private final IndoorNavigationService indoorNavigationService;
+    private final EvacuationFieldService evacuationFieldService;
+    private final IndoorPositionIngestService positionIngestService;
     
     // Indoor Maps
     
@@ -198,6 +207,18 @@ public class IndoorNavigationController {
         return ResponseEntity.ok(edge);
     }
     
+    @PutMapping("/edges/{edgeId}/access")
+    @Operation(summary = "Update edge access", description = "Open or close an edge, e.g. a locked door or blocked corridor")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER')")
+    public ResponseEntity<IndoorEdge> updateEdgeAccess(
+            @PathVariable Long edgeId,
+            @Valid @RequestBody EdgeAccessRequest request) {
+        log.info("Updating access of indoor edge: {}", edgeId);
+        IndoorEdge edge = indoorNavigationService.updateEdgeAccess(
+            edgeId, request.isAccessible(), request.isRestricted(), request.restrictionType());
+        return ResponseEntity.ok(edge);
+    }
+    
     // Indoor Positioning
     
     @PostMapping("/positions")
@@ -209,6 +230,22 @@ public class IndoorNavigationController {
         return ResponseEntity.ok(position);
     }
     
+    @PostMapping("/positions/batch")
+    @Operation(summary = "Ingest position readings", description = "Fuse a batch of beacon, Wi-Fi and dead-reckoning readings into tracked positions")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER') or hasRole('HELPER') or hasRole('RESIDENT')")
+    public ResponseEntity<IngestResult> ingestPositionReadings(@Valid @RequestBody List<PositionReading> readings) {
+        log.debug("Ingesting {} indoor position readings", readings.size());
+        return ResponseEntity.ok(positionIngestService.ingest(readings));
+    }
+    
+    @GetMapping("/maps/{mapId}/positions/live")
+    @Operation(summary = "Get live positions", description = "Get the latest fused position of every entity tracked in an indoor map")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER') or hasRole('HELPER')")
+    public ResponseEntity<List<FusedPosition>> getLivePositions(@PathVariable Long mapId) {
+        log.info("Getting live positions for map: {}", mapId);
+        return ResponseEntity.ok(positionIngestService.getLatestByMap(mapId));
+    }
+    
     @GetMapping("/positions")
     @Operation(summary = "Get indoor positions", description = "Get indoor positions with optional filtering")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER') or hasRole('HELPER') or hasRole('RESIDENT')")
@@ -286,6 +323,27 @@ public class IndoorNavigationController {
         return ResponseEntity.ok(routes);
     }
     
+    @GetMapping("/maps/{mapId}/evacuation")
+    @Operation(summary = "Get evacuation plan", description = "Get the next hop and nearest exit of every node in an indoor map")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER') or hasRole('HELPER') or hasRole('RESIDENT')")
+    public ResponseEntity<EvacuationPlan> getEvacuationPlan(
+            @PathVariable Long mapId,
+            @Parameter(description = "Route type") @RequestParam(defaultValue = "EMERGENCY_EVACUATION") IndoorRouteType routeType) {
+        log.info("Getting evacuation plan for map: {}", mapId);
+        return ResponseEntity.ok(evacuationFieldService.getEvacuationPlan(mapId, routeType));
+    }
+    
+    @GetMapping("/maps/{mapId}/evacuation/route")
+    @Operation(summary = "Get evacuation route", description = "Get the route from a node to its nearest reachable exit")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER') or hasRole('HELPER') or hasRole('RESIDENT')")
+    public ResponseEntity<EvacuationRoute> getEvacuationRoute(
+            @PathVariable Long mapId,
+            @Parameter(description = "From node ID") @RequestParam Long fromNodeId,
+            @Parameter(description = "Route type") @RequestParam(defaultValue = "EMERGENCY_EVACUATION") IndoorRouteType routeType) {
+        log.info("Getting evacuation route from node {} in map {}", fromNodeId, mapId);
+        return ResponseEntity.ok(evacuationFieldService.getEvacuationRoute(mapId, fromNodeId, routeType));
+    }
+    
     @GetMapping("/maps/{mapId}/nodes/nearest")
     @Operation(summary = "Find nearest node", description = "Find the nearest node to a position")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER') or hasRole('HELPER') or hasRole('RESIDENT')")
@@ -382,7 +440,10 @@ public class IndoorNavigationController {
         
         return ResponseEntity.ok(statistics);
     }
+    
+    public record EdgeAccessRequest(
+        Boolean isAccessible,
+        Boolean isRestricted,
+        String restrictionType
+    ) {}
 }
-
-
-
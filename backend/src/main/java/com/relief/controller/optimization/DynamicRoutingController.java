@@ -1,7 +1,11 @@
 package com.relief.controller.optimization;
 
 import com.relief.service.optimization.DynamicRoutingService;
+import com.relief.service.optimization.DynamicRoutingService.ConditionChange;
+import com.relief.service.optimization.DynamicRoutingService.DeliveryPlan;
+import com.relief.service.optimization.DynamicRoutingService.DeliveryPlanRequest;
 import com.relief.service.optimization.DynamicRoutingService.Route;
+import com.relief.service.optimization.DynamicRoutingService.RouteDelta;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -43,6 +47,30 @@ public class DynamicRoutingController {
         return ResponseEntity.ok(route);
     }
 
+    @PostMapping("/routes/{routeId}/progress")
+    @Operation(summary = "Record the number of stops served on a route")
+    public ResponseEntity<Route> advanceRoute(
+            @PathVariable String routeId,
+            @RequestParam int visitedStops) {
+
+        Route route = routingService.advanceRoute(routeId, visitedStops);
+        return ResponseEntity.ok(route);
+    }
+
+    @PostMapping("/routes/{routeId}/complete")
+    @Operation(summary = "Complete route and release it from active routing")
+    public ResponseEntity<Void> completeRoute(@PathVariable String routeId) {
+        routingService.completeRoute(routeId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/conditions")
+    @Operation(summary = "Apply closures, slow-downs and urgent stops to all active routes")
+    public ResponseEntity<List<RouteDelta>> applyConditionChange(@RequestBody ConditionChange change) {
+        List<RouteDelta> deltas = routingService.applyConditionChange(change);
+        return ResponseEntity.ok(deltas);
+    }
+
     @GetMapping("/routes/{routeId}")
     @Operation(summary = "Get route")
     public ResponseEntity<Route> getRoute(@PathVariable String routeId) {
@@ -56,7 +84,18 @@ public class DynamicRoutingController {
         List<Route> routes = routingService.getRoutes();
         return ResponseEntity.ok(routes);
     }
-}
-
 
+    @PostMapping("/plans")
+    @Operation(summary = "Plan multi-vehicle deliveries from a hub with capacities and time windows")
+    public ResponseEntity<DeliveryPlan> planDeliveries(@RequestBody DeliveryPlanRequest request) {
+        DeliveryPlan plan = routingService.planDeliveries(request);
+        return ResponseEntity.ok(plan);
+    }
 
+    @GetMapping("/plans/{planId}")
+    @Operation(summary = "Get delivery plan")
+    public ResponseEntity<DeliveryPlan> getPlan(@PathVariable String planId) {
+        DeliveryPlan plan = routingService.getPlan(planId);
+        return plan != null ? ResponseEntity.ok(plan) : ResponseEntity.notFound().build();
+    }
+}
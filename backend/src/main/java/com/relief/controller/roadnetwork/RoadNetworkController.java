@@ -0,0 +1,112 @@
+package com.relief.controller.roadnetwork;
+
+import com.relief.service.roadnetwork.RoadNetworkService;
+import com.relief.service.roadnetwork.RoadNetworkService.NetworkStatus;
+import com.relief.service.roadnetwork.RoadNetworkService.RoadPoint;
+import com.relief.service.roadnetwork.RoadNetworkService.RoadRoute;
+import com.relief.service.roadnetwork.RoadNetworkService.TravelTimes;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * REST controller for road network travel times and closures
+ */
+@RestController
+@RequestMapping("/road-network")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Road Network", description = "Road travel times over OSM extracts with dynamic closures")
+public class RoadNetworkController {
+
+    private final RoadNetworkService roadNetworkService;
+    private final GeometryFactory geometryFactory;
+
+    @GetMapping("/status")
+    @Operation(summary = "Get road network status")
+    public ResponseEntity<NetworkStatus> getStatus() {
+        return ResponseEntity.ok(roadNetworkService.getStatus());
+    }
+
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Import an OSM PBF extract from local disk", description = "Reads and preprocesses the extract in the background")
+    public ResponseEntity<NetworkStatus> importExtract(@RequestParam String path) {
+        return ResponseEntity.accepted().body(roadNetworkService.importExtract(Path.of(path)));
+    }
+
+    @GetMapping("/route")
+    @Operation(summary = "Get quickest open road route between two points")
+    public ResponseEntity<RoadRoute> getRoute(
+            @RequestParam double fromLatitude,
+            @RequestParam double fromLongitude,
+            @RequestParam double toLatitude,
+            @RequestParam double toLongitude) {
+
+        return roadNetworkService.route(fromLatitude, fromLongitude, toLatitude, toLongitude)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/travel-times")
+    @Operation(summary = "Get travel times from one origin to many destinations")
+    public ResponseEntity<TravelTimes> getTravelTimes(@RequestBody TravelTimesRequest request) {
+        return roadNetworkService.travelTimes(request.origin(), request.destinations())
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/closures/{closureId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER')")
+    @Operation(summary = "Close all roads in an area")
+    public ResponseEntity<NetworkStatus> closeArea(
+            @PathVariable String closureId,
+            @RequestBody List<RoadPoint> area) {
+
+        return ResponseEntity.ok(roadNetworkService.closeArea(closureId, toPolygon(area)));
+    }
+
+    @DeleteMapping("/closures/{closureId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER')")
+    @Operation(summary = "Reopen the roads of a closed area")
+    public ResponseEntity<NetworkStatus> reopenArea(@PathVariable String closureId) {
+        return ResponseEntity.ok(roadNetworkService.reopenArea(closureId));
+    }
+
+    @PostMapping("/closures/flood-prone")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DISPATCHER')")
+    @Operation(summary = "Close roads in flood-prone terrain analysis areas")
+    public ResponseEntity<NetworkStatus> closeFloodProneAreas(@RequestParam(defaultValue = "0.7") double minFloodRisk) {
+        return ResponseEntity.ok(roadNetworkService.closeFloodProneAreas(minFloodRisk));
+    }
+
+    private Polygon toPolygon(List<RoadPoint> points) {
+        if (points.size() < 3) {
+            throw new IllegalArgumentException("An area needs at least three points");
+        }
+        Coordinate[] coordinates = points.stream()
+            .map(point -> new Coordinate(point.longitude(), point.latitude()))
+            .toArray(Coordinate[]::new);
+
+        // Close the polygon if not already closed
+        if (!coordinates[0].equals(coordinates[coordinates.length - 1])) {
+            Coordinate[] closed = Arrays.copyOf(coordinates, coordinates.length + 1);
+            closed[coordinates.length] = coordinates[0];
+            coordinates = closed;
+        }
+        return geometryFactory.createPolygon(coordinates);
+    }
+
+    public record TravelTimesRequest(RoadPoint origin, List<RoadPoint> destinations) {}
+}
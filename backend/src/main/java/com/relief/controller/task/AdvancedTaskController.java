@@ -106,11 +106,12 @@ public class AdvancedTaskController {
     public ResponseEntity<Map<String, Object>> autoAssignTasks(
             @AuthenticationPrincipal UserDetails principal) {
         
-        skillBasedMatchingService.autoAssignTasks();
+        int assigned = skillBasedMatchingService.autoAssignTasks();
         
         return ResponseEntity.ok(Map.of(
             "status", "success",
-            "message", "Auto-assignment completed"
+            "message", "Auto-assignment completed",
+            "tasksAssigned", assigned
         ));
     }
 
@@ -152,6 +153,38 @@ public class AdvancedTaskController {
         return ResponseEntity.ok(readyTasks);
     }
 
+    @PutMapping("/dependencies/{taskId}/{dependsOnTaskId}")
+    @Operation(summary = "Make a task depend on another task")
+    public ResponseEntity<Map<String, Object>> addDependency(
+            @PathVariable UUID taskId,
+            @PathVariable UUID dependsOnTaskId,
+            @AuthenticationPrincipal UserDetails principal) {
+
+        taskDependencyService.addDependency(taskId, dependsOnTaskId);
+
+        return ResponseEntity.ok(Map.of(
+            "taskId", taskId,
+            "dependsOnTaskId", dependsOnTaskId,
+            "status", "added"
+        ));
+    }
+
+    @DeleteMapping("/dependencies/{taskId}/{dependsOnTaskId}")
+    @Operation(summary = "Remove a task dependency")
+    public ResponseEntity<Map<String, Object>> removeDependency(
+            @PathVariable UUID taskId,
+            @PathVariable UUID dependsOnTaskId,
+            @AuthenticationPrincipal UserDetails principal) {
+
+        boolean removed = taskDependencyService.removeDependency(taskId, dependsOnTaskId);
+
+        return ResponseEntity.ok(Map.of(
+            "taskId", taskId,
+            "dependsOnTaskId", dependsOnTaskId,
+            "status", removed ? "removed" : "not_found"
+        ));
+    }
+
     @PostMapping("/dependencies/{taskId}/validate")
     @Operation(summary = "Validate task dependency chain")
     public ResponseEntity<Map<String, Object>> validateDependencies(
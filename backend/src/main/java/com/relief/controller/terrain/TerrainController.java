@@ -104,48 +104,73 @@ public class TerrainController {
     }
     
     /**
-     * Perform terrain analysis for an area
+     * Submit a terrain analysis job for an area; the completed job carries the analysis id
      */
     @PostMapping("/analysis")
-    @Operation(summary = "Perform terrain analysis", description = "Perform terrain analysis for a specified area")
-    public ResponseEntity<TerrainAnalysisResponse> performTerrainAnalysis(
+    @Operation(summary = "Perform terrain analysis", description = "Analyze a specified area in the background")
+    public ResponseEntity<TerrainAnalysisService.TerrainAnalysisJob> performTerrainAnalysis(
             @Valid @RequestBody TerrainAnalysisRequest request) {
         
-        // Create polygon from coordinates
-        Coordinate[] coordinates = request.coordinates().stream()
-            .map(coord -> new Coordinate(coord.longitude(), coord.latitude()))
-            .toArray(Coordinate[]::new);
+        Polygon area = toPolygon(request.coordinates());
+        TerrainAnalysisType analysisType = TerrainAnalysisType.valueOf(request.analysisType());
         
-        // Close the polygon if not already closed
-        if (coordinates.length > 0 && !coordinates[0].equals(coordinates[coordinates.length - 1])) {
-            Coordinate[] closedCoordinates = new Coordinate[coordinates.length + 1];
-            System.arraycopy(coordinates, 0, closedCoordinates, 0, coordinates.length);
-            closedCoordinates[coordinates.length] = coordinates[0];
-            coordinates = closedCoordinates;
-        }
+        var job = terrainAnalysisService.submitTerrainAnalysis(area, analysisType);
         
-        Polygon area = geometryFactory.createPolygon(coordinates);
-        TerrainAnalysisType analysisType = TerrainAnalysisType.valueOf(request.analysisType());
+        return ResponseEntity.accepted().body(job);
+    }
+    
+    /**
+     * Get a stored terrain analysis
+     */
+    @GetMapping("/analysis/{analysisId:\\d+}")
+    @Operation(summary = "Get terrain analysis", description = "Get a stored terrain analysis by id")
+    public ResponseEntity<TerrainAnalysisResponse> getTerrainAnalysis(@PathVariable Long analysisId) {
+        return terrainAnalysisService.getTerrainAnalysis(analysisId)
+            .map(analysis -> ResponseEntity.ok(new TerrainAnalysisResponse(
+                analysis.getId(),
+                analysis.getAnalysisType().name(),
+                analysis.getMinElevation(),
+                analysis.getMaxElevation(),
+                analysis.getAvgElevation(),
+                analysis.getElevationVariance(),
+                analysis.getSlopeAverage(),
+                analysis.getSlopeMaximum(),
+                analysis.getAspectAverage(),
+                analysis.getRoughnessIndex(),
+                analysis.getAccessibilityScore(),
+                analysis.getFloodRiskScore(),
+                analysis.getAnalysisData()
+            )))
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Submit a tiled terrain analysis job for an area
+     */
+    @PostMapping("/analysis/jobs")
+    @Operation(summary = "Submit tiled terrain analysis", description = "Analyze slope, aspect and flow accumulation per tile in the background")
+    public ResponseEntity<TerrainAnalysisService.TerrainAnalysisJob> submitTerrainAnalysisJob(
+            @Valid @RequestBody TerrainAnalysisJobRequest request) {
         
-        var analysis = terrainAnalysisService.performTerrainAnalysis(area, analysisType);
+        Polygon area = toPolygon(request.coordinates());
+        TerrainAnalysisType analysisType = TerrainAnalysisType.valueOf(request.analysisType());
         
-        TerrainAnalysisResponse response = new TerrainAnalysisResponse(
-            analysis.getId(),
-            analysis.getAnalysisType().name(),
-            analysis.getMinElevation(),
-            analysis.getMaxElevation(),
-            analysis.getAvgElevation(),
-            analysis.getElevationVariance(),
-            analysis.getSlopeAverage(),
-            analysis.getSlopeMaximum(),
-            analysis.getAspectAverage(),
-            analysis.getRoughnessIndex(),
-            analysis.getAccessibilityScore(),
-            analysis.getFloodRiskScore(),
-            analysis.getAnalysisData()
-        );
+        var job = terrainAnalysisService.submitTiledAnalysis(area, analysisType,
+            request.cellSize() != null ? request.cellSize() : 30.0,
+            request.tileSize() != null ? request.tileSize() : 256);
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.accepted().body(job);
+    }
+    
+    /**
+     * Get the status of a tiled terrain analysis job
+     */
+    @GetMapping("/analysis/jobs/{jobId}")
+    @Operation(summary = "Get terrain analysis job", description = "Get the status of a tiled terrain analysis job")
+    public ResponseEntity<TerrainAnalysisService.TerrainAnalysisJob> getTerrainAnalysisJob(@PathVariable String jobId) {
+        return terrainAnalysisService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
     }
     
     /**
@@ -313,6 +338,25 @@ public class TerrainController {
         return ResponseEntity.ok(responses);
     }
     
+    /**
+     * Create a closed polygon from request coordinates
+     */
+    private Polygon toPolygon(List<CoordinateRequest> coordinateRequests) {
+        Coordinate[] coordinates = coordinateRequests.stream()
+            .map(coord -> new Coordinate(coord.longitude(), coord.latitude()))
+            .toArray(Coordinate[]::new);
+        
+        // Close the polygon if not already closed
+        if (coordinates.length > 0 && !coordinates[0].equals(coordinates[coordinates.length - 1])) {
+            Coordinate[] closedCoordinates = new Coordinate[coordinates.length + 1];
+            System.arraycopy(coordinates, 0, closedCoordinates, 0, coordinates.length);
+            closedCoordinates[coordinates.length] = coordinates[0];
+            coordinates = closedCoordinates;
+        }
+        
+        return geometryFactory.createPolygon(coordinates);
+    }
+    
     // Request/Response DTOs
     
     public record ElevationResponse(double longitude, double latitude, double elevation) {}
@@ -330,6 +374,13 @@ public class TerrainController {
         String analysisType
     ) {}
     
+    public record TerrainAnalysisJobRequest(
+        List<CoordinateRequest> coordinates,
+        String analysisType,
+        Double cellSize,
+        Integer tileSize
+    ) {}
+    
     public record CoordinateRequest(double longitude, double latitude) {}
     
     public record TerrainAnalysisResponse(
@@ -94,6 +94,19 @@ public class KnowledgeBaseController {
         return ResponseEntity.ok(articles);
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Full-text search of knowledge articles, tolerant of typos, with counts per category and highlighted snippets")
+    public ResponseEntity<KnowledgeBaseService.ArticleSearchResult> search(
+            @RequestParam String query,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(required = false) String language,
+            @RequestParam(defaultValue = "true") boolean isPublic,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        return ResponseEntity.ok(knowledgeBaseService.search(query, category, tags, language, isPublic, limit));
+    }
+
     @GetMapping("/articles/category/{category}")
     @Operation(summary = "Get articles by category")
     public ResponseEntity<List<KnowledgeArticle>> getArticlesByCategory(
@@ -15,7 +15,9 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "terrain_analysis", indexes = {
     @Index(name = "idx_terrain_geom", columnList = "area"),
-    @Index(name = "idx_terrain_type", columnList = "analysis_type")
+    @Index(name = "idx_terrain_type", columnList = "analysis_type"),
+    @Index(name = "idx_terrain_flood_risk", columnList = "flood_risk_score DESC"),
+    @Index(name = "idx_terrain_accessibility_slope", columnList = "accessibility_score DESC, slope_max")
 })
 @Data
 @Builder
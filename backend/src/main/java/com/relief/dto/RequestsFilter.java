@@ -10,6 +10,7 @@ public class RequestsFilter {
     private String from; // ISO date
     private String to;   // ISO date
     private String bbox; // POLYGON WKT or bbox "minx,miny,maxx,maxy"
+    private String cursor; // nextCursor of the previous page
 
     // Explicit getters and setters for Lombok compatibility
     public String getStatus() { return status; }
@@ -29,6 +30,9 @@ public class RequestsFilter {
 
     public String getBbox() { return bbox; }
     public void setBbox(String bbox) { this.bbox = bbox; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
 }
 
 
@@ -1,5 +1,9 @@
 package com.relief.entity;
 
+import com.relief.service.ai.DuplicateIndexEntityListener;
+import com.relief.service.escalation.EscalationEntityListener;
+import com.relief.service.search.RequestSearchEntityListener;
+import com.relief.service.spatial.SpatialIndexEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +23,8 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, SpatialIndexEntityListener.class, DuplicateIndexEntityListener.class,
+    EscalationEntityListener.class, RequestSearchEntityListener.class})
 public class NeedsRequest {
 
     @Id
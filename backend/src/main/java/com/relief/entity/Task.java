@@ -1,5 +1,7 @@
 package com.relief.entity;
 
+import com.relief.service.escalation.EscalationEntityListener;
+import com.relief.service.task.TaskGraphEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +21,7 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, TaskGraphEntityListener.class, EscalationEntityListener.class})
 public class Task {
 
     @Id
@@ -78,13 +80,6 @@ public class Task {
     @Column(name = "location", columnDefinition = "geometry(Point, 4326)")
     private Point location;
 
-    /**
-     * Comma-separated list of task IDs (UUIDs) this task depends on.
-     * This powers the {@link com.relief.service.task.TaskDependencyService}.
-     */
-    @Column(name = "dependencies")
-    private String dependencies;
-
     @Builder.Default
     private String status = "new"; // new, assigned, picked_up, delivered, could_not_deliver
 
@@ -145,9 +140,6 @@ public class Task {
     public Point getLocation() { return location; }
     public void setLocation(Point location) { this.location = location; }
 
-    public String getDependencies() { return dependencies; }
-    public void setDependencies(String dependencies) { this.dependencies = dependencies; }
-
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
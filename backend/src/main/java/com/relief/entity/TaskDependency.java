@@ -0,0 +1,44 @@
+package com.relief.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Dependency edge between tasks: {@code taskId} can start once {@code dependsOnTaskId} is completed.
+ * Powers the {@link com.relief.service.task.TaskDependencyService}.
+ */
+@Entity
+@Table(name = "task_dependencies")
+@IdClass(TaskDependency.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskDependency {
+
+    @Id
+    @Column(name = "task_id", nullable = false, columnDefinition = "uuid")
+    private UUID taskId;
+
+    @Id
+    @Column(name = "depends_on_task_id", nullable = false, columnDefinition = "uuid")
+    private UUID dependsOnTaskId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID taskId;
+        private UUID dependsOnTaskId;
+    }
+}
@@ -1,5 +1,6 @@
 package com.relief.entity;
 
+import com.relief.service.spatial.SpatialIndexEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +20,7 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, SpatialIndexEntityListener.class})
 public class User {
 
     @Id
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,6 +26,21 @@ public interface InventoryStockRepository extends JpaRepository<InventoryStock,
     @Override
     List<InventoryStock> findAll();
     
+    /**
+     * Flat stock rows for the inventory snapshot:
+     * stock id, hub id, hub name, item id, item code, item name, unit, available, reserved, updated at
+     */
+    @Query("SELECT s.id, h.id, h.name, i.id, i.code, i.name, i.unit, s.qtyAvailable, s.qtyReserved, s.updatedAt " +
+           "FROM InventoryStock s LEFT JOIN s.hub h LEFT JOIN s.item i")
+    List<Object[]> findSnapshotRows();
+
+    /**
+     * Snapshot rows of the given hubs and items, same columns as {@link #findSnapshotRows()}
+     */
+    @Query("SELECT s.id, h.id, h.name, i.id, i.code, i.name, i.unit, s.qtyAvailable, s.qtyReserved, s.updatedAt " +
+           "FROM InventoryStock s JOIN s.hub h JOIN s.item i WHERE h.id IN :hubIds AND i.id IN :itemIds")
+    List<Object[]> findSnapshotRows(@Param("hubIds") Collection<UUID> hubIds, @Param("itemIds") Collection<UUID> itemIds);
+
     // Admin-specific queries
     long countByQtyAvailableLessThan(Integer threshold);
 }
@@ -32,6 +32,37 @@ public interface NeedsRequestRepository extends JpaRepository<NeedsRequest, UUID
            """)
     List<NeedsRequest> findRecentRequestsInArea(@Param("point") Point point, @Param("radius") double radius, @Param("since") LocalDateTime since);
     
+    @Query("SELECT nr FROM NeedsRequest nr WHERE nr.geomPoint IS NOT NULL AND nr.createdAt >= :since")
+    List<NeedsRequest> findLocatedRequestsCreatedSince(@Param("since") LocalDateTime since);
+    
+    /**
+     * ID, type, status, notes, location, creation and update time of requests changed after the
+     * given time, for incremental duplicate clustering
+     */
+    @Query("SELECT nr.id, nr.type, nr.status, nr.notes, nr.geomPoint, nr.createdAt, nr.updatedAt " +
+           "FROM NeedsRequest nr WHERE nr.updatedAt > :since")
+    List<Object[]> findDedupeFeaturesUpdatedSince(@Param("since") LocalDateTime since);
+    
+    /**
+     * ID, type and notes of the requests after the given id in id order, for loading the search index
+     */
+    @Query("SELECT nr.id, nr.type, nr.notes FROM NeedsRequest nr WHERE nr.id > :after ORDER BY nr.id")
+    List<Object[]> findSearchTextAfter(@Param("after") UUID after, Pageable pageable);
+    
+    /**
+     * ID, type, status, severity and creation time of requests open to escalation, for rebuilding
+     * the escalation timers.
+     */
+    @Query("SELECT nr.id, nr.type, nr.status, nr.severity, nr.createdAt FROM NeedsRequest nr WHERE nr.status IN ('OPEN', 'IN_PROGRESS')")
+    List<Object[]> findEscalationCandidates();
+    
+    /**
+     * Open requests per ward and need type as (ward id, type, count), for inventory rebalancing
+     */
+    @Query("SELECT w.id, nr.type, COUNT(nr) FROM NeedsRequest nr JOIN nr.household h JOIN h.ward w " +
+           "WHERE LOWER(nr.status) NOT IN ('completed', 'cancelled', 'resolved', 'closed') GROUP BY w.id, nr.type")
+    List<Object[]> countOpenDemandByWardAndType();
+    
     @Query("SELECT nr FROM NeedsRequest nr WHERE nr.severity >= 4 AND nr.status IN ('OPEN', 'IN_PROGRESS') ORDER BY nr.createdAt ASC")
     List<NeedsRequest> findHighPriorityRequests();
     
@@ -42,28 +73,10 @@ public interface NeedsRequestRepository extends JpaRepository<NeedsRequest, UUID
         return findUnresolvedRequests(LocalDateTime.now().minusHours(2));
     }
 
-    @Query("SELECT nr FROM NeedsRequest nr WHERE nr.status = :status")
-    Page<NeedsRequest> findByStatus(@Param("status") String status, Pageable pageable);
-
-    @Query("SELECT nr FROM NeedsRequest nr WHERE nr.type = :type")
-    Page<NeedsRequest> findByType(@Param("type") String type, Pageable pageable);
-
-    @Query("SELECT nr FROM NeedsRequest nr WHERE nr.severity >= :minSeverity")
-    Page<NeedsRequest> findByMinSeverity(@Param("minSeverity") Integer minSeverity, Pageable pageable);
-
-    @Query("SELECT nr FROM NeedsRequest nr WHERE nr.createdAt >= :fromDate AND nr.createdAt <= :toDate")
-    Page<NeedsRequest> findByDateRange(@Param("fromDate") LocalDateTime fromDate, 
-                                       @Param("toDate") LocalDateTime toDate, 
-                                       Pageable pageable);
-
     @Query(value = "SELECT * FROM needs_requests WHERE ST_DWithin(geom_point, ST_GeomFromText(:point, 4326), :radius)", 
            nativeQuery = true)
     List<NeedsRequest> findNearbyRequests(@Param("point") String point, @Param("radius") double radius);
 
-    @Query(value = "SELECT * FROM needs_requests WHERE ST_Within(geom_point, ST_GeomFromText(:bbox, 4326))", 
-           nativeQuery = true)
-    Page<NeedsRequest> findWithinBoundingBox(@Param("bbox") String bbox, Pageable pageable);
-
     @Query("SELECT nr FROM NeedsRequest nr WHERE nr.currentAssignee.id = :assigneeId")
     Page<NeedsRequest> findByAssignee(@Param("assigneeId") UUID assigneeId, Pageable pageable);
 
@@ -0,0 +1,35 @@
+package com.relief.repository;
+
+import com.relief.entity.TaskDependency;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TaskDependencyRepository extends JpaRepository<TaskDependency, TaskDependency.Key> {
+
+    /**
+     * All dependency edges as (task ID, depends-on task ID) pairs, for loading the in-memory graph.
+     */
+    @Query("SELECT d.taskId, d.dependsOnTaskId FROM TaskDependency d")
+    List<Object[]> findAllEdges();
+
+    /**
+     * Dependency edges leaving the given tasks as (task ID, depends-on task ID) pairs, for walking
+     * a dependency closure level by level before the in-memory graph is loaded.
+     */
+    @Query("SELECT d.taskId, d.dependsOnTaskId FROM TaskDependency d WHERE d.taskId IN :taskIds")
+    List<Object[]> findEdgesFrom(@Param("taskIds") Collection<UUID> taskIds);
+
+    /**
+     * Number of tasks the given task depends on whose status is not one of the completed ones.
+     */
+    @Query("SELECT COUNT(d) FROM TaskDependency d, Task dependency " +
+           "WHERE d.taskId = :taskId AND dependency.id = d.dependsOnTaskId AND dependency.status NOT IN :completed")
+    long countOpenDependencies(@Param("taskId") UUID taskId, @Param("completed") Collection<String> completed);
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -60,6 +61,12 @@ public interface TaskRepository extends JpaRepository<Task, UUID> {
     default List<Task> findOverdueTasks() {
         return findOverdueTasks(LocalDateTime.now());
     }
+
+    /**
+     * ID and ETA of request tasks that escalate once overdue, for rebuilding the escalation timers.
+     */
+    @Query("SELECT t.id, t.eta FROM Task t WHERE t.eta IS NOT NULL AND t.request IS NOT NULL AND t.status IN ('assigned', 'picked_up')")
+    List<Object[]> findEscalationCandidates();
     
     @Query("SELECT COUNT(t) FROM Task t WHERE t.assignee = :assignee AND t.status IN :statuses")
     long countByAssigneeAndStatusIn(@Param("assignee") User assignee, @Param("statuses") List<String> statuses);
@@ -70,6 +77,29 @@ public interface TaskRepository extends JpaRepository<Task, UUID> {
      */
     List<Task> findByAssigneeAndStatusIn(User assignee, List<String> statuses);
 
+    /**
+     * Assignee, status, type and timestamps of assigned tasks in any of the provided statuses.
+     * Used to load helper workload and history in one query for batch matching.
+     */
+    @Query("SELECT t.assignee.id, t.status, t.type, t.createdAt, t.updatedAt FROM Task t " +
+           "WHERE t.assignee IS NOT NULL AND t.status IN :statuses")
+    List<Object[]> findAssigneeHistoryByStatusIn(@Param("statuses") List<String> statuses);
+
+    /**
+     * ID, status, type and timing of every task, for loading the in-memory dependency graph.
+     */
+    @Query("SELECT t.id, t.status, t.type, t.createdAt, t.eta FROM Task t")
+    List<Object[]> findDependencyGraphNodes();
+
+    /**
+     * New tasks none of whose dependencies is outside the completed statuses, for answering
+     * readiness before the in-memory dependency graph is loaded.
+     */
+    @Query("SELECT t FROM Task t WHERE t.status = 'new' AND NOT EXISTS (" +
+           "SELECT d.taskId FROM TaskDependency d, Task dependency " +
+           "WHERE d.taskId = t.id AND dependency.id = d.dependsOnTaskId AND dependency.status NOT IN :completed)")
+    List<Task> findReadyToStart(@Param("completed") Collection<String> completed);
+
     /**
      * Find tasks that are currently unassigned with the given status.
      * Used for auto-assignment of new tasks.
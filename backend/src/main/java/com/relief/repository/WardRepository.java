@@ -2,11 +2,17 @@ package com.relief.repository;
 
 import com.relief.entity.Ward;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface WardRepository extends JpaRepository<Ward, UUID> {
-}
-
-
 
+    /**
+     * Ward centroids as (id, latitude, longitude)
+     */
+    @Query(value = "SELECT w.id, ST_Y(ST_Centroid(w.geom)), ST_X(ST_Centroid(w.geom)) FROM wards w WHERE w.geom IS NOT NULL",
+           nativeQuery = true)
+    List<Object[]> findCentroids();
+}
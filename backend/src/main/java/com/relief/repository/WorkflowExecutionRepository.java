@@ -4,6 +4,7 @@ import com.relief.entity.WorkflowExecutionEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,6 +14,8 @@ public interface WorkflowExecutionRepository extends JpaRepository<WorkflowExecu
     
     Optional<WorkflowExecutionEntity> findByExecutionId(String executionId);
     
+    List<WorkflowExecutionEntity> findByExecutionIdIn(Collection<String> executionIds);
+    
     List<WorkflowExecutionEntity> findByRequestId(UUID requestId);
     
     List<WorkflowExecutionEntity> findByWorkflowType(String workflowType);
@@ -51,6 +51,15 @@ public interface TerrainAnalysisRepository extends JpaRepository<TerrainAnalysis
         @Param("maxScore") double maxScore
     );
     
+    /**
+     * Find accessible terrain analysis with slopes no steeper than the given maximum
+     */
+    @Query("SELECT ta FROM TerrainAnalysis ta WHERE ta.accessibilityScore >= :minScore AND ta.slopeMaximum <= :maxSlope")
+    List<TerrainAnalysis> findAccessible(
+        @Param("minScore") double minScore,
+        @Param("maxSlope") double maxSlope
+    );
+    
     /**
      * Find terrain analysis by flood risk score range
      */
@@ -7,6 +7,7 @@ import com.relief.repository.UserRepository;
 import com.relief.repository.NeedsRequestRepository;
 import com.relief.repository.TaskRepository;
 import com.relief.repository.InventoryStockRepository;
+import com.relief.service.inventory.InventorySnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -35,6 +36,9 @@ public class AdminService {
     @Autowired
     private InventoryStockRepository inventoryStockRepository;
     
+    @Autowired
+    private InventorySnapshot inventorySnapshot;
+    
     @Autowired
     private PasswordEncoder passwordEncoder;
     
@@ -47,8 +51,15 @@ public class AdminService {
         long activeNeeds = needsRequestRepository.countByStatus("active");
         long completedTasks = taskRepository.countByStatus("delivered");
         long pendingTasks = taskRepository.countByStatusIn("new", "assigned", "picked_up");
-        long totalInventoryItems = inventoryStockRepository.count();
-        long lowStockItems = inventoryStockRepository.countByQtyAvailableLessThan(10);
+        long totalInventoryItems;
+        long lowStockItems;
+        if (inventorySnapshot.isLoaded()) {
+            totalInventoryItems = inventorySnapshot.totals().total();
+            lowStockItems = inventorySnapshot.totals().lowStock();
+        } else {
+            totalInventoryItems = inventoryStockRepository.count();
+            lowStockItems = inventoryStockRepository.countByQtyAvailableLessThan(inventorySnapshot.getLowStockThreshold());
+        }
         
         Map<String, Long> usersByRole = userRepository.countByRole();
         Map<String, Long> needsByCategory = needsRequestRepository.countByCategory();
@@ -7,6 +7,7 @@ import com.relief.repository.TaskRepository;
 import com.relief.repository.UserRepository;
 import com.relief.repository.InventoryStockRepository;
 import com.relief.repository.AuditLogRepository;
+import com.relief.service.inventory.InventorySnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -33,6 +34,9 @@ public class AnalyticsService {
     @Autowired
     private AuditLogRepository auditLogRepository;
     
+    @Autowired
+    private InventorySnapshot inventorySnapshot;
+    
     public AnalyticsResponse getOverview(LocalDateTime startDate, LocalDateTime endDate) {
         long totalNeeds = needsRequestRepository.countByCreatedAtBetween(startDate, endDate);
         long activeNeeds = needsRequestRepository.countByStatusAndCreatedAtBetween("active", startDate, endDate);
@@ -117,9 +121,20 @@ public class AnalyticsService {
     public Map<String, Object> getInventoryStatus() {
         Map<String, Object> status = new HashMap<>();
         
-        long totalItems = inventoryStockRepository.count();
-        long lowStockItems = inventoryStockRepository.countByQtyAvailableLessThan(10);
-        long outOfStockItems = inventoryStockRepository.countByQtyAvailableLessThan(1);
+        long totalItems;
+        long lowStockItems;
+        long outOfStockItems;
+        if (inventorySnapshot.isLoaded()) {
+            // Counters maintained by the snapshot as stock changes
+            InventorySnapshot.StockCounts counts = inventorySnapshot.totals();
+            totalItems = counts.total();
+            lowStockItems = counts.lowStock();
+            outOfStockItems = counts.outOfStock();
+        } else {
+            totalItems = inventoryStockRepository.count();
+            lowStockItems = inventoryStockRepository.countByQtyAvailableLessThan(inventorySnapshot.getLowStockThreshold());
+            outOfStockItems = inventoryStockRepository.countByQtyAvailableLessThan(1);
+        }
         
         // Calculate total value (mock calculation)
         double totalValue = calculateTotalInventoryValue();
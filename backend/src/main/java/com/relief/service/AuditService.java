@@ -1,15 +1,19 @@
 package com.relief.service;
 
 import com.relief.entity.AuditLog;
+import com.relief.entity.User;
 import com.relief.repository.AuditLogRepository;
 import com.relief.security.RbacService;
+import com.relief.security.Role;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -33,7 +37,34 @@ public class AuditService {
         
         auditLogRepository.save(auditLog);
     }
-    
+
+    /**
+     * One admin action row per description, saved together so bulk operations write their audit
+     * trail in insert batches rather than a round trip per row
+     */
+    public void logAdminActions(String action, List<String> descriptions) {
+        if (descriptions.isEmpty()) return;
+        User currentUser = rbacService.getCurrentUser();
+        Role currentRole = rbacService.getCurrentUserRole();
+        String userId = currentUser != null ? currentUser.getId().toString() : "system";
+        String userRole = currentRole != null ? currentRole.getCode() : "SYSTEM";
+        LocalDateTime now = LocalDateTime.now();
+
+        List<AuditLog> auditLogs = new ArrayList<>(descriptions.size());
+        for (String description : descriptions) {
+            AuditLog auditLog = new AuditLog();
+            auditLog.setAction(action);
+            auditLog.setDescription(description);
+            auditLog.setUserId(userId);
+            auditLog.setUserRole(userRole);
+            auditLog.setTimestamp(now);
+            auditLog.setIpAddress(getCurrentIpAddress());
+            auditLog.setUserAgent(getCurrentUserAgent());
+            auditLogs.add(auditLog);
+        }
+        auditLogRepository.saveAll(auditLogs);
+    }
+
     public void logUserAction(String action, String description, String targetUserId) {
         AuditLog auditLog = new AuditLog();
         auditLog.setAction(action);
@@ -2,62 +2,128 @@ package com.relief.service;
 
 import com.relief.entity.DedupeGroup;
 import com.relief.entity.DedupeLink;
-import com.relief.entity.NeedsRequest;
 import com.relief.entity.User;
 import com.relief.repository.DedupeGroupRepository;
 import com.relief.repository.DedupeLinkRepository;
-import com.relief.repository.NeedsRequestRepository;
+import com.relief.service.ai.DuplicateCandidateIndex;
+import com.relief.service.escalation.EscalationScheduler;
+import com.relief.service.spatial.SpatialCandidateIndex;
+import com.relief.util.TransactionHooks;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import io.micrometer.core.instrument.MeterRegistry;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+/**
+ * Dedupe groups and merges.
+ *
+ * Merges are set-based: the duplicates of any number of groups are marked merged by one
+ * {@code UPDATE ... WHERE id = ANY(?)}, and their audit rows are saved together. A bulk update
+ * bypasses the needs request entity listeners, so the merged requests are dropped from the
+ * duplicate, spatial and escalation indexes here once the transaction commits.
+ */
 @Service
 @RequiredArgsConstructor
 public class DedupeService {
 
+    private static final String MERGE_REQUESTS_SQL = """
+        UPDATE needs_requests SET status = 'merged', updated_at = now()
+        WHERE id = ANY(?) AND status IS DISTINCT FROM 'merged'
+        RETURNING id
+        """;
+
+    private static final String GROUP_TYPES_SQL = "SELECT id, entity_type FROM dedupe_groups WHERE id = ANY(?)";
+
+    private static final String GROUP_LINKS_SQL = "SELECT group_id, entity_id FROM dedupe_links WHERE group_id = ANY(?)";
+
+    private static final String DISMISS_OPEN_GROUPS_SQL =
+        "UPDATE dedupe_groups SET status = 'DISMISSED' WHERE id = ANY(?) AND status = 'OPEN' RETURNING id";
+
+    private static final String GROUP_MEMBERS_SQL = """
+        SELECT g.id, l.entity_id FROM dedupe_groups g JOIN dedupe_links l ON l.group_id = g.id
+        WHERE g.created_at >= ? AND g.note LIKE ?
+        ORDER BY g.created_at, g.id
+        """;
+
+    private static final String MERGE_GROUPS_SQL = "UPDATE dedupe_groups SET status = 'MERGED' WHERE id = ANY(?)";
+
     private final DedupeGroupRepository groupRepository;
     private final DedupeLinkRepository linkRepository;
-    private final NeedsRequestRepository needsRequestRepository;
     private final AuditService auditService;
     private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<DuplicateCandidateIndex> duplicateCandidateIndex;
+    private final ObjectProvider<SpatialCandidateIndex> spatialCandidateIndex;
+    private final ObjectProvider<EscalationScheduler> escalationScheduler;
 
     @PersistenceContext
     private EntityManager em;
 
     @Transactional
     public DedupeGroup createGroup(String entityType, List<DedupeCandidate> candidates, User createdBy, String note) {
-        DedupeGroup group = DedupeGroup.builder()
-                .entityType(entityType)
-                .status("OPEN")
-                .createdAt(LocalDateTime.now())
-                .createdBy(createdBy)
-                .note(note)
-                .build();
-        group = groupRepository.save(group);
-
-        for (DedupeCandidate c : candidates) {
-            DedupeLink link = DedupeLink.builder()
-                    .group(group)
-                    .entityId(c.entityId())
-                    .score(c.score())
-                    .reason(c.reason())
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            linkRepository.save(link);
+        return createGroups(entityType, List.of(new NewGroup(candidates, note)), createdBy).get(0);
+    }
+
+    /**
+     * Create many groups in one transaction; groups, links and audit rows each go out in insert
+     * batches, since their ids are generated by Hibernate
+     */
+    @Transactional
+    public List<DedupeGroup> createGroups(String entityType, List<NewGroup> newGroups, User createdBy) {
+        LocalDateTime now = LocalDateTime.now();
+        List<DedupeGroup> groups = new ArrayList<>(newGroups.size());
+        for (NewGroup newGroup : newGroups) {
+            groups.add(DedupeGroup.builder()
+                    .entityType(entityType)
+                    .status("OPEN")
+                    .createdAt(now)
+                    .createdBy(createdBy)
+                    .note(newGroup.note())
+                    .build());
+        }
+        groups = groupRepository.saveAll(groups);
+
+        List<DedupeLink> links = new ArrayList<>();
+        List<String> auditDescriptions = new ArrayList<>(groups.size());
+        for (int g = 0; g < groups.size(); g++) {
+            DedupeGroup group = groups.get(g);
+            List<DedupeCandidate> candidates = newGroups.get(g).candidates();
+            for (DedupeCandidate c : candidates) {
+                links.add(DedupeLink.builder()
+                        .group(group)
+                        .entityId(c.entityId())
+                        .score(c.score())
+                        .reason(c.reason())
+                        .createdAt(now)
+                        .build());
+            }
+            auditDescriptions.add("Dedupe group %s created with %d links".formatted(group.getId(), candidates.size()));
         }
+        linkRepository.saveAll(links);
 
-        auditService.logAdminAction("DEDUPE_GROUP_CREATED",
-                "Dedupe group %s created with %d links".formatted(group.getId(), candidates.size()));
-        meterRegistry.counter("dedupe.groups.created").increment();
+        auditService.logAdminActions("DEDUPE_GROUP_CREATED", auditDescriptions);
+        meterRegistry.counter("dedupe.groups.created").increment(groups.size());
 
-        return group;
+        return groups;
     }
 
     @Transactional(readOnly = true)
@@ -75,21 +141,54 @@ public class DedupeService {
                 "Dedupe group %s dismissed: %s".formatted(groupId, reason));
     }
 
+    /**
+     * Dismiss those of the groups that are still open, leaving groups admins already merged or
+     * dismissed alone
+     *
+     * @return number of groups dismissed
+     */
+    @Transactional
+    public int dismissOpenGroups(Collection<UUID> groupIds, String reason) {
+        if (groupIds.isEmpty()) return 0;
+        List<UUID> dismissed = jdbcTemplate.query(
+                con -> uuidArrayStatement(con.prepareStatement(DISMISS_OPEN_GROUPS_SQL), groupIds),
+                (rs, row) -> rs.getObject(1, UUID.class));
+        auditService.logAdminActions("DEDUPE_GROUP_DISMISSED", dismissed.stream()
+                .map(groupId -> "Dedupe group %s dismissed: %s".formatted(groupId, reason))
+                .toList());
+        return dismissed.size();
+    }
+
+    /**
+     * Member entity ids of the groups created since the given time whose note starts with the
+     * prefix, by group in creation order
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, List<UUID>> findGroupMembers(String notePrefix, LocalDateTime since) {
+        Map<UUID, List<UUID>> members = new LinkedHashMap<>();
+        jdbcTemplate.query(GROUP_MEMBERS_SQL,
+                rs -> {
+                    members.computeIfAbsent(rs.getObject(1, UUID.class), id -> new ArrayList<>())
+                            .add(rs.getObject(2, UUID.class));
+                },
+                Timestamp.valueOf(since), notePrefix + "%");
+        return members;
+    }
+
     @Transactional
     public void mergeGroup(UUID groupId, UUID canonicalEntityId, User actor) {
         DedupeGroup group = groupRepository.findById(groupId).orElseThrow();
         List<DedupeLink> links = linkRepository.findByGroup(group);
 
         String entityType = group.getEntityType() != null ? group.getEntityType().toUpperCase() : "";
-        switch (entityType) {
-            case "NEEDS":
-            case "NEEDS_REQUEST":
-                mergeNeedsRequests(canonicalEntityId, links);
-                break;
-            default:
-                // For unsupported types, mark merged but record audit only
-                break;
+        if (isNeedsRequestType(entityType)) {
+            Set<UUID> duplicateIds = new LinkedHashSet<>();
+            for (DedupeLink link : links) {
+                duplicateIds.add(link.getEntityId());
+            }
+            markRequestsMerged(duplicateIds, Set.of(canonicalEntityId));
         }
+        // For unsupported types, mark merged but record audit only
 
         group.setStatus("MERGED");
         groupRepository.save(group);
@@ -98,49 +197,126 @@ public class DedupeService {
         meterRegistry.counter("dedupe.groups.merged", "entityType", entityType).increment();
     }
 
+    /**
+     * Merge many groups at once, each into its canonical entity, without loading entities: one
+     * query reads every group's links, one update marks all their needs request duplicates merged
+     * and one marks the groups merged. A request chosen as canonical anywhere in the batch is never
+     * marked merged. Unknown groups are skipped and reported.
+     */
+    @Transactional
+    public BulkMergeResult mergeGroups(List<GroupMerge> merges, User actor) {
+        Map<UUID, UUID> canonicalByGroup = new LinkedHashMap<>();
+        for (GroupMerge merge : merges) {
+            if (merge.groupId() != null && merge.canonicalEntityId() != null) {
+                canonicalByGroup.put(merge.groupId(), merge.canonicalEntityId());
+            }
+        }
+        if (canonicalByGroup.isEmpty()) {
+            return new BulkMergeResult(0, 0, List.of());
+        }
+
+        Map<UUID, String> entityTypes = new HashMap<>();
+        jdbcTemplate.query(con -> uuidArrayStatement(con.prepareStatement(GROUP_TYPES_SQL), canonicalByGroup.keySet()),
+                rs -> {
+                    String entityType = rs.getString(2);
+                    entityTypes.put(rs.getObject(1, UUID.class), entityType != null ? entityType.toUpperCase() : "");
+                });
+        Map<UUID, List<UUID>> linksByGroup = new HashMap<>();
+        jdbcTemplate.query(con -> uuidArrayStatement(con.prepareStatement(GROUP_LINKS_SQL), entityTypes.keySet()),
+                rs -> {
+                    linksByGroup.computeIfAbsent(rs.getObject(1, UUID.class), id -> new ArrayList<>())
+                            .add(rs.getObject(2, UUID.class));
+                });
+
+        Set<UUID> duplicateIds = new LinkedHashSet<>();
+        List<UUID> missingGroups = new ArrayList<>();
+        List<String> auditDescriptions = new ArrayList<>(entityTypes.size());
+        Map<String, Integer> mergedByType = new HashMap<>();
+        for (Map.Entry<UUID, UUID> merge : canonicalByGroup.entrySet()) {
+            String entityType = entityTypes.get(merge.getKey());
+            if (entityType == null) {
+                missingGroups.add(merge.getKey());
+                continue;
+            }
+            List<UUID> links = linksByGroup.getOrDefault(merge.getKey(), List.of());
+            if (isNeedsRequestType(entityType)) {
+                duplicateIds.addAll(links);
+            }
+            mergedByType.merge(entityType, 1, Integer::sum);
+            auditDescriptions.add("Dedupe group %s merged into %s with %d links"
+                    .formatted(merge.getKey(), merge.getValue(), links.size()));
+        }
+
+        int requestsMerged = markRequestsMerged(duplicateIds, new HashSet<>(canonicalByGroup.values())).size();
+        jdbcTemplate.update(con -> uuidArrayStatement(con.prepareStatement(MERGE_GROUPS_SQL), entityTypes.keySet()));
+
+        auditService.logAdminActions("DEDUPE_GROUP_MERGED", auditDescriptions);
+        mergedByType.forEach((entityType, count) ->
+                meterRegistry.counter("dedupe.groups.merged", "entityType", entityType).increment(count));
+        meterRegistry.counter("dedupe.requests.merged").increment(requestsMerged);
+
+        return new BulkMergeResult(entityTypes.size(), requestsMerged, missingGroups);
+    }
+
     @Transactional
     public int mergeRequests(List<UUID> requestIds, String reason) {
         if (requestIds == null || requestIds.isEmpty()) {
             return 0;
         }
-        
+
         UUID canonicalId = requestIds.get(0);
-        int updated = 0;
-        
-        for (int i = 1; i < requestIds.size(); i++) {
-            UUID duplicateId = requestIds.get(i);
-            if (duplicateId == null || duplicateId.equals(canonicalId)) continue;
-            
-            NeedsRequest req = needsRequestRepository.findById(duplicateId).orElse(null);
-            if (req != null) {
-                req.setStatus("merged");
-                needsRequestRepository.save(req);
-                updated++;
-            }
-        }
-        
+        int updated = markRequestsMerged(requestIds.subList(1, requestIds.size()), Set.of(canonicalId)).size();
+
         if (updated > 0) {
             auditService.logAdminAction("DEDUPE_REQUESTS_MERGED",
                     "Merged %d requests into %s. Reason: %s".formatted(updated, canonicalId, reason != null ? reason : "N/A"));
             meterRegistry.counter("dedupe.requests.merged").increment(updated);
         }
-        
+
         return updated;
     }
 
-    private void mergeNeedsRequests(UUID canonicalId, List<DedupeLink> links) {
-        for (DedupeLink link : links) {
-            UUID duplicateId = link.getEntityId();
-            if (duplicateId == null || duplicateId.equals(canonicalId)) continue;
-            NeedsRequest req = needsRequestRepository.findById(duplicateId).orElse(null);
-            if (req != null) {
-                req.setStatus("merged");
-                needsRequestRepository.save(req);
-            }
+    /**
+     * Mark the requests merged in one statement, skipping nulls, the canonical requests and
+     * requests already merged. Returns the ids that changed.
+     */
+    private List<UUID> markRequestsMerged(Collection<UUID> duplicateIds, Set<UUID> canonicalIds) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (UUID id : duplicateIds) {
+            if (id != null && !canonicalIds.contains(id)) ids.add(id);
         }
+        if (ids.isEmpty()) return List.of();
+
+        List<UUID> merged = jdbcTemplate.query(con -> uuidArrayStatement(con.prepareStatement(MERGE_REQUESTS_SQL), ids),
+                (rs, row) -> rs.getObject(1, UUID.class));
+        TransactionHooks.afterCommit(() -> {
+            DuplicateCandidateIndex duplicates = duplicateCandidateIndex.getIfAvailable();
+            SpatialCandidateIndex spatial = spatialCandidateIndex.getIfAvailable();
+            EscalationScheduler timers = escalationScheduler.getIfAvailable();
+            for (UUID id : merged) {
+                if (duplicates != null) duplicates.removeRequest(id);
+                if (spatial != null) spatial.removeRequest(id);
+                if (timers != null) timers.removeRequest(id);
+            }
+        });
+        return merged;
+    }
+
+    private static PreparedStatement uuidArrayStatement(PreparedStatement statement, Collection<UUID> ids)
+            throws SQLException {
+        statement.setArray(1, statement.getConnection().createArrayOf("uuid", ids.toArray()));
+        return statement;
+    }
+
+    private static boolean isNeedsRequestType(String entityType) {
+        return entityType.equals("NEEDS") || entityType.equals("NEEDS_REQUEST");
     }
 
     public record DedupeCandidate(UUID entityId, Double score, String reason) {}
-}
 
+    public record NewGroup(List<DedupeCandidate> candidates, String note) {}
+
+    public record GroupMerge(UUID groupId, UUID canonicalEntityId) {}
 
+    public record BulkMergeResult(int groupsMerged, int requestsMerged, List<UUID> missingGroups) {}
+}
@@ -4,18 +4,24 @@ import com.relief.entity.InventoryHub;
 import com.relief.entity.InventoryStock;
 import com.relief.entity.ItemCatalog;
 import com.relief.entity.StockMovement;
-import com.relief.entity.User;
 import com.relief.repository.InventoryHubRepository;
 import com.relief.repository.InventoryStockRepository;
 import com.relief.repository.ItemCatalogRepository;
 import com.relief.repository.StockMovementRepository;
-import com.relief.repository.UserRepository;
+import com.relief.service.inventory.InventorySnapshot;
+import com.relief.service.inventory.StockMovementLedger;
+import com.relief.service.inventory.StockReservationEngine;
 import lombok.RequiredArgsConstructor;
 import com.relief.exception.BadRequestException;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -28,7 +34,14 @@ public class InventoryService {
     private final InventoryStockRepository stockRepository;
     private final ItemCatalogRepository itemRepository;
     private final StockMovementRepository movementRepository;
-    private final UserRepository userRepository;
+    private final StockReservationEngine reservationEngine;
+    private final StockMovementLedger movementLedger;
+    private final InventorySnapshot inventorySnapshot;
+
+    /**
+     * One scanned line of a bulk stock movement
+     */
+    public record MovementLine(UUID hubId, UUID itemId, String movementType, int quantity, String reason) {}
 
     public List<InventoryHub> getAllHubs() {
         return hubRepository.findAll();
@@ -46,47 +59,35 @@ public class InventoryService {
         return stockRepository.findByItemId(itemId);
     }
 
+    /**
+     * Every stock entity with its hub and item
+     *
+     * @deprecated loads the whole stock table as entities; page through {@link #getStockSnapshot}
+     *             ({@code /inventory/stock/snapshot}) instead
+     */
+    @Deprecated
     @Transactional(readOnly = true)
     public List<InventoryStock> getAllStock() {
-        // Use JOIN FETCH query to ensure relationships are loaded
-        List<InventoryStock> stockList = stockRepository.findAll();
-        
-        // Force initialization of lazy-loaded relationships to ensure they're serialized
-        // This must happen within the transaction
-        stockList.forEach(stock -> {
-            if (stock.getHub() != null) {
-                // Force initialization by accessing properties
-                stock.getHub().getName();
-                stock.getHub().getAddress();
-            } else {
-                System.err.println("WARNING: Stock " + stock.getId() + " has null hub!");
-            }
-            if (stock.getItem() != null) {
-                // Force initialization by accessing properties
-                stock.getItem().getName();
-                stock.getItem().getCode();
-                stock.getItem().getUnit();
-            } else {
-                System.err.println("WARNING: Stock " + stock.getId() + " has null item! This stock will not display in UI.");
-                System.err.println("  Stock hub_id: " + (stock.getHub() != null ? stock.getHub().getId() : "null"));
-                // Try to manually load the item if item_id exists in database
-                // This shouldn't be necessary if JOIN FETCH worked, but as a fallback:
-                try {
-                    // Check if we can find the item by querying the stock's item_id from the database
-                    // But we don't have direct access to item_id column here, so we'll log it
-                } catch (Exception e) {
-                    System.err.println("  Error trying to load item: " + e.getMessage());
-                }
-            }
-        });
-        
-        // Log summary
-        long withHub = stockList.stream().filter(s -> s.getHub() != null).count();
-        long withItem = stockList.stream().filter(s -> s.getItem() != null).count();
-        long withBoth = stockList.stream().filter(s -> s.getHub() != null && s.getItem() != null).count();
-        System.out.println("Stock summary: Total=" + stockList.size() + ", WithHub=" + withHub + ", WithItem=" + withItem + ", WithBoth=" + withBoth);
-        
-        return stockList;
+        // JOIN FETCH loads hub and item with the stock rows
+        return stockRepository.findAll();
+    }
+
+    /**
+     * A page of flat stock rows from the in-memory snapshot, without loading entities or opening
+     * a transaction
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<InventorySnapshot.StockRow> getStockSnapshot(UUID hubId, UUID itemId, boolean lowStock, int page, int size) {
+        return inventorySnapshot.find(hubId, itemId, lowStock, page, size);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Map<String, Object> getStockSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("lowStockThreshold", inventorySnapshot.getLowStockThreshold());
+        summary.put("totals", inventorySnapshot.totals());
+        summary.put("hubs", inventorySnapshot.allHubCounts());
+        return summary;
     }
 
     public InventoryStock updateStock(UUID hubId, UUID itemId, Integer qtyAvailable, Integer qtyReserved, UUID userId, String reason) {
@@ -115,6 +116,7 @@ public class InventoryService {
             if (qtyReserved != null) stock.setQtyReserved(qtyReserved);
         }
         InventoryStock saved = stockRepository.save(stock);
+        inventorySnapshot.markChanged(hubId, itemId);
         
         // Track movement if quantities changed
         Integer qtyChange = (qtyAvailable != null ? qtyAvailable : saved.getQtyAvailable()) - oldQtyAvailable;
@@ -127,49 +129,83 @@ public class InventoryService {
     }
 
     public InventoryStock reserveStock(UUID hubId, UUID itemId, Integer quantity, UUID userId) {
-        InventoryStock stock = stockRepository.findByHubIdAndItemId(hubId, itemId);
-        if (stock == null || stock.getQtyAvailable() < quantity) {
-            throw new BadRequestException("Insufficient stock available");
+        return reserveStock(List.of(line(hubId, itemId, quantity)), userId).get(0);
+    }
+
+    /**
+     * Reserve several lines at once; either every line is reserved or none is
+     */
+    public List<InventoryStock> reserveStock(List<StockReservationEngine.Line> lines, UUID userId) {
+        List<StockReservationEngine.Line> reserved = reservationEngine.reserve(lines);
+        List<InventoryStock> stocks = new ArrayList<>(reserved.size());
+        for (StockReservationEngine.Line line : reserved) {
+            inventorySnapshot.markChanged(line.hubId(), line.itemId());
+            createMovement(line.hubId(), line.itemId(), "reserve", line.quantity(), userId, "Stock reserved for task");
+            stocks.add(stockRepository.findByHubIdAndItemId(line.hubId(), line.itemId()));
         }
-        stock.setQtyAvailable(stock.getQtyAvailable() - quantity);
-        stock.setQtyReserved(stock.getQtyReserved() + quantity);
-        InventoryStock saved = stockRepository.save(stock);
-        
-        // Track movement
-        createMovement(hubId, itemId, "reserve", quantity, userId, "Stock reserved for task");
-        
-        return saved;
+        return stocks;
     }
 
     public InventoryStock releaseReservation(UUID hubId, UUID itemId, Integer quantity, UUID userId) {
-        InventoryStock stock = stockRepository.findByHubIdAndItemId(hubId, itemId);
-        if (stock == null || stock.getQtyReserved() < quantity) {
-            throw new BadRequestException("Insufficient reserved stock");
+        return releaseReservations(List.of(line(hubId, itemId, quantity)), userId).get(0);
+    }
+
+    /**
+     * Release several reserved lines at once; either every line is released or none is
+     */
+    public List<InventoryStock> releaseReservations(List<StockReservationEngine.Line> lines, UUID userId) {
+        List<StockReservationEngine.Line> released = reservationEngine.release(lines);
+        List<InventoryStock> stocks = new ArrayList<>(released.size());
+        for (StockReservationEngine.Line line : released) {
+            inventorySnapshot.markChanged(line.hubId(), line.itemId());
+            createMovement(line.hubId(), line.itemId(), "release", line.quantity(), userId, "Stock reservation released");
+            stocks.add(stockRepository.findByHubIdAndItemId(line.hubId(), line.itemId()));
         }
-        stock.setQtyReserved(stock.getQtyReserved() - quantity);
-        stock.setQtyAvailable(stock.getQtyAvailable() + quantity);
-        InventoryStock saved = stockRepository.save(stock);
-        
-        // Track movement
-        createMovement(hubId, itemId, "release", quantity, userId, "Stock reservation released");
-        
-        return saved;
+        return stocks;
+    }
+
+    private static StockReservationEngine.Line line(UUID hubId, UUID itemId, Integer quantity) {
+        if (quantity == null) {
+            throw new BadRequestException("Quantity is required");
+        }
+        return new StockReservationEngine.Line(hubId, itemId, quantity);
+    }
+    
+    /**
+     * Apply a batch of movements, such as the lines of a received container, in one transaction.
+     * Receipts ("in") and releases are applied before reservations and issues ("out"), so a batch
+     * may issue stock it receives. Either every line is applied or none is.
+     *
+     * @return the number of lines applied
+     */
+    public int applyMovements(List<MovementLine> lines, UUID userId) {
+        Map<String, List<StockReservationEngine.Line>> byType = new LinkedHashMap<>();
+        for (String type : List.of("in", "release", "reserve", "out")) {
+            byType.put(type, new ArrayList<>());
+        }
+        for (MovementLine line : lines) {
+            List<StockReservationEngine.Line> typeLines = byType.get(line.movementType());
+            if (typeLines == null) {
+                throw new BadRequestException("Unsupported movement type: " + line.movementType());
+            }
+            typeLines.add(new StockReservationEngine.Line(line.hubId(), line.itemId(), line.quantity()));
+        }
+
+        reservationEngine.receive(byType.get("in"));
+        reservationEngine.release(byType.get("release"));
+        reservationEngine.reserve(byType.get("reserve"));
+        reservationEngine.issue(byType.get("out"));
+
+        for (MovementLine line : lines) {
+            inventorySnapshot.markChanged(line.hubId(), line.itemId());
+            createMovement(line.hubId(), line.itemId(), line.movementType(), line.quantity(), userId,
+                    line.reason() != null ? line.reason() : "Bulk stock movement");
+        }
+        return lines.size();
     }
     
     private void createMovement(UUID hubId, UUID itemId, String movementType, Integer quantity, UUID userId, String reason) {
-        InventoryHub hub = hubRepository.findById(hubId).orElse(null);
-        ItemCatalog item = itemRepository.findById(itemId).orElse(null);
-        User user = userId != null ? userRepository.findById(userId).orElse(null) : null;
-        
-        StockMovement movement = StockMovement.builder()
-                .hub(hub)
-                .item(item)
-                .movementType(movementType)
-                .quantity(quantity)
-                .reason(reason)
-                .user(user)
-                .build();
-        movementRepository.save(movement);
+        movementLedger.record(new StockMovementLedger.Entry(hubId, itemId, movementType, quantity, reason, userId));
     }
     
     public List<StockMovement> getStockMovements(UUID hubId, UUID itemId) {
@@ -2,54 +2,197 @@ package com.relief.service;
 
 import com.relief.dto.RequestsFilter;
 import com.relief.entity.NeedsRequest;
-import com.relief.repository.NeedsRequestRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Filtered request listing for dispatchers. Every filter given is ANDed into one query, newest
+ * first, and paged by seeking past the (created_at, id) of the previous page's last row rather
+ * than by offset, so deep pages cost the same as the first. The bounding box is matched with the
+ * envelope operator {@code &&}, which the GiST index on geom_point answers directly; the composite
+ * indexes of V27 serve the status and type filters in page order. Severity has no index and is
+ * checked on the rows those return.
+ */
 @Service
-@RequiredArgsConstructor
 public class RequestQueryService {
 
-    private final NeedsRequestRepository needsRequestRepository;
+    static final int MAX_PAGE_SIZE = 200;
 
-    public Page<NeedsRequest> search(RequestsFilter filter, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
+    @PersistenceContext
+    private EntityManager em;
 
-        if (filter.getBbox() != null && !filter.getBbox().isBlank()) {
-            // bbox as POLYGON WKT expected by repo method
-            return needsRequestRepository.findWithinBoundingBox(filter.getBbox(), pageable);
-        }
+    /**
+     * One page of requests and the cursor of the next, null on the last page
+     */
+    public record RequestPage(List<NeedsRequest> content, String nextCursor) {}
 
-        if (filter.getStatus() != null) {
-            return needsRequestRepository.findByStatus(filter.getStatus(), pageable);
-        }
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public RequestPage search(RequestsFilter filter, int size) {
+        int limit = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+        SearchQuery search = SearchQuery.of(filter, limit);
 
-        if (filter.getType() != null) {
-            return needsRequestRepository.findByType(filter.getType(), pageable);
+        Query query = em.createNativeQuery(search.sql(), NeedsRequest.class);
+        for (int i = 0; i < search.params().size(); i++) {
+            query.setParameter(i + 1, search.params().get(i));
         }
-
-        if (filter.getMinSeverity() != null) {
-            return needsRequestRepository.findByMinSeverity(filter.getMinSeverity(), pageable);
+        List<NeedsRequest> rows = query.getResultList();
+        if (rows.size() <= limit) {
+            return new RequestPage(rows, null);
         }
+        List<NeedsRequest> page = new ArrayList<>(rows.subList(0, limit));
+        NeedsRequest last = page.get(limit - 1);
+        return new RequestPage(page, new Cursor(last.getCreatedAt(), last.getId()).encode());
+    }
 
-        if (filter.getFrom() != null && filter.getTo() != null) {
-            LocalDateTime from = LocalDateTime.ofInstant(Instant.parse(filter.getFrom()), ZoneOffset.UTC);
-            LocalDateTime to = LocalDateTime.ofInstant(Instant.parse(filter.getTo()), ZoneOffset.UTC);
-            return needsRequestRepository.findByDateRange(from, to, pageable);
+    /**
+     * Native SQL of one page and its positional parameters
+     */
+    record SearchQuery(String sql, List<Object> params) {
+
+        /**
+         * @throws IllegalArgumentException if a time, the bbox or the cursor cannot be parsed
+         */
+        static SearchQuery of(RequestsFilter filter, int limit) {
+            List<Object> params = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT * FROM needs_requests WHERE TRUE");
+
+            boolean filtered = false;
+            if (hasText(filter.getStatus())) {
+                sql.append(" AND status = ?");
+                params.add(filter.getStatus());
+                filtered = true;
+            }
+            if (hasText(filter.getType())) {
+                sql.append(" AND type = ?");
+                params.add(filter.getType());
+                filtered = true;
+            }
+            if (filter.getMinSeverity() != null) {
+                sql.append(" AND severity >= ?");
+                params.add(filter.getMinSeverity());
+                filtered = true;
+            }
+            if (hasText(filter.getFrom())) {
+                sql.append(" AND created_at >= ?");
+                params.add(parseTime(filter.getFrom(), "from"));
+                filtered = true;
+            }
+            if (hasText(filter.getTo())) {
+                sql.append(" AND created_at <= ?");
+                params.add(parseTime(filter.getTo(), "to"));
+                filtered = true;
+            }
+            if (hasText(filter.getBbox())) {
+                appendBbox(sql, params, filter.getBbox().trim());
+                filtered = true;
+            }
+            if (!filtered) {
+                // Without filters the list shows the requests still waiting for triage
+                sql.append(" AND status = ?");
+                params.add("new");
+            }
+            if (hasText(filter.getCursor())) {
+                Cursor cursor = Cursor.decode(filter.getCursor());
+                sql.append(" AND (created_at, id) < (?, ?)");
+                params.add(cursor.createdAt());
+                params.add(cursor.id());
+            }
+            // One extra row tells whether another page follows
+            sql.append(" ORDER BY created_at DESC, id DESC LIMIT ").append(limit + 1);
+            return new SearchQuery(sql.toString(), params);
         }
+    }
 
-        return needsRequestRepository.findByStatus("new", pageable);
+    /**
+     * Match the box as an envelope; a non-rectangular WKT polygon also gets the exact test
+     */
+    private static void appendBbox(StringBuilder sql, List<Object> params, String bbox) {
+        Envelope envelope;
+        String exactWkt = null;
+        if (Character.isLetter(bbox.charAt(0))) {
+            Geometry geometry;
+            try {
+                geometry = new WKTReader().read(bbox);
+            } catch (ParseException e) {
+                throw new IllegalArgumentException("bbox must be minx,miny,maxx,maxy or WKT: " + e.getMessage());
+            }
+            envelope = geometry.getEnvelopeInternal();
+            if (!geometry.isRectangle()) exactWkt = bbox;
+        } else {
+            String[] parts = bbox.split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("bbox must be minx,miny,maxx,maxy or WKT");
+            }
+            double[] values = new double[4];
+            try {
+                for (int i = 0; i < 4; i++) {
+                    values[i] = Double.parseDouble(parts[i].trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bbox must be minx,miny,maxx,maxy or WKT");
+            }
+            envelope = new Envelope(values[0], values[2], values[1], values[3]);
+        }
+        sql.append(" AND geom_point && ST_MakeEnvelope(?, ?, ?, ?, 4326)");
+        params.add(envelope.getMinX());
+        params.add(envelope.getMinY());
+        params.add(envelope.getMaxX());
+        params.add(envelope.getMaxY());
+        if (exactWkt != null) {
+            sql.append(" AND ST_Within(geom_point, ST_GeomFromText(?, 4326))");
+            params.add(exactWkt);
+        }
     }
-}
 
+    private static LocalDateTime parseTime(String value, String name) {
+        try {
+            return LocalDateTime.ofInstant(Instant.parse(value), ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO-8601 instant, e.g. 2024-06-01T00:00:00Z");
+        }
+    }
 
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
 
+    /**
+     * Position after a row: its creation time and id, base64url encoded so clients treat it as
+     * opaque
+     */
+    record Cursor(LocalDateTime createdAt, UUID id) {
 
+        String encode() {
+            String raw = createdAt + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
 
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int comma = raw.indexOf(',');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, comma)), UUID.fromString(raw.substring(comma + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -5,8 +5,10 @@ import com.relief.entity.User;
 import com.relief.repository.NeedsRequestRepository;
 import com.relief.service.DedupeService;
 import com.relief.service.DedupeService.DedupeCandidate;
+import com.relief.service.spatial.SpatialCandidateIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Point;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -27,10 +29,25 @@ public class AIDedupeService {
 
     private static final Logger log = LoggerFactory.getLogger(AIDedupeService.class);
 
+    /** 70% similarity threshold */
+    static final double DUPLICATE_THRESHOLD = 0.7;
+
+    /**
+     * Text similarity from which {@link DuplicateCandidateIndex} reliably proposes a pair. Pairs
+     * whose location, time and category alone score {@code DUPLICATE_THRESHOLD - 0.4 * 0.5} or more
+     * can be duplicates with less text in common, so those are scored whatever their text.
+     */
+    static final double CANDIDATE_TEXT_SIMILARITY = 0.5;
+    private static final double MIN_CONTEXT_SIMILARITY = DUPLICATE_THRESHOLD - 0.4 * CANDIDATE_TEXT_SIMILARITY;
+    /** Beyond 1 km location similarity is at most 0.6, leaving context similarity below 0.5 */
+    private static final double NEARBY_METERS = 1000;
+
     private final NeedsRequestRepository needsRequestRepository;
     private final DedupeService dedupeService;
     private final TextSimilarityService textSimilarityService;
     private final LocationSimilarityService locationSimilarityService;
+    private final SpatialCandidateIndex spatialCandidateIndex;
+    private final DuplicateCandidateIndex duplicateCandidateIndex;
 
     /**
      * Automatically detect potential duplicates for a new request
@@ -39,15 +56,18 @@ public class AIDedupeService {
     public List<DedupeCandidate> findPotentialDuplicates(NeedsRequest newRequest) {
         log.info("Finding potential duplicates for request: {}", newRequest.getId());
         
+        DuplicateFeatures newFeatures = DuplicateFeatures.of(newRequest, DuplicateCandidateIndex.textProfile(newRequest));
+
         // Get recent requests within time window and geographic area
-        List<NeedsRequest> candidateRequests = getCandidateRequests(newRequest);
+        List<NeedsRequest> candidateRequests = getCandidateRequests(newRequest, newFeatures);
         
         List<DedupeCandidate> duplicates = new ArrayList<>();
         
         for (NeedsRequest candidate : candidateRequests) {
-            double similarityScore = calculateSimilarityScore(newRequest, candidate);
+            double similarityScore = calculateSimilarityScore(newFeatures,
+                DuplicateFeatures.of(candidate, textProfile(candidate)), DUPLICATE_THRESHOLD);
             
-            if (similarityScore >= 0.7) { // 70% similarity threshold
+            if (similarityScore >= DUPLICATE_THRESHOLD) {
                 String reason = generateSimilarityReason(newRequest, candidate, similarityScore);
                 duplicates.add(new DedupeService.DedupeCandidate(
                     candidate.getId(), 
@@ -97,66 +117,113 @@ public class AIDedupeService {
     }
 
     /**
-     * Get candidate requests for similarity comparison
+     * Get candidate requests for similarity comparison: open requests of the last 24 hours within
+     * 10 km. The in-memory indexes hold only open requests, so completed, cancelled and merged
+     * requests are never candidates; the database fallback filters them out the same way.
      */
-    private List<NeedsRequest> getCandidateRequests(NeedsRequest newRequest) {
+    private List<NeedsRequest> getCandidateRequests(NeedsRequest newRequest, DuplicateFeatures newFeatures) {
         LocalDateTime timeWindow = LocalDateTime.now().minus(24, ChronoUnit.HOURS);
+        Point point = newRequest.getGeomPoint();
+        
+        // Only requests with similar text, or close enough to need little of it, are worth scoring
+        if (point != null && duplicateCandidateIndex.isReady()) {
+            return loadRecent(candidateIds(newFeatures, 10000, timeWindow), timeWindow);
+        }
+
+        // Prefilter open requests from the in-memory spatial index when it is loaded
+        if (point != null && spatialCandidateIndex.isReady()) {
+            List<UUID> nearby = new ArrayList<>(spatialCandidateIndex.requestsWithin(point.getY(), point.getX(), 10000, timeWindow));
+            nearby.remove(newRequest.getId());
+            return loadRecent(nearby, timeWindow);
+        }
         
         // Get requests from last 24 hours within 10km radius
         return needsRequestRepository.findRecentRequestsInArea(
             newRequest.getGeomPoint(),
             10000, // 10km radius
             timeWindow
-        );
+        ).stream()
+            .filter(request -> DuplicateCandidateIndex.isOpen(request.getStatus()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Indexed open requests created since {@code since} within the radius that could reach the
+     * duplicate threshold against this one: those sharing a text bucket, and those whose location,
+     * time and category leave too little to text for the buckets to be relied on
+     */
+    List<UUID> candidateIds(DuplicateFeatures request, double radiusMeters, LocalDateTime since) {
+        double latitude = request.location().getY();
+        double longitude = request.location().getX();
+        Set<UUID> ids = new LinkedHashSet<>(duplicateCandidateIndex.candidates(request.id(), latitude, longitude,
+            request.profile(), radiusMeters, since));
+        if (request.createdAt() != null) {
+            for (DuplicateFeatures other : duplicateCandidateIndex.nearby(request.id(), latitude, longitude,
+                    Math.min(radiusMeters, NEARBY_METERS), since)) {
+                if (calculateContextSimilarity(request, other) >= MIN_CONTEXT_SIMILARITY) ids.add(other.id());
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private List<NeedsRequest> loadRecent(List<UUID> ids, LocalDateTime timeWindow) {
+        return needsRequestRepository.findAllById(ids).stream()
+            .filter(request -> request.getCreatedAt() == null || !request.getCreatedAt().isBefore(timeWindow))
+            .sorted(Comparator.comparing(NeedsRequest::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())))
+            .collect(Collectors.toList());
     }
 
     /**
      * Calculate comprehensive similarity score between two requests
+     *
+     * The score is exact when it reaches {@code minScore}; below that it is only guaranteed to stay
+     * below, which lets text comparison stop early once the threshold is out of reach.
      */
-    private double calculateSimilarityScore(NeedsRequest request1, NeedsRequest request2) {
-        double textSimilarity = calculateTextSimilarity(request1, request2);
-        double locationSimilarity = calculateLocationSimilarity(request1, request2);
-        double temporalSimilarity = calculateTemporalSimilarity(request1, request2);
-        double categorySimilarity = calculateCategorySimilarity(request1, request2);
+    public double calculateSimilarityScore(DuplicateFeatures request1, DuplicateFeatures request2, double minScore) {
+        double contextSimilarity = calculateContextSimilarity(request1, request2);
+        double textSimilarity = textSimilarityService.calculateSimilarity(request1.profile(), request2.profile(),
+            (minScore - contextSimilarity) / 0.4 - 1e-9);
         
         // Weighted combination of similarity factors
-        return (textSimilarity * 0.4) + 
-               (locationSimilarity * 0.3) + 
-               (temporalSimilarity * 0.2) + 
-               (categorySimilarity * 0.1);
+        return (textSimilarity * 0.4) + contextSimilarity;
     }
 
     /**
-     * Calculate text similarity using NLP techniques
+     * The part of the similarity score that does not depend on text: location, time and category
      */
-    private double calculateTextSimilarity(NeedsRequest request1, NeedsRequest request2) {
-        String text1 = (request1.getNotes() != null ? request1.getNotes() : "") + 
-                      " " + request1.getType();
-        String text2 = (request2.getNotes() != null ? request2.getNotes() : "") + 
-                      " " + request2.getType();
-        
-        return textSimilarityService.calculateSimilarity(text1, text2);
+    private double calculateContextSimilarity(DuplicateFeatures request1, DuplicateFeatures request2) {
+        double locationSimilarity = calculateLocationSimilarity(request1.location(), request2.location());
+        double temporalSimilarity = calculateTemporalSimilarity(request1.createdAt(), request2.createdAt());
+        double categorySimilarity = calculateCategorySimilarity(request1.type(), request2.type());
+        return (locationSimilarity * 0.3) + (temporalSimilarity * 0.2) + (categorySimilarity * 0.1);
+    }
+
+    /**
+     * Text profile of a candidate, cached by the duplicate candidate index when it holds the request
+     */
+    private TextProfile textProfile(NeedsRequest request) {
+        TextProfile cached = duplicateCandidateIndex.profile(request.getId());
+        return cached != null ? cached : DuplicateCandidateIndex.textProfile(request);
     }
 
     /**
-     * Calculate location similarity based on distance
+     * Calculate location similarity based on distance. This stays straight-line even with a road
+     * network loaded: duplicates are reports of the same place, which closed or winding roads
+     * between them do not change.
      */
-    private double calculateLocationSimilarity(NeedsRequest request1, NeedsRequest request2) {
-        if (request1.getGeomPoint() == null || request2.getGeomPoint() == null) {
+    private double calculateLocationSimilarity(Point location1, Point location2) {
+        if (location1 == null || location2 == null) {
             return 0.0;
         }
         
-        return locationSimilarityService.calculateSimilarity(
-            request1.getGeomPoint(), 
-            request2.getGeomPoint()
-        );
+        return locationSimilarityService.calculateSimilarity(location1, location2);
     }
 
     /**
-     * Calculate temporal similarity based on time difference
+     * Calculate temporal similarity based on the time between the requests, in either order
      */
-    private double calculateTemporalSimilarity(NeedsRequest request1, NeedsRequest request2) {
-        long hoursDiff = ChronoUnit.HOURS.between(request1.getCreatedAt(), request2.getCreatedAt());
+    private double calculateTemporalSimilarity(LocalDateTime createdAt1, LocalDateTime createdAt2) {
+        long hoursDiff = Math.abs(ChronoUnit.HOURS.between(createdAt1, createdAt2));
         
         // Similarity decreases with time difference
         if (hoursDiff <= 1) return 1.0;
@@ -169,8 +236,8 @@ public class AIDedupeService {
     /**
      * Calculate category similarity
      */
-    private double calculateCategorySimilarity(NeedsRequest request1, NeedsRequest request2) {
-        if (Objects.equals(request1.getType(), request2.getType())) {
+    private double calculateCategorySimilarity(String type1, String type2) {
+        if (Objects.equals(type1, type2)) {
             return 1.0;
         }
         
@@ -181,11 +248,11 @@ public class AIDedupeService {
             "shelter", "housing", "accommodation"
         );
         
-        String type1 = request1.getType().toLowerCase();
-        String type2 = request2.getType().toLowerCase();
+        String lowerType1 = type1.toLowerCase();
+        String lowerType2 = type2.toLowerCase();
         
         boolean hasSimilar = similarCategories.stream()
-            .anyMatch(cat -> type1.contains(cat) && type2.contains(cat));
+            .anyMatch(cat -> lowerType1.contains(cat) && lowerType2.contains(cat));
             
         return hasSimilar ? 0.5 : 0.0;
     }
@@ -212,7 +279,7 @@ public class AIDedupeService {
             }
         }
         
-        long hoursDiff = ChronoUnit.HOURS.between(request1.getCreatedAt(), request2.getCreatedAt());
+        long hoursDiff = Math.abs(ChronoUnit.HOURS.between(request1.getCreatedAt(), request2.getCreatedAt()));
         if (hoursDiff <= 1) {
             reasons.add("within 1 hour");
         } else if (hoursDiff <= 6) {
@@ -222,6 +289,16 @@ public class AIDedupeService {
         String reasonText = reasons.isEmpty() ? "similar content" : String.join(", ", reasons);
         return String.format("%.1f%% similarity (%s)", score * 100, reasonText);
     }
-}
 
+    /**
+     * The signals duplicate scoring compares, detached from the entity so callers can keep many of
+     * them in memory
+     */
+    public record DuplicateFeatures(UUID id, Point location, LocalDateTime createdAt, String type, TextProfile profile) {
 
+        public static DuplicateFeatures of(NeedsRequest request, TextProfile profile) {
+            return new DuplicateFeatures(request.getId(), request.getGeomPoint(), request.getCreatedAt(),
+                request.getType(), profile);
+        }
+    }
+}
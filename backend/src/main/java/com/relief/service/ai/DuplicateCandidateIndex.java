@@ -0,0 +1,262 @@
+package com.relief.service.ai;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.service.ai.AIDedupeService.DuplicateFeatures;
+import com.relief.util.GeoCellIndex;
+import com.relief.util.MinHashLshIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Point;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * MinHash signatures of recent open needs requests in locality-sensitive hash buckets, so that
+ * duplicate detection scores only requests whose text is likely similar instead of every recent
+ * request nearby.
+ *
+ * Signatures are taken over character trigrams of the normalized notes and type, which tolerates
+ * the misspellings of SMS reports. Buckets are partitioned by map cell and creation time slot; a
+ * lookup probes the cells around the request and the slots of the time window. With 40 bands of
+ * 4 rows, texts scoring 0.5 or more in {@link TextSimilarityService} share a bucket about 97% of
+ * the time (see {@code DuplicateCandidateRecallTest}). Pairs close enough in place and time to be
+ * duplicates with less text in common are found through {@link #nearby}, a plain radius lookup
+ * over the same requests.
+ *
+ * Each entry also caches the request's scoring features, including its {@link TextProfile}, so
+ * candidates are scored without loading or re-tokenizing them. Requests are kept for 48 hours, the window
+ * {@link DuplicateClusteringJob} groups over; online detection asks for the last day only.
+ *
+ * Kept current by {@link DuplicateIndexEntityListener}; until the initial load completes
+ * {@link #isReady()} is false and callers fall back to the spatial prefilter.
+ */
+@Service
+@Slf4j
+public class DuplicateCandidateIndex {
+
+    static final int BANDS = 40;
+    static final int ROWS = 4;
+    static final int SHINGLE_LENGTH = 3;
+    private static final long SEED = 20_240_601L;
+
+    /** About 11 km cells: a 10 km radius probes three or four cells a side */
+    private static final double CELL_DEGREES = 0.1;
+    /** About 1.1 km cells for {@link #nearby} lookups within a kilometre */
+    private static final double NEARBY_CELL_DEGREES = 0.01;
+    private static final long LON_CELLS = (long) Math.ceil(360.0 / CELL_DEGREES);
+    private static final long SLOT_SECONDS = 6 * 3600;
+    private static final double METERS_PER_DEGREE = Math.PI * 6_371_000.0 / 180.0;
+    /** Covers the clustering window of {@link DuplicateClusteringJob}, not just online detection */
+    static final long REQUEST_RETENTION_HOURS = 48;
+    private static final Set<String> CLOSED_REQUEST_STATUSES = Set.of("completed", "cancelled", "merged");
+
+    private final NeedsRequestRepository needsRequestRepository;
+    private final MinHashLshIndex<UUID, DuplicateFeatures> index = new MinHashLshIndex<>(BANDS, ROWS, SHINGLE_LENGTH, SEED);
+    private final GeoCellIndex<UUID, DuplicateFeatures> locations = new GeoCellIndex<>(NEARBY_CELL_DEGREES);
+    private volatile boolean ready;
+
+    public DuplicateCandidateIndex(NeedsRequestRepository needsRequestRepository) {
+        this.needsRequestRepository = needsRequestRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        for (NeedsRequest request : needsRequestRepository.findLocatedRequestsCreatedSince(retentionCutoff())) {
+            if (isOpen(request) && index.get(request.getId()) == null) {
+                put(request, request.getGeomPoint(), request.getCreatedAt());
+            }
+        }
+        ready = true;
+        log.info("Duplicate candidate index loaded: {} open requests", index.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Index or drop a request depending on whether it is open, located and recent
+     */
+    public void updateRequest(NeedsRequest request) {
+        Point point = request.getGeomPoint();
+        LocalDateTime createdAt = request.getCreatedAt();
+        if (point != null && isOpen(request) && (createdAt == null || createdAt.isAfter(retentionCutoff()))) {
+            put(request, point, createdAt != null ? createdAt : LocalDateTime.now());
+        } else {
+            removeRequest(request.getId());
+        }
+    }
+
+    public void removeRequest(UUID requestId) {
+        index.remove(requestId);
+        locations.remove(requestId);
+    }
+
+    /**
+     * The cached text profile of an indexed request, or null if it is not indexed
+     */
+    public TextProfile profile(UUID requestId) {
+        MinHashLshIndex.Entry<UUID, DuplicateFeatures> entry = index.get(requestId);
+        return entry != null ? entry.value().profile() : null;
+    }
+
+    /**
+     * Open requests created since {@code since} within the radius whose text shares a bucket with
+     * the request's, in no particular order; empty if the request has no location
+     */
+    public List<UUID> candidates(NeedsRequest request, double radiusMeters, LocalDateTime since) {
+        Point point = request.getGeomPoint();
+        if (point == null) return List.of();
+        LocalDateTime until = request.getCreatedAt() != null && request.getCreatedAt().isAfter(LocalDateTime.now())
+            ? request.getCreatedAt() : LocalDateTime.now();
+        return candidates(request.getId(), point.getY(), point.getX(), textProfile(request), radiusMeters, since, until);
+    }
+
+    /**
+     * Candidates of a request given by its location and text profile, as
+     * {@link #candidates(NeedsRequest, double, LocalDateTime)}
+     */
+    public List<UUID> candidates(UUID requestId, double latitude, double longitude, TextProfile profile,
+                                 double radiusMeters, LocalDateTime since) {
+        return candidates(requestId, latitude, longitude, profile, radiusMeters, since, LocalDateTime.now());
+    }
+
+    private List<UUID> candidates(UUID requestId, double latitude, double longitude, TextProfile profile,
+                                  double radiusMeters, LocalDateTime since, LocalDateTime until) {
+        return index.candidates(partitions(latitude, longitude, radiusMeters, since, until),
+                signature(profile),
+                entry -> !entry.key().equals(requestId)
+                    && !entry.value().createdAt().isBefore(since)
+                    && GeoCellIndex.distanceMeters(latitude, longitude, entry.value().location().getY(),
+                        entry.value().location().getX()) <= radiusMeters)
+            .stream()
+            .map(MinHashLshIndex.Entry::key)
+            .toList();
+    }
+
+    /**
+     * Scoring features of the open requests created since {@code since} within the radius,
+     * whatever their text, nearest first
+     */
+    public List<DuplicateFeatures> nearby(UUID requestId, double latitude, double longitude, double radiusMeters,
+                                          LocalDateTime since) {
+        return locations.withinRadius(latitude, longitude, radiusMeters,
+                entry -> !entry.key().equals(requestId) && !entry.value().createdAt().isBefore(since))
+            .stream()
+            .map(GeoCellIndex.Neighbor::value)
+            .toList();
+    }
+
+    /**
+     * Drop requests that aged out of the retention window
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void pruneExpiredRequests() {
+        LocalDateTime cutoff = retentionCutoff();
+        int removed = index.removeIf(entry -> entry.value().createdAt().isBefore(cutoff));
+        locations.removeIf(entry -> entry.value().createdAt().isBefore(cutoff));
+        if (removed > 0) {
+            log.debug("Pruned {} expired requests from duplicate candidate index", removed);
+        }
+    }
+
+    /**
+     * The text duplicate detection compares: notes followed by the need type
+     */
+    static String comparisonText(NeedsRequest request) {
+        return comparisonText(request.getNotes(), request.getType());
+    }
+
+    static String comparisonText(String notes, String type) {
+        return (notes != null ? notes : "") + " " + type;
+    }
+
+    /**
+     * Profile of the text duplicate detection compares
+     */
+    static TextProfile textProfile(NeedsRequest request) {
+        return TextProfile.of(comparisonText(request));
+    }
+
+    private void put(NeedsRequest request, Point point, LocalDateTime createdAt) {
+        long partition = partition(row(point.getY()), column(point.getX()), slot(createdAt));
+        TextProfile profile = textProfile(request);
+        DuplicateFeatures features = new DuplicateFeatures(request.getId(), point, createdAt, request.getType(), profile);
+        index.put(request.getId(), partition, signature(profile), features);
+        locations.put(request.getId(), point.getY(), point.getX(), features);
+    }
+
+    private int[] signature(TextProfile profile) {
+        int[] signature = index.signature(profile.normalized());
+        // Blank text still gets a signature, so requests with no notes meet others of their type
+        return signature != null ? signature : index.signature(" ");
+    }
+
+    private static long[] partitions(double latitude, double longitude, double radiusMeters,
+                                     LocalDateTime since, LocalDateTime until) {
+        double latSpan = radiusMeters / METERS_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude) + latSpan)));
+        double lonSpan = Math.min(180.0, latSpan / cosLat);
+        long firstRow = row(latitude - latSpan);
+        long lastRow = row(latitude + latSpan);
+        long firstCol = (long) Math.floor((longitude - lonSpan + 180.0) / CELL_DEGREES);
+        long lastCol = (long) Math.floor((longitude + lonSpan + 180.0) / CELL_DEGREES);
+        long columns = Math.min(LON_CELLS, lastCol - firstCol + 1);
+        long firstSlot = slot(since);
+        long lastSlot = slot(until);
+
+        long[] partitions = new long[(int) ((lastRow - firstRow + 1) * columns * (lastSlot - firstSlot + 1))];
+        int next = 0;
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long c = 0; c < columns; c++) {
+                long column = Math.floorMod(firstCol + c, LON_CELLS);
+                for (long slot = firstSlot; slot <= lastSlot; slot++) {
+                    partitions[next++] = partition(row, column, slot);
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private static long partition(long row, long column, long slot) {
+        return (row * LON_CELLS + column) << 24 | (slot & 0xFFFFFF);
+    }
+
+    private static long row(double latitude) {
+        return (long) Math.floor((Math.max(-90.0, Math.min(90.0, latitude)) + 90.0) / CELL_DEGREES);
+    }
+
+    private static long column(double longitude) {
+        return Math.floorMod((long) Math.floor((longitude + 180.0) / CELL_DEGREES), LON_CELLS);
+    }
+
+    private static long slot(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), SLOT_SECONDS);
+    }
+
+    private static boolean isOpen(NeedsRequest request) {
+        return isOpen(request.getStatus());
+    }
+
+    static boolean isOpen(String status) {
+        return status == null || !CLOSED_REQUEST_STATUSES.contains(status.toLowerCase());
+    }
+
+    private static LocalDateTime retentionCutoff() {
+        return LocalDateTime.now().minusHours(REQUEST_RETENTION_HOURS);
+    }
+}
@@ -0,0 +1,188 @@
+package com.relief.service.ai;
+
+import com.relief.entity.DedupeGroup;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.service.DedupeService;
+import com.relief.service.DedupeService.DedupeCandidate;
+import com.relief.service.DedupeService.NewGroup;
+import com.relief.service.ai.AIDedupeService.DuplicateFeatures;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Point;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Groups open needs requests of the last 48 hours into clusters of near-duplicates and emits each
+ * cluster as a dedupe group for review.
+ *
+ * Two requests are linked when {@link AIDedupeService#calculateSimilarityScore} reaches the
+ * duplicate threshold, scoring only the pairs {@link AIDedupeService#candidateIds} proposes from
+ * {@link DuplicateCandidateIndex}; clusters are the connected components of those links, kept in
+ * {@link DuplicateClusters}. Each run reads only the requests updated since the previous run's
+ * watermark, re-scores them, drops requests that closed or aged out of the window, and emits a
+ * new group for every cluster whose membership changed. Open groups the new one replaces are
+ * dismissed; groups admins already merged or dismissed are left alone, and a cluster matching one
+ * of them is not emitted again.
+ *
+ * Clusters are held in memory. On startup the first run reads the whole window and recognises the
+ * groups it emitted before by their note.
+ */
+@Service
+@Slf4j
+public class DuplicateClusteringJob {
+
+    static final String GROUP_NOTE_PREFIX = "Clustered";
+    private static final long WINDOW_HOURS = 48;
+    private static final double RADIUS_METERS = 10_000;
+    /** Re-read this far behind the watermark, for transactions that committed after later ones */
+    private static final long WATERMARK_OVERLAP_SECONDS = 120;
+
+    private final NeedsRequestRepository needsRequestRepository;
+    private final DuplicateCandidateIndex duplicateCandidateIndex;
+    private final DedupeService dedupeService;
+    private final DuplicateClusters clusters;
+
+    // Guarded by this
+    private LocalDateTime watermark;
+    private final Map<UUID, EmittedGroup> emittedByRequest = new HashMap<>();
+
+    private record EmittedGroup(UUID groupId, Set<UUID> members) {}
+
+    public DuplicateClusteringJob(NeedsRequestRepository needsRequestRepository,
+                                  DuplicateCandidateIndex duplicateCandidateIndex,
+                                  AIDedupeService aiDedupeService,
+                                  DedupeService dedupeService) {
+        this.needsRequestRepository = needsRequestRepository;
+        this.duplicateCandidateIndex = duplicateCandidateIndex;
+        this.dedupeService = dedupeService;
+        this.clusters = new DuplicateClusters(AIDedupeService.DUPLICATE_THRESHOLD,
+            request -> aiDedupeService.candidateIds(request, RADIUS_METERS, windowStart()),
+            aiDedupeService::calculateSimilarityScore);
+    }
+
+    @Scheduled(fixedDelayString = "${dedupe.clustering.interval-ms:60000}",
+               initialDelayString = "${dedupe.clustering.interval-ms:60000}")
+    public void scheduledRun() {
+        // Candidates come from the index; before it is loaded every request would look unique
+        if (!duplicateCandidateIndex.isReady()) return;
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.error("Duplicate clustering run failed", e);
+        }
+    }
+
+    public synchronized void run() {
+        long start = System.nanoTime();
+        LocalDateTime windowStart = windowStart();
+        if (watermark == null) {
+            restoreEmittedGroups(windowStart);
+        }
+        LocalDateTime since = watermark == null ? windowStart : watermark.minusSeconds(WATERMARK_OVERLAP_SECONDS);
+
+        List<DuplicateClusters.Change> upserts = new ArrayList<>();
+        List<UUID> removals = new ArrayList<>();
+        LocalDateTime latest = watermark;
+        for (Object[] row : needsRequestRepository.findDedupeFeaturesUpdatedSince(since)) {
+            UUID id = (UUID) row[0];
+            String type = (String) row[1];
+            String status = (String) row[2];
+            String notes = (String) row[3];
+            Point point = (Point) row[4];
+            LocalDateTime createdAt = (LocalDateTime) row[5];
+            LocalDateTime updatedAt = (LocalDateTime) row[6];
+            if (latest == null || updatedAt.isAfter(latest)) latest = updatedAt;
+
+            if (point == null || createdAt == null || createdAt.isBefore(windowStart)
+                || !DuplicateCandidateIndex.isOpen(status)) {
+                removals.add(id);
+                continue;
+            }
+            // Share the index's cached profile when it holds the request
+            TextProfile profile = duplicateCandidateIndex.profile(id);
+            if (profile == null) profile = TextProfile.of(DuplicateCandidateIndex.comparisonText(notes, type));
+            upserts.add(new DuplicateClusters.Change(
+                new DuplicateFeatures(id, point, createdAt, type, profile), updatedAt));
+        }
+
+        clusters.apply(upserts, removals);
+        int expired = clusters.expire(windowStart);
+        emittedByRequest.keySet().removeIf(id -> !clusters.contains(id));
+        watermark = latest != null ? latest : windowStart;
+        int emitted = emit(clusters.drainChangedClusters(2));
+
+        log.info("Duplicate clustering: {} changed, {} closed, {} expired, {} groups emitted, {} requests tracked in {} ms",
+            upserts.size(), removals.size(), expired, emitted, clusters.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Create a group per cluster unless a group with the same members was emitted before, and
+     * dismiss the open groups the new ones replace
+     *
+     * @return number of groups created
+     */
+    private int emit(List<List<DuplicateClusters.Member>> changedClusters) {
+        List<NewGroup> newGroups = new ArrayList<>();
+        List<Set<UUID>> memberSets = new ArrayList<>();
+        Set<UUID> replaced = new HashSet<>();
+        for (List<DuplicateClusters.Member> cluster : changedClusters) {
+            Set<UUID> members = new LinkedHashSet<>();
+            for (DuplicateClusters.Member member : cluster) {
+                members.add(member.requestId());
+            }
+            EmittedGroup current = emittedByRequest.get(cluster.get(0).requestId());
+            if (current != null && current.members().equals(members)) continue;
+
+            for (UUID member : members) {
+                EmittedGroup previous = emittedByRequest.get(member);
+                if (previous != null) replaced.add(previous.groupId());
+            }
+            List<DedupeCandidate> candidates = new ArrayList<>(cluster.size());
+            candidates.add(new DedupeCandidate(cluster.get(0).requestId(), 1.0, "Earliest report in cluster"));
+            for (DuplicateClusters.Member member : cluster.subList(1, cluster.size())) {
+                candidates.add(new DedupeCandidate(member.requestId(), member.bestScore(),
+                    String.format("%.1f%% similarity to another report in the cluster", member.bestScore() * 100)));
+            }
+            newGroups.add(new NewGroup(candidates, String.format("%s %d requests reported within %d hours",
+                GROUP_NOTE_PREFIX, members.size(), WINDOW_HOURS)));
+            memberSets.add(members);
+        }
+        if (newGroups.isEmpty()) return 0;
+
+        List<DedupeGroup> created = dedupeService.createGroups("NEEDS_REQUEST", newGroups, null);
+        for (int g = 0; g < created.size(); g++) {
+            EmittedGroup group = new EmittedGroup(created.get(g).getId(), memberSets.get(g));
+            for (UUID member : group.members()) {
+                emittedByRequest.put(member, group);
+            }
+        }
+        dedupeService.dismissOpenGroups(replaced, "superseded by a regrouped duplicate cluster");
+        return created.size();
+    }
+
+    /**
+     * Recognise the groups earlier runs emitted, so a restart does not emit them again
+     */
+    private void restoreEmittedGroups(LocalDateTime windowStart) {
+        dedupeService.findGroupMembers(GROUP_NOTE_PREFIX, windowStart).forEach((groupId, members) -> {
+            EmittedGroup group = new EmittedGroup(groupId, new LinkedHashSet<>(members));
+            for (UUID member : members) {
+                emittedByRequest.put(member, group);
+            }
+        });
+    }
+
+    private static LocalDateTime windowStart() {
+        return LocalDateTime.now().minusHours(WINDOW_HOURS);
+    }
+}
@@ -0,0 +1,307 @@
+package com.relief.service.ai;
+
+import com.relief.service.ai.AIDedupeService.DuplicateFeatures;
+import com.relief.util.UnionFind;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Connected components of near-duplicate requests, maintained incrementally.
+ *
+ * Each request is a node; two nodes are joined by an edge when their duplicate score reaches the
+ * threshold. Only the pairs a {@link CandidateSource} proposes are scored, once per pair when the
+ * later of the two is added or changed. Components live in a {@link UnionFind}, so additions only
+ * union. A change or removal deletes the node's edges, which union-find cannot undo; the old
+ * component is instead rebuilt by walking the remaining edges from the node's former neighbours,
+ * which costs the size of that one component.
+ *
+ * Nodes whose components changed are remembered until {@link #drainChangedClusters(int)}. Not
+ * thread-safe.
+ */
+final class DuplicateClusters {
+
+    @FunctionalInterface
+    interface CandidateSource {
+        /** Ids of requests worth scoring against this one; unknown ids are ignored */
+        List<UUID> candidates(DuplicateFeatures request);
+    }
+
+    @FunctionalInterface
+    interface Scorer {
+        /** Score of the pair, exact when it reaches {@code minScore} */
+        double score(DuplicateFeatures a, DuplicateFeatures b, double minScore);
+    }
+
+    /**
+     * A request to add or re-score, with the version it was read at; re-reading the same version
+     * is a no-op
+     */
+    record Change(DuplicateFeatures features, LocalDateTime version) {}
+
+    /**
+     * A cluster member with its best edge score
+     */
+    record Member(UUID requestId, LocalDateTime createdAt, double bestScore) {}
+
+    private static final int[] NO_NEIGHBOURS = new int[0];
+    private static final float[] NO_SCORES = new float[0];
+
+    private final double threshold;
+    private final CandidateSource candidateSource;
+    private final Scorer scorer;
+
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private final UnionFind components = new UnionFind();
+    private final BitSet changed = new BitSet();
+    private DuplicateFeatures[] features = new DuplicateFeatures[1024];
+    private LocalDateTime[] versions = new LocalDateTime[1024];
+    private int[][] neighbours = new int[1024][];
+    private float[][] scores = new float[1024][];
+    private int[] degree = new int[1024];
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int slotCount;
+
+    DuplicateClusters(double threshold, CandidateSource candidateSource, Scorer scorer) {
+        this.threshold = threshold;
+        this.candidateSource = candidateSource;
+        this.scorer = scorer;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    boolean contains(UUID requestId) {
+        return slots.containsKey(requestId);
+    }
+
+    /**
+     * Apply one batch: drop the removed requests, then add or re-score the changed ones. Pairs
+     * within the batch see each other's new features.
+     */
+    void apply(List<Change> upserts, Collection<UUID> removals) {
+        BitSet rebuild = new BitSet();
+        for (UUID requestId : removals) {
+            Integer slot = slots.remove(requestId);
+            if (slot != null) {
+                detach(slot, rebuild);
+                release(slot);
+            }
+        }
+
+        List<Integer> toScore = new ArrayList<>(upserts.size());
+        for (Change change : upserts) {
+            UUID requestId = change.features().id();
+            Integer slot = slots.get(requestId);
+            if (slot != null) {
+                if (Objects.equals(versions[slot], change.version())) continue;
+                detach(slot, rebuild);
+            } else {
+                slot = allocate();
+                slots.put(requestId, slot);
+            }
+            features[slot] = change.features();
+            versions[slot] = change.version();
+            toScore.add(slot);
+        }
+
+        for (int slot : toScore) {
+            DuplicateFeatures request = features[slot];
+            for (UUID candidateId : candidateSource.candidates(request)) {
+                Integer other = slots.get(candidateId);
+                if (other == null || other == slot || hasEdge(slot, other)) continue;
+                double score = scorer.score(request, features[other], threshold);
+                if (score >= threshold) {
+                    addEdge(slot, other, (float) score);
+                    components.union(slot, other);
+                }
+            }
+            changed.set(slot);
+        }
+        rebuild(rebuild);
+    }
+
+    /**
+     * Drop requests created before the cutoff
+     *
+     * @return number of requests dropped
+     */
+    int expire(LocalDateTime cutoff) {
+        List<UUID> expired = new ArrayList<>();
+        for (Map.Entry<UUID, Integer> entry : slots.entrySet()) {
+            if (features[entry.getValue()].createdAt().isBefore(cutoff)) expired.add(entry.getKey());
+        }
+        if (!expired.isEmpty()) apply(List.of(), expired);
+        return expired.size();
+    }
+
+    /**
+     * Clusters of at least {@code minSize} requests whose membership or edges changed since the
+     * previous call, each earliest request first
+     */
+    List<List<Member>> drainChangedClusters(int minSize) {
+        List<List<Member>> clusters = new ArrayList<>();
+        BitSet visited = new BitSet();
+        int[] stack = new int[16];
+        for (int slot = changed.nextSetBit(0); slot >= 0; slot = changed.nextSetBit(slot + 1)) {
+            if (visited.get(slot) || features[slot] == null) continue;
+            if (components.size(slot) < minSize) {
+                visited.set(slot);
+                continue;
+            }
+            List<Member> members = new ArrayList<>();
+            visited.set(slot);
+            stack[0] = slot;
+            int top = 1;
+            while (top > 0) {
+                int node = stack[--top];
+                float best = 0f;
+                for (int i = 0; i < degree[node]; i++) {
+                    best = Math.max(best, scores[node][i]);
+                    int next = neighbours[node][i];
+                    if (visited.get(next)) continue;
+                    visited.set(next);
+                    if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = next;
+                }
+                members.add(new Member(features[node].id(), features[node].createdAt(), best));
+            }
+            members.sort(Comparator.comparing(Member::createdAt).thenComparing(Member::requestId));
+            clusters.add(members);
+        }
+        changed.clear();
+        return clusters;
+    }
+
+    /**
+     * Delete the node's edges and make it a singleton; its former neighbours seed the rebuild of
+     * what remains of its component
+     */
+    private void detach(int slot, BitSet rebuild) {
+        for (int i = 0; i < degree[slot]; i++) {
+            int other = neighbours[slot][i];
+            removeHalfEdge(other, slot);
+            rebuild.set(other);
+        }
+        degree[slot] = 0;
+        neighbours[slot] = NO_NEIGHBOURS;
+        scores[slot] = NO_SCORES;
+        components.reset(slot);
+        changed.set(slot);
+    }
+
+    /**
+     * Re-derive the components of the seeds from their edges: reset every member reached, then
+     * union along the edges between them. Members are marked changed.
+     */
+    private void rebuild(BitSet seeds) {
+        BitSet reached = new BitSet();
+        int[] component = new int[16];
+        for (int seed = seeds.nextSetBit(0); seed >= 0; seed = seeds.nextSetBit(seed + 1)) {
+            if (reached.get(seed) || features[seed] == null) continue;
+            reached.set(seed);
+            component[0] = seed;
+            int size = 1;
+            for (int next = 0; next < size; next++) {
+                int node = component[next];
+                for (int i = 0; i < degree[node]; i++) {
+                    int other = neighbours[node][i];
+                    if (reached.get(other)) continue;
+                    reached.set(other);
+                    if (size == component.length) component = Arrays.copyOf(component, size * 2);
+                    component[size++] = other;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                components.reset(component[i]);
+                changed.set(component[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                int node = component[i];
+                for (int e = 0; e < degree[node]; e++) {
+                    components.union(node, neighbours[node][e]);
+                }
+            }
+        }
+    }
+
+    private boolean hasEdge(int a, int b) {
+        // Search the shorter list
+        int from = degree[a] <= degree[b] ? a : b;
+        int to = from == a ? b : a;
+        for (int i = 0; i < degree[from]; i++) {
+            if (neighbours[from][i] == to) return true;
+        }
+        return false;
+    }
+
+    private void addEdge(int a, int b, float score) {
+        addHalfEdge(a, b, score);
+        addHalfEdge(b, a, score);
+    }
+
+    private void addHalfEdge(int from, int to, float score) {
+        int d = degree[from];
+        if (d == neighbours[from].length) {
+            int capacity = Math.max(4, d * 2);
+            neighbours[from] = Arrays.copyOf(neighbours[from], capacity);
+            scores[from] = Arrays.copyOf(scores[from], capacity);
+        }
+        neighbours[from][d] = to;
+        scores[from][d] = score;
+        degree[from] = d + 1;
+    }
+
+    private void removeHalfEdge(int from, int to) {
+        int d = degree[from];
+        for (int i = 0; i < d; i++) {
+            if (neighbours[from][i] == to) {
+                neighbours[from][i] = neighbours[from][d - 1];
+                scores[from][i] = scores[from][d - 1];
+                degree[from] = d - 1;
+                return;
+            }
+        }
+    }
+
+    private int allocate() {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = slotCount++;
+            if (slot == features.length) {
+                int capacity = features.length * 2;
+                features = Arrays.copyOf(features, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+                neighbours = Arrays.copyOf(neighbours, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                degree = Arrays.copyOf(degree, capacity);
+            }
+        }
+        neighbours[slot] = NO_NEIGHBOURS;
+        scores[slot] = NO_SCORES;
+        degree[slot] = 0;
+        components.reset(slot);
+        return slot;
+    }
+
+    private void release(int slot) {
+        features[slot] = null;
+        versions[slot] = null;
+        changed.clear(slot);
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+    }
+}
@@ -0,0 +1,43 @@
+package com.relief.service.ai;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.util.TransactionHooks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * JPA entity listener that keeps the {@link DuplicateCandidateIndex} current as needs requests are
+ * saved or deleted. Changes are applied after the surrounding transaction commits so a rolled back
+ * edit never becomes a duplicate candidate.
+ *
+ * Instantiated by Spring through Hibernate's bean container; the index is resolved lazily for the
+ * same reason as in {@link com.relief.service.spatial.SpatialIndexEntityListener}.
+ */
+@Component
+public class DuplicateIndexEntityListener {
+
+    private final ObjectProvider<DuplicateCandidateIndex> index;
+
+    public DuplicateIndexEntityListener(ObjectProvider<DuplicateCandidateIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(NeedsRequest request) {
+        DuplicateCandidateIndex candidates = index.getIfAvailable();
+        if (candidates != null) TransactionHooks.afterCommit(() -> candidates.updateRequest(request));
+    }
+
+    @PostRemove
+    public void removed(NeedsRequest request) {
+        DuplicateCandidateIndex candidates = index.getIfAvailable();
+        UUID id = request.getId();
+        if (candidates != null) TransactionHooks.afterCommit(() -> candidates.removeRequest(id));
+    }
+}
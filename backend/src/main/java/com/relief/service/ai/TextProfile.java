@@ -0,0 +1,116 @@
+package com.relief.service.ai;
+
+import java.util.Arrays;
+
+/**
+ * A text prepared once for repeated comparison in {@link TextSimilarityService}: the normalized
+ * string, the distinct words as sorted ids for Jaccard, and the counts of words longer than two
+ * characters as a sorted sparse vector for cosine.
+ *
+ * A word's id is a 64-bit hash of it, so profiles built anywhere can be compared with each other
+ * without a shared dictionary that grows with every word ever seen; two distinct words of a
+ * vocabulary of millions collide with negligible probability. Profiles are immutable and safe to
+ * cache alongside the text they describe.
+ */
+public final class TextProfile {
+
+    private final boolean blank;
+    private final String normalized;
+    private final long[] words;
+    private final long[] vectorWords;
+    private final int[] vectorCounts;
+    private final long vectorNorm;
+
+    private TextProfile(boolean blank, String normalized, long[] words, long[] vectorWords, int[] vectorCounts) {
+        this.blank = blank;
+        this.normalized = normalized;
+        this.words = words;
+        this.vectorWords = vectorWords;
+        this.vectorCounts = vectorCounts;
+        long norm = 0;
+        for (int count : vectorCounts) {
+            norm += (long) count * count;
+        }
+        this.vectorNorm = norm;
+    }
+
+    public static TextProfile of(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new TextProfile(true, "", new long[0], new long[0], new int[0]);
+        }
+        String normalized = TextSimilarityService.normalizeText(text);
+        // Split on the single spaces left by normalization; an empty text is one empty word
+        String[] tokens = normalized.split(" ");
+        long[] ids = new long[tokens.length];
+        long[] longIds = new long[tokens.length];
+        int longCount = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            ids[i] = wordId(tokens[i]);
+            if (tokens[i].length() > 2) longIds[longCount++] = ids[i];
+        }
+        Arrays.sort(ids);
+        Arrays.sort(longIds, 0, longCount);
+
+        int distinct = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) ids[distinct++] = ids[i];
+        }
+        long[] vectorWords = new long[longCount];
+        int[] vectorCounts = new int[longCount];
+        int entries = 0;
+        for (int i = 0; i < longCount; i++) {
+            if (i > 0 && longIds[i] == longIds[i - 1]) {
+                vectorCounts[entries - 1]++;
+            } else {
+                vectorWords[entries] = longIds[i];
+                vectorCounts[entries++] = 1;
+            }
+        }
+        return new TextProfile(false, normalized, Arrays.copyOf(ids, distinct),
+            Arrays.copyOf(vectorWords, entries), Arrays.copyOf(vectorCounts, entries));
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 64-bit mixer
+     */
+    static long wordId(String word) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            hash ^= word.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Whether the original text was null or blank, which compares as similarity 0 with anything
+     */
+    public boolean isBlank() {
+        return blank;
+    }
+
+    public String normalized() {
+        return normalized;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    long[] vectorWords() {
+        return vectorWords;
+    }
+
+    int[] vectorCounts() {
+        return vectorCounts;
+    }
+
+    long vectorNorm() {
+        return vectorNorm;
+    }
+}
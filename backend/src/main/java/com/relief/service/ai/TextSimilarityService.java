@@ -2,137 +2,232 @@ package com.relief.service.ai;
 
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 /**
  * Text similarity service using various NLP techniques
+ *
+ * Texts are compared through {@link TextProfile}s, which hold the normalized string and hashed
+ * word ids, so callers comparing one text against many build each profile once. Jaccard and
+ * cosine are merge joins over the profiles' sorted id arrays, and Levenshtein is bit-parallel over
+ * reused per-thread vectors and stops once the caller's threshold is out of reach. Scoring two
+ * profiles allocates nothing.
  */
 @Service
 public class TextSimilarityService {
 
+    private static final double JACCARD_WEIGHT = 0.4;
+    private static final double COSINE_WEIGHT = 0.4;
+    private static final double LEVENSHTEIN_WEIGHT = 0.2;
+    private static final int SYMBOLS = 38;
+
+    private static final ThreadLocal<LevenshteinScratch> LEVENSHTEIN_SCRATCH =
+        ThreadLocal.withInitial(LevenshteinScratch::new);
+
     /**
      * Calculate similarity between two text strings using multiple algorithms
      */
     public double calculateSimilarity(String text1, String text2) {
-        if (text1 == null || text2 == null || text1.trim().isEmpty() || text2.trim().isEmpty()) {
+        return calculateSimilarity(TextProfile.of(text1), TextProfile.of(text2));
+    }
+
+    public double calculateSimilarity(TextProfile profile1, TextProfile profile2) {
+        return calculateSimilarity(profile1, profile2, 0.0);
+    }
+
+    /**
+     * Similarity of two profiles, exact if it is at least {@code minSimilarity}. Below that the
+     * result is only guaranteed to be below {@code minSimilarity} too, which lets the edit
+     * distance stop as soon as the threshold is out of reach.
+     */
+    public double calculateSimilarity(TextProfile profile1, TextProfile profile2, double minSimilarity) {
+        if (profile1.isBlank() || profile2.isBlank()) {
             return 0.0;
         }
 
-        // Normalize texts
-        String normalized1 = normalizeText(text1);
-        String normalized2 = normalizeText(text2);
+        double jaccardSimilarity = calculateJaccardSimilarity(profile1, profile2);
+        double cosineSimilarity = calculateCosineSimilarity(profile1, profile2);
+        double partial = (jaccardSimilarity * JACCARD_WEIGHT) + (cosineSimilarity * COSINE_WEIGHT);
 
-        // Calculate multiple similarity metrics
-        double jaccardSimilarity = calculateJaccardSimilarity(normalized1, normalized2);
-        double cosineSimilarity = calculateCosineSimilarity(normalized1, normalized2);
-        double levenshteinSimilarity = calculateLevenshteinSimilarity(normalized1, normalized2);
+        String text1 = profile1.normalized();
+        String text2 = profile2.normalized();
+        int maxLength = Math.max(text1.length(), text2.length());
+        if (maxLength == 0) return partial + LEVENSHTEIN_WEIGHT;
+
+        // Largest edit distance that still reaches the threshold, with slack for the rounding of
+        // the weighted sum so that a score landing exactly on the threshold is not cut off
+        double neededLevenshtein = (minSimilarity - partial) / LEVENSHTEIN_WEIGHT;
+        if (neededLevenshtein > 1.0 + 1e-9) return partial;
+        int maxDistance = neededLevenshtein <= 0.0
+            ? maxLength
+            : Math.max(0, (int) Math.floor((1.0 - neededLevenshtein) * maxLength + 1e-9));
+
+        int distance = calculateLevenshteinDistance(text1, text2, maxDistance);
+        if (distance > maxDistance) return partial;
+        double levenshteinSimilarity = 1.0 - ((double) distance / maxLength);
 
         // Weighted combination
-        return (jaccardSimilarity * 0.4) + (cosineSimilarity * 0.4) + (levenshteinSimilarity * 0.2);
+        return partial + (levenshteinSimilarity * LEVENSHTEIN_WEIGHT);
     }
 
     /**
-     * Normalize text for comparison
+     * Normalize text for comparison: lower case, runs of anything but letters and digits become
+     * single spaces, no leading or trailing space
      */
-    private String normalizeText(String text) {
-        return text.toLowerCase()
-                .replaceAll("[^a-z0-9\\s]", " ") // Remove special characters
-                .replaceAll("\\s+", " ") // Normalize whitespace
-                .trim();
+    static String normalizeText(String text) {
+        String lower = text.toLowerCase();
+        StringBuilder normalized = new StringBuilder(lower.length());
+        boolean separator = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (separator && normalized.length() > 0) normalized.append(' ');
+                separator = false;
+                normalized.append(c);
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
     }
 
     /**
-     * Calculate Jaccard similarity (intersection over union)
+     * Calculate Jaccard similarity (intersection over union) of the distinct words
      */
-    private double calculateJaccardSimilarity(String text1, String text2) {
-        Set<String> words1 = new HashSet<>(Arrays.asList(text1.split("\\s+")));
-        Set<String> words2 = new HashSet<>(Arrays.asList(text2.split("\\s+")));
-
-        Set<String> intersection = new HashSet<>(words1);
-        intersection.retainAll(words2);
-
-        Set<String> union = new HashSet<>(words1);
-        union.addAll(words2);
+    private double calculateJaccardSimilarity(TextProfile profile1, TextProfile profile2) {
+        long[] words1 = profile1.words();
+        long[] words2 = profile2.words();
+        int intersection = 0;
+        for (int i = 0, j = 0; i < words1.length && j < words2.length; ) {
+            if (words1[i] == words2[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (words1[i] < words2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = words1.length + words2.length - intersection;
 
-        if (union.isEmpty()) return 0.0;
-        return (double) intersection.size() / union.size();
+        if (union == 0) return 0.0;
+        return (double) intersection / union;
     }
 
     /**
-     * Calculate cosine similarity
+     * Calculate cosine similarity of the word counts
      */
-    private double calculateCosineSimilarity(String text1, String text2) {
-        Map<String, Integer> vector1 = createWordVector(text1);
-        Map<String, Integer> vector2 = createWordVector(text2);
-
-        Set<String> allWords = new HashSet<>(vector1.keySet());
-        allWords.addAll(vector2.keySet());
-
+    private double calculateCosineSimilarity(TextProfile profile1, TextProfile profile2) {
+        long[] words1 = profile1.vectorWords();
+        long[] words2 = profile2.vectorWords();
+        int[] counts1 = profile1.vectorCounts();
+        int[] counts2 = profile2.vectorCounts();
         double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-
-        for (String word : allWords) {
-            int count1 = vector1.getOrDefault(word, 0);
-            int count2 = vector2.getOrDefault(word, 0);
-
-            dotProduct += count1 * count2;
-            norm1 += count1 * count1;
-            norm2 += count2 * count2;
+        for (int i = 0, j = 0; i < words1.length && j < words2.length; ) {
+            if (words1[i] == words2[j]) {
+                dotProduct += counts1[i++] * counts2[j++];
+            } else if (words1[i] < words2[j]) {
+                i++;
+            } else {
+                j++;
+            }
         }
+        double norm1 = profile1.vectorNorm();
+        double norm2 = profile2.vectorNorm();
 
         if (norm1 == 0.0 || norm2 == 0.0) return 0.0;
         return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
     }
 
     /**
-     * Calculate Levenshtein similarity (1 - normalized distance)
+     * Levenshtein distance of two normalized texts if it is at most {@code maxDistance}, otherwise
+     * {@code maxDistance + 1}.
+     *
+     * Myers' bit-parallel algorithm in Hyyro's block form: each column of the edit-distance matrix
+     * is kept as 64-row bit vectors of vertical deltas, so a column costs a few word operations per
+     * 64 characters of the shorter text. The distance can drop by at most one per remaining
+     * column, so the scan stops once the threshold is out of reach.
      */
-    private double calculateLevenshteinSimilarity(String text1, String text2) {
-        int distance = calculateLevenshteinDistance(text1, text2);
-        int maxLength = Math.max(text1.length(), text2.length());
-        
-        if (maxLength == 0) return 1.0;
-        return 1.0 - ((double) distance / maxLength);
-    }
-
-    /**
-     * Calculate Levenshtein distance
-     */
-    private int calculateLevenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-
-        for (int i = 0; i <= s1.length(); i++) {
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
+    static int calculateLevenshteinDistance(String s1, String s2, int maxDistance) {
+        String pattern = s1.length() <= s2.length() ? s1 : s2;
+        String text = pattern == s1 ? s2 : s1;
+        int m = pattern.length();
+        int n = text.length();
+        if (n - m > maxDistance) return maxDistance + 1;
+        if (m == 0) return n;
+
+        int blocks = (m + 63) >>> 6;
+        LevenshteinScratch scratch = LEVENSHTEIN_SCRATCH.get();
+        scratch.ensureCapacity(blocks);
+        long[] matches = scratch.matches;
+        long[] positive = scratch.positive;
+        long[] negative = scratch.negative;
+        Arrays.fill(matches, 0, SYMBOLS * blocks, 0L);
+        for (int i = 0; i < m; i++) {
+            matches[symbol(pattern.charAt(i)) * blocks + (i >>> 6)] |= 1L << (i & 63);
+        }
+        Arrays.fill(positive, 0, blocks, -1L);
+        Arrays.fill(negative, 0, blocks, 0L);
+        long lastRow = 1L << ((m - 1) & 63);
+
+        int distance = m;
+        for (int j = 0; j < n; j++) {
+            int base = symbol(text.charAt(j)) * blocks;
+            long positiveCarry = 1;
+            long negativeCarry = 0;
+            for (int b = 0; b < blocks; b++) {
+                long vp = positive[b];
+                long vn = negative[b];
+                long x = matches[base + b] | negativeCarry;
+                long d0 = (((x & vp) + vp) ^ vp) | x | vn;
+                long hp = vn | ~(d0 | vp);
+                long hn = d0 & vp;
+                long hpIn = positiveCarry;
+                long hnIn = negativeCarry;
+                if (b < blocks - 1) {
+                    positiveCarry = hp >>> 63;
+                    negativeCarry = hn >>> 63;
                 } else {
-                    dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1)
-                    );
+                    positiveCarry = (hp & lastRow) != 0 ? 1 : 0;
+                    negativeCarry = (hn & lastRow) != 0 ? 1 : 0;
                 }
+                hp = (hp << 1) | hpIn;
+                hn = (hn << 1) | hnIn;
+                positive[b] = hn | ~(d0 | hp);
+                negative[b] = hp & d0;
             }
+            distance += (int) (positiveCarry - negativeCarry);
+            if (distance - (n - 1 - j) > maxDistance) return maxDistance + 1;
         }
+        return distance <= maxDistance ? distance : maxDistance + 1;
+    }
 
-        return dp[s1.length()][s2.length()];
+    /**
+     * Letters, digits and space, the characters normalized text is made of; anything else shares
+     * one extra symbol
+     */
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= '0' && c <= '9') return 26 + (c - '0');
+        return c == ' ' ? 36 : 37;
     }
 
     /**
-     * Create word frequency vector
+     * Per-thread bit vectors reused across comparisons: match masks per symbol and block, and the
+     * positive and negative vertical deltas of the current column
      */
-    private Map<String, Integer> createWordVector(String text) {
-        return Arrays.stream(text.split("\\s+"))
-                .filter(word -> word.length() > 2) // Filter out short words
-                .collect(Collectors.toMap(
-                    word -> word,
-                    word -> 1,
-                    Integer::sum
-                ));
+    private static final class LevenshteinScratch {
+        private long[] matches = new long[SYMBOLS * 4];
+        private long[] positive = new long[4];
+        private long[] negative = new long[4];
+
+        private void ensureCapacity(int blocks) {
+            if (positive.length >= blocks) return;
+            int grown = Math.max(blocks, positive.length * 2);
+            matches = new long[SYMBOLS * grown];
+            positive = new long[grown];
+            negative = new long[grown];
+        }
     }
 }
-
-
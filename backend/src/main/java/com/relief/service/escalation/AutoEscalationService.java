@@ -10,13 +10,13 @@ import com.relief.service.notification.SmartNotificationService;
 import com.relief.service.escalation.EscalationRuleService.EscalationRule;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -33,10 +33,15 @@ public class AutoEscalationService {
     private final SmartNotificationService smartNotificationService;
     private final EscalationRuleService escalationRuleService;
 
+    private static final Set<String> ESCALATABLE_REQUEST_STATUSES = Set.of("OPEN", "IN_PROGRESS");
+    private static final Set<String> ESCALATABLE_TASK_STATUSES = Set.of("assigned", "picked_up");
+    private static final int HIGH_PRIORITY_SEVERITY = 4;
+    private static final long UNRESOLVED_AFTER_HOURS = 2;
+
     /**
-     * Scheduled task to check for escalations every 5 minutes
+     * Check every open request and overdue task for escalation. Escalations normally fire on time
+     * from the {@link EscalationScheduler}; this full sweep backs the manual trigger.
      */
-    @Scheduled(fixedRate = 300000) // 5 minutes
     @Transactional
     public void checkAndEscalate() {
         log.info("Running auto-escalation check");
@@ -100,6 +105,68 @@ public class AutoEscalationService {
         }
     }
 
+    /**
+     * When a request with these attributes becomes due for escalation, or null if it is not open
+     * to escalation. Matches the sweep: high priority requests are checked straight away, others
+     * once unresolved for two hours, and they escalate when their severity reaches the rule
+     * threshold or the rule's escalation time has passed.
+     */
+    public LocalDateTime requestEscalationDeadline(String type, String status, Integer severity, LocalDateTime createdAt) {
+        if (createdAt == null || status == null || !ESCALATABLE_REQUEST_STATUSES.contains(status)) return null;
+        int value = severity != null ? severity : 0;
+        EscalationRule rule = escalationRuleService.getRule(type, status, severity);
+        if (rule == null) return null;
+
+        LocalDateTime checkedFrom = value >= HIGH_PRIORITY_SEVERITY ? createdAt : createdAt.plusHours(UNRESOLVED_AFTER_HOURS);
+        LocalDateTime dueFrom = value >= rule.getSeverityThreshold()
+            ? createdAt
+            : createdAt.plusMinutes(rule.getEscalationTimeMinutes());
+        return checkedFrom.isAfter(dueFrom) ? checkedFrom : dueFrom;
+    }
+
+    /**
+     * When a task becomes due for escalation (its ETA), or null if it does not escalate
+     */
+    public LocalDateTime taskEscalationDeadline(String status, LocalDateTime eta, boolean hasRequest) {
+        if (eta == null || !hasRequest || status == null || !ESCALATABLE_TASK_STATUSES.contains(status)) return null;
+        return eta;
+    }
+
+    /**
+     * Escalate the request if it is due
+     *
+     * @return the request's deadline if it is not due yet, otherwise null
+     */
+    @Transactional
+    public LocalDateTime escalateRequestIfDue(UUID requestId) {
+        NeedsRequest request = needsRequestRepository.findById(requestId).orElse(null);
+        if (request == null) return null;
+        LocalDateTime deadline = requestEscalationDeadline(
+            request.getType(), request.getStatus(), request.getSeverity(), request.getCreatedAt());
+        if (deadline == null) return null;
+        if (deadline.isAfter(LocalDateTime.now())) return deadline;
+
+        escalateRequest(request, escalationRuleService.getRuleForRequest(request));
+        return null;
+    }
+
+    /**
+     * Escalate the task if it is due
+     *
+     * @return the task's deadline if it is not due yet, otherwise null
+     */
+    @Transactional
+    public LocalDateTime escalateTaskIfDue(UUID taskId) {
+        Task task = taskRepository.findById(taskId).orElse(null);
+        if (task == null) return null;
+        LocalDateTime deadline = taskEscalationDeadline(task.getStatus(), task.getEta(), task.getRequest() != null);
+        if (deadline == null) return null;
+        if (deadline.isAfter(LocalDateTime.now())) return deadline;
+
+        escalateTask(task, escalationRuleService.getRuleForRequest(task.getRequest()));
+        return null;
+    }
+
     /**
      * Check if request should be escalated
      */
@@ -0,0 +1,54 @@
+package com.relief.service.escalation;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.entity.Task;
+import com.relief.util.TransactionHooks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * JPA entity listener that keeps the {@link EscalationScheduler} timers current as needs requests
+ * and tasks are saved or deleted. Changes are applied after the surrounding transaction commits.
+ *
+ * Instantiated by Spring through Hibernate's bean container; the scheduler is resolved lazily for
+ * the same reason as in {@link com.relief.service.spatial.SpatialIndexEntityListener}.
+ */
+@Component
+public class EscalationEntityListener {
+
+    private final ObjectProvider<EscalationScheduler> scheduler;
+
+    public EscalationEntityListener(ObjectProvider<EscalationScheduler> scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Object entity) {
+        if (entity instanceof NeedsRequest request) {
+            afterCommit(timers -> timers.updateRequest(request));
+        } else if (entity instanceof Task task) {
+            afterCommit(timers -> timers.updateTask(task));
+        }
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        if (entity instanceof NeedsRequest request) {
+            afterCommit(timers -> timers.removeRequest(request.getId()));
+        } else if (entity instanceof Task task) {
+            afterCommit(timers -> timers.removeTask(task.getId()));
+        }
+    }
+
+    private void afterCommit(Consumer<EscalationScheduler> change) {
+        EscalationScheduler timers = scheduler.getIfAvailable();
+        if (timers == null) return;
+        TransactionHooks.afterCommit(() -> change.accept(timers));
+    }
+}
@@ -1,60 +1,69 @@
 package com.relief.service.escalation;
 
 import com.relief.entity.NeedsRequest;
-import lombok.RequiredArgsConstructor;
+import com.relief.util.RuleIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 
 /**
- * Service for managing escalation rules
+ * Service for managing escalation rules.
+ *
+ * Rules are compiled into a {@link RuleIndex} by request type, status and severity band, so the
+ * escalation sweep only evaluates rules that can match each request. The rule set is the built-in
+ * one; nothing edits it at runtime, so the index is compiled once at construction.
  */
 @Service
 @Slf4j
 public class EscalationRuleService {
 
-    private final Map<String, EscalationRule> rules = new HashMap<>();
+    private static final String DEFAULT_RULE_ID = "DEFAULT";
+
+    private final Map<String, EscalationRule> rules = new LinkedHashMap<>();
+    private volatile RuleIndex<EscalationRule> index;
+    private volatile EscalationRule defaultRule;
 
     public EscalationRuleService() {
         initializeDefaultRules();
+        recompile();
     }
 
     /**
-     * Get escalation rule for a request
+     * Get escalation rule for a request: the first matching rule in registration order, or the
+     * default rule if no specific rule matches
      */
     public EscalationRule getRuleForRequest(NeedsRequest request) {
-        // Find matching rule based on request characteristics
-        for (EscalationRule rule : rules.values()) {
-            if (matchesRule(request, rule)) {
-                return rule;
-            }
-        }
-        
-        // Return default rule if no specific match
-        return rules.get("DEFAULT");
+        return getRule(request.getType(), request.getStatus(), request.getSeverity());
     }
 
     /**
-     * Check if request matches rule criteria
+     * Get escalation rule for request attributes, as for {@link #getRuleForRequest}
      */
-    private boolean matchesRule(NeedsRequest request, EscalationRule rule) {
-        // Check request type
-        if (rule.getRequestTypes() != null && !rule.getRequestTypes().contains(request.getType())) {
-            return false;
-        }
-        
-        // Check severity threshold
-        if (request.getSeverity() < rule.getSeverityThreshold()) {
-            return false;
-        }
-        
-        // Check status
-        if (rule.getStatuses() != null && !rule.getStatuses().contains(request.getStatus())) {
-            return false;
+    public EscalationRule getRule(String type, String status, Integer severity) {
+        EscalationRule rule = index.firstMatch(type, status, severity, true);
+        return rule != null ? rule : defaultRule;
+    }
+
+    /**
+     * Get all rules in registration order, including the default rule
+     */
+    public List<EscalationRule> getRules() {
+        return new ArrayList<>(rules.values());
+    }
+
+    /**
+     * The default rule is only a fallback, so it is left out of the index
+     */
+    private void recompile() {
+        List<EscalationRule> specific = new ArrayList<>(rules.size());
+        for (EscalationRule rule : rules.values()) {
+            if (!DEFAULT_RULE_ID.equals(rule.getId())) specific.add(rule);
         }
-        
-        return true;
+        index = RuleIndex.compile(specific, rule -> new RuleIndex.Criteria(
+            rule.getRequestTypes(), rule.getStatuses(), rule.getSeverityThreshold(), false));
+        defaultRule = rules.get(DEFAULT_RULE_ID);
+        log.debug("Compiled {} escalation rules", specific.size());
     }
 
     /**
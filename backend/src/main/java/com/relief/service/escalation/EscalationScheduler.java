@@ -0,0 +1,148 @@
+package com.relief.service.escalation;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.entity.Task;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.repository.TaskRepository;
+import com.relief.util.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Fires request and task escalations at their deadlines.
+ *
+ * Every request and task open to escalation has one timer in a {@link TimingWheel} holding its
+ * next deadline from {@link AutoEscalationService}. {@link EscalationEntityListener} moves or
+ * cancels the timer whenever the entity is saved, and the wheel is rebuilt from the open items
+ * once the application is ready. A one second tick advances the wheel and hands due items back to
+ * {@link AutoEscalationService}, which re-checks them against the database before escalating; an
+ * idle wheel costs one empty advance per tick.
+ */
+@Service
+@Slf4j
+public class EscalationScheduler {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final long RETRY_DELAY_MINUTES = 1;
+
+    private final AutoEscalationService autoEscalationService;
+    private final NeedsRequestRepository needsRequestRepository;
+    private final TaskRepository taskRepository;
+    private final Clock clock;
+
+    private final TimingWheel<Timer> wheel;
+
+    enum Kind { REQUEST, TASK }
+
+    record Timer(Kind kind, UUID id) {}
+
+    @Autowired
+    public EscalationScheduler(AutoEscalationService autoEscalationService,
+                               NeedsRequestRepository needsRequestRepository,
+                               TaskRepository taskRepository) {
+        this(autoEscalationService, needsRequestRepository, taskRepository, Clock.systemDefaultZone());
+    }
+
+    EscalationScheduler(AutoEscalationService autoEscalationService,
+                        NeedsRequestRepository needsRequestRepository,
+                        TaskRepository taskRepository,
+                        Clock clock) {
+        this.autoEscalationService = autoEscalationService;
+        this.needsRequestRepository = needsRequestRepository;
+        this.taskRepository = taskRepository;
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(TICK_MILLIS, clock.millis());
+    }
+
+    /**
+     * Register every open request and in-flight task. Timers already set by the entity listener
+     * since startup are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        int requests = 0;
+        for (Object[] row : needsRequestRepository.findEscalationCandidates()) {
+            LocalDateTime deadline = autoEscalationService.requestEscalationDeadline(
+                (String) row[1], (String) row[2], (Integer) row[3], (LocalDateTime) row[4]);
+            if (deadline != null && wheel.scheduleIfAbsent(new Timer(Kind.REQUEST, (UUID) row[0]), toMillis(deadline))) {
+                requests++;
+            }
+        }
+        int tasks = 0;
+        for (Object[] row : taskRepository.findEscalationCandidates()) {
+            if (wheel.scheduleIfAbsent(new Timer(Kind.TASK, (UUID) row[0]), toMillis((LocalDateTime) row[1]))) {
+                tasks++;
+            }
+        }
+        log.info("Escalation timers rebuilt: {} requests, {} tasks", requests, tasks);
+    }
+
+    public int size() {
+        return wheel.size();
+    }
+
+    /**
+     * Set, move or cancel the request's timer for its current state
+     */
+    public void updateRequest(NeedsRequest request) {
+        LocalDateTime deadline = autoEscalationService.requestEscalationDeadline(
+            request.getType(), request.getStatus(), request.getSeverity(), request.getCreatedAt());
+        update(new Timer(Kind.REQUEST, request.getId()), deadline);
+    }
+
+    /**
+     * Set, move or cancel the task's timer for its current state
+     */
+    public void updateTask(Task task) {
+        LocalDateTime deadline = autoEscalationService.taskEscalationDeadline(
+            task.getStatus(), task.getEta(), task.getRequest() != null);
+        update(new Timer(Kind.TASK, task.getId()), deadline);
+    }
+
+    public void removeRequest(UUID requestId) {
+        wheel.cancel(new Timer(Kind.REQUEST, requestId));
+    }
+
+    public void removeTask(UUID taskId) {
+        wheel.cancel(new Timer(Kind.TASK, taskId));
+    }
+
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void tick() {
+        for (Timer timer : wheel.advance(clock.millis())) {
+            try {
+                LocalDateTime next = timer.kind() == Kind.REQUEST
+                    ? autoEscalationService.escalateRequestIfDue(timer.id())
+                    : autoEscalationService.escalateTaskIfDue(timer.id());
+                // Not due after all, e.g. the timer was set from a stale state
+                if (next != null) wheel.scheduleIfAbsent(timer, toMillis(next));
+            } catch (RuntimeException e) {
+                log.error("Escalation of {} {} failed, retrying in {} minute(s)",
+                    timer.kind(), timer.id(), RETRY_DELAY_MINUTES, e);
+                wheel.scheduleIfAbsent(timer, toMillis(LocalDateTime.now(clock).plusMinutes(RETRY_DELAY_MINUTES)));
+            }
+        }
+    }
+
+    private void update(Timer timer, LocalDateTime deadline) {
+        if (deadline == null) {
+            wheel.cancel(timer);
+        } else {
+            wheel.schedule(timer, toMillis(deadline));
+        }
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,195 @@
+package com.relief.service.indoor;
+
+import com.relief.domain.indoor.IndoorNode;
+import com.relief.domain.indoor.IndoorNodeType;
+import com.relief.domain.indoor.IndoorRouteType;
+import com.relief.util.IntDoubleMinHeap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Distance-to-nearest-exit field of an indoor map for one route type.
+ *
+ * Built by a multi-source Dijkstra that starts at every exit node and walks incoming arcs
+ * backwards, so each node ends up with the cost and distance to its nearest exit and the
+ * outgoing arc to take next. Following {@code nextArc} from any node reproduces its evacuation
+ * route without searching. Fields are immutable; {@link #update} derives a new field after
+ * access flag changes by repairing only the affected part of the shortest-path tree.
+ */
+public final class EvacuationField {
+
+    private final IndoorGraph graph;
+    private final IndoorRouteType routeType;
+    private final double[] cost;
+    private final double[] distance;
+    private final int[] nextArc;
+    private final int[] exit;
+
+    private EvacuationField(IndoorGraph graph, IndoorRouteType routeType,
+                            double[] cost, double[] distance, int[] nextArc, int[] exit) {
+        this.graph = graph;
+        this.routeType = routeType;
+        this.cost = cost;
+        this.distance = distance;
+        this.nextArc = nextArc;
+        this.exit = exit;
+    }
+
+    public static EvacuationField compute(IndoorGraph graph, IndoorRouteType routeType) {
+        int n = graph.nodeCount();
+        double[] cost = new double[n];
+        double[] distance = new double[n];
+        int[] nextArc = new int[n];
+        int[] exit = new int[n];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        Arrays.fill(nextArc, -1);
+        Arrays.fill(exit, -1);
+
+        EvacuationField field = new EvacuationField(graph, routeType, cost, distance, nextArc, exit);
+        IntDoubleMinHeap heap = new IntDoubleMinHeap(Math.max(16, n));
+        for (int node = 0; node < n; node++) {
+            if (isExit(graph.node(node))) {
+                cost[node] = 0;
+                exit[node] = node;
+                heap.add(node, 0);
+            }
+        }
+        field.propagate(heap);
+        return field;
+    }
+
+    /**
+     * Field for {@code newGraph}, which must share this field's topology. Arcs that stopped
+     * being traversable invalidate the subtree hanging off them, which is re-seeded from its
+     * unaffected neighbours; arcs that became traversable may only shorten routes and are
+     * relaxed directly. Returns a full recomputation if the topology differs.
+     */
+    public EvacuationField update(IndoorGraph newGraph) {
+        if (newGraph == graph) return this;
+        BitSet changed = newGraph.changedArcs(graph);
+        if (changed == null) return compute(newGraph, routeType);
+        if (changed.isEmpty()) {
+            return new EvacuationField(newGraph, routeType, cost, distance, nextArc, exit);
+        }
+
+        EvacuationField field = new EvacuationField(newGraph, routeType,
+            cost.clone(), distance.clone(), nextArc.clone(), exit.clone());
+        field.repair(changed);
+        return field;
+    }
+
+    private void repair(BitSet changed) {
+        int n = graph.nodeCount();
+        BitSet affected = new BitSet(n);
+        int[] queue = new int[n];
+        int tail = 0;
+
+        // Roots of invalidated subtrees: nodes whose next hop was just blocked
+        for (int arc = changed.nextSetBit(0); arc >= 0; arc = changed.nextSetBit(arc + 1)) {
+            int source = graph.arcSource(arc);
+            if (!graph.isTraversable(arc, routeType) && nextArc[source] == arc && !affected.get(source)) {
+                affected.set(source);
+                queue[tail++] = source;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int k = graph.inStart(node); k < graph.inEnd(node); k++) {
+                int arc = graph.inArc(k);
+                int child = graph.arcSource(arc);
+                if (nextArc[child] == arc && !affected.get(child)) {
+                    affected.set(child);
+                    queue[tail++] = child;
+                }
+            }
+        }
+        for (int i = 0; i < tail; i++) {
+            int node = queue[i];
+            cost[node] = Double.POSITIVE_INFINITY;
+            nextArc[node] = -1;
+            exit[node] = -1;
+        }
+
+        IntDoubleMinHeap heap = new IntDoubleMinHeap(Math.max(16, tail));
+        for (int i = 0; i < tail; i++) {
+            int node = queue[i];
+            for (int arc = graph.outStart(node); arc < graph.outEnd(node); arc++) {
+                int target = graph.arcTarget(arc);
+                if (affected.get(target) || !graph.isTraversable(arc, routeType)) continue;
+                relax(node, arc, target, heap);
+            }
+        }
+        for (int arc = changed.nextSetBit(0); arc >= 0; arc = changed.nextSetBit(arc + 1)) {
+            if (graph.isTraversable(arc, routeType)) {
+                relax(graph.arcSource(arc), arc, graph.arcTarget(arc), heap);
+            }
+        }
+        propagate(heap);
+    }
+
+    private void propagate(IntDoubleMinHeap heap) {
+        while (!heap.isEmpty()) {
+            double key = heap.peekKey();
+            int node = heap.poll();
+            if (key > cost[node]) continue;
+            for (int k = graph.inStart(node); k < graph.inEnd(node); k++) {
+                int arc = graph.inArc(k);
+                if (graph.isTraversable(arc, routeType)) {
+                    relax(graph.arcSource(arc), arc, node, heap);
+                }
+            }
+        }
+    }
+
+    private void relax(int node, int arc, int towards, IntDoubleMinHeap heap) {
+        if (Double.isInfinite(cost[towards])) return;
+        double candidate = cost[towards] + graph.arcCost(arc);
+        if (candidate < cost[node]) {
+            cost[node] = candidate;
+            distance[node] = distance[towards] + graph.arcDistance(arc);
+            nextArc[node] = arc;
+            exit[node] = exit[towards];
+            heap.add(node, candidate);
+        }
+    }
+
+    private static boolean isExit(IndoorNode node) {
+        return Boolean.TRUE.equals(node.getIsEmergencyExit())
+            || node.getNodeType() == IndoorNodeType.EXIT
+            || node.getNodeType() == IndoorNodeType.EMERGENCY_EXIT;
+    }
+
+    /**
+     * Node indices from {@code node} to its nearest exit, or {@code null} if no exit is reachable.
+     */
+    public int[] pathFrom(int node) {
+        if (exit[node] < 0) return null;
+        int length = 1;
+        for (int current = node; nextArc[current] >= 0; current = graph.arcTarget(nextArc[current])) length++;
+        int[] path = new int[length];
+        int current = node;
+        for (int i = 0; i < length; i++) {
+            path[i] = current;
+            if (nextArc[current] >= 0) current = graph.arcTarget(nextArc[current]);
+        }
+        return path;
+    }
+
+    /**
+     * Next node towards the nearest exit, or -1 for exits and nodes that cannot reach one.
+     */
+    public int nextHop(int node) {
+        return nextArc[node] < 0 ? -1 : graph.arcTarget(nextArc[node]);
+    }
+
+    public boolean canReachExit(int node) { return exit[node] >= 0; }
+
+    public int exitOf(int node) { return exit[node]; }
+
+    public double distanceToExit(int node) { return distance[node]; }
+
+    public IndoorGraph graph() { return graph; }
+
+    public IndoorRouteType routeType() { return routeType; }
+}
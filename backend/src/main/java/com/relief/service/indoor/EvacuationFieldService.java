@@ -0,0 +1,133 @@
+package com.relief.service.indoor;
+
+import com.relief.domain.indoor.IndoorNode;
+import com.relief.domain.indoor.IndoorRouteType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves evacuation routes from precomputed {@link EvacuationField}s.
+ *
+ * Fields are cached per map and route type and kept in step with the cached {@link IndoorGraph}:
+ * when only access flags changed (a door locked, a corridor blocked) the field is repaired
+ * incrementally, otherwise it is recomputed. A route lookup is then a walk along next hops.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EvacuationFieldService {
+
+    private final IndoorGraphCache graphCache;
+
+    private final Map<FieldKey, EvacuationField> fields = new ConcurrentHashMap<>();
+
+    /**
+     * Route from a node to its nearest reachable exit
+     */
+    public EvacuationRoute getEvacuationRoute(Long mapId, Long fromNodeId, IndoorRouteType routeType) {
+        EvacuationField field = field(mapId, routeType);
+        int fromIndex = field.graph().indexOf(fromNodeId)
+            .orElseThrow(() -> new IllegalArgumentException("From node not found in map"));
+
+        int[] path = field.pathFrom(fromIndex);
+        if (path == null) {
+            throw new IllegalArgumentException("No exit reachable from node");
+        }
+        List<RouteNode> nodes = new ArrayList<>(path.length);
+        for (int index : path) {
+            nodes.add(RouteNode.of(field.graph().node(index)));
+        }
+        return new EvacuationRoute(fromNodeId, nodes.get(nodes.size() - 1).id(),
+            field.distanceToExit(fromIndex), nodes);
+    }
+
+    /**
+     * Next hop and nearest exit of every node of a map, for distributing a whole building's
+     * evacuation guidance in one response
+     */
+    public EvacuationPlan getEvacuationPlan(Long mapId, IndoorRouteType routeType) {
+        EvacuationField field = field(mapId, routeType);
+        IndoorGraph graph = field.graph();
+        List<EvacuationStep> steps = new ArrayList<>(graph.nodeCount());
+        int unreachable = 0;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            if (!field.canReachExit(node)) {
+                steps.add(new EvacuationStep(graph.node(node).getId(), null, null, null));
+                unreachable++;
+                continue;
+            }
+            int next = field.nextHop(node);
+            steps.add(new EvacuationStep(
+                graph.node(node).getId(),
+                next < 0 ? null : graph.node(next).getId(),
+                graph.node(field.exitOf(node)).getId(),
+                field.distanceToExit(node)));
+        }
+        return new EvacuationPlan(mapId, routeType, unreachable, steps);
+    }
+
+    private EvacuationField field(Long mapId, IndoorRouteType routeType) {
+        IndoorGraph graph = graphCache.get(mapId);
+        return fields.compute(new FieldKey(mapId, routeType), (key, existing) -> {
+            if (existing == null) {
+                long start = System.nanoTime();
+                EvacuationField computed = EvacuationField.compute(graph, routeType);
+                log.debug("Computed {} evacuation field for map {} in {} ms", routeType, mapId,
+                    (System.nanoTime() - start) / 1_000_000);
+                return computed;
+            }
+            return existing.update(graph);
+        });
+    }
+
+    private record FieldKey(Long mapId, IndoorRouteType routeType) {}
+
+    public record EvacuationRoute(
+        Long fromNodeId,
+        Long exitNodeId,
+        double distance,
+        List<RouteNode> path
+    ) {}
+
+    /**
+     * Node of a route copied out of the cached graph, so responses never serialise the shared
+     * entities or touch their lazy associations
+     */
+    public record RouteNode(
+        Long id,
+        String nodeId,
+        String name,
+        Integer floorLevel,
+        Double localX,
+        Double localY,
+        Double longitude,
+        Double latitude
+    ) {
+        static RouteNode of(IndoorNode node) {
+            return new RouteNode(node.getId(), node.getNodeId(), node.getName(), node.getFloorLevel(),
+                node.getLocalX(), node.getLocalY(),
+                node.getPosition() != null ? node.getPosition().getX() : null,
+                node.getPosition() != null ? node.getPosition().getY() : null);
+        }
+    }
+
+    public record EvacuationStep(
+        Long nodeId,
+        Long nextNodeId,
+        Long exitNodeId,
+        Double distanceToExit
+    ) {}
+
+    public record EvacuationPlan(
+        Long mapId,
+        IndoorRouteType routeType,
+        int unreachableNodes,
+        List<EvacuationStep> steps
+    ) {}
+}
@@ -0,0 +1,358 @@
+package com.relief.service.indoor;
+
+import com.relief.domain.indoor.IndoorEdge;
+import com.relief.domain.indoor.IndoorNode;
+import com.relief.domain.indoor.IndoorRouteType;
+import com.relief.util.IntDoubleMinHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Immutable in-memory navigation graph of one indoor map in compressed sparse row form.
+ *
+ * Nodes are addressed by dense int indices; the outgoing arcs of node {@code i} occupy
+ * {@code [offsets[i], offsets[i + 1])} of the arc arrays. Bidirectional edges contribute an arc
+ * in each direction. Arc attributes are kept in primitive arrays and bitsets so a route query
+ * touches no entities and no database. A reverse index lists the incoming arcs of every node for
+ * searches that run from the destinations backwards.
+ *
+ * Access flag changes produce a new graph via {@link #withEdgeFlags} that shares the topology
+ * arrays and copies only the flag bitsets.
+ *
+ * The map's local frame is recovered by a least-squares affine fit from the nodes' geographic
+ * positions to their local coordinates, so positions estimated in degrees can be reported in
+ * the same frame as the nodes.
+ */
+public final class IndoorGraph {
+
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+    private static final double METERS_PER_DEGREE_LON = 111_320.0;
+
+    private final Long mapId;
+    private final IndoorNode[] nodes;
+    private final Map<Long, Integer> indexById;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] sources;
+    private final int[] inOffsets;
+    private final int[] inArcs;
+    private final double[] distances;
+    private final double[] costs;
+    private final Map<Long, int[]> arcsByEdge;
+    private final BitSet accessible;
+    private final BitSet restricted;
+    private final BitSet emergency;
+    /** Reference lon, lat and metres per degree of lon, then the x and y rows of the affine fit */
+    private final double[] localFrame;
+
+    private IndoorGraph(Long mapId, IndoorNode[] nodes, Map<Long, Integer> indexById, int[] offsets,
+                        int[] targets, int[] sources, int[] inOffsets, int[] inArcs,
+                        double[] distances, double[] costs, Map<Long, int[]> arcsByEdge,
+                        BitSet accessible, BitSet restricted, BitSet emergency, double[] localFrame) {
+        this.mapId = mapId;
+        this.nodes = nodes;
+        this.indexById = indexById;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.sources = sources;
+        this.inOffsets = inOffsets;
+        this.inArcs = inArcs;
+        this.distances = distances;
+        this.costs = costs;
+        this.arcsByEdge = arcsByEdge;
+        this.accessible = accessible;
+        this.restricted = restricted;
+        this.emergency = emergency;
+        this.localFrame = localFrame;
+    }
+
+    /**
+     * Build the graph from the nodes and edges of a map. Edges referencing nodes outside the
+     * node list are ignored.
+     */
+    public static IndoorGraph build(Long mapId, List<IndoorNode> nodeList, List<IndoorEdge> edges) {
+        IndoorNode[] nodes = nodeList.toArray(new IndoorNode[0]);
+        Map<Long, Integer> indexById = new HashMap<>(nodes.length * 2);
+        for (int i = 0; i < nodes.length; i++) {
+            indexById.put(nodes[i].getId(), i);
+        }
+
+        List<IndoorEdge> usable = new ArrayList<>(edges.size());
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        int[] degree = new int[nodes.length + 1];
+        for (IndoorEdge edge : edges) {
+            Integer source = indexById.get(edge.getFromNode().getId());
+            Integer target = indexById.get(edge.getToNode().getId());
+            if (source == null || target == null) continue;
+            from[usable.size()] = source;
+            to[usable.size()] = target;
+            usable.add(edge);
+            degree[source]++;
+            if (Boolean.TRUE.equals(edge.getIsBidirectional())) degree[target]++;
+        }
+
+        int[] offsets = new int[nodes.length + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i + 1] = offsets[i] + degree[i];
+        }
+        int arcCount = offsets[nodes.length];
+        int[] targets = new int[arcCount];
+        int[] sources = new int[arcCount];
+        Map<Long, int[]> arcsByEdge = new HashMap<>(usable.size() * 2);
+        double[] distances = new double[arcCount];
+        double[] costs = new double[arcCount];
+        BitSet accessible = new BitSet(arcCount);
+        BitSet restricted = new BitSet(arcCount);
+        BitSet emergency = new BitSet(arcCount);
+
+        int[] cursor = Arrays.copyOf(offsets, nodes.length);
+        for (int e = 0; e < usable.size(); e++) {
+            IndoorEdge edge = usable.get(e);
+            int forward = cursor[from[e]]++;
+            sources[forward] = from[e];
+            addArc(forward, to[e], edge, targets, distances, costs, accessible, restricted, emergency);
+            if (Boolean.TRUE.equals(edge.getIsBidirectional())) {
+                int reverse = cursor[to[e]]++;
+                sources[reverse] = to[e];
+                addArc(reverse, from[e], edge, targets, distances, costs, accessible, restricted, emergency);
+                arcsByEdge.put(edge.getId(), new int[]{forward, reverse});
+            } else {
+                arcsByEdge.put(edge.getId(), new int[]{forward});
+            }
+        }
+
+        int[] inOffsets = new int[nodes.length + 1];
+        for (int arc = 0; arc < arcCount; arc++) {
+            inOffsets[targets[arc] + 1]++;
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        int[] inArcs = new int[arcCount];
+        int[] inCursor = Arrays.copyOf(inOffsets, nodes.length);
+        for (int arc = 0; arc < arcCount; arc++) {
+            inArcs[inCursor[targets[arc]]++] = arc;
+        }
+
+        return new IndoorGraph(mapId, nodes, indexById, offsets, targets, sources, inOffsets, inArcs,
+            distances, costs, arcsByEdge, accessible, restricted, emergency, fitLocalFrame(nodes));
+    }
+
+    /**
+     * Copy of this graph with the access flags of one edge replaced, or this graph if the edge
+     * is not part of it.
+     */
+    public IndoorGraph withEdgeFlags(Long edgeId, boolean isAccessible, boolean isRestricted) {
+        int[] arcs = arcsByEdge.get(edgeId);
+        if (arcs == null) return this;
+        BitSet newAccessible = (BitSet) accessible.clone();
+        BitSet newRestricted = (BitSet) restricted.clone();
+        for (int arc : arcs) {
+            newAccessible.set(arc, isAccessible);
+            newRestricted.set(arc, isRestricted);
+        }
+        return new IndoorGraph(mapId, nodes, indexById, offsets, targets, sources, inOffsets, inArcs,
+            distances, costs, arcsByEdge, newAccessible, newRestricted, emergency, localFrame);
+    }
+
+    /**
+     * Arcs whose access flags differ from {@code previous}, or {@code null} if the two graphs do
+     * not share the same topology.
+     */
+    public BitSet changedArcs(IndoorGraph previous) {
+        if (previous.targets != targets) return null;
+        BitSet changed = (BitSet) accessible.clone();
+        changed.xor(previous.accessible);
+        BitSet restrictedChanges = (BitSet) restricted.clone();
+        restrictedChanges.xor(previous.restricted);
+        changed.or(restrictedChanges);
+        return changed;
+    }
+
+    /**
+     * Local coordinates of a geographic point in the map's frame, or {@code null} if fewer than
+     * three non-collinear nodes carry both geographic and local coordinates.
+     */
+    public double[] toLocal(double lon, double lat) {
+        if (localFrame == null) return null;
+        double e = (lon - localFrame[0]) * localFrame[2];
+        double n = (lat - localFrame[1]) * METERS_PER_DEGREE_LAT;
+        return new double[]{
+            localFrame[3] * e + localFrame[4] * n + localFrame[5],
+            localFrame[6] * e + localFrame[7] * n + localFrame[8]
+        };
+    }
+
+    /**
+     * Least-squares fit of local = a * east + b * north + c over the georeferenced nodes, with
+     * east and north in metres from their centroid to keep the normal equations well conditioned
+     */
+    private static double[] fitLocalFrame(IndoorNode[] nodes) {
+        int count = 0;
+        double lon0 = 0, lat0 = 0;
+        for (IndoorNode node : nodes) {
+            if (!georeferenced(node)) continue;
+            lon0 += node.getPosition().getX();
+            lat0 += node.getPosition().getY();
+            count++;
+        }
+        if (count < 3) return null;
+        lon0 /= count;
+        lat0 /= count;
+        double metersPerDegreeLon = METERS_PER_DEGREE_LON * Math.cos(Math.toRadians(lat0));
+
+        // Centred coordinates make the normal matrix block diagonal: the intercept is the mean
+        double see = 0, sen = 0, snn = 0, sx = 0, sy = 0, sex = 0, snx = 0, sey = 0, sny = 0;
+        for (IndoorNode node : nodes) {
+            if (!georeferenced(node)) continue;
+            double e = (node.getPosition().getX() - lon0) * metersPerDegreeLon;
+            double n = (node.getPosition().getY() - lat0) * METERS_PER_DEGREE_LAT;
+            double x = node.getLocalX();
+            double y = node.getLocalY();
+            see += e * e;
+            sen += e * n;
+            snn += n * n;
+            sx += x;
+            sy += y;
+            sex += e * x;
+            snx += n * x;
+            sey += e * y;
+            sny += n * y;
+        }
+        double det = see * snn - sen * sen;
+        // Collinear nodes leave the direction across their line undetermined
+        if (det <= 1e-9 * (see + snn) * (see + snn)) return null;
+        return new double[]{
+            lon0, lat0, metersPerDegreeLon,
+            (sex * snn - snx * sen) / det, (snx * see - sex * sen) / det, sx / count,
+            (sey * snn - sny * sen) / det, (sny * see - sey * sen) / det, sy / count
+        };
+    }
+
+    private static boolean georeferenced(IndoorNode node) {
+        return node.getPosition() != null && node.getLocalX() != null && node.getLocalY() != null;
+    }
+
+    private static void addArc(int arc, int target, IndoorEdge edge, int[] targets, double[] distances,
+                               double[] costs, BitSet accessible, BitSet restricted, BitSet emergency) {
+        double distance = edge.getDistance() != null ? edge.getDistance() : 0.0;
+        double weight = edge.getWeight() != null ? edge.getWeight() : 1.0;
+        targets[arc] = target;
+        distances[arc] = distance;
+        costs[arc] = distance * weight;
+        accessible.set(arc, !Boolean.FALSE.equals(edge.getIsAccessible()));
+        restricted.set(arc, Boolean.TRUE.equals(edge.getIsRestricted()));
+        emergency.set(arc, Boolean.TRUE.equals(edge.getIsEmergencyRoute()));
+    }
+
+    /**
+     * Dijkstra over traversable arcs, or {@code null} if {@code to} cannot be reached.
+     */
+    public Path shortestPath(int from, int to, IndoorRouteType routeType) {
+        int n = nodes.length;
+        double[] best = new double[n];
+        int[] previousArc = new int[n];
+        int[] previousNode = new int[n];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        best[from] = 0;
+        previousNode[from] = -1;
+
+        IntDoubleMinHeap heap = new IntDoubleMinHeap(Math.max(16, n));
+        heap.add(from, 0);
+        while (!heap.isEmpty()) {
+            double key = heap.peekKey();
+            int current = heap.poll();
+            if (key > best[current]) continue;
+            if (current == to) break;
+
+            for (int arc = offsets[current]; arc < offsets[current + 1]; arc++) {
+                if (!isTraversable(arc, routeType)) continue;
+                int next = targets[arc];
+                double candidate = key + costs[arc];
+                if (candidate < best[next]) {
+                    best[next] = candidate;
+                    previousArc[next] = arc;
+                    previousNode[next] = current;
+                    heap.add(next, candidate);
+                }
+            }
+        }
+
+        if (Double.isInfinite(best[to])) return null;
+
+        int length = 1;
+        for (int node = to; node != from; node = previousNode[node]) length++;
+        int[] path = new int[length];
+        double distance = 0;
+        for (int node = to, i = length - 1; i >= 0; i--) {
+            path[i] = node;
+            if (node != from) {
+                distance += distances[previousArc[node]];
+                node = previousNode[node];
+            }
+        }
+        return new Path(path, distance, best[to]);
+    }
+
+    /**
+     * Whether an arc may be used by a route of the given type.
+     */
+    public boolean isTraversable(int arc, IndoorRouteType routeType) {
+        if (!accessible.get(arc) || restricted.get(arc)) return false;
+        return routeType != IndoorRouteType.EMERGENCY_EVACUATION || emergency.get(arc);
+    }
+
+    public int outStart(int node) { return offsets[node]; }
+
+    public int outEnd(int node) { return offsets[node + 1]; }
+
+    public int inStart(int node) { return inOffsets[node]; }
+
+    public int inEnd(int node) { return inOffsets[node + 1]; }
+
+    /** Arc id at position {@code k} of the incoming-arc index. */
+    public int inArc(int k) { return inArcs[k]; }
+
+    public int arcSource(int arc) { return sources[arc]; }
+
+    public int arcTarget(int arc) { return targets[arc]; }
+
+    public double arcDistance(int arc) { return distances[arc]; }
+
+    public double arcCost(int arc) { return costs[arc]; }
+
+    public OptionalInt indexOf(Long nodeId) {
+        Integer index = indexById.get(nodeId);
+        return index == null ? OptionalInt.empty() : OptionalInt.of(index);
+    }
+
+    public IndoorNode node(int index) {
+        return nodes[index];
+    }
+
+    public List<IndoorNode> nodes(int[] indices) {
+        List<IndoorNode> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(nodes[index]);
+        }
+        return result;
+    }
+
+    public Long mapId() { return mapId; }
+
+    public int nodeCount() { return nodes.length; }
+
+    public int arcCount() { return targets.length; }
+
+    /**
+     * Node indices from source to target with the summed edge distance (metres) and routing cost.
+     */
+    public record Path(int[] nodes, double distance, double cost) {}
+}
@@ -0,0 +1,81 @@
+package com.relief.service.indoor;
+
+import com.relief.repository.indoor.IndoorEdgeRepository;
+import com.relief.repository.indoor.IndoorNodeRepository;
+import com.relief.util.TransactionHooks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-map cache of {@link IndoorGraph}s. A graph is loaded with two queries on first use and
+ * dropped when nodes or edges of its map change; invalidation waits for the surrounding
+ * transaction to commit so a concurrent reload cannot cache the pre-commit state.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndoorGraphCache {
+
+    private final IndoorNodeRepository nodeRepository;
+    private final IndoorEdgeRepository edgeRepository;
+
+    private final Map<Long, IndoorGraph> graphs = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Get the graph for a map, loading it if it is not cached
+     */
+    @Transactional(readOnly = true)
+    public IndoorGraph get(Long mapId) {
+        IndoorGraph cached = graphs.get(mapId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = version(mapId).get();
+        long start = System.nanoTime();
+        IndoorGraph loaded = IndoorGraph.build(mapId,
+            nodeRepository.findByIndoorMapId(mapId), edgeRepository.findByIndoorMapId(mapId));
+        log.debug("Loaded indoor graph for map {} ({} nodes, {} arcs) in {} ms", mapId,
+            loaded.nodeCount(), loaded.arcCount(), (System.nanoTime() - start) / 1_000_000);
+
+        // Only cache if no invalidation happened while loading
+        IndoorGraph stored = graphs.compute(mapId, (id, existing) -> {
+            if (existing != null) return existing;
+            return version(mapId).get() == version ? loaded : null;
+        });
+        return stored != null ? stored : loaded;
+    }
+
+    /**
+     * Drop the cached graph of a map once the current transaction commits
+     */
+    public void invalidate(Long mapId) {
+        TransactionHooks.afterCommit(() -> {
+            version(mapId).incrementAndGet();
+            graphs.remove(mapId);
+        });
+    }
+
+    /**
+     * Replace the access flags of one edge in the cached graph once the current transaction
+     * commits. The topology is kept, so routing structures derived from it can be updated
+     * incrementally instead of rebuilt.
+     */
+    public void updateEdgeFlags(Long mapId, Long edgeId, boolean isAccessible, boolean isRestricted) {
+        TransactionHooks.afterCommit(() -> {
+            version(mapId).incrementAndGet();
+            graphs.computeIfPresent(mapId, (id, graph) -> graph.withEdgeFlags(edgeId, isAccessible, isRestricted));
+        });
+    }
+
+    private AtomicLong version(Long mapId) {
+        return versions.computeIfAbsent(mapId, id -> new AtomicLong());
+    }
+}
@@ -29,6 +29,8 @@ public class IndoorNavigationService {
     private final IndoorEdgeRepository edgeRepository;
     private final IndoorPositionRepository positionRepository;
     private final IndoorRouteRepository routeRepository;
+    private final IndoorGraphCache graphCache;
+    private final IndoorPositionIngestService positionIngestService;
     private final GeometryFactory geometryFactory;
     
     /**
@@ -247,7 +249,9 @@ public class IndoorNavigationService {
             .metadata(request.metadata())
             .build();
             
-        return nodeRepository.save(node);
+        IndoorNode saved = nodeRepository.save(node);
+        graphCache.invalidate(indoorMap.getId());
+        return saved;
     }
     
     /**
@@ -296,7 +300,30 @@ public class IndoorNavigationService {
             .metadata(request.metadata())
             .build();
             
-        return edgeRepository.save(edge);
+        IndoorEdge saved = edgeRepository.save(edge);
+        graphCache.invalidate(indoorMap.getId());
+        return saved;
+    }
+    
+    /**
+     * Open or close an edge, e.g. a locked door or a blocked corridor. Routing structures of the
+     * map are patched in place rather than rebuilt.
+     */
+    @Transactional
+    public IndoorEdge updateEdgeAccess(Long edgeId, Boolean isAccessible, Boolean isRestricted, String restrictionType) {
+        log.info("Updating access of indoor edge {}: accessible={}, restricted={}", edgeId, isAccessible, isRestricted);
+        
+        IndoorEdge edge = edgeRepository.findById(edgeId)
+            .orElseThrow(() -> new IllegalArgumentException("Indoor edge not found"));
+        
+        if (isAccessible != null) edge.setIsAccessible(isAccessible);
+        if (isRestricted != null) edge.setIsRestricted(isRestricted);
+        if (restrictionType != null) edge.setRestrictionType(restrictionType);
+        
+        IndoorEdge saved = edgeRepository.save(edge);
+        graphCache.updateEdgeFlags(edge.getIndoorMap().getId(), edgeId,
+            !Boolean.FALSE.equals(saved.getIsAccessible()), Boolean.TRUE.equals(saved.getIsRestricted()));
+        return saved;
     }
     
     /**
@@ -329,7 +356,16 @@ public class IndoorNavigationService {
             .metadata(request.metadata())
             .build();
             
-        return positionRepository.save(indoorPosition);
+        IndoorPosition saved = positionRepository.save(indoorPosition);
+        positionIngestService.observe(new IndoorPositionIngestService.FusedPosition(
+            indoorMap.getId(), saved.getEntityType(), saved.getEntityId(), saved.getEntityName(),
+            request.longitude(), request.latitude(),
+            saved.getLocalX() != null ? saved.getLocalX() : 0.0, saved.getLocalY() != null ? saved.getLocalY() : 0.0,
+            saved.getFloorLevel() != null ? saved.getFloorLevel() : 0,
+            saved.getHeading() != null ? saved.getHeading() : 0.0, saved.getSpeed() != null ? saved.getSpeed() : 0.0,
+            saved.getAccuracy() != null ? saved.getAccuracy() : 0.0, null,
+            saved.getPositioningMethod(), saved.getTimestamp()));
+        return saved;
     }
     
     /**
@@ -353,15 +389,21 @@ public class IndoorNavigationService {
         IndoorNode toNode = nodeRepository.findById(toNodeId)
             .orElseThrow(() -> new IllegalArgumentException("To node not found"));
         
-        // Use Dijkstra's algorithm for pathfinding
-        List<IndoorNode> path = findShortestPath(fromNode, toNode, routeType);
+        // Run Dijkstra on the cached in-memory graph of the map
+        IndoorGraph graph = graphCache.get(mapId);
+        int fromIndex = graph.indexOf(fromNodeId)
+            .orElseThrow(() -> new IllegalArgumentException("From node not found in map"));
+        int toIndex = graph.indexOf(toNodeId)
+            .orElseThrow(() -> new IllegalArgumentException("To node not found in map"));
         
-        if (path.isEmpty()) {
+        IndoorGraph.Path graphPath = graph.shortestPath(fromIndex, toIndex, routeType);
+        if (graphPath == null) {
             throw new IllegalArgumentException("No route found between nodes");
         }
+        List<IndoorNode> path = graph.nodes(graphPath.nodes());
         
         // Calculate route metrics
-        double totalDistance = calculatePathDistance(path);
+        double totalDistance = graphPath.distance();
         int estimatedTime = calculateEstimatedTime(path, totalDistance);
         DifficultyLevel difficultyLevel = calculateDifficultyLevel(path);
         
@@ -420,10 +462,34 @@ public class IndoorNavigationService {
      * Get latest position for an entity
      */
     public Optional<IndoorPosition> getLatestPosition(String entityType, Long entityId) {
+        // Served from memory while the entity is tracked, from history otherwise
+        Optional<IndoorPositionIngestService.FusedPosition> live = positionIngestService.getLatest(entityType, entityId);
+        if (live.isPresent()) {
+            return live.map(this::toIndoorPosition);
+        }
         List<IndoorPosition> positions = positionRepository.findLatestPositionByEntity(entityType, entityId);
         return positions.isEmpty() ? Optional.empty() : Optional.of(positions.get(0));
     }
     
+    private IndoorPosition toIndoorPosition(IndoorPositionIngestService.FusedPosition fused) {
+        return IndoorPosition.builder()
+            .indoorMap(mapRepository.getReferenceById(fused.indoorMapId()))
+            .entityType(fused.entityType())
+            .entityId(fused.entityId())
+            .entityName(fused.entityName())
+            .position(geometryFactory.createPoint(new Coordinate(fused.longitude(), fused.latitude())))
+            .localX(fused.localX())
+            .localY(fused.localY())
+            .floorLevel(fused.floorLevel())
+            .heading(fused.heading())
+            .speed(fused.speed())
+            .accuracy(fused.accuracy())
+            .positioningMethod(fused.positioningMethod())
+            .timestamp(fused.timestamp())
+            .isValid(true)
+            .build();
+    }
+    
     /**
      * Get indoor routes for a map
      */
@@ -452,99 +518,6 @@ public class IndoorNavigationService {
         return routeRepository.findByIndoorMapIdAndIsEmergencyRouteTrue(mapId);
     }
     
-    /**
-     * Find shortest path using Dijkstra's algorithm
-     */
-    private List<IndoorNode> findShortestPath(IndoorNode fromNode, IndoorNode toNode, IndoorRouteType routeType) {
-        Map<Long, Double> distances = new HashMap<>();
-        Map<Long, IndoorNode> previous = new HashMap<>();
-        PriorityQueue<IndoorNode> queue = new PriorityQueue<>(
-            Comparator.comparingDouble(node -> distances.getOrDefault(node.getId(), Double.MAX_VALUE))
-        );
-        
-        distances.put(fromNode.getId(), 0.0);
-        queue.offer(fromNode);
-        
-        while (!queue.isEmpty()) {
-            IndoorNode current = queue.poll();
-            
-            if (current.getId().equals(toNode.getId())) {
-                break;
-            }
-            
-            List<IndoorEdge> edges = edgeRepository.findByFromNodeId(current.getId());
-            for (IndoorEdge edge : edges) {
-                if (!isEdgeAccessible(edge, routeType)) {
-                    continue;
-                }
-                
-                IndoorNode neighbor = edge.getToNode();
-                double newDistance = distances.get(current.getId()) + edge.getDistance() * edge.getWeight();
-                
-                if (newDistance < distances.getOrDefault(neighbor.getId(), Double.MAX_VALUE)) {
-                    distances.put(neighbor.getId(), newDistance);
-                    previous.put(neighbor.getId(), current);
-                    queue.offer(neighbor);
-                }
-            }
-        }
-        
-        // Reconstruct path
-        List<IndoorNode> path = new ArrayList<>();
-        IndoorNode current = toNode;
-        while (current != null) {
-            path.add(0, current);
-            current = previous.get(current.getId());
-        }
-        
-        return path;
-    }
-    
-    /**
-     * Check if edge is accessible for route type
-     */
-    private boolean isEdgeAccessible(IndoorEdge edge, IndoorRouteType routeType) {
-        if (!edge.getIsAccessible()) {
-            return false;
-        }
-        
-        if (edge.getIsRestricted()) {
-            return false;
-        }
-        
-        if (routeType == IndoorRouteType.ACCESSIBLE_PATH && !edge.getIsAccessible()) {
-            return false;
-        }
-        
-        if (routeType == IndoorRouteType.EMERGENCY_EVACUATION && !edge.getIsEmergencyRoute()) {
-            return false;
-        }
-        
-        return true;
-    }
-    
-    /**
-     * Calculate total distance of path
-     */
-    private double calculatePathDistance(List<IndoorNode> path) {
-        double totalDistance = 0.0;
-        for (int i = 0; i < path.size() - 1; i++) {
-            IndoorNode from = path.get(i);
-            IndoorNode to = path.get(i + 1);
-            
-            List<IndoorEdge> edges = edgeRepository.findByFromNodeIdAndToNodeId(from.getId(), to.getId());
-            if (!edges.isEmpty()) {
-                totalDistance += edges.get(0).getDistance();
-            } else {
-                // Calculate Euclidean distance if no edge found
-                double dx = to.getLocalX() - from.getLocalX();
-                double dy = to.getLocalY() - from.getLocalY();
-                totalDistance += Math.sqrt(dx * dx + dy * dy);
-            }
-        }
-        return totalDistance;
-    }
-    
     /**
      * Calculate estimated time for path
      */
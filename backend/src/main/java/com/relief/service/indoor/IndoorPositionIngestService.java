@@ -0,0 +1,295 @@
+package com.relief.service.indoor;
+
+import com.relief.domain.indoor.PositioningMethod;
+import com.relief.repository.indoor.IndoorMapRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * High-rate ingest of indoor positioning readings.
+ *
+ * Readings arrive in batches from gateways and badges, are fused per entity by an
+ * {@link IndoorTrackFilter} snapped to the map's cached {@link IndoorGraph}, and the fused
+ * estimate becomes the entity's latest position in memory. History rows are queued and written
+ * with JDBC batch inserts on a short schedule; {@code indoor_positions} uses identity keys, which
+ * rule out Hibernate insert batching. When the queue is full, history is dropped rather than
+ * slowing down ingest, while the latest positions stay current. Tracks and latest positions of
+ * entities that have sent nothing for the idle expiry are dropped, so departed badges do not
+ * accumulate.
+ */
+@Service
+@Slf4j
+public class IndoorPositionIngestService {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO indoor_positions (indoor_map_id, entity_type, entity_id, entity_name, position,
+            local_x, local_y, floor_level, heading, speed, accuracy, positioning_method, timestamp,
+            is_valid, metadata, created_at)
+        VALUES (?, ?, ?, ?, ST_SetSRID(ST_MakePoint(?, ?), 4326), ?, ?, ?, ?, ?, ?, ?, ?, true, CAST(? AS jsonb), ?)
+        """;
+
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    private final IndoorGraphCache graphCache;
+    private final IndoorMapRepository mapRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<FusedPosition> pendingHistory;
+    private final long idleExpiryMillis;
+
+    private final Map<EntityKey, IndoorTrackFilter> tracks = new ConcurrentHashMap<>();
+    private final Map<EntityKey, FusedPosition> latest = new ConcurrentHashMap<>();
+    /** Wall-clock time of each entity's last reading, independent of the devices' clocks */
+    private final Map<EntityKey, Long> lastSeen = new ConcurrentHashMap<>();
+    private final AtomicLong droppedHistory = new AtomicLong();
+
+    public IndoorPositionIngestService(IndoorGraphCache graphCache, IndoorMapRepository mapRepository,
+                                       JdbcTemplate jdbcTemplate,
+                                       @Value("${indoor.positions.history-queue-capacity:200000}") int queueCapacity,
+                                       @Value("${indoor.positions.idle-expiry-minutes:30}") long idleExpiryMinutes) {
+        this.graphCache = graphCache;
+        this.mapRepository = mapRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pendingHistory = new ArrayBlockingQueue<>(queueCapacity);
+        this.idleExpiryMillis = idleExpiryMinutes * 60_000;
+    }
+
+    /**
+     * Fuse a batch of readings. Readings are grouped by entity and applied in timestamp order.
+     *
+     * @throws IllegalArgumentException if a reading lacks its keys or names an unknown map; the
+     *                                  batch is then rejected before any track changes
+     */
+    public IngestResult ingest(List<PositionReading> readings) {
+        Map<EntityKey, List<PositionReading>> byEntity = new HashMap<>();
+        Map<Long, IndoorGraph> graphs = new HashMap<>();
+        for (PositionReading reading : readings) {
+            if (reading.indoorMapId() == null || reading.entityType() == null || reading.entityId() == null) {
+                throw new IllegalArgumentException("Readings require indoor map, entity type and entity ID");
+            }
+            byEntity.computeIfAbsent(new EntityKey(reading.entityType(), reading.entityId()), k -> new ArrayList<>())
+                .add(reading);
+            graphs.put(reading.indoorMapId(), null);
+        }
+        // Load graphs up front: a cache miss queries the database, which must not happen while
+        // holding a track's bin lock inside compute
+        for (Map.Entry<Long, IndoorGraph> entry : graphs.entrySet()) {
+            IndoorGraph graph = graphCache.get(entry.getKey());
+            // Nodes reference their map, so only an empty graph can belong to a missing map
+            if (graph.nodeCount() == 0 && !mapRepository.existsById(entry.getKey())) {
+                throw new IllegalArgumentException("Indoor map not found: " + entry.getKey());
+            }
+            entry.setValue(graph);
+        }
+
+        long now = System.currentTimeMillis();
+        int accepted = 0;
+        int rejected = 0;
+        for (Map.Entry<EntityKey, List<PositionReading>> entry : byEntity.entrySet()) {
+            List<PositionReading> entityReadings = entry.getValue();
+            entityReadings.sort(Comparator.comparing(PositionReading::timestamp,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+            int[] counts = new int[2];
+            tracks.compute(entry.getKey(), (key, track) -> {
+                for (PositionReading reading : entityReadings) {
+                    IndoorGraph graph = graphs.get(reading.indoorMapId());
+                    if (track == null || !track.mapId().equals(reading.indoorMapId())) {
+                        track = new IndoorTrackFilter(reading.indoorMapId(), reading.longitude(), reading.latitude());
+                    }
+                    if (apply(key, track, reading, graph)) counts[0]++; else counts[1]++;
+                }
+                return track;
+            });
+            lastSeen.put(entry.getKey(), now);
+            accepted += counts[0];
+            rejected += counts[1];
+        }
+        return new IngestResult(accepted, rejected);
+    }
+
+    private boolean apply(EntityKey key, IndoorTrackFilter track, PositionReading reading, IndoorGraph graph) {
+        LocalDateTime timestamp = reading.timestamp() != null ? reading.timestamp() : LocalDateTime.now();
+        double accuracy = reading.accuracy() != null && reading.accuracy() > 0
+            ? reading.accuracy() : defaultAccuracy(reading.positioningMethod());
+        boolean accepted = track.update(reading.longitude(), reading.latitude(), reading.floorLevel(), accuracy,
+            reading.speed(), reading.heading(), reading.positioningMethod(),
+            timestamp.toInstant(ZoneOffset.UTC).toEpochMilli(), graph);
+        if (!accepted) return false;
+
+        int snappedNode = track.snappedNode();
+        double[] local = track.mapLocalCoordinates(graph);
+        FusedPosition fused = new FusedPosition(
+            reading.indoorMapId(), key.entityType(), key.entityId(), reading.entityName(),
+            track.longitude(), track.latitude(), local[0], local[1],
+            track.floorLevel() != null ? track.floorLevel() : 0,
+            track.heading(), track.speed(), track.accuracy(),
+            snappedNode >= 0 ? graph.node(snappedNode).getId() : null,
+            reading.positioningMethod() != null ? reading.positioningMethod() : PositioningMethod.CUSTOM,
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(track.timestampMillis()), ZoneOffset.UTC));
+        latest.put(key, fused);
+        if (!pendingHistory.offer(fused)) {
+            droppedHistory.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Record an externally computed position as the latest for its entity if it is newer
+     */
+    public void observe(FusedPosition position) {
+        EntityKey key = new EntityKey(position.entityType(), position.entityId());
+        latest.merge(key, position,
+            (current, candidate) -> candidate.timestamp().isBefore(current.timestamp()) ? current : candidate);
+        lastSeen.put(key, System.currentTimeMillis());
+    }
+
+    public Optional<FusedPosition> getLatest(String entityType, Long entityId) {
+        return Optional.ofNullable(latest.get(new EntityKey(entityType, entityId)));
+    }
+
+    public List<FusedPosition> getLatestByMap(Long mapId) {
+        return latest.values().stream()
+            .filter(position -> position.indoorMapId().equals(mapId))
+            .toList();
+    }
+
+    /**
+     * Drop the track and latest position of every entity idle for longer than the expiry
+     */
+    @Scheduled(fixedDelayString = "${indoor.positions.expiry-interval-ms:60000}")
+    public void expireIdle() {
+        long cutoff = System.currentTimeMillis() - idleExpiryMillis;
+        int expired = 0;
+        for (Map.Entry<EntityKey, Long> entry : lastSeen.entrySet()) {
+            if (entry.getValue() >= cutoff) continue;
+            // A reading arriving meanwhile refreshes the entry and keeps the entity
+            if (!lastSeen.remove(entry.getKey(), entry.getValue())) continue;
+            tracks.remove(entry.getKey());
+            latest.remove(entry.getKey());
+            expired++;
+        }
+        if (expired > 0) {
+            log.debug("Expired {} idle indoor tracks", expired);
+        }
+    }
+
+    /**
+     * Write queued history rows in JDBC batches
+     */
+    @Scheduled(fixedDelayString = "${indoor.positions.flush-interval-ms:1000}")
+    public void flushHistory() {
+        long dropped = droppedHistory.getAndSet(0);
+        if (dropped > 0) {
+            log.warn("Dropped {} indoor position history rows: write queue full", dropped);
+        }
+
+        List<FusedPosition> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        while (pendingHistory.drainTo(batch, WRITE_BATCH_SIZE) > 0) {
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException e) {
+                log.error("Failed to write {} indoor position history rows", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<FusedPosition> batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, position) -> {
+            ps.setLong(1, position.indoorMapId());
+            ps.setString(2, position.entityType());
+            ps.setLong(3, position.entityId());
+            ps.setString(4, position.entityName());
+            ps.setDouble(5, position.longitude());
+            ps.setDouble(6, position.latitude());
+            ps.setDouble(7, position.localX());
+            ps.setDouble(8, position.localY());
+            ps.setInt(9, position.floorLevel());
+            ps.setDouble(10, position.heading());
+            ps.setDouble(11, position.speed());
+            ps.setDouble(12, position.accuracy());
+            ps.setString(13, position.positioningMethod().name());
+            ps.setTimestamp(14, Timestamp.valueOf(position.timestamp()));
+            if (position.snappedNodeId() != null) {
+                ps.setString(15, "{\"snappedNodeId\":" + position.snappedNodeId() + "}");
+            } else {
+                ps.setNull(15, Types.VARCHAR);
+            }
+            ps.setTimestamp(16, now);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushHistory();
+    }
+
+    private static double defaultAccuracy(PositioningMethod method) {
+        if (method == null) return 5.0;
+        return switch (method) {
+            case UWB -> 0.3;
+            case QR_CODE, NFC, MANUAL_INPUT -> 1.0;
+            case BLUETOOTH_BEACONS, VISUAL_LANDMARKS, INFRARED -> 2.0;
+            case WIFI_FINGERPRINTING, MAGNETIC_FIELD, PEDESTRIAN_DEAD_RECKONING, INERTIAL_NAVIGATION -> 4.0;
+            case CELLULAR -> 30.0;
+            case CUSTOM -> 5.0;
+        };
+    }
+
+    private record EntityKey(String entityType, Long entityId) {}
+
+    public record PositionReading(
+        Long indoorMapId,
+        String entityType,
+        Long entityId,
+        String entityName,
+        double longitude,
+        double latitude,
+        Integer floorLevel,
+        Double accuracy,
+        Double heading,
+        Double speed,
+        PositioningMethod positioningMethod,
+        LocalDateTime timestamp
+    ) {}
+
+    public record FusedPosition(
+        Long indoorMapId,
+        String entityType,
+        Long entityId,
+        String entityName,
+        double longitude,
+        double latitude,
+        double localX,
+        double localY,
+        int floorLevel,
+        double heading,
+        double speed,
+        double accuracy,
+        Long snappedNodeId,
+        PositioningMethod positioningMethod,
+        LocalDateTime timestamp
+    ) {}
+
+    public record IngestResult(int accepted, int rejected) {}
+}
@@ -0,0 +1,318 @@
+package com.relief.service.indoor;
+
+import com.relief.domain.indoor.IndoorNode;
+import com.relief.domain.indoor.PositioningMethod;
+
+/**
+ * Position filter for one tracked entity: a constant-velocity Kalman filter in a local metric
+ * frame whose estimate is snapped onto the nearest edge of the indoor graph.
+ *
+ * Both axes share one 2x2 (position, velocity) covariance because all measurement noise is
+ * isotropic. Absolute fixes (beacons, Wi-Fi, UWB, ...) update position; dead-reckoning readings
+ * carrying speed and heading additionally update velocity. Fixes further than five standard
+ * deviations from the prediction are rejected, and the track is restarted after repeated
+ * rejections or a floor change. Snapping searches the edges around the previously snapped node
+ * first and only scans the whole floor when the entity has moved away from it.
+ *
+ * The metric frame is centred on the track's first fix; {@link #mapLocalCoordinates} converts the
+ * estimate into the map's own local frame for storage.
+ *
+ * Instances are not thread-safe; callers serialise updates per entity.
+ */
+final class IndoorTrackFilter {
+
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+    private static final double METERS_PER_DEGREE_LON = 111_320.0;
+
+    /** Process noise: acceleration spectral density for walking people, m^2/s^3. */
+    private static final double PROCESS_NOISE = 0.5;
+    private static final double GATE_SIGMA_SQUARED = 25.0;
+    private static final int MAX_CONSECUTIVE_REJECTIONS = 3;
+    private static final double SNAP_TOLERANCE_METERS = 5.0;
+    private static final double SPEED_VARIANCE = 0.25;
+
+    private final Long mapId;
+    private final double originLon;
+    private final double originLat;
+    private final double metersPerDegreeLon;
+
+    private Integer floorLevel;
+    private long lastTimestampMillis;
+    private double x, y, vx, vy;
+    private double pPos, pCross, pVel;
+    private int rejections;
+    private int snappedNode = -1;
+    private int snappedArc = -1;
+    private double snappedFraction;
+
+    IndoorTrackFilter(Long mapId, double originLon, double originLat) {
+        this.mapId = mapId;
+        this.originLon = originLon;
+        this.originLat = originLat;
+        this.metersPerDegreeLon = METERS_PER_DEGREE_LON * Math.cos(Math.toRadians(originLat));
+        this.lastTimestampMillis = Long.MIN_VALUE;
+    }
+
+    /**
+     * Fuse one reading. Returns {@code false} if the reading was rejected as an outlier or is
+     * older than the current estimate.
+     */
+    boolean update(double lon, double lat, Integer floor, double accuracy, Double speed, Double heading,
+                   PositioningMethod method, long timestampMillis, IndoorGraph graph) {
+        double mx = (lon - originLon) * metersPerDegreeLon;
+        double my = (lat - originLat) * METERS_PER_DEGREE_LAT;
+        double r = accuracy * accuracy;
+
+        if (lastTimestampMillis == Long.MIN_VALUE || !sameFloor(floor)) {
+            reset(mx, my, r, floor, timestampMillis);
+        } else {
+            if (timestampMillis < lastTimestampMillis) return false;
+            predict((timestampMillis - lastTimestampMillis) / 1000.0);
+            lastTimestampMillis = timestampMillis;
+
+            double innovationX = mx - x;
+            double innovationY = my - y;
+            double s = pPos + r;
+            if ((innovationX * innovationX + innovationY * innovationY) / s > GATE_SIGMA_SQUARED) {
+                if (++rejections < MAX_CONSECUTIVE_REJECTIONS) return false;
+                reset(mx, my, r, floor, timestampMillis);
+            } else {
+                rejections = 0;
+                correctPosition(innovationX, innovationY, s);
+            }
+        }
+
+        if (speed != null && heading != null && isDeadReckoning(method)) {
+            double radians = Math.toRadians(heading);
+            correctVelocity(speed * Math.sin(radians) - vx, speed * Math.cos(radians) - vy);
+        }
+        if (graph != null) snap(graph);
+        return true;
+    }
+
+    private void reset(double mx, double my, double r, Integer floor, long timestampMillis) {
+        x = mx;
+        y = my;
+        vx = 0;
+        vy = 0;
+        pPos = r;
+        pCross = 0;
+        pVel = 1.0;
+        floorLevel = floor;
+        lastTimestampMillis = timestampMillis;
+        rejections = 0;
+        snappedNode = -1;
+        snappedArc = -1;
+    }
+
+    private void predict(double dt) {
+        if (dt <= 0) return;
+        x += vx * dt;
+        y += vy * dt;
+        double q = PROCESS_NOISE;
+        double newPos = pPos + 2 * dt * pCross + dt * dt * pVel + q * dt * dt * dt / 3;
+        double newCross = pCross + dt * pVel + q * dt * dt / 2;
+        pVel += q * dt;
+        pPos = newPos;
+        pCross = newCross;
+    }
+
+    private void correctPosition(double innovationX, double innovationY, double s) {
+        double kPos = pPos / s;
+        double kVel = pCross / s;
+        x += kPos * innovationX;
+        y += kPos * innovationY;
+        vx += kVel * innovationX;
+        vy += kVel * innovationY;
+        double newPos = (1 - kPos) * pPos;
+        double newCross = (1 - kPos) * pCross;
+        pVel -= kVel * pCross;
+        pPos = newPos;
+        pCross = newCross;
+    }
+
+    private void correctVelocity(double innovationX, double innovationY) {
+        double s = pVel + SPEED_VARIANCE;
+        double kPos = pCross / s;
+        double kVel = pVel / s;
+        x += kPos * innovationX;
+        y += kPos * innovationY;
+        vx += kVel * innovationX;
+        vy += kVel * innovationY;
+        double newPos = pPos - kPos * pCross;
+        double newCross = (1 - kVel) * pCross;
+        pVel = (1 - kVel) * pVel;
+        pPos = newPos;
+        pCross = newCross;
+    }
+
+    /**
+     * Project the estimate onto the nearest graph edge on the current floor
+     */
+    private void snap(IndoorGraph graph) {
+        if (snappedNode >= graph.nodeCount()) snappedNode = -1;
+        if (snappedNode >= 0) {
+            if (snapAround(graph, snappedNode)) return;
+            // Still near the last node but off every edge (e.g. inside a room): keep it as anchor
+            double dx = nodeX(graph, snappedNode) - x;
+            double dy = nodeY(graph, snappedNode) - y;
+            if (dx * dx + dy * dy < 4 * SNAP_TOLERANCE_METERS * SNAP_TOLERANCE_METERS) {
+                snappedArc = -1;
+                return;
+            }
+        }
+
+        int nearest = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            if (!onFloor(graph.node(node))) continue;
+            double dx = nodeX(graph, node) - x;
+            double dy = nodeY(graph, node) - y;
+            double d = dx * dx + dy * dy;
+            if (d < best) {
+                best = d;
+                nearest = node;
+            }
+        }
+        if (nearest >= 0 && !snapAround(graph, nearest)) {
+            snappedNode = nearest;
+            snappedArc = -1;
+        }
+    }
+
+    /**
+     * Snap to the best arc incident to {@code node} or its neighbours. Returns {@code false} if
+     * nothing lies within the snap tolerance.
+     */
+    private boolean snapAround(IndoorGraph graph, int node) {
+        double[] best = {SNAP_TOLERANCE_METERS * SNAP_TOLERANCE_METERS, 0, 0, 0};
+        int[] bestArc = {-1};
+        int[] bestNode = {-1};
+
+        consider(graph, node, best, bestArc, bestNode);
+        for (int arc = graph.outStart(node); arc < graph.outEnd(node); arc++) {
+            consider(graph, graph.arcTarget(arc), best, bestArc, bestNode);
+        }
+        for (int k = graph.inStart(node); k < graph.inEnd(node); k++) {
+            consider(graph, graph.arcSource(graph.inArc(k)), best, bestArc, bestNode);
+        }
+        if (bestNode[0] < 0) return false;
+
+        x = best[1];
+        y = best[2];
+        snappedNode = bestNode[0];
+        snappedArc = bestArc[0];
+        snappedFraction = best[3];
+        return true;
+    }
+
+    private void consider(IndoorGraph graph, int node, double[] best, int[] bestArc, int[] bestNode) {
+        if (!onFloor(graph.node(node))) return;
+        double ax = nodeX(graph, node);
+        double ay = nodeY(graph, node);
+        if (graph.outStart(node) == graph.outEnd(node)) {
+            double d = (ax - x) * (ax - x) + (ay - y) * (ay - y);
+            if (d < best[0]) {
+                best[0] = d;
+                best[1] = ax;
+                best[2] = ay;
+                best[3] = 0;
+                bestNode[0] = node;
+                bestArc[0] = -1;
+            }
+            return;
+        }
+        for (int arc = graph.outStart(node); arc < graph.outEnd(node); arc++) {
+            int target = graph.arcTarget(arc);
+            double bx = nodeX(graph, target);
+            double by = nodeY(graph, target);
+            double ex = bx - ax;
+            double ey = by - ay;
+            double length = ex * ex + ey * ey;
+            double t = length == 0 ? 0 : Math.max(0, Math.min(1, ((x - ax) * ex + (y - ay) * ey) / length));
+            double px = ax + t * ex;
+            double py = ay + t * ey;
+            double d = (px - x) * (px - x) + (py - y) * (py - y);
+            if (d < best[0]) {
+                best[0] = d;
+                best[1] = px;
+                best[2] = py;
+                best[3] = t;
+                bestNode[0] = t < 0.5 ? node : target;
+                bestArc[0] = arc;
+            }
+        }
+    }
+
+    private boolean sameFloor(Integer floor) {
+        return floor == null || floorLevel == null || floor.equals(floorLevel);
+    }
+
+    private boolean onFloor(IndoorNode node) {
+        return floorLevel == null || node.getFloorLevel() == null || floorLevel.equals(node.getFloorLevel());
+    }
+
+    private double nodeX(IndoorGraph graph, int node) {
+        return (graph.node(node).getPosition().getX() - originLon) * metersPerDegreeLon;
+    }
+
+    private double nodeY(IndoorGraph graph, int node) {
+        return (graph.node(node).getPosition().getY() - originLat) * METERS_PER_DEGREE_LAT;
+    }
+
+    private static boolean isDeadReckoning(PositioningMethod method) {
+        return method == PositioningMethod.PEDESTRIAN_DEAD_RECKONING || method == PositioningMethod.INERTIAL_NAVIGATION;
+    }
+
+    Long mapId() { return mapId; }
+
+    double longitude() { return originLon + x / metersPerDegreeLon; }
+
+    double latitude() { return originLat + y / METERS_PER_DEGREE_LAT; }
+
+    /**
+     * The estimate in the map's local frame, as stored on nodes: interpolated between the local
+     * coordinates of the arc's ends when snapped onto an arc, otherwise from the graph's fitted
+     * frame, falling back to the anchor node's coordinates and then to the map origin.
+     */
+    double[] mapLocalCoordinates(IndoorGraph graph) {
+        if (graph == null) return new double[]{0, 0};
+        if (snappedArc >= 0 && snappedArc < graph.arcCount()) {
+            IndoorNode from = graph.node(graph.arcSource(snappedArc));
+            IndoorNode to = graph.node(graph.arcTarget(snappedArc));
+            if (from.getLocalX() != null && from.getLocalY() != null && to.getLocalX() != null && to.getLocalY() != null) {
+                return new double[]{
+                    from.getLocalX() + snappedFraction * (to.getLocalX() - from.getLocalX()),
+                    from.getLocalY() + snappedFraction * (to.getLocalY() - from.getLocalY())
+                };
+            }
+        }
+        double[] local = graph.toLocal(longitude(), latitude());
+        if (local != null) return local;
+        if (snappedNode >= 0 && snappedNode < graph.nodeCount()) {
+            IndoorNode node = graph.node(snappedNode);
+            if (node.getLocalX() != null && node.getLocalY() != null) {
+                return new double[]{node.getLocalX(), node.getLocalY()};
+            }
+        }
+        return new double[]{0, 0};
+    }
+
+    Integer floorLevel() { return floorLevel; }
+
+    double speed() { return Math.hypot(vx, vy); }
+
+    /** Heading of the velocity in degrees clockwise from north. */
+    double heading() { return (Math.toDegrees(Math.atan2(vx, vy)) + 360) % 360; }
+
+    /** One standard deviation of the position estimate in metres. */
+    double accuracy() { return Math.sqrt(pPos); }
+
+    long timestampMillis() { return lastTimestampMillis; }
+
+    /** Graph node nearest to the estimate when it was last snapped, or -1. */
+    int snappedNode() { return snappedNode; }
+
+    /** Arc the estimate currently lies on, or -1 if it is not on an edge. */
+    int snappedArc() { return snappedArc; }
+}
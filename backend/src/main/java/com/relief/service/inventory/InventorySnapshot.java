@@ -0,0 +1,244 @@
+package com.relief.service.inventory;
+
+import com.relief.exception.BadRequestException;
+import com.relief.repository.InventoryStockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory read model of {@code inventory_stock}: one flat row per stock entry with its hub and
+ * item names, plus total, low-stock and out-of-stock counts per hub and overall.
+ *
+ * Loaded at startup, then kept current by {@link #markChanged}: stock writers mark the hub/item
+ * pairs they change, and the marked rows are re-read with one projection query after the
+ * transaction commits. Counts are adjusted as rows are replaced, so reading them is O(1). A
+ * periodic full reload picks up changes made outside the application.
+ *
+ * Reads and refreshes are ordered by a sequence number taken before each query, so a slower
+ * query never overwrites a row with data older than what is already there.
+ */
+@Component
+@Slf4j
+public class InventorySnapshot {
+
+    static final int MAX_PAGE_SIZE = 500;
+
+    private static final Comparator<StockRow> ROW_ORDER = Comparator
+        .comparing(StockRow::hubName, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(StockRow::itemName, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(StockRow::stockId);
+
+    private final InventoryStockRepository stockRepository;
+    private final int lowStockThreshold;
+
+    private final Map<UUID, Entry> rows = new ConcurrentHashMap<>();
+    private final Map<UUID, StockCounts> hubCounts = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile StockCounts totals = StockCounts.EMPTY;
+    private volatile boolean loaded;
+
+    public record StockRow(UUID stockId, UUID hubId, String hubName, UUID itemId, String itemCode, String itemName,
+                           String unit, int qtyAvailable, int qtyReserved, LocalDateTime updatedAt) {}
+
+    public record StockCounts(long total, long lowStock, long outOfStock) {
+        static final StockCounts EMPTY = new StockCounts(0, 0, 0);
+    }
+
+    private record Entry(StockRow row, long sequence) {}
+
+    public InventorySnapshot(InventoryStockRepository stockRepository,
+                             @Value("${inventory.low-stock-threshold:10}") int lowStockThreshold) {
+        this.stockRepository = stockRepository;
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${inventory.snapshot.resync-interval-ms:300000}",
+               initialDelayString = "${inventory.snapshot.resync-interval-ms:300000}")
+    public void reload() {
+        long readAt = sequence.incrementAndGet();
+        List<Object[]> result = stockRepository.findSnapshotRows();
+        Set<UUID> present = new HashSet<>(result.size() * 2);
+        synchronized (this) {
+            for (Object[] row : result) {
+                StockRow stockRow = toRow(row);
+                present.add(stockRow.stockId());
+                apply(stockRow, readAt);
+            }
+            for (Entry entry : new ArrayList<>(rows.values())) {
+                if (entry.sequence() < readAt && !present.contains(entry.row().stockId())) {
+                    rows.remove(entry.row().stockId());
+                    count(entry.row(), -1);
+                }
+            }
+            loaded = true;
+        }
+        log.info("Loaded inventory snapshot: {} stock rows, {} low stock, {} out of stock",
+            totals.total(), totals.lowStock(), totals.outOfStock());
+    }
+
+    /**
+     * Re-read the stock of this hub and item once the current transaction commits
+     */
+    public void markChanged(UUID hubId, UUID itemId) {
+        if (hubId == null || itemId == null) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(Set.of(List.of(hubId, itemId)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<List<UUID>> changed = (Set<List<UUID>>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<List<UUID>> transactionChanges = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, transactionChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(transactionChanges);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InventorySnapshot.this);
+                }
+            });
+            changed = transactionChanges;
+        }
+        changed.add(List.of(hubId, itemId));
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public StockCounts totals() {
+        return totals;
+    }
+
+    public StockCounts hubCounts(UUID hubId) {
+        return hubCounts.getOrDefault(hubId, StockCounts.EMPTY);
+    }
+
+    public Map<UUID, StockCounts> allHubCounts() {
+        return Map.copyOf(hubCounts);
+    }
+
+    /**
+     * All stock rows, in no particular order
+     */
+    public List<StockRow> rows() {
+        List<StockRow> all = new ArrayList<>(rows.size());
+        for (Entry entry : rows.values()) {
+            all.add(entry.row());
+        }
+        return all;
+    }
+
+    /**
+     * A page of stock rows ordered by hub and item name
+     *
+     * @param hubId    only this hub's rows, or all hubs if null
+     * @param itemId   only this item's rows, or all items if null
+     * @param lowStock only rows below the low-stock threshold
+     * @param page     zero-based page number
+     * @param size     rows per page, at most {@value #MAX_PAGE_SIZE}
+     */
+    public Page<StockRow> find(UUID hubId, UUID itemId, boolean lowStock, int page, int size) {
+        if (page < 0) {
+            throw new BadRequestException("Page must not be negative");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<StockRow> matches = new ArrayList<>();
+        for (Entry entry : rows.values()) {
+            StockRow row = entry.row();
+            if (hubId != null && !hubId.equals(row.hubId())) continue;
+            if (itemId != null && !itemId.equals(row.itemId())) continue;
+            if (lowStock && row.qtyAvailable() >= lowStockThreshold) continue;
+            matches.add(row);
+        }
+        matches.sort(ROW_ORDER);
+        PageRequest pageable = PageRequest.of(page, size);
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + size, matches.size());
+        return new PageImpl<>(matches.subList(from, to), pageable, matches.size());
+    }
+
+    private void refresh(Set<List<UUID>> changed) {
+        if (changed.isEmpty()) return;
+        Set<UUID> hubIds = new HashSet<>();
+        Set<UUID> itemIds = new HashSet<>();
+        for (List<UUID> key : changed) {
+            hubIds.add(key.get(0));
+            itemIds.add(key.get(1));
+        }
+        long readAt = sequence.incrementAndGet();
+        try {
+            List<Object[]> result = stockRepository.findSnapshotRows(hubIds, itemIds);
+            synchronized (this) {
+                for (Object[] row : result) {
+                    StockRow stockRow = toRow(row);
+                    // The query covers every hub/item combination; keep only the marked pairs
+                    if (changed.contains(List.of(stockRow.hubId(), stockRow.itemId()))) {
+                        apply(stockRow, readAt);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh {} inventory snapshot rows, next reload will catch up", changed.size(), e);
+        }
+    }
+
+    private void apply(StockRow row, long readAt) {
+        Entry current = rows.get(row.stockId());
+        if (current != null && current.sequence() > readAt) return;
+        rows.put(row.stockId(), new Entry(row, readAt));
+        if (current != null) count(current.row(), -1);
+        count(row, 1);
+    }
+
+    private void count(StockRow row, int sign) {
+        long low = row.qtyAvailable() < lowStockThreshold ? sign : 0;
+        long out = row.qtyAvailable() < 1 ? sign : 0;
+        totals = new StockCounts(totals.total() + sign, totals.lowStock() + low, totals.outOfStock() + out);
+        if (row.hubId() != null) {
+            hubCounts.merge(row.hubId(), new StockCounts(sign, low, out), (a, b) -> {
+                StockCounts sum = new StockCounts(a.total() + b.total(), a.lowStock() + b.lowStock(),
+                    a.outOfStock() + b.outOfStock());
+                return sum.total() == 0 ? null : sum;
+            });
+        }
+    }
+
+    private static StockRow toRow(Object[] row) {
+        return new StockRow(
+            (UUID) row[0], (UUID) row[1], (String) row[2], (UUID) row[3], (String) row[4], (String) row[5],
+            (String) row[6], row[7] != null ? (Integer) row[7] : 0, row[8] != null ? (Integer) row[8] : 0,
+            (LocalDateTime) row[9]);
+    }
+}
@@ -0,0 +1,392 @@
+package com.relief.service.inventory;
+
+import com.relief.entity.InventoryHub;
+import com.relief.entity.ItemCatalog;
+import com.relief.repository.InventoryHubRepository;
+import com.relief.repository.ItemCatalogRepository;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.repository.WardRepository;
+import com.relief.service.InventoryService;
+import com.relief.service.roadnetwork.RoadGraph;
+import com.relief.service.roadnetwork.RoadNetworkService;
+import com.relief.service.roadnetwork.RoadNetworkService.RoadPoint;
+import com.relief.util.MinCostFlow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plans stock transfers between hubs so that each hub holds the open demand of the wards it
+ * serves.
+ *
+ * Open needs requests are counted per ward and need type and turned into item demand through
+ * {@link #DEMAND_ITEMS}. Each ward is served by the hub with the lowest travel time to its
+ * centroid (road network when loaded, straight-line distance otherwise). A hub's balance for an
+ * item is its available stock minus the demand of its wards; surpluses are moved to deficits by a
+ * min-cost flow per item over hub-to-hub travel times, with each deficit hub fed by its nearest
+ * surplus hubs only to keep the graphs sparse.
+ *
+ * Plans are recomputed on a schedule. Items whose hub balances and travel times are unchanged
+ * since the previous run keep their previous transfers, so a run only solves the items whose
+ * stock or demand moved; those are solved in parallel on the planner's own pool. Until the first
+ * plan exists, reading the latest one starts it in the background rather than on the caller's
+ * thread, and requested recomputes run in the background as well.
+ */
+@Service
+@Slf4j
+public class RebalancingPlanner {
+
+    /**
+     * Items each open request of a need type calls for, one unit each
+     */
+    static final Map<String, List<String>> DEMAND_ITEMS = Map.of(
+        "food", List.of("FOOD_BASIC"),
+        "water", List.of("WATER_BOTTLES"),
+        "medical", List.of("MEDICAL_FIRST_AID"),
+        "evacuation", List.of("BLANKET", "TARP"),
+        "sos", List.of("MEDICAL_FIRST_AID", "FLASHLIGHT"),
+        "other", List.of("HYGIENE_KIT"));
+
+    private static final int NEAREST_SOURCES = 16;
+    private static final double FALLBACK_SPEED_METERS_PER_SECOND = 40 / 3.6;
+    private static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final InventorySnapshot inventorySnapshot;
+    private final InventoryHubRepository hubRepository;
+    private final ItemCatalogRepository itemRepository;
+    private final WardRepository wardRepository;
+    private final NeedsRequestRepository needsRequestRepository;
+    private final RoadNetworkService roadNetworkService;
+
+    // Guarded by this
+    private final Map<UUID, ItemState> itemStates = new HashMap<>();
+    private List<UUID> previousHubIds = List.of();
+    private long[] previousHubCosts = new long[0];
+
+    private volatile RebalancingPlan latest;
+    private final AtomicBoolean firstPlanStarted = new AtomicBoolean();
+    private final AtomicBoolean planQueued = new AtomicBoolean();
+    private final ExecutorService planExecutor = Executors.newSingleThreadExecutor();
+    private final ForkJoinPool solvePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public record Transfer(UUID itemId, String itemCode, UUID fromHubId, String fromHubName,
+                           UUID toHubId, String toHubName, int quantity, long travelSeconds) {}
+
+    public record RebalancingPlan(String planId, LocalDateTime computedAt, List<Transfer> transfers,
+                                  List<InventoryService.MovementLine> movements, Map<UUID, Integer> unmetDemand,
+                                  int itemsSolved, int itemsReused, long elapsedMillis) {}
+
+    record ItemState(int[] balance, List<Transfer> transfers, int unmet) {}
+
+    /**
+     * Travel seconds between hubs (row-major, from then to), for each destination hub every hub
+     * ordered by travel time to it, and the serving hub of each ward (-1 if none can reach it)
+     */
+    record HubCosts(long[] hubToHub, int[] nearest, int[] servingHub) {}
+
+    public RebalancingPlanner(InventorySnapshot inventorySnapshot,
+                              InventoryHubRepository hubRepository,
+                              ItemCatalogRepository itemRepository,
+                              WardRepository wardRepository,
+                              NeedsRequestRepository needsRequestRepository,
+                              RoadNetworkService roadNetworkService) {
+        this.inventorySnapshot = inventorySnapshot;
+        this.hubRepository = hubRepository;
+        this.itemRepository = itemRepository;
+        this.wardRepository = wardRepository;
+        this.needsRequestRepository = needsRequestRepository;
+        this.roadNetworkService = roadNetworkService;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.rebalancing.interval-ms:300000}",
+               initialDelayString = "${inventory.rebalancing.interval-ms:300000}")
+    public void scheduledPlan() {
+        if (!inventorySnapshot.isLoaded()) return;
+        try {
+            plan();
+        } catch (RuntimeException e) {
+            log.error("Inventory rebalancing plan failed", e);
+        }
+    }
+
+    /**
+     * The most recent plan, or empty while the first one is still being computed
+     */
+    public Optional<RebalancingPlan> getLatestPlan() {
+        RebalancingPlan plan = latest;
+        if (plan == null && inventorySnapshot.isLoaded() && firstPlanStarted.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::plan, planExecutor)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        firstPlanStarted.set(false);
+                        log.error("Inventory rebalancing plan failed", error);
+                    }
+                });
+        }
+        return Optional.ofNullable(plan);
+    }
+
+    /**
+     * Recompute the plan in the background; requests made while one is still queued share it
+     */
+    public void requestPlan() {
+        if (!planQueued.compareAndSet(false, true)) return;
+        CompletableFuture.runAsync(() -> {
+                planQueued.set(false);
+                plan();
+            }, planExecutor)
+            .whenComplete((result, error) -> {
+                if (error != null) log.error("Inventory rebalancing plan failed", error);
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        planExecutor.shutdownNow();
+        solvePool.shutdownNow();
+    }
+
+    public synchronized RebalancingPlan plan() {
+        long start = System.nanoTime();
+
+        List<InventoryHub> hubs = hubRepository.findAll().stream()
+            .filter(hub -> hub.getGeomPoint() != null)
+            .sorted(Comparator.comparing(InventoryHub::getId))
+            .toList();
+        int hubCount = hubs.size();
+        Map<UUID, Integer> hubIndex = new HashMap<>(hubCount * 2);
+        for (int h = 0; h < hubCount; h++) {
+            hubIndex.put(hubs.get(h).getId(), h);
+        }
+
+        List<Object[]> wards = wardRepository.findCentroids();
+        Map<UUID, Integer> wardIndex = new HashMap<>(wards.size() * 2);
+        for (int w = 0; w < wards.size(); w++) {
+            wardIndex.put((UUID) wards.get(w)[0], w);
+        }
+        HubCosts costs = travelCosts(hubs, wards);
+
+        List<UUID> hubIds = hubs.stream().map(InventoryHub::getId).toList();
+        if (!hubIds.equals(previousHubIds) || !Arrays.equals(costs.hubToHub(), previousHubCosts)) {
+            // Balances are indexed by hub and transfers priced by travel time; both changed
+            itemStates.clear();
+            previousHubIds = hubIds;
+            previousHubCosts = costs.hubToHub();
+        }
+
+        Map<String, ItemCatalog> itemsByCode = new HashMap<>();
+        Map<UUID, ItemCatalog> itemsById = new HashMap<>();
+        for (ItemCatalog item : itemRepository.findAll()) {
+            itemsByCode.put(item.getCode(), item);
+            itemsById.put(item.getId(), item);
+        }
+
+        Map<UUID, int[]> balances = new HashMap<>();
+        for (InventorySnapshot.StockRow row : inventorySnapshot.rows()) {
+            Integer h = row.hubId() != null ? hubIndex.get(row.hubId()) : null;
+            if (h == null || row.itemId() == null || !itemsById.containsKey(row.itemId())) continue;
+            balances.computeIfAbsent(row.itemId(), id -> new int[hubCount])[h] += Math.max(0, row.qtyAvailable());
+        }
+        for (Object[] row : needsRequestRepository.countOpenDemandByWardAndType()) {
+            Integer w = wardIndex.get((UUID) row[0]);
+            List<String> codes = row[1] != null ? DEMAND_ITEMS.get(((String) row[1]).toLowerCase()) : null;
+            if (w == null || codes == null || costs.servingHub()[w] < 0) continue;
+            int units = ((Number) row[2]).intValue();
+            for (String code : codes) {
+                ItemCatalog item = itemsByCode.get(code);
+                if (item != null) {
+                    balances.computeIfAbsent(item.getId(), id -> new int[hubCount])[costs.servingHub()[w]] -= units;
+                }
+            }
+        }
+        itemStates.keySet().retainAll(balances.keySet());
+
+        List<UUID> changed = new ArrayList<>();
+        balances.forEach((itemId, balance) -> {
+            ItemState state = itemStates.get(itemId);
+            if (state == null || !Arrays.equals(state.balance(), balance)) changed.add(itemId);
+        });
+        List<Callable<ItemState>> solves = new ArrayList<>(changed.size());
+        for (UUID itemId : changed) {
+            solves.add(() -> solve(itemsById.get(itemId), balances.get(itemId), costs, hubs));
+        }
+        try {
+            List<Future<ItemState>> solved = solvePool.invokeAll(solves);
+            for (int i = 0; i < changed.size(); i++) {
+                itemStates.put(changed.get(i), solved.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rebalancing plan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rebalancing plan failed", e.getCause());
+        }
+
+        List<Transfer> transfers = new ArrayList<>();
+        List<InventoryService.MovementLine> movements = new ArrayList<>();
+        Map<UUID, Integer> unmetDemand = new HashMap<>();
+        itemStates.forEach((itemId, state) -> {
+            transfers.addAll(state.transfers());
+            if (state.unmet() > 0) unmetDemand.put(itemId, state.unmet());
+        });
+        transfers.sort(Comparator.comparing(Transfer::itemCode).thenComparing(Transfer::fromHubName)
+            .thenComparing(Transfer::toHubName));
+        for (Transfer transfer : transfers) {
+            movements.add(new InventoryService.MovementLine(transfer.fromHubId(), transfer.itemId(), "out",
+                transfer.quantity(), "Rebalancing transfer to " + transfer.toHubName()));
+            movements.add(new InventoryService.MovementLine(transfer.toHubId(), transfer.itemId(), "in",
+                transfer.quantity(), "Rebalancing transfer from " + transfer.fromHubName()));
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        RebalancingPlan plan = new RebalancingPlan(UUID.randomUUID().toString(), LocalDateTime.now(),
+            List.copyOf(transfers), List.copyOf(movements), Map.copyOf(unmetDemand),
+            changed.size(), balances.size() - changed.size(), elapsedMillis);
+        latest = plan;
+        log.info("Rebalancing plan {}: {} transfers over {} hubs, {} items solved, {} reused, {} ms",
+            plan.planId(), transfers.size(), hubCount, plan.itemsSolved(), plan.itemsReused(), elapsedMillis);
+        return plan;
+    }
+
+    /**
+     * Move one item's hub surpluses to its hub deficits at minimum total travel time
+     */
+    static ItemState solve(ItemCatalog item, int[] balance, HubCosts costs, List<InventoryHub> hubs) {
+        int hubCount = balance.length;
+        int[] surplusNode = new int[hubCount];
+        int surplusCount = 0;
+        int deficitCount = 0;
+        long totalSurplus = 0;
+        long totalDeficit = 0;
+        for (int h = 0; h < hubCount; h++) {
+            if (balance[h] > 0) {
+                surplusNode[h] = 2 + surplusCount++;
+                totalSurplus += balance[h];
+            } else {
+                surplusNode[h] = -1;
+                if (balance[h] < 0) {
+                    deficitCount++;
+                    totalDeficit -= balance[h];
+                }
+            }
+        }
+        if (surplusCount == 0 || deficitCount == 0) {
+            return new ItemState(balance, List.of(), (int) totalDeficit);
+        }
+
+        // Nodes: 0 source, 1 sink, then surplus hubs, then deficit hubs
+        MinCostFlow flow = new MinCostFlow(2 + surplusCount + deficitCount);
+        List<int[]> arcs = new ArrayList<>();
+        int deficitNode = 2 + surplusCount;
+        for (int h = 0; h < hubCount; h++) {
+            if (balance[h] > 0) flow.addEdge(0, surplusNode[h], balance[h], 0);
+        }
+        for (int to = 0; to < hubCount; to++) {
+            if (balance[to] >= 0) continue;
+            flow.addEdge(deficitNode, 1, -balance[to], 0);
+            int sources = 0;
+            for (int k = 0; k < hubCount && sources < NEAREST_SOURCES; k++) {
+                int from = costs.nearest()[to * hubCount + k];
+                long travel = costs.hubToHub()[from * hubCount + to];
+                if (travel == UNREACHABLE) break;
+                if (surplusNode[from] < 0) continue;
+                int edge = flow.addEdge(surplusNode[from], deficitNode, -balance[to], travel);
+                arcs.add(new int[] {edge, from, to});
+                sources++;
+            }
+            deficitNode++;
+        }
+        MinCostFlow.Result result = flow.solve(0, 1, Math.min(totalSurplus, totalDeficit));
+
+        List<Transfer> transfers = new ArrayList<>();
+        for (int[] arc : arcs) {
+            long quantity = flow.flow(arc[0]);
+            if (quantity == 0) continue;
+            InventoryHub from = hubs.get(arc[1]);
+            InventoryHub to = hubs.get(arc[2]);
+            transfers.add(new Transfer(item.getId(), item.getCode(), from.getId(), from.getName(), to.getId(),
+                to.getName(), (int) quantity, costs.hubToHub()[arc[1] * hubCount + arc[2]]));
+        }
+        return new ItemState(balance, List.copyOf(transfers), (int) (totalDeficit - result.flow()));
+    }
+
+    private HubCosts travelCosts(List<InventoryHub> hubs, List<Object[]> wards) {
+        int hubCount = hubs.size();
+        List<RoadPoint> points = new ArrayList<>(hubCount + wards.size());
+        for (InventoryHub hub : hubs) {
+            points.add(new RoadPoint(hub.getGeomPoint().getY(), hub.getGeomPoint().getX()));
+        }
+        for (Object[] ward : wards) {
+            points.add(new RoadPoint(((Number) ward[1]).doubleValue(), ((Number) ward[2]).doubleValue()));
+        }
+
+        long[] hubToHub = new long[hubCount * hubCount];
+        int[] servingHub = new int[wards.size()];
+        long[] servingCost = new long[wards.size()];
+        Arrays.fill(servingHub, -1);
+        Arrays.fill(servingCost, UNREACHABLE);
+        for (int h = 0; h < hubCount; h++) {
+            long[] row = travelSeconds(points.get(h), points);
+            System.arraycopy(row, 0, hubToHub, h * hubCount, hubCount);
+            for (int w = 0; w < wards.size(); w++) {
+                if (row[hubCount + w] < servingCost[w]) {
+                    servingCost[w] = row[hubCount + w];
+                    servingHub[w] = h;
+                }
+            }
+        }
+        return new HubCosts(hubToHub, nearestSources(hubToHub, hubCount), servingHub);
+    }
+
+    static int[] nearestSources(long[] hubToHub, int hubCount) {
+        int[] nearest = new int[hubCount * hubCount];
+        Integer[] order = new Integer[hubCount];
+        for (int to = 0; to < hubCount; to++) {
+            int destination = to;
+            for (int h = 0; h < hubCount; h++) order[h] = h;
+            Arrays.sort(order, Comparator.comparingLong(from -> hubToHub[from * hubCount + destination]));
+            for (int k = 0; k < hubCount; k++) nearest[to * hubCount + k] = order[k];
+        }
+        return nearest;
+    }
+
+    private long[] travelSeconds(RoadPoint origin, List<RoadPoint> destinations) {
+        long[] seconds = new long[destinations.size()];
+        if (roadNetworkService.isLoaded()) {
+            RoadNetworkService.TravelTimes times = roadNetworkService.travelTimes(origin, destinations).orElse(null);
+            if (times != null) {
+                for (int i = 0; i < seconds.length; i++) {
+                    Double travel = times.travelSeconds().get(i);
+                    seconds[i] = travel != null ? Math.round(travel) : UNREACHABLE;
+                }
+                return seconds;
+            }
+        }
+        for (int i = 0; i < seconds.length; i++) {
+            RoadPoint destination = destinations.get(i);
+            double meters = RoadGraph.haversine(origin.latitude(), origin.longitude(),
+                destination.latitude(), destination.longitude());
+            seconds[i] = Math.round(meters / FALLBACK_SPEED_METERS_PER_SECOND);
+        }
+        return seconds;
+    }
+}
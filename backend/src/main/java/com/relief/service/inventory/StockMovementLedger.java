@@ -0,0 +1,76 @@
+package com.relief.service.inventory;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes {@code stock_movements} rows by id, without loading hubs, items or users.
+ *
+ * Movements recorded inside a transaction are buffered with it and written in JDBC batches just
+ * before it commits, so they commit or roll back together with the stock changes they describe.
+ * {@code stock_movements} has database-generated keys, which Hibernate insert batching does not
+ * cover. Movements recorded outside a transaction are written immediately.
+ */
+@Component
+public class StockMovementLedger {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO stock_movements (hub_id, item_id, movement_type, quantity, reason, user_id, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, now())
+        """;
+
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Entry(UUID hubId, UUID itemId, String movementType, int quantity, String reason, UUID userId) {}
+
+    public StockMovementLedger(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void record(Entry entry) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(entry));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Entry> buffer = (List<Entry>) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            List<Entry> transactionBuffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, transactionBuffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(transactionBuffer);
+                    transactionBuffer.clear();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockMovementLedger.this);
+                }
+            });
+            buffer = transactionBuffer;
+        }
+        buffer.add(entry);
+    }
+
+    private void write(List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, WRITE_BATCH_SIZE, (ps, entry) -> {
+            ps.setObject(1, entry.hubId());
+            ps.setObject(2, entry.itemId());
+            ps.setString(3, entry.movementType());
+            ps.setInt(4, entry.quantity());
+            ps.setString(5, entry.reason());
+            ps.setObject(6, entry.userId());
+        });
+    }
+}
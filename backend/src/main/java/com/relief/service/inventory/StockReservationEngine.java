@@ -0,0 +1,162 @@
+package com.relief.service.inventory;
+
+import com.relief.exception.BadRequestException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Reserves and releases stock with conditional updates on {@code inventory_stock}.
+ *
+ * Each line is a single {@code UPDATE ... WHERE qty_available >= ?}, so the check and the change
+ * happen atomically in the database and two callers can never both take the last units. Rows are
+ * locked only from their update to the end of the transaction, not for a read-modify-write round
+ * trip. A request's lines are merged per hub and item, updated in a fixed order so concurrent
+ * multi-item requests cannot deadlock, and sent as one JDBC batch; if any line cannot be applied
+ * the whole request is rolled back.
+ *
+ * Goods received and issued go through the same path: receipts are upserts that add to available
+ * stock, issues are conditional decrements of available stock.
+ */
+@Component
+public class StockReservationEngine {
+
+    private static final String RESERVE_SQL = """
+        UPDATE inventory_stock
+        SET qty_available = qty_available - ?, qty_reserved = qty_reserved + ?, updated_at = now()
+        WHERE hub_id = ? AND item_id = ? AND qty_available >= ?
+        """;
+
+    private static final String RELEASE_SQL = """
+        UPDATE inventory_stock
+        SET qty_reserved = qty_reserved - ?, qty_available = qty_available + ?, updated_at = now()
+        WHERE hub_id = ? AND item_id = ? AND qty_reserved >= ?
+        """;
+
+    private static final String RECEIVE_SQL = """
+        INSERT INTO inventory_stock (hub_id, item_id, qty_available, qty_reserved, updated_at)
+        VALUES (?, ?, ?, 0, now())
+        ON CONFLICT (hub_id, item_id)
+        DO UPDATE SET qty_available = inventory_stock.qty_available + EXCLUDED.qty_available, updated_at = now()
+        """;
+
+    private static final String ISSUE_SQL = """
+        UPDATE inventory_stock
+        SET qty_available = qty_available - ?, updated_at = now()
+        WHERE hub_id = ? AND item_id = ? AND qty_available >= ?
+        """;
+
+    private static final Comparator<Line> LOCK_ORDER =
+        Comparator.comparing(Line::hubId).thenComparing(Line::itemId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Line(UUID hubId, UUID itemId, int quantity) {}
+
+    public StockReservationEngine(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Move quantities from available to reserved, all lines or none
+     *
+     * @return the applied lines, merged per hub and item
+     * @throws BadRequestException if a line is invalid or its hub lacks available stock
+     */
+    @Transactional
+    public List<Line> reserve(Collection<Line> lines) {
+        return apply(RESERVE_SQL, lines, line -> new Object[] {
+            line.quantity(), line.quantity(), line.hubId(), line.itemId(), line.quantity()},
+            "Insufficient stock available");
+    }
+
+    /**
+     * Move quantities from reserved back to available, all lines or none
+     *
+     * @return the applied lines, merged per hub and item
+     * @throws BadRequestException if a line is invalid or its hub lacks reserved stock
+     */
+    @Transactional
+    public List<Line> release(Collection<Line> lines) {
+        return apply(RELEASE_SQL, lines, line -> new Object[] {
+            line.quantity(), line.quantity(), line.hubId(), line.itemId(), line.quantity()},
+            "Insufficient reserved stock");
+    }
+
+    /**
+     * Add received quantities to available stock, creating stock rows as needed
+     *
+     * @return the applied lines, merged per hub and item
+     * @throws BadRequestException if a line is invalid or names an unknown hub or item
+     */
+    @Transactional
+    public List<Line> receive(Collection<Line> lines) {
+        try {
+            return apply(RECEIVE_SQL, lines, line -> new Object[] {
+                line.hubId(), line.itemId(), line.quantity()},
+                "Cannot receive stock");
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException("Unknown hub or item in received stock");
+        }
+    }
+
+    /**
+     * Remove issued quantities from available stock, all lines or none
+     *
+     * @return the applied lines, merged per hub and item
+     * @throws BadRequestException if a line is invalid or its hub lacks available stock
+     */
+    @Transactional
+    public List<Line> issue(Collection<Line> lines) {
+        return apply(ISSUE_SQL, lines, line -> new Object[] {
+            line.quantity(), line.hubId(), line.itemId(), line.quantity()},
+            "Insufficient stock available");
+    }
+
+    private List<Line> apply(String sql, Collection<Line> lines, Function<Line, Object[]> arguments,
+                             String shortageMessage) {
+        List<Line> merged = merge(lines);
+        if (merged.isEmpty()) return merged;
+
+        List<Object[]> args = new ArrayList<>(merged.size());
+        for (Line line : merged) {
+            args.add(arguments.apply(line));
+        }
+        int[] updated = jdbcTemplate.batchUpdate(sql, args);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                // Thrown inside the transaction, so lines already updated are rolled back
+                Line line = merged.get(i);
+                throw new BadRequestException(shortageMessage + " for item " + line.itemId() + " at hub " + line.hubId());
+            }
+        }
+        return merged;
+    }
+
+    private static List<Line> merge(Collection<Line> lines) {
+        Map<List<UUID>, Integer> quantities = new LinkedHashMap<>();
+        for (Line line : lines) {
+            if (line.hubId() == null || line.itemId() == null) {
+                throw new BadRequestException("Hub ID and Item ID are required");
+            }
+            if (line.quantity() <= 0) {
+                throw new BadRequestException("Quantity must be positive");
+            }
+            quantities.merge(List.of(line.hubId(), line.itemId()), line.quantity(), Math::addExact);
+        }
+        List<Line> merged = new ArrayList<>(quantities.size());
+        quantities.forEach((key, quantity) -> merged.add(new Line(key.get(0), key.get(1), quantity)));
+        merged.sort(LOCK_ORDER);
+        return merged;
+    }
+}
@@ -0,0 +1,494 @@
+package com.relief.service.optimization;
+
+import com.relief.service.optimization.DynamicRoutingService.RoadClosure;
+import com.relief.service.optimization.DynamicRoutingService.RouteDelta;
+import com.relief.service.optimization.DynamicRoutingService.Waypoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Live state of one dispatched vehicle route that is repaired in place as conditions change.
+ *
+ * The stops already visited are fixed; everything after the vehicle's current position is
+ * scored by distance (legs crossing a road closure count as a detour) plus a penalty per minute
+ * of lateness against stop time windows. Legs between the dispatched stops are priced from the
+ * plan's distance and travel-time matrices, so road plans keep their road costs; stops inserted
+ * later have no matrix entries and fall back to great-circle distance at the vehicle speed.
+ * Closures expire after {@value #CLOSURE_TTL_MILLIS} ms unless reported again, and only the
+ * newest {@value #MAX_CLOSURES} are kept. A change repairs only a window of positions around the
+ * legs or stops it touched, using 2-opt and Or-opt moves from the current order, and reports
+ * the result as a {@link RouteDelta} that replaces a contiguous range of waypoints. Routes are a
+ * single vehicle's stops, so moves are priced by re-scoring the remaining route.
+ *
+ * All state changes are synchronized on the instance.
+ */
+final class ActiveRoute {
+
+    private static final int ORIGIN = -1;
+    private static final double CLOSURE_DETOUR_FACTOR = 3.0;
+    private static final double LATENESS_PENALTY_METERS_PER_MINUTE = 1000;
+    private static final int REPAIR_WINDOW = 4;
+    private static final int MAX_SEGMENT = 3;
+    private static final int MAX_REPAIR_PASSES = 50;
+    private static final double EPSILON = 1e-6;
+    static final long CLOSURE_TTL_MILLIS = 6 * 60 * 60 * 1000;
+    static final int MAX_CLOSURES = 64;
+
+    private final String routeId;
+    private final double originLat;
+    private final double originLon;
+    private final double metersPerMinute;
+    private final long startedAtMillis;
+    private final List<VrpProblem.Stop> stops;
+    /** Node count of the road matrices: the origin and then the dispatched stops, or 0 */
+    private final int roadNodes;
+    private final double[] roadMeters;
+    private final double[] roadMinutes;
+    private final LongSupplier clock;
+    private final List<RoadClosure> closures = new ArrayList<>();
+    private final List<Long> closureExpiry = new ArrayList<>();
+    private int[] order;
+    private int visited;
+    private double travelFactor = 1.0;
+    private int version;
+
+    ActiveRoute(String routeId, double originLat, double originLon, List<VrpProblem.Stop> orderedStops,
+                double speedKmh, long startedAtMillis) {
+        this(routeId, originLat, originLon, orderedStops, speedKmh, startedAtMillis, null, null,
+            System::currentTimeMillis);
+    }
+
+    /**
+     * @param roadMeters  row-major leg distances over the origin and then {@code orderedStops}, or
+     *                    {@code null} to price every leg by great-circle distance
+     * @param roadMinutes travel times matching {@code roadMeters}
+     */
+    ActiveRoute(String routeId, double originLat, double originLon, List<VrpProblem.Stop> orderedStops,
+                double speedKmh, long startedAtMillis, double[] roadMeters, double[] roadMinutes,
+                LongSupplier clock) {
+        int nodes = orderedStops.size() + 1;
+        if (roadMeters != null && (roadMeters.length != nodes * nodes || roadMinutes.length != nodes * nodes)) {
+            throw new IllegalArgumentException("Road matrices must cover the origin and every stop");
+        }
+        this.routeId = routeId;
+        this.originLat = originLat;
+        this.originLon = originLon;
+        this.metersPerMinute = speedKmh * 1000 / 60;
+        this.startedAtMillis = startedAtMillis;
+        this.stops = new ArrayList<>(orderedStops);
+        this.roadNodes = roadMeters != null ? nodes : 0;
+        this.roadMeters = roadMeters;
+        this.roadMinutes = roadMinutes;
+        this.clock = clock;
+        this.order = new int[orderedStops.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+    }
+
+    /**
+     * Active route over one vehicle's stops of a solved plan, priced with the plan's matrices
+     *
+     * @param route problem nodes of the vehicle's stops in visiting order; node 0 is the origin
+     */
+    static ActiveRoute dispatched(String routeId, double originLat, double originLon, List<VrpProblem.Stop> routeStops,
+                                  double speedKmh, long startedAtMillis, VrpProblem problem, int[] route) {
+        int nodes = route.length + 1;
+        double[] meters = new double[nodes * nodes];
+        double[] minutes = new double[nodes * nodes];
+        for (int i = 0; i < nodes; i++) {
+            int from = i == 0 ? 0 : route[i - 1];
+            for (int j = 0; j < nodes; j++) {
+                int to = j == 0 ? 0 : route[j - 1];
+                meters[i * nodes + j] = problem.distance(from, to);
+                minutes[i * nodes + j] = problem.travel(from, to);
+            }
+        }
+        return new ActiveRoute(routeId, originLat, originLon, routeStops, speedKmh, startedAtMillis,
+            meters, minutes, System::currentTimeMillis);
+    }
+
+    /**
+     * Add road closures. Remaining stops inside a closure are dropped, and the route is repaired
+     * around every remaining leg that crosses one. Returns {@code null} if the route is unaffected.
+     */
+    synchronized RouteDelta applyClosures(List<RoadClosure> newClosures, String reason) {
+        long now = clock.getAsLong();
+        expireClosures(now);
+        List<RoadClosure> relevant = new ArrayList<>();
+        for (RoadClosure closure : newClosures) {
+            if (touchesRemainingRoute(closure)) relevant.add(closure);
+        }
+        if (relevant.isEmpty()) return null;
+        for (RoadClosure closure : relevant) {
+            // A closure reported again is renewed rather than counted twice
+            int existing = closures.indexOf(closure);
+            if (existing >= 0) {
+                closures.remove(existing);
+                closureExpiry.remove(existing);
+            }
+            closures.add(closure);
+            closureExpiry.add(now + CLOSURE_TTL_MILLIS);
+        }
+        while (closures.size() > MAX_CLOSURES) {
+            closures.remove(0);
+            closureExpiry.remove(0);
+        }
+
+        int[] before = order.clone();
+        List<Waypoint> dropped = new ArrayList<>();
+        int[] kept = new int[order.length];
+        int length = visited;
+        System.arraycopy(order, 0, kept, 0, visited);
+        for (int p = visited; p < order.length; p++) {
+            VrpProblem.Stop stop = stops.get(order[p]);
+            if (insideAny(relevant, stop.latitude(), stop.longitude())) {
+                dropped.add(waypoint(order[p], -1));
+            } else {
+                kept[length++] = order[p];
+            }
+        }
+        order = Arrays.copyOf(kept, length);
+
+        List<Integer> affected = new ArrayList<>();
+        for (int p = visited; p <= order.length; p++) {
+            int from = p == visited ? position() : order[p - 1];
+            int to = p == order.length ? ORIGIN : order[p];
+            for (RoadClosure closure : relevant) {
+                if (crosses(closure, from, to)) {
+                    affected.add(Math.min(p, order.length - 1));
+                    break;
+                }
+            }
+        }
+        if (affected.isEmpty() && dropped.isEmpty()) return null;
+        repair(affected);
+        return delta(before, dropped, reason);
+    }
+
+    /**
+     * Scale travel times, e.g. for traffic or weather. Stops that become late trigger a repair.
+     */
+    synchronized RouteDelta setTravelFactor(double factor, String reason) {
+        if (Math.abs(factor - travelFactor) < EPSILON) return null;
+        expireClosures(clock.getAsLong());
+        travelFactor = factor;
+        int[] before = order.clone();
+        List<Integer> late = latePositions();
+        if (!late.isEmpty()) repair(late);
+        return delta(before, List.of(), reason);
+    }
+
+    /**
+     * Increase of the route score from inserting {@code stop} at its best remaining position
+     */
+    synchronized double insertionCost(VrpProblem.Stop stop) {
+        expireClosures(clock.getAsLong());
+        stops.add(stop);
+        try {
+            int node = stops.size() - 1;
+            double base = score(order);
+            double best = Double.POSITIVE_INFINITY;
+            for (int p = visited; p <= order.length; p++) {
+                best = Math.min(best, score(RouteArrays.insert(order, p, node)) - base);
+            }
+            return best;
+        } finally {
+            stops.remove(stops.size() - 1);
+        }
+    }
+
+    /**
+     * Insert an urgent stop at its cheapest position and repair around it
+     */
+    synchronized RouteDelta insertStop(VrpProblem.Stop stop, String reason) {
+        expireClosures(clock.getAsLong());
+        int[] before = order.clone();
+        stops.add(stop);
+        int node = stops.size() - 1;
+        int bestPosition = visited;
+        double best = Double.POSITIVE_INFINITY;
+        for (int p = visited; p <= order.length; p++) {
+            double candidate = score(RouteArrays.insert(order, p, node));
+            if (candidate < best) {
+                best = candidate;
+                bestPosition = p;
+            }
+        }
+        order = RouteArrays.insert(order, bestPosition, node);
+        repair(List.of(bestPosition));
+        return delta(before, List.of(), reason);
+    }
+
+    /**
+     * Record that the vehicle has served the first {@code visitedStops} stops
+     */
+    synchronized void advance(int visitedStops) {
+        visited = Math.max(visited, Math.min(visitedStops, order.length));
+    }
+
+    synchronized boolean isCompleted() {
+        return visited >= order.length;
+    }
+
+    synchronized List<Waypoint> waypoints() {
+        List<Waypoint> waypoints = new ArrayList<>(order.length + 1);
+        waypoints.add(new Waypoint(String.valueOf(originLat), String.valueOf(originLon), "origin", 0));
+        for (int p = 0; p < order.length; p++) {
+            waypoints.add(waypoint(order[p], p + 1));
+        }
+        return waypoints;
+    }
+
+    synchronized double distanceKm() {
+        double total = 0;
+        int previous = ORIGIN;
+        for (int node : order) {
+            total += cost(previous, node);
+            previous = node;
+        }
+        return (total + cost(previous, ORIGIN)) / 1000;
+    }
+
+    /**
+     * Planned duration from dispatch to return, including service and waiting
+     */
+    synchronized double durationMinutes() {
+        double time = 0;
+        int previous = ORIGIN;
+        for (int node : order) {
+            VrpProblem.Stop stop = stops.get(node);
+            time = Math.max(time + travelMinutes(previous, node), stop.earliestMinutes()) + stop.serviceMinutes();
+            previous = node;
+        }
+        return time + travelMinutes(previous, ORIGIN);
+    }
+
+    synchronized double travelFactor() { return travelFactor; }
+
+    synchronized int closureCount() {
+        expireClosures(clock.getAsLong());
+        return closures.size();
+    }
+
+    synchronized int version() { return version; }
+
+    String routeId() { return routeId; }
+
+    // ---- repair ------------------------------------------------------------------------------
+
+    /**
+     * First-improvement 2-opt and Or-opt restricted to positions near {@code affected}
+     */
+    private void repair(List<Integer> affected) {
+        if (order.length - visited < 2) return;
+        int lo = order.length;
+        int hi = visited;
+        for (int position : affected) {
+            lo = Math.min(lo, position - REPAIR_WINDOW);
+            hi = Math.max(hi, position + REPAIR_WINDOW);
+        }
+        lo = Math.max(lo, visited);
+
+        double best = score(order);
+        for (int pass = 0; pass < MAX_REPAIR_PASSES; pass++) {
+            int last = Math.min(hi, order.length - 1);
+            boolean improved = false;
+
+            for (int i = lo; i < last && !improved; i++) {
+                for (int j = i + 1; j <= last && !improved; j++) {
+                    int[] candidate = order.clone();
+                    RouteArrays.reverse(candidate, i, j);
+                    double value = score(candidate);
+                    if (value < best - EPSILON) {
+                        order = candidate;
+                        best = value;
+                        improved = true;
+                    }
+                }
+            }
+
+            for (int i = lo; i <= last && !improved; i++) {
+                for (int k = 1; k <= MAX_SEGMENT && i + k <= order.length && !improved; k++) {
+                    int[] reduced = RouteArrays.remove(order, i, k);
+                    for (int p = visited; p <= reduced.length && !improved; p++) {
+                        if (p == i) continue;
+                        for (int orientation = 0; orientation < (k == 1 ? 1 : 2) && !improved; orientation++) {
+                            int[] candidate = RouteArrays.insertSegment(reduced, p, order, i, k, orientation == 1);
+                            double value = score(candidate);
+                            if (value < best - EPSILON) {
+                                order = candidate;
+                                best = value;
+                                improved = true;
+                            }
+                        }
+                    }
+                }
+            }
+            if (!improved) return;
+        }
+    }
+
+    /**
+     * Distance of the remaining route (closures as detours) plus lateness penalties, starting
+     * from the current position at the current time
+     */
+    private double score(int[] candidate) {
+        double time = Math.max(0, (clock.getAsLong() - startedAtMillis) / 60_000.0);
+        double total = 0;
+        double lateness = 0;
+        int previous = position();
+        for (int p = visited; p < candidate.length; p++) {
+            int node = candidate[p];
+            VrpProblem.Stop stop = stops.get(node);
+            double detour = detour(previous, node);
+            total += legMeters(previous, node) * detour;
+            time = Math.max(time + legMinutes(previous, node) * detour * travelFactor, stop.earliestMinutes());
+            lateness += Math.max(0, time - stop.latestMinutes());
+            time += stop.serviceMinutes();
+            previous = node;
+        }
+        total += cost(previous, ORIGIN);
+        return total + LATENESS_PENALTY_METERS_PER_MINUTE * lateness;
+    }
+
+    private List<Integer> latePositions() {
+        List<Integer> late = new ArrayList<>();
+        double time = Math.max(0, (clock.getAsLong() - startedAtMillis) / 60_000.0);
+        int previous = position();
+        for (int p = visited; p < order.length; p++) {
+            VrpProblem.Stop stop = stops.get(order[p]);
+            time = Math.max(time + travelMinutes(previous, order[p]), stop.earliestMinutes());
+            if (time > stop.latestMinutes()) late.add(p);
+            time += stop.serviceMinutes();
+            previous = order[p];
+        }
+        return late;
+    }
+
+    private RouteDelta delta(int[] before, List<Waypoint> dropped, String reason) {
+        int from = visited;
+        while (from < before.length && from < order.length && before[from] == order[from]) from++;
+        int oldEnd = before.length;
+        int newEnd = order.length;
+        while (oldEnd > from && newEnd > from && before[oldEnd - 1] == order[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        List<Waypoint> replacement = new ArrayList<>(newEnd - from);
+        for (int p = from; p < newEnd; p++) {
+            replacement.add(waypoint(order[p], p + 1));
+        }
+        version++;
+        return new RouteDelta(routeId, version, reason, from + 1, oldEnd - from, replacement, dropped,
+            distanceKm(), durationMinutes());
+    }
+
+    // ---- geometry ----------------------------------------------------------------------------
+
+    /** Node the vehicle is at: the last visited stop, or the origin. */
+    private int position() {
+        return visited == 0 ? ORIGIN : order[visited - 1];
+    }
+
+    private double lat(int node) {
+        return node == ORIGIN ? originLat : stops.get(node).latitude();
+    }
+
+    private double lon(int node) {
+        return node == ORIGIN ? originLon : stops.get(node).longitude();
+    }
+
+    /** Metres of a leg, closures counted as detours. */
+    private double cost(int from, int to) {
+        return legMeters(from, to) * detour(from, to);
+    }
+
+    private double travelMinutes(int from, int to) {
+        return legMinutes(from, to) * detour(from, to) * travelFactor;
+    }
+
+    private double detour(int from, int to) {
+        for (RoadClosure closure : closures) {
+            if (crosses(closure, from, to)) return CLOSURE_DETOUR_FACTOR;
+        }
+        return 1;
+    }
+
+    private double legMeters(int from, int to) {
+        if (onRoadMatrix(from) && onRoadMatrix(to)) {
+            return roadMeters[roadIndex(from) * roadNodes + roadIndex(to)];
+        }
+        return VrpProblem.haversine(lat(from), lon(from), lat(to), lon(to));
+    }
+
+    private double legMinutes(int from, int to) {
+        if (onRoadMatrix(from) && onRoadMatrix(to)) {
+            return roadMinutes[roadIndex(from) * roadNodes + roadIndex(to)];
+        }
+        return legMeters(from, to) / metersPerMinute;
+    }
+
+    private boolean onRoadMatrix(int node) {
+        return roadIndex(node) < roadNodes;
+    }
+
+    private static int roadIndex(int node) {
+        return node == ORIGIN ? 0 : node + 1;
+    }
+
+    private void expireClosures(long now) {
+        for (int i = closures.size() - 1; i >= 0; i--) {
+            if (closureExpiry.get(i) <= now) {
+                closures.remove(i);
+                closureExpiry.remove(i);
+            }
+        }
+    }
+
+    private boolean touchesRemainingRoute(RoadClosure closure) {
+        int previous = position();
+        for (int p = visited; p <= order.length; p++) {
+            int node = p == order.length ? ORIGIN : order[p];
+            if (crosses(closure, previous, node)) return true;
+            previous = node;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the straight leg between two nodes passes within the closure radius, on a local
+     * equirectangular projection around the closure centre
+     */
+    private boolean crosses(RoadClosure closure, int from, int to) {
+        double metersPerDegreeLat = 110_540.0;
+        double metersPerDegreeLon = 111_320.0 * Math.cos(Math.toRadians(closure.latitude()));
+        double ax = (lon(from) - closure.longitude()) * metersPerDegreeLon;
+        double ay = (lat(from) - closure.latitude()) * metersPerDegreeLat;
+        double bx = (lon(to) - closure.longitude()) * metersPerDegreeLon;
+        double by = (lat(to) - closure.latitude()) * metersPerDegreeLat;
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / length));
+        double px = ax + t * dx;
+        double py = ay + t * dy;
+        return px * px + py * py <= closure.radiusMeters() * closure.radiusMeters();
+    }
+
+    private static boolean insideAny(List<RoadClosure> closures, double lat, double lon) {
+        for (RoadClosure closure : closures) {
+            if (VrpProblem.haversine(lat, lon, closure.latitude(), closure.longitude()) <= closure.radiusMeters()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Waypoint waypoint(int node, int order) {
+        VrpProblem.Stop stop = stops.get(node);
+        return new Waypoint(String.valueOf(stop.latitude()), String.valueOf(stop.longitude()), "destination", order);
+    }
+}
@@ -1,5 +1,13 @@
 package com.relief.service.optimization;
 
+import com.relief.entity.InventoryHub;
+import com.relief.entity.InventoryStock;
+import com.relief.realtime.RealtimeBroadcaster;
+import com.relief.service.roadnetwork.RoadNetworkService;
+import com.relief.service.roadnetwork.RoadNetworkService.RoadPoint;
+import com.relief.repository.InventoryHubRepository;
+import com.relief.repository.InventoryStockRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
@@ -9,10 +17,16 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Service for AI-powered optimal delivery routes
  * Considers traffic, weather, and priority in route optimization
+ *
+ * Dispatched routes stay active until completed and are repaired incrementally when conditions
+ * change; each repair is broadcast as a route delta. Active routes are never evicted: once
+ * {@value #MAX_ACTIVE_ROUTES} are in flight, new dispatches are rejected until routes complete.
+ * Stored plans are bounded, least recently used first out.
  */
 @Service
 @RequiredArgsConstructor
@@ -21,8 +35,29 @@ public class DynamicRoutingService {
 
     private static final Logger log = LoggerFactory.getLogger(DynamicRoutingService.class);
 
-    private final Map<String, Route> routes = new ConcurrentHashMap<>();
-    private final Map<String, RouteOptimization> optimizations = new ConcurrentHashMap<>();
+    private static final long SINGLE_ROUTE_BUDGET_MILLIS = 200;
+    private static final long DEFAULT_PLAN_BUDGET_MILLIS = 2000;
+    private static final long MAX_PLAN_BUDGET_MILLIS = 10_000;
+    private static final int MAX_PLAN_STOPS = 2000;
+    private static final int MAX_ACTIVE_ROUTES = 5000;
+    private static final int MAX_PLANS = 500;
+    private static final double STOP_SERVICE_MINUTES = 5;
+
+    private final InventoryHubRepository hubRepository;
+    private final InventoryStockRepository stockRepository;
+    private final RealtimeBroadcaster broadcaster;
+    private final RoadNetworkService roadNetworkService;
+
+    private final Map<String, ActiveRoute> activeRoutes = new ConcurrentHashMap<>();
+    private final Map<String, Route> routes = Collections.synchronizedMap(new LinkedHashMap<>(256));
+    private final Map<String, DeliveryPlan> plans = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeliveryPlan> eldest) {
+            return size() > MAX_PLANS;
+        }
+    });
+    private final ForkJoinPool solverPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final VehicleRoutingSolver solver = new VehicleRoutingSolver(solverPool);
 
     /**
      * Create an optimized route
@@ -46,39 +81,155 @@ public class DynamicRoutingService {
         route.setEstimatedDistance(optimization.getTotalDistance());
         route.setPriority(calculatePriority(destinations));
         
-        routes.put(route.getId(), route);
+        List<VrpProblem.Stop> stops = new ArrayList<>();
+        for (Waypoint waypoint : optimization.getWaypoints().subList(1, optimization.getWaypoints().size())) {
+            stops.add(new VrpProblem.Stop(Double.parseDouble(waypoint.getLatitude()), Double.parseDouble(waypoint.getLongitude()),
+                    0, 0, Double.POSITIVE_INFINITY, STOP_SERVICE_MINUTES));
+        }
+        double speed = constraints.containsKey("speed") ? ((Number) constraints.get("speed")).doubleValue() : 50.0;
+        reserveCapacity(1);
+        activate(route, new ActiveRoute(route.getId(), Double.parseDouble(originLat), Double.parseDouble(originLon),
+                stops, speed, System.currentTimeMillis()));
         
         log.info("Created optimized route: {} with {} destinations", route.getId(), destinations.size());
         return route;
     }
 
     /**
-     * Re-optimize existing route with new conditions
+     * Re-optimize existing route with new conditions. Supported keys: {@code traffic} and
+     * {@code weather} (fractional slow-downs), {@code closures} (list of {@code latitude},
+     * {@code longitude}, {@code radiusMeters}) and {@code urgentStops} (list of {@code latitude},
+     * {@code longitude}). Only the affected part of the route is repaired.
      */
     public Route reoptimizeRoute(String routeId, Map<String, Object> newConditions) {
-        Route route = routes.get(routeId);
-        if (route == null) {
+        ActiveRoute active = activeRoutes.get(routeId);
+        if (active == null || routes.get(routeId) == null) {
             throw new IllegalArgumentException("Route not found: " + routeId);
         }
 
-        // Incorporate new conditions (traffic, weather, etc.)
-        RouteOptimization newOptimization = optimizeRouteWithConditions(
-                route.getOriginLat(),
-                route.getOriginLon(),
-                route.getDestinations(),
-                newConditions
-        );
+        applyChange(List.of(active), ConditionChange.fromMap(newConditions));
+
+        log.info("Re-optimized route: {}", routeId);
+        return routes.get(routeId);
+    }
+
+    /**
+     * Apply a condition change (e.g. an updated flood map) to every active route and return the
+     * resulting route deltas
+     */
+    public List<RouteDelta> applyConditionChange(ConditionChange change) {
+        long start = System.nanoTime();
+        List<RouteDelta> deltas = applyChange(new ArrayList<>(activeRoutes.values()), change);
+        log.info("Applied condition change '{}' to {} active routes: {} changed in {} ms", change.reason(),
+                activeRoutes.size(), deltas.size(), (System.nanoTime() - start) / 1_000_000);
+        return deltas;
+    }
 
-        route.setOptimization(newOptimization);
+    private List<RouteDelta> applyChange(List<ActiveRoute> targets, ConditionChange change) {
+        String reason = change.reason() != null ? change.reason() : "conditions";
+        List<RoadClosure> closures = change.closures() != null ? change.closures() : List.of();
+        Double travelFactor = change.trafficImpact() != null || change.weatherImpact() != null
+                ? 1 + orZero(change.trafficImpact()) + orZero(change.weatherImpact()) : null;
+
+        // Closures and slow-downs are repaired independently per route
+        List<RouteDelta> deltas = Collections.synchronizedList(new ArrayList<>());
+        if (!closures.isEmpty() || travelFactor != null) {
+            solverPool.submit(() -> targets.parallelStream().forEach(active -> {
+                if (!closures.isEmpty()) addIfPresent(deltas, active.applyClosures(closures, reason));
+                if (travelFactor != null) addIfPresent(deltas, active.setTravelFactor(travelFactor, reason));
+            })).join();
+        }
+
+        // Each urgent stop joins the single route that absorbs it most cheaply
+        if (change.urgentStops() != null) {
+            for (DeliveryStop urgent : change.urgentStops()) {
+                VrpProblem.Stop stop = new VrpProblem.Stop(urgent.latitude(), urgent.longitude(), urgent.demand(),
+                        orZero(urgent.earliestMinutes()),
+                        urgent.latestMinutes() != null ? urgent.latestMinutes() : Double.POSITIVE_INFINITY,
+                        urgent.serviceMinutes() != null ? urgent.serviceMinutes() : STOP_SERVICE_MINUTES);
+                Optional<ActiveRoute> best = solverPool.submit(() -> targets.parallelStream()
+                        .filter(active -> !active.isCompleted())
+                        .min(Comparator.comparingDouble(active -> active.insertionCost(stop)))).join();
+                best.ifPresent(active -> deltas.add(active.insertStop(stop, reason)));
+            }
+        }
+
+        List<RouteDelta> result = new ArrayList<>(deltas);
+        for (RouteDelta delta : result) {
+            updateRoute(delta, change);
+            broadcaster.broadcast("route.updated", delta);
+        }
+        return result;
+    }
+
+    private void updateRoute(RouteDelta delta, ConditionChange change) {
+        Route route = routes.get(delta.routeId());
+        ActiveRoute active = activeRoutes.get(delta.routeId());
+        if (route == null || active == null) return;
+
+        RouteOptimization optimization = route.getOptimization();
+        optimization.setWaypoints(active.waypoints());
+        optimization.setTotalDistance(delta.distanceKm());
+        optimization.setTotalDuration(delta.durationMinutes());
+        if (change.trafficImpact() != null) optimization.setTrafficImpact(change.trafficImpact());
+        if (change.weatherImpact() != null) optimization.setWeatherImpact(change.weatherImpact());
+        optimization.setOptimizedAt(LocalDateTime.now());
+
+        route.setEstimatedDistance(delta.distanceKm());
+        route.setEstimatedDuration(delta.durationMinutes());
+        route.setVersion(delta.version());
         route.setUpdatedAt(LocalDateTime.now());
-        route.setEstimatedDuration(newOptimization.getTotalDuration());
-        route.setEstimatedDistance(newOptimization.getTotalDistance());
         route.setReoptimizedAt(LocalDateTime.now());
+    }
 
-        log.info("Re-optimized route: {}", routeId);
+    /**
+     * Record progress along a route; routes are completed once their last stop is served
+     */
+    public Route advanceRoute(String routeId, int visitedStops) {
+        ActiveRoute active = activeRoutes.get(routeId);
+        Route route = routes.get(routeId);
+        if (active == null || route == null) {
+            throw new IllegalArgumentException("Route not found: " + routeId);
+        }
+        active.advance(visitedStops);
+        route.setUpdatedAt(LocalDateTime.now());
+        if (active.isCompleted()) {
+            completeRoute(routeId);
+        }
         return route;
     }
 
+    public void completeRoute(String routeId) {
+        routes.remove(routeId);
+        if (activeRoutes.remove(routeId) != null) {
+            broadcaster.broadcast("route.completed", routeId);
+            log.info("Completed route: {}", routeId);
+        }
+    }
+
+    /**
+     * Reject a dispatch that would take the active routes past their bound
+     */
+    private void reserveCapacity(int newRoutes) {
+        if (activeRoutes.size() + newRoutes > MAX_ACTIVE_ROUTES) {
+            throw new IllegalStateException("Too many active routes (" + activeRoutes.size()
+                    + "); complete routes before dispatching more");
+        }
+    }
+
+    private void activate(Route route, ActiveRoute active) {
+        activeRoutes.put(route.getId(), active);
+        routes.put(route.getId(), route);
+    }
+
+    private static void addIfPresent(List<RouteDelta> deltas, RouteDelta delta) {
+        if (delta != null) deltas.add(delta);
+    }
+
+    private static double orZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
     /**
      * Core route optimization algorithm
      */
@@ -99,29 +250,6 @@ public class DynamicRoutingService {
         optimization.setOptimizedAt(LocalDateTime.now());
         optimization.setConfidence(0.85);
 
-        optimizations.put(optimization.getId(), optimization);
-        return optimization;
-    }
-
-    private RouteOptimization optimizeRouteWithConditions(
-            String originLat,
-            String originLon,
-            List<String> destinations,
-            Map<String, Object> conditions) {
-
-        // Simulate conditions-aware optimization
-        double trafficImpact = conditions.containsKey("traffic") ? 
-                (Double) conditions.get("traffic") : 0.0;
-        double weatherImpact = conditions.containsKey("weather") ? 
-                (Double) conditions.get("weather") : 0.0;
-
-        RouteOptimization optimization = optimizeRoute(originLat, originLon, destinations, new HashMap<>());
-        optimization.setTrafficImpact(trafficImpact);
-        optimization.setWeatherImpact(weatherImpact);
-        optimization.setTotalDuration(
-                optimization.getTotalDuration() * (1 + trafficImpact + weatherImpact)
-        );
-
         return optimization;
     }
 
@@ -131,36 +259,28 @@ public class DynamicRoutingService {
         // Add origin
         waypoints.add(new Waypoint(originLat, originLon, "origin", 0));
 
-        // Simulate optimal order using nearest-neighbor heuristic
-        String currentLat = originLat;
-        String currentLon = originLon;
-        Set<String> remaining = new HashSet<>(destinations);
-
-        while (!remaining.isEmpty()) {
-            String nearest = findNearestDestination(currentLat, currentLon, remaining);
-            remaining.remove(nearest);
-            
-            String[] parts = nearest.split(",");
-            waypoints.add(new Waypoint(parts[0], parts[1], "destination", waypoints.size()));
-            
-            currentLat = parts[0];
-            currentLon = parts[1];
+        // Parse each destination once and order them as a single unconstrained vehicle route
+        List<VrpProblem.Stop> stops = new ArrayList<>(destinations.size());
+        String[][] parsed = new String[destinations.size()][];
+        for (int i = 0; i < destinations.size(); i++) {
+            parsed[i] = destinations.get(i).split(",");
+            stops.add(new VrpProblem.Stop(Double.parseDouble(parsed[i][0].trim()), Double.parseDouble(parsed[i][1].trim()),
+                    0, 0, Double.POSITIVE_INFINITY, 0));
+        }
+        VrpProblem problem = VrpProblem.of(Double.parseDouble(originLat), Double.parseDouble(originLon), stops,
+                1, Integer.MAX_VALUE, Integer.MAX_VALUE, 50.0, Double.POSITIVE_INFINITY);
+        VehicleRoutingSolver.Solution solution = solver.solve(problem, 1, SINGLE_ROUTE_BUDGET_MILLIS, 0);
+
+        for (int[] route : solution.routes()) {
+            for (int stop : route) {
+                String[] parts = parsed[stop - 1];
+                waypoints.add(new Waypoint(parts[0], parts[1], "destination", waypoints.size()));
+            }
         }
 
         return waypoints;
     }
 
-    private String findNearestDestination(String lat, String lon, Set<String> destinations) {
-        return destinations.stream()
-                .min(Comparator.comparingDouble(dest -> calculateDistance(lat, lon, dest)))
-                .orElse(destinations.iterator().next());
-    }
-
-    private double calculateDistance(String lat1, String lon1, String dest) {
-        String[] parts = dest.split(",");
-        return calculateDistance(lat1, lon1, parts[0], parts[1]);
-    }
-
     private double calculateDistance(String lat1, String lon1, String lat2, String lon2) {
         // Simplified distance calculation (Haversine would be more accurate)
         double lat1d = Double.parseDouble(lat1);
@@ -210,6 +330,147 @@ public class DynamicRoutingService {
         return duration;
     }
 
+    /**
+     * Plan multi-vehicle deliveries from a hub as a capacitated VRP with time windows. The units
+     * that can be loaded are bounded by the hub's unreserved stock (of one item, if given).
+     *
+     * Not transactional: hub and stock are read by their repositories' own short transactions, so
+     * no connection is held while the solver runs. The client's time budget is capped at
+     * {@value #MAX_PLAN_BUDGET_MILLIS} ms.
+     */
+    public DeliveryPlan planDeliveries(DeliveryPlanRequest request) {
+        if (request.stops() == null || request.stops().isEmpty()) {
+            throw new IllegalArgumentException("At least one stop is required");
+        }
+        if (request.stops().size() > MAX_PLAN_STOPS) {
+            throw new IllegalArgumentException("At most " + MAX_PLAN_STOPS + " stops can be planned at once");
+        }
+        InventoryHub hub = hubRepository.findById(request.hubId())
+                .orElseThrow(() -> new IllegalArgumentException("Hub not found: " + request.hubId()));
+        if (hub.getGeomPoint() == null) {
+            throw new IllegalArgumentException("Hub has no location: " + request.hubId());
+        }
+
+        List<InventoryStock> stock = request.itemId() != null
+                ? Optional.ofNullable(stockRepository.findByHubIdAndItemId(hub.getId(), request.itemId())).map(List::of).orElse(List.of())
+                : stockRepository.findByHubId(hub.getId());
+        int stockLimit = stock.stream()
+                .mapToInt(s -> Math.max(0, nullToZero(s.getQtyAvailable()) - nullToZero(s.getQtyReserved())))
+                .sum();
+
+        List<VrpProblem.Stop> stops = request.stops().stream()
+                .map(stop -> new VrpProblem.Stop(stop.latitude(), stop.longitude(), stop.demand(),
+                        stop.earliestMinutes() != null ? stop.earliestMinutes() : 0,
+                        stop.latestMinutes() != null ? stop.latestMinutes() : Double.POSITIVE_INFINITY,
+                        stop.serviceMinutes() != null ? stop.serviceMinutes() : 5))
+                .toList();
+        double shift = request.shiftMinutes() != null ? request.shiftMinutes() : 12 * 60;
+        reserveCapacity(request.vehicles());
+        VrpProblem problem = roadProblem(hub, stops, request, stockLimit, shift)
+                .orElseGet(() -> VrpProblem.of(hub.getGeomPoint().getY(), hub.getGeomPoint().getX(), stops,
+                        request.vehicles(), request.vehicleCapacity(), stockLimit,
+                        request.speedKmh() != null ? request.speedKmh() : 50.0, shift));
+
+        long budgetMillis = request.timeBudgetMillis() != null
+                ? Math.max(1, Math.min(MAX_PLAN_BUDGET_MILLIS, request.timeBudgetMillis()))
+                : DEFAULT_PLAN_BUDGET_MILLIS;
+        long start = System.nanoTime();
+        VehicleRoutingSolver.Solution solution = solver.solve(problem, solverPool.getParallelism(),
+                budgetMillis, System.nanoTime());
+
+        List<VehicleRoute> vehicleRoutes = new ArrayList<>();
+        long dispatchedAt = System.currentTimeMillis();
+        for (int v = 0; v < solution.routes().length; v++) {
+            int[] route = solution.routes()[v];
+            List<Waypoint> waypoints = new ArrayList<>(route.length + 2);
+            waypoints.add(new Waypoint(String.valueOf(hub.getGeomPoint().getY()),
+                    String.valueOf(hub.getGeomPoint().getX()), "origin", 0));
+            int load = 0;
+            List<Integer> stopIndexes = new ArrayList<>(route.length);
+            List<VrpProblem.Stop> routeStops = new ArrayList<>(route.length);
+            List<String> destinations = new ArrayList<>(route.length);
+            for (int stop : route) {
+                DeliveryStop input = request.stops().get(stop - 1);
+                waypoints.add(new Waypoint(String.valueOf(input.latitude()), String.valueOf(input.longitude()),
+                        "destination", waypoints.size()));
+                stopIndexes.add(stop - 1);
+                routeStops.add(stops.get(stop - 1));
+                destinations.add(input.latitude() + "," + input.longitude());
+                load += problem.demand(stop);
+            }
+            double distanceKm = problem.routeDistance(route) / 1000;
+            double duration = problem.duration(route);
+
+            RouteOptimization optimization = new RouteOptimization();
+            optimization.setWaypoints(waypoints);
+            optimization.setTotalDistance(distanceKm);
+            optimization.setTotalDuration(duration);
+            optimization.setPriorityAdjustment(1.0);
+            optimization.setOptimizedAt(LocalDateTime.now());
+            optimization.setConfidence(0.85);
+
+            Route vehicleRoute = new Route();
+            vehicleRoute.setId(UUID.randomUUID().toString());
+            vehicleRoute.setOriginLat(String.valueOf(hub.getGeomPoint().getY()));
+            vehicleRoute.setOriginLon(String.valueOf(hub.getGeomPoint().getX()));
+            vehicleRoute.setDestinations(destinations);
+            vehicleRoute.setOptimization(optimization);
+            vehicleRoute.setCreatedAt(LocalDateTime.now());
+            vehicleRoute.setEstimatedDistance(distanceKm);
+            vehicleRoute.setEstimatedDuration(duration);
+            vehicleRoute.setPriority(calculatePriority(destinations));
+            activate(vehicleRoute, ActiveRoute.dispatched(vehicleRoute.getId(), hub.getGeomPoint().getY(),
+                    hub.getGeomPoint().getX(), routeStops, request.speedKmh() != null ? request.speedKmh() : 50.0,
+                    dispatchedAt, problem, route));
+
+            vehicleRoutes.add(new VehicleRoute(v, vehicleRoute.getId(), stopIndexes, waypoints, load,
+                    distanceKm, duration));
+        }
+        List<Integer> unassigned = Arrays.stream(solution.unassigned()).map(stop -> stop - 1).boxed().toList();
+
+        DeliveryPlan plan = new DeliveryPlan(UUID.randomUUID().toString(), hub.getId(), stockLimit, vehicleRoutes,
+                unassigned, solution.distance() / 1000, LocalDateTime.now());
+        plans.put(plan.id(), plan);
+
+        log.info("Planned {} stops from hub {} on {} vehicles ({} unassigned, {} km) in {} ms",
+                stops.size(), hub.getId(), vehicleRoutes.size(), unassigned.size(),
+                String.format("%.1f", plan.totalDistanceKm()), (System.nanoTime() - start) / 1_000_000);
+        return plan;
+    }
+
+    /**
+     * Problem over road travel times when a road network is loaded
+     */
+    private Optional<VrpProblem> roadProblem(InventoryHub hub, List<VrpProblem.Stop> stops, DeliveryPlanRequest request,
+                                             int stockLimit, double shift) {
+        List<RoadPoint> points = new ArrayList<>(stops.size() + 1);
+        points.add(new RoadPoint(hub.getGeomPoint().getY(), hub.getGeomPoint().getX()));
+        for (VrpProblem.Stop stop : stops) {
+            points.add(new RoadPoint(stop.latitude(), stop.longitude()));
+        }
+        return roadNetworkService.travelMatrix(points).map(matrix -> {
+            double[] minutes = new double[matrix.travelSeconds().length];
+            for (int k = 0; k < minutes.length; k++) {
+                minutes[k] = matrix.travelSeconds()[k] / 60;
+            }
+            return VrpProblem.withMatrices(stops, request.vehicles(), request.vehicleCapacity(), stockLimit, shift,
+                    matrix.distanceMeters(), minutes);
+        });
+    }
+
+    public DeliveryPlan getPlan(String planId) {
+        return plans.get(planId);
+    }
+
+    private static int nullToZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        solverPool.shutdown();
+    }
+
     private int calculatePriority(List<String> destinations) {
         // Higher priority for routes with more destinations
         return Math.min(destinations.size() * 10, 100);
@@ -220,10 +481,103 @@ public class DynamicRoutingService {
     }
 
     public List<Route> getRoutes() {
-        return new ArrayList<>(routes.values());
+        synchronized (routes) {
+            return new ArrayList<>(routes.values());
+        }
     }
 
     // Inner classes
+    public record DeliveryStop(
+            double latitude,
+            double longitude,
+            int demand,
+            Double earliestMinutes,
+            Double latestMinutes,
+            Double serviceMinutes
+    ) {}
+
+    public record DeliveryPlanRequest(
+            UUID hubId,
+            UUID itemId,
+            int vehicles,
+            int vehicleCapacity,
+            Double speedKmh,
+            Double shiftMinutes,
+            Long timeBudgetMillis,
+            List<DeliveryStop> stops
+    ) {}
+
+    public record RoadClosure(
+            double latitude,
+            double longitude,
+            double radiusMeters
+    ) {}
+
+    public record ConditionChange(
+            String reason,
+            Double trafficImpact,
+            Double weatherImpact,
+            List<RoadClosure> closures,
+            List<DeliveryStop> urgentStops
+    ) {
+        @SuppressWarnings("unchecked")
+        static ConditionChange fromMap(Map<String, Object> conditions) {
+            List<RoadClosure> closures = new ArrayList<>();
+            for (Map<String, Object> closure : (List<Map<String, Object>>) conditions.getOrDefault("closures", List.of())) {
+                closures.add(new RoadClosure(number(closure, "latitude"), number(closure, "longitude"),
+                        closure.containsKey("radiusMeters") ? number(closure, "radiusMeters") : 100.0));
+            }
+            List<DeliveryStop> urgentStops = new ArrayList<>();
+            for (Map<String, Object> stop : (List<Map<String, Object>>) conditions.getOrDefault("urgentStops", List.of())) {
+                urgentStops.add(new DeliveryStop(number(stop, "latitude"), number(stop, "longitude"), 0, null, null, null));
+            }
+            return new ConditionChange("reoptimize",
+                    conditions.containsKey("traffic") ? number(conditions, "traffic") : null,
+                    conditions.containsKey("weather") ? number(conditions, "weather") : null,
+                    closures, urgentStops);
+        }
+
+        private static double number(Map<String, Object> values, String key) {
+            return ((Number) values.get(key)).doubleValue();
+        }
+    }
+
+    /**
+     * Replacement of waypoints {@code [fromWaypoint, fromWaypoint + replacedCount)} of a route's
+     * current waypoint list (index 0 is the origin); dropped stops are no longer served
+     */
+    public record RouteDelta(
+            String routeId,
+            int version,
+            String reason,
+            int fromWaypoint,
+            int replacedCount,
+            List<Waypoint> waypoints,
+            List<Waypoint> droppedStops,
+            double distanceKm,
+            double durationMinutes
+    ) {}
+
+    public record VehicleRoute(
+            int vehicle,
+            String routeId,
+            List<Integer> stopIndexes,
+            List<Waypoint> waypoints,
+            int load,
+            double distanceKm,
+            double durationMinutes
+    ) {}
+
+    public record DeliveryPlan(
+            String id,
+            UUID hubId,
+            int availableStock,
+            List<VehicleRoute> routes,
+            List<Integer> unassignedStopIndexes,
+            double totalDistanceKm,
+            LocalDateTime plannedAt
+    ) {}
+
     public static class Route {
         private String id;
         private String originLat;
@@ -236,6 +590,7 @@ public class DynamicRoutingService {
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
         private LocalDateTime reoptimizedAt;
+        private int version;
 
         // Explicit getters and setters for Lombok compatibility
         public String getId() { return id; }
@@ -270,6 +625,9 @@ public class DynamicRoutingService {
 
         public LocalDateTime getReoptimizedAt() { return reoptimizedAt; }
         public void setReoptimizedAt(LocalDateTime reoptimizedAt) { this.reoptimizedAt = reoptimizedAt; }
+
+        public int getVersion() { return version; }
+        public void setVersion(int version) { this.version = version; }
     }
 
     @lombok.Data
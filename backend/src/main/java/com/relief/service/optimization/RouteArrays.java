@@ -0,0 +1,60 @@
+package com.relief.service.optimization;
+
+/**
+ * Copy-on-write edits of routes stored as int arrays of stop indices.
+ */
+final class RouteArrays {
+
+    private RouteArrays() {
+    }
+
+    static int[] insert(int[] route, int position, int stop) {
+        int[] result = new int[route.length + 1];
+        System.arraycopy(route, 0, result, 0, position);
+        result[position] = stop;
+        System.arraycopy(route, position, result, position + 1, route.length - position);
+        return result;
+    }
+
+    /**
+     * Insert {@code source[from..from+length)} at {@code position} of {@code target}, optionally
+     * reversed
+     */
+    static int[] insertSegment(int[] target, int position, int[] source, int from, int length, boolean reversed) {
+        int[] result = new int[target.length + length];
+        System.arraycopy(target, 0, result, 0, position);
+        for (int s = 0; s < length; s++) {
+            result[position + s] = source[reversed ? from + length - 1 - s : from + s];
+        }
+        System.arraycopy(target, position, result, position + length, target.length - position);
+        return result;
+    }
+
+    static int[] remove(int[] route, int from, int length) {
+        int[] result = new int[route.length - length];
+        System.arraycopy(route, 0, result, 0, from);
+        System.arraycopy(route, from + length, result, from, route.length - from - length);
+        return result;
+    }
+
+    /**
+     * {@code head[0..headLength) + tail[tailFrom..)}
+     */
+    static int[] concat(int[] head, int headLength, int[] tail, int tailFrom) {
+        int[] result = new int[headLength + tail.length - tailFrom];
+        System.arraycopy(head, 0, result, 0, headLength);
+        System.arraycopy(tail, tailFrom, result, headLength, tail.length - tailFrom);
+        return result;
+    }
+
+    /**
+     * Reverse {@code route[from..to]} in place
+     */
+    static void reverse(int[] route, int from, int to) {
+        while (from < to) {
+            int swap = route[from];
+            route[from++] = route[to];
+            route[to--] = swap;
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.relief.service.optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Heuristic solver for {@link VrpProblem}.
+ *
+ * Each restart builds routes with the Clarke-Wright savings algorithm (restarts after the first
+ * perturb the savings randomly), trims the plan to the fleet size and the depot stock, and then
+ * runs first-improvement local search until no move improves or the time budget runs out:
+ * cheapest insertion of unserved stops, intra-route 2-opt, Or-opt relocation of segments of up
+ * to three stops (within and between routes, either orientation) and inter-route 2-opt* tail
+ * exchange. Candidate moves are priced from the distance matrix in O(1) and only improving ones
+ * are checked against capacities and time windows. On asymmetric matrices, moves that reverse a
+ * segment also pay the difference between its backward and forward internal distance, kept as a
+ * running sum while 2-opt extends the segment.
+ *
+ * Restarts run in parallel on a ForkJoin pool; the plan serving the most stops, then with the
+ * shortest distance, wins.
+ */
+public class VehicleRoutingSolver {
+
+    private static final double EPSILON = 1e-6;
+    private static final double SAVINGS_NOISE = 0.3;
+    private static final int MAX_SEGMENT = 3;
+
+    private final ForkJoinPool pool;
+
+    public VehicleRoutingSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public Solution solve(VrpProblem problem, int restarts, long timeBudgetMillis, long seed) {
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000;
+        List<Callable<Solution>> tasks = new ArrayList<>();
+        for (int r = 0; r < Math.max(1, restarts); r++) {
+            double noise = r == 0 ? 0 : SAVINGS_NOISE;
+            long restartSeed = seed + r;
+            tasks.add(() -> new Search(problem, new SplittableRandom(restartSeed), noise, deadline).run());
+        }
+
+        Solution best = null;
+        for (Future<Solution> future : pool.invokeAll(tasks)) {
+            Solution candidate;
+            try {
+                candidate = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Route optimization interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Route optimization failed", e.getCause());
+            }
+            if (best == null || candidate.isBetterThan(best)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Routes as stop node indices ({@code 1..n}, depot omitted), unserved stops and total distance
+     * in metres.
+     */
+    public record Solution(int[][] routes, int[] unassigned, double distance) {
+
+        boolean isBetterThan(Solution other) {
+            if (unassigned.length != other.unassigned.length) return unassigned.length < other.unassigned.length;
+            return distance < other.distance - EPSILON;
+        }
+    }
+
+    /**
+     * State of one restart. Routes are kept as one int array per vehicle (possibly empty).
+     */
+    private static final class Search {
+        private final VrpProblem problem;
+        private final SplittableRandom random;
+        private final double noise;
+        private final long deadline;
+        private final int[][] routes;
+        private final boolean[] served;
+        private int servedDemand;
+
+        Search(VrpProblem problem, SplittableRandom random, double noise, long deadline) {
+            this.problem = problem;
+            this.random = random;
+            this.noise = noise;
+            this.deadline = deadline;
+            this.routes = new int[problem.vehicles()][];
+            this.served = new boolean[problem.size()];
+        }
+
+        Solution run() {
+            construct();
+            boolean improved = true;
+            while (improved && System.nanoTime() < deadline) {
+                improved = insertUnassigned();
+                improved |= twoOpt();
+                improved |= orOpt();
+                improved |= twoOptStar();
+            }
+            return solution();
+        }
+
+        // ---- construction ----------------------------------------------------------------
+
+        private void construct() {
+            int size = problem.size();
+            int[] next = new int[size];
+            int[] prev = new int[size];
+            int[] routeOf = new int[size];
+            int[] head = new int[size];
+            int[] tail = new int[size];
+            int[] load = new int[size];
+            int[] single = new int[1];
+            boolean[] usable = new boolean[size];
+            for (int i = 1; i < size; i++) {
+                single[0] = i;
+                usable[i] = problem.isFeasible(single, 1);
+                routeOf[i] = i;
+                head[i] = i;
+                tail[i] = i;
+                load[i] = problem.demand(i);
+            }
+
+            long[] savings = savings(usable);
+            int[] buffer = new int[size];
+            for (int k = savings.length - 1; k >= 0; k--) {
+                int i = (int) ((savings[k] >>> 16) & 0xFFFF);
+                int j = (int) (savings[k] & 0xFFFF);
+                int ri = routeOf[i];
+                int rj = routeOf[j];
+                if (ri == rj || load[ri] + load[rj] > problem.vehicleCapacity()) continue;
+                if (tail[ri] == i && head[rj] == j) {
+                    merge(ri, rj, next, prev, routeOf, head, tail, load, buffer);
+                } else if (tail[rj] == j && head[ri] == i) {
+                    merge(rj, ri, next, prev, routeOf, head, tail, load, buffer);
+                }
+            }
+
+            List<int[]> built = new ArrayList<>();
+            for (int i = 1; i < size; i++) {
+                if (usable[i] && routeOf[i] == i && head[i] != 0) {
+                    int length = 0;
+                    for (int stop = head[i]; stop != 0; stop = next[stop]) buffer[length++] = stop;
+                    built.add(Arrays.copyOf(buffer, length));
+                }
+            }
+
+            // Keep the routes that serve the most stops when there are more routes than vehicles
+            built.sort((a, b) -> Integer.compare(b.length, a.length));
+            for (int v = 0; v < routes.length; v++) {
+                routes[v] = v < built.size() ? built.get(v) : new int[0];
+                for (int stop : routes[v]) {
+                    served[stop] = true;
+                    servedDemand += problem.demand(stop);
+                }
+            }
+            trimToStock();
+        }
+
+        /**
+         * Savings of all usable pairs packed as {@code float bits << 32 | i << 16 | j}, sorted
+         * ascending. Non-negative float bit patterns order like the floats themselves.
+         */
+        private long[] savings(boolean[] usable) {
+            int size = problem.size();
+            long[] keys = new long[size * (size - 1) / 2];
+            int count = 0;
+            for (int i = 1; i < size; i++) {
+                if (!usable[i]) continue;
+                for (int j = i + 1; j < size; j++) {
+                    if (!usable[j]) continue;
+                    double saving = problem.distance(0, i) + problem.distance(0, j) - problem.distance(i, j);
+                    if (noise > 0) saving *= 1 + noise * (random.nextDouble() - 0.5);
+                    if (saving <= 0) continue;
+                    keys[count++] = ((long) Float.floatToIntBits((float) saving) << 32) | ((long) i << 16) | j;
+                }
+            }
+            long[] sorted = Arrays.copyOf(keys, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private void merge(int first, int second, int[] next, int[] prev, int[] routeOf, int[] head, int[] tail,
+                           int[] load, int[] buffer) {
+            int length = 0;
+            for (int stop = head[first]; stop != 0; stop = next[stop]) buffer[length++] = stop;
+            for (int stop = head[second]; stop != 0; stop = next[stop]) buffer[length++] = stop;
+            if (!problem.isFeasible(buffer, length)) return;
+
+            next[tail[first]] = head[second];
+            prev[head[second]] = tail[first];
+            tail[first] = tail[second];
+            load[first] += load[second];
+            for (int stop = head[second]; stop != 0; stop = next[stop]) routeOf[stop] = first;
+            head[second] = 0;
+        }
+
+        /**
+         * Drop the stops farthest from the depot until the plan fits the depot stock
+         */
+        private void trimToStock() {
+            while (servedDemand > problem.stockLimit()) {
+                int worstRoute = -1;
+                int worstIndex = -1;
+                double worstDistance = -1;
+                for (int v = 0; v < routes.length; v++) {
+                    for (int i = 0; i < routes[v].length; i++) {
+                        int stop = routes[v][i];
+                        if (problem.demand(stop) > 0 && problem.distance(0, stop) > worstDistance) {
+                            worstDistance = problem.distance(0, stop);
+                            worstRoute = v;
+                            worstIndex = i;
+                        }
+                    }
+                }
+                if (worstRoute < 0) return;
+                int stop = routes[worstRoute][worstIndex];
+                routes[worstRoute] = RouteArrays.remove(routes[worstRoute], worstIndex, 1);
+                served[stop] = false;
+                servedDemand -= problem.demand(stop);
+            }
+        }
+
+        // ---- local search ----------------------------------------------------------------
+
+        /**
+         * Cheapest feasible insertion of every unserved stop that fits the remaining stock
+         */
+        private boolean insertUnassigned() {
+            boolean improved = false;
+            for (int stop = 1; stop < problem.size(); stop++) {
+                if (served[stop] || servedDemand + problem.demand(stop) > problem.stockLimit()) continue;
+                int bestRoute = -1;
+                int bestPosition = -1;
+                double bestCost = Double.POSITIVE_INFINITY;
+                for (int v = 0; v < routes.length; v++) {
+                    int[] route = routes[v];
+                    if (load(route) + problem.demand(stop) > problem.vehicleCapacity()) continue;
+                    for (int p = 0; p <= route.length; p++) {
+                        int before = p == 0 ? 0 : route[p - 1];
+                        int after = p == route.length ? 0 : route[p];
+                        double cost = problem.distance(before, stop) + problem.distance(stop, after)
+                            - problem.distance(before, after);
+                        if (cost < bestCost && problem.isFeasible(RouteArrays.insert(route, p, stop), route.length + 1)) {
+                            bestCost = cost;
+                            bestRoute = v;
+                            bestPosition = p;
+                        }
+                    }
+                }
+                if (bestRoute >= 0) {
+                    routes[bestRoute] = RouteArrays.insert(routes[bestRoute], bestPosition, stop);
+                    served[stop] = true;
+                    servedDemand += problem.demand(stop);
+                    improved = true;
+                }
+            }
+            return improved;
+        }
+
+        private boolean twoOpt() {
+            boolean improved = false;
+            for (int v = 0; v < routes.length; v++) {
+                int[] route = routes[v];
+                boolean symmetric = problem.isSymmetric();
+                for (int i = 0; i < route.length - 1; i++) {
+                    int before = i == 0 ? 0 : route[i - 1];
+                    // Backward minus forward distance inside route[i..j]
+                    double reversal = 0;
+                    for (int j = i + 1; j < route.length; j++) {
+                        if (!symmetric) reversal += reversalCost(route, j - 1, j + 1);
+                        int after = j == route.length - 1 ? 0 : route[j + 1];
+                        double delta = problem.distance(before, route[j]) + problem.distance(route[i], after)
+                            - problem.distance(before, route[i]) - problem.distance(route[j], after) + reversal;
+                        if (delta < -EPSILON) {
+                            int[] candidate = route.clone();
+                            RouteArrays.reverse(candidate, i, j);
+                            if (problem.isFeasible(candidate, candidate.length)) {
+                                routes[v] = route = candidate;
+                                improved = true;
+                                before = i == 0 ? 0 : route[i - 1];
+                                if (!symmetric) reversal = reversalCost(route, i, j + 1);
+                            }
+                        }
+                    }
+                }
+                if (System.nanoTime() > deadline) break;
+            }
+            return improved;
+        }
+
+        private boolean orOpt() {
+            boolean improved = false;
+            for (int v = 0; v < routes.length; v++) {
+                for (int i = 0; i < routes[v].length; i++) {
+                    for (int k = 1; k <= MAX_SEGMENT && i + k <= routes[v].length; k++) {
+                        if (relocate(v, i, k)) {
+                            improved = true;
+                            break;
+                        }
+                    }
+                }
+                if (System.nanoTime() > deadline) break;
+            }
+            return improved;
+        }
+
+        /**
+         * Move {@code route[i..i+k)} to its best improving position in any route
+         */
+        private boolean relocate(int v, int i, int k) {
+            int[] route = routes[v];
+            int first = route[i];
+            int last = route[i + k - 1];
+            int before = i == 0 ? 0 : route[i - 1];
+            int after = i + k == route.length ? 0 : route[i + k];
+            double gain = problem.distance(before, first) + problem.distance(last, after) - problem.distance(before, after);
+            if (gain <= EPSILON) return false;
+
+            int segmentLoad = 0;
+            for (int s = i; s < i + k; s++) segmentLoad += problem.demand(route[s]);
+            double reversal = problem.isSymmetric() ? 0 : reversalCost(route, i, i + k);
+            int[] reduced = RouteArrays.remove(route, i, k);
+
+            for (int w = 0; w < routes.length; w++) {
+                int[] target = w == v ? reduced : routes[w];
+                if (w != v && load(target) + segmentLoad > problem.vehicleCapacity()) continue;
+                for (int p = 0; p <= target.length; p++) {
+                    if (w == v && p == i) continue;
+                    int x = p == 0 ? 0 : target[p - 1];
+                    int y = p == target.length ? 0 : target[p];
+                    double forward = problem.distance(x, first) + problem.distance(last, y) - problem.distance(x, y);
+                    double backward = k == 1 ? Double.POSITIVE_INFINITY
+                        : problem.distance(x, last) + problem.distance(first, y) - problem.distance(x, y) + reversal;
+                    boolean reversed = backward < forward;
+                    if (Math.min(forward, backward) >= gain - EPSILON) continue;
+
+                    int[] moved = RouteArrays.insertSegment(target, p, route, i, k, reversed);
+                    if (!problem.isFeasible(moved, moved.length)) continue;
+                    if (w != v && !problem.isFeasible(reduced, reduced.length)) return false;
+                    if (w == v) {
+                        routes[v] = moved;
+                    } else {
+                        routes[v] = reduced;
+                        routes[w] = moved;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Exchange route tails: {@code a[0..i] + b[j+1..]} and {@code b[0..j] + a[i+1..]}
+         */
+        private boolean twoOptStar() {
+            boolean improved = false;
+            for (int v = 0; v < routes.length; v++) {
+                for (int w = v + 1; w < routes.length; w++) {
+                    if (exchangeTails(v, w)) improved = true;
+                }
+                if (System.nanoTime() > deadline) break;
+            }
+            return improved;
+        }
+
+        private boolean exchangeTails(int v, int w) {
+            int[] a = routes[v];
+            int[] b = routes[w];
+            if (a.length == 0 && b.length == 0) return false;
+            int[] prefixA = prefixLoads(a);
+            int[] prefixB = prefixLoads(b);
+            int capacity = problem.vehicleCapacity();
+
+            for (int i = -1; i < a.length; i++) {
+                int aCut = i < 0 ? 0 : a[i];
+                int aNext = i + 1 < a.length ? a[i + 1] : 0;
+                for (int j = -1; j < b.length; j++) {
+                    if ((i < 0 && j < 0) || (i == a.length - 1 && j == b.length - 1)) continue;
+                    int bCut = j < 0 ? 0 : b[j];
+                    int bNext = j + 1 < b.length ? b[j + 1] : 0;
+                    double delta = problem.distance(aCut, bNext) + problem.distance(bCut, aNext)
+                        - problem.distance(aCut, aNext) - problem.distance(bCut, bNext);
+                    if (delta >= -EPSILON) continue;
+                    if (prefixA[i + 1] + prefixB[b.length] - prefixB[j + 1] > capacity) continue;
+                    if (prefixB[j + 1] + prefixA[a.length] - prefixA[i + 1] > capacity) continue;
+
+                    int[] newA = RouteArrays.concat(a, i + 1, b, j + 1);
+                    int[] newB = RouteArrays.concat(b, j + 1, a, i + 1);
+                    if (problem.isFeasible(newA, newA.length) && problem.isFeasible(newB, newB.length)) {
+                        routes[v] = newA;
+                        routes[w] = newB;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // ---- helpers ---------------------------------------------------------------------
+
+        private Solution solution() {
+            List<int[]> used = new ArrayList<>();
+            double distance = 0;
+            for (int[] route : routes) {
+                if (route.length == 0) continue;
+                used.add(route);
+                distance += problem.routeDistance(route);
+            }
+            int[] unassigned = new int[problem.stopCount()];
+            int count = 0;
+            for (int stop = 1; stop < problem.size(); stop++) {
+                if (!served[stop]) unassigned[count++] = stop;
+            }
+            return new Solution(used.toArray(new int[0][]), Arrays.copyOf(unassigned, count), distance);
+        }
+
+        /**
+         * Distance of {@code route[from..to)} travelled backwards minus forwards
+         */
+        private double reversalCost(int[] route, int from, int to) {
+            double cost = 0;
+            for (int s = from; s < to - 1; s++) {
+                cost += problem.distance(route[s + 1], route[s]) - problem.distance(route[s], route[s + 1]);
+            }
+            return cost;
+        }
+
+        private int load(int[] route) {
+            int load = 0;
+            for (int stop : route) load += problem.demand(stop);
+            return load;
+        }
+
+        private int[] prefixLoads(int[] route) {
+            int[] prefix = new int[route.length + 1];
+            for (int i = 0; i < route.length; i++) prefix[i + 1] = prefix[i] + problem.demand(route[i]);
+            return prefix;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.relief.service.optimization;
+
+import java.util.List;
+
+/**
+ * Capacitated vehicle routing problem with time windows, prepared for the solver.
+ *
+ * Node 0 is the depot (the dispatching hub); stops are nodes {@code 1..n}. Great-circle distances
+ * and travel times between all nodes are computed once into flat primitive matrices so the
+ * solver's inner loops are plain array reads. Times are minutes from dispatch; the depot's time
+ * window bounds the whole shift. Precomputed matrices, such as road networks with oneway streets,
+ * may be asymmetric.
+ */
+public final class VrpProblem {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double UNREACHABLE_METERS = 1e9;
+    private static final double UNREACHABLE_MINUTES = 1e7;
+
+    private final int size;
+    private final double[] distance;
+    private final double[] travel;
+    private final int[] demand;
+    private final double[] earliest;
+    private final double[] latest;
+    private final double[] service;
+    private final int vehicles;
+    private final int vehicleCapacity;
+    private final int stockLimit;
+    private final boolean symmetric;
+
+    private VrpProblem(int size, double[] distance, double[] travel, int[] demand, double[] earliest,
+                       double[] latest, double[] service, int vehicles, int vehicleCapacity, int stockLimit) {
+        this.size = size;
+        this.distance = distance;
+        this.travel = travel;
+        this.demand = demand;
+        this.earliest = earliest;
+        this.latest = latest;
+        this.service = service;
+        this.vehicles = vehicles;
+        this.vehicleCapacity = vehicleCapacity;
+        this.stockLimit = stockLimit;
+        this.symmetric = isSymmetric(size, distance);
+    }
+
+    private static boolean isSymmetric(int size, double[] matrix) {
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (matrix[i * size + j] != matrix[j * size + i]) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param shiftMinutes latest return to the depot
+     * @param stockLimit   units available at the depot across all vehicles
+     */
+    public static VrpProblem of(double depotLat, double depotLon, List<Stop> stops, int vehicles,
+                                int vehicleCapacity, int stockLimit, double speedKmh, double shiftMinutes) {
+        if (speedKmh <= 0) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        validate(stops, vehicles, vehicleCapacity);
+
+        int size = stops.size() + 1;
+        double[] lat = new double[size];
+        double[] lon = new double[size];
+        lat[0] = Math.toRadians(depotLat);
+        lon[0] = Math.toRadians(depotLon);
+        for (int i = 1; i < size; i++) {
+            lat[i] = Math.toRadians(stops.get(i - 1).latitude());
+            lon[i] = Math.toRadians(stops.get(i - 1).longitude());
+        }
+
+        double[] cosLat = new double[size];
+        for (int i = 0; i < size; i++) {
+            cosLat[i] = Math.cos(lat[i]);
+        }
+        double metersPerMinute = speedKmh * 1000 / 60;
+        double[] distance = new double[size * size];
+        double[] travel = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double d = haversine(lat[i], lon[i], cosLat[i], lat[j], lon[j], cosLat[j]);
+                distance[i * size + j] = d;
+                distance[j * size + i] = d;
+                travel[i * size + j] = d / metersPerMinute;
+                travel[j * size + i] = d / metersPerMinute;
+            }
+        }
+        return withMatrices(stops, vehicles, vehicleCapacity, stockLimit, shiftMinutes, distance, travel);
+    }
+
+    /**
+     * Problem over precomputed row-major matrices (node 0 is the depot), e.g. road travel times.
+     * Non-finite entries mark pairs with no connection; they are replaced by a penalty that makes
+     * any route using them infeasible within a finite shift.
+     */
+    public static VrpProblem withMatrices(List<Stop> stops, int vehicles, int vehicleCapacity, int stockLimit,
+                                          double shiftMinutes, double[] distanceMeters, double[] travelMinutes) {
+        validate(stops, vehicles, vehicleCapacity);
+        int size = stops.size() + 1;
+        if (distanceMeters.length != size * size || travelMinutes.length != size * size) {
+            throw new IllegalArgumentException("Matrices must cover the depot and every stop");
+        }
+
+        double[] distance = distanceMeters.clone();
+        double[] travel = travelMinutes.clone();
+        for (int k = 0; k < distance.length; k++) {
+            if (!Double.isFinite(distance[k]) || !Double.isFinite(travel[k])) {
+                distance[k] = UNREACHABLE_METERS;
+                travel[k] = UNREACHABLE_MINUTES;
+            }
+        }
+
+        int[] demand = new int[size];
+        double[] earliest = new double[size];
+        double[] latest = new double[size];
+        double[] service = new double[size];
+        latest[0] = shiftMinutes;
+        for (int i = 1; i < size; i++) {
+            Stop stop = stops.get(i - 1);
+            demand[i] = Math.max(0, stop.demand());
+            earliest[i] = Math.max(0, stop.earliestMinutes());
+            latest[i] = Math.min(shiftMinutes, stop.latestMinutes());
+            service[i] = Math.max(0, stop.serviceMinutes());
+        }
+        return new VrpProblem(size, distance, travel, demand, earliest, latest, service,
+            vehicles, vehicleCapacity, Math.max(0, stockLimit));
+    }
+
+    private static void validate(List<Stop> stops, int vehicles, int vehicleCapacity) {
+        if (vehicles <= 0 || vehicleCapacity <= 0) {
+            throw new IllegalArgumentException("At least one vehicle with positive capacity is required");
+        }
+        if (stops.size() >= 65_535) {
+            throw new IllegalArgumentException("Too many stops");
+        }
+    }
+
+    /**
+     * Great-circle distance in metres between two points given in degrees
+     */
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        return haversine(phi1, Math.toRadians(lon1), Math.cos(phi1), phi2, Math.toRadians(lon2), Math.cos(phi2));
+    }
+
+    private static double haversine(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin((lon2 - lon1) / 2);
+        double a = sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /** Number of nodes including the depot. */
+    public int size() { return size; }
+
+    public int stopCount() { return size - 1; }
+
+    public double distance(int from, int to) { return distance[from * size + to]; }
+
+    public double travel(int from, int to) { return travel[from * size + to]; }
+
+    public int demand(int node) { return demand[node]; }
+
+    public double earliest(int node) { return earliest[node]; }
+
+    public double latest(int node) { return latest[node]; }
+
+    public double service(int node) { return service[node]; }
+
+    public int vehicles() { return vehicles; }
+
+    public int vehicleCapacity() { return vehicleCapacity; }
+
+    public int stockLimit() { return stockLimit; }
+
+    /** Whether every distance is the same in both directions. */
+    public boolean isSymmetric() { return symmetric; }
+
+    /**
+     * Whether visiting {@code route} in order from and back to the depot respects capacity and
+     * every time window.
+     */
+    public boolean isFeasible(int[] route, int length) {
+        int load = 0;
+        double time = 0;
+        int previous = 0;
+        for (int i = 0; i < length; i++) {
+            int stop = route[i];
+            load += demand[stop];
+            if (load > vehicleCapacity) return false;
+            time = Math.max(time + travel[previous * size + stop], earliest[stop]);
+            if (time > latest[stop]) return false;
+            time += service[stop];
+            previous = stop;
+        }
+        return time + travel[previous * size] <= latest[0];
+    }
+
+    /**
+     * Return time at the depot after serving {@code route}, including waiting and service.
+     */
+    public double duration(int[] route) {
+        double time = 0;
+        int previous = 0;
+        for (int stop : route) {
+            time = Math.max(time + travel[previous * size + stop], earliest[stop]) + service[stop];
+            previous = stop;
+        }
+        return time + travel[previous * size];
+    }
+
+    public double routeDistance(int[] route) {
+        double total = 0;
+        int previous = 0;
+        for (int stop : route) {
+            total += distance[previous * size + stop];
+            previous = stop;
+        }
+        return total + distance[previous * size];
+    }
+
+    /**
+     * One delivery stop; time window bounds the start of service.
+     */
+    public record Stop(
+        double latitude,
+        double longitude,
+        int demand,
+        double earliestMinutes,
+        double latestMinutes,
+        double serviceMinutes
+    ) {}
+}
@@ -0,0 +1,952 @@
+package com.relief.service.roadnetwork;
+
+import com.relief.util.IntDoubleMinHeap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Contraction hierarchy over a {@link RoadGraph} with travel time as the metric.
+ *
+ * Nodes are contracted in order of a lazily updated priority (depth in the hierarchy plus the
+ * ratios of edges and original arcs added to those removed); a shortcut {@code u -> w} replaces {@code u -> v -> w} whenever a
+ * bounded witness search finds no path of equal or lower time avoiding {@code v}. Queries are
+ * bidirectional upward searches. Each hierarchy edge is either an original arc or the
+ * concatenation of two lower edges, so paths unpack to arcs.
+ *
+ * Closures are applied as a {@link ClosureOverlay} without re-contraction. Closing roads can only
+ * make travel slower, so a path found on the open network that avoids every closed arc is still
+ * optimal. Queries whose open-network path crosses a closure are answered by a search on the
+ * base graph that skips closed arcs.
+ */
+public final class ContractionHierarchy {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int SIMULATION_SETTLE_LIMIT = 60;
+    private static final int CONTRACTION_SETTLE_LIMIT = 500;
+
+    private final RoadGraph graph;
+    private final int[] rank;
+
+    // Hierarchy edges: original arcs (arc >= 0) or shortcuts over child1 then child2
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeWeight;
+    private final float[] edgeLength;
+    private final int[] edgeArc;
+    private final int[] edgeChild1;
+    private final int[] edgeChild2;
+
+    // Upward edges from each node (forward search) and upward reverse edges (backward search)
+    private final int[] upFirst;
+    private final int[] upHead;
+    private final int[] upEdge;
+    private final int[] downFirst;
+    private final int[] downHead;
+    private final int[] downEdge;
+
+    private final double maxMetersPerDecisecond;
+    private final Queue<QueryBuffers> buffers = new ConcurrentLinkedQueue<>();
+
+    private ContractionHierarchy(RoadGraph graph, int[] rank, int[] edgeFrom, int[] edgeTo, int[] edgeWeight,
+                                 float[] edgeLength, int[] edgeArc, int[] edgeChild1, int[] edgeChild2,
+                                 int[] upFirst, int[] upHead, int[] upEdge,
+                                 int[] downFirst, int[] downHead, int[] downEdge) {
+        this.graph = graph;
+        this.rank = rank;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeWeight = edgeWeight;
+        this.edgeLength = edgeLength;
+        this.edgeArc = edgeArc;
+        this.edgeChild1 = edgeChild1;
+        this.edgeChild2 = edgeChild2;
+        this.upFirst = upFirst;
+        this.upHead = upHead;
+        this.upEdge = upEdge;
+        this.downFirst = downFirst;
+        this.downHead = downHead;
+        this.downEdge = downEdge;
+
+        double fastest = 1e-3;
+        for (int arc = 0; arc < graph.arcCount(); arc++) {
+            fastest = Math.max(fastest, graph.length(arc) / graph.weight(arc));
+        }
+        this.maxMetersPerDecisecond = fastest;
+    }
+
+    /**
+     * Contract every node of the graph
+     */
+    public static ContractionHierarchy build(RoadGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    public RoadGraph graph() { return graph; }
+
+    public int edgeCount() { return edgeWeight.length; }
+
+    public int shortcutCount() {
+        int shortcuts = 0;
+        for (int arc : edgeArc) {
+            if (arc < 0) shortcuts++;
+        }
+        return shortcuts;
+    }
+
+    public int rank(int node) { return rank[node]; }
+
+    /**
+     * Closure overlay for a set of closed base-graph arcs; marks every hierarchy edge that
+     * contains one of them
+     */
+    public ClosureOverlay overlay(BitSet closedArcs) {
+        BitSet closedEdges = new BitSet(edgeWeight.length);
+        if (!closedArcs.isEmpty()) {
+            // Shortcuts are created after their children, so one pass in edge order suffices
+            for (int e = 0; e < edgeWeight.length; e++) {
+                boolean closed = edgeArc[e] >= 0 ? closedArcs.get(edgeArc[e])
+                    : closedEdges.get(edgeChild1[e]) || closedEdges.get(edgeChild2[e]);
+                if (closed) closedEdges.set(e);
+            }
+        }
+        return new ClosureOverlay((BitSet) closedArcs.clone(), closedEdges);
+    }
+
+    /**
+     * Quickest path between two nodes, or {@code null} if the target cannot be reached
+     */
+    public RoadPath route(int source, int target, ClosureOverlay closures) {
+        if (source == target) {
+            return new RoadPath(new int[]{source}, 0, 0);
+        }
+        QueryBuffers q = acquire();
+        try {
+            return route(q, source, target, closures);
+        } finally {
+            buffers.offer(q);
+        }
+    }
+
+    private RoadPath route(QueryBuffers q, int source, int target, ClosureOverlay closures) {
+        q.nextForward();
+        q.nextBackward();
+        q.forward.clear();
+        q.backward.clear();
+        q.setForward(source, 0, -1);
+        q.setBackward(target, 0, -1);
+        q.forward.add(source, 0);
+        q.backward.add(target, 0);
+
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        while (!q.forward.isEmpty() || !q.backward.isEmpty()) {
+            double forwardMin = q.forward.isEmpty() ? Double.POSITIVE_INFINITY : q.forward.peekKey();
+            double backwardMin = q.backward.isEmpty() ? Double.POSITIVE_INFINITY : q.backward.peekKey();
+            if (Math.min(forwardMin, backwardMin) >= best) break;
+
+            boolean forward = forwardMin <= backwardMin;
+            IntDoubleMinHeap heap = forward ? q.forward : q.backward;
+            double key = heap.peekKey();
+            int node = heap.poll();
+            int distance = forward ? q.forwardDistance(node) : q.backwardDistance(node);
+            if (key > distance) continue;
+
+            int other = forward ? q.backwardDistance(node) : q.forwardDistance(node);
+            if (other != INFINITY && (long) distance + other < best) {
+                best = (long) distance + other;
+                meeting = node;
+            }
+            int[] first = forward ? upFirst : downFirst;
+            int[] heads = forward ? upHead : downHead;
+            int[] edges = forward ? upEdge : downEdge;
+            for (int i = first[node]; i < first[node + 1]; i++) {
+                int next = heads[i];
+                int candidate = distance + edgeWeight[edges[i]];
+                if (forward) {
+                    if (candidate < q.forwardDistance(next)) {
+                        q.setForward(next, candidate, edges[i]);
+                        heap.add(next, candidate);
+                    }
+                } else if (candidate < q.backwardDistance(next)) {
+                    q.setBackward(next, candidate, edges[i]);
+                    heap.add(next, candidate);
+                }
+            }
+        }
+        if (meeting < 0) {
+            return closures.isEmpty() ? null : routeAvoiding(q, source, target, closures);
+        }
+
+        IntList edges = new IntList();
+        for (int node = meeting; q.forwardParent(node) >= 0; ) {
+            int edge = q.forwardParent(node);
+            edges.add(edge);
+            node = edgeFrom[edge];
+        }
+        edges.reverse();
+        for (int node = meeting; q.backwardParent(node) >= 0; ) {
+            int edge = q.backwardParent(node);
+            edges.add(edge);
+            node = edgeTo[edge];
+        }
+        for (int i = 0; i < edges.size; i++) {
+            if (closures.closedEdges.get(edges.values[i])) {
+                return routeAvoiding(q, source, target, closures);
+            }
+        }
+        return unpack(source, edges);
+    }
+
+    /**
+     * Travel times in seconds and lengths in metres from {@code source} to each target;
+     * unreachable targets get {@code Double.POSITIVE_INFINITY}
+     */
+    public void travelTimes(int source, int[] targets, ClosureOverlay closures, double[] seconds, double[] meters) {
+        QueryBuffers q = acquire();
+        try {
+            travelTimes(q, source, targets, closures, seconds, meters);
+        } finally {
+            buffers.offer(q);
+        }
+    }
+
+    private void travelTimes(QueryBuffers q, int source, int[] targets, ClosureOverlay closures,
+                             double[] seconds, double[] meters) {
+
+        // Full upward search from the source, shared by all targets
+        q.nextForward();
+        q.forward.clear();
+        q.setForward(source, 0, -1);
+        q.forwardMeters[source] = 0;
+        q.forward.add(source, 0);
+        while (!q.forward.isEmpty()) {
+            double key = q.forward.peekKey();
+            int node = q.forward.poll();
+            int distance = q.forwardDistance(node);
+            if (key > distance) continue;
+            for (int i = upFirst[node]; i < upFirst[node + 1]; i++) {
+                int next = upHead[i];
+                int candidate = distance + edgeWeight[upEdge[i]];
+                if (candidate < q.forwardDistance(next)) {
+                    q.setForward(next, candidate, upEdge[i]);
+                    q.forwardMeters[next] = q.forwardMeters[node] + edgeLength[upEdge[i]];
+                    q.forward.add(next, candidate);
+                }
+            }
+        }
+
+        IntList blocked = new IntList();
+        for (int t = 0; t < targets.length; t++) {
+            int target = targets[t];
+            q.nextBackward();
+            q.backward.clear();
+            q.setBackward(target, 0, -1);
+            q.backwardMeters[target] = 0;
+            q.backward.add(target, 0);
+            long best = Long.MAX_VALUE;
+            int meeting = -1;
+            while (!q.backward.isEmpty() && q.backward.peekKey() < best) {
+                double key = q.backward.peekKey();
+                int node = q.backward.poll();
+                int distance = q.backwardDistance(node);
+                if (key > distance) continue;
+                int forwardDistance = q.forwardDistance(node);
+                if (forwardDistance != INFINITY && (long) forwardDistance + distance < best) {
+                    best = (long) forwardDistance + distance;
+                    meeting = node;
+                }
+                for (int i = downFirst[node]; i < downFirst[node + 1]; i++) {
+                    int next = downHead[i];
+                    int candidate = distance + edgeWeight[downEdge[i]];
+                    if (candidate < q.backwardDistance(next)) {
+                        q.setBackward(next, candidate, downEdge[i]);
+                        q.backwardMeters[next] = q.backwardMeters[node] + edgeLength[downEdge[i]];
+                        q.backward.add(next, candidate);
+                    }
+                }
+            }
+
+            if (meeting >= 0 && !closures.isEmpty() && crossesClosure(q, meeting, closures)) {
+                blocked.add(t);
+            } else if (meeting >= 0) {
+                seconds[t] = best / 10.0;
+                meters[t] = q.forwardMeters[meeting] + q.backwardMeters[meeting];
+            } else if (closures.isEmpty()) {
+                seconds[t] = Double.POSITIVE_INFINITY;
+                meters[t] = Double.POSITIVE_INFINITY;
+            } else {
+                blocked.add(t);
+            }
+        }
+        if (blocked.size > 0) {
+            travelTimesAvoiding(q, source, targets, blocked, closures, seconds, meters);
+        }
+    }
+
+    /**
+     * Travel time matrix between sources and targets, row-major by source. Without closures this
+     * uses one backward search per target with buckets at the settled nodes and one forward
+     * search per source.
+     */
+    public void travelTimeMatrix(int[] sources, int[] targets, ClosureOverlay closures,
+                                 double[] seconds, double[] meters) {
+        if (!closures.isEmpty()) {
+            double[] rowSeconds = new double[targets.length];
+            double[] rowMeters = new double[targets.length];
+            for (int s = 0; s < sources.length; s++) {
+                travelTimes(sources[s], targets, closures, rowSeconds, rowMeters);
+                System.arraycopy(rowSeconds, 0, seconds, s * targets.length, targets.length);
+                System.arraycopy(rowMeters, 0, meters, s * targets.length, targets.length);
+            }
+            return;
+        }
+
+        QueryBuffers q = acquire();
+        try {
+            travelTimeMatrix(q, sources, targets, seconds, meters);
+        } finally {
+            buffers.offer(q);
+        }
+    }
+
+    private void travelTimeMatrix(QueryBuffers q, int[] sources, int[] targets, double[] seconds, double[] meters) {
+        IntList bucketNode = new IntList();
+        IntList bucketTarget = new IntList();
+        IntList bucketDistance = new IntList();
+        FloatList bucketMeters = new FloatList();
+        for (int t = 0; t < targets.length; t++) {
+            q.nextBackward();
+            q.backward.clear();
+            q.setBackward(targets[t], 0, -1);
+            q.backwardMeters[targets[t]] = 0;
+            q.backward.add(targets[t], 0);
+            while (!q.backward.isEmpty()) {
+                double key = q.backward.peekKey();
+                int node = q.backward.poll();
+                int distance = q.backwardDistance(node);
+                if (key > distance) continue;
+                bucketNode.add(node);
+                bucketTarget.add(t);
+                bucketDistance.add(distance);
+                bucketMeters.add((float) q.backwardMeters[node]);
+                for (int i = downFirst[node]; i < downFirst[node + 1]; i++) {
+                    int next = downHead[i];
+                    int candidate = distance + edgeWeight[downEdge[i]];
+                    if (candidate < q.backwardDistance(next)) {
+                        q.setBackward(next, candidate, downEdge[i]);
+                        q.backwardMeters[next] = q.backwardMeters[node] + edgeLength[downEdge[i]];
+                        q.backward.add(next, candidate);
+                    }
+                }
+            }
+        }
+
+        // Group bucket entries by node
+        int nodes = graph.nodeCount();
+        int[] bucketStart = new int[nodes + 1];
+        for (int i = 0; i < bucketNode.size; i++) {
+            bucketStart[bucketNode.values[i] + 1]++;
+        }
+        for (int v = 0; v < nodes; v++) {
+            bucketStart[v + 1] += bucketStart[v];
+        }
+        int[] order = new int[bucketNode.size];
+        int[] fill = Arrays.copyOf(bucketStart, nodes);
+        for (int i = 0; i < bucketNode.size; i++) {
+            order[fill[bucketNode.values[i]]++] = i;
+        }
+
+        long[] best = new long[targets.length];
+        for (int s = 0; s < sources.length; s++) {
+            Arrays.fill(best, Long.MAX_VALUE);
+            int row = s * targets.length;
+            q.nextForward();
+            q.forward.clear();
+            q.setForward(sources[s], 0, -1);
+            q.forwardMeters[sources[s]] = 0;
+            q.forward.add(sources[s], 0);
+            while (!q.forward.isEmpty()) {
+                double key = q.forward.peekKey();
+                int node = q.forward.poll();
+                int distance = q.forwardDistance(node);
+                if (key > distance) continue;
+                for (int b = bucketStart[node]; b < bucketStart[node + 1]; b++) {
+                    int entry = order[b];
+                    int t = bucketTarget.values[entry];
+                    long total = (long) distance + bucketDistance.values[entry];
+                    if (total < best[t]) {
+                        best[t] = total;
+                        meters[row + t] = q.forwardMeters[node] + bucketMeters.values[entry];
+                    }
+                }
+                for (int i = upFirst[node]; i < upFirst[node + 1]; i++) {
+                    int next = upHead[i];
+                    int candidate = distance + edgeWeight[upEdge[i]];
+                    if (candidate < q.forwardDistance(next)) {
+                        q.setForward(next, candidate, upEdge[i]);
+                        q.forwardMeters[next] = q.forwardMeters[node] + edgeLength[upEdge[i]];
+                        q.forward.add(next, candidate);
+                    }
+                }
+            }
+            for (int t = 0; t < targets.length; t++) {
+                if (best[t] == Long.MAX_VALUE) {
+                    seconds[row + t] = Double.POSITIVE_INFINITY;
+                    meters[row + t] = Double.POSITIVE_INFINITY;
+                } else {
+                    seconds[row + t] = best[t] / 10.0;
+                }
+            }
+        }
+    }
+
+    private boolean crossesClosure(QueryBuffers q, int meeting, ClosureOverlay closures) {
+        for (int node = meeting; q.forwardParent(node) >= 0; ) {
+            int edge = q.forwardParent(node);
+            if (closures.closedEdges.get(edge)) return true;
+            node = edgeFrom[edge];
+        }
+        for (int node = meeting; q.backwardParent(node) >= 0; ) {
+            int edge = q.backwardParent(node);
+            if (closures.closedEdges.get(edge)) return true;
+            node = edgeTo[edge];
+        }
+        return false;
+    }
+
+    private RoadPath unpack(int source, IntList edges) {
+        IntList nodes = new IntList();
+        nodes.add(source);
+        int[] stack = new int[64];
+        long time = 0;
+        double length = 0;
+        for (int i = 0; i < edges.size; i++) {
+            int top = 0;
+            stack[top++] = edges.values[i];
+            while (top > 0) {
+                int e = stack[--top];
+                if (edgeArc[e] >= 0) {
+                    nodes.add(graph.head(edgeArc[e]));
+                    time += edgeWeight[e];
+                    length += edgeLength[e];
+                } else {
+                    if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                    stack[top++] = edgeChild2[e];
+                    stack[top++] = edgeChild1[e];
+                }
+            }
+        }
+        return new RoadPath(nodes.toArray(), time / 10.0, length);
+    }
+
+    /**
+     * A* on the base graph skipping closed arcs, with the straight-line distance at the fastest
+     * arc speed as the heuristic
+     */
+    private RoadPath routeAvoiding(QueryBuffers q, int source, int target, ClosureOverlay closures) {
+        q.nextForward();
+        q.forward.clear();
+        q.setForward(source, 0, -1);
+        double targetLat = graph.latitude(target);
+        double targetLon = graph.longitude(target);
+        q.forward.add(source, heuristic(source, targetLat, targetLon));
+        while (!q.forward.isEmpty()) {
+            int node = q.forward.poll();
+            if (node == target) break;
+            int distance = q.forwardDistance(node);
+            if (q.settled(node)) continue;
+            q.settle(node);
+            for (int arc = graph.firstOut(node); arc < graph.endOut(node); arc++) {
+                if (closures.closedArcs.get(arc)) continue;
+                int next = graph.head(arc);
+                int candidate = distance + graph.weight(arc);
+                if (candidate < q.forwardDistance(next)) {
+                    q.setForward(next, candidate, arc);
+                    q.forward.add(next, candidate + heuristic(next, targetLat, targetLon));
+                }
+            }
+        }
+        if (q.forwardDistance(target) == INFINITY) return null;
+
+        IntList arcs = new IntList();
+        for (int node = target; node != source; node = graph.tail(q.forwardParent(node))) {
+            arcs.add(q.forwardParent(node));
+        }
+        arcs.reverse();
+        int[] nodes = new int[arcs.size + 1];
+        nodes[0] = source;
+        double length = 0;
+        for (int i = 0; i < arcs.size; i++) {
+            nodes[i + 1] = graph.head(arcs.values[i]);
+            length += graph.length(arcs.values[i]);
+        }
+        return new RoadPath(nodes, q.forwardDistance(target) / 10.0, length);
+    }
+
+    private double heuristic(int node, double targetLat, double targetLon) {
+        if (!graph.hasCoordinates(node)) return 0;
+        return RoadGraph.haversine(graph.latitude(node), graph.longitude(node), targetLat, targetLon)
+            / maxMetersPerDecisecond;
+    }
+
+    /**
+     * Dijkstra on the base graph skipping closed arcs until the given targets are settled
+     */
+    private void travelTimesAvoiding(QueryBuffers q, int source, int[] targets, IntList pending,
+                                     ClosureOverlay closures, double[] seconds, double[] meters) {
+        q.nextForward();
+        q.forward.clear();
+        q.setForward(source, 0, -1);
+        q.forwardMeters[source] = 0;
+        q.forward.add(source, 0);
+
+        BitSet wanted = new BitSet(graph.nodeCount());
+        for (int i = 0; i < pending.size; i++) {
+            wanted.set(targets[pending.values[i]]);
+        }
+        int remaining = wanted.cardinality();
+        while (!q.forward.isEmpty() && remaining > 0) {
+            int node = q.forward.poll();
+            if (q.settled(node)) continue;
+            q.settle(node);
+            if (wanted.get(node)) {
+                remaining--;
+            }
+            int distance = q.forwardDistance(node);
+            for (int arc = graph.firstOut(node); arc < graph.endOut(node); arc++) {
+                if (closures.closedArcs.get(arc)) continue;
+                int next = graph.head(arc);
+                int candidate = distance + graph.weight(arc);
+                if (candidate < q.forwardDistance(next)) {
+                    q.setForward(next, candidate, arc);
+                    q.forwardMeters[next] = q.forwardMeters[node] + graph.length(arc);
+                    q.forward.add(next, candidate);
+                }
+            }
+        }
+        for (int i = 0; i < pending.size; i++) {
+            int t = pending.values[i];
+            int distance = q.settled(targets[t]) ? q.forwardDistance(targets[t]) : INFINITY;
+            seconds[t] = distance == INFINITY ? Double.POSITIVE_INFINITY : distance / 10.0;
+            meters[t] = distance == INFINITY ? Double.POSITIVE_INFINITY : q.forwardMeters[targets[t]];
+        }
+    }
+
+    private QueryBuffers acquire() {
+        QueryBuffers q = buffers.poll();
+        return q != null ? q : new QueryBuffers(graph.nodeCount());
+    }
+
+    /**
+     * Closed arcs of the base graph and the hierarchy edges that contain them
+     */
+    public static final class ClosureOverlay {
+        private final BitSet closedArcs;
+        private final BitSet closedEdges;
+
+        private ClosureOverlay(BitSet closedArcs, BitSet closedEdges) {
+            this.closedArcs = closedArcs;
+            this.closedEdges = closedEdges;
+        }
+
+        public boolean isEmpty() { return closedArcs.isEmpty(); }
+
+        public int closedArcCount() { return closedArcs.cardinality(); }
+
+        public boolean isClosed(int arc) { return closedArcs.get(arc); }
+    }
+
+    /**
+     * Path as graph nodes with its travel time in seconds and length in metres
+     */
+    public record RoadPath(int[] nodes, double seconds, double meters) {}
+
+    /**
+     * Search state borrowed per query and reset by generation stamps, so concurrent queries
+     * share a small pool instead of allocating node-sized arrays each time
+     */
+    private static final class QueryBuffers {
+        final int[] forwardDistance;
+        final int[] forwardParent;
+        final int[] forwardStamp;
+        final double[] forwardMeters;
+        final int[] backwardDistance;
+        final int[] backwardParent;
+        final int[] backwardStamp;
+        final double[] backwardMeters;
+        final int[] settledStamp;
+        final IntDoubleMinHeap forward = new IntDoubleMinHeap();
+        final IntDoubleMinHeap backward = new IntDoubleMinHeap();
+        int forwardGeneration;
+        int backwardGeneration;
+
+        QueryBuffers(int nodes) {
+            forwardDistance = new int[nodes];
+            forwardParent = new int[nodes];
+            forwardStamp = new int[nodes];
+            forwardMeters = new double[nodes];
+            backwardDistance = new int[nodes];
+            backwardParent = new int[nodes];
+            backwardStamp = new int[nodes];
+            backwardMeters = new double[nodes];
+            settledStamp = new int[nodes];
+        }
+
+        void nextForward() {
+            if (++forwardGeneration == Integer.MAX_VALUE) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(settledStamp, 0);
+                forwardGeneration = 1;
+            }
+        }
+
+        void nextBackward() {
+            if (++backwardGeneration == Integer.MAX_VALUE) {
+                Arrays.fill(backwardStamp, 0);
+                backwardGeneration = 1;
+            }
+        }
+
+        int forwardDistance(int node) {
+            return forwardStamp[node] == forwardGeneration ? forwardDistance[node] : INFINITY;
+        }
+
+        int forwardParent(int node) { return forwardParent[node]; }
+
+        void setForward(int node, int distance, int parent) {
+            forwardStamp[node] = forwardGeneration;
+            forwardDistance[node] = distance;
+            forwardParent[node] = parent;
+        }
+
+        boolean settled(int node) { return settledStamp[node] == forwardGeneration; }
+
+        void settle(int node) { settledStamp[node] = forwardGeneration; }
+
+        int backwardDistance(int node) {
+            return backwardStamp[node] == backwardGeneration ? backwardDistance[node] : INFINITY;
+        }
+
+        int backwardParent(int node) { return backwardParent[node]; }
+
+        void setBackward(int node, int distance, int parent) {
+            backwardStamp[node] = backwardGeneration;
+            backwardDistance[node] = distance;
+            backwardParent[node] = parent;
+        }
+    }
+
+    /**
+     * Node ordering and contraction
+     */
+    private static final class Builder {
+        private final RoadGraph graph;
+        private final int nodes;
+
+        private final IntList edgeFrom = new IntList();
+        private final IntList edgeTo = new IntList();
+        private final IntList weight = new IntList();
+        private final FloatList length = new FloatList();
+        private final IntList arc = new IntList();
+        private final IntList child1 = new IntList();
+        private final IntList child2 = new IntList();
+        private final IntList hops = new IntList();
+
+        private final int[][] out;
+        private final int[] outSize;
+        private final int[][] in;
+        private final int[] inSize;
+        private final boolean[] contracted;
+        private final int[] depth;
+        private final double[] priority;
+        private int addedHops;
+
+        private final IntList upOwner = new IntList();
+        private final IntList upEdgeList = new IntList();
+        private final IntList downOwner = new IntList();
+        private final IntList downEdgeList = new IntList();
+
+        // Witness search state
+        private final int[] witnessDistance;
+        private final int[] witnessStamp;
+        private final IntDoubleMinHeap witnessHeap = new IntDoubleMinHeap();
+        private int witnessGeneration;
+
+        Builder(RoadGraph graph) {
+            this.graph = graph;
+            this.nodes = graph.nodeCount();
+            this.out = new int[nodes][];
+            this.outSize = new int[nodes];
+            this.in = new int[nodes][];
+            this.inSize = new int[nodes];
+            this.contracted = new boolean[nodes];
+            this.depth = new int[nodes];
+            this.priority = new double[nodes];
+            this.witnessDistance = new int[nodes];
+            this.witnessStamp = new int[nodes];
+            for (int v = 0; v < nodes; v++) {
+                out[v] = new int[Math.max(2, graph.endOut(v) - graph.firstOut(v))];
+                in[v] = new int[2];
+            }
+        }
+
+        ContractionHierarchy build() {
+            for (int u = 0; u < nodes; u++) {
+                for (int a = graph.firstOut(u); a < graph.endOut(u); a++) {
+                    int v = graph.head(a);
+                    if (v != u) {
+                        addEdge(u, v, graph.weight(a), graph.length(a), a, -1, -1);
+                    }
+                }
+            }
+
+            IntDoubleMinHeap queue = new IntDoubleMinHeap(nodes);
+            for (int v = 0; v < nodes; v++) {
+                priority[v] = computePriority(v);
+                queue.add(v, priority[v]);
+            }
+
+            int[] rank = new int[nodes];
+            int next = 0;
+            while (!queue.isEmpty()) {
+                double key = queue.peekKey();
+                int v = queue.poll();
+                if (contracted[v] || key != priority[v]) continue;
+
+                // Lazy update: re-evaluate and defer if no longer the minimum
+                double current = computePriority(v);
+                if (!queue.isEmpty() && current > queue.peekKey()) {
+                    priority[v] = current;
+                    queue.add(v, current);
+                    continue;
+                }
+
+                contract(v);
+                rank[v] = next++;
+
+                for (int i = 0; i < inSize[v]; i++) {
+                    touch(edgeFrom.values[in[v][i]], v, queue);
+                }
+                for (int i = 0; i < outSize[v]; i++) {
+                    touch(edgeTo.values[out[v][i]], v, queue);
+                }
+                detach(v);
+            }
+
+            int[] upFirst = new int[nodes + 1];
+            int[] upHead = new int[upEdgeList.size];
+            int[] upEdge = new int[upEdgeList.size];
+            toCsr(upOwner, upEdgeList, edgeTo, upFirst, upHead, upEdge);
+            int[] downFirst = new int[nodes + 1];
+            int[] downHead = new int[downEdgeList.size];
+            int[] downEdge = new int[downEdgeList.size];
+            toCsr(downOwner, downEdgeList, edgeFrom, downFirst, downHead, downEdge);
+
+            return new ContractionHierarchy(graph, rank, edgeFrom.toArray(), edgeTo.toArray(), weight.toArray(),
+                length.toArray(), arc.toArray(), child1.toArray(), child2.toArray(),
+                upFirst, upHead, upEdge, downFirst, downHead, downEdge);
+        }
+
+        private void touch(int neighbor, int contractedNode, IntDoubleMinHeap queue) {
+            depth[neighbor] = Math.max(depth[neighbor], depth[contractedNode] + 1);
+        }
+
+        private double computePriority(int v) {
+            addedHops = 0;
+            int shortcuts = contractOrCount(v, false);
+            int removed = inSize[v] + outSize[v];
+            if (removed == 0) return 1000.0 * depth[v];
+            int removedHops = 0;
+            for (int i = 0; i < inSize[v]; i++) removedHops += hops.values[in[v][i]];
+            for (int i = 0; i < outSize[v]; i++) removedHops += hops.values[out[v][i]];
+            return 1000.0 * depth[v] + 1000.0 * addedHops / removedHops + 1000.0 * shortcuts / removed;
+        }
+
+        private void contract(int v) {
+            contractOrCount(v, true);
+            contracted[v] = true;
+            for (int i = 0; i < outSize[v]; i++) {
+                upOwner.add(v);
+                upEdgeList.add(out[v][i]);
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                downOwner.add(v);
+                downEdgeList.add(in[v][i]);
+            }
+        }
+
+        /**
+         * Count the shortcuts contracting {@code v} needs, adding them if {@code add} is set
+         */
+        private int contractOrCount(int v, boolean add) {
+            int shortcuts = 0;
+            int limit = add ? CONTRACTION_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT;
+            for (int i = 0; i < inSize[v]; i++) {
+                int inEdge = in[v][i];
+                int u = edgeFrom.values[inEdge];
+                int inWeight = weight.values[inEdge];
+                int maxTarget = 0;
+                for (int j = 0; j < outSize[v]; j++) {
+                    int w = edgeTo.values[out[v][j]];
+                    if (w != u) maxTarget = Math.max(maxTarget, inWeight + weight.values[out[v][j]]);
+                }
+                if (maxTarget == 0) continue;
+
+                witnessSearch(u, v, maxTarget, limit);
+                // Snapshot: adding shortcuts grows out[v] only through other nodes' lists
+                int outCount = outSize[v];
+                for (int j = 0; j < outCount; j++) {
+                    int outEdge = out[v][j];
+                    int w = edgeTo.values[outEdge];
+                    if (w == u) continue;
+                    int via = inWeight + weight.values[outEdge];
+                    int witness = witnessStamp[w] == witnessGeneration ? witnessDistance[w] : INFINITY;
+                    if (witness > via) {
+                        shortcuts++;
+                        addedHops += hops.values[inEdge] + hops.values[outEdge];
+                        if (add) {
+                            addEdge(u, w, via, length.values[inEdge] + length.values[outEdge], -1, inEdge, outEdge);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        private void witnessSearch(int source, int excluded, int maxDistance, int settleLimit) {
+            witnessGeneration++;
+            witnessHeap.clear();
+            witnessStamp[source] = witnessGeneration;
+            witnessDistance[source] = 0;
+            witnessHeap.add(source, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < settleLimit) {
+                double key = witnessHeap.peekKey();
+                int node = witnessHeap.poll();
+                if (key > witnessDistance[node]) continue;
+                if (key > maxDistance) break;
+                settled++;
+                for (int i = 0; i < outSize[node]; i++) {
+                    int e = out[node][i];
+                    int next = edgeTo.values[e];
+                    if (next == excluded) continue;
+                    int candidate = witnessDistance[node] + weight.values[e];
+                    if (candidate > maxDistance) continue;
+                    if (witnessStamp[next] != witnessGeneration || candidate < witnessDistance[next]) {
+                        witnessStamp[next] = witnessGeneration;
+                        witnessDistance[next] = candidate;
+                        witnessHeap.add(next, candidate);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add edge {@code u -> v}, replacing a slower parallel edge. Replaced edges leave the
+         * adjacency lists but stay stored, since shortcuts may already reference them.
+         */
+        private void addEdge(int u, int v, int w, float meters, int originalArc, int first, int second) {
+            for (int i = 0; i < outSize[u]; i++) {
+                int existing = out[u][i];
+                if (edgeTo.values[existing] == v) {
+                    if (weight.values[existing] <= w) return;
+                    out[u][i] = out[u][--outSize[u]];
+                    removeFrom(in[v], inSize, v, existing);
+                    break;
+                }
+            }
+            int e = edgeFrom.size;
+            edgeFrom.add(u);
+            edgeTo.add(v);
+            weight.add(w);
+            length.add(meters);
+            arc.add(originalArc);
+            child1.add(first);
+            child2.add(second);
+            hops.add(originalArc >= 0 ? 1 : hops.values[first] + hops.values[second]);
+            if (outSize[u] == out[u].length) out[u] = Arrays.copyOf(out[u], out[u].length * 2);
+            out[u][outSize[u]++] = e;
+            if (inSize[v] == in[v].length) in[v] = Arrays.copyOf(in[v], in[v].length * 2);
+            in[v][inSize[v]++] = e;
+        }
+
+        /**
+         * Remove a contracted node's edges from its neighbours' adjacency lists
+         */
+        private void detach(int v) {
+            for (int i = 0; i < inSize[v]; i++) {
+                int e = in[v][i];
+                int u = edgeFrom.values[e];
+                removeFrom(out[u], outSize, u, e);
+            }
+            for (int i = 0; i < outSize[v]; i++) {
+                int e = out[v][i];
+                int w = edgeTo.values[e];
+                removeFrom(in[w], inSize, w, e);
+            }
+            out[v] = null;
+            in[v] = null;
+            outSize[v] = 0;
+            inSize[v] = 0;
+        }
+
+        private static void removeFrom(int[] list, int[] sizes, int owner, int edge) {
+            for (int i = 0; i < sizes[owner]; i++) {
+                if (list[i] == edge) {
+                    list[i] = list[--sizes[owner]];
+                    return;
+                }
+            }
+        }
+
+        private void toCsr(IntList owners, IntList edges, IntList otherEnd, int[] first, int[] heads, int[] edgeIds) {
+            for (int i = 0; i < owners.size; i++) {
+                first[owners.values[i] + 1]++;
+            }
+            for (int v = 0; v < nodes; v++) {
+                first[v + 1] += first[v];
+            }
+            int[] fill = Arrays.copyOf(first, nodes);
+            for (int i = 0; i < owners.size; i++) {
+                int slot = fill[owners.values[i]]++;
+                edgeIds[slot] = edges.values[i];
+                heads[slot] = otherEnd.values[edges.values[i]];
+            }
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+            }
+        }
+
+        int[] toArray() { return Arrays.copyOf(values, size); }
+    }
+
+    private static final class FloatList {
+        float[] values = new float[16];
+        int size;
+
+        void add(float value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        float[] toArray() { return Arrays.copyOf(values, size); }
+    }
+}
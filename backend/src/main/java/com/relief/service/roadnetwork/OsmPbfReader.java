@@ -0,0 +1,370 @@
+package com.relief.service.roadnetwork;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming reader for OpenStreetMap PBF extracts.
+ *
+ * Decodes the protobuf wire format directly: file blocks are length-prefixed
+ * {@code BlobHeader}/{@code Blob} pairs whose payload is raw or zlib-compressed, and data blocks
+ * hold plain nodes, dense nodes and ways. Relations, metadata and history are skipped, as are
+ * LZMA/zstd blobs, which common extracts do not use. Handlers receive coordinates in degrees.
+ */
+final class OsmPbfReader {
+
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    interface Handler {
+        default boolean wantsNodes() { return true; }
+
+        default boolean wantsWays() { return true; }
+
+        default void node(long id, double latitude, double longitude) {}
+
+        default void way(long id, long[] refs, Map<String, String> tags) {}
+    }
+
+    private OsmPbfReader() {
+    }
+
+    static void read(Path file, Handler handler) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            read(in, handler);
+        }
+    }
+
+    static void read(InputStream input, Handler handler) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        Inflater inflater = new Inflater();
+        try {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+                    throw new IOException("Invalid PBF block header size " + headerSize);
+                }
+                byte[] header = in.readNBytes(headerSize);
+                String type = null;
+                int dataSize = 0;
+                Proto headerReader = new Proto(header, 0, header.length);
+                while (headerReader.hasMore()) {
+                    int tag = headerReader.tag();
+                    switch (tag >>> 3) {
+                        case 1 -> type = headerReader.string();
+                        case 3 -> dataSize = (int) headerReader.varint();
+                        default -> headerReader.skip(tag);
+                    }
+                }
+                if (dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+                    throw new IOException("Invalid PBF blob size " + dataSize);
+                }
+                byte[] blob = in.readNBytes(dataSize);
+                if (blob.length != dataSize) {
+                    throw new EOFException("Truncated PBF blob");
+                }
+                if ("OSMData".equals(type)) {
+                    byte[] block = decompress(blob, inflater);
+                    readPrimitiveBlock(new Proto(block, 0, block.length), handler);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] blob, Inflater inflater) throws IOException {
+        Proto reader = new Proto(blob, 0, blob.length);
+        byte[] raw = null;
+        int rawSize = 0;
+        int zlibOffset = -1;
+        int zlibLength = 0;
+        while (reader.hasMore()) {
+            int tag = reader.tag();
+            switch (tag >>> 3) {
+                case 1 -> raw = reader.bytes();
+                case 2 -> rawSize = (int) reader.varint();
+                case 3 -> {
+                    zlibLength = (int) reader.varint();
+                    zlibOffset = reader.position;
+                    reader.position += zlibLength;
+                }
+                case 4, 6, 7 -> throw new IOException("Unsupported PBF blob compression");
+                default -> reader.skip(tag);
+            }
+        }
+        if (raw != null) return raw;
+        if (zlibOffset < 0 || rawSize <= 0 || rawSize > MAX_BLOB_SIZE) {
+            throw new IOException("Invalid PBF blob");
+        }
+        byte[] out = new byte[rawSize];
+        inflater.reset();
+        inflater.setInput(blob, zlibOffset, zlibLength);
+        try {
+            int written = 0;
+            while (written < rawSize) {
+                int n = inflater.inflate(out, written, rawSize - written);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+                written += n;
+            }
+            if (written != rawSize) {
+                throw new IOException("Truncated zlib data in PBF blob");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt zlib data in PBF blob", e);
+        }
+        return out;
+    }
+
+    private static void readPrimitiveBlock(Proto block, Handler handler) {
+        String[] strings = new String[0];
+        long granularity = 100;
+        long latOffset = 0;
+        long lonOffset = 0;
+        int groupsStart = -1;
+
+        // The string table and scaling fields may follow the groups, so resolve them first
+        while (block.hasMore()) {
+            int tag = block.tag();
+            switch (tag >>> 3) {
+                case 1 -> {
+                    int length = (int) block.varint();
+                    strings = readStringTable(new Proto(block.buffer, block.position, block.position + length));
+                    block.position += length;
+                }
+                case 2 -> {
+                    if (groupsStart < 0) groupsStart = block.position - 1;
+                    block.skip(tag);
+                }
+                case 17 -> granularity = block.varint();
+                case 19 -> latOffset = block.varint();
+                case 20 -> lonOffset = block.varint();
+                default -> block.skip(tag);
+            }
+        }
+        if (groupsStart < 0) return;
+
+        block.position = groupsStart;
+        while (block.hasMore()) {
+            int tag = block.tag();
+            if (tag >>> 3 != 2) {
+                block.skip(tag);
+                continue;
+            }
+            int length = (int) block.varint();
+            Proto group = new Proto(block.buffer, block.position, block.position + length);
+            block.position += length;
+            while (group.hasMore()) {
+                int groupTag = group.tag();
+                int field = groupTag >>> 3;
+                if (field == 1 && handler.wantsNodes()) {
+                    readNode(group.message(), granularity, latOffset, lonOffset, handler);
+                } else if (field == 2 && handler.wantsNodes()) {
+                    readDenseNodes(group.message(), granularity, latOffset, lonOffset, handler);
+                } else if (field == 3 && handler.wantsWays()) {
+                    readWay(group.message(), strings, handler);
+                } else {
+                    group.skip(groupTag);
+                }
+            }
+        }
+    }
+
+    private static String[] readStringTable(Proto table) {
+        int count = 0;
+        int start = table.position;
+        while (table.hasMore()) {
+            table.skip(table.tag());
+            count++;
+        }
+        table.position = start;
+        String[] strings = new String[count];
+        for (int i = 0; table.hasMore(); ) {
+            int tag = table.tag();
+            if (tag >>> 3 == 1) {
+                strings[i++] = table.string();
+            } else {
+                table.skip(tag);
+            }
+        }
+        return strings;
+    }
+
+    private static void readNode(Proto node, long granularity, long latOffset, long lonOffset, Handler handler) {
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        while (node.hasMore()) {
+            int tag = node.tag();
+            switch (tag >>> 3) {
+                case 1 -> id = node.sint();
+                case 8 -> lat = node.sint();
+                case 9 -> lon = node.sint();
+                default -> node.skip(tag);
+            }
+        }
+        handler.node(id, 1e-9 * (latOffset + granularity * lat), 1e-9 * (lonOffset + granularity * lon));
+    }
+
+    private static void readDenseNodes(Proto dense, long granularity, long latOffset, long lonOffset, Handler handler) {
+        Proto ids = null;
+        Proto lats = null;
+        Proto lons = null;
+        while (dense.hasMore()) {
+            int tag = dense.tag();
+            switch (tag >>> 3) {
+                case 1 -> ids = dense.message();
+                case 8 -> lats = dense.message();
+                case 9 -> lons = dense.message();
+                default -> dense.skip(tag);
+            }
+        }
+        if (ids == null || lats == null || lons == null) return;
+
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        while (ids.hasMore() && lats.hasMore() && lons.hasMore()) {
+            id += ids.sint();
+            lat += lats.sint();
+            lon += lons.sint();
+            handler.node(id, 1e-9 * (latOffset + granularity * lat), 1e-9 * (lonOffset + granularity * lon));
+        }
+    }
+
+    private static void readWay(Proto way, String[] strings, Handler handler) {
+        long id = 0;
+        Proto keys = null;
+        Proto values = null;
+        Proto refs = null;
+        while (way.hasMore()) {
+            int tag = way.tag();
+            switch (tag >>> 3) {
+                case 1 -> id = way.varint();
+                case 2 -> keys = way.message();
+                case 3 -> values = way.message();
+                case 8 -> refs = way.message();
+                default -> way.skip(tag);
+            }
+        }
+
+        Map<String, String> tags = new HashMap<>();
+        if (keys != null && values != null) {
+            while (keys.hasMore() && values.hasMore()) {
+                int key = (int) keys.varint();
+                int value = (int) values.varint();
+                if (key < strings.length && value < strings.length) {
+                    tags.put(strings[key], strings[value]);
+                }
+            }
+        }
+
+        long[] nodeRefs;
+        if (refs == null) {
+            nodeRefs = new long[0];
+        } else {
+            int count = 0;
+            int start = refs.position;
+            while (refs.hasMore()) {
+                refs.varint();
+                count++;
+            }
+            refs.position = start;
+            nodeRefs = new long[count];
+            long ref = 0;
+            for (int i = 0; i < count; i++) {
+                ref += refs.sint();
+                nodeRefs[i] = ref;
+            }
+        }
+        handler.way(id, nodeRefs, tags);
+    }
+
+    /**
+     * Cursor over a protobuf-encoded byte range
+     */
+    private static final class Proto {
+        final byte[] buffer;
+        int position;
+        final int limit;
+
+        Proto(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        boolean hasMore() {
+            return position < limit;
+        }
+
+        int tag() {
+            return (int) varint();
+        }
+
+        long varint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return result;
+            }
+            throw new IllegalStateException("Malformed varint in PBF block");
+        }
+
+        long sint() {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        Proto message() {
+            int length = (int) varint();
+            Proto message = new Proto(buffer, position, position + length);
+            position += length;
+            return message;
+        }
+
+        byte[] bytes() {
+            int length = (int) varint();
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        String string() {
+            int length = (int) varint();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skip(int tag) {
+            switch (tag & 7) {
+                case 0 -> varint();
+                case 1 -> position += 8;
+                case 2 -> {
+                    int length = (int) varint();
+                    position += length;
+                }
+                case 5 -> position += 4;
+                default -> throw new IllegalStateException("Unsupported wire type in PBF block: " + (tag & 7));
+            }
+        }
+    }
+}
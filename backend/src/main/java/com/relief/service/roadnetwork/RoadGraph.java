@@ -0,0 +1,429 @@
+package com.relief.service.roadnetwork;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable directed road graph in primitive arrays.
+ *
+ * Nodes are the OSM nodes used by drivable ways, with coordinates stored as fixed-point
+ * 1e-7 degrees. Outgoing arcs are in CSR form ({@code firstOut}/{@code head}) with a travel time
+ * in deciseconds and a length in metres per arc. Travel times come from {@code maxspeed} when
+ * tagged and otherwise from a per-class default. A uniform grid over the nodes supports snapping
+ * coordinates to the nearest node.
+ */
+public final class RoadGraph {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private static final Map<String, Double> DEFAULT_SPEEDS = Map.ofEntries(
+        Map.entry("motorway", 100.0), Map.entry("motorway_link", 60.0),
+        Map.entry("trunk", 80.0), Map.entry("trunk_link", 50.0),
+        Map.entry("primary", 65.0), Map.entry("primary_link", 45.0),
+        Map.entry("secondary", 55.0), Map.entry("secondary_link", 40.0),
+        Map.entry("tertiary", 45.0), Map.entry("tertiary_link", 35.0),
+        Map.entry("unclassified", 35.0), Map.entry("residential", 30.0),
+        Map.entry("living_street", 10.0), Map.entry("service", 20.0),
+        Map.entry("road", 30.0), Map.entry("track", 15.0));
+    private static final Set<String> CLOSED_ACCESS = Set.of("no", "private");
+
+    private final int[] latE7;
+    private final int[] lonE7;
+    private final int[] firstOut;
+    private final int[] head;
+    private final int[] weight;
+    private final float[] length;
+
+    private final double gridMinLat;
+    private final double gridMinLon;
+    private final double cellDegrees;
+    private final int gridRows;
+    private final int gridColumns;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    private RoadGraph(int[] latE7, int[] lonE7, int[] firstOut, int[] head, int[] weight, float[] length) {
+        this.latE7 = latE7;
+        this.lonE7 = lonE7;
+        this.firstOut = firstOut;
+        this.head = head;
+        this.weight = weight;
+        this.length = length;
+
+        int nodes = latE7.length;
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < nodes; v++) {
+            if (!hasCoordinates(v)) continue;
+            minLat = Math.min(minLat, latitude(v));
+            maxLat = Math.max(maxLat, latitude(v));
+            minLon = Math.min(minLon, longitude(v));
+            maxLon = Math.max(maxLon, longitude(v));
+        }
+        if (minLat > maxLat) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+        // Aim for around 16 nodes per cell
+        double area = Math.max((maxLat - minLat) * (maxLon - minLon), 1e-6);
+        double cell = Math.max(0.002, Math.sqrt(area * 16 / Math.max(1, nodes)));
+        this.gridMinLat = minLat;
+        this.gridMinLon = minLon;
+        this.cellDegrees = cell;
+        this.gridRows = (int) ((maxLat - minLat) / cell) + 1;
+        this.gridColumns = (int) ((maxLon - minLon) / cell) + 1;
+        this.cellStart = new int[gridRows * gridColumns + 1];
+        for (int v = 0; v < nodes; v++) {
+            if (hasCoordinates(v)) cellStart[cellOf(latitude(v), longitude(v)) + 1]++;
+        }
+        for (int c = 0; c < gridRows * gridColumns; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        this.cellNodes = new int[cellStart[gridRows * gridColumns]];
+        int[] fill = Arrays.copyOf(cellStart, cellStart.length - 1);
+        for (int v = 0; v < nodes; v++) {
+            if (hasCoordinates(v)) cellNodes[fill[cellOf(latitude(v), longitude(v))]++] = v;
+        }
+    }
+
+    /**
+     * Import the drivable road network of an OSM PBF extract. Ways are read in a first pass and
+     * only the coordinates of nodes they reference are kept in the second.
+     */
+    public static RoadGraph load(Path pbf) throws IOException {
+        WayCollector ways = new WayCollector();
+        OsmPbfReader.read(pbf, ways);
+
+        int nodes = ways.nodeIndex.size();
+        int[] latE7 = new int[nodes];
+        int[] lonE7 = new int[nodes];
+        Arrays.fill(latE7, Integer.MIN_VALUE);
+        OsmPbfReader.read(pbf, new OsmPbfReader.Handler() {
+            @Override
+            public boolean wantsWays() { return false; }
+
+            @Override
+            public void node(long id, double latitude, double longitude) {
+                int index = ways.nodeIndex.get(id);
+                if (index >= 0) {
+                    latE7[index] = (int) Math.round(latitude * 1e7);
+                    lonE7[index] = (int) Math.round(longitude * 1e7);
+                }
+            }
+        });
+
+        IntList tails = new IntList();
+        IntList heads = new IntList();
+        IntList weights = new IntList();
+        FloatList lengths = new FloatList();
+        for (int w = 0; w < ways.wayStart.size - 1; w++) {
+            double metersPerDecisecond = ways.speeds.get(w) / 36.0;
+            int direction = ways.directions.get(w);
+            for (int i = ways.wayStart.get(w); i < ways.wayStart.get(w + 1) - 1; i++) {
+                int a = ways.refs.get(i);
+                int b = ways.refs.get(i + 1);
+                if (a == b || latE7[a] == Integer.MIN_VALUE || latE7[b] == Integer.MIN_VALUE) continue;
+                double meters = haversine(latE7[a] / 1e7, lonE7[a] / 1e7, latE7[b] / 1e7, lonE7[b] / 1e7);
+                int time = (int) Math.max(1, Math.round(meters / metersPerDecisecond));
+                if (direction >= 0) {
+                    tails.add(a); heads.add(b); weights.add(time); lengths.add((float) meters);
+                }
+                if (direction <= 0) {
+                    tails.add(b); heads.add(a); weights.add(time); lengths.add((float) meters);
+                }
+            }
+        }
+        return of(latE7, lonE7, tails.toArray(), heads.toArray(), weights.toArray(), lengths.toArray());
+    }
+
+    /**
+     * Build a graph from arc lists; weights are travel times in deciseconds.
+     */
+    public static RoadGraph of(int[] latE7, int[] lonE7, int[] tails, int[] heads, int[] weights, float[] lengths) {
+        int nodes = latE7.length;
+        int[] firstOut = new int[nodes + 1];
+        for (int tail : tails) {
+            firstOut[tail + 1]++;
+        }
+        for (int v = 0; v < nodes; v++) {
+            firstOut[v + 1] += firstOut[v];
+        }
+        int[] fill = Arrays.copyOf(firstOut, nodes);
+        int[] head = new int[tails.length];
+        int[] weight = new int[tails.length];
+        float[] length = new float[tails.length];
+        for (int a = 0; a < tails.length; a++) {
+            int slot = fill[tails[a]]++;
+            head[slot] = heads[a];
+            weight[slot] = Math.max(1, weights[a]);
+            length[slot] = lengths[a];
+        }
+        return new RoadGraph(latE7, lonE7, firstOut, head, weight, length);
+    }
+
+    public int nodeCount() { return latE7.length; }
+
+    public int arcCount() { return head.length; }
+
+    public int firstOut(int node) { return firstOut[node]; }
+
+    public int endOut(int node) { return firstOut[node + 1]; }
+
+    public int head(int arc) { return head[arc]; }
+
+    /** Travel time of an arc in deciseconds. */
+    public int weight(int arc) { return weight[arc]; }
+
+    public float length(int arc) { return length[arc]; }
+
+    public double latitude(int node) { return latE7[node] / 1e7; }
+
+    public double longitude(int node) { return lonE7[node] / 1e7; }
+
+    public boolean hasCoordinates(int node) { return latE7[node] != Integer.MIN_VALUE; }
+
+    /**
+     * Tail node of an arc, by binary search over the CSR offsets
+     */
+    public int tail(int arc) {
+        int lo = 0;
+        int hi = latE7.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (firstOut[mid] <= arc) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Nearest node with coordinates within {@code maxMeters}, or -1
+     */
+    public int nearestNode(double latitude, double longitude, double maxMeters) {
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        int row = clamp((int) Math.floor((latitude - gridMinLat) / cellDegrees), gridRows);
+        int column = clamp((int) Math.floor((longitude - gridMinLon) / cellDegrees), gridColumns);
+        double cellMeters = cellDegrees * METERS_PER_DEGREE * Math.max(cosLat, 0.01);
+        int maxRing = (int) Math.min(Math.max(gridRows, gridColumns), Math.ceil(maxMeters / cellMeters) + 1);
+
+        int best = -1;
+        double bestDistance = maxMeters * maxMeters;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every node in this ring is at least (ring - 1) cells away
+            double ringMin = Math.max(0, ring - 1) * cellMeters;
+            if (best >= 0 && ringMin * ringMin > bestDistance) break;
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= gridRows) continue;
+                boolean edgeRow = r == row - ring || r == row + ring;
+                for (int c = column - ring; c <= column + ring; c += edgeRow ? 1 : 2 * ring) {
+                    if (c >= 0 && c < gridColumns) {
+                        int cell = r * gridColumns + c;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                            int node = cellNodes[i];
+                            double dy = (latitude(node) - latitude) * METERS_PER_DEGREE;
+                            double dx = (longitude(node) - longitude) * METERS_PER_DEGREE * cosLat;
+                            double distance = dx * dx + dy * dy;
+                            if (distance <= bestDistance) {
+                                bestDistance = distance;
+                                best = node;
+                            }
+                        }
+                    }
+                    if (ring == 0) break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Visit nodes whose coordinates fall in the bounding box
+     */
+    public void forEachNodeIn(double minLat, double minLon, double maxLat, double maxLon,
+                              IntConsumer action) {
+        int fromRow = clamp((int) Math.floor((minLat - gridMinLat) / cellDegrees), gridRows);
+        int toRow = clamp((int) Math.floor((maxLat - gridMinLat) / cellDegrees), gridRows);
+        int fromColumn = clamp((int) Math.floor((minLon - gridMinLon) / cellDegrees), gridColumns);
+        int toColumn = clamp((int) Math.floor((maxLon - gridMinLon) / cellDegrees), gridColumns);
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                int cell = r * gridColumns + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int node = cellNodes[i];
+                    double lat = latitude(node);
+                    double lon = longitude(node);
+                    if (lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon) {
+                        action.accept(node);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Great-circle distance in metres between two points given in degrees
+     */
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private int cellOf(double latitude, double longitude) {
+        int row = clamp((int) ((latitude - gridMinLat) / cellDegrees), gridRows);
+        int column = clamp((int) ((longitude - gridMinLon) / cellDegrees), gridColumns);
+        return row * gridColumns + column;
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * First pass: drivable ways with their speed and direction, node IDs mapped to dense indexes
+     */
+    private static final class WayCollector implements OsmPbfReader.Handler {
+        final LongIntMap nodeIndex = new LongIntMap();
+        final IntList refs = new IntList();
+        final IntList wayStart = new IntList();
+        final FloatList speeds = new FloatList();
+        final IntList directions = new IntList();
+
+        WayCollector() {
+            wayStart.add(0);
+        }
+
+        @Override
+        public boolean wantsNodes() { return false; }
+
+        @Override
+        public void way(long id, long[] nodeRefs, Map<String, String> tags) {
+            String highway = tags.get("highway");
+            Double defaultSpeed = highway != null ? DEFAULT_SPEEDS.get(highway) : null;
+            if (defaultSpeed == null || nodeRefs.length < 2) return;
+            if (CLOSED_ACCESS.contains(tags.getOrDefault("access", ""))
+                || CLOSED_ACCESS.contains(tags.getOrDefault("motor_vehicle", ""))) return;
+
+            String oneway = tags.getOrDefault("oneway", "");
+            int direction = switch (oneway) {
+                case "yes", "true", "1" -> 1;
+                case "-1", "reverse" -> -1;
+                case "no", "false", "0" -> 0;
+                default -> highway.equals("motorway") || "roundabout".equals(tags.get("junction")) ? 1 : 0;
+            };
+
+            for (long ref : nodeRefs) {
+                int index = nodeIndex.get(ref);
+                if (index < 0) {
+                    index = nodeIndex.size();
+                    nodeIndex.put(ref, index);
+                }
+                refs.add(index);
+            }
+            wayStart.add(refs.size);
+            speeds.add((float) parseSpeed(tags.get("maxspeed"), defaultSpeed));
+            directions.add(direction);
+        }
+
+        private static double parseSpeed(String maxspeed, double fallback) {
+            if (maxspeed == null) return fallback;
+            String value = maxspeed.trim();
+            double factor = 1;
+            if (value.endsWith("mph")) {
+                factor = 1.609;
+                value = value.substring(0, value.length() - 3).trim();
+            }
+            try {
+                double speed = Double.parseDouble(value) * factor;
+                return speed > 0 ? speed : fallback;
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+    }
+
+    /**
+     * Open-addressing map from OSM node ID to dense index
+     */
+    private static final class LongIntMap {
+        private long[] keys = new long[1 << 16];
+        private int[] values = new int[1 << 16];
+        private boolean[] used = new boolean[1 << 16];
+        private int size;
+
+        int size() { return size; }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return values[slot];
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) size++;
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[1024];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int index) { return values[index]; }
+
+        int size() { return size; }
+
+        int[] toArray() { return Arrays.copyOf(values, size); }
+    }
+
+    private static final class FloatList {
+        float[] values = new float[1024];
+        int size;
+
+        void add(float value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        float get(int index) { return values[index]; }
+
+        float[] toArray() { return Arrays.copyOf(values, size); }
+    }
+}
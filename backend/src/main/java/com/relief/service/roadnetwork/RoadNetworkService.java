@@ -0,0 +1,372 @@
+package com.relief.service.roadnetwork;
+
+import com.relief.domain.terrain.TerrainAnalysis;
+import com.relief.repository.terrain.TerrainAnalysisRepository;
+import com.relief.service.roadnetwork.ContractionHierarchy.ClosureOverlay;
+import com.relief.service.roadnetwork.ContractionHierarchy.RoadPath;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Road travel times over an OSM extract loaded from local disk.
+ *
+ * The extract is imported into a {@link RoadGraph} and preprocessed into a
+ * {@link ContractionHierarchy} in the background; until then, callers fall back to straight-line
+ * estimates. Closures are polygons (e.g. flood-prone terrain analysis areas) that close every
+ * arc touching them. They are applied as an overlay on the loaded hierarchy, so opening or
+ * closing areas takes one pass over the edges rather than a new preprocessing run, and they are
+ * re-applied when a new extract is imported.
+ */
+@Service
+@Slf4j
+public class RoadNetworkService {
+
+    private static final double SNAP_METERS = 2000;
+    private static final String TERRAIN_CLOSURE_PREFIX = "terrain-";
+
+    private final TerrainAnalysisRepository terrainAnalysisRepository;
+    private final GeometryFactory geometryFactory;
+    private final String configuredExtract;
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+
+    private final Map<String, Polygon> closureAreas = new LinkedHashMap<>();
+    private volatile Network network;
+    private volatile String importing;
+
+    public RoadNetworkService(TerrainAnalysisRepository terrainAnalysisRepository, GeometryFactory geometryFactory,
+                              @Value("${road-network.pbf-path:}") String configuredExtract) {
+        this.terrainAnalysisRepository = terrainAnalysisRepository;
+        this.geometryFactory = geometryFactory;
+        this.configuredExtract = configuredExtract;
+    }
+
+    @PostConstruct
+    public void loadConfiguredExtract() {
+        if (!configuredExtract.isBlank()) {
+            importExtract(Path.of(configuredExtract));
+        }
+    }
+
+    /**
+     * Import and preprocess an extract in the background; queries keep using the current network
+     * until the new one is ready
+     */
+    public NetworkStatus importExtract(Path pbf) {
+        if (!Files.isRegularFile(pbf)) {
+            throw new IllegalArgumentException("Road network extract not found: " + pbf);
+        }
+        importing = pbf.toString();
+        CompletableFuture.runAsync(() -> load(pbf), importExecutor)
+            .whenComplete((result, error) -> {
+                importing = null;
+                if (error != null) {
+                    log.error("Failed to import road network from {}", pbf, error);
+                }
+            });
+        return getStatus();
+    }
+
+    private void load(Path pbf) {
+        long start = System.nanoTime();
+        RoadGraph graph;
+        try {
+            graph = RoadGraph.load(pbf);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read road network extract " + pbf, e);
+        }
+        long loaded = System.nanoTime();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        long preprocessed = System.nanoTime();
+        log.info("Imported road network from {}: {} nodes, {} arcs, {} shortcuts (read {} ms, contracted {} ms)",
+            pbf, graph.nodeCount(), graph.arcCount(), hierarchy.shortcutCount(),
+            (loaded - start) / 1_000_000, (preprocessed - loaded) / 1_000_000);
+
+        synchronized (closureAreas) {
+            network = new Network(hierarchy, overlay(hierarchy, closureAreas), pbf.toString(),
+                LocalDateTime.now(), (preprocessed - start) / 1_000_000);
+        }
+    }
+
+    public boolean isLoaded() {
+        return network != null;
+    }
+
+    public NetworkStatus getStatus() {
+        Network current = network;
+        synchronized (closureAreas) {
+            if (current == null) {
+                return new NetworkStatus(false, importing, null, 0, 0, 0, closureAreas.size(), 0, null, 0);
+            }
+            RoadGraph graph = current.hierarchy().graph();
+            return new NetworkStatus(true, importing, current.source(), graph.nodeCount(), graph.arcCount(),
+                current.hierarchy().shortcutCount(), closureAreas.size(), current.closures().closedArcCount(),
+                current.loadedAt(), current.preprocessingMillis());
+        }
+    }
+
+    /**
+     * Close every road with an endpoint inside the area
+     */
+    public NetworkStatus closeArea(String closureId, Polygon area) {
+        synchronized (closureAreas) {
+            closureAreas.put(closureId, area);
+            refreshClosures();
+        }
+        return getStatus();
+    }
+
+    public NetworkStatus reopenArea(String closureId) {
+        synchronized (closureAreas) {
+            if (closureAreas.remove(closureId) == null) {
+                throw new IllegalArgumentException("Closure not found: " + closureId);
+            }
+            refreshClosures();
+        }
+        return getStatus();
+    }
+
+    /**
+     * Replace the terrain closures with the areas analysed as at least {@code minFloodRisk}
+     * flood-prone
+     */
+    @Transactional(readOnly = true)
+    public NetworkStatus closeFloodProneAreas(double minFloodRisk) {
+        List<TerrainAnalysis> floodProne = terrainAnalysisRepository.findByFloodRiskScoreRange(minFloodRisk, 1.0);
+        synchronized (closureAreas) {
+            closureAreas.keySet().removeIf(id -> id.startsWith(TERRAIN_CLOSURE_PREFIX));
+            for (TerrainAnalysis analysis : floodProne) {
+                if (analysis.getArea() != null) {
+                    closureAreas.put(TERRAIN_CLOSURE_PREFIX + analysis.getId(), analysis.getArea());
+                }
+            }
+            refreshClosures();
+        }
+        log.info("Closed roads in {} flood-prone areas (flood risk >= {})", floodProne.size(), minFloodRisk);
+        return getStatus();
+    }
+
+    private void refreshClosures() {
+        Network current = network;
+        if (current != null) {
+            network = current.withClosures(overlay(current.hierarchy(), closureAreas));
+        }
+    }
+
+    private ClosureOverlay overlay(ContractionHierarchy hierarchy, Map<String, Polygon> areas) {
+        RoadGraph graph = hierarchy.graph();
+        BitSet inside = new BitSet(graph.nodeCount());
+        for (Polygon area : areas.values()) {
+            PreparedGeometry prepared = PreparedGeometryFactory.prepare(area);
+            Envelope bounds = area.getEnvelopeInternal();
+            graph.forEachNodeIn(bounds.getMinY(), bounds.getMinX(), bounds.getMaxY(), bounds.getMaxX(), node -> {
+                if (!inside.get(node) && prepared.covers(geometryFactory.createPoint(
+                        new Coordinate(graph.longitude(node), graph.latitude(node))))) {
+                    inside.set(node);
+                }
+            });
+        }
+
+        BitSet closedArcs = new BitSet(graph.arcCount());
+        if (!inside.isEmpty()) {
+            for (int node = 0; node < graph.nodeCount(); node++) {
+                for (int arc = graph.firstOut(node); arc < graph.endOut(node); arc++) {
+                    if (inside.get(node) || inside.get(graph.head(arc))) closedArcs.set(arc);
+                }
+            }
+        }
+        return hierarchy.overlay(closedArcs);
+    }
+
+    /**
+     * Quickest open road route between two points; empty if no network is loaded, either point is
+     * too far from a road, or no route exists
+     */
+    public Optional<RoadRoute> route(double fromLat, double fromLon, double toLat, double toLon) {
+        Network current = network;
+        if (current == null) return Optional.empty();
+        RoadGraph graph = current.hierarchy().graph();
+        int source = graph.nearestNode(fromLat, fromLon, SNAP_METERS);
+        int target = graph.nearestNode(toLat, toLon, SNAP_METERS);
+        if (source < 0 || target < 0) return Optional.empty();
+
+        RoadPath path = current.hierarchy().route(source, target, current.closures());
+        if (path == null) return Optional.empty();
+        List<RoadPoint> points = new ArrayList<>(path.nodes().length);
+        for (int node : path.nodes()) {
+            points.add(new RoadPoint(graph.latitude(node), graph.longitude(node)));
+        }
+        return Optional.of(new RoadRoute(path.seconds(), path.meters(), points));
+    }
+
+    /**
+     * Travel times from one origin to many destinations; entries are null where no open route
+     * exists or a point is too far from a road
+     */
+    public Optional<TravelTimes> travelTimes(RoadPoint origin, List<RoadPoint> destinations) {
+        Network current = network;
+        if (current == null) return Optional.empty();
+        RoadGraph graph = current.hierarchy().graph();
+
+        List<Double> seconds = new ArrayList<>(destinations.size());
+        List<Double> meters = new ArrayList<>(destinations.size());
+        int source = graph.nearestNode(origin.latitude(), origin.longitude(), SNAP_METERS);
+        int[] targets = snap(graph, destinations);
+        double[] secondsOut = new double[targets.length];
+        double[] metersOut = new double[targets.length];
+        if (source >= 0) {
+            current.hierarchy().travelTimes(source, queryNodes(targets), current.closures(), secondsOut, metersOut);
+        }
+        for (int i = 0; i < targets.length; i++) {
+            boolean reachable = source >= 0 && targets[i] >= 0 && Double.isFinite(secondsOut[i]);
+            seconds.add(reachable ? secondsOut[i] : null);
+            meters.add(reachable ? metersOut[i] : null);
+        }
+        return Optional.of(new TravelTimes(seconds, meters));
+    }
+
+    /**
+     * Row-major travel times (seconds) and distances (metres) from every origin to every
+     * destination, with {@code Double.NaN} where a point is too far from a road and
+     * {@code Double.POSITIVE_INFINITY} where no open route exists
+     */
+    public Optional<TravelTable> travelTable(List<RoadPoint> origins, List<RoadPoint> destinations) {
+        Network current = network;
+        if (current == null) return Optional.empty();
+        RoadGraph graph = current.hierarchy().graph();
+
+        int[] sources = snap(graph, origins);
+        int[] targets = snap(graph, destinations);
+        double[] seconds = new double[sources.length * targets.length];
+        double[] meters = new double[seconds.length];
+        if (seconds.length > 0 && graph.nodeCount() > 0) {
+            current.hierarchy().travelTimeMatrix(queryNodes(sources), queryNodes(targets), current.closures(),
+                seconds, meters);
+        }
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < targets.length; j++) {
+                if (sources[i] < 0 || targets[j] < 0) {
+                    seconds[i * targets.length + j] = Double.NaN;
+                    meters[i * targets.length + j] = Double.NaN;
+                }
+            }
+        }
+        return Optional.of(new TravelTable(sources.length, targets.length, seconds, meters));
+    }
+
+    /**
+     * Row-major travel time (seconds) and distance (metres) matrices between all points, with
+     * {@code Double.POSITIVE_INFINITY} where no open route exists
+     */
+    public Optional<TravelMatrix> travelMatrix(List<RoadPoint> points) {
+        Network current = network;
+        if (current == null) return Optional.empty();
+        RoadGraph graph = current.hierarchy().graph();
+
+        int[] nodes = snap(graph, points);
+        int size = nodes.length;
+        double[] seconds = new double[size * size];
+        double[] meters = new double[size * size];
+        if (graph.nodeCount() > 0) {
+            int[] query = queryNodes(nodes);
+            current.hierarchy().travelTimeMatrix(query, query, current.closures(), seconds, meters);
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i != j && (nodes[i] < 0 || nodes[j] < 0)) {
+                    seconds[i * size + j] = Double.POSITIVE_INFINITY;
+                    meters[i * size + j] = Double.POSITIVE_INFINITY;
+                } else if (i == j) {
+                    seconds[i * size + j] = 0;
+                    meters[i * size + j] = 0;
+                }
+            }
+        }
+        return Optional.of(new TravelMatrix(size, seconds, meters));
+    }
+
+    /**
+     * Nearest road node per point, -1 for points too far from a road
+     */
+    private static int[] snap(RoadGraph graph, List<RoadPoint> points) {
+        int[] nodes = new int[points.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = graph.nearestNode(points.get(i).latitude(), points.get(i).longitude(), SNAP_METERS);
+        }
+        return nodes;
+    }
+
+    /**
+     * Snapped nodes with unsnapped points replaced by node 0; their results are discarded
+     */
+    private static int[] queryNodes(int[] nodes) {
+        int[] query = nodes.clone();
+        for (int i = 0; i < query.length; i++) {
+            if (query[i] < 0) query[i] = 0;
+        }
+        return query;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    private record Network(
+        ContractionHierarchy hierarchy,
+        ClosureOverlay closures,
+        String source,
+        LocalDateTime loadedAt,
+        long preprocessingMillis
+    ) {
+        Network withClosures(ClosureOverlay overlay) {
+            return new Network(hierarchy, overlay, source, loadedAt, preprocessingMillis);
+        }
+    }
+
+    public record RoadPoint(double latitude, double longitude) {}
+
+    public record RoadRoute(double travelSeconds, double distanceMeters, List<RoadPoint> path) {}
+
+    public record TravelTimes(List<Double> travelSeconds, List<Double> distanceMeters) {}
+
+    public record TravelMatrix(int size, double[] travelSeconds, double[] distanceMeters) {}
+
+    public record TravelTable(int origins, int destinations, double[] travelSeconds, double[] distanceMeters) {}
+
+    public record NetworkStatus(
+        boolean loaded,
+        String importing,
+        String source,
+        int nodes,
+        int arcs,
+        int shortcuts,
+        int closures,
+        int closedArcs,
+        LocalDateTime loadedAt,
+        long preprocessingMillis
+    ) {}
+}
@@ -0,0 +1,43 @@
+package com.relief.service.search;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.util.TransactionHooks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * JPA entity listener that keeps the {@link RequestSearchIndex} current as needs requests are
+ * saved or deleted. Changes are applied after the surrounding transaction commits so a rolled back
+ * edit never replaces the committed text in the index.
+ *
+ * Instantiated by Spring through Hibernate's bean container; the index is resolved lazily for the
+ * same reason as in {@link com.relief.service.spatial.SpatialIndexEntityListener}.
+ */
+@Component
+public class RequestSearchEntityListener {
+
+    private final ObjectProvider<RequestSearchIndex> index;
+
+    public RequestSearchEntityListener(ObjectProvider<RequestSearchIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(NeedsRequest request) {
+        RequestSearchIndex search = index.getIfAvailable();
+        if (search != null) TransactionHooks.afterCommit(() -> search.updateRequest(request));
+    }
+
+    @PostRemove
+    public void removed(NeedsRequest request) {
+        RequestSearchIndex search = index.getIfAvailable();
+        UUID id = request.getId();
+        if (search != null) TransactionHooks.afterCommit(() -> search.removeRequest(id));
+    }
+}
@@ -0,0 +1,110 @@
+package com.relief.service.search;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.util.InvertedIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Full-text search over the notes of all needs requests, faceted by need type, with typo-tolerant
+ * matching for misspelled SMS reports (see {@link InvertedIndex}).
+ *
+ * The index holds terms, ids and a hash of each note rather than the notes themselves; the hits of
+ * a page are loaded from the database and their notes highlighted. Kept current by {@link RequestSearchEntityListener}. The initial load reads
+ * the table in id order in batches; searches before it completes see only what is indexed so far.
+ */
+@Service
+@Slf4j
+public class RequestSearchIndex {
+
+    static final int MAX_LIMIT = 100;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    private static final int SNIPPET_CHARS = 160;
+
+    private final NeedsRequestRepository needsRequestRepository;
+    private final InvertedIndex<UUID> index = new InvertedIndex<>();
+    private volatile boolean ready;
+
+    /**
+     * A matching request with its score and a snippet of its notes, matches in {@code <em>}
+     */
+    public record RequestHit(NeedsRequest request, double score, String highlight) {}
+
+    /**
+     * The top hits, the number of matches after the type filter and the matches per type before it
+     */
+    public record RequestSearchResult(List<RequestHit> hits, int totalHits, Map<String, Integer> types) {}
+
+    public RequestSearchIndex(NeedsRequestRepository needsRequestRepository) {
+        this.needsRequestRepository = needsRequestRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long start = System.nanoTime();
+        UUID after = new UUID(0, 0);
+        List<Object[]> rows;
+        do {
+            rows = needsRequestRepository.findSearchTextAfter(after, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (Object[] row : rows) {
+                UUID id = (UUID) row[0];
+                // Requests saved since the load began are already indexed, and newer
+                if (!index.contains(id)) index.put(id, (String) row[2], (String) row[1]);
+                after = id;
+            }
+        } while (rows.size() == LOAD_BATCH_SIZE);
+        ready = true;
+        log.info("Request search index loaded: {} requests in {} ms", index.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void updateRequest(NeedsRequest request) {
+        index.put(request.getId(), request.getNotes(), request.getType());
+    }
+
+    public void removeRequest(UUID requestId) {
+        index.remove(requestId);
+    }
+
+    /**
+     * Requests whose notes best match the query, optionally of one need type
+     */
+    @Transactional(readOnly = true)
+    public RequestSearchResult search(String query, String type, int limit) {
+        InvertedIndex.Result<UUID> result = index.search(query, blankToNull(type),
+            Math.max(1, Math.min(MAX_LIMIT, limit)));
+        List<UUID> ids = result.hits().stream().map(InvertedIndex.Hit::key).toList();
+        Map<UUID, NeedsRequest> requests = new HashMap<>();
+        needsRequestRepository.findAllById(ids).forEach(request -> requests.put(request.getId(), request));
+
+        List<RequestHit> hits = new ArrayList<>(ids.size());
+        for (InvertedIndex.Hit<UUID> hit : result.hits()) {
+            NeedsRequest request = requests.get(hit.key());
+            // Deleted after the search read the index
+            if (request == null) continue;
+            hits.add(new RequestHit(request, hit.score(),
+                InvertedIndex.highlight(request.getNotes(), result.terms(), SNIPPET_CHARS)));
+        }
+        return new RequestSearchResult(hits, result.totalHits(), result.facets());
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
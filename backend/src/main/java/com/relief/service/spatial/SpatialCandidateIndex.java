@@ -0,0 +1,172 @@
+package com.relief.service.spatial;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.entity.User;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.repository.UserRepository;
+import com.relief.util.GeoCellIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Point;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Shared in-memory spatial index of active helpers' last known positions and of recent open
+ * needs requests, used to prefilter candidates before scoring in helper matching and duplicate
+ * detection. Requests leave the index when they are completed, cancelled or merged, or after
+ * {@value #REQUEST_RETENTION_HOURS} hours, so callers that prefilter through it only ever see
+ * open requests.
+ *
+ * The index is loaded once the application is ready and then kept current by
+ * {@link SpatialIndexEntityListener} as users and requests are saved. Until the initial load
+ * completes {@link #isReady()} is false and callers fall back to their database queries.
+ */
+@Service
+@Slf4j
+public class SpatialCandidateIndex {
+
+    /** About 5.5 km cells: dedupe radius queries touch a handful of cells */
+    private static final double CELL_DEGREES = 0.05;
+    private static final long REQUEST_RETENTION_HOURS = 24;
+    private static final Set<String> CLOSED_REQUEST_STATUSES = Set.of("completed", "cancelled", "merged");
+
+    private final UserRepository userRepository;
+    private final NeedsRequestRepository needsRequestRepository;
+
+    private final GeoCellIndex<UUID, LocalDateTime> helpers = new GeoCellIndex<>(CELL_DEGREES);
+    private final GeoCellIndex<UUID, LocalDateTime> requests = new GeoCellIndex<>(CELL_DEGREES);
+    private volatile boolean ready;
+
+    public SpatialCandidateIndex(UserRepository userRepository, NeedsRequestRepository needsRequestRepository) {
+        this.userRepository = userRepository;
+        this.needsRequestRepository = needsRequestRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        for (User helper : userRepository.findByRoleAndNotDisabled("HELPER")) {
+            Point point = helper.getGeomPoint();
+            if (point != null) {
+                helpers.putIfAbsent(helper.getId(), point.getY(), point.getX(), helper.getUpdatedAt());
+            }
+        }
+        for (NeedsRequest request : needsRequestRepository.findLocatedRequestsCreatedSince(retentionCutoff())) {
+            if (isOpen(request)) {
+                requests.putIfAbsent(request.getId(), request.getGeomPoint().getY(), request.getGeomPoint().getX(),
+                    request.getCreatedAt());
+            }
+        }
+        ready = true;
+        log.info("Spatial candidate index loaded: {} helpers, {} open requests", helpers.size(), requests.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public IndexStatus getStatus() {
+        return new IndexStatus(ready, helpers.size(), requests.size());
+    }
+
+    /**
+     * Index or drop a user depending on whether it is an enabled helper with a known position
+     */
+    public void updateHelper(User user) {
+        Point point = user.getGeomPoint();
+        if ("HELPER".equals(user.getRole()) && !Boolean.TRUE.equals(user.getDisabled()) && point != null) {
+            helpers.put(user.getId(), point.getY(), point.getX(), user.getUpdatedAt());
+        } else {
+            helpers.remove(user.getId());
+        }
+    }
+
+    public void removeHelper(UUID userId) {
+        helpers.remove(userId);
+    }
+
+    /**
+     * Index or drop a request depending on whether it is open, located and recent
+     */
+    public void updateRequest(NeedsRequest request) {
+        Point point = request.getGeomPoint();
+        LocalDateTime createdAt = request.getCreatedAt();
+        if (point != null && isOpen(request) && (createdAt == null || createdAt.isAfter(retentionCutoff()))) {
+            requests.put(request.getId(), point.getY(), point.getX(),
+                createdAt != null ? createdAt : LocalDateTime.now());
+        } else {
+            requests.remove(request.getId());
+        }
+    }
+
+    public void removeRequest(UUID requestId) {
+        requests.remove(requestId);
+    }
+
+    /**
+     * Helpers within the radius, nearest first
+     */
+    public List<UUID> helpersWithin(double latitude, double longitude, double radiusMeters) {
+        return helpers.withinRadius(latitude, longitude, radiusMeters, null).stream()
+            .map(GeoCellIndex.Neighbor::key)
+            .toList();
+    }
+
+    /**
+     * Up to {@code k} helpers nearest to the point within {@code maxMeters}, nearest first
+     */
+    public List<UUID> nearestHelpers(double latitude, double longitude, int k, double maxMeters) {
+        return helpers.nearest(latitude, longitude, k, maxMeters, null).stream()
+            .map(GeoCellIndex.Neighbor::key)
+            .toList();
+    }
+
+    /**
+     * Open requests created since {@code since} within the radius, nearest first
+     */
+    public List<UUID> requestsWithin(double latitude, double longitude, double radiusMeters, LocalDateTime since) {
+        return requests.withinRadius(latitude, longitude, radiusMeters, entry -> !entry.value().isBefore(since)).stream()
+            .map(GeoCellIndex.Neighbor::key)
+            .toList();
+    }
+
+    /**
+     * Up to {@code k} open requests created since {@code since} nearest to the point within
+     * {@code maxMeters}, nearest first
+     */
+    public List<UUID> nearestRequests(double latitude, double longitude, int k, double maxMeters, LocalDateTime since) {
+        return requests.nearest(latitude, longitude, k, maxMeters, entry -> !entry.value().isBefore(since)).stream()
+            .map(GeoCellIndex.Neighbor::key)
+            .toList();
+    }
+
+    /**
+     * Drop requests that aged out of the retention window
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void pruneExpiredRequests() {
+        LocalDateTime cutoff = retentionCutoff();
+        int removed = requests.removeIf(entry -> entry.value().isBefore(cutoff));
+        if (removed > 0) {
+            log.debug("Pruned {} expired requests from spatial candidate index", removed);
+        }
+    }
+
+    private static boolean isOpen(NeedsRequest request) {
+        return request.getStatus() == null || !CLOSED_REQUEST_STATUSES.contains(request.getStatus().toLowerCase());
+    }
+
+    private static LocalDateTime retentionCutoff() {
+        return LocalDateTime.now().minusHours(REQUEST_RETENTION_HOURS);
+    }
+
+    public record IndexStatus(boolean ready, int helpers, int openRequests) {}
+}
@@ -0,0 +1,59 @@
+package com.relief.service.spatial;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.entity.User;
+import com.relief.util.TransactionHooks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * JPA entity listener that keeps the {@link SpatialCandidateIndex} current as users and needs
+ * requests are saved or deleted. Changes are applied after the surrounding transaction commits so
+ * rolled back edits never reach the index.
+ *
+ * Instantiated by Spring through Hibernate's bean container. The index is resolved lazily because
+ * listeners are created while the entity manager factory, which the index's repositories need, is
+ * still being built.
+ */
+@Component
+public class SpatialIndexEntityListener {
+
+    private final ObjectProvider<SpatialCandidateIndex> index;
+
+    public SpatialIndexEntityListener(ObjectProvider<SpatialCandidateIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Object entity) {
+        if (entity instanceof User user) {
+            afterCommit(candidates -> candidates.updateHelper(user));
+        } else if (entity instanceof NeedsRequest request) {
+            afterCommit(candidates -> candidates.updateRequest(request));
+        }
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        if (entity instanceof User user) {
+            UUID id = user.getId();
+            afterCommit(candidates -> candidates.removeHelper(id));
+        } else if (entity instanceof NeedsRequest request) {
+            UUID id = request.getId();
+            afterCommit(candidates -> candidates.removeRequest(id));
+        }
+    }
+
+    private void afterCommit(Consumer<SpatialCandidateIndex> change) {
+        SpatialCandidateIndex candidates = index.getIfAvailable();
+        if (candidates == null) return;
+        TransactionHooks.afterCommit(() -> change.accept(candidates));
+    }
+}
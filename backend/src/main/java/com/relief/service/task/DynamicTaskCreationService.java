@@ -29,6 +29,7 @@ public class DynamicTaskCreationService {
     private final UserRepository userRepository;
     private final TaskRuleEngine taskRuleEngine;
     private final IntelligentCategorizationService categorizationService;
+    private final TaskDependencyService taskDependencyService;
     
     /**
      * Get a task by its ID
@@ -47,36 +48,51 @@ public class DynamicTaskCreationService {
         log.info("Creating dynamic tasks for request: {}", request.getId());
         
         List<Task> createdTasks = new ArrayList<>();
+        Map<Task, List<String>> dependencyTypes = new IdentityHashMap<>();
         
         // Get applicable rules for this request
         List<TaskCreationRule> applicableRules = taskRuleEngine.getApplicableRules(request);
         
         for (TaskCreationRule rule : applicableRules) {
-            List<Task> tasks = createTasksFromRule(request, rule);
-            createdTasks.addAll(tasks);
+            for (TaskTemplate template : rule.getTaskTemplates()) {
+                Task task = createTaskFromTemplate(request, template, rule);
+                if (task != null) {
+                    createdTasks.add(task);
+                    if (template.getDependencies() != null && !template.getDependencies().isEmpty()) {
+                        dependencyTypes.put(task, template.getDependencies());
+                    }
+                }
+            }
         }
         
         // Save all created tasks
         createdTasks = taskRepository.saveAll(createdTasks);
+        linkTemplateDependencies(createdTasks, dependencyTypes);
         
         log.info("Created {} dynamic tasks for request {}", createdTasks.size(), request.getId());
         return createdTasks;
     }
 
     /**
-     * Create tasks from a specific rule
+     * Template dependencies name task types; make each task depend on the tasks of those types
+     * created alongside it
      */
-    private List<Task> createTasksFromRule(NeedsRequest request, TaskCreationRule rule) {
-        List<Task> tasks = new ArrayList<>();
+    private void linkTemplateDependencies(List<Task> tasks, Map<Task, List<String>> dependencyTypes) {
+        if (dependencyTypes.isEmpty()) return;
+        Map<String, List<Task>> byType = tasks.stream()
+            .filter(task -> task.getType() != null)
+            .collect(Collectors.groupingBy(Task::getType));
         
-        for (TaskTemplate template : rule.getTaskTemplates()) {
-            Task task = createTaskFromTemplate(request, template, rule);
-            if (task != null) {
-                tasks.add(task);
+        for (Map.Entry<Task, List<String>> entry : dependencyTypes.entrySet()) {
+            Task task = entry.getKey();
+            for (String type : entry.getValue()) {
+                for (Task dependency : byType.getOrDefault(type, List.of())) {
+                    if (dependency != task) {
+                        taskDependencyService.addDependency(task.getId(), dependency.getId());
+                    }
+                }
             }
         }
-        
-        return tasks;
     }
 
     /**
@@ -108,11 +124,6 @@ public class DynamicTaskCreationService {
             task.setLocation(request.getGeomPoint());
         }
         
-        // Set dependencies
-        if (template.getDependencies() != null && !template.getDependencies().isEmpty()) {
-            task.setDependencies(String.join(",", template.getDependencies()));
-        }
-        
         return task;
     }
 
@@ -4,19 +4,37 @@ import com.relief.entity.Task;
 import com.relief.entity.User;
 import com.relief.repository.TaskRepository;
 import com.relief.repository.UserRepository;
+import com.relief.service.escalation.EscalationEntityListener;
+import com.relief.service.roadnetwork.RoadGraph;
+import com.relief.service.roadnetwork.RoadNetworkService;
+import com.relief.service.roadnetwork.RoadNetworkService.RoadPoint;
+import com.relief.service.roadnetwork.RoadNetworkService.TravelTable;
+import com.relief.service.spatial.SpatialCandidateIndex;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Point;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Service for skill-based matching of helpers with tasks
+ *
+ * Once the spatial candidate index is loaded, a located task only scores enabled helpers within
+ * 50 km plus helpers with no known position; farther helpers all share the lowest location band
+ * and are scored only when fewer than 64 helpers are nearby. Location scores use road drive
+ * times from each nearby helper to the task when a road network is loaded, and straight-line
+ * distance otherwise.
  */
 @Service
 @RequiredArgsConstructor
@@ -24,14 +42,33 @@ public class SkillBasedMatchingService {
 
     private static final Logger log = LoggerFactory.getLogger(SkillBasedMatchingService.class);
 
+    private static final String ASSIGN_SQL =
+        "UPDATE tasks SET assignee_id = ?, status = 'assigned', updated_at = ? " +
+        "WHERE id = ? AND assignee_id IS NULL AND status = 'new'";
+
+    private static final int WRITE_BATCH_SIZE = 500;
+    private static final int CANDIDATES_PER_TASK = 64;
+    /** Beyond the last distance band every helper gets the same location score */
+    private static final double PREFILTER_RADIUS_METERS = 50_000;
+
     private final UserRepository userRepository;
     private final TaskRepository taskRepository;
     private final TaskDependencyService taskDependencyService;
+    private final JdbcTemplate jdbcTemplate;
+    private final SpatialCandidateIndex spatialCandidateIndex;
+    private final RoadNetworkService roadNetworkService;
+    private final TaskGraphEntityListener taskGraphListener;
+    private final EscalationEntityListener escalationListener;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ForkJoinPool matchingPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
     /**
      * Find the best match for a task based on skills and availability
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public User findBestMatch(Task task) {
         log.info("Finding best match for task: {}", task.getId());
         
@@ -43,187 +80,231 @@ public class SkillBasedMatchingService {
             return null;
         }
         
-        // Calculate match scores for each helper
-        List<HelperMatch> matches = availableHelpers.stream()
-            .map(helper -> calculateMatchScore(helper, task))
-            .filter(match -> match.getScore() > 0.0) // Only consider helpers with some match
-            .sorted(Comparator.comparing(HelperMatch::getScore).reversed())
-            .collect(Collectors.toList());
+        TaskMatchScorer scorer = new TaskMatchScorer(loadHelperProfiles(availableHelpers),
+            List.of(toTaskProfile(task, LocalDateTime.now())));
+        int[][] subsets = nearbyHelpers(availableHelpers, List.of(task));
+        addDriveTimes(scorer, availableHelpers, List.of(task), subsets);
+        int[] nearby = subsets[0];
+        
+        // Calculate match scores for nearby helpers, or every helper without a prefilter
+        HelperMatch bestMatch = null;
+        for (int i = 0; i < (nearby != null ? nearby.length : availableHelpers.size()); i++) {
+            int helper = nearby != null ? nearby[i] : i;
+            double score = scorer.score(0, helper);
+            if (score > 0.0 && (bestMatch == null || score > bestMatch.getScore())) {
+                bestMatch = describeMatch(scorer, availableHelpers.get(helper), helper, score);
+            }
+        }
         
-        if (matches.isEmpty()) {
+        if (bestMatch == null) {
             log.warn("No suitable helpers found for task {}", task.getId());
             return null;
         }
         
-        HelperMatch bestMatch = matches.get(0);
-        log.info("Best match for task {}: {} with score {}", task.getId(), bestMatch.getHelper().getEmail(), bestMatch.getScore());
+        log.info("Best match for task {}: {} with score {} ({})", task.getId(), bestMatch.getHelper().getEmail(),
+            bestMatch.getScore(), String.join(", ", bestMatch.getReasons()));
         
         return bestMatch.getHelper();
     }
 
     /**
-     * Calculate match score between helper and task
+     * Score breakdown for a matched helper
      */
-    private HelperMatch calculateMatchScore(User helper, Task task) {
-        double score = 0.0;
+    private HelperMatch describeMatch(TaskMatchScorer scorer, User helper, int helperIndex, double score) {
         List<String> reasons = new ArrayList<>();
-        
-        // Skill matching (40% of score)
-        double skillScore = calculateSkillScore(helper, task);
-        score += skillScore * 0.4;
-        if (skillScore > 0) {
-            reasons.add(String.format("Skills: %.1f%%", skillScore * 100));
-        }
-        
-        // Availability matching (30% of score)
-        double availabilityScore = calculateAvailabilityScore(helper, task);
-        score += availabilityScore * 0.3;
-        if (availabilityScore > 0) {
-            reasons.add(String.format("Availability: %.1f%%", availabilityScore * 100));
-        }
-        
-        // Location proximity (20% of score)
-        double locationScore = calculateLocationScore(helper, task);
-        score += locationScore * 0.2;
-        if (locationScore > 0) {
-            reasons.add(String.format("Location: %.1f%%", locationScore * 100));
-        }
-        
-        // Performance history (10% of score)
-        double performanceScore = calculatePerformanceScore(helper, task);
-        score += performanceScore * 0.1;
-        if (performanceScore > 0) {
-            reasons.add(String.format("Performance: %.1f%%", performanceScore * 100));
-        }
-        
+        addReason(reasons, "Skills", scorer.skillScore(0, helperIndex));
+        addReason(reasons, "Availability", scorer.availabilityScore(0, helperIndex));
+        addReason(reasons, "Location", scorer.locationScore(0, helperIndex));
+        addReason(reasons, "Performance", scorer.performanceScore(0, helperIndex));
         return new HelperMatch(helper, score, reasons);
     }
 
-    /**
-     * Calculate skill matching score
-     */
-    private double calculateSkillScore(User helper, Task task) {
-        if (task.getRequiredSkills() == null || task.getRequiredSkills().trim().isEmpty()) {
-            return 1.0; // No specific skills required
+    private static void addReason(List<String> reasons, String label, double score) {
+        if (score > 0) {
+            reasons.add(String.format("%s: %.1f%%", label, score * 100));
         }
-        
-        Set<String> requiredSkills = Arrays.stream(task.getRequiredSkills().split(","))
-            .map(String::trim)
-            .collect(Collectors.toSet());
-        
-        Set<String> helperSkills = getUserSkills(helper);
-        
-        if (helperSkills.isEmpty()) {
-            return 0.0; // Helper has no skills
-        }
-        
-        // Calculate skill overlap
-        Set<String> matchingSkills = new HashSet<>(requiredSkills);
-        matchingSkills.retainAll(helperSkills);
-        
-        return (double) matchingSkills.size() / requiredSkills.size();
     }
 
     /**
-     * Calculate availability score
+     * Load workload and completion history for all helpers with a single task query
      */
-    private double calculateAvailabilityScore(User helper, Task task) {
-        // Check current workload
-        long activeTaskCount = taskRepository.countByAssigneeAndStatusIn(
-            helper, 
-            Arrays.asList("assigned", "picked_up")
-        );
-        
-        // Check if helper is overloaded
-        if (activeTaskCount >= 5) {
-            return 0.0; // Helper is overloaded
+    private List<TaskMatchScorer.HelperProfile> loadHelperProfiles(List<User> helpers) {
+        Map<UUID, Integer> index = new HashMap<>();
+        for (int i = 0; i < helpers.size(); i++) {
+            index.put(helpers.get(i).getId(), i);
         }
         
-        // Calculate availability based on workload
-        double availability = 1.0 - (activeTaskCount / 5.0);
-        
-        // Check if helper has time for this task
-        if (task.getEta() != null) {
-            LocalDateTime now = LocalDateTime.now();
-            long hoursUntilDeadline = java.time.Duration.between(now, task.getEta()).toHours();
-            
-            if (hoursUntilDeadline < 2) {
-                availability *= 0.5; // Reduce score for urgent tasks
+        int[] active = new int[helpers.size()];
+        int[] completed = new int[helpers.size()];
+        int[] failed = new int[helpers.size()];
+        List<Map<String, double[]>> minutesByType = new ArrayList<>();
+        helpers.forEach(helper -> minutesByType.add(new HashMap<>()));
+        
+        List<Object[]> history = taskRepository.findAssigneeHistoryByStatusIn(
+            List.of("assigned", "picked_up", "delivered", "completed", "cancelled", "failed"));
+        for (Object[] row : history) {
+            Integer helper = index.get((UUID) row[0]);
+            if (helper == null) {
+                continue;
+            }
+            String status = (String) row[1];
+            switch (status) {
+                case "assigned", "picked_up" -> active[helper]++;
+                case "cancelled", "failed" -> failed[helper]++;
+                default -> {
+                    completed[helper]++;
+                    if (row[2] != null) {
+                        LocalDateTime createdAt = (LocalDateTime) row[3];
+                        LocalDateTime updatedAt = (LocalDateTime) row[4];
+                        double minutes = createdAt != null && updatedAt != null
+                            ? java.time.Duration.between(createdAt, updatedAt).toMinutes()
+                            : 0;
+                        double[] sum = minutesByType.get(helper).computeIfAbsent((String) row[2], type -> new double[2]);
+                        sum[0] += minutes;
+                        sum[1]++;
+                    }
+                }
             }
         }
         
-        return Math.max(0.0, availability);
+        List<TaskMatchScorer.HelperProfile> profiles = new ArrayList<>(helpers.size());
+        for (int i = 0; i < helpers.size(); i++) {
+            User helper = helpers.get(i);
+            Map<String, Double> averages = new HashMap<>();
+            minutesByType.get(i).forEach((type, sum) -> averages.put(type, sum[0] / sum[1]));
+            Point point = helper.getGeomPoint();
+            profiles.add(new TaskMatchScorer.HelperProfile(
+                getUserSkills(helper), active[i],
+                point != null ? point.getY() : null, point != null ? point.getX() : null,
+                completed[i], failed[i], averages));
+        }
+        return profiles;
     }
 
     /**
-     * Calculate location proximity score
+     * Helper indices per task from the spatial index: helpers within the prefilter radius plus
+     * helpers with no known position, who keep a neutral location score. Rows are null (every
+     * helper) for tasks without a location, with too few nearby helpers, or before the index is
+     * loaded.
      */
-    private double calculateLocationScore(User helper, Task task) {
-        if (task.getLocation() == null || helper.getGeomPoint() == null) {
-            return 0.5; // Neutral score if no location data
+    private int[][] nearbyHelpers(List<User> helpers, List<Task> tasks) {
+        int[][] subsets = new int[tasks.size()][];
+        if (!spatialCandidateIndex.isReady()) {
+            return subsets;
         }
         
-        // Calculate distance between helper and task location
-        double distance = calculateDistance(helper.getGeomPoint(), task.getLocation());
+        Map<UUID, Integer> index = new HashMap<>();
+        List<Integer> unlocated = new ArrayList<>();
+        for (int i = 0; i < helpers.size(); i++) {
+            index.put(helpers.get(i).getId(), i);
+            if (helpers.get(i).getGeomPoint() == null) {
+                unlocated.add(i);
+            }
+        }
         
-        // Score based on distance (closer = higher score)
-        if (distance <= 5.0) return 1.0;      // Within 5km
-        if (distance <= 15.0) return 0.8;     // Within 15km
-        if (distance <= 30.0) return 0.6;     // Within 30km
-        if (distance <= 50.0) return 0.4;     // Within 50km
-        return 0.2;                           // Beyond 50km
+        for (int t = 0; t < tasks.size(); t++) {
+            Point location = tasks.get(t).getLocation();
+            if (location == null) {
+                continue;
+            }
+            List<UUID> nearby = spatialCandidateIndex.helpersWithin(location.getY(), location.getX(), PREFILTER_RADIUS_METERS);
+            int[] subset = new int[nearby.size() + unlocated.size()];
+            int size = 0;
+            for (UUID helperId : nearby) {
+                Integer helper = index.get(helperId);
+                if (helper != null) subset[size++] = helper;
+            }
+            for (int helper : unlocated) {
+                subset[size++] = helper;
+            }
+            if (size >= CANDIDATES_PER_TASK) {
+                subsets[t] = Arrays.copyOf(subset, size);
+            }
+        }
+        return subsets;
     }
 
     /**
-     * Calculate performance score based on historical data
+     * Road drive times from located helpers within the prefilter radius to each located task, as
+     * one table query for the whole batch. Helpers or tasks away from the road network keep their
+     * straight-line score.
      */
-    private double calculatePerformanceScore(User helper, Task task) {
-        // Get helper's task completion history
-        List<Task> completedTasks = taskRepository.findByAssigneeAndStatusIn(
-            helper,
-            Arrays.asList("delivered", "completed")
-        );
-        
-        if (completedTasks.isEmpty()) {
-            return 0.5; // Neutral score for new helpers
+    private void addDriveTimes(TaskMatchScorer scorer, List<User> helpers, List<Task> tasks, int[][] subsets) {
+        if (!roadNetworkService.isLoaded()) {
+            return;
         }
         
-        // Calculate completion rate
-        long totalTasks = completedTasks.size() + 
-            taskRepository.countByAssigneeAndStatusIn(helper, Arrays.asList("cancelled", "failed"));
-        
-        if (totalTasks == 0) {
-            return 0.5;
+        List<Integer> routedTasks = new ArrayList<>();
+        List<int[]> taskHelpers = new ArrayList<>();
+        Map<Integer, Integer> column = new LinkedHashMap<>();
+        for (int t = 0; t < tasks.size(); t++) {
+            Point location = tasks.get(t).getLocation();
+            if (location == null) {
+                continue;
+            }
+            int[] candidates = subsets[t] != null ? subsets[t] : allHelpers(helpers.size());
+            int[] located = Arrays.stream(candidates).filter(h -> {
+                Point point = helpers.get(h).getGeomPoint();
+                return point != null && RoadGraph.haversine(point.getY(), point.getX(), location.getY(),
+                    location.getX()) <= PREFILTER_RADIUS_METERS;
+            }).toArray();
+            if (located.length == 0) {
+                continue;
+            }
+            for (int h : located) {
+                column.putIfAbsent(h, column.size());
+            }
+            routedTasks.add(t);
+            taskHelpers.add(located);
+        }
+        if (routedTasks.isEmpty()) {
+            return;
         }
         
-        double completionRate = (double) completedTasks.size() / totalTasks;
-        
-        // Calculate average completion time for similar tasks
-        List<Task> similarTasks = completedTasks.stream()
-            .filter(t -> t.getType().equals(task.getType()))
-            .collect(Collectors.toList());
+        List<RoadPoint> origins = new ArrayList<>(column.size());
+        for (int h : column.keySet()) {
+            Point point = helpers.get(h).getGeomPoint();
+            origins.add(new RoadPoint(point.getY(), point.getX()));
+        }
+        List<RoadPoint> destinations = routedTasks.stream()
+            .map(t -> new RoadPoint(tasks.get(t).getLocation().getY(), tasks.get(t).getLocation().getX()))
+            .toList();
+        Optional<TravelTable> table = roadNetworkService.travelTable(origins, destinations);
+        if (table.isEmpty()) {
+            return;
+        }
         
-        if (!similarTasks.isEmpty()) {
-            double avgCompletionTime = similarTasks.stream()
-                .mapToDouble(t -> {
-                    if (t.getUpdatedAt() != null && t.getCreatedAt() != null) {
-                        return java.time.Duration.between(t.getCreatedAt(), t.getUpdatedAt()).toMinutes();
-                    }
-                    return 0;
-                })
-                .average()
-                .orElse(0.0);
-            
-            // Bonus for fast completion
-            if (avgCompletionTime > 0 && task.getEta() != null) {
-                long estimatedTime = java.time.Duration.between(LocalDateTime.now(), task.getEta()).toMinutes();
-                if (avgCompletionTime < estimatedTime * 0.8) {
-                    completionRate += 0.2; // Bonus for fast completion
+        double[] seconds = table.get().travelSeconds();
+        for (int i = 0; i < routedTasks.size(); i++) {
+            int[] candidates = taskHelpers.get(i);
+            int[] routed = new int[candidates.length];
+            float[] minutes = new float[candidates.length];
+            int size = 0;
+            for (int h : candidates) {
+                double value = seconds[column.get(h) * destinations.size() + i];
+                if (!Double.isNaN(value)) {
+                    routed[size] = h;
+                    minutes[size++] = (float) (value / 60);
                 }
             }
+            scorer.driveTimes(routedTasks.get(i), Arrays.copyOf(routed, size), Arrays.copyOf(minutes, size));
         }
-        
-        return Math.min(1.0, completionRate);
+    }
+
+    private static int[] allHelpers(int count) {
+        int[] all = new int[count];
+        for (int i = 0; i < count; i++) all[i] = i;
+        return all;
+    }
+
+    private static TaskMatchScorer.TaskProfile toTaskProfile(Task task, LocalDateTime now) {
+        Point location = task.getLocation();
+        return new TaskMatchScorer.TaskProfile(
+            task.getRequiredSkills(),
+            location != null ? location.getY() : null,
+            location != null ? location.getX() : null,
+            task.getType(),
+            task.getEta() != null ? java.time.Duration.between(now, task.getEta()).toMinutes() : null);
     }
 
     /**
@@ -262,48 +343,86 @@ public class SkillBasedMatchingService {
     }
 
     /**
-     * Calculate distance between two points in kilometers
-     */
-    private double calculateDistance(org.locationtech.jts.geom.Point point1, org.locationtech.jts.geom.Point point2) {
-        double lat1 = Math.toRadians(point1.getY());
-        double lon1 = Math.toRadians(point1.getX());
-        double lat2 = Math.toRadians(point2.getY());
-        double lon2 = Math.toRadians(point2.getX());
-
-        double dLat = lat2 - lat1;
-        double dLon = lon2 - lon1;
-
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(lat1) * Math.cos(lat2) *
-                Math.sin(dLon / 2) * Math.sin(dLon / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return 6371.0 * c; // Earth radius in kilometers
-    }
-
-    /**
-     * Auto-assign tasks to best matching helpers
+     * Auto-assign unassigned tasks to helpers as one batch.
+     *
+     * Helpers, their workload and history are loaded once, the task/helper score matrix is built
+     * in parallel and the assignment that maximises the total score under each helper's remaining
+     * capacity is solved as a min-cost flow, instead of greedily handing every task to its single
+     * best helper. Assignments are written with one JDBC batch; tasks claimed concurrently by
+     * someone else are skipped.
+     *
+     * The batch bypasses JPA entity listeners, so the assigned tasks are detached, given the state
+     * the batch wrote and passed to the task graph and escalation listeners, which apply them once
+     * the transaction commits.
+     *
+     * @return number of tasks assigned
      */
     @Transactional
-    public void autoAssignTasks() {
+    public int autoAssignTasks() {
         log.info("Starting auto-assignment of unassigned tasks");
         
         List<Task> unassignedTasks = taskRepository.findByAssigneeIsNullAndStatus("new");
+        List<User> helpers = userRepository.findByRoleAndNotDisabled("HELPER");
+        if (unassignedTasks.isEmpty() || helpers.isEmpty()) {
+            log.info("Auto-assignment skipped: {} unassigned tasks, {} helpers", unassignedTasks.size(), helpers.size());
+            return 0;
+        }
         
-        for (Task task : unassignedTasks) {
-            User bestMatch = findBestMatch(task);
-            if (bestMatch != null) {
-                task.setAssignee(bestMatch);
-                task.setStatus("assigned");
-                task.setUpdatedAt(LocalDateTime.now());
-                taskRepository.save(task);
-                
-                log.info("Auto-assigned task {} to helper {}", task.getId(), bestMatch.getEmail());
+        LocalDateTime now = LocalDateTime.now();
+        TaskMatchScorer scorer = new TaskMatchScorer(loadHelperProfiles(helpers),
+            unassignedTasks.stream().map(task -> toTaskProfile(task, now)).toList());
+        int[][] subsets = nearbyHelpers(helpers, unassignedTasks);
+        addDriveTimes(scorer, helpers, unassignedTasks, subsets);
+        int[] assignment = TaskAssignmentSolver.assign(scorer, subsets, CANDIDATES_PER_TASK, matchingPool);
+        
+        List<Object[]> updates = new ArrayList<>();
+        List<Integer> updatedTasks = new ArrayList<>();
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        for (int t = 0; t < assignment.length; t++) {
+            if (assignment[t] != TaskAssignmentSolver.UNASSIGNED) {
+                updates.add(new Object[]{helpers.get(assignment[t]).getId(), updatedAt, unassignedTasks.get(t).getId()});
+                updatedTasks.add(t);
             }
         }
         
-        log.info("Auto-assignment completed. Processed {} tasks", unassignedTasks.size());
+        int assigned = 0;
+        int row = 0;
+        for (int[] counts : jdbcTemplate.batchUpdate(ASSIGN_SQL, updates, WRITE_BATCH_SIZE,
+                (statement, update) -> {
+                    statement.setObject(1, update[0]);
+                    statement.setTimestamp(2, (Timestamp) update[1]);
+                    statement.setObject(3, update[2]);
+                })) {
+            for (int count : counts) {
+                int t = updatedTasks.get(row++);
+                if (count > 0) {
+                    assigned++;
+                    notifyAssigned(unassignedTasks.get(t), helpers.get(assignment[t]), now);
+                }
+            }
+        }
+        
+        log.info("Auto-assignment completed. Assigned {} of {} tasks to {} helpers",
+            assigned, unassignedTasks.size(), helpers.size());
+        return assigned;
+    }
+
+    /**
+     * Hand a batch-assigned task to the listeners that JDBC writes bypass. Detached first so the
+     * in-memory state set here is not flushed a second time.
+     */
+    private void notifyAssigned(Task task, User helper, LocalDateTime now) {
+        em.detach(task);
+        task.setAssignee(helper);
+        task.setStatus("assigned");
+        task.setUpdatedAt(now);
+        taskGraphListener.saved(task);
+        escalationListener.saved(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        matchingPool.shutdownNow();
     }
 
     /**
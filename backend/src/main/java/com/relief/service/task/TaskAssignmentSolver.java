@@ -0,0 +1,244 @@
+package com.relief.service.task;
+
+import com.relief.util.IntDoubleMinHeap;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Capacitated task-to-helper assignment maximising the total match score.
+ *
+ * Solved as a min-cost flow on the bipartite candidate graph: every task sends one unit, helper
+ * {@code h} accepts up to {@code capacity[h]} units at cost {@code 1 - score}, and a dummy sink
+ * accepts any task at cost 1 (left unassigned). Tasks are added one at a time along shortest
+ * augmenting paths with Johnson potentials; each Dijkstra search stops at the first helper with
+ * spare capacity, so most augmentations only look at a task's own candidate row. Candidate rows
+ * are truncated to the best helpers per task, and tasks whose candidates all fill up are retried
+ * against the helpers that still have capacity.
+ */
+final class TaskAssignmentSolver {
+
+    static final int UNASSIGNED = -1;
+
+    private static final int MAX_ROUNDS = 4;
+
+    private TaskAssignmentSolver() {
+    }
+
+    /**
+     * Helper index per task, or {@link #UNASSIGNED}. The first round only considers each task's
+     * prefiltered helpers, if any; later rounds consider every helper with capacity left.
+     */
+    static int[] assign(TaskMatchScorer scorer, int[][] helperSubsets, int candidatesPerTask, ForkJoinPool pool) {
+        int[] assignment = new int[scorer.taskCount()];
+        Arrays.fill(assignment, UNASSIGNED);
+        int[] remaining = scorer.capacities();
+
+        int[] pending = new int[scorer.taskCount()];
+        for (int t = 0; t < pending.length; t++) {
+            pending[t] = t;
+        }
+        for (int round = 0; round < MAX_ROUNDS && pending.length > 0; round++) {
+            int[][] subsets = null;
+            if (helperSubsets != null) {
+                subsets = new int[pending.length][];
+                for (int i = 0; i < pending.length; i++) {
+                    subsets[i] = round == 0 ? helperSubsets[pending[i]] : null;
+                }
+            }
+            TaskMatchScorer.Candidates candidates = scorer.candidates(pending, remaining, subsets, candidatesPerTask, pool);
+            int[] solved = solve(candidates, remaining);
+
+            int left = 0;
+            for (int i = 0; i < pending.length; i++) {
+                if (solved[i] == UNASSIGNED) {
+                    pending[left++] = pending[i];
+                } else {
+                    assignment[pending[i]] = solved[i];
+                    remaining[solved[i]]--;
+                }
+            }
+            if (left == pending.length) break;
+            pending = Arrays.copyOf(pending, left);
+        }
+        return assignment;
+    }
+
+    /**
+     * Optimal assignment of the candidate rows under the given helper capacities
+     */
+    static int[] solve(TaskMatchScorer.Candidates candidates, int[] capacity) {
+        return new Flow(candidates, capacity).run();
+    }
+
+    private static final class Flow {
+        private final int[] start;
+        private final int[] candidateHelper;
+        private final float[] candidateScore;
+        private final int[] capacity;
+        private final int tasks;
+        private final int sink;
+
+        // Nodes: tasks [0, tasks), helpers [tasks, sink), dummy sink
+        private final double[] potential;
+        private final double[] distance;
+        private final int[] parent;
+        private final boolean[] settled;
+        private final int[] touched;
+        private int touchedCount;
+        private final IntDoubleMinHeap heap = new IntDoubleMinHeap();
+
+        private final int[] assigned;
+        private final float[] assignedScore;
+        private final int[] slotStart;
+        private final int[] slotTask;
+        private final int[] slotOf;
+        private final int[] load;
+
+        Flow(TaskMatchScorer.Candidates candidates, int[] capacity) {
+            this.start = candidates.start();
+            this.candidateHelper = candidates.helper();
+            this.candidateScore = candidates.score();
+            this.capacity = capacity;
+            this.tasks = candidates.taskCount();
+            this.sink = tasks + capacity.length;
+
+            int nodes = sink + 1;
+            potential = new double[nodes];
+            distance = new double[nodes];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            parent = new int[nodes];
+            settled = new boolean[nodes];
+            touched = new int[nodes];
+
+            assigned = new int[tasks];
+            Arrays.fill(assigned, UNASSIGNED);
+            assignedScore = new float[tasks];
+            slotStart = new int[capacity.length + 1];
+            for (int h = 0; h < capacity.length; h++) {
+                slotStart[h + 1] = slotStart[h] + Math.max(0, capacity[h]);
+            }
+            slotTask = new int[slotStart[capacity.length]];
+            slotOf = new int[tasks];
+            load = new int[capacity.length];
+        }
+
+        int[] run() {
+            for (int task = 0; task < tasks; task++) {
+                if (start[task] < start[task + 1]) {
+                    augment(task);
+                }
+            }
+            return assigned;
+        }
+
+        private void augment(int source) {
+            heap.clear();
+            visit(source, 0, -1);
+            heap.add(source, 0);
+            int terminal = -1;
+
+            while (!heap.isEmpty()) {
+                double key = heap.peekKey();
+                int node = heap.poll();
+                if (settled[node] || key > distance[node]) continue;
+                settled[node] = true;
+
+                if (node == sink) {
+                    terminal = node;
+                    break;
+                }
+                if (node < tasks) {
+                    int current = assigned[node];
+                    for (int c = start[node]; c < start[node + 1]; c++) {
+                        int helper = candidateHelper[c];
+                        if (helper == current) continue;
+                        relax(node, tasks + helper, 1.0 - candidateScore[c], key);
+                    }
+                    relax(node, sink, 1.0, key);
+                } else {
+                    int helper = node - tasks;
+                    if (load[helper] < capacity[helper]) {
+                        terminal = node;
+                        break;
+                    }
+                    for (int s = slotStart[helper]; s < slotStart[helper] + load[helper]; s++) {
+                        int task = slotTask[s];
+                        relax(node, task, -(1.0 - assignedScore[task]), key);
+                    }
+                }
+            }
+
+            // Keep reduced costs non-negative: shift settled nodes relative to the terminal
+            double reached = distance[terminal];
+            for (int i = 0; i < touchedCount; i++) {
+                int node = touched[i];
+                if (settled[node]) {
+                    potential[node] += distance[node] - reached;
+                }
+            }
+
+            int node = terminal;
+            while (true) {
+                int task = parent[node];
+                int previous = assigned[task];
+                if (previous != UNASSIGNED) {
+                    release(task, previous);
+                }
+                if (node == sink) {
+                    assigned[task] = UNASSIGNED;
+                } else {
+                    take(task, node - tasks);
+                }
+                if (task == source) break;
+                node = parent[task];
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                int touchedNode = touched[i];
+                distance[touchedNode] = Double.POSITIVE_INFINITY;
+                settled[touchedNode] = false;
+            }
+            touchedCount = 0;
+        }
+
+        private void relax(int from, int to, double cost, double fromDistance) {
+            if (settled[to]) return;
+            double reduced = Math.max(0.0, cost + potential[from] - potential[to]);
+            double candidate = fromDistance + reduced;
+            if (candidate < distance[to]) {
+                visit(to, candidate, from);
+                heap.add(to, candidate);
+            }
+        }
+
+        private void visit(int node, double nodeDistance, int from) {
+            if (distance[node] == Double.POSITIVE_INFINITY) {
+                touched[touchedCount++] = node;
+            }
+            distance[node] = nodeDistance;
+            parent[node] = from;
+        }
+
+        private void take(int task, int helper) {
+            int slot = slotStart[helper] + load[helper]++;
+            slotTask[slot] = task;
+            slotOf[task] = slot;
+            assigned[task] = helper;
+            for (int c = start[task]; c < start[task + 1]; c++) {
+                if (candidateHelper[c] == helper) {
+                    assignedScore[task] = candidateScore[c];
+                    break;
+                }
+            }
+        }
+
+        private void release(int task, int helper) {
+            int last = slotStart[helper] + --load[helper];
+            int slot = slotOf[task];
+            int moved = slotTask[last];
+            slotTask[slot] = moved;
+            slotOf[moved] = slot;
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package com.relief.service.task;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory task dependency DAG.
+ *
+ * Task UUIDs map to dense int node ids with adjacency lists in both directions; the ids of
+ * removed tasks are reused by the next tasks added, so churn does not grow the arrays. Every node
+ * counts its dependencies that are not completed yet; completing or reopening a task adjusts the
+ * counters of its direct dependents only, and a new task whose counter drops to zero enters the
+ * ready set. The ready set is an indexed int set, so membership changes are O(1). Edges that
+ * would close a cycle are rejected, so the graph stays acyclic and critical paths are longest
+ * paths in topological order.
+ *
+ * The graph is owned by {@link TaskDependencyService}, which loads it from the database and
+ * persists edge changes; {@link TaskGraphEntityListener} feeds task status changes after commit.
+ * Until {@link #markLoaded()} the graph may hold tasks without their edges, so readiness answers
+ * are only complete once it is loaded.
+ */
+@Component
+public class TaskDependencyGraph {
+
+    static final Set<String> COMPLETED_STATUSES = Set.of("delivered", "completed", "resolved");
+
+    private static final byte REMOVED = 0;
+    private static final byte NEW = 1;
+    private static final byte ACTIVE = 2;
+    private static final byte DONE = 3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> ids = new HashMap<>();
+
+    private UUID[] uuids = new UUID[1024];
+    private byte[] state = new byte[1024];
+    private int[] durationMinutes = new int[1024];
+    private int[] pending = new int[1024];
+    private int[][] dependencies = new int[1024][];
+    private int[] dependencyCount = new int[1024];
+    private int[][] dependents = new int[1024][];
+    private int[] dependentCount = new int[1024];
+    private int size;
+    // Slots of removed tasks, reused before the arrays grow
+    private int[] freeNodes = new int[64];
+    private int freeCount;
+
+    // Ready set: members[0, readyCount) with each node's position, or -1
+    private int[] readyMembers = new int[1024];
+    private int[] readyPosition = new int[1024];
+    private int readyCount;
+
+    private volatile boolean loaded;
+
+    public record PathResult(List<UUID> path, long totalMinutes) {}
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether every task and edge has been loaded from the database
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    public boolean contains(UUID taskId) {
+        lock.readLock().lock();
+        try {
+            return ids.containsKey(taskId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a task or update its status and estimated duration
+     */
+    public void upsertTask(UUID taskId, String status, long minutes) {
+        lock.writeLock().lock();
+        try {
+            int node = nodeFor(taskId);
+            durationMinutes[node] = (int) Math.max(0, Math.min(Integer.MAX_VALUE, minutes));
+            setState(node, classify(status));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a task unless it is already known, so bulk loads never overwrite live updates
+     */
+    public void addTaskIfAbsent(UUID taskId, String status, long minutes) {
+        lock.writeLock().lock();
+        try {
+            if (!ids.containsKey(taskId)) {
+                int node = nodeFor(taskId);
+                durationMinutes[node] = (int) Math.max(0, Math.min(Integer.MAX_VALUE, minutes));
+                setState(node, classify(status));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeTask(UUID taskId) {
+        lock.writeLock().lock();
+        try {
+            Integer node = ids.remove(taskId);
+            if (node == null) return;
+            for (int i = dependentCount[node] - 1; i >= 0; i--) {
+                unlink(dependents[node][i], node);
+            }
+            for (int i = dependencyCount[node] - 1; i >= 0; i--) {
+                unlink(node, dependencies[node][i]);
+            }
+            readyRemove(node);
+            state[node] = REMOVED;
+            uuids[node] = null;
+            dependencies[node] = null;
+            dependents[node] = null;
+            if (freeCount == freeNodes.length) freeNodes = Arrays.copyOf(freeNodes, freeCount * 2);
+            freeNodes[freeCount++] = node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record that {@code taskId} depends on {@code dependsOnId}; both tasks must be known
+     *
+     * @return false if the edge already existed
+     * @throws IllegalArgumentException if a task is unknown or the edge would create a cycle
+     */
+    public boolean addDependency(UUID taskId, UUID dependsOnId) {
+        lock.writeLock().lock();
+        try {
+            int task = existing(taskId);
+            int dependency = existing(dependsOnId);
+            if (contains(dependencies[task], dependencyCount[task], dependency)) return false;
+            if (task == dependency || reaches(dependency, task)) {
+                throw new IllegalArgumentException("Dependency would create a cycle: " + taskId + " -> " + dependsOnId);
+            }
+            dependencies[task] = append(dependencies[task], dependencyCount[task]++, dependency);
+            dependents[dependency] = append(dependents[dependency], dependentCount[dependency]++, task);
+            if (state[dependency] != DONE) {
+                pending[task]++;
+                updateReady(task);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the edge did not exist
+     */
+    public boolean removeDependency(UUID taskId, UUID dependsOnId) {
+        lock.writeLock().lock();
+        try {
+            Integer task = ids.get(taskId);
+            Integer dependency = ids.get(dependsOnId);
+            if (task == null || dependency == null) return false;
+            return unlink(task, dependency);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether every dependency of the task is completed; false for unknown tasks, whose
+     * dependencies the graph cannot vouch for
+     */
+    public boolean canStart(UUID taskId) {
+        lock.readLock().lock();
+        try {
+            Integer node = ids.get(taskId);
+            return node != null && pending[node] == 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * New tasks whose dependencies are all completed
+     */
+    public List<UUID> readyTasks() {
+        lock.readLock().lock();
+        try {
+            List<UUID> ready = new ArrayList<>(readyCount);
+            for (int i = 0; i < readyCount; i++) {
+                ready.add(uuids[readyMembers[i]]);
+            }
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UUID> dependencies(UUID taskId) {
+        lock.readLock().lock();
+        try {
+            Integer node = ids.get(taskId);
+            return node == null ? List.of() : toUuids(dependencies[node], dependencyCount[node]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UUID> dependents(UUID taskId) {
+        lock.readLock().lock();
+        try {
+            Integer node = ids.get(taskId);
+            return node == null ? List.of() : toUuids(dependents[node], dependentCount[node]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All direct and transitive dependencies of the task in breadth-first order, excluding the task
+     */
+    public List<UUID> dependencyClosure(UUID taskId) {
+        lock.readLock().lock();
+        try {
+            Integer root = ids.get(taskId);
+            if (root == null) return List.of();
+            int[] order = closure(root);
+            List<UUID> result = new ArrayList<>(order.length - 1);
+            for (int i = 1; i < order.length; i++) {
+                result.add(uuids[order[i]]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Longest chain of estimated durations ending at the task, starting with the task itself and
+     * followed by the dependency on the longest chain at each step
+     */
+    public PathResult criticalPath(UUID taskId) {
+        lock.readLock().lock();
+        try {
+            Integer root = ids.get(taskId);
+            if (root == null) return new PathResult(List.of(taskId), 0);
+
+            // Dependencies come before their dependents in reverse BFS-closure topological order
+            int[] topological = topologicalOrder(closure(root));
+            Map<Integer, Long> longest = new HashMap<>(topological.length * 2);
+            Map<Integer, Integer> next = new HashMap<>(topological.length * 2);
+            for (int node : topological) {
+                long best = 0;
+                int bestDependency = -1;
+                for (int i = 0; i < dependencyCount[node]; i++) {
+                    int dependency = dependencies[node][i];
+                    long length = longest.getOrDefault(dependency, 0L);
+                    if (bestDependency < 0 || length > best) {
+                        best = length;
+                        bestDependency = dependency;
+                    }
+                }
+                longest.put(node, best + durationMinutes[node]);
+                next.put(node, bestDependency);
+            }
+
+            List<UUID> path = new ArrayList<>();
+            for (int node = root; node >= 0; node = next.getOrDefault(node, -1)) {
+                path.add(uuids[node]);
+            }
+            return new PathResult(path, longest.getOrDefault(root, 0L));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the task's dependency closure is free of cycles
+     */
+    public boolean isAcyclic(UUID taskId) {
+        lock.readLock().lock();
+        try {
+            Integer root = ids.get(taskId);
+            return root == null || topologicalOrder(closure(root)) != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int nodeFor(UUID taskId) {
+        Integer existing = ids.get(taskId);
+        if (existing != null) return existing;
+        int node;
+        if (freeCount > 0) {
+            node = freeNodes[--freeCount];
+        } else {
+            if (size == uuids.length) grow();
+            node = size++;
+        }
+        ids.put(taskId, node);
+        uuids[node] = taskId;
+        state[node] = NEW;
+        pending[node] = 0;
+        readyPosition[node] = -1;
+        dependencies[node] = null;
+        dependents[node] = null;
+        updateReady(node);
+        return node;
+    }
+
+    private int existing(UUID taskId) {
+        Integer node = ids.get(taskId);
+        if (node == null) {
+            throw new IllegalArgumentException("Task not found: " + taskId);
+        }
+        return node;
+    }
+
+    private void setState(int node, byte next) {
+        byte previous = state[node];
+        if (previous == next) return;
+        if ((previous == DONE) != (next == DONE)) {
+            int delta = next == DONE ? -1 : 1;
+            for (int i = 0; i < dependentCount[node]; i++) {
+                int dependent = dependents[node][i];
+                pending[dependent] += delta;
+                updateReady(dependent);
+            }
+        }
+        state[node] = next;
+        updateReady(node);
+    }
+
+    private boolean unlink(int task, int dependency) {
+        if (!removeValue(dependencies[task], dependencyCount[task], dependency)) return false;
+        dependencyCount[task]--;
+        removeValue(dependents[dependency], dependentCount[dependency], task);
+        dependentCount[dependency]--;
+        if (state[dependency] != DONE) {
+            pending[task]--;
+            updateReady(task);
+        }
+        return true;
+    }
+
+    /**
+     * Whether {@code target} is among the transitive dependencies of {@code from}
+     */
+    private boolean reaches(int from, int target) {
+        BitSet visited = new BitSet(size);
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = from;
+        visited.set(from);
+        while (top > 0) {
+            int node = stack[--top];
+            for (int i = 0; i < dependencyCount[node]; i++) {
+                int dependency = dependencies[node][i];
+                if (dependency == target) return true;
+                if (!visited.get(dependency)) {
+                    visited.set(dependency);
+                    if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = dependency;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Root followed by its transitive dependencies in breadth-first order
+     */
+    private int[] closure(int root) {
+        BitSet visited = new BitSet(size);
+        int[] queue = new int[16];
+        int tail = 0;
+        queue[tail++] = root;
+        visited.set(root);
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int i = 0; i < dependencyCount[node]; i++) {
+                int dependency = dependencies[node][i];
+                if (!visited.get(dependency)) {
+                    visited.set(dependency);
+                    if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                    queue[tail++] = dependency;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    /**
+     * Kahn's algorithm over a dependency closure, dependencies first; null if it has a cycle
+     */
+    private int[] topologicalOrder(int[] nodes) {
+        Map<Integer, Integer> remaining = new HashMap<>(nodes.length * 2);
+        for (int node : nodes) {
+            remaining.put(node, dependencyCount[node]);
+        }
+        int[] order = new int[nodes.length];
+        int tail = 0;
+        for (int node : nodes) {
+            if (dependencyCount[node] == 0) order[tail++] = node;
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = order[head];
+            for (int i = 0; i < dependentCount[node]; i++) {
+                int dependent = dependents[node][i];
+                Integer left = remaining.get(dependent);
+                if (left == null) continue;
+                remaining.put(dependent, left - 1);
+                if (left == 1) order[tail++] = dependent;
+            }
+        }
+        return tail == nodes.length ? order : null;
+    }
+
+    private void updateReady(int node) {
+        if (state[node] == NEW && pending[node] == 0) {
+            if (readyPosition[node] < 0) {
+                readyPosition[node] = readyCount;
+                readyMembers[readyCount++] = node;
+            }
+        } else {
+            readyRemove(node);
+        }
+    }
+
+    private void readyRemove(int node) {
+        int position = readyPosition[node];
+        if (position < 0) return;
+        int last = readyMembers[--readyCount];
+        readyMembers[position] = last;
+        readyPosition[last] = position;
+        readyPosition[node] = -1;
+    }
+
+    private void grow() {
+        int capacity = uuids.length * 2;
+        uuids = Arrays.copyOf(uuids, capacity);
+        state = Arrays.copyOf(state, capacity);
+        durationMinutes = Arrays.copyOf(durationMinutes, capacity);
+        pending = Arrays.copyOf(pending, capacity);
+        dependencies = Arrays.copyOf(dependencies, capacity);
+        dependencyCount = Arrays.copyOf(dependencyCount, capacity);
+        dependents = Arrays.copyOf(dependents, capacity);
+        dependentCount = Arrays.copyOf(dependentCount, capacity);
+        readyMembers = Arrays.copyOf(readyMembers, capacity);
+        readyPosition = Arrays.copyOf(readyPosition, capacity);
+    }
+
+    private List<UUID> toUuids(int[] nodes, int count) {
+        List<UUID> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(uuids[nodes[i]]);
+        }
+        return result;
+    }
+
+    private static byte classify(String status) {
+        if (status != null && COMPLETED_STATUSES.contains(status)) return DONE;
+        return "new".equals(status) ? NEW : ACTIVE;
+    }
+
+    private static int[] append(int[] values, int count, int value) {
+        if (values == null) values = new int[2];
+        else if (count == values.length) values = Arrays.copyOf(values, count * 2);
+        values[count] = value;
+        return values;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Swap-removes the value; the caller decrements the count
+     */
+    private static boolean removeValue(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                values[i] = values[count - 1];
+                return true;
+            }
+        }
+        return false;
+    }
+}
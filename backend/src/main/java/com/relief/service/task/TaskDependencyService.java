@@ -1,20 +1,31 @@
 package com.relief.service.task;
 
 import com.relief.entity.Task;
+import com.relief.entity.TaskDependency;
+import com.relief.repository.TaskDependencyRepository;
 import com.relief.repository.TaskRepository;
+import com.relief.util.TransactionHooks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * Service for managing task dependencies and complex workflows
+ * Service for managing task dependencies and complex workflows.
+ *
+ * Dependency edges are stored in the {@code task_dependencies} join table and mirrored in the
+ * in-memory {@link TaskDependencyGraph}, which answers readiness, dependency chain and critical
+ * path queries without walking the database. The graph is loaded once the application is ready;
+ * task status changes reach it through {@link TaskGraphEntityListener}. Readiness, dependency
+ * chains and critical paths are answered from the database until the load finishes, and for tasks
+ * the graph does not know yet.
  */
 @Service
 @RequiredArgsConstructor
@@ -23,163 +34,188 @@ public class TaskDependencyService {
 
     private static final Logger log = LoggerFactory.getLogger(TaskDependencyService.class);
 
+    private static final Map<String, Long> DEFAULT_DURATIONS = Map.of(
+        "MEDICAL_RESPONSE", 30L,
+        "AMBULANCE_CALL", 5L,
+        "FIRST_AID", 15L,
+        "FOOD_DELIVERY", 60L,
+        "GROCERY_PICKUP", 90L,
+        "WATER_DELIVERY", 45L,
+        "EVACUATION_COORDINATION", 180L,
+        "TRANSPORTATION", 120L,
+        "SAFETY_ASSESSMENT", 60L
+    );
+
     private final TaskRepository taskRepository;
+    private final TaskDependencyRepository taskDependencyRepository;
+    private final TaskDependencyGraph graph;
 
     /**
-     * Check if a task can be started based on its dependencies
+     * Load every task and dependency edge into the graph. Tasks already added by the entity
+     * listener since startup are kept as they are.
      */
-    public boolean canStartTask(Task task) {
-        if (task.getDependencies() == null || task.getDependencies().trim().isEmpty()) {
-            return true; // No dependencies
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadGraph() {
+        for (Object[] row : taskRepository.findDependencyGraphNodes()) {
+            graph.addTaskIfAbsent((UUID) row[0], (String) row[1],
+                estimatedDurationMinutes((String) row[2], (LocalDateTime) row[3], (LocalDateTime) row[4]));
         }
-        
-        List<String> dependencyIds = Arrays.stream(task.getDependencies().split(","))
-            .map(String::trim)
-            .collect(Collectors.toList());
-        
-        for (String dependencyId : dependencyIds) {
-            Task dependency = taskRepository.findById(UUID.fromString(dependencyId)).orElse(null);
-            if (dependency == null) {
-                log.warn("Dependency task {} not found for task {}", dependencyId, task.getId());
-                return false;
+        int edges = 0;
+        for (Object[] row : taskDependencyRepository.findAllEdges()) {
+            try {
+                graph.addDependency((UUID) row[0], (UUID) row[1]);
+                edges++;
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping task dependency {} -> {}: {}", row[0], row[1], e.getMessage());
             }
-            
-            if (!isTaskCompleted(dependency)) {
-                log.debug("Task {} cannot start - dependency {} not completed", task.getId(), dependencyId);
-                return false;
+        }
+        graph.markLoaded();
+        log.info("Task dependency graph loaded: {} tasks, {} dependencies", graph.size(), edges);
+    }
+
+    /**
+     * Make {@code taskId} depend on {@code dependsOnTaskId}
+     *
+     * @throws IllegalArgumentException if either task does not exist or the dependency would
+     *         create a cycle
+     */
+    @Transactional
+    public void addDependency(UUID taskId, UUID dependsOnTaskId) {
+        List<UUID> added = new ArrayList<>(2);
+        for (UUID id : List.of(taskId, dependsOnTaskId)) {
+            // Tasks saved earlier in this transaction only reach the graph after commit
+            if (!graph.contains(id)) {
+                Task task = taskRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Task not found: " + id));
+                graph.addTaskIfAbsent(id, task.getStatus(), estimatedDurationMinutes(task));
+                added.add(id);
             }
         }
-        
-        return true;
+        boolean created;
+        try {
+            created = graph.addDependency(taskId, dependsOnTaskId);
+        } catch (IllegalArgumentException e) {
+            added.forEach(graph::removeTask);
+            throw e;
+        }
+        if (created) {
+            taskDependencyRepository.save(TaskDependency.builder()
+                .taskId(taskId)
+                .dependsOnTaskId(dependsOnTaskId)
+                .createdAt(LocalDateTime.now())
+                .build());
+        }
+        TransactionHooks.afterRollback(() -> {
+            if (created) graph.removeDependency(taskId, dependsOnTaskId);
+            added.forEach(graph::removeTask);
+        });
+    }
+
+    /**
+     * Remove the dependency of {@code taskId} on {@code dependsOnTaskId}
+     *
+     * @return false if there was no such dependency
+     */
+    @Transactional
+    public boolean removeDependency(UUID taskId, UUID dependsOnTaskId) {
+        boolean unlinked = graph.removeDependency(taskId, dependsOnTaskId);
+        boolean removed = unlinked;
+        TaskDependency.Key key = new TaskDependency.Key(taskId, dependsOnTaskId);
+        if (taskDependencyRepository.existsById(key)) {
+            taskDependencyRepository.deleteById(key);
+            removed = true;
+        }
+        // Only an edge the graph held goes back; one it never had would otherwise appear on rollback
+        if (unlinked) {
+            TransactionHooks.afterRollback(() -> {
+                try {
+                    graph.addDependency(taskId, dependsOnTaskId);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Could not restore task dependency {} -> {}: {}", taskId, dependsOnTaskId, e.getMessage());
+                }
+            });
+        }
+        return removed;
+    }
+
+    /**
+     * Check if a task can be started based on its dependencies
+     */
+    @Transactional(readOnly = true)
+    public boolean canStartTask(Task task) {
+        if (graph.isLoaded() && graph.contains(task.getId())) {
+            return graph.canStart(task.getId());
+        }
+        return taskDependencyRepository.countOpenDependencies(task.getId(), TaskDependencyGraph.COMPLETED_STATUSES) == 0;
     }
 
     /**
      * Check if a task is completed
      */
     private boolean isTaskCompleted(Task task) {
-        return Arrays.asList("delivered", "completed", "resolved").contains(task.getStatus());
+        return TaskDependencyGraph.COMPLETED_STATUSES.contains(task.getStatus());
     }
 
     /**
      * Get all tasks that are ready to start (dependencies satisfied)
      */
+    @Transactional(readOnly = true)
     public List<Task> getReadyToStartTasks() {
-        List<Task> allTasks = taskRepository.findAll();
-        
-        return allTasks.stream()
-            .filter(task -> "new".equals(task.getStatus()))
-            .filter(this::canStartTask)
-            .collect(Collectors.toList());
+        if (!graph.isLoaded()) {
+            return taskRepository.findReadyToStart(TaskDependencyGraph.COMPLETED_STATUSES);
+        }
+        List<Task> ready = new ArrayList<>();
+        for (Task task : taskRepository.findAllById(graph.readyTasks())) {
+            // Status changes committed just now reach the graph from their own after-commit hook
+            if ("new".equals(task.getStatus())) ready.add(task);
+        }
+        return ready;
     }
 
     /**
      * Get task dependency chain for a given task
      */
+    @Transactional(readOnly = true)
     public TaskDependencyChain getTaskDependencyChain(Task task) {
+        DependencyView view = dependencyView(task);
         TaskDependencyChain chain = new TaskDependencyChain();
         chain.setRootTask(task);
-        
-        // Build dependency tree
-        buildDependencyTree(task, chain, new HashSet<>());
-        
+        chain.setDependencies(load(view, view.graph().dependencyClosure(task.getId())));
         return chain;
     }
 
     /**
-     * Build dependency tree recursively
+     * Get critical path for a task workflow: the task followed by the chain of dependencies
+     * with the longest total estimated duration
      */
-    private void buildDependencyTree(Task task, TaskDependencyChain chain, Set<UUID> visited) {
-        if (visited.contains(task.getId())) {
-            return; // Avoid circular dependencies
-        }
-        visited.add(task.getId());
-        
-        if (task.getDependencies() != null && !task.getDependencies().trim().isEmpty()) {
-            List<String> dependencyIds = Arrays.stream(task.getDependencies().split(","))
-                .map(String::trim)
-                .collect(Collectors.toList());
-            
-            for (String dependencyId : dependencyIds) {
-                Task dependency = taskRepository.findById(UUID.fromString(dependencyId)).orElse(null);
-                if (dependency != null) {
-                    chain.addDependency(dependency);
-                    buildDependencyTree(dependency, chain, visited);
-                }
-            }
-        }
+    @Transactional(readOnly = true)
+    public List<Task> getCriticalPath(Task rootTask) {
+        return criticalPath(dependencyView(rootTask), rootTask);
     }
 
-    /**
-     * Get critical path for a task workflow
-     */
-    public List<Task> getCriticalPath(Task rootTask) {
-        List<Task> criticalPath = new ArrayList<>();
-        Set<UUID> visited = new HashSet<>();
-        
-        buildCriticalPath(rootTask, criticalPath, visited);
-        
+    private List<Task> criticalPath(DependencyView view, Task rootTask) {
+        List<UUID> path = view.graph().criticalPath(rootTask.getId()).path();
+        List<Task> criticalPath = new ArrayList<>(path.size());
+        criticalPath.add(rootTask);
+        criticalPath.addAll(load(view, path.subList(1, path.size())));
         return criticalPath;
     }
 
     /**
-     * Build critical path recursively
+     * Get estimated duration of a task in minutes
      */
-    private void buildCriticalPath(Task task, List<Task> criticalPath, Set<UUID> visited) {
-        if (visited.contains(task.getId())) {
-            return;
-        }
-        visited.add(task.getId());
-        
-        criticalPath.add(task);
-        
-        if (task.getDependencies() != null && !task.getDependencies().trim().isEmpty()) {
-            List<String> dependencyIds = Arrays.stream(task.getDependencies().split(","))
-                .map(String::trim)
-                .collect(Collectors.toList());
-            
-            // Find the dependency with the longest estimated duration
-            Task longestDependency = null;
-            long maxDuration = 0;
-            
-            for (String dependencyId : dependencyIds) {
-                Task dependency = taskRepository.findById(UUID.fromString(dependencyId)).orElse(null);
-                if (dependency != null) {
-                    long duration = getTaskDuration(dependency);
-                    if (duration > maxDuration) {
-                        maxDuration = duration;
-                        longestDependency = dependency;
-                    }
-                }
-            }
-            
-            if (longestDependency != null) {
-                buildCriticalPath(longestDependency, criticalPath, visited);
-            }
-        }
+    static long estimatedDurationMinutes(Task task) {
+        return estimatedDurationMinutes(task.getType(), task.getCreatedAt(), task.getEta());
     }
 
-    /**
-     * Get estimated duration of a task in minutes
-     */
-    private long getTaskDuration(Task task) {
-        if (task.getEta() != null && task.getCreatedAt() != null) {
-            return java.time.Duration.between(task.getCreatedAt(), task.getEta()).toMinutes();
+    private static long estimatedDurationMinutes(String type, LocalDateTime createdAt, LocalDateTime eta) {
+        if (eta != null && createdAt != null) {
+            return java.time.Duration.between(createdAt, eta).toMinutes();
         }
-        
+
         // Default duration based on task type
-        Map<String, Long> defaultDurations = Map.of(
-            "MEDICAL_RESPONSE", 30L,
-            "AMBULANCE_CALL", 5L,
-            "FIRST_AID", 15L,
-            "FOOD_DELIVERY", 60L,
-            "GROCERY_PICKUP", 90L,
-            "WATER_DELIVERY", 45L,
-            "EVACUATION_COORDINATION", 180L,
-            "TRANSPORTATION", 120L,
-            "SAFETY_ASSESSMENT", 60L
-        );
-        
-        return defaultDurations.getOrDefault(task.getType(), 60L);
+        return type != null ? DEFAULT_DURATIONS.getOrDefault(type, 60L) : 60L;
     }
 
     /**
@@ -189,89 +225,43 @@ public class TaskDependencyService {
     public void updateTaskStatus(Task task, String newStatus) {
         task.setStatus(newStatus);
         task.setUpdatedAt(LocalDateTime.now());
-        taskRepository.save(task);
-        
-        // Check if any dependent tasks can now start
+        // Flush so the graph update is registered ahead of the readiness check below
+        taskRepository.saveAndFlush(task);
+
         if (isTaskCompleted(task)) {
-            List<Task> dependentTasks = findDependentTasks(task);
-            
-            for (Task dependentTask : dependentTasks) {
-                if (canStartTask(dependentTask)) {
-                    log.info("Task {} is now ready to start (dependency {} completed)", 
-                        dependentTask.getId(), task.getId());
-                    // In real implementation, send notification or trigger workflow
+            UUID completedId = task.getId();
+            TransactionHooks.afterCommit(() -> {
+                for (UUID dependentId : graph.dependents(completedId)) {
+                    if (graph.canStart(dependentId)) {
+                        log.info("Task {} is now ready to start (dependency {} completed)",
+                            dependentId, completedId);
+                        // In real implementation, send notification or trigger workflow
+                    }
                 }
-            }
+            });
         }
     }
 
-    /**
-     * Find all tasks that depend on the given task
-     */
-    private List<Task> findDependentTasks(Task task) {
-        List<Task> allTasks = taskRepository.findAll();
-        
-        return allTasks.stream()
-            .filter(t -> t.getDependencies() != null && !t.getDependencies().trim().isEmpty())
-            .filter(t -> Arrays.stream(t.getDependencies().split(","))
-                .map(String::trim)
-                .anyMatch(depId -> depId.equals(task.getId().toString())))
-            .collect(Collectors.toList());
-    }
-
     /**
      * Validate task dependency chain for circular dependencies
      */
     public boolean validateDependencyChain(Task task) {
-        Set<UUID> visited = new HashSet<>();
-        Set<UUID> recursionStack = new HashSet<>();
-        
-        return validateDependencyChainRecursive(task, visited, recursionStack);
-    }
-
-    /**
-     * Validate dependency chain recursively
-     */
-    private boolean validateDependencyChainRecursive(Task task, Set<UUID> visited, Set<UUID> recursionStack) {
-        if (recursionStack.contains(task.getId())) {
-            return false; // Circular dependency detected
-        }
-        
-        if (visited.contains(task.getId())) {
-            return true; // Already validated
-        }
-        
-        visited.add(task.getId());
-        recursionStack.add(task.getId());
-        
-        if (task.getDependencies() != null && !task.getDependencies().trim().isEmpty()) {
-            List<String> dependencyIds = Arrays.stream(task.getDependencies().split(","))
-                .map(String::trim)
-                .collect(Collectors.toList());
-            
-            for (String dependencyId : dependencyIds) {
-                Task dependency = taskRepository.findById(UUID.fromString(dependencyId)).orElse(null);
-                if (dependency != null) {
-                    if (!validateDependencyChainRecursive(dependency, visited, recursionStack)) {
-                        return false;
-                    }
-                }
-            }
-        }
-        
-        recursionStack.remove(task.getId());
-        return true;
+        return graph.isAcyclic(task.getId());
     }
 
     /**
      * Get task workflow visualization data
      */
+    @Transactional(readOnly = true)
     public TaskWorkflowVisualization getTaskWorkflowVisualization(Task rootTask) {
+        DependencyView view = dependencyView(rootTask);
         TaskWorkflowVisualization visualization = new TaskWorkflowVisualization();
         visualization.setRootTask(rootTask);
         
         // Get all tasks in the workflow
-        List<Task> allTasks = getAllTasksInWorkflow(rootTask);
+        List<Task> allTasks = new ArrayList<>();
+        allTasks.add(rootTask);
+        allTasks.addAll(load(view, view.graph().dependencyClosure(rootTask.getId())));
         visualization.setAllTasks(allTasks);
         
         // Calculate workflow metrics
@@ -279,46 +269,80 @@ public class TaskDependencyService {
         visualization.setMetrics(metrics);
         
         // Get critical path
-        List<Task> criticalPath = getCriticalPath(rootTask);
+        List<Task> criticalPath = criticalPath(view, rootTask);
         visualization.setCriticalPath(criticalPath);
         
         return visualization;
     }
 
     /**
-     * Get all tasks in a workflow
+     * The shared graph once it is loaded and knows the task. Otherwise the task's dependency closure
+     * is read from the database one level per query into a scratch graph, together with its tasks.
      */
-    private List<Task> getAllTasksInWorkflow(Task rootTask) {
-        List<Task> allTasks = new ArrayList<>();
-        Set<UUID> visited = new HashSet<>();
-        
-        collectAllTasks(rootTask, allTasks, visited);
-        
-        return allTasks;
+    private DependencyView dependencyView(Task root) {
+        if (graph.isLoaded() && graph.contains(root.getId())) {
+            return new DependencyView(graph, null);
+        }
+        TaskDependencyGraph scratch = new TaskDependencyGraph();
+        Map<UUID, Task> tasks = new HashMap<>();
+        tasks.put(root.getId(), root);
+        scratch.addTaskIfAbsent(root.getId(), root.getStatus(), estimatedDurationMinutes(root));
+
+        List<Object[]> edges = new ArrayList<>();
+        Set<UUID> seen = new HashSet<>(tasks.keySet());
+        List<UUID> frontier = List.of(root.getId());
+        while (!frontier.isEmpty()) {
+            List<UUID> next = new ArrayList<>();
+            for (Object[] row : taskDependencyRepository.findEdgesFrom(frontier)) {
+                edges.add(row);
+                if (seen.add((UUID) row[1])) next.add((UUID) row[1]);
+            }
+            if (!next.isEmpty()) {
+                for (Task task : taskRepository.findAllById(next)) {
+                    tasks.put(task.getId(), task);
+                    scratch.addTaskIfAbsent(task.getId(), task.getStatus(), estimatedDurationMinutes(task));
+                }
+            }
+            frontier = next;
+        }
+        for (Object[] row : edges) {
+            try {
+                scratch.addDependency((UUID) row[0], (UUID) row[1]);
+            } catch (IllegalArgumentException e) {
+                log.debug("Skipping task dependency {} -> {}: {}", row[0], row[1], e.getMessage());
+            }
+        }
+        return new DependencyView(scratch, tasks);
     }
 
     /**
-     * Collect all tasks recursively
+     * Tasks for the IDs in order, from the view's own tasks when it read them from the database
      */
-    private void collectAllTasks(Task task, List<Task> allTasks, Set<UUID> visited) {
-        if (visited.contains(task.getId())) {
-            return;
+    private List<Task> load(DependencyView view, List<UUID> ids) {
+        if (view.tasks() == null) return loadInOrder(ids);
+        List<Task> tasks = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Task task = view.tasks().get(id);
+            if (task != null) tasks.add(task);
         }
-        visited.add(task.getId());
-        allTasks.add(task);
-        
-        if (task.getDependencies() != null && !task.getDependencies().trim().isEmpty()) {
-            List<String> dependencyIds = Arrays.stream(task.getDependencies().split(","))
-                .map(String::trim)
-                .collect(Collectors.toList());
-            
-            for (String dependencyId : dependencyIds) {
-                Task dependency = taskRepository.findById(UUID.fromString(dependencyId)).orElse(null);
-                if (dependency != null) {
-                    collectAllTasks(dependency, allTasks, visited);
-                }
-            }
+        return tasks;
+    }
+
+    /**
+     * Load tasks in one query, keeping the order of the IDs and skipping missing ones
+     */
+    private List<Task> loadInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        Map<UUID, Task> byId = new HashMap<>(ids.size() * 2);
+        for (Task task : taskRepository.findAllById(ids)) {
+            byId.put(task.getId(), task);
+        }
+        List<Task> tasks = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Task task = byId.get(id);
+            if (task != null) tasks.add(task);
         }
+        return tasks;
     }
 
     /**
@@ -334,7 +358,7 @@ public class TaskDependencyService {
         
         // Calculate total estimated duration
         long totalDuration = tasks.stream()
-            .mapToLong(this::getTaskDuration)
+            .mapToLong(TaskDependencyService::estimatedDurationMinutes)
             .sum();
         metrics.setTotalEstimatedDurationMinutes(totalDuration);
         
@@ -346,6 +370,11 @@ public class TaskDependencyService {
         return metrics;
     }
 
+    /**
+     * Dependency graph to answer a query from, with the tasks already loaded for it if any
+     */
+    private record DependencyView(TaskDependencyGraph graph, Map<UUID, Task> tasks) {}
+
     /**
      * Task dependency chain data class
      */
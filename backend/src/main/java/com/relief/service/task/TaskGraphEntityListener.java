@@ -0,0 +1,51 @@
+package com.relief.service.task;
+
+import com.relief.entity.Task;
+import com.relief.util.TransactionHooks;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * JPA entity listener that keeps the {@link TaskDependencyGraph} current as tasks are saved or
+ * deleted. Changes are applied after the surrounding transaction commits so rolled back status
+ * changes never reach the graph.
+ *
+ * Instantiated by Spring through Hibernate's bean container; the graph is resolved lazily for the
+ * same reason as in {@link com.relief.service.spatial.SpatialIndexEntityListener}.
+ */
+@Component
+public class TaskGraphEntityListener {
+
+    private final ObjectProvider<TaskDependencyGraph> graph;
+
+    public TaskGraphEntityListener(ObjectProvider<TaskDependencyGraph> graph) {
+        this.graph = graph;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Task task) {
+        UUID id = task.getId();
+        String status = task.getStatus();
+        long minutes = TaskDependencyService.estimatedDurationMinutes(task);
+        afterCommit(dependencies -> dependencies.upsertTask(id, status, minutes));
+    }
+
+    @PostRemove
+    public void removed(Task task) {
+        UUID id = task.getId();
+        afterCommit(dependencies -> dependencies.removeTask(id));
+    }
+
+    private void afterCommit(Consumer<TaskDependencyGraph> change) {
+        TaskDependencyGraph dependencies = graph.getIfAvailable();
+        if (dependencies == null) return;
+        TransactionHooks.afterCommit(() -> change.accept(dependencies));
+    }
+}
@@ -0,0 +1,380 @@
+package com.relief.service.task;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Precomputed helper and task profiles for skill-based matching.
+ *
+ * Skills are interned into bitsets, locations into unit vectors on the sphere (distance bands
+ * become dot-product thresholds) and workload and completion history into per-helper arrays, so
+ * a task/helper score is a handful of array reads. The weights and bands match the original
+ * per-pair scoring: skills 40%, availability 30%, location 20%, performance 10%.
+ *
+ * When road drive times are supplied for a task, its helpers are scored by drive-time bands
+ * instead of straight-line distance; helpers with no open route get no location score.
+ */
+final class TaskMatchScorer {
+
+    static final int MAX_ACTIVE_TASKS = 5;
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double[] DISTANCE_BANDS_KM = {5.0, 15.0, 30.0, 50.0};
+    private static final double[] DISTANCE_BAND_SCORES = {1.0, 0.8, 0.6, 0.4};
+    private static final double BEYOND_BANDS_SCORE = 0.2;
+    /** Drive times matching the distance bands at typical speeds on damaged or congested roads */
+    private static final double[] DRIVE_BANDS_MINUTES = {10.0, 25.0, 45.0, 75.0};
+    private static final double[] BAND_MIN_DOT = new double[DISTANCE_BANDS_KM.length];
+
+    static {
+        for (int i = 0; i < DISTANCE_BANDS_KM.length; i++) {
+            BAND_MIN_DOT[i] = Math.cos(DISTANCE_BANDS_KM[i] / EARTH_RADIUS_KM);
+        }
+    }
+
+    /**
+     * Helper inputs. {@code averageMinutesByType} is the mean completion time of the helper's
+     * completed tasks per task type.
+     */
+    record HelperProfile(Set<String> skills, int activeTasks, Double latitude, Double longitude,
+                         int completedTasks, int failedTasks, Map<String, Double> averageMinutesByType) {}
+
+    /**
+     * Task inputs. {@code minutesUntilEta} is null when the task has no ETA.
+     */
+    record TaskProfile(String requiredSkills, Double latitude, Double longitude, String type, Long minutesUntilEta) {}
+
+    /**
+     * Top-scoring helpers per task in CSR layout: candidates of task {@code t} are
+     * {@code [start[t], start[t + 1])}, best first.
+     */
+    record Candidates(int[] start, int[] helper, float[] score) {
+        int taskCount() { return start.length - 1; }
+    }
+
+    private final int helperCount;
+    private final int taskCount;
+    private final int words;
+
+    private final long[] helperSkills;
+    private final boolean[] helperHasSkills;
+    private final double[] availability;
+    private final int[] capacity;
+    private final double[] helperVector;
+    private final double[] completionRate;
+    private final boolean[] hasHistory;
+    private final float[] averageMinutes;
+    private final int typeCount;
+
+    private final long[] requiredSkills;
+    private final int[] requiredCount;
+    private final double[] taskVector;
+    private final boolean[] urgent;
+    private final long[] minutesUntilEta;
+    private final int[] taskType;
+    /** Per task, helpers with a road drive time in ascending order, or null */
+    private final int[][] driveHelpers;
+    private final float[][] driveMinutes;
+
+    TaskMatchScorer(List<HelperProfile> helpers, List<TaskProfile> tasks) {
+        helperCount = helpers.size();
+        taskCount = tasks.size();
+
+        Map<String, Integer> skillIds = new HashMap<>();
+        Map<String, Integer> typeIds = new HashMap<>();
+        List<Set<String>> required = tasks.stream().map(task -> parseSkills(task.requiredSkills())).toList();
+        helpers.forEach(helper -> helper.skills().forEach(skill -> skillIds.putIfAbsent(skill, skillIds.size())));
+        required.forEach(skills -> skills.forEach(skill -> skillIds.putIfAbsent(skill, skillIds.size())));
+        tasks.forEach(task -> typeIds.putIfAbsent(task.type(), typeIds.size()));
+        words = Math.max(1, (skillIds.size() + 63) >>> 6);
+        typeCount = typeIds.size();
+
+        helperSkills = new long[helperCount * words];
+        helperHasSkills = new boolean[helperCount];
+        availability = new double[helperCount];
+        capacity = new int[helperCount];
+        helperVector = new double[helperCount * 3];
+        completionRate = new double[helperCount];
+        hasHistory = new boolean[helperCount];
+        averageMinutes = new float[helperCount * Math.max(1, typeCount)];
+        for (int h = 0; h < helperCount; h++) {
+            HelperProfile helper = helpers.get(h);
+            for (String skill : helper.skills()) {
+                int id = skillIds.get(skill);
+                helperSkills[h * words + (id >>> 6)] |= 1L << id;
+            }
+            helperHasSkills[h] = !helper.skills().isEmpty();
+            int active = helper.activeTasks();
+            availability[h] = active >= MAX_ACTIVE_TASKS ? 0.0 : 1.0 - active / (double) MAX_ACTIVE_TASKS;
+            capacity[h] = Math.max(0, MAX_ACTIVE_TASKS - active);
+            unitVector(helper.latitude(), helper.longitude(), helperVector, h);
+
+            hasHistory[h] = helper.completedTasks() > 0;
+            completionRate[h] = hasHistory[h]
+                ? (double) helper.completedTasks() / (helper.completedTasks() + helper.failedTasks())
+                : 0.5;
+            for (Map.Entry<String, Double> entry : helper.averageMinutesByType().entrySet()) {
+                Integer type = typeIds.get(entry.getKey());
+                if (type != null) {
+                    averageMinutes[h * typeCount + type] = entry.getValue().floatValue();
+                }
+            }
+        }
+
+        requiredSkills = new long[taskCount * words];
+        requiredCount = new int[taskCount];
+        taskVector = new double[taskCount * 3];
+        urgent = new boolean[taskCount];
+        minutesUntilEta = new long[taskCount];
+        taskType = new int[taskCount];
+        for (int t = 0; t < taskCount; t++) {
+            TaskProfile task = tasks.get(t);
+            for (String skill : required.get(t)) {
+                int id = skillIds.get(skill);
+                requiredSkills[t * words + (id >>> 6)] |= 1L << id;
+            }
+            requiredCount[t] = required.get(t).size();
+            unitVector(task.latitude(), task.longitude(), taskVector, t);
+            Long eta = task.minutesUntilEta();
+            minutesUntilEta[t] = eta == null ? Long.MIN_VALUE : eta;
+            urgent[t] = eta != null && eta < 120;
+            taskType[t] = typeIds.get(task.type());
+        }
+        driveHelpers = new int[taskCount][];
+        driveMinutes = new float[taskCount][];
+    }
+
+    /**
+     * Road drive times from {@code helpers} to {@code task}; {@code Float.POSITIVE_INFINITY}
+     * marks a helper with no open route. Must be set before scoring.
+     */
+    void driveTimes(int task, int[] helpers, float[] minutes) {
+        Integer[] order = new Integer[helpers.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(helpers[a], helpers[b]));
+        int[] sortedHelpers = new int[helpers.length];
+        float[] sortedMinutes = new float[helpers.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedHelpers[i] = helpers[order[i]];
+            sortedMinutes[i] = minutes[order[i]];
+        }
+        driveHelpers[task] = sortedHelpers;
+        driveMinutes[task] = sortedMinutes;
+    }
+
+    int helperCount() { return helperCount; }
+
+    int taskCount() { return taskCount; }
+
+    /**
+     * Remaining assignment capacity per helper, given the workload cap
+     */
+    int[] capacities() { return capacity.clone(); }
+
+    double score(int task, int helper) {
+        return 0.4 * skillScore(task, helper)
+            + 0.3 * availabilityScore(task, helper)
+            + 0.2 * locationScore(task, helper)
+            + 0.1 * performanceScore(task, helper);
+    }
+
+    double skillScore(int task, int helper) {
+        if (requiredCount[task] == 0) return 1.0;
+        if (!helperHasSkills[helper]) return 0.0;
+        int matching = 0;
+        for (int w = 0; w < words; w++) {
+            matching += Long.bitCount(requiredSkills[task * words + w] & helperSkills[helper * words + w]);
+        }
+        return (double) matching / requiredCount[task];
+    }
+
+    double availabilityScore(int task, int helper) {
+        return urgent[task] ? availability[helper] * 0.5 : availability[helper];
+    }
+
+    double locationScore(int task, int helper) {
+        int[] drive = driveHelpers[task];
+        if (drive != null) {
+            int i = Arrays.binarySearch(drive, helper);
+            if (i >= 0) return driveScore(driveMinutes[task][i]);
+        }
+        int t = task * 3;
+        int h = helper * 3;
+        if (Double.isNaN(taskVector[t]) || Double.isNaN(helperVector[h])) return 0.5;
+        double dot = taskVector[t] * helperVector[h] + taskVector[t + 1] * helperVector[h + 1]
+            + taskVector[t + 2] * helperVector[h + 2];
+        for (int band = 0; band < BAND_MIN_DOT.length; band++) {
+            if (dot >= BAND_MIN_DOT[band]) return DISTANCE_BAND_SCORES[band];
+        }
+        return BEYOND_BANDS_SCORE;
+    }
+
+    private static double driveScore(float minutes) {
+        if (minutes == Float.POSITIVE_INFINITY) return 0.0;
+        for (int band = 0; band < DRIVE_BANDS_MINUTES.length; band++) {
+            if (minutes <= DRIVE_BANDS_MINUTES[band]) return DISTANCE_BAND_SCORES[band];
+        }
+        return BEYOND_BANDS_SCORE;
+    }
+
+    double performanceScore(int task, int helper) {
+        if (!hasHistory[helper]) return 0.5;
+        double rate = completionRate[helper];
+        long eta = minutesUntilEta[task];
+        if (eta != Long.MIN_VALUE) {
+            float average = averageMinutes[helper * typeCount + taskType[task]];
+            if (average > 0 && average < eta * 0.8) {
+                rate += 0.2; // Bonus for fast completion
+            }
+        }
+        return Math.min(1.0, rate);
+    }
+
+    /**
+     * Best {@code limit} helpers for each listed task among helpers with remaining capacity.
+     * {@code helperSubsets}, when given, restricts each task's row to a prefiltered set of helper
+     * indices ({@code null} rows consider every helper). Rows are scored in parallel on
+     * {@code pool}.
+     */
+    Candidates candidates(int[] tasks, int[] remainingCapacity, int[][] helperSubsets, int limit, ForkJoinPool pool) {
+        int[] eligible = new int[helperCount];
+        int eligibleCount = 0;
+        for (int h = 0; h < helperCount; h++) {
+            if (remainingCapacity[h] > 0) eligible[eligibleCount++] = h;
+        }
+        int[] allHelpers = Arrays.copyOf(eligible, eligibleCount);
+
+        int[][] rows = new int[tasks.length][];
+        int[] start = new int[tasks.length + 1];
+        for (int i = 0; i < tasks.length; i++) {
+            int[] subset = helperSubsets != null ? helperSubsets[i] : null;
+            rows[i] = subset == null ? allHelpers
+                : Arrays.stream(subset).filter(h -> remainingCapacity[h] > 0).toArray();
+            start[i + 1] = start[i] + Math.min(limit, rows[i].length);
+        }
+
+        int[] rowHelper = new int[start[tasks.length]];
+        float[] rowScore = new float[start[tasks.length]];
+        if (rowHelper.length > 0) {
+            pool.invoke(new RowTask(tasks, rows, start, rowHelper, rowScore, 0, tasks.length));
+        }
+        return new Candidates(start, rowHelper, rowScore);
+    }
+
+    /**
+     * Keeps the top {@code width} scores of one task row with a bounded min-heap, then sorts
+     * them best first
+     */
+    private void scoreRow(int task, int[] helpers, int width, int[] outHelper, float[] outScore, int offset) {
+        int size = 0;
+        for (int helper : helpers) {
+            float score = (float) score(task, helper);
+            if (size < width) {
+                int i = offset + size++;
+                outHelper[i] = helper;
+                outScore[i] = score;
+                siftUp(outHelper, outScore, offset, size - 1);
+            } else if (score > outScore[offset]) {
+                outHelper[offset] = helper;
+                outScore[offset] = score;
+                siftDown(outHelper, outScore, offset, size, 0);
+            }
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(outHelper, outScore, offset, offset + end);
+            siftDown(outHelper, outScore, offset, end, 0);
+        }
+    }
+
+    private static void siftUp(int[] helper, float[] score, int offset, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (score[offset + parent] <= score[offset + i]) return;
+            swap(helper, score, offset + parent, offset + i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] helper, float[] score, int offset, int size, int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) return;
+            if (child + 1 < size && score[offset + child + 1] < score[offset + child]) child++;
+            if (score[offset + i] <= score[offset + child]) return;
+            swap(helper, score, offset + i, offset + child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] helper, float[] score, int a, int b) {
+        int h = helper[a];
+        helper[a] = helper[b];
+        helper[b] = h;
+        float s = score[a];
+        score[a] = score[b];
+        score[b] = s;
+    }
+
+    static Set<String> parseSkills(String skills) {
+        Set<String> parsed = new HashSet<>();
+        if (skills == null || skills.trim().isEmpty()) return parsed;
+        for (String skill : skills.split(",")) {
+            parsed.add(skill.trim());
+        }
+        return parsed;
+    }
+
+    private static void unitVector(Double latitude, Double longitude, double[] out, int index) {
+        int i = index * 3;
+        if (latitude == null || longitude == null) {
+            out[i] = Double.NaN;
+            return;
+        }
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        out[i] = Math.cos(lat) * Math.cos(lon);
+        out[i + 1] = Math.cos(lat) * Math.sin(lon);
+        out[i + 2] = Math.sin(lat);
+    }
+
+    private final class RowTask extends RecursiveAction {
+        private static final int ROWS_PER_TASK = 32;
+
+        private final int[] tasks;
+        private final int[][] rows;
+        private final int[] start;
+        private final int[] outHelper;
+        private final float[] outScore;
+        private final int from;
+        private final int to;
+
+        RowTask(int[] tasks, int[][] rows, int[] start, int[] outHelper, float[] outScore, int from, int to) {
+            this.tasks = tasks;
+            this.rows = rows;
+            this.start = start;
+            this.outHelper = outHelper;
+            this.outScore = outScore;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    scoreRow(tasks[i], rows[i], start[i + 1] - start[i], outHelper, outScore, start[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(tasks, rows, start, outHelper, outScore, from, mid),
+                new RowTask(tasks, rows, start, outHelper, outScore, mid, to));
+        }
+    }
+}
@@ -1,61 +1,65 @@
 package com.relief.service.task;
 
 import com.relief.entity.NeedsRequest;
-import lombok.RequiredArgsConstructor;
+import com.relief.util.RuleIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * Engine for managing task creation rules and patterns
+ * Engine for managing task creation rules and patterns.
+ *
+ * Rules are compiled into a {@link RuleIndex} keyed by request type, status, severity band and
+ * location requirement, so matching a request only touches the rules that can apply. The rule set
+ * is the built-in one; nothing edits it at runtime, so the index is compiled once at construction.
  */
 @Service
 @Slf4j
 public class TaskRuleEngine {
 
-    private final Map<String, TaskCreationRule> rules = new HashMap<>();
+    private static final Comparator<TaskCreationRule> EVALUATION_ORDER =
+        Comparator.comparing(TaskCreationRule::getPriority).reversed();
+
+    private final Map<String, TaskCreationRule> rules = new LinkedHashMap<>();
+    private volatile RuleIndex<TaskCreationRule> index;
 
     public TaskRuleEngine() {
         initializeDefaultRules();
+        recompile();
     }
 
     /**
-     * Get applicable rules for a request
+     * Get applicable rules for a request, highest priority first
      */
     public List<TaskCreationRule> getApplicableRules(NeedsRequest request) {
-        return rules.values().stream()
-            .filter(rule -> isRuleApplicable(rule, request))
-            .sorted(Comparator.comparing(TaskCreationRule::getPriority).reversed())
-            .collect(Collectors.toList());
+        return index.matches(request.getType(), request.getStatus(), request.getSeverity(),
+            request.getGeomPoint() != null);
     }
 
     /**
-     * Check if a rule is applicable to a request
+     * Get all rules in evaluation order
      */
-    private boolean isRuleApplicable(TaskCreationRule rule, NeedsRequest request) {
-        // Check request type
-        if (rule.getRequestTypes() != null && !rule.getRequestTypes().contains(request.getType())) {
-            return false;
-        }
-        
-        // Check severity threshold
-        if (request.getSeverity() < rule.getMinSeverity()) {
-            return false;
-        }
-        
-        // Check status
-        if (rule.getRequestStatuses() != null && !rule.getRequestStatuses().contains(request.getStatus())) {
-            return false;
-        }
-        
-        // Check location requirements
-        if (rule.isLocationRequired() && request.getGeomPoint() == null) {
-            return false;
-        }
-        
-        return true;
+    public List<TaskCreationRule> getRules() {
+        return index.rules();
+    }
+
+    /**
+     * Swap in a complete rule set, for tests and benchmarks; requests being matched keep using the
+     * previous one
+     */
+    synchronized void replaceRules(Collection<TaskCreationRule> newRules) {
+        rules.clear();
+        newRules.forEach(rule -> rules.put(rule.getId(), rule));
+        recompile();
+    }
+
+    private void recompile() {
+        List<TaskCreationRule> ordered = new ArrayList<>(rules.values());
+        ordered.sort(EVALUATION_ORDER);
+        index = RuleIndex.compile(ordered, rule -> new RuleIndex.Criteria(
+            rule.getRequestTypes(), rule.getRequestStatuses(), rule.getMinSeverity(), rule.isLocationRequired()));
+        log.debug("Compiled {} task creation rules", ordered.size());
     }
 
     /**
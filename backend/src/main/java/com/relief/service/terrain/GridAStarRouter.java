@@ -0,0 +1,315 @@
+package com.relief.service.terrain;
+
+import com.relief.util.IntDoubleMinHeap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A* path search over a {@link TerrainCostRaster} with 8-connected moves.
+ *
+ * Travel cost of a move is its horizontal length scaled by a quadratic slope factor and by the
+ * average cell penalty of both cells; moves steeper than the configured maximum slope are
+ * impassable. The cost is symmetric, so the same model drives the optional bidirectional search.
+ * Search state lives in per-thread buffers that are reused across queries and reset by
+ * generation stamps rather than by clearing.
+ */
+@Component
+public class GridAStarRouter {
+
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final double SQRT2 = Math.sqrt(2);
+
+    private static final ThreadLocal<SearchBuffers> BUFFERS = ThreadLocal.withInitial(SearchBuffers::new);
+
+    /**
+     * Find the cheapest path between two cells, or {@code null} if the target is unreachable.
+     */
+    public GridPath findPath(TerrainCostRaster raster, int source, int target,
+                             CostModel model, boolean bidirectional) {
+        return findPath(raster, source, target, model, bidirectional, null);
+    }
+
+    /**
+     * Find up to {@code k} distinct paths. After each search the cells within
+     * {@code corridorCells} of the found path are penalised and the search is repeated;
+     * candidates that share more than {@code maxOverlap} of their cells with an accepted path
+     * are discarded. Returned costs are measured on the unpenalised raster.
+     */
+    public List<GridPath> findAlternatives(TerrainCostRaster raster, int source, int target,
+                                           CostModel model, boolean bidirectional,
+                                           int k, int corridorCells, double penaltyWeight, double maxOverlap) {
+        List<GridPath> accepted = new ArrayList<>();
+        float[] overlay = new float[raster.size()];
+        Arrays.fill(overlay, 1.0f);
+
+        for (int iteration = 1; iteration <= k * 2 && accepted.size() < k; iteration++) {
+            GridPath candidate = findPath(raster, source, target, model, bidirectional, overlay);
+            if (candidate == null) break;
+
+            if (isDistinct(candidate, accepted, maxOverlap)) {
+                accepted.add(new GridPath(candidate.cells(), pathCost(raster, candidate.cells(), model, null)));
+            }
+            penalizeCorridor(raster, candidate.cells(), overlay, corridorCells, (float) (1 + penaltyWeight * iteration));
+        }
+        return accepted;
+    }
+
+    /**
+     * Sum of move costs along a path; {@code overlay} may be null.
+     */
+    public double pathCost(TerrainCostRaster raster, int[] cells, CostModel model, float[] overlay) {
+        double cost = 0;
+        for (int i = 1; i < cells.length; i++) {
+            int from = cells[i - 1];
+            int to = cells[i];
+            boolean diagonal = (from % raster.width()) != (to % raster.width()) && (from / raster.width()) != (to / raster.width());
+            cost += moveCost(raster, from, to, diagonal ? raster.cellSize() * SQRT2 : raster.cellSize(), model, overlay);
+        }
+        return cost;
+    }
+
+    private GridPath findPath(TerrainCostRaster raster, int source, int target,
+                              CostModel model, boolean bidirectional, float[] overlay) {
+        if (source == target) {
+            return new GridPath(new int[]{source}, 0);
+        }
+        SearchBuffers buffers = BUFFERS.get();
+        buffers.prepare(raster.size(), bidirectional);
+        return bidirectional
+            ? searchBidirectional(raster, source, target, model, overlay, buffers)
+            : searchForward(raster, source, target, model, overlay, buffers);
+    }
+
+    private GridPath searchForward(TerrainCostRaster raster, int source, int target, CostModel model,
+                                   float[] overlay, SearchBuffers buffers) {
+        Direction forward = buffers.forward;
+        int width = raster.width();
+        int targetX = target % width;
+        int targetY = target / width;
+
+        forward.open(source, -1, 0f, heuristic(raster, source, targetX, targetY));
+        while (!forward.heap.isEmpty()) {
+            int current = forward.heap.poll();
+            if (forward.isClosed(current)) continue;
+            forward.close(current);
+            if (current == target) {
+                return new GridPath(forward.unwind(target), forward.g[target]);
+            }
+            expand(raster, current, forward, null, model, overlay, targetX, targetY, null);
+        }
+        return null;
+    }
+
+    private GridPath searchBidirectional(TerrainCostRaster raster, int source, int target, CostModel model,
+                                         float[] overlay, SearchBuffers buffers) {
+        Direction forward = buffers.forward;
+        Direction backward = buffers.backward;
+        int width = raster.width();
+        Meeting meeting = new Meeting();
+
+        forward.open(source, -1, 0f, heuristic(raster, source, target % width, target / width));
+        backward.open(target, -1, 0f, heuristic(raster, target, source % width, source / width));
+
+        // Symmetric bidirectional A*: with a consistent heuristic the best meeting cost is optimal
+        // once either frontier's smallest key reaches it.
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            if (forward.heap.peekKey() >= meeting.cost || backward.heap.peekKey() >= meeting.cost) break;
+
+            boolean expandForward = forward.heap.size() <= backward.heap.size();
+            Direction active = expandForward ? forward : backward;
+            Direction other = expandForward ? backward : forward;
+            int goal = expandForward ? target : source;
+
+            int current = active.heap.poll();
+            if (active.isClosed(current)) continue;
+            active.close(current);
+            expand(raster, current, active, other, model, overlay, goal % width, goal / width, meeting);
+        }
+
+        if (meeting.node < 0) return null;
+        int[] head = forward.unwind(meeting.node);
+        int[] tail = backward.unwind(meeting.node);
+        int[] cells = Arrays.copyOf(head, head.length + tail.length - 1);
+        for (int i = tail.length - 2, j = head.length; i >= 0; i--, j++) {
+            cells[j] = tail[i];
+        }
+        return new GridPath(cells, meeting.cost);
+    }
+
+    private void expand(TerrainCostRaster raster, int current, Direction active, Direction other,
+                        CostModel model, float[] overlay, int goalX, int goalY, Meeting meeting) {
+        int width = raster.width();
+        int height = raster.height();
+        int x = current % width;
+        int y = current / width;
+        float base = active.g[current];
+
+        for (int d = 0; d < 8; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+            int neighbor = ny * width + nx;
+            if (active.isClosed(neighbor)) continue;
+
+            double step = (d & 1) == 1 ? raster.cellSize() * SQRT2 : raster.cellSize();
+            double cost = moveCost(raster, current, neighbor, step, model, overlay);
+            if (Double.isInfinite(cost)) continue;
+
+            float candidate = (float) (base + cost);
+            if (active.isSeen(neighbor) && active.g[neighbor] <= candidate) continue;
+
+            active.open(neighbor, current, candidate, candidate + heuristic(raster, neighbor, goalX, goalY));
+            if (other != null && other.isSeen(neighbor)) {
+                double total = (double) candidate + other.g[neighbor];
+                if (total < meeting.cost) {
+                    meeting.cost = total;
+                    meeting.node = neighbor;
+                }
+            }
+        }
+    }
+
+    private static double moveCost(TerrainCostRaster raster, int from, int to, double step,
+                                   CostModel model, float[] overlay) {
+        double grade = Math.abs(raster.elevation(to) - raster.elevation(from)) / step;
+        if (grade > model.maxGrade()) return Double.POSITIVE_INFINITY;
+
+        double relative = grade / model.maxGrade();
+        double factor = (1 + model.slopeWeight() * relative * relative)
+            * (raster.penalty(from) + raster.penalty(to)) * 0.5;
+        if (overlay != null) {
+            factor *= Math.max(overlay[from], overlay[to]);
+        }
+        return step * factor;
+    }
+
+    /**
+     * Octile distance in metres: exact for an unobstructed flat grid and never above the true
+     * cost because every multiplier in the cost model is at least 1.
+     */
+    private static double heuristic(TerrainCostRaster raster, int cell, int goalX, int goalY) {
+        int width = raster.width();
+        int dx = Math.abs(cell % width - goalX);
+        int dy = Math.abs(cell / width - goalY);
+        int diagonal = Math.min(dx, dy);
+        return raster.cellSize() * ((dx + dy - 2 * diagonal) + SQRT2 * diagonal);
+    }
+
+    private static boolean isDistinct(GridPath candidate, List<GridPath> accepted, double maxOverlap) {
+        for (GridPath path : accepted) {
+            int[] sorted = path.cells().clone();
+            Arrays.sort(sorted);
+            int shared = 0;
+            for (int cell : candidate.cells()) {
+                if (Arrays.binarySearch(sorted, cell) >= 0) shared++;
+            }
+            if ((double) shared / candidate.cells().length > maxOverlap) return false;
+        }
+        return true;
+    }
+
+    private static void penalizeCorridor(TerrainCostRaster raster, int[] cells, float[] overlay,
+                                         int corridorCells, float level) {
+        int width = raster.width();
+        int height = raster.height();
+        for (int cell : cells) {
+            int x = cell % width;
+            int y = cell / width;
+            for (int ny = Math.max(0, y - corridorCells); ny <= Math.min(height - 1, y + corridorCells); ny++) {
+                for (int nx = Math.max(0, x - corridorCells); nx <= Math.min(width - 1, x + corridorCells); nx++) {
+                    int index = ny * width + nx;
+                    if (overlay[index] < level) overlay[index] = level;
+                }
+            }
+        }
+    }
+
+    /**
+     * Slope limits of the cost model. {@code maxGrade} is the tangent of the steepest passable slope.
+     */
+    public record CostModel(double maxGrade, double slopeWeight) {
+        public static CostModel of(double maxSlopeDegrees, double slopeWeight) {
+            return new CostModel(Math.tan(Math.toRadians(maxSlopeDegrees)), slopeWeight);
+        }
+    }
+
+    public record GridPath(int[] cells, double cost) {}
+
+    private static final class Meeting {
+        double cost = Double.POSITIVE_INFINITY;
+        int node = -1;
+    }
+
+    /**
+     * Per-thread search state, grown on demand and reused between queries.
+     */
+    private static final class SearchBuffers {
+        final Direction forward = new Direction();
+        final Direction backward = new Direction();
+
+        void prepare(int size, boolean bidirectional) {
+            forward.prepare(size);
+            if (bidirectional) {
+                backward.prepare(size);
+            }
+        }
+    }
+
+    /**
+     * One search frontier. A cell is seen in the current search when its mark is at least
+     * {@code generation} and closed when it equals {@code generation + 1}.
+     */
+    private static final class Direction {
+        float[] g = new float[0];
+        int[] parent = new int[0];
+        int[] mark = new int[0];
+        int generation;
+        final IntDoubleMinHeap heap = new IntDoubleMinHeap();
+
+        void prepare(int size) {
+            if (mark.length < size) {
+                g = new float[size];
+                parent = new int[size];
+                mark = new int[size];
+                generation = 0;
+            }
+            generation += 2;
+            if (generation < 0) {
+                Arrays.fill(mark, 0);
+                generation = 2;
+            }
+            heap.clear();
+        }
+
+        boolean isSeen(int cell) {
+            return mark[cell] >= generation;
+        }
+
+        boolean isClosed(int cell) {
+            return mark[cell] == generation + 1;
+        }
+
+        void open(int cell, int from, float cost, double key) {
+            g[cell] = cost;
+            parent[cell] = from;
+            mark[cell] = generation;
+            heap.add(cell, key);
+        }
+
+        void close(int cell) {
+            mark[cell] = generation + 1;
+        }
+
+        int[] unwind(int cell) {
+            int length = 0;
+            for (int c = cell; c >= 0; c = parent[c]) length++;
+            int[] cells = new int[length];
+            for (int c = cell, i = length - 1; c >= 0; c = parent[c], i--) cells[i] = c;
+            return cells;
+        }
+    }
+}
@@ -4,14 +4,27 @@ import com.relief.domain.terrain.ElevationPoint;
 import com.relief.domain.terrain.TerrainAnalysis;
 import com.relief.domain.terrain.TerrainAnalysisType;
 import com.relief.repository.terrain.TerrainAnalysisRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Service for terrain analysis operations
@@ -21,37 +34,80 @@ import java.util.Optional;
 @Slf4j
 public class TerrainAnalysisService {
     
+    private static final double DEFAULT_CELL_SIZE = 30;
+    private static final int DEFAULT_TILE_SIZE = 256;
+    private static final int MAX_RASTER_CELLS = 4000 * 4000;
+    private static final long JOB_RETENTION_HOURS = 24;
+    
     private final TerrainAnalysisRepository terrainAnalysisRepository;
     private final ElevationService elevationService;
     private final GeometryFactory geometryFactory;
     
+    private final ForkJoinPool analysisPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final ExecutorService jobExecutor = Executors.newFixedThreadPool(2);
+    private final Map<String, TerrainAnalysisJob> jobs = new ConcurrentHashMap<>();
+    
+    /**
+     * Submit a background analysis of the whole area. The grid runs on the job executor like the
+     * tiled jobs, and the completed job carries the id of the single record stored for the area.
+     */
+    public TerrainAnalysisJob submitTerrainAnalysis(Polygon area, TerrainAnalysisType analysisType) {
+        log.info("Submitting terrain analysis for area: {}, type: {}", area, analysisType);
+        return submit(analysisType, jobId -> runAreaAnalysis(jobId, area, analysisType));
+    }
+    
     /**
-     * Perform terrain analysis for a given area
+     * Submit a background analysis job that tiles the area and stores one terrain analysis
+     * record per tile, so flood-prone and accessible area lookups become indexed range queries
      */
-    @Transactional
-    public TerrainAnalysis performTerrainAnalysis(Polygon area, TerrainAnalysisType analysisType) {
-        log.info("Performing terrain analysis for area: {}, type: {}", area, analysisType);
+    public TerrainAnalysisJob submitTiledAnalysis(Polygon area, TerrainAnalysisType analysisType,
+                                                  double cellSize, int tileSize) {
+        return submit(analysisType, jobId -> runTiledAnalysis(jobId, area, analysisType, cellSize, tileSize));
+    }
+    
+    private TerrainAnalysisJob submit(TerrainAnalysisType analysisType, Consumer<String> work) {
+        pruneFinishedJobs();
         
-        // Get elevation points within the area
-        Envelope envelope = area.getEnvelopeInternal();
-        List<ElevationPoint> elevationPoints = elevationService.getElevationPointsInBounds(
-            envelope.getMinX(), envelope.getMinY(),
-            envelope.getMaxX(), envelope.getMaxY()
-        );
+        String jobId = UUID.randomUUID().toString();
+        TerrainAnalysisJob job = new TerrainAnalysisJob(jobId, analysisType, JobStatus.QUEUED,
+            0, 0, null, null, LocalDateTime.now(), null);
+        jobs.put(jobId, job);
         
-        if (elevationPoints.isEmpty()) {
-            throw new IllegalArgumentException("No elevation data available for the specified area");
-        }
+        CompletableFuture.runAsync(() -> work.accept(jobId), jobExecutor)
+            .exceptionally(error -> {
+                log.error("Terrain analysis job {} failed", jobId, error);
+                jobs.computeIfPresent(jobId, (id, current) -> current.finish(JobStatus.FAILED, error.getMessage()));
+                return null;
+            });
+        return job;
+    }
+    
+    /**
+     * Get a stored terrain analysis record
+     */
+    public Optional<TerrainAnalysis> getTerrainAnalysis(Long analysisId) {
+        return terrainAnalysisRepository.findById(analysisId);
+    }
+    
+    /**
+     * Get the status of a terrain analysis job
+     */
+    public Optional<TerrainAnalysisJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+    
+    private void runAreaAnalysis(String jobId, Polygon area, TerrainAnalysisType analysisType) {
+        jobs.computeIfPresent(jobId, (id, current) -> current.withStatus(JobStatus.RUNNING));
         
-        // Calculate terrain metrics
-        TerrainMetrics metrics = calculateTerrainMetrics(elevationPoints);
+        TerrainGridAnalyzer.Result grid = analyzeGrid(area, DEFAULT_CELL_SIZE, DEFAULT_TILE_SIZE);
+        jobs.computeIfPresent(jobId, (id, current) -> current.withTiles(grid.tiles().size(), 0));
         
-        // Calculate analysis-specific scores
-        double accessibilityScore = calculateAccessibilityScore(metrics, analysisType);
-        double floodRiskScore = calculateFloodRiskScore(metrics, analysisType);
+        // Calculate terrain metrics
+        TerrainGridAnalyzer.TileStatistics summary = grid.summary();
+        TerrainMetrics metrics = TerrainMetrics.from(summary);
         
         // Create terrain analysis record
-        TerrainAnalysis analysis = TerrainAnalysis.builder()
+        TerrainAnalysis analysis = terrainAnalysisRepository.save(TerrainAnalysis.builder()
             .area(area)
             .analysisType(analysisType)
             .minElevation(metrics.minElevation)
@@ -62,12 +118,85 @@ public class TerrainAnalysisService {
             .slopeMaximum(metrics.slopeMaximum)
             .aspectAverage(metrics.aspectAverage)
             .roughnessIndex(metrics.roughnessIndex)
-            .accessibilityScore(accessibilityScore)
-            .floodRiskScore(floodRiskScore)
+            .accessibilityScore(calculateAccessibilityScore(metrics, analysisType))
+            .floodRiskScore(Math.max(calculateFloodRiskScore(metrics, analysisType), summary.floodProneFraction()))
             .analysisData(metrics.toJson())
-            .build();
+            .build());
+        
+        jobs.computeIfPresent(jobId, (id, current) ->
+            current.withAnalysis(analysis.getId()).finish(JobStatus.COMPLETED, null));
+        log.info("Terrain analysis job {} stored analysis {} of {}x{} cells", jobId, analysis.getId(),
+            grid.raster().width(), grid.raster().height());
+    }
+    
+    private void runTiledAnalysis(String jobId, Polygon area, TerrainAnalysisType analysisType,
+                                  double cellSize, int tileSize) {
+        jobs.computeIfPresent(jobId, (id, current) -> current.withStatus(JobStatus.RUNNING));
+        
+        TerrainGridAnalyzer.Result grid = analyzeGrid(area, cellSize, tileSize);
+        jobs.computeIfPresent(jobId, (id, current) -> current.withTiles(grid.tiles().size(), 0));
+        
+        PreparedGeometry preparedArea = PreparedGeometryFactory.prepare(area);
+        List<TerrainAnalysis> tileAnalyses = new ArrayList<>();
+        for (TerrainGridAnalyzer.TileStatistics stats : grid.tiles()) {
+            TerrainGridAnalyzer.Tile tile = stats.tile();
+            Polygon tileArea = (Polygon) geometryFactory.toGeometry(
+                grid.raster().cellEnvelope(tile.x0(), tile.y0(), tile.x1(), tile.y1()));
+            if (!preparedArea.intersects(tileArea)) continue;
             
-        return terrainAnalysisRepository.save(analysis);
+            TerrainMetrics metrics = TerrainMetrics.from(stats);
+            tileAnalyses.add(TerrainAnalysis.builder()
+                .area(tileArea)
+                .analysisType(analysisType)
+                .minElevation(metrics.minElevation)
+                .maxElevation(metrics.maxElevation)
+                .avgElevation(metrics.avgElevation)
+                .elevationVariance(metrics.elevationVariance)
+                .slopeAverage(metrics.slopeAverage)
+                .slopeMaximum(metrics.slopeMaximum)
+                .aspectAverage(metrics.aspectAverage)
+                .roughnessIndex(metrics.roughnessIndex)
+                .accessibilityScore(calculateAccessibilityScore(metrics, analysisType))
+                .floodRiskScore(Math.max(calculateFloodRiskScore(metrics, analysisType), stats.floodProneFraction()))
+                .analysisData(tileJson(jobId, stats, metrics))
+                .build());
+        }
+        
+        terrainAnalysisRepository.saveAll(tileAnalyses);
+        jobs.computeIfPresent(jobId, (id, current) ->
+            current.withTiles(grid.tiles().size(), tileAnalyses.size()).finish(JobStatus.COMPLETED, null));
+        log.info("Terrain analysis job {} stored {} tiles of {}x{} cells", jobId, tileAnalyses.size(),
+            grid.raster().width(), grid.raster().height());
+    }
+    
+    /**
+     * Rasterise elevation points in the area envelope and run the tiled grid analysis
+     */
+    private TerrainGridAnalyzer.Result analyzeGrid(Polygon area, double cellSize, int tileSize) {
+        Envelope envelope = area.getEnvelopeInternal();
+        List<ElevationPoint> elevationPoints = elevationService.getElevationPointsInBounds(
+            envelope.getMinX(), envelope.getMinY(),
+            envelope.getMaxX(), envelope.getMaxY()
+        );
+        
+        if (elevationPoints.isEmpty()) {
+            throw new IllegalArgumentException("No elevation data available for the specified area");
+        }
+        
+        TerrainCostRaster raster = TerrainCostRaster.fromElevationPoints(
+            elevationPoints, envelope, cellSize, MAX_RASTER_CELLS);
+        return new TerrainGridAnalyzer(analysisPool, tileSize).analyze(raster);
+    }
+    
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(JOB_RETENTION_HOURS);
+        jobs.values().removeIf(job -> job.completedAt() != null && job.completedAt().isBefore(cutoff));
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdown();
+        analysisPool.shutdown();
     }
     
     /**
@@ -88,10 +217,7 @@ public class TerrainAnalysisService {
      * Find accessible areas based on criteria
      */
     public List<TerrainAnalysis> findAccessibleAreas(double minAccessibilityScore, double maxSlope) {
-        return terrainAnalysisRepository.findByAccessibilityScoreRange(minAccessibilityScore, 1.0)
-            .stream()
-            .filter(analysis -> analysis.getSlopeMaximum() <= maxSlope)
-            .toList();
+        return terrainAnalysisRepository.findAccessible(minAccessibilityScore, maxSlope);
     }
     
     /**
@@ -101,68 +227,6 @@ public class TerrainAnalysisService {
         return terrainAnalysisRepository.findByFloodRiskScoreRange(minFloodRiskScore, 1.0);
     }
     
-    /**
-     * Calculate terrain metrics from elevation points
-     */
-    private TerrainMetrics calculateTerrainMetrics(List<ElevationPoint> elevationPoints) {
-        if (elevationPoints.isEmpty()) {
-            return new TerrainMetrics();
-        }
-        
-        double minElevation = elevationPoints.stream()
-            .mapToDouble(ElevationPoint::getElevation)
-            .min().orElse(0.0);
-            
-        double maxElevation = elevationPoints.stream()
-            .mapToDouble(ElevationPoint::getElevation)
-            .max().orElse(0.0);
-            
-        double avgElevation = elevationPoints.stream()
-            .mapToDouble(ElevationPoint::getElevation)
-            .average().orElse(0.0);
-            
-        double variance = elevationPoints.stream()
-            .mapToDouble(point -> Math.pow(point.getElevation() - avgElevation, 2))
-            .average().orElse(0.0);
-            
-        // Calculate slope and aspect for each point pair
-        double totalSlope = 0;
-        double maxSlope = 0;
-        double totalAspect = 0;
-        int slopeCount = 0;
-        
-        for (int i = 0; i < elevationPoints.size() - 1; i++) {
-            ElevationPoint point1 = elevationPoints.get(i);
-            ElevationPoint point2 = elevationPoints.get(i + 1);
-            
-            double slope = elevationService.calculateSlope(
-                point1.getLocation().getX(), point1.getLocation().getY(), point1.getElevation(),
-                point2.getLocation().getX(), point2.getLocation().getY(), point2.getElevation()
-            );
-            
-            double aspect = elevationService.calculateAspect(
-                point1.getLocation().getX(), point1.getLocation().getY(),
-                point2.getLocation().getX(), point2.getLocation().getY()
-            );
-            
-            totalSlope += Math.abs(slope);
-            maxSlope = Math.max(maxSlope, Math.abs(slope));
-            totalAspect += aspect;
-            slopeCount++;
-        }
-        
-        double avgSlope = slopeCount > 0 ? totalSlope / slopeCount : 0;
-        double avgAspect = slopeCount > 0 ? totalAspect / slopeCount : 0;
-        
-        // Calculate roughness index (standard deviation of elevation differences)
-        double roughness = Math.sqrt(variance);
-        
-        return new TerrainMetrics(
-            minElevation, maxElevation, avgElevation, variance,
-            avgSlope, maxSlope, avgAspect, roughness
-        );
-    }
-    
     /**
      * Calculate accessibility score based on terrain metrics
      */
@@ -236,6 +300,54 @@ public class TerrainAnalysisService {
         return Math.max(0.0, Math.min(1.0, score));
     }
     
+    private static String tileJson(String jobId, TerrainGridAnalyzer.TileStatistics stats, TerrainMetrics metrics) {
+        return String.format(Locale.ROOT, """
+            {
+                "jobId": "%s",
+                "tile": {"x0": %d, "y0": %d, "x1": %d, "y1": %d},
+                "floodProneFraction": %.4f,
+                "maxFlowAccumulation": %d,
+                "metrics": %s
+            }
+            """, jobId, stats.tile().x0(), stats.tile().y0(), stats.tile().x1(), stats.tile().y1(),
+            stats.floodProneFraction(), stats.maxFlowAccumulation(), metrics.toJson().strip());
+    }
+    
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    /**
+     * Status of a terrain analysis job; area jobs report the stored record once completed
+     */
+    public record TerrainAnalysisJob(
+        String jobId,
+        TerrainAnalysisType analysisType,
+        JobStatus status,
+        int tileCount,
+        int tilesStored,
+        Long analysisId,
+        String error,
+        LocalDateTime submittedAt,
+        LocalDateTime completedAt
+    ) {
+        TerrainAnalysisJob withStatus(JobStatus newStatus) {
+            return new TerrainAnalysisJob(jobId, analysisType, newStatus, tileCount, tilesStored, analysisId, error, submittedAt, completedAt);
+        }
+        
+        TerrainAnalysisJob withTiles(int newTileCount, int newTilesStored) {
+            return new TerrainAnalysisJob(jobId, analysisType, status, newTileCount, newTilesStored, analysisId, error, submittedAt, completedAt);
+        }
+        
+        TerrainAnalysisJob withAnalysis(Long newAnalysisId) {
+            return new TerrainAnalysisJob(jobId, analysisType, status, tileCount, tilesStored, newAnalysisId, error, submittedAt, completedAt);
+        }
+        
+        TerrainAnalysisJob finish(JobStatus finalStatus, String failure) {
+            return new TerrainAnalysisJob(jobId, analysisType, finalStatus, tileCount, tilesStored, analysisId, failure, submittedAt, LocalDateTime.now());
+        }
+    }
+    
     /**
      * Data class for terrain metrics
      */
@@ -249,8 +361,11 @@ public class TerrainAnalysisService {
         double aspectAverage,
         double roughnessIndex
     ) {
-        public TerrainMetrics() {
-            this(0, 0, 0, 0, 0, 0, 0, 0);
+        static TerrainMetrics from(TerrainGridAnalyzer.TileStatistics stats) {
+            return new TerrainMetrics(
+                stats.minElevation(), stats.maxElevation(), stats.avgElevation(), stats.elevationVariance(),
+                stats.slopeAverage(), stats.slopeMaximum(), stats.aspectAverage(), stats.roughnessIndex()
+            );
         }
         
         public String toJson() {
@@ -0,0 +1,189 @@
+package com.relief.service.terrain;
+
+import com.relief.domain.terrain.ElevationPoint;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Regular elevation and cost grid used by the terrain router and the tiled terrain analysis.
+ *
+ * Cells are square (in metres) on a local equirectangular projection anchored at the
+ * south-west corner of the envelope. Each cell carries an elevation and a cost multiplier
+ * (>= 1) derived from flood-risk and accessibility analyses; the grid is immutable once
+ * penalties have been applied and can be shared between concurrent searches.
+ */
+public final class TerrainCostRaster {
+
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+    private static final double METERS_PER_DEGREE_LON = 111_320.0;
+
+    private final int width;
+    private final int height;
+    private final double minLon;
+    private final double minLat;
+    private final double cellSize;
+    private final double cellLonDegrees;
+    private final double cellLatDegrees;
+    private final float[] elevation;
+    private final float[] penalty;
+
+    public TerrainCostRaster(int width, int height, double minLon, double minLat,
+                             double cellSize, float[] elevation) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Raster dimensions must be positive");
+        }
+        if (elevation.length != width * height) {
+            throw new IllegalArgumentException("Elevation array does not match raster dimensions");
+        }
+        this.width = width;
+        this.height = height;
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.cellSize = cellSize;
+        this.cellLatDegrees = cellSize / METERS_PER_DEGREE_LAT;
+        this.cellLonDegrees = cellSize / (METERS_PER_DEGREE_LON * Math.cos(Math.toRadians(minLat + height * cellLatDegrees / 2)));
+        this.elevation = elevation;
+        this.penalty = new float[width * height];
+        Arrays.fill(penalty, 1.0f);
+    }
+
+    /**
+     * Bin elevation points into a grid covering the envelope. Cells without samples take the
+     * elevation of the nearest sampled cell (multi-source breadth-first fill). The cell size is
+     * widened if the envelope would otherwise exceed {@code maxCells}.
+     */
+    public static TerrainCostRaster fromElevationPoints(List<ElevationPoint> points, Envelope envelope,
+                                                        double cellSize, int maxCells) {
+        double midLat = (envelope.getMinY() + envelope.getMaxY()) / 2;
+        double widthMeters = envelope.getWidth() * METERS_PER_DEGREE_LON * Math.cos(Math.toRadians(midLat));
+        double heightMeters = envelope.getHeight() * METERS_PER_DEGREE_LAT;
+
+        double effectiveCellSize = Math.max(cellSize, 1.0);
+        double cellCount = Math.ceil(widthMeters / effectiveCellSize) * Math.ceil(heightMeters / effectiveCellSize);
+        if (cellCount > maxCells) {
+            effectiveCellSize *= Math.sqrt(cellCount / maxCells);
+        }
+        int width = Math.max(1, (int) Math.ceil(widthMeters / effectiveCellSize));
+        int height = Math.max(1, (int) Math.ceil(heightMeters / effectiveCellSize));
+
+        float[] sum = new float[width * height];
+        int[] count = new int[width * height];
+        TerrainCostRaster raster = new TerrainCostRaster(width, height, envelope.getMinX(), envelope.getMinY(),
+            effectiveCellSize, sum);
+
+        for (ElevationPoint point : points) {
+            int cell = raster.cellIndex(point.getLocation().getX(), point.getLocation().getY());
+            sum[cell] += point.getElevation().floatValue();
+            count[cell]++;
+        }
+
+        int[] queue = new int[width * height];
+        int tail = 0;
+        for (int i = 0; i < sum.length; i++) {
+            if (count[i] > 0) {
+                sum[i] /= count[i];
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int x = cell % width;
+            int y = cell / width;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + (d == 0 ? 1 : d == 1 ? -1 : 0);
+                int ny = y + (d == 2 ? 1 : d == 3 ? -1 : 0);
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+                int neighbor = ny * width + nx;
+                if (count[neighbor] == 0) {
+                    count[neighbor] = -1;
+                    sum[neighbor] = sum[cell];
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return raster;
+    }
+
+    /**
+     * Raise the cost multiplier of every cell whose centre lies inside {@code area}.
+     * Multipliers are combined with max so overlapping analyses do not compound.
+     */
+    public void applyPenalty(Polygon area, double multiplier) {
+        if (multiplier <= 1.0) return;
+        Envelope bounds = area.getEnvelopeInternal();
+        int x0 = clampX(lonToX(bounds.getMinX()));
+        int x1 = clampX(lonToX(bounds.getMaxX()));
+        int y0 = clampY(latToY(bounds.getMinY()));
+        int y1 = clampY(latToY(bounds.getMaxY()));
+
+        GeometryFactory factory = area.getFactory();
+        PreparedGeometry prepared = PreparedGeometryFactory.prepare(area);
+        float value = (float) multiplier;
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int cell = y * width + x;
+                if (penalty[cell] >= value) continue;
+                Coordinate center = new Coordinate(cellLon(cell), cellLat(cell));
+                if (prepared.contains(factory.createPoint(center))) {
+                    penalty[cell] = value;
+                }
+            }
+        }
+    }
+
+    public int cellIndex(double lon, double lat) {
+        return clampY(latToY(lat)) * width + clampX(lonToX(lon));
+    }
+
+    public double cellLon(int cell) {
+        return minLon + ((cell % width) + 0.5) * cellLonDegrees;
+    }
+
+    public double cellLat(int cell) {
+        return minLat + ((cell / width) + 0.5) * cellLatDegrees;
+    }
+
+    /**
+     * Geographic bounds of the cell block {@code [x0, x1] x [y0, y1]} (inclusive).
+     */
+    public Envelope cellEnvelope(int x0, int y0, int x1, int y1) {
+        return new Envelope(
+            minLon + x0 * cellLonDegrees, minLon + (x1 + 1) * cellLonDegrees,
+            minLat + y0 * cellLatDegrees, minLat + (y1 + 1) * cellLatDegrees);
+    }
+
+    public int width() { return width; }
+
+    public int height() { return height; }
+
+    public int size() { return width * height; }
+
+    public double cellSize() { return cellSize; }
+
+    public float elevation(int cell) { return elevation[cell]; }
+
+    public float penalty(int cell) { return penalty[cell]; }
+
+    private int lonToX(double lon) {
+        return (int) Math.floor((lon - minLon) / cellLonDegrees);
+    }
+
+    private int latToY(double lat) {
+        return (int) Math.floor((lat - minLat) / cellLatDegrees);
+    }
+
+    private int clampX(int x) {
+        return Math.max(0, Math.min(width - 1, x));
+    }
+
+    private int clampY(int y) {
+        return Math.max(0, Math.min(height - 1, y));
+    }
+}
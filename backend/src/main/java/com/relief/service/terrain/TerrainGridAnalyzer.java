@@ -0,0 +1,283 @@
+package com.relief.service.terrain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Raster terrain analysis over a {@link TerrainCostRaster}: Horn slope and aspect, D8 flow
+ * direction, flow accumulation and flood-prone cells, summarised per tile.
+ *
+ * The grid is split into square tiles that are processed in parallel on a ForkJoin pool. Every
+ * per-cell kernel uses a 3x3 window, so tiles read a one-cell halo from their neighbours (edge
+ * cells of the raster replicate their own elevation). Flow accumulation depends on the whole
+ * upstream catchment and is resolved in a single linear topological pass between the two
+ * parallel phases.
+ */
+public class TerrainGridAnalyzer {
+
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final double SQRT2 = Math.sqrt(2);
+
+    /** Cells are flood-prone when they drain at least this many square metres and are nearly flat. */
+    private static final double FLOOD_CATCHMENT_SQUARE_METERS = 250_000;
+    private static final double FLOOD_MAX_SLOPE_DEGREES = 2.0;
+
+    private final ForkJoinPool pool;
+    private final int tileSize;
+
+    public TerrainGridAnalyzer(ForkJoinPool pool, int tileSize) {
+        if (tileSize < 8) {
+            throw new IllegalArgumentException("Tile size must be at least 8 cells");
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    public Result analyze(TerrainCostRaster raster) {
+        int size = raster.size();
+        float[] slope = new float[size];
+        float[] aspect = new float[size];
+        byte[] flowDirection = new byte[size];
+
+        List<Tile> tiles = tiles(raster);
+        pool.invoke(new TileTask(tiles, 0, tiles.size(), tile -> computeSurface(raster, tile, slope, aspect, flowDirection)));
+
+        int[] accumulation = accumulateFlow(raster, flowDirection);
+
+        double floodCells = FLOOD_CATCHMENT_SQUARE_METERS / (raster.cellSize() * raster.cellSize());
+        TileStatistics[] statistics = new TileStatistics[tiles.size()];
+        pool.invoke(new TileTask(tiles, 0, tiles.size(), tile ->
+            statistics[tile.index()] = summarize(raster, tile, slope, aspect, accumulation, floodCells)));
+
+        return new Result(raster, slope, aspect, flowDirection, accumulation, List.of(statistics));
+    }
+
+    private List<Tile> tiles(TerrainCostRaster raster) {
+        List<Tile> tiles = new ArrayList<>();
+        for (int y = 0; y < raster.height(); y += tileSize) {
+            for (int x = 0; x < raster.width(); x += tileSize) {
+                tiles.add(new Tile(tiles.size(), x, y,
+                    Math.min(x + tileSize, raster.width()) - 1,
+                    Math.min(y + tileSize, raster.height()) - 1));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Horn's 3x3 slope/aspect and steepest-descent (D8) direction for every cell of a tile.
+     */
+    private static void computeSurface(TerrainCostRaster raster, Tile tile,
+                                       float[] slope, float[] aspect, byte[] flowDirection) {
+        double cellSize = raster.cellSize();
+        for (int y = tile.y0(); y <= tile.y1(); y++) {
+            for (int x = tile.x0(); x <= tile.x1(); x++) {
+                int cell = y * raster.width() + x;
+                double a = halo(raster, x - 1, y + 1), b = halo(raster, x, y + 1), c = halo(raster, x + 1, y + 1);
+                double d = halo(raster, x - 1, y), f = halo(raster, x + 1, y);
+                double g = halo(raster, x - 1, y - 1), h = halo(raster, x, y - 1), i = halo(raster, x + 1, y - 1);
+
+                double dzdx = ((c + 2 * f + i) - (a + 2 * d + g)) / (8 * cellSize);
+                double dzdy = ((a + 2 * b + c) - (g + 2 * h + i)) / (8 * cellSize);
+                double gradient = Math.sqrt(dzdx * dzdx + dzdy * dzdy);
+                slope[cell] = (float) Math.toDegrees(Math.atan(gradient));
+                aspect[cell] = gradient == 0 ? -1f
+                    : (float) ((Math.toDegrees(Math.atan2(-dzdx, -dzdy)) + 360) % 360);
+
+                double center = raster.elevation(cell);
+                double steepest = 0;
+                int direction = -1;
+                for (int n = 0; n < 8; n++) {
+                    int nx = x + DX[n];
+                    int ny = y + DY[n];
+                    if (nx < 0 || ny < 0 || nx >= raster.width() || ny >= raster.height()) continue;
+                    double drop = (center - raster.elevation(ny * raster.width() + nx)) / ((n & 1) == 1 ? SQRT2 : 1);
+                    if (drop > steepest) {
+                        steepest = drop;
+                        direction = n;
+                    }
+                }
+                flowDirection[cell] = (byte) direction;
+            }
+        }
+    }
+
+    private static double halo(TerrainCostRaster raster, int x, int y) {
+        int cx = Math.max(0, Math.min(raster.width() - 1, x));
+        int cy = Math.max(0, Math.min(raster.height() - 1, y));
+        return raster.elevation(cy * raster.width() + cx);
+    }
+
+    /**
+     * Number of cells draining through each cell (including itself), resolved in topological
+     * order of the D8 flow graph.
+     */
+    private static int[] accumulateFlow(TerrainCostRaster raster, byte[] flowDirection) {
+        int size = raster.size();
+        int width = raster.width();
+        int[] downstream = new int[size];
+        int[] inDegree = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            int direction = flowDirection[cell];
+            if (direction < 0) {
+                downstream[cell] = -1;
+            } else {
+                downstream[cell] = (cell / width + DY[direction]) * width + cell % width + DX[direction];
+                inDegree[downstream[cell]]++;
+            }
+        }
+
+        int[] accumulation = new int[size];
+        int[] queue = new int[size];
+        int tail = 0;
+        for (int cell = 0; cell < size; cell++) {
+            accumulation[cell] = 1;
+            if (inDegree[cell] == 0) queue[tail++] = cell;
+        }
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int next = downstream[cell];
+            if (next < 0) continue;
+            accumulation[next] += accumulation[cell];
+            if (--inDegree[next] == 0) queue[tail++] = next;
+        }
+        return accumulation;
+    }
+
+    private static TileStatistics summarize(TerrainCostRaster raster, Tile tile, float[] slope, float[] aspect,
+                                            int[] accumulation, double floodCells) {
+        double minElevation = Double.MAX_VALUE;
+        double maxElevation = -Double.MAX_VALUE;
+        double sum = 0;
+        double sumSquares = 0;
+        double slopeSum = 0;
+        double slopeMax = 0;
+        double aspectSin = 0;
+        double aspectCos = 0;
+        int floodProne = 0;
+        int maxAccumulation = 0;
+        int count = 0;
+
+        for (int y = tile.y0(); y <= tile.y1(); y++) {
+            for (int x = tile.x0(); x <= tile.x1(); x++) {
+                int cell = y * raster.width() + x;
+                double elevation = raster.elevation(cell);
+                minElevation = Math.min(minElevation, elevation);
+                maxElevation = Math.max(maxElevation, elevation);
+                sum += elevation;
+                sumSquares += elevation * elevation;
+                slopeSum += slope[cell];
+                slopeMax = Math.max(slopeMax, slope[cell]);
+                if (aspect[cell] >= 0) {
+                    aspectSin += Math.sin(Math.toRadians(aspect[cell]));
+                    aspectCos += Math.cos(Math.toRadians(aspect[cell]));
+                }
+                if (accumulation[cell] >= floodCells && slope[cell] <= FLOOD_MAX_SLOPE_DEGREES) {
+                    floodProne++;
+                }
+                maxAccumulation = Math.max(maxAccumulation, accumulation[cell]);
+                count++;
+            }
+        }
+
+        double mean = sum / count;
+        double variance = Math.max(0, sumSquares / count - mean * mean);
+        double meanAspect = aspectSin == 0 && aspectCos == 0 ? 0
+            : (Math.toDegrees(Math.atan2(aspectSin, aspectCos)) + 360) % 360;
+        return new TileStatistics(tile, minElevation, maxElevation, mean, variance,
+            slopeSum / count, slopeMax, meanAspect, Math.sqrt(variance),
+            (double) floodProne / count, maxAccumulation);
+    }
+
+    /**
+     * Inclusive cell bounds of one tile.
+     */
+    public record Tile(int index, int x0, int y0, int x1, int y1) {}
+
+    public record TileStatistics(
+        Tile tile,
+        double minElevation,
+        double maxElevation,
+        double avgElevation,
+        double elevationVariance,
+        double slopeAverage,
+        double slopeMaximum,
+        double aspectAverage,
+        double roughnessIndex,
+        double floodProneFraction,
+        int maxFlowAccumulation
+    ) {}
+
+    public record Result(
+        TerrainCostRaster raster,
+        float[] slope,
+        float[] aspect,
+        byte[] flowDirection,
+        int[] flowAccumulation,
+        List<TileStatistics> tiles
+    ) {
+        /**
+         * Cell-weighted aggregate of all tiles.
+         */
+        public TileStatistics summary() {
+            double cells = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE, sum = 0, sumSquares = 0;
+            double slopeSum = 0, slopeMax = 0, sin = 0, cos = 0, flood = 0;
+            int maxAccumulation = 0;
+            for (TileStatistics stats : tiles) {
+                Tile tile = stats.tile();
+                double n = (double) (tile.x1() - tile.x0() + 1) * (tile.y1() - tile.y0() + 1);
+                cells += n;
+                min = Math.min(min, stats.minElevation());
+                max = Math.max(max, stats.maxElevation());
+                sum += stats.avgElevation() * n;
+                sumSquares += (stats.elevationVariance() + stats.avgElevation() * stats.avgElevation()) * n;
+                slopeSum += stats.slopeAverage() * n;
+                slopeMax = Math.max(slopeMax, stats.slopeMaximum());
+                sin += Math.sin(Math.toRadians(stats.aspectAverage())) * n;
+                cos += Math.cos(Math.toRadians(stats.aspectAverage())) * n;
+                flood += stats.floodProneFraction() * n;
+                maxAccumulation = Math.max(maxAccumulation, stats.maxFlowAccumulation());
+            }
+            double mean = sum / cells;
+            double variance = Math.max(0, sumSquares / cells - mean * mean);
+            Tile all = new Tile(-1, 0, 0, raster.width() - 1, raster.height() - 1);
+            return new TileStatistics(all, min, max, mean, variance, slopeSum / cells, slopeMax,
+                (Math.toDegrees(Math.atan2(sin, cos)) + 360) % 360, Math.sqrt(variance),
+                flood / cells, maxAccumulation);
+        }
+    }
+
+    private interface TileWork {
+        void run(Tile tile);
+    }
+
+    /**
+     * Splits a tile range in halves until a single tile remains.
+     */
+    private static final class TileTask extends RecursiveAction {
+        private final List<Tile> tiles;
+        private final int from;
+        private final int to;
+        private final TileWork work;
+
+        TileTask(List<Tile> tiles, int from, int to, TileWork work) {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) work.run(tiles.get(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(tiles, from, mid, work), new TileTask(tiles, mid, to, work));
+        }
+    }
+}
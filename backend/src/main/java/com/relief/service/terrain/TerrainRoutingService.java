@@ -1,7 +1,9 @@
 package com.relief.service.terrain;
 
 import com.relief.domain.terrain.ElevationPoint;
+import com.relief.domain.terrain.TerrainAnalysis;
 import com.relief.repository.terrain.ElevationPointRepository;
+import com.relief.repository.terrain.TerrainAnalysisRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.*;
@@ -18,8 +20,14 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TerrainRoutingService {
     
+    private static final int MAX_RASTER_CELLS = 2000 * 2000;
+    private static final int MAX_CORRIDOR_CELLS = 8;
+    private static final double ALTERNATIVE_PENALTY_WEIGHT = 0.5;
+    private static final double ALTERNATIVE_MAX_OVERLAP = 0.8;
+    
     private final ElevationPointRepository elevationPointRepository;
-    private final ElevationService elevationService;
+    private final TerrainAnalysisRepository terrainAnalysisRepository;
+    private final GridAStarRouter gridRouter;
     private final GeometryFactory geometryFactory;
     
     /**
@@ -31,47 +39,24 @@ public class TerrainRoutingService {
         log.info("Calculating terrain route from ({}, {}) to ({}, {})", 
                 startLon, startLat, endLon, endLat);
         
-        // Get elevation data along the route
-        List<ElevationPoint> elevationPoints = getElevationPointsAlongRoute(
-            startLon, startLat, endLon, endLat, options.searchRadius()
-        );
-        
-        if (elevationPoints.isEmpty()) {
+        Optional<TerrainCostRaster> raster = buildCostRaster(startLon, startLat, endLon, endLat, options);
+        if (raster.isEmpty()) {
             // Fallback to straight-line distance if no elevation data
             return createStraightLineRoute(startLon, startLat, endLon, endLat);
         }
         
-        // Calculate route segments with terrain considerations
-        List<RouteSegment> segments = calculateRouteSegments(
-            startLon, startLat, endLon, endLat, elevationPoints, options
-        );
-        
-        // Calculate total metrics
-        double totalDistance = segments.stream().mapToDouble(RouteSegment::distance).sum();
-        double totalElevationGain = segments.stream().mapToDouble(RouteSegment::elevationGain).sum();
-        double totalElevationLoss = segments.stream().mapToDouble(RouteSegment::elevationLoss).sum();
-        double maxSlope = segments.stream().mapToDouble(RouteSegment::slope).max().orElse(0);
-        double avgSlope = segments.stream().mapToDouble(RouteSegment::slope).average().orElse(0);
-        
-        // Calculate terrain difficulty score
-        double difficultyScore = calculateDifficultyScore(segments, options);
+        TerrainCostRaster grid = raster.get();
+        GridAStarRouter.GridPath path = gridRouter.findPath(grid,
+            grid.cellIndex(startLon, startLat), grid.cellIndex(endLon, endLat),
+            GridAStarRouter.CostModel.of(options.maxSlope(), options.slopeWeight()),
+            options.bidirectional());
         
-        // Calculate accessibility score
-        double accessibilityScore = calculateRouteAccessibility(segments, options);
+        if (path == null) {
+            log.warn("No passable terrain route from ({}, {}) to ({}, {})", startLon, startLat, endLon, endLat);
+            return createImpassableRoute(startLon, startLat, endLon, endLat);
+        }
         
-        return TerrainRoute.builder()
-            .startPoint(new Coordinate(startLon, startLat))
-            .endPoint(new Coordinate(endLon, endLat))
-            .segments(segments)
-            .totalDistance(totalDistance)
-            .totalElevationGain(totalElevationGain)
-            .totalElevationLoss(totalElevationLoss)
-            .maxSlope(maxSlope)
-            .avgSlope(avgSlope)
-            .difficultyScore(difficultyScore)
-            .accessibilityScore(accessibilityScore)
-            .isAccessible(accessibilityScore >= options.minAccessibilityScore())
-            .build();
+        return buildRoute(grid, path, startLon, startLat, endLon, endLat, options);
     }
     
     /**
@@ -80,29 +65,29 @@ public class TerrainRoutingService {
     public List<TerrainRoute> findAlternativeRoutes(double startLon, double startLat,
                                                   double endLon, double endLat,
                                                   TerrainRoutingOptions options) {
-        List<TerrainRoute> routes = new ArrayList<>();
+        Optional<TerrainCostRaster> raster = buildCostRaster(startLon, startLat, endLon, endLat, options);
+        if (raster.isEmpty()) {
+            return List.of(createStraightLineRoute(startLon, startLat, endLon, endLat));
+        }
         
-        // Calculate direct route
-        TerrainRoute directRoute = calculateTerrainRoute(startLon, startLat, endLon, endLat, options);
-        routes.add(directRoute);
+        // Corridor around each found route that is penalised before searching for the next one
+        TerrainCostRaster grid = raster.get();
+        int corridorCells = (int) Math.min(MAX_CORRIDOR_CELLS,
+            Math.round(options.waypointOffsetDistance() / (2 * grid.cellSize())));
         
-        // Find waypoints to create alternative routes
-        List<Coordinate> waypoints = findWaypoints(startLon, startLat, endLon, endLat, options);
+        List<GridAStarRouter.GridPath> paths = gridRouter.findAlternatives(grid,
+            grid.cellIndex(startLon, startLat), grid.cellIndex(endLon, endLat),
+            GridAStarRouter.CostModel.of(options.maxSlope(), options.slopeWeight()),
+            options.bidirectional(), Math.max(1, options.maxAlternativeRoutes()),
+            corridorCells, ALTERNATIVE_PENALTY_WEIGHT, ALTERNATIVE_MAX_OVERLAP);
         
-        for (Coordinate waypoint : waypoints) {
-            TerrainRoute route1 = calculateTerrainRoute(startLon, startLat, 
-                waypoint.x, waypoint.y, options);
-            TerrainRoute route2 = calculateTerrainRoute(waypoint.x, waypoint.y, 
-                endLon, endLat, options);
-            
-            if (route1.isAccessible() && route2.isAccessible()) {
-                TerrainRoute combinedRoute = combineRoutes(route1, route2);
-                routes.add(combinedRoute);
-            }
+        if (paths.isEmpty()) {
+            return List.of(createImpassableRoute(startLon, startLat, endLon, endLat));
         }
         
         // Sort by accessibility score and distance
-        return routes.stream()
+        return paths.stream()
+            .map(path -> buildRoute(grid, path, startLon, startLat, endLon, endLat, options))
             .sorted((r1, r2) -> {
                 int accessibilityCompare = Double.compare(r2.accessibilityScore(), r1.accessibilityScore());
                 if (accessibilityCompare != 0) return accessibilityCompare;
@@ -113,11 +98,12 @@ public class TerrainRoutingService {
     }
     
     /**
-     * Get elevation points along a route
+     * Build the cost raster around the route: elevation from points within the search radius,
+     * penalties from flood-risk and accessibility analyses intersecting the area
      */
-    private List<ElevationPoint> getElevationPointsAlongRoute(double startLon, double startLat,
-                                                            double endLon, double endLat,
-                                                            double searchRadius) {
+    private Optional<TerrainCostRaster> buildCostRaster(double startLon, double startLat,
+                                                       double endLon, double endLat,
+                                                       TerrainRoutingOptions options) {
         // Create a buffer around the route line
         LineString routeLine = geometryFactory.createLineString(new Coordinate[]{
             new Coordinate(startLon, startLat),
@@ -125,102 +111,105 @@ public class TerrainRoutingService {
         });
         
         // Expand the line to create a search area
-        Geometry searchArea = routeLine.buffer(searchRadius / 111000.0); // Convert meters to degrees
+        Geometry searchArea = routeLine.buffer(options.searchRadius() / 111000.0); // Convert meters to degrees
         
         Envelope envelope = searchArea.getEnvelopeInternal();
         
-        return elevationPointRepository.findWithinBounds(
+        List<ElevationPoint> elevationPoints = elevationPointRepository.findWithinBounds(
             envelope.getMinX(), envelope.getMinY(),
             envelope.getMaxX(), envelope.getMaxY(),
             (startLon + endLon) / 2, (startLat + endLat) / 2
         );
+        if (elevationPoints.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        TerrainCostRaster raster = TerrainCostRaster.fromElevationPoints(
+            elevationPoints, envelope, options.cellSize(), MAX_RASTER_CELLS);
+        
+        Polygon bounds = (Polygon) geometryFactory.toGeometry(envelope);
+        for (TerrainAnalysis analysis : terrainAnalysisRepository.findByPolygonIntersection(bounds)) {
+            double floodRisk = Optional.ofNullable(analysis.getFloodRiskScore()).orElse(0.0);
+            double accessibility = Optional.ofNullable(analysis.getAccessibilityScore()).orElse(1.0);
+            raster.applyPenalty(analysis.getArea(),
+                1 + options.floodRiskWeight() * floodRisk + options.accessibilityWeight() * (1 - accessibility));
+        }
+        
+        log.debug("Built {}x{} terrain raster ({} m cells) from {} elevation points",
+            raster.width(), raster.height(), raster.cellSize(), elevationPoints.size());
+        return Optional.of(raster);
     }
     
     /**
-     * Calculate route segments with terrain considerations
+     * Convert a grid path into route segments, merging consecutive moves in the same direction
      */
-    private List<RouteSegment> calculateRouteSegments(double startLon, double startLat,
-                                                    double endLon, double endLat,
-                                                    List<ElevationPoint> elevationPoints,
-                                                    TerrainRoutingOptions options) {
+    private TerrainRoute buildRoute(TerrainCostRaster raster, GridAStarRouter.GridPath path,
+                                    double startLon, double startLat, double endLon, double endLat,
+                                    TerrainRoutingOptions options) {
+        int[] cells = path.cells();
+        int width = raster.width();
         List<RouteSegment> segments = new ArrayList<>();
         
-        // Sort elevation points by distance from start
-        elevationPoints.sort((p1, p2) -> {
-            double dist1 = calculateDistance(startLon, startLat, 
-                p1.getLocation().getX(), p1.getLocation().getY());
-            double dist2 = calculateDistance(startLon, startLat, 
-                p2.getLocation().getX(), p2.getLocation().getY());
-            return Double.compare(dist1, dist2);
-        });
-        
-        // Create segments between consecutive points
-        double prevLon = startLon;
-        double prevLat = startLat;
-        double prevElevation = elevationService.getElevationAtPoint(startLon, startLat).orElse(0.0);
-        
-        for (ElevationPoint point : elevationPoints) {
-            double currLon = point.getLocation().getX();
-            double currLat = point.getLocation().getY();
-            double currElevation = point.getElevation();
-            
-            double distance = calculateDistance(prevLon, prevLat, currLon, currLat);
-            double slope = elevationService.calculateSlope(prevLon, prevLat, prevElevation,
-                currLon, currLat, currElevation);
-            double elevationGain = Math.max(0, currElevation - prevElevation);
-            double elevationLoss = Math.max(0, prevElevation - currElevation);
+        int runStart = 0;
+        for (int i = 1; i < cells.length; i++) {
+            boolean lastMove = i == cells.length - 1;
+            boolean turns = !lastMove && (cells[i + 1] - cells[i]) != (cells[i] - cells[i - 1]);
+            if (!lastMove && !turns) continue;
             
-            segments.add(new RouteSegment(
-                new Coordinate(prevLon, prevLat),
-                new Coordinate(currLon, currLat),
-                distance, slope, elevationGain, elevationLoss
-            ));
+            double distance = 0;
+            double elevationGain = 0;
+            double elevationLoss = 0;
+            for (int j = runStart + 1; j <= i; j++) {
+                boolean diagonal = cells[j] % width != cells[j - 1] % width && cells[j] / width != cells[j - 1] / width;
+                distance += diagonal ? raster.cellSize() * Math.sqrt(2) : raster.cellSize();
+                double delta = raster.elevation(cells[j]) - raster.elevation(cells[j - 1]);
+                elevationGain += Math.max(0, delta);
+                elevationLoss += Math.max(0, -delta);
+            }
+            double rise = raster.elevation(cells[i]) - raster.elevation(cells[runStart]);
+            double slope = Math.toDegrees(Math.atan(rise / distance));
             
-            prevLon = currLon;
-            prevLat = currLat;
-            prevElevation = currElevation;
+            Coordinate from = runStart == 0
+                ? new Coordinate(startLon, startLat)
+                : new Coordinate(raster.cellLon(cells[runStart]), raster.cellLat(cells[runStart]));
+            Coordinate to = lastMove
+                ? new Coordinate(endLon, endLat)
+                : new Coordinate(raster.cellLon(cells[i]), raster.cellLat(cells[i]));
+            segments.add(new RouteSegment(from, to, distance, slope, elevationGain, elevationLoss));
+            runStart = i;
         }
         
-        // Add final segment to end point
-        double finalElevation = elevationService.getElevationAtPoint(endLon, endLat).orElse(0.0);
-        double finalDistance = calculateDistance(prevLon, prevLat, endLon, endLat);
-        double finalSlope = elevationService.calculateSlope(prevLon, prevLat, prevElevation,
-            endLon, endLat, finalElevation);
-        double finalElevationGain = Math.max(0, finalElevation - prevElevation);
-        double finalElevationLoss = Math.max(0, prevElevation - finalElevation);
-        
-        segments.add(new RouteSegment(
-            new Coordinate(prevLon, prevLat),
-            new Coordinate(endLon, endLat),
-            finalDistance, finalSlope, finalElevationGain, finalElevationLoss
-        ));
-        
-        return segments;
-    }
-    
-    /**
-     * Find waypoints for alternative routes
-     */
-    private List<Coordinate> findWaypoints(double startLon, double startLat,
-                                         double endLon, double endLat,
-                                         TerrainRoutingOptions options) {
-        List<Coordinate> waypoints = new ArrayList<>();
-        
-        // Calculate midpoint
-        double midLon = (startLon + endLon) / 2;
-        double midLat = (startLat + endLat) / 2;
+        if (segments.isEmpty()) {
+            return createStraightLineRoute(startLon, startLat, endLon, endLat);
+        }
         
-        // Add perpendicular waypoints
-        double bearing = calculateBearing(startLon, startLat, endLon, endLat);
-        double perpBearing1 = (bearing + 90) % 360;
-        double perpBearing2 = (bearing - 90 + 360) % 360;
+        // Calculate total metrics
+        double totalDistance = segments.stream().mapToDouble(RouteSegment::distance).sum();
+        double totalElevationGain = segments.stream().mapToDouble(RouteSegment::elevationGain).sum();
+        double totalElevationLoss = segments.stream().mapToDouble(RouteSegment::elevationLoss).sum();
+        double maxSlope = segments.stream().mapToDouble(segment -> Math.abs(segment.slope())).max().orElse(0);
+        double avgSlope = segments.stream().mapToDouble(segment -> Math.abs(segment.slope()) * segment.distance()).sum()
+            / totalDistance;
         
-        double waypointOffsetDistance = options.waypointOffsetDistance();
+        // Calculate terrain difficulty score
+        double difficultyScore = calculateDifficultyScore(segments, options);
         
-        waypoints.add(calculateDestination(midLon, midLat, perpBearing1, waypointOffsetDistance));
-        waypoints.add(calculateDestination(midLon, midLat, perpBearing2, waypointOffsetDistance));
+        // Calculate accessibility score
+        double accessibilityScore = calculateRouteAccessibility(segments, options);
         
-        return waypoints;
+        return TerrainRoute.builder()
+            .startPoint(new Coordinate(startLon, startLat))
+            .endPoint(new Coordinate(endLon, endLat))
+            .segments(segments)
+            .totalDistance(totalDistance)
+            .totalElevationGain(totalElevationGain)
+            .totalElevationLoss(totalElevationLoss)
+            .maxSlope(maxSlope)
+            .avgSlope(avgSlope)
+            .difficultyScore(difficultyScore)
+            .accessibilityScore(accessibilityScore)
+            .isAccessible(accessibilityScore >= options.minAccessibilityScore())
+            .build();
     }
     
     /**
@@ -295,31 +284,19 @@ public class TerrainRoutingService {
     }
     
     /**
-     * Combine two routes
+     * Straight-line route marked inaccessible, used when the grid search finds no passable path
      */
-    private TerrainRoute combineRoutes(TerrainRoute route1, TerrainRoute route2) {
-        List<RouteSegment> combinedSegments = new ArrayList<>(route1.segments());
-        combinedSegments.addAll(route2.segments());
-        
-        double totalDistance = route1.totalDistance() + route2.totalDistance();
-        double totalElevationGain = route1.totalElevationGain() + route2.totalElevationGain();
-        double totalElevationLoss = route1.totalElevationLoss() + route2.totalElevationLoss();
-        double maxSlope = Math.max(route1.maxSlope(), route2.maxSlope());
-        double avgSlope = (route1.avgSlope() * route1.totalDistance() + 
-                          route2.avgSlope() * route2.totalDistance()) / totalDistance;
-        
+    private TerrainRoute createImpassableRoute(double startLon, double startLat,
+                                               double endLon, double endLat) {
+        TerrainRoute straightLine = createStraightLineRoute(startLon, startLat, endLon, endLat);
         return TerrainRoute.builder()
-            .startPoint(route1.startPoint())
-            .endPoint(route2.endPoint())
-            .segments(combinedSegments)
-            .totalDistance(totalDistance)
-            .totalElevationGain(totalElevationGain)
-            .totalElevationLoss(totalElevationLoss)
-            .maxSlope(maxSlope)
-            .avgSlope(avgSlope)
-            .difficultyScore((route1.difficultyScore() + route2.difficultyScore()) / 2)
-            .accessibilityScore(Math.min(route1.accessibilityScore(), route2.accessibilityScore()))
-            .isAccessible(route1.isAccessible() && route2.isAccessible())
+            .startPoint(straightLine.startPoint())
+            .endPoint(straightLine.endPoint())
+            .segments(straightLine.segments())
+            .totalDistance(straightLine.totalDistance())
+            .difficultyScore(straightLine.difficultyScore())
+            .accessibilityScore(0)
+            .isAccessible(false)
             .build();
     }
     
@@ -342,39 +319,6 @@ public class TerrainRoutingService {
         return R * c;
     }
     
-    /**
-     * Calculate bearing between two points
-     */
-    private double calculateBearing(double lat1, double lon1, double lat2, double lon2) {
-        double lat1Rad = Math.toRadians(lat1);
-        double lat2Rad = Math.toRadians(lat2);
-        double deltaLon = Math.toRadians(lon2 - lon1);
-        
-        double y = Math.sin(deltaLon) * Math.cos(lat2Rad);
-        double x = Math.cos(lat1Rad) * Math.sin(lat2Rad) - 
-                   Math.sin(lat1Rad) * Math.cos(lat2Rad) * Math.cos(deltaLon);
-        
-        double bearing = Math.toDegrees(Math.atan2(y, x));
-        return (bearing + 360) % 360;
-    }
-    
-    /**
-     * Calculate destination point given bearing and distance
-     */
-    private Coordinate calculateDestination(double lat, double lon, double bearing, double distance) {
-        double latRad = Math.toRadians(lat);
-        double lonRad = Math.toRadians(lon);
-        double bearingRad = Math.toRadians(bearing);
-        double distanceRad = distance / 6371000; // Convert to radians
-        
-        double newLat = Math.asin(Math.sin(latRad) * Math.cos(distanceRad) +
-                                 Math.cos(latRad) * Math.sin(distanceRad) * Math.cos(bearingRad));
-        double newLon = lonRad + Math.atan2(Math.sin(bearingRad) * Math.sin(distanceRad) * Math.cos(latRad),
-                                           Math.cos(distanceRad) - Math.sin(latRad) * Math.sin(newLat));
-        
-        return new Coordinate(Math.toDegrees(newLon), Math.toDegrees(newLat));
-    }
-    
     /**
      * Data classes for terrain routing
      */
@@ -411,13 +355,29 @@ public class TerrainRoutingService {
         }
     }
     
+    /**
+     * Routing options. {@code waypointOffsetDistance} is the width of the corridor penalised around
+     * each route when searching for alternatives; {@code cellSize} is in metres and
+     * {@code slopeWeight} scales the quadratic slope cost relative to {@code maxSlope}.
+     */
     public record TerrainRoutingOptions(
         double searchRadius,
         double maxSlope,
         double minAccessibilityScore,
         double waypointOffsetDistance,
-        int maxAlternativeRoutes
+        int maxAlternativeRoutes,
+        double cellSize,
+        double slopeWeight,
+        double floodRiskWeight,
+        double accessibilityWeight,
+        boolean bidirectional
     ) {
+        public TerrainRoutingOptions(double searchRadius, double maxSlope, double minAccessibilityScore,
+                                     double waypointOffsetDistance, int maxAlternativeRoutes) {
+            this(searchRadius, maxSlope, minAccessibilityScore, waypointOffsetDistance, maxAlternativeRoutes,
+                30, 2.0, 4.0, 2.0, false);
+        }
+        
         public static TerrainRoutingOptions defaultOptions() {
             return new TerrainRoutingOptions(1000, 15, 0.7, 500, 3);
         }
@@ -1,5 +1,6 @@
 package com.relief.service.training;
 
+import com.relief.util.InvertedIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
@@ -8,9 +9,14 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
- * Knowledge base service for searchable repository of best practices and procedures
+ * Knowledge base service for searchable repository of best practices and procedures.
+ *
+ * Articles are held in memory and indexed for full-text search on every write, faceted by
+ * category; the title is indexed twice so that title matches outrank body matches.
  */
 @Service
 @RequiredArgsConstructor
@@ -18,6 +24,21 @@ import java.util.*;
 public class KnowledgeBaseService {
 
     private static final Logger log = LoggerFactory.getLogger(KnowledgeBaseService.class);
+    private static final int SNIPPET_CHARS = 200;
+
+    private final Map<String, KnowledgeArticle> articles = new ConcurrentHashMap<>();
+    private final InvertedIndex<String> searchIndex = new InvertedIndex<>();
+
+    /**
+     * A matching article with its score and a snippet of its content, matches in {@code <em>}
+     */
+    public record ArticleHit(KnowledgeArticle article, double score, String highlight) {}
+
+    /**
+     * The top hits, the number of matches after the filters and the matches per category before
+     * the category filter (but after the others)
+     */
+    public record ArticleSearchResult(List<ArticleHit> hits, int totalHits, Map<String, Integer> categories) {}
 
     public KnowledgeArticle createArticle(String title, String content, String category, String tags, 
                                         String authorId, String language, boolean isPublic) {
@@ -35,6 +56,8 @@ public class KnowledgeBaseService {
         article.setViewCount(0);
         article.setRating(0.0);
         article.setStatus(ArticleStatus.PUBLISHED);
+        articles.put(article.getId(), article);
+        index(article);
         
         log.info("Created knowledge article: {}", article.getId());
         return article;
@@ -42,8 +65,7 @@ public class KnowledgeBaseService {
 
     public KnowledgeArticle updateArticle(String articleId, String title, String content, String category, 
                                         String tags, String language, boolean isPublic) {
-        KnowledgeArticle article = new KnowledgeArticle();
-        article.setId(articleId);
+        KnowledgeArticle article = find(articleId);
         article.setTitle(title);
         article.setContent(content);
         article.setCategory(category);
@@ -51,50 +73,81 @@ public class KnowledgeBaseService {
         article.setLanguage(language);
         article.setIsPublic(isPublic);
         article.setUpdatedAt(LocalDateTime.now());
+        index(article);
         
         log.info("Updated knowledge article: {}", articleId);
         return article;
     }
 
+    /**
+     * The article, counting a view
+     */
     public KnowledgeArticle getArticle(String articleId) {
-        // Implementation for getting article
-        KnowledgeArticle article = new KnowledgeArticle();
-        article.setId(articleId);
-        article.setTitle("Sample Article");
-        article.setContent("Sample content");
-        article.setCategory("Emergency Response");
-        article.setTags(Arrays.asList("disaster", "response", "emergency"));
-        article.setAuthorId("author-123");
-        article.setLanguage("en");
-        article.setIsPublic(true);
-        article.setCreatedAt(LocalDateTime.now());
-        article.setUpdatedAt(LocalDateTime.now());
-        article.setViewCount(0);
-        article.setRating(0.0);
-        article.setStatus(ArticleStatus.PUBLISHED);
-        
+        KnowledgeArticle article = find(articleId);
+        article.setViewCount(article.getViewCount() + 1);
         return article;
     }
 
     public List<KnowledgeArticle> searchArticles(String query, String category, List<String> tags, 
                                                String language, boolean isPublic, int limit) {
-        // Implementation for searching articles
-        return Collections.emptyList();
+        if (query == null || query.isBlank()) {
+            return articles.values().stream()
+                .filter(article -> category == null || category.equals(article.getCategory()))
+                .filter(matches(tags, language, isPublic))
+                .sorted(Comparator.comparing(KnowledgeArticle::getUpdatedAt).reversed())
+                .limit(limit)
+                .toList();
+        }
+        return search(query, category, tags, language, isPublic, limit).hits().stream()
+            .map(ArticleHit::article)
+            .toList();
+    }
+
+    /**
+     * Ranked full-text search over title, tags and content, tolerant of typos, with matches per
+     * category and highlighted snippets
+     */
+    public ArticleSearchResult search(String query, String category, List<String> tags,
+                                      String language, boolean isPublic, int limit) {
+        Predicate<KnowledgeArticle> filter = matches(tags, language, isPublic);
+        InvertedIndex.Result<String> result = searchIndex.search(query, category, id -> {
+            KnowledgeArticle article = articles.get(id);
+            return article != null && filter.test(article);
+        }, limit);
+
+        List<ArticleHit> hits = new ArrayList<>(result.hits().size());
+        for (InvertedIndex.Hit<String> hit : result.hits()) {
+            KnowledgeArticle article = articles.get(hit.key());
+            if (article == null) continue;
+            hits.add(new ArticleHit(article, hit.score(),
+                InvertedIndex.highlight(article.getContent(), result.terms(), SNIPPET_CHARS)));
+        }
+        return new ArticleSearchResult(hits, result.totalHits(), result.facets());
     }
 
     public List<KnowledgeArticle> getArticlesByCategory(String category, int limit) {
-        // Implementation for getting articles by category
-        return Collections.emptyList();
+        return articles.values().stream()
+            .filter(article -> Objects.equals(category, article.getCategory()))
+            .sorted(Comparator.comparing(KnowledgeArticle::getUpdatedAt).reversed())
+            .limit(limit)
+            .toList();
     }
 
     public List<KnowledgeArticle> getPopularArticles(int limit) {
-        // Implementation for getting popular articles
-        return Collections.emptyList();
+        return articles.values().stream()
+            .filter(KnowledgeArticle::isPublic)
+            .sorted(Comparator.comparingInt(KnowledgeArticle::getViewCount)
+                .thenComparingDouble(KnowledgeArticle::getRating).reversed())
+            .limit(limit)
+            .toList();
     }
 
     public List<KnowledgeArticle> getRecentArticles(int limit) {
-        // Implementation for getting recent articles
-        return Collections.emptyList();
+        return articles.values().stream()
+            .filter(KnowledgeArticle::isPublic)
+            .sorted(Comparator.comparing(KnowledgeArticle::getCreatedAt).reversed())
+            .limit(limit)
+            .toList();
     }
 
     public KnowledgeArticle rateArticle(String articleId, String userId, double rating, String comment) {
@@ -107,7 +160,7 @@ public class KnowledgeBaseService {
         articleRating.setCreatedAt(LocalDateTime.now());
         
         log.info("Rated article {} with rating {}", articleId, rating);
-        return getArticle(articleId);
+        return find(articleId);
     }
 
     public KnowledgeArticle bookmarkArticle(String articleId, String userId) {
@@ -118,7 +171,7 @@ public class KnowledgeBaseService {
         bookmark.setCreatedAt(LocalDateTime.now());
         
         log.info("Bookmarked article {} by user {}", articleId, userId);
-        return getArticle(articleId);
+        return find(articleId);
     }
 
     public void removeBookmark(String articleId, String userId) {
@@ -130,9 +183,17 @@ public class KnowledgeBaseService {
         return Collections.emptyList();
     }
 
+    /**
+     * Public articles best matching the article's title and tags
+     */
     public List<KnowledgeArticle> getRelatedArticles(String articleId, int limit) {
-        // Implementation for getting related articles
-        return Collections.emptyList();
+        KnowledgeArticle article = find(articleId);
+        String query = article.getTitle() + " " + String.join(" ", article.getTags());
+        return searchIndex.search(query, null, id -> !id.equals(articleId) && isPublicArticle(id), limit)
+            .hits().stream()
+            .map(hit -> articles.get(hit.key()))
+            .filter(Objects::nonNull)
+            .toList();
     }
 
     public KnowledgeCategory createCategory(String name, String description, String parentCategoryId) {
@@ -199,7 +260,7 @@ public class KnowledgeBaseService {
 
     public KnowledgeArticle translateArticle(String articleId, String targetLanguage) {
         // Implementation for translating article
-        KnowledgeArticle article = getArticle(articleId);
+        KnowledgeArticle article = copyOf(find(articleId));
         article.setLanguage(targetLanguage);
         article.setTitle(article.getTitle() + " (Translated)");
         
@@ -208,9 +269,56 @@ public class KnowledgeBaseService {
     }
 
     public void deleteArticle(String articleId) {
+        articles.remove(articleId);
+        searchIndex.remove(articleId);
         log.info("Deleted knowledge article: {}", articleId);
     }
 
+    private KnowledgeArticle find(String articleId) {
+        KnowledgeArticle article = articles.get(articleId);
+        if (article == null) {
+            throw new IllegalArgumentException("Knowledge article not found: " + articleId);
+        }
+        return article;
+    }
+
+    private void index(KnowledgeArticle article) {
+        String tags = article.getTags() != null ? String.join(" ", article.getTags()) : "";
+        searchIndex.put(article.getId(),
+            article.getTitle() + " " + article.getTitle() + " " + tags + " " + article.getContent(),
+            article.getCategory());
+    }
+
+    private boolean isPublicArticle(String articleId) {
+        KnowledgeArticle article = articles.get(articleId);
+        return article != null && article.isPublic();
+    }
+
+    private static Predicate<KnowledgeArticle> matches(List<String> tags, String language, boolean isPublic) {
+        return article -> (!isPublic || article.isPublic())
+            && (language == null || language.equals(article.getLanguage()))
+            && (tags == null || tags.isEmpty() || (article.getTags() != null && article.getTags().stream()
+                .map(String::trim).anyMatch(tags::contains)));
+    }
+
+    private static KnowledgeArticle copyOf(KnowledgeArticle source) {
+        KnowledgeArticle copy = new KnowledgeArticle();
+        copy.setId(source.getId());
+        copy.setTitle(source.getTitle());
+        copy.setContent(source.getContent());
+        copy.setCategory(source.getCategory());
+        copy.setTags(source.getTags());
+        copy.setAuthorId(source.getAuthorId());
+        copy.setLanguage(source.getLanguage());
+        copy.setIsPublic(source.isPublic());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.setViewCount(source.getViewCount());
+        copy.setRating(source.getRating());
+        copy.setStatus(source.getStatus());
+        return copy;
+    }
+
     // Data classes
     public static class KnowledgeArticle {
         private String id;
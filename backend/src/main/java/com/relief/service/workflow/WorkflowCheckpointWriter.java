@@ -0,0 +1,124 @@
+package com.relief.service.workflow;
+
+import com.relief.entity.WorkflowExecutionEntity;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.repository.WorkflowExecutionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes workflow execution state to {@code workflow_executions} in batches.
+ *
+ * Checkpoints are coalesced per execution, so a flush writes only the latest state of each
+ * execution that changed since the previous flush, all in one transaction. Checkpoints that have
+ * not reached the database yet are still visible through {@link #pending}.
+ */
+@Component
+@Slf4j
+public class WorkflowCheckpointWriter {
+
+    private final WorkflowExecutionRepository executionRepository;
+    private final NeedsRequestRepository needsRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, Checkpoint> pending = new ConcurrentHashMap<>();
+    private final Map<String, Checkpoint> writing = new ConcurrentHashMap<>();
+
+    public record Checkpoint(String executionId, UUID requestId, String workflowType, String status,
+                             String errorMessage, LocalDateTime startTime, LocalDateTime endTime,
+                             Map<String, Object> executionData) {}
+
+    public WorkflowCheckpointWriter(WorkflowExecutionRepository executionRepository,
+                                    NeedsRequestRepository needsRequestRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.executionRepository = executionRepository;
+        this.needsRequestRepository = needsRequestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Queue the execution's latest state, replacing any queued state not yet written
+     */
+    public void submit(Checkpoint checkpoint) {
+        pending.put(checkpoint.executionId(), checkpoint);
+    }
+
+    /**
+     * Write the checkpoint now in its own transaction, for state that must not wait for a flush
+     */
+    public synchronized void writeNow(Checkpoint checkpoint) {
+        transactionTemplate.executeWithoutResult(status -> write(List.of(checkpoint)));
+    }
+
+    /**
+     * The execution's latest state if it has not been written yet, or null
+     */
+    public Checkpoint pending(String executionId) {
+        Checkpoint checkpoint = pending.get(executionId);
+        return checkpoint != null ? checkpoint : writing.get(executionId);
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.checkpoint.flush-interval-ms:500}")
+    @PreDestroy
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+        List<Checkpoint> batch = new ArrayList<>(pending.size());
+        for (String executionId : new ArrayList<>(pending.keySet())) {
+            Checkpoint checkpoint = pending.remove(executionId);
+            if (checkpoint != null) {
+                writing.put(executionId, checkpoint);
+                batch.add(checkpoint);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} workflow checkpoints, retrying on next flush", batch.size(), e);
+            // Newer checkpoints submitted meanwhile take precedence
+            batch.forEach(checkpoint -> pending.putIfAbsent(checkpoint.executionId(), checkpoint));
+        } finally {
+            batch.forEach(checkpoint -> writing.remove(checkpoint.executionId(), checkpoint));
+        }
+    }
+
+    private void write(List<Checkpoint> batch) {
+        Map<String, WorkflowExecutionEntity> existing = new HashMap<>(batch.size() * 2);
+        for (WorkflowExecutionEntity entity : executionRepository.findByExecutionIdIn(
+                batch.stream().map(Checkpoint::executionId).toList())) {
+            existing.put(entity.getExecutionId(), entity);
+        }
+
+        List<WorkflowExecutionEntity> entities = new ArrayList<>(batch.size());
+        for (Checkpoint checkpoint : batch) {
+            WorkflowExecutionEntity entity = existing.get(checkpoint.executionId());
+            if (entity == null) {
+                entity = WorkflowExecutionEntity.builder()
+                        .executionId(checkpoint.executionId())
+                        .request(checkpoint.requestId() != null
+                            ? needsRequestRepository.getReferenceById(checkpoint.requestId())
+                            : null)
+                        .build();
+            }
+            entity.setWorkflowType(checkpoint.workflowType());
+            entity.setStatus(checkpoint.status());
+            entity.setErrorMessage(checkpoint.errorMessage());
+            entity.setStartTime(checkpoint.startTime());
+            entity.setEndTime(checkpoint.endTime());
+            entity.setExecutionData(checkpoint.executionData());
+            entities.add(entity);
+        }
+        executionRepository.saveAll(entities);
+    }
+}
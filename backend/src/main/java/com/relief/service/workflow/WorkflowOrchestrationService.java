@@ -9,35 +9,104 @@ import com.relief.repository.TaskRepository;
 import com.relief.repository.UserRepository;
 import com.relief.repository.WorkflowExecutionRepository;
 import com.relief.service.NotificationService;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
- * Advanced workflow orchestration service with conditional logic and parallel execution
+ * Advanced workflow orchestration service with conditional logic and parallel execution.
+ *
+ * Templates run as compiled {@link WorkflowPlan}s, cached by the {@link WorkflowTemplateService},
+ * so an execution does no template conversion, parameter parsing or condition parsing of its own.
+ * Plan steps run as a dependency graph ({@link WorkflowStepGraph}): each step starts on the
+ * step executor as soon as the steps it depends on have finished, so independent branches run
+ * concurrently and a workflow takes about as long as its longest branch. Wait steps are timers,
+ * and parallel and conditional steps compose the futures of the steps they contain, so none of
+ * them holds a thread; every other step has a timeout, after which it fails and its thread is
+ * interrupted. A step's condition is checked when it is about to start and skips it when false.
+ *
+ * Each step, and each branch of a parallel step, writes variables into its own scope. A step sees
+ * the variables its transitive dependencies set, applied in the order they finished, so steps
+ * running side by side never see or overwrite each other's {@code taskId}.
+ *
+ * A new execution is written before its first step starts, and its state is then checkpointed
+ * through the {@link WorkflowCheckpointWriter} as steps finish. Executions still IN_PROGRESS at
+ * startup were interrupted by a shutdown or crash and are resumed from their last checkpoint;
+ * steps that had not finished by then are run again.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class WorkflowOrchestrationService {
 
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
     private final NeedsRequestRepository needsRequestRepository;
     private final WorkflowTemplateService workflowTemplateService;
     private final NotificationService notificationService;
     private final WorkflowExecutionRepository executionRepository;
+    private final WorkflowCheckpointWriter checkpointWriter;
+    private final ExecutorService stepExecutor;
+    private final long defaultStepTimeoutSeconds;
+    private final Map<WorkflowStepType, StepHandler> stepHandlers = new EnumMap<>(WorkflowStepType.class);
+
+    @FunctionalInterface
+    private interface StepHandler {
+        StepExecutionResult execute(WorkflowPlan.Step step, WorkflowContext context);
+    }
+
+    public WorkflowOrchestrationService(TaskRepository taskRepository,
+                                        UserRepository userRepository,
+                                        NeedsRequestRepository needsRequestRepository,
+                                        WorkflowTemplateService workflowTemplateService,
+                                        NotificationService notificationService,
+                                        WorkflowExecutionRepository executionRepository,
+                                        WorkflowCheckpointWriter checkpointWriter,
+                                        @Value("${workflow.executor.threads:32}") int threads,
+                                        @Value("${workflow.steps.default-timeout-seconds:300}") long defaultStepTimeoutSeconds) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.needsRequestRepository = needsRequestRepository;
+        this.workflowTemplateService = workflowTemplateService;
+        this.notificationService = notificationService;
+        this.executionRepository = executionRepository;
+        this.checkpointWriter = checkpointWriter;
+        this.defaultStepTimeoutSeconds = defaultStepTimeoutSeconds;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.stepExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-step-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        stepHandlers.put(WorkflowStepType.CREATE_TASK, this::executeCreateTaskStep);
+        stepHandlers.put(WorkflowStepType.SEND_NOTIFICATION, this::executeNotificationStep);
+        stepHandlers.put(WorkflowStepType.ASSIGN_USER, this::executeAssignUserStep);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stepExecutor.shutdownNow();
+    }
 
     /**
      * Execute a workflow for a needs request by ID
      */
-    @Transactional
     public WorkflowExecutionResult executeWorkflow(UUID requestId, String workflowType) {
         NeedsRequest request = needsRequestRepository.findById(requestId)
                 .orElseThrow(() -> new IllegalArgumentException("Needs request not found: " + requestId));
@@ -45,14 +114,14 @@ public class WorkflowOrchestrationService {
     }
 
     /**
-     * Execute a workflow for a needs request
+     * Execute a workflow for a needs request and wait for it to finish. Steps run on the step
+     * executor, each persisting through its own repository transactions.
      */
-    @Transactional
     public WorkflowExecutionResult executeWorkflow(NeedsRequest request, String workflowType) {
         log.info("Executing workflow '{}' for request {}", workflowType, request.getId());
         
-        WorkflowTemplate template = workflowTemplateService.getTemplate(workflowType);
-        if (template == null) {
+        WorkflowPlan plan = workflowTemplateService.getPlan(workflowType);
+        if (plan == null) {
             throw new IllegalArgumentException("Workflow template not found: " + workflowType);
         }
 
@@ -61,78 +130,229 @@ public class WorkflowOrchestrationService {
         result.setExecutionId(UUID.randomUUID().toString());
         result.setRequestId(request.getId().toString());
         result.setWorkflowType(workflowType);
+        // Not batched: an execution lost to a crash before the first flush could not be resumed
+        checkpointWriter.writeNow(checkpoint(result, request.getId(), context.getVariables(), List.of()));
         
+        return run(plan, context, result, Map.of()).join();
+    }
+
+    /**
+     * Resume executions left IN_PROGRESS by a previous shutdown or crash
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedExecutions() {
+        List<WorkflowExecutionEntity> interrupted = executionRepository.findByStatus(IN_PROGRESS);
+        for (WorkflowExecutionEntity entity : interrupted) {
+            try {
+                resume(entity);
+            } catch (RuntimeException e) {
+                log.error("Failed to resume workflow execution {}", entity.getExecutionId(), e);
+            }
+        }
+        if (!interrupted.isEmpty()) {
+            log.info("Resumed {} interrupted workflow executions", interrupted.size());
+        }
+    }
+
+    private void resume(WorkflowExecutionEntity entity) {
+        WorkflowExecutionResult result = new WorkflowExecutionResult();
+        result.setExecutionId(entity.getExecutionId());
+        result.setWorkflowType(entity.getWorkflowType());
+        if (entity.getStartTime() != null) {
+            result.setStartTime(entity.getStartTime());
+        }
+
+        UUID requestId = entity.getRequest() != null ? entity.getRequest().getId() : null;
+        NeedsRequest request = requestId != null ? needsRequestRepository.findById(requestId).orElse(null) : null;
+        WorkflowPlan plan;
+        String planError = null;
         try {
-            // Execute workflow steps
-            for (WorkflowStep step : template.getSteps()) {
-                StepExecutionResult stepResult = executeStep(step, context);
-                result.addStepResult(stepResult);
-                
-                // Check if workflow should continue
-                if (!stepResult.isSuccess() && step.isRequired()) {
-                    result.setStatus("FAILED");
-                    result.setErrorMessage("Required step failed: " + step.getName());
-                    break;
-                }
-                
-                // Check conditional logic
-                if (step.getCondition() != null && !evaluateCondition(step.getCondition(), context)) {
-                    log.info("Skipping step {} due to condition", step.getName());
-                    continue;
-                }
+            plan = workflowTemplateService.getPlan(entity.getWorkflowType());
+        } catch (IllegalArgumentException e) {
+            plan = null;
+            planError = e.getMessage();
+        }
+        if (request == null || plan == null) {
+            result.setRequestId(requestId != null ? requestId.toString() : null);
+            result.setStatus("ERROR");
+            result.setErrorMessage(request == null ? "Cannot resume: request not found"
+                : planError != null ? "Cannot resume: " + planError : "Cannot resume: template not found");
+            checkpointWriter.submit(checkpoint(result, requestId, Map.of(), List.of()));
+            return;
+        }
+        result.setRequestId(request.getId().toString());
+
+        WorkflowContext context = new WorkflowContext(request);
+        Map<Integer, StepExecutionResult> restored = new HashMap<>();
+        Map<String, Object> data = entity.getExecutionData() != null ? entity.getExecutionData() : Map.of();
+        if (data.get("variables") instanceof Map<?, ?> variables) {
+            variables.forEach((name, value) -> context.addVariable(name.toString(), value));
+        }
+        List<WorkflowPlan.Step> steps = plan.steps();
+        if (data.get("stepResults") instanceof List<?> stepResults) {
+            for (Object item : stepResults) {
+                if (!(item instanceof Map<?, ?> stepData) || !(stepData.get("stepIndex") instanceof Number index)) continue;
+                int stepIndex = index.intValue();
+                // Drop results that no longer line up with the template
+                if (stepIndex < 0 || stepIndex >= steps.size()
+                        || !Objects.equals(steps.get(stepIndex).name(), stepData.get("stepName"))) continue;
+                restored.put(stepIndex, new StepExecutionResult((String) stepData.get("stepName"),
+                        Boolean.TRUE.equals(stepData.get("success")), (String) stepData.get("message")));
             }
-            
-            if (result.getStatus() == null) {
-                result.setStatus("COMPLETED");
+        }
+
+        log.info("Resuming workflow '{}' execution {} with {} of {} steps finished",
+                entity.getWorkflowType(), entity.getExecutionId(), restored.size(), steps.size());
+        run(plan, context, result, restored).whenComplete((finished, error) -> {
+            if (error != null) {
+                log.error("Resumed workflow execution {} failed", entity.getExecutionId(), error);
             }
-            
-        } catch (Exception e) {
-            log.error("Workflow execution failed", e);
-            result.setStatus("ERROR");
-            result.setErrorMessage(e.getMessage());
+        });
+    }
+
+    /**
+     * Run the plan's remaining steps, checkpointing as they finish
+     */
+    private CompletableFuture<WorkflowExecutionResult> run(WorkflowPlan plan, WorkflowContext context,
+                                                           WorkflowExecutionResult result,
+                                                           Map<Integer, StepExecutionResult> restored) {
+        UUID requestId = context.getRequest().getId();
+        WorkflowRun run = new WorkflowRun(plan, context, restored);
+        return run.start(
+                this::launchStep,
+                progress -> checkpointWriter.submit(
+                        checkpoint(result, requestId, progress.variables(), progress.completedSteps())))
+            .handle((ignored, error) -> {
+                List<WorkflowRun.CompletedStep> completedSteps = run.completedSteps();
+                for (WorkflowRun.CompletedStep completed : completedSteps) {
+                    result.addStepResult(completed.result());
+                }
+                if (error != null) {
+                    log.error("Workflow execution failed", error);
+                    result.setStatus("ERROR");
+                    result.setErrorMessage(error.getMessage());
+                } else if (run.failure() != null) {
+                    result.setStatus("FAILED");
+                    result.setErrorMessage(run.failure());
+                } else {
+                    result.setStatus("COMPLETED");
+                }
+                checkpointWriter.submit(checkpoint(result, requestId, run.variables(), completedSteps));
+                return result;
+            });
+    }
+
+    /**
+     * Execution state for the checkpoint writer; IN_PROGRESS until the result has a status
+     */
+    private WorkflowCheckpointWriter.Checkpoint checkpoint(WorkflowExecutionResult result, UUID requestId,
+                                                           Map<String, Object> variables,
+                                                           List<WorkflowRun.CompletedStep> completedSteps) {
+        List<Map<String, Object>> stepResultsData = new ArrayList<>(completedSteps.size());
+        for (WorkflowRun.CompletedStep completed : completedSteps) {
+            Map<String, Object> stepData = new HashMap<>();
+            stepData.put("stepIndex", completed.index());
+            stepData.put("stepName", completed.result().getStepName());
+            stepData.put("success", completed.result().isSuccess());
+            stepData.put("message", completed.result().getMessage());
+            stepResultsData.add(stepData);
         }
-        
-        // Store execution result in database
-        saveExecutionResult(request, workflowType, result);
-        
-        return result;
+        Map<String, Object> executionData = new HashMap<>();
+        executionData.put("stepResults", stepResultsData);
+        executionData.put("variables", new HashMap<>(variables));
+        executionData.put("requestId", requestId != null ? requestId.toString() : null);
+        executionData.put("workflowType", result.getWorkflowType());
+
+        return new WorkflowCheckpointWriter.Checkpoint(
+                result.getExecutionId(), requestId, result.getWorkflowType(),
+                result.getStatus() != null ? result.getStatus() : IN_PROGRESS,
+                result.getErrorMessage(), result.getStartTime(), result.getEndTime(), executionData);
     }
 
     /**
-     * Save workflow execution result to database
+     * Start a step on the step executor, completing with its result
      */
-    @Transactional
-    private void saveExecutionResult(NeedsRequest request, String workflowType, WorkflowExecutionResult result) {
-        try {
-            WorkflowExecutionEntity entity = WorkflowExecutionEntity.builder()
-                    .executionId(result.getExecutionId())
-                    .request(request)
-                    .workflowType(workflowType)
-                    .status(result.getStatus())
-                    .errorMessage(result.getErrorMessage())
-                    .startTime(result.getStartTime())
-                    .endTime(result.getEndTime())
-                    .build();
-            
-            // Convert step results to JSON
-            Map<String, Object> executionData = new HashMap<>();
-            List<Map<String, Object>> stepResultsData = new ArrayList<>();
-            for (StepExecutionResult stepResult : result.getStepResults()) {
-                Map<String, Object> stepData = new HashMap<>();
-                stepData.put("stepName", stepResult.getStepName());
-                stepData.put("success", stepResult.isSuccess());
-                stepData.put("message", stepResult.getMessage());
-                stepResultsData.add(stepData);
+    private CompletableFuture<StepExecutionResult> launchStep(WorkflowPlan.Step step, WorkflowContext context) {
+        if (step.condition() != null && step.type() != WorkflowStepType.CONDITIONAL_BRANCH
+                && !step.condition().test(context)) {
+            log.info("Skipping step {} due to condition", step.name());
+            return CompletableFuture.completedFuture(new StepExecutionResult(step.name(), true, "Skipped: condition not met"));
+        }
+        if (step.type() == WorkflowStepType.PARALLEL_EXECUTION) {
+            return launchParallelStep(step, context);
+        }
+        if (step.type() == WorkflowStepType.CONDITIONAL_BRANCH) {
+            WorkflowPlan.Step branch = step.condition() == null || step.condition().test(context)
+                ? step.trueStep() : step.falseStep();
+            return branch != null ? launchStep(branch, context)
+                : CompletableFuture.completedFuture(new StepExecutionResult(step.name(), true, "Conditional step skipped"));
+        }
+
+        long timeoutSeconds = timeoutSeconds(step);
+        StepExecutionResult timedOut = new StepExecutionResult(step.name(), false,
+                "Step timed out after " + timeoutSeconds + " seconds");
+        if (step.type() == WorkflowStepType.WAIT_FOR_CONDITION) {
+            int waitSeconds = step.parameters().waitSeconds();
+            return CompletableFuture.supplyAsync(
+                    () -> new StepExecutionResult(step.name(), true, "Waited " + waitSeconds + " seconds"),
+                    CompletableFuture.delayedExecutor(waitSeconds, TimeUnit.SECONDS, stepExecutor))
+                .completeOnTimeout(timedOut, timeoutSeconds, TimeUnit.SECONDS);
+        }
+
+        // The timeout starts with the step, so time queued behind other steps does not count
+        CompletableFuture<StepExecutionResult> result = new CompletableFuture<>();
+        Future<?> task = stepExecutor.submit(() -> {
+            result.completeOnTimeout(timedOut, timeoutSeconds, TimeUnit.SECONDS);
+            result.complete(executeStep(step, context));
+        });
+        return result.whenComplete((stepResult, error) -> {
+            if (stepResult == timedOut) {
+                log.warn("Step {} timed out after {} seconds", step.name(), timeoutSeconds);
+                task.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * Start all parallel steps, each in its own branch of the context, completing when the last
+     * one finishes. Branch variables are then copied back in declaration order, so the last
+     * branch to set a name wins.
+     */
+    private CompletableFuture<StepExecutionResult> launchParallelStep(WorkflowPlan.Step step, WorkflowContext context) {
+        List<WorkflowPlan.Step> parallelSteps = step.parallelSteps();
+        List<WorkflowContext> branches = new ArrayList<>(parallelSteps.size());
+        List<CompletableFuture<StepExecutionResult>> futures = new ArrayList<>(parallelSteps.size());
+        for (WorkflowPlan.Step parallelStep : parallelSteps) {
+            WorkflowContext branch = context.branch();
+            branches.add(branch);
+            futures.add(launchStep(parallelStep, branch));
+        }
+        
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handle((ignored, error) -> {
+            branches.forEach(context::join);
+            if (error != null) {
+                return new StepExecutionResult(step.name(), false, "Parallel execution failed: " + error.getMessage());
             }
-            executionData.put("stepResults", stepResultsData);
-            executionData.put("requestId", request.getId().toString());
-            executionData.put("workflowType", workflowType);
+            List<StepExecutionResult> results = futures.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
             
-            entity.setExecutionData(executionData);
-            executionRepository.save(entity);
-        } catch (Exception e) {
-            log.error("Failed to save workflow execution result to database", e);
+            boolean allSuccess = results.stream().allMatch(StepExecutionResult::isSuccess);
+            String message = "Parallel execution completed: " + 
+                results.stream().mapToInt(r -> r.isSuccess() ? 1 : 0).sum() + 
+                "/" + results.size() + " successful";
+            
+            return new StepExecutionResult(step.name(), allSuccess, message);
+        });
+    }
+
+    private long timeoutSeconds(WorkflowPlan.Step step) {
+        if (step.timeoutSeconds() != null) {
+            return step.timeoutSeconds();
         }
+        return step.type() == WorkflowStepType.WAIT_FOR_CONDITION
+            ? step.parameters().waitSeconds() + defaultStepTimeoutSeconds
+            : defaultStepTimeoutSeconds;
     }
 
     /**
@@ -140,6 +360,19 @@ public class WorkflowOrchestrationService {
      */
     @Transactional(readOnly = true)
     public WorkflowExecutionResult getExecutionResult(String executionId) {
+        WorkflowCheckpointWriter.Checkpoint pending = checkpointWriter.pending(executionId);
+        if (pending != null) {
+            WorkflowExecutionResult result = convertToExecutionResult(WorkflowExecutionEntity.builder()
+                    .executionId(pending.executionId())
+                    .workflowType(pending.workflowType())
+                    .status(pending.status())
+                    .errorMessage(pending.errorMessage())
+                    .executionData(pending.executionData())
+                    .build());
+            result.setRequestId(pending.requestId() != null ? pending.requestId().toString() : null);
+            return result;
+        }
+        
         Optional<WorkflowExecutionEntity> entityOpt = executionRepository.findByExecutionId(executionId);
         if (entityOpt.isEmpty()) {
             return null;
@@ -185,39 +418,27 @@ public class WorkflowOrchestrationService {
     /**
      * Execute a single workflow step
      */
-    private StepExecutionResult executeStep(WorkflowStep step, WorkflowContext context) {
-        log.info("Executing step: {}", step.getName());
+    private StepExecutionResult executeStep(WorkflowPlan.Step step, WorkflowContext context) {
+        log.info("Executing step: {}", step.name());
         
+        StepHandler handler = step.type() != null ? stepHandlers.get(step.type()) : null;
+        if (handler == null) {
+            return new StepExecutionResult(step.name(), false, "Unknown step type: " + step.type());
+        }
         try {
-            switch (step.getType()) {
-                case CREATE_TASK:
-                    return executeCreateTaskStep(step, context);
-                case SEND_NOTIFICATION:
-                    return executeNotificationStep(step, context);
-                case ASSIGN_USER:
-                    return executeAssignUserStep(step, context);
-                case WAIT_FOR_CONDITION:
-                    return executeWaitStep(step, context);
-                case PARALLEL_EXECUTION:
-                    return executeParallelStep(step, context);
-                case CONDITIONAL_BRANCH:
-                    return executeConditionalStep(step, context);
-                default:
-                    return new StepExecutionResult(step.getName(), false, "Unknown step type: " + step.getType());
-            }
+            return handler.execute(step, context);
         } catch (Exception e) {
-            log.error("Step execution failed: {}", step.getName(), e);
-            return new StepExecutionResult(step.getName(), false, e.getMessage());
+            log.error("Step execution failed: {}", step.name(), e);
+            return new StepExecutionResult(step.name(), false, e.getMessage());
         }
     }
 
     /**
      * Execute create task step
      */
-    private StepExecutionResult executeCreateTaskStep(WorkflowStep step, WorkflowContext context) {
-        Map<String, Object> params = step.getParameters();
-        String taskType = (String) params.get("taskType");
-        String assigneeId = (String) params.get("assigneeId");
+    private StepExecutionResult executeCreateTaskStep(WorkflowPlan.Step step, WorkflowContext context) {
+        String taskType = step.parameters().taskType();
+        UUID assigneeId = step.parameters().assigneeId();
         
         Task task = Task.builder()
                 .request(context.getRequest())
@@ -225,7 +446,7 @@ public class WorkflowOrchestrationService {
                 .build();
         
         if (assigneeId != null) {
-            User assignee = userRepository.findById(UUID.fromString(assigneeId)).orElse(null);
+            User assignee = userRepository.findById(assigneeId).orElse(null);
             if (assignee != null) {
                 task.setAssignee(assignee);
                 task.setStatus("assigned");
@@ -236,16 +457,15 @@ public class WorkflowOrchestrationService {
         context.addVariable("taskId", task.getId().toString());
         context.addVariable("taskType", taskType);
         
-        return new StepExecutionResult(step.getName(), true, "Task created: " + task.getId());
+        return new StepExecutionResult(step.name(), true, "Task created: " + task.getId());
     }
 
     /**
      * Execute notification step
      */
-    private StepExecutionResult executeNotificationStep(WorkflowStep step, WorkflowContext context) {
-        Map<String, Object> params = step.getParameters();
-        String message = (String) params.get("message");
-        String recipientRole = (String) params.get("recipientRole");
+    private StepExecutionResult executeNotificationStep(WorkflowPlan.Step step, WorkflowContext context) {
+        String message = step.parameters().message();
+        String recipientRole = step.parameters().recipientRole();
         
         // Send notification based on role
         List<User> recipients = getUsersByRole(recipientRole);
@@ -253,24 +473,23 @@ public class WorkflowOrchestrationService {
             notificationService.sendNotification(recipient, message, context.getRequest());
         }
         
-        return new StepExecutionResult(step.getName(), true, "Notifications sent to " + recipients.size() + " users");
+        return new StepExecutionResult(step.name(), true, "Notifications sent to " + recipients.size() + " users");
     }
 
     /**
      * Execute assign user step
      */
-    private StepExecutionResult executeAssignUserStep(WorkflowStep step, WorkflowContext context) {
-        Map<String, Object> params = step.getParameters();
-        String assigneeRole = (String) params.get("assigneeRole");
+    private StepExecutionResult executeAssignUserStep(WorkflowPlan.Step step, WorkflowContext context) {
+        String assigneeRole = step.parameters().assigneeRole();
         String taskId = (String) context.getVariable("taskId");
         
         if (taskId == null) {
-            return new StepExecutionResult(step.getName(), false, "No task ID available");
+            return new StepExecutionResult(step.name(), false, "No task ID available");
         }
         
         Task task = taskRepository.findById(UUID.fromString(taskId)).orElse(null);
         if (task == null) {
-            return new StepExecutionResult(step.getName(), false, "Task not found");
+            return new StepExecutionResult(step.name(), false, "Task not found");
         }
         
         // Find best assignee based on role and availability
@@ -282,113 +501,7 @@ public class WorkflowOrchestrationService {
             context.addVariable("assigneeId", assignee.getId().toString());
         }
         
-        return new StepExecutionResult(step.getName(), true, "User assigned: " + (assignee != null ? assignee.getId() : "none"));
-    }
-
-    /**
-     * Execute wait step
-     */
-    private StepExecutionResult executeWaitStep(WorkflowStep step, WorkflowContext context) {
-        Map<String, Object> params = step.getParameters();
-        int waitSeconds = (Integer) params.getOrDefault("waitSeconds", 0);
-        
-        try {
-            Thread.sleep(waitSeconds * 1000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return new StepExecutionResult(step.getName(), false, "Wait interrupted");
-        }
-        
-        return new StepExecutionResult(step.getName(), true, "Waited " + waitSeconds + " seconds");
-    }
-
-    /**
-     * Execute parallel step
-     */
-    private StepExecutionResult executeParallelStep(WorkflowStep step, WorkflowContext context) {
-        List<WorkflowStep> parallelSteps = step.getParallelSteps();
-        List<CompletableFuture<StepExecutionResult>> futures = new ArrayList<>();
-        
-        for (WorkflowStep parallelStep : parallelSteps) {
-            CompletableFuture<StepExecutionResult> future = CompletableFuture.supplyAsync(() -> 
-                executeStep(parallelStep, context)
-            );
-            futures.add(future);
-        }
-        
-        // Wait for all parallel steps to complete
-        CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-            futures.toArray(new CompletableFuture[0])
-        );
-        
-        try {
-            allFutures.get();
-        } catch (Exception e) {
-            return new StepExecutionResult(step.getName(), false, "Parallel execution failed: " + e.getMessage());
-        }
-        
-        // Collect results
-        List<StepExecutionResult> results = futures.stream()
-            .map(CompletableFuture::join)
-            .collect(Collectors.toList());
-        
-        boolean allSuccess = results.stream().allMatch(StepExecutionResult::isSuccess);
-        String message = "Parallel execution completed: " + 
-            results.stream().mapToInt(r -> r.isSuccess() ? 1 : 0).sum() + 
-            "/" + results.size() + " successful";
-        
-        return new StepExecutionResult(step.getName(), allSuccess, message);
-    }
-
-    /**
-     * Execute conditional step
-     */
-    private StepExecutionResult executeConditionalStep(WorkflowStep step, WorkflowContext context) {
-        if (evaluateCondition(step.getCondition(), context)) {
-            return executeStep(step.getTrueStep(), context);
-        } else if (step.getFalseStep() != null) {
-            return executeStep(step.getFalseStep(), context);
-        }
-        
-        return new StepExecutionResult(step.getName(), true, "Conditional step skipped");
-    }
-
-    /**
-     * Evaluate condition
-     */
-    private boolean evaluateCondition(WorkflowCondition condition, WorkflowContext context) {
-        if (condition == null) return true;
-        
-        Object value = context.getVariable(condition.getVariable());
-        String operator = condition.getOperator();
-        Object expectedValue = condition.getExpectedValue();
-        
-        switch (operator) {
-            case "equals":
-                return Objects.equals(value, expectedValue);
-            case "not_equals":
-                return !Objects.equals(value, expectedValue);
-            case "greater_than":
-                return compareNumbers(value, expectedValue) > 0;
-            case "less_than":
-                return compareNumbers(value, expectedValue) < 0;
-            case "contains":
-                return value != null && value.toString().contains(expectedValue.toString());
-            case "not_contains":
-                return value == null || !value.toString().contains(expectedValue.toString());
-            default:
-                return false;
-        }
-    }
-
-    /**
-     * Compare numbers for conditions
-     */
-    private int compareNumbers(Object value1, Object value2) {
-        if (value1 instanceof Number && value2 instanceof Number) {
-            return Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
-        }
-        return 0;
+        return new StepExecutionResult(step.name(), true, "User assigned: " + (assignee != null ? assignee.getId() : "none"));
     }
 
     /**
@@ -425,14 +538,54 @@ public class WorkflowOrchestrationService {
     }
 
     // Data classes
+
+    /**
+     * Variables of one scope of a workflow execution. A branch starts with a copy of its parent's
+     * variables; what it sets itself reaches another scope only through {@link #join} or
+     * {@link #inherit}.
+     */
     public static class WorkflowContext {
         private final NeedsRequest request;
-        private final Map<String, Object> variables = new HashMap<>();
+        private final Map<String, Object> variables = new ConcurrentHashMap<>();
+        // Names set or removed in this scope rather than copied into it
+        private final Set<String> written = ConcurrentHashMap.newKeySet();
 
         public WorkflowContext(NeedsRequest request) {
             this.request = request;
         }
 
+        /**
+         * A new scope starting with this one's variables
+         */
+        public WorkflowContext branch() {
+            WorkflowContext branch = new WorkflowContext(request);
+            branch.variables.putAll(variables);
+            return branch;
+        }
+
+        /**
+         * Take the variables a branch set as set in this scope
+         */
+        public void join(WorkflowContext branch) {
+            for (String name : branch.written) {
+                addVariable(name, branch.variables.get(name));
+            }
+        }
+
+        /**
+         * See the variables another scope set, without counting them as set here
+         */
+        void inherit(WorkflowContext scope) {
+            for (String name : scope.written) {
+                Object value = scope.variables.get(name);
+                if (value == null) {
+                    variables.remove(name);
+                } else {
+                    variables.put(name, value);
+                }
+            }
+        }
+
         public NeedsRequest getRequest() {
             return request;
         }
@@ -442,7 +595,16 @@ public class WorkflowOrchestrationService {
         }
 
         public void addVariable(String name, Object value) {
-            variables.put(name, value);
+            written.add(name);
+            if (value == null) {
+                variables.remove(name);
+            } else {
+                variables.put(name, value);
+            }
+        }
+
+        public Map<String, Object> getVariables() {
+            return variables;
         }
     }
 
@@ -483,6 +645,7 @@ public class WorkflowOrchestrationService {
         public String getErrorMessage() { return errorMessage; }
         public List<StepExecutionResult> getStepResults() { return stepResults; }
         public LocalDateTime getStartTime() { return startTime; }
+        public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
         public LocalDateTime getEndTime() { return endTime; }
     }
 
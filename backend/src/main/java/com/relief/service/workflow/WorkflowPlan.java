@@ -0,0 +1,170 @@
+package com.relief.service.workflow;
+
+import com.relief.service.workflow.WorkflowOrchestrationService.WorkflowContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Immutable executable form of a workflow template.
+ *
+ * Compiling a template resolves its step dependency graph, reads step parameters into typed
+ * fields and turns each {@link WorkflowCondition} into a predicate with its operator and expected
+ * value decided up front, so executions do no parsing or map lookups beyond reading context
+ * variables. Plans are identified by template id and version (the template's last update) and
+ * cached by {@link WorkflowTemplateService}.
+ */
+public final class WorkflowPlan {
+
+    private final UUID templateId;
+    private final String name;
+    private final LocalDateTime version;
+    private final List<Step> steps;
+    private final WorkflowStepGraph graph;
+
+    /**
+     * Step parameters by meaning; absent values are null, or 0 for {@code waitSeconds}
+     */
+    public record Parameters(String taskType, UUID assigneeId, String assigneeRole, String recipientRole,
+                             String message, int waitSeconds) {
+        static final Parameters NONE = new Parameters(null, null, null, null, null, 0);
+    }
+
+    public record Step(String name, WorkflowStepType type, boolean required, Integer timeoutSeconds,
+                       Parameters parameters, Condition condition, Step trueStep, Step falseStep,
+                       List<Step> parallelSteps) {}
+
+    @FunctionalInterface
+    public interface Condition {
+        boolean test(WorkflowContext context);
+    }
+
+    private WorkflowPlan(UUID templateId, String name, LocalDateTime version, List<Step> steps, WorkflowStepGraph graph) {
+        this.templateId = templateId;
+        this.name = name;
+        this.version = version;
+        this.steps = steps;
+        this.graph = graph;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the template's dependencies or parameters are invalid
+     */
+    public static WorkflowPlan compile(UUID templateId, LocalDateTime version, WorkflowTemplate template) {
+        List<WorkflowStep> templateSteps = template.getSteps() != null ? template.getSteps() : List.of();
+        WorkflowStepGraph graph = WorkflowStepGraph.of(templateSteps);
+        return new WorkflowPlan(templateId, template.getName(), version, compileSteps(templateSteps), graph);
+    }
+
+    public UUID templateId() { return templateId; }
+
+    public String name() { return name; }
+
+    public LocalDateTime version() { return version; }
+
+    public List<Step> steps() { return steps; }
+
+    WorkflowStepGraph graph() { return graph; }
+
+    private static List<Step> compileSteps(List<WorkflowStep> templateSteps) {
+        List<Step> compiled = new ArrayList<>(templateSteps.size());
+        for (WorkflowStep step : templateSteps) {
+            compiled.add(compileStep(step));
+        }
+        return List.copyOf(compiled);
+    }
+
+    private static Step compileStep(WorkflowStep step) {
+        if (step == null) return null;
+        return new Step(
+            step.getName(),
+            step.getType(),
+            step.isRequired(),
+            step.getTimeoutSeconds() != null && step.getTimeoutSeconds() > 0 ? step.getTimeoutSeconds() : null,
+            compileParameters(step),
+            compileCondition(step.getCondition()),
+            compileStep(step.getTrueStep()),
+            compileStep(step.getFalseStep()),
+            step.getParallelSteps() != null ? compileSteps(step.getParallelSteps()) : List.of());
+    }
+
+    private static Parameters compileParameters(WorkflowStep step) {
+        Map<String, Object> params = step.getParameters();
+        if (params == null || params.isEmpty()) return Parameters.NONE;
+
+        String assigneeId = string(params.get("assigneeId"));
+        UUID parsedAssigneeId;
+        try {
+            parsedAssigneeId = assigneeId != null ? UUID.fromString(assigneeId) : null;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Step " + step.getName() + " has an invalid assigneeId: " + assigneeId);
+        }
+
+        Object waitSeconds = params.get("waitSeconds");
+        int parsedWaitSeconds;
+        try {
+            parsedWaitSeconds = waitSeconds instanceof Number number ? number.intValue()
+                : waitSeconds != null ? Integer.parseInt(waitSeconds.toString()) : 0;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Step " + step.getName() + " has an invalid waitSeconds: " + waitSeconds);
+        }
+
+        return new Parameters(
+            string(params.get("taskType")),
+            parsedAssigneeId,
+            string(params.get("assigneeRole")),
+            string(params.get("recipientRole")),
+            string(params.get("message")),
+            Math.max(0, parsedWaitSeconds));
+    }
+
+    /**
+     * Same semantics as the former per-execution evaluation: numeric comparisons are false unless
+     * both sides are numbers, and unknown operators never match
+     */
+    private static Condition compileCondition(WorkflowCondition condition) {
+        if (condition == null) return null;
+        String variable = condition.getVariable();
+        Object expected = condition.getExpectedValue();
+        String operator = condition.getOperator() != null ? condition.getOperator() : "";
+
+        switch (operator) {
+            case "equals":
+                return context -> Objects.equals(context.getVariable(variable), expected);
+            case "not_equals":
+                return context -> !Objects.equals(context.getVariable(variable), expected);
+            case "greater_than":
+            case "less_than": {
+                if (!(expected instanceof Number number)) return context -> false;
+                double threshold = number.doubleValue();
+                int sign = "greater_than".equals(operator) ? 1 : -1;
+                return context -> context.getVariable(variable) instanceof Number value
+                    && Integer.signum(Double.compare(value.doubleValue(), threshold)) == sign;
+            }
+            case "contains": {
+                String text = String.valueOf(expected);
+                return context -> {
+                    Object value = context.getVariable(variable);
+                    return value != null && value.toString().contains(text);
+                };
+            }
+            case "not_contains": {
+                String text = String.valueOf(expected);
+                return context -> {
+                    Object value = context.getVariable(variable);
+                    return value == null || !value.toString().contains(text);
+                };
+            }
+            default:
+                return context -> false;
+        }
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,177 @@
+package com.relief.service.workflow;
+
+import com.relief.service.workflow.WorkflowOrchestrationService.StepExecutionResult;
+import com.relief.service.workflow.WorkflowOrchestrationService.WorkflowContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * One execution of a {@link WorkflowPlan}'s steps over their {@link WorkflowStepGraph}.
+ *
+ * Each step starts once all its dependencies have finished, so independent steps run
+ * concurrently. After a required step fails no further steps are started; steps already running
+ * are allowed to finish. Steps restored from a checkpoint count as finished and are not run again.
+ *
+ * Every step runs in its own {@link WorkflowContext} scope: the run's starting variables plus
+ * those set by the step's transitive dependencies, in the order those finished. Variables set by
+ * steps running concurrently with it stay out of its scope. The run's variables, as checkpointed,
+ * are the starting ones plus every finished step's, in finish order.
+ */
+final class WorkflowRun {
+
+    record CompletedStep(int index, StepExecutionResult result) {}
+
+    private final List<WorkflowPlan.Step> steps;
+    private final WorkflowStepGraph graph;
+    private final StepExecutionResult[] results;
+    private final int[] waiting;
+    private final List<CompletedStep> completed = new ArrayList<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final WorkflowContext initial;
+    private final WorkflowContext variables;
+    private final WorkflowContext[] scopes;
+    // Position in completed of each step finished in this run, or -1
+    private final int[] finishedAt;
+
+    private BiFunction<WorkflowPlan.Step, WorkflowContext, CompletableFuture<StepExecutionResult>> launcher;
+    private Consumer<WorkflowRun> onProgress;
+    private int running;
+    private String failure;
+
+    WorkflowRun(WorkflowPlan plan, WorkflowContext context, Map<Integer, StepExecutionResult> restored) {
+        this.steps = plan.steps();
+        this.graph = plan.graph();
+        this.results = new StepExecutionResult[steps.size()];
+        this.waiting = new int[steps.size()];
+        this.initial = context;
+        this.variables = context.branch();
+        this.scopes = new WorkflowContext[steps.size()];
+        this.finishedAt = new int[steps.size()];
+        Arrays.fill(finishedAt, -1);
+        restored.forEach((index, result) -> {
+            results[index] = result;
+            completed.add(new CompletedStep(index, result));
+        });
+        for (int i = 0; i < steps.size(); i++) {
+            for (int dependency : graph.dependencies(i)) {
+                if (results[dependency] == null) waiting[i]++;
+            }
+        }
+    }
+
+    /**
+     * Start every step whose dependencies are finished
+     *
+     * @param launcher   starts a step in the given scope and completes with its result
+     * @param onProgress called under the run's lock at the start and after every finished step
+     * @return completes when no step is running and none can start
+     */
+    CompletableFuture<Void> start(BiFunction<WorkflowPlan.Step, WorkflowContext, CompletableFuture<StepExecutionResult>> launcher,
+                                  Consumer<WorkflowRun> onProgress) {
+        List<Integer> ready = new ArrayList<>();
+        synchronized (this) {
+            this.launcher = launcher;
+            this.onProgress = onProgress;
+            for (int i = 0; i < steps.size(); i++) {
+                if (results[i] == null && waiting[i] == 0) ready.add(i);
+            }
+            running = ready.size();
+            onProgress.accept(this);
+            if (running == 0) done.complete(null);
+        }
+        launch(ready);
+        return done;
+    }
+
+    /**
+     * Finished steps in the order they finished
+     */
+    synchronized List<CompletedStep> completedSteps() {
+        return new ArrayList<>(completed);
+    }
+
+    /**
+     * Starting variables plus those set by finished steps
+     */
+    synchronized Map<String, Object> variables() {
+        return Map.copyOf(variables.getVariables());
+    }
+
+    /**
+     * Why the run stopped early, or null
+     */
+    synchronized String failure() {
+        return failure;
+    }
+
+    private void launch(List<Integer> ready) {
+        for (int index : ready) {
+            WorkflowPlan.Step step = steps.get(index);
+            CompletableFuture<StepExecutionResult> future;
+            try {
+                future = launcher.apply(step, scope(index));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.completedFuture(new StepExecutionResult(step.name(), false, e.getMessage()));
+            }
+            future.whenComplete((result, error) -> finish(index, result != null
+                ? result
+                : new StepExecutionResult(step.name(), false, error != null ? error.getMessage() : "No result")));
+        }
+    }
+
+    private void finish(int index, StepExecutionResult result) {
+        List<Integer> ready = new ArrayList<>();
+        synchronized (this) {
+            results[index] = result;
+            finishedAt[index] = completed.size();
+            completed.add(new CompletedStep(index, result));
+            if (scopes[index] != null) variables.join(scopes[index]);
+            running--;
+            WorkflowPlan.Step step = steps.get(index);
+            if (!result.isSuccess() && step.required() && failure == null) {
+                failure = "Required step failed: " + step.name();
+            }
+            if (failure == null) {
+                for (int dependent : graph.dependents(index)) {
+                    if (--waiting[dependent] == 0 && results[dependent] == null) ready.add(dependent);
+                }
+            }
+            running += ready.size();
+            onProgress.accept(this);
+            if (running == 0) done.complete(null);
+        }
+        launch(ready);
+    }
+
+    /**
+     * A fresh scope for the step, seeing what its transitive dependencies set in finish order
+     */
+    private synchronized WorkflowContext scope(int index) {
+        BitSet seen = new BitSet(steps.size());
+        List<Integer> ancestors = new ArrayList<>();
+        List<Integer> stack = new ArrayList<>(List.of(index));
+        while (!stack.isEmpty()) {
+            for (int dependency : graph.dependencies(stack.remove(stack.size() - 1))) {
+                if (seen.get(dependency)) continue;
+                seen.set(dependency);
+                stack.add(dependency);
+                // Restored steps have no scope; their variables are among the starting ones
+                if (finishedAt[dependency] >= 0) ancestors.add(dependency);
+            }
+        }
+        ancestors.sort((a, b) -> Integer.compare(finishedAt[a], finishedAt[b]));
+        WorkflowContext scope = initial.branch();
+        for (int ancestor : ancestors) {
+            if (scopes[ancestor] != null) scope.inherit(scopes[ancestor]);
+        }
+        scopes[index] = scope;
+        return scope;
+    }
+}
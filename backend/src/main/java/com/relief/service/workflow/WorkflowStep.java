@@ -4,7 +4,11 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Individual workflow step definition
+ * Individual workflow step definition.
+ *
+ * {@code dependsOn} names the steps that must finish before this one starts; when it is null the
+ * step depends on the step before it, so templates without dependencies run in sequence. An empty
+ * list starts the step as soon as the workflow starts.
  */
 public class WorkflowStep {
     private String name;
@@ -15,6 +19,8 @@ public class WorkflowStep {
     private WorkflowStep trueStep;
     private WorkflowStep falseStep;
     private List<WorkflowStep> parallelSteps;
+    private List<String> dependsOn;
+    private Integer timeoutSeconds;
 
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
@@ -39,6 +45,10 @@ public class WorkflowStep {
 
     public List<WorkflowStep> getParallelSteps() { return parallelSteps; }
     public void setParallelSteps(List<WorkflowStep> parallelSteps) { this.parallelSteps = parallelSteps; }
-}
 
+    public List<String> getDependsOn() { return dependsOn; }
+    public void setDependsOn(List<String> dependsOn) { this.dependsOn = dependsOn; }
 
+    public Integer getTimeoutSeconds() { return timeoutSeconds; }
+    public void setTimeoutSeconds(Integer timeoutSeconds) { this.timeoutSeconds = timeoutSeconds; }
+}
@@ -0,0 +1,111 @@
+package com.relief.service.workflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependencies between the top-level steps of a workflow template, as step indices.
+ *
+ * A step depends on the steps named in its {@code dependsOn}, or on the step before it when that
+ * is null. Names in {@code dependsOn} must refer to exactly one step of the template and the
+ * resulting graph must be acyclic.
+ */
+final class WorkflowStepGraph {
+
+    private final int[][] dependencies;
+    private final int[][] dependents;
+
+    private WorkflowStepGraph(int[][] dependencies, int[][] dependents) {
+        this.dependencies = dependencies;
+        this.dependents = dependents;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a dependency is unknown, ambiguous or part of a cycle
+     */
+    static WorkflowStepGraph of(List<WorkflowStep> steps) {
+        int n = steps.size();
+        Map<String, Integer> byName = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            String name = steps.get(i).getName();
+            if (name != null && byName.putIfAbsent(name, i) != null) {
+                byName.put(name, -1);
+            }
+        }
+
+        int[][] dependencies = new int[n][];
+        List<List<Integer>> dependentLists = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            dependentLists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            List<String> dependsOn = steps.get(i).getDependsOn();
+            if (dependsOn == null) {
+                dependencies[i] = i == 0 ? new int[0] : new int[] {i - 1};
+            } else {
+                dependencies[i] = new int[dependsOn.size()];
+                for (int d = 0; d < dependsOn.size(); d++) {
+                    Integer dependency = byName.get(dependsOn.get(d));
+                    if (dependency == null) {
+                        throw new IllegalArgumentException("Step " + steps.get(i).getName()
+                            + " depends on unknown step " + dependsOn.get(d));
+                    }
+                    if (dependency < 0) {
+                        throw new IllegalArgumentException("Step " + steps.get(i).getName()
+                            + " depends on ambiguous step name " + dependsOn.get(d));
+                    }
+                    dependencies[i][d] = dependency;
+                }
+            }
+            for (int dependency : dependencies[i]) {
+                dependentLists.get(dependency).add(i);
+            }
+        }
+
+        int[][] dependents = new int[n][];
+        for (int i = 0; i < n; i++) {
+            dependents[i] = dependentLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        WorkflowStepGraph graph = new WorkflowStepGraph(dependencies, dependents);
+        graph.checkAcyclic(steps);
+        return graph;
+    }
+
+    int size() {
+        return dependencies.length;
+    }
+
+    int[] dependencies(int step) {
+        return dependencies[step];
+    }
+
+    int[] dependents(int step) {
+        return dependents[step];
+    }
+
+    private void checkAcyclic(List<WorkflowStep> steps) {
+        int n = dependencies.length;
+        int[] remaining = new int[n];
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            remaining[i] = dependencies[i].length;
+            if (remaining[i] == 0) queue[tail++] = i;
+        }
+        for (int head = 0; head < tail; head++) {
+            for (int dependent : dependents[queue[head]]) {
+                if (--remaining[dependent] == 0) queue[tail++] = dependent;
+            }
+        }
+        if (tail < n) {
+            for (int i = 0; i < n; i++) {
+                if (remaining[i] > 0) {
+                    throw new IllegalArgumentException("Workflow step dependencies form a cycle at step "
+                        + steps.get(i).getName());
+                }
+            }
+        }
+    }
+}
@@ -135,6 +135,22 @@ public class WorkflowTemplateConverter {
                 step.setParallelSteps(parallelSteps);
             }
             
+            Object dependsOnObj = stepData.get("dependsOn");
+            if (dependsOnObj instanceof List) {
+                List<String> dependsOn = new ArrayList<>();
+                for (Object dependency : (List<?>) dependsOnObj) {
+                    if (dependency != null) {
+                        dependsOn.add(dependency.toString());
+                    }
+                }
+                step.setDependsOn(dependsOn);
+            }
+            
+            Object timeoutObj = stepData.get("timeoutSeconds");
+            if (timeoutObj != null) {
+                step.setTimeoutSeconds(Integer.parseInt(timeoutObj.toString()));
+            }
+            
             return step;
         } catch (Exception e) {
             log.error("Failed to convert step data", e);
@@ -168,6 +184,14 @@ public class WorkflowTemplateConverter {
             stepData.put("parallelSteps", parallelStepsData);
         }
         
+        if (step.getDependsOn() != null) {
+            stepData.put("dependsOn", step.getDependsOn());
+        }
+        
+        if (step.getTimeoutSeconds() != null) {
+            stepData.put("timeoutSeconds", step.getTimeoutSeconds());
+        }
+        
         return stepData;
     }
 
@@ -2,6 +2,7 @@ package com.relief.service.workflow;
 
 import com.relief.entity.WorkflowTemplateEntity;
 import com.relief.repository.WorkflowTemplateRepository;
+import com.relief.util.TransactionHooks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
@@ -9,10 +10,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Service for managing workflow templates from database
+ * Service for managing workflow templates from database.
+ *
+ * Executions run templates as compiled {@link WorkflowPlan}s, cached by template id and version
+ * (the template's last update). Each name points at the version it last resolved to until the
+ * template is saved or deactivated, so a lookup by name costs no database read; a plan compiled
+ * from a template read before an update carries the old version and is never served for the new
+ * one. Executions hold on to the plan they started with.
  */
 @Service
 @Slf4j
@@ -23,6 +33,13 @@ public class WorkflowTemplateService {
     private final WorkflowTemplateRepository templateRepository;
     private final WorkflowTemplateConverter converter;
 
+    private record PlanKey(UUID templateId, LocalDateTime version) {}
+
+    private final Map<PlanKey, WorkflowPlan> plans = new ConcurrentHashMap<>();
+    private final Map<String, PlanKey> currentVersions = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a name is not pointed at a version read before it
+    private final AtomicLong generation = new AtomicLong();
+
     /**
      * Get workflow template by name
      */
@@ -42,6 +59,59 @@ public class WorkflowTemplateService {
         return template;
     }
 
+    /**
+     * Get the compiled plan of an active workflow template, or null if there is none
+     *
+     * @throws IllegalArgumentException if the template cannot be compiled
+     */
+    public WorkflowPlan getPlan(String name) {
+        PlanKey current = currentVersions.get(name);
+        WorkflowPlan plan = current != null ? plans.get(current) : null;
+        if (plan != null) {
+            return plan;
+        }
+
+        long loadedAt = generation.get();
+        Optional<WorkflowTemplateEntity> entity = templateRepository.findByName(name);
+        if (entity.isEmpty() || !entity.get().getIsActive()) {
+            log.warn("Template not found or inactive: {}", name);
+            return null;
+        }
+        PlanKey key = new PlanKey(entity.get().getId(), entity.get().getUpdatedAt());
+        plan = plans.get(key);
+        if (plan == null) {
+            WorkflowTemplate template = converter.toWorkflowTemplate(entity.get().getTemplateData());
+            if (template == null) {
+                return null;
+            }
+            template.setName(entity.get().getName());
+            template.setDescription(entity.get().getDescription());
+            try {
+                plan = WorkflowPlan.compile(key.templateId(), key.version(), template);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid workflow template " + name + ": " + e.getMessage(), e);
+            }
+            WorkflowPlan cached = plans.putIfAbsent(key, plan);
+            if (cached != null) {
+                plan = cached;
+            } else {
+                log.debug("Compiled workflow template {} (id {}, version {})", name, key.templateId(), key.version());
+            }
+        }
+        synchronized (currentVersions) {
+            if (generation.get() != loadedAt) {
+                // Updated meanwhile: serve this plan once, but neither cache it nor point the name at it
+                plans.remove(key, plan);
+                return plan;
+            }
+            PlanKey previous = currentVersions.put(name, key);
+            if (previous != null && !previous.equals(key)) {
+                plans.remove(previous);
+            }
+        }
+        return plan;
+    }
+
     /**
      * Get all available workflow templates
      */
@@ -82,7 +152,9 @@ public class WorkflowTemplateService {
         entity.setTemplateData(converter.toTemplateData(template));
         entity.setIsActive(true);
         
-        return templateRepository.save(entity);
+        WorkflowTemplateEntity saved = templateRepository.save(entity);
+        invalidatePlan(template.getName());
+        return saved;
     }
 
     /**
@@ -95,6 +167,26 @@ public class WorkflowTemplateService {
             entity.get().setIsActive(false);
             templateRepository.save(entity.get());
         }
+        invalidatePlan(name);
+    }
+
+    /**
+     * Drop the cached plan now and again once the surrounding transaction commits, so that plans
+     * compiled from the old template in between are not kept either
+     */
+    private void invalidatePlan(String name) {
+        evictPlan(name);
+        TransactionHooks.afterCompletion(() -> evictPlan(name));
+    }
+
+    private void evictPlan(String name) {
+        synchronized (currentVersions) {
+            generation.incrementAndGet();
+            PlanKey key = currentVersions.remove(name);
+            if (key != null) {
+                plans.remove(key);
+            }
+        }
     }
 
     // Helper methods for creating workflow steps (used for programmatic template creation via saveTemplate)
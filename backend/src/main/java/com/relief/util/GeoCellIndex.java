@@ -0,0 +1,206 @@
+package com.relief.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent in-memory point index over a uniform latitude/longitude cell grid.
+ *
+ * Each key has one position and a payload; moving a key updates its cell in place, so the index
+ * can follow live position feeds. Radius queries visit only the cells overlapping the query's
+ * bounding box and check exact great-circle distances; k-nearest queries widen the radius until
+ * enough points are found. Readers never block writers: a query running during an update sees
+ * either the old or the new position of a moved key.
+ *
+ * @param <K> key type
+ * @param <V> payload type
+ */
+public final class GeoCellIndex<K, V> {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180.0;
+
+    private final double cellDegrees;
+    private final long lonCells;
+    private final Map<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<K>> cells = new ConcurrentHashMap<>();
+
+    public record Entry<K, V>(K key, double latitude, double longitude, V value, long cell) {}
+
+    public record Neighbor<K, V>(Entry<K, V> entry, double distanceMeters) {
+        public K key() { return entry.key(); }
+
+        public V value() { return entry.value(); }
+    }
+
+    public GeoCellIndex(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 10)) {
+            throw new IllegalArgumentException("Cell size must be in (0, 10] degrees");
+        }
+        this.cellDegrees = cellDegrees;
+        this.lonCells = (long) Math.ceil(360.0 / cellDegrees);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry<K, V> get(K key) {
+        return entries.get(key);
+    }
+
+    public void put(K key, double latitude, double longitude, V value) {
+        entries.compute(key, (k, previous) -> place(k, previous, latitude, longitude, value));
+    }
+
+    /**
+     * Adds the key unless it is already indexed, so bulk loads never overwrite live updates
+     */
+    public void putIfAbsent(K key, double latitude, double longitude, V value) {
+        entries.compute(key, (k, previous) -> previous != null ? previous : place(k, null, latitude, longitude, value));
+    }
+
+    public void remove(K key) {
+        entries.computeIfPresent(key, (k, previous) -> {
+            leaveCell(k, previous.cell());
+            return null;
+        });
+    }
+
+    /**
+     * Removes every entry matching the predicate
+     *
+     * @return number of entries removed
+     */
+    public int removeIf(Predicate<Entry<K, V>> predicate) {
+        int[] removed = {0};
+        for (Entry<K, V> entry : entries.values()) {
+            if (predicate.test(entry)) {
+                entries.computeIfPresent(entry.key(), (k, current) -> {
+                    if (current != entry) return current;
+                    leaveCell(k, current.cell());
+                    removed[0]++;
+                    return null;
+                });
+            }
+        }
+        return removed[0];
+    }
+
+    /**
+     * Entries within {@code radiusMeters} of the point that match the filter, nearest first
+     */
+    public List<Neighbor<K, V>> withinRadius(double latitude, double longitude, double radiusMeters,
+                                             Predicate<Entry<K, V>> filter) {
+        List<Neighbor<K, V>> result = new ArrayList<>();
+        collect(latitude, longitude, radiusMeters, filter, result);
+        result.sort(Comparator.comparingDouble(Neighbor::distanceMeters));
+        return result;
+    }
+
+    /**
+     * Up to {@code k} entries matching the filter nearest to the point, within {@code maxMeters}
+     */
+    public List<Neighbor<K, V>> nearest(double latitude, double longitude, int k, double maxMeters,
+                                        Predicate<Entry<K, V>> filter) {
+        if (k <= 0) return List.of();
+        double radius = Math.min(maxMeters, cellDegrees * METERS_PER_DEGREE);
+        while (true) {
+            List<Neighbor<K, V>> found = withinRadius(latitude, longitude, radius, filter);
+            if (found.size() >= k || radius >= maxMeters) {
+                return found.size() > k ? new ArrayList<>(found.subList(0, k)) : found;
+            }
+            radius = Math.min(maxMeters, radius * 2);
+        }
+    }
+
+    private Entry<K, V> place(K key, Entry<K, V> previous, double latitude, double longitude, V value) {
+        long cell = cell(latitude, longitude);
+        if (previous != null && previous.cell() != cell) {
+            leaveCell(key, previous.cell());
+        }
+        if (previous == null || previous.cell() != cell) {
+            cells.compute(cell, (c, members) -> {
+                Set<K> set = members != null ? members : ConcurrentHashMap.newKeySet();
+                set.add(key);
+                return set;
+            });
+        }
+        return new Entry<>(key, latitude, longitude, value, cell);
+    }
+
+    private void leaveCell(K key, long cell) {
+        cells.computeIfPresent(cell, (c, members) -> {
+            members.remove(key);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private void collect(double latitude, double longitude, double radiusMeters,
+                         Predicate<Entry<K, V>> filter, List<Neighbor<K, V>> out) {
+        double latSpan = radiusMeters / METERS_PER_DEGREE;
+        double minLat = Math.max(-90.0, latitude - latSpan);
+        double maxLat = Math.min(90.0, latitude + latSpan);
+        double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        double lonSpan = cosLat < 1e-6 ? 180.0 : Math.min(180.0, latSpan / cosLat);
+
+        long firstRow = row(minLat);
+        long lastRow = row(maxLat);
+        long firstCol = (long) Math.floor((longitude - lonSpan + 180.0) / cellDegrees);
+        long lastCol = (long) Math.floor((longitude + lonSpan + 180.0) / cellDegrees);
+        long columns = Math.min(lonCells, lastCol - firstCol + 1);
+
+        // Scanning every entry is cheaper than probing a large number of mostly empty cells
+        if ((lastRow - firstRow + 1) * columns > Math.max(64, entries.size())) {
+            for (Entry<K, V> entry : entries.values()) {
+                accept(entry, latitude, longitude, radiusMeters, filter, out);
+            }
+            return;
+        }
+
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long c = 0; c < columns; c++) {
+                long column = Math.floorMod(firstCol + c, lonCells);
+                long cell = row * lonCells + column;
+                Set<K> members = cells.get(cell);
+                if (members == null) continue;
+                for (K key : members) {
+                    // A key caught mid-move is only reported from its current cell
+                    Entry<K, V> entry = entries.get(key);
+                    if (entry != null && entry.cell() == cell) {
+                        accept(entry, latitude, longitude, radiusMeters, filter, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private static <K, V> void accept(Entry<K, V> entry, double latitude, double longitude, double radiusMeters,
+                                      Predicate<Entry<K, V>> filter, List<Neighbor<K, V>> out) {
+        double distance = distanceMeters(latitude, longitude, entry.latitude(), entry.longitude());
+        if (distance <= radiusMeters && (filter == null || filter.test(entry))) {
+            out.add(new Neighbor<>(entry, distance));
+        }
+    }
+
+    private long cell(double latitude, double longitude) {
+        return row(latitude) * lonCells + Math.floorMod((long) Math.floor((longitude + 180.0) / cellDegrees), lonCells);
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor((Math.max(-90.0, Math.min(90.0, latitude)) + 90.0) / cellDegrees);
+    }
+
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -0,0 +1,74 @@
+package com.relief.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids keyed by double priority, backed by primitive arrays so graph
+ * searches avoid boxing and per-entry allocation. Decrease-key is left to the caller: push the
+ * id again with the lower key and skip stale entries when they are polled.
+ */
+public final class IntDoubleMinHeap {
+
+    private int[] ids;
+    private double[] keys;
+    private int size;
+
+    public IntDoubleMinHeap() {
+        this(1024);
+    }
+
+    public IntDoubleMinHeap(int initialCapacity) {
+        ids = new int[Math.max(16, initialCapacity)];
+        keys = new double[ids.length];
+    }
+
+    public void clear() { size = 0; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public int size() { return size; }
+
+    public double peekKey() { return keys[0]; }
+
+    public int peek() { return ids[0]; }
+
+    public void add(int id, double key) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            ids[i] = ids[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        ids[i] = id;
+        keys[i] = key;
+    }
+
+    /**
+     * Remove and return the id with the smallest key.
+     */
+    public int poll() {
+        int top = ids[0];
+        int lastId = ids[--size];
+        double lastKey = keys[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child]) child = right;
+            if (lastKey <= keys[child]) break;
+            ids[i] = ids[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        ids[i] = lastId;
+        keys[i] = lastKey;
+        return top;
+    }
+}
@@ -0,0 +1,578 @@
+package com.relief.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index for ranked full-text search: BM25 scoring, typo-tolerant and prefix
+ * term matching, one facet value per document and highlight snippets.
+ *
+ * Text is split into words of letters and digits, lower-cased and stripped of accents. Each query
+ * word matches its exact term, terms within one edit (two for words of eight letters or more,
+ * transpositions counting as one) and, for the last word, terms it is a prefix of, so a search
+ * box can query as the user types. Near terms score less than the exact one, and a document
+ * scores each query word by its best matching term. Near terms are found by scanning the terms
+ * of similar length, skipping those whose letter sets differ by more than the edits allow, so the
+ * edit distance is computed for few of them.
+ *
+ * Updates are incremental. A removed or replaced document is only marked dead and skipped by
+ * searches; its postings are purged once dead postings reach a quarter of all postings. Like
+ * Lucene, term frequencies count dead documents until then. Searches share a read lock and
+ * writes take the write lock.
+ *
+ * @param <K> document key type
+ */
+public final class InvertedIndex<K> {
+
+    /**
+     * A matching document and its score
+     */
+    public record Hit<K>(K key, double score) {}
+
+    /**
+     * The top hits, the number of matching documents after the facet filter, the facet counts
+     * of the matching documents before it, and the index terms the query matched, for
+     * {@link #highlight(String, Set, int)}
+     */
+    public record Result<K>(List<Hit<K>> hits, int totalHits, Map<String, Integer> facets, Set<String> terms) {}
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_WEIGHT = 0.8;
+    private static final double[] EDIT_WEIGHTS = {1.0, 0.6, 0.4};
+    private static final int MIN_PREFIX_LENGTH = 3;
+    /** Most frequent near terms tried per query word */
+    private static final int MAX_EXPANSIONS = 50;
+    private static final int MIN_DEAD_POSTINGS_TO_PURGE = 4096;
+
+    private static final class Postings {
+        int[] docs = new int[2];
+        int[] freqs = new int[2];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size++] = freq;
+        }
+    }
+
+    /** Terms of one length with their letter masks, scanned for near terms */
+    private static final class TermBucket {
+        String[] terms = new String[16];
+        long[] masks = new long[16];
+        int size;
+
+        void add(String term) {
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, size * 2);
+                masks = Arrays.copyOf(masks, size * 2);
+            }
+            terms[size] = term;
+            masks[size++] = letterMask(term);
+        }
+    }
+
+    private record Expansion(String term, Postings postings, double weight) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<K, Integer> docIds = new HashMap<>();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final List<TermBucket> termsByLength = new ArrayList<>();
+    private Object[] keys = new Object[1024];
+    /** Facet of each document as an index into facetNames, -1 for none */
+    private int[] facets = new int[1024];
+    private final Map<String, Integer> facetIds = new HashMap<>();
+    private final List<String> facetNames = new ArrayList<>();
+    private int[] lengths = new int[1024];
+    private int[] termCounts = new int[1024];
+    /**
+     * 64-bit hash of the text each live document was indexed from, to tell an unchanged put from
+     * an edit without keeping the text. An edit that kept the hash would go unindexed, which for
+     * the texts of one document is as likely as a random 64-bit collision.
+     */
+    private long[] textHashes = new long[1024];
+    private final BitSet live = new BitSet();
+    private final BitSet dead = new BitSet();
+    private int[] freeDocs = new int[64];
+    private int freeCount;
+    private int docLimit;
+    private int liveCount;
+    private long totalLength;
+    private long totalPostings;
+    private long deadPostings;
+
+    /**
+     * Index the document's text under the key, replacing what was indexed for it before. A no-op
+     * when text and facet are unchanged.
+     */
+    public void put(K key, String text, String facet) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int[] length = new int[1];
+        tokenize(text, (term, start, end) -> {
+            frequencies.merge(term, 1, Integer::sum);
+            length[0]++;
+        });
+        long textHash = textHash(text);
+        lock.writeLock().lock();
+        try {
+            Integer existing = docIds.get(key);
+            if (existing != null) {
+                if (textHashes[existing] == textHash && Objects.equals(facetName(existing), facet)) return;
+                kill(existing);
+            }
+            int doc = allocate();
+            keys[doc] = key;
+            facets[doc] = facet == null ? -1 : facetIds.computeIfAbsent(facet, name -> {
+                facetNames.add(name);
+                return facetNames.size() - 1;
+            });
+            lengths[doc] = length[0];
+            termCounts[doc] = frequencies.size();
+            textHashes[doc] = textHash;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings list = postings.get(entry.getKey());
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(entry.getKey(), list);
+                    bucket(entry.getKey().length()).add(entry.getKey());
+                }
+                list.add(doc, entry.getValue());
+            }
+            totalPostings += frequencies.size();
+            live.set(doc);
+            liveCount++;
+            totalLength += length[0];
+            docIds.put(key, doc);
+            purgeIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docIds.remove(key);
+            if (doc != null) {
+                kill(doc);
+                purgeIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(K key) {
+        lock.readLock().lock();
+        try {
+            return docIds.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The highest scoring documents for the query, best first
+     *
+     * @param facet only return documents with this facet value; null for all
+     */
+    public Result<K> search(String query, String facet, int limit) {
+        return search(query, facet, null, limit);
+    }
+
+    /**
+     * As {@link #search(String, String, int)}, also dropping documents whose key fails the
+     * filter, before facets are counted. The filter runs under the read lock and must not write
+     * to the index.
+     */
+    @SuppressWarnings("unchecked")
+    public Result<K> search(String query, String facet, Predicate<K> filter, int limit) {
+        List<String> words = new ArrayList<>(terms(query));
+        if (words.isEmpty() || limit <= 0) return new Result<>(List.of(), 0, Map.of(), Set.of());
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) return new Result<>(List.of(), 0, Map.of(), Set.of());
+            double averageLength = Math.max(1.0, (double) totalLength / liveCount);
+            float[] scores = new float[docLimit];
+            float[] wordScores = new float[docLimit];
+            int[] matched = new int[64];
+            int matchedCount = 0;
+            int[] touched = new int[64];
+            Set<String> matchedTerms = new LinkedHashSet<>();
+
+            for (int w = 0; w < words.size(); w++) {
+                int touchedCount = 0;
+                for (Expansion expansion : expand(words.get(w), w == words.size() - 1)) {
+                    Postings list = expansion.postings();
+                    double idf = Math.log(1 + (liveCount - list.size + 0.5) / (list.size + 0.5));
+                    double weight = expansion.weight() * Math.max(idf, 0.01);
+                    boolean any = false;
+                    for (int i = 0; i < list.size; i++) {
+                        int doc = list.docs[i];
+                        if (!live.get(doc)) continue;
+                        any = true;
+                        int freq = list.freqs[i];
+                        float score = (float) (weight * freq * (K1 + 1)
+                            / (freq + K1 * (1 - B + B * lengths[doc] / averageLength)));
+                        if (score > wordScores[doc]) {
+                            if (wordScores[doc] == 0) {
+                                if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                                touched[touchedCount++] = doc;
+                            }
+                            wordScores[doc] = score;
+                        }
+                    }
+                    if (any) matchedTerms.add(expansion.term());
+                }
+                for (int i = 0; i < touchedCount; i++) {
+                    int doc = touched[i];
+                    if (scores[doc] == 0) {
+                        if (matchedCount == matched.length) matched = Arrays.copyOf(matched, matchedCount * 2);
+                        matched[matchedCount++] = doc;
+                    }
+                    scores[doc] += wordScores[doc];
+                    wordScores[doc] = 0;
+                }
+            }
+
+            int[] facetCounts = new int[facetNames.size()];
+            int wantedFacet = facet == null ? -1 : facetIds.getOrDefault(facet, -2);
+            IntDoubleMinHeap top = new IntDoubleMinHeap(limit + 1);
+            int totalHits = 0;
+            for (int i = 0; i < matchedCount; i++) {
+                int doc = matched[i];
+                if (filter != null && !filter.test((K) keys[doc])) continue;
+                if (facets[doc] >= 0) facetCounts[facets[doc]]++;
+                if (wantedFacet != -1 && facets[doc] != wantedFacet) continue;
+                totalHits++;
+                if (top.size() < limit || scores[doc] > top.peekKey()) {
+                    top.add(doc, scores[doc]);
+                    if (top.size() > limit) top.poll();
+                }
+            }
+            Hit<K>[] hits = new Hit[top.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                double score = top.peekKey();
+                int doc = top.poll();
+                hits[i] = new Hit<>((K) keys[doc], score);
+            }
+            return new Result<>(List.of(hits), totalHits, sortedByCount(facetCounts), matchedTerms);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A fragment of about {@code maxChars} of the text around the most matched terms, with the
+     * matches wrapped in {@code <em>} and the rest HTML-escaped
+     */
+    public static String highlight(String text, Set<String> terms, int maxChars) {
+        if (text == null || text.isEmpty()) return "";
+        List<int[]> matches = new ArrayList<>();
+        tokenize(text, (term, start, end) -> {
+            if (terms.contains(term)) matches.add(new int[]{start, end});
+        });
+
+        // Start at the match that begins the densest window of matches
+        int from = 0;
+        int best = 0;
+        for (int i = 0, j = 0; i < matches.size(); i++) {
+            while (j < matches.size() && matches.get(j)[1] - matches.get(i)[0] <= maxChars) j++;
+            if (j - i > best) {
+                best = j - i;
+                from = matches.get(i)[0];
+            }
+        }
+        if (best > 0) {
+            // Lead in with a little context, starting at a word boundary
+            int lead = Math.max(0, from - maxChars / 5);
+            while (lead > 0 && lead < from && Character.isLetterOrDigit(text.charAt(lead - 1))) lead++;
+            from = lead;
+        }
+        int to = Math.min(text.length(), from + maxChars);
+        while (to < text.length() && to > from && Character.isLetterOrDigit(text.charAt(to))) to--;
+        if (to <= from) to = Math.min(text.length(), from + maxChars);
+
+        StringBuilder snippet = new StringBuilder(to - from + 32);
+        if (from > 0) snippet.append("...");
+        int at = from;
+        for (int[] match : matches) {
+            if (match[0] < from || match[1] > to) continue;
+            escape(text, at, match[0], snippet);
+            snippet.append("<em>");
+            escape(text, match[0], match[1], snippet);
+            snippet.append("</em>");
+            at = match[1];
+        }
+        escape(text, at, to, snippet);
+        if (to < text.length()) snippet.append("...");
+        return snippet.toString();
+    }
+
+    /**
+     * Distinct index terms of a text, in order of first occurrence
+     */
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(text, (term, start, end) -> terms.add(term));
+        return terms;
+    }
+
+    @FunctionalInterface
+    private interface TokenConsumer {
+        void accept(String term, int start, int end);
+    }
+
+    private static void tokenize(String text, TokenConsumer consumer) {
+        if (text == null) return;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            int start = i;
+            boolean ascii = true;
+            while (i < length && (Character.isLetterOrDigit(text.charAt(i)) || Character.getType(text.charAt(i)) == Character.NON_SPACING_MARK)) {
+                if (text.charAt(i) > 127) ascii = false;
+                i++;
+            }
+            if (i > start) consumer.accept(fold(text.substring(start, i), ascii), start, i);
+        }
+    }
+
+    private static String fold(String word, boolean ascii) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        if (ascii) return lower;
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) folded.append(c);
+        }
+        return folded.toString();
+    }
+
+    /**
+     * The exact term, near terms and, for the last query word, terms it prefixes; the most
+     * frequent near and prefix terms only
+     */
+    private List<Expansion> expand(String word, boolean prefix) {
+        List<Expansion> expansions = new ArrayList<>();
+        Postings exact = postings.get(word);
+        if (exact != null) expansions.add(new Expansion(word, exact, EDIT_WEIGHTS[0]));
+
+        PriorityQueue<Expansion> near = new PriorityQueue<>(Comparator.comparingInt(e -> e.postings().size));
+        if (prefix && word.length() >= MIN_PREFIX_LENGTH) {
+            NavigableMap<String, Postings> prefixed = postings.subMap(word, false, word + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Postings> entry : prefixed.entrySet()) {
+                offer(near, new Expansion(entry.getKey(), entry.getValue(), PREFIX_WEIGHT));
+            }
+        }
+        int maxEdits = word.length() >= 8 ? 2 : word.length() >= 4 ? 1 : 0;
+        if (maxEdits > 0) {
+            long mask = letterMask(word);
+            int from = Math.max(1, word.length() - maxEdits);
+            int to = Math.min(termsByLength.size() - 1, word.length() + maxEdits);
+            for (int length = from; length <= to; length++) {
+                TermBucket bucket = termsByLength.get(length);
+                for (int i = 0; i < bucket.size; i++) {
+                    // Each edit changes at most two letters of the set
+                    if (Long.bitCount(bucket.masks[i] ^ mask) > 2 * maxEdits) continue;
+                    String term = bucket.terms[i];
+                    int edits = editDistance(word, term, maxEdits);
+                    if (edits > 0 && edits <= maxEdits && !(prefix && term.startsWith(word))) {
+                        offer(near, new Expansion(term, postings.get(term), EDIT_WEIGHTS[edits]));
+                    }
+                }
+            }
+        }
+        expansions.addAll(near);
+        return expansions;
+    }
+
+    private static void offer(PriorityQueue<Expansion> near, Expansion expansion) {
+        near.add(expansion);
+        if (near.size() > MAX_EXPANSIONS) near.poll();
+    }
+
+    /**
+     * Optimal string alignment distance, or {@code max + 1} once it must exceed {@code max}
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) return max + 1;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 64-bit mixer; 0 for no text
+     */
+    private static long textHash(String text) {
+        if (text == null) return 0;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long letterMask(String term) {
+        long mask = 0;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            int bit = c >= 'a' && c <= 'z' ? c - 'a' : c >= '0' && c <= '9' ? 26 + c - '0' : 36 + c % 28;
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    private Map<String, Integer> sortedByCount(int[] counts) {
+        Map<String, Integer> unsorted = new HashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) unsorted.put(facetNames.get(id), counts[id]);
+        }
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        unsorted.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private static void escape(String text, int from, int to, StringBuilder out) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private TermBucket bucket(int length) {
+        while (termsByLength.size() <= length) termsByLength.add(new TermBucket());
+        return termsByLength.get(length);
+    }
+
+    private String facetName(int doc) {
+        return facets[doc] < 0 ? null : facetNames.get(facets[doc]);
+    }
+
+    private void kill(int doc) {
+        live.clear(doc);
+        dead.set(doc);
+        liveCount--;
+        totalLength -= lengths[doc];
+        deadPostings += termCounts[doc];
+        keys[doc] = null;
+        facets[doc] = -1;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) return freeDocs[--freeCount];
+        int doc = docLimit++;
+        if (doc == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            facets = Arrays.copyOf(facets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            termCounts = Arrays.copyOf(termCounts, capacity);
+            textHashes = Arrays.copyOf(textHashes, capacity);
+        }
+        return doc;
+    }
+
+    /**
+     * Drop dead documents from the postings once they are a quarter of them, then reuse their ids
+     */
+    private void purgeIfNeeded() {
+        if (deadPostings < MIN_DEAD_POSTINGS_TO_PURGE || deadPostings * 4 < totalPostings) return;
+        termsByLength.clear();
+        var iterator = postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Postings> entry = iterator.next();
+            Postings list = entry.getValue();
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                if (dead.get(list.docs[i])) continue;
+                list.docs[kept] = list.docs[i];
+                list.freqs[kept++] = list.freqs[i];
+            }
+            list.size = kept;
+            if (kept == 0) {
+                iterator.remove();
+            } else {
+                if (kept < list.docs.length / 4) {
+                    list.docs = Arrays.copyOf(list.docs, Math.max(2, kept));
+                    list.freqs = Arrays.copyOf(list.freqs, Math.max(2, kept));
+                }
+                bucket(entry.getKey().length()).add(entry.getKey());
+            }
+        }
+        for (int doc = dead.nextSetBit(0); doc >= 0; doc = dead.nextSetBit(doc + 1)) {
+            if (freeCount == freeDocs.length) freeDocs = Arrays.copyOf(freeDocs, freeCount * 2);
+            freeDocs[freeCount++] = doc;
+        }
+        dead.clear();
+        totalPostings -= deadPostings;
+        deadPostings = 0;
+    }
+}
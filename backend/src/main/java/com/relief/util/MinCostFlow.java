@@ -0,0 +1,193 @@
+package com.relief.util;
+
+import java.util.Arrays;
+
+/**
+ * Min-cost flow by successive shortest paths with node potentials, over primitive edge arrays.
+ *
+ * Edge costs must be non-negative. Each augmentation runs Dijkstra on reduced costs and stops as
+ * soon as the sink is settled, so a solve takes at most O(F * E log V) for F augmenting paths;
+ * transportation problems need about one path per source or sink they saturate, plus re-routings.
+ * Costs are integral (seconds, metres) so reduced costs stay exact.
+ *
+ * Edges are added first; the first solve lays them out contiguously per node, with each residual
+ * twin next to the other edges of its tail, and no edges can be added after it.
+ */
+public final class MinCostFlow {
+
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final int nodes;
+    // By edge id while adding; an edge and its residual twin are ids 2k and 2k + 1
+    private int[] edgeFrom = new int[16];
+    private int[] edgeTo = new int[16];
+    private long[] edgeCapacity = new long[16];
+    private long[] edgeCost = new long[16];
+    private int edges;
+
+    // By position once laid out: the edges leaving node u are [firstArc[u], firstArc[u + 1])
+    private int[] position;
+    private int[] firstArc;
+    private int[] arcTo;
+    private int[] arcTwin;
+    private long[] arcCapacity;
+    private long[] arcCost;
+
+    private final long[] potential;
+    private final long[] distance;
+    private final int[] parentArc;
+    private final int[] touched;
+    private int touchedCount;
+    private final IntDoubleMinHeap heap;
+
+    public record Result(long flow, long cost) {}
+
+    public MinCostFlow(int nodes) {
+        this.nodes = nodes;
+        this.potential = new long[nodes];
+        this.distance = new long[nodes];
+        Arrays.fill(distance, INF);
+        this.parentArc = new int[nodes];
+        this.touched = new int[nodes];
+        this.heap = new IntDoubleMinHeap(nodes);
+    }
+
+    /**
+     * Add a directed edge and its residual twin
+     *
+     * @return the edge id, for reading its flow after solving
+     */
+    public int addEdge(int from, int to, long capacity, long cost) {
+        if (cost < 0) throw new IllegalArgumentException("Edge costs must be non-negative");
+        if (position != null) throw new IllegalStateException("Edges must be added before solving");
+        if (edges + 2 > edgeTo.length) {
+            int grown = edgeTo.length * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, grown);
+            edgeTo = Arrays.copyOf(edgeTo, grown);
+            edgeCapacity = Arrays.copyOf(edgeCapacity, grown);
+            edgeCost = Arrays.copyOf(edgeCost, grown);
+        }
+        int id = edges;
+        link(from, to, capacity, cost);
+        link(to, from, 0, -cost);
+        return id;
+    }
+
+    /**
+     * Flow on an edge returned by {@link #addEdge}
+     */
+    public long flow(int edge) {
+        return position == null ? 0 : arcCapacity[position[edge ^ 1]];
+    }
+
+    /**
+     * Send up to {@code maxFlow} more units from source to sink at minimum total cost.
+     *
+     * Node potentials carry over between calls, so units can be added one source at a time, as in
+     * an assignment that routes each task in turn: every call leaves the flow so far at minimum
+     * cost among flows out of the sources routed so far. That is the minimum overall as long as
+     * every source can always reach the sink, e.g. through a costly overflow arc. Each search only
+     * resets the nodes it reached.
+     *
+     * @return the flow sent and its cost in this call
+     */
+    public Result solve(int source, int sink, long maxFlow) {
+        if (position == null) layOut();
+        long flow = 0;
+        long totalCost = 0;
+
+        while (flow < maxFlow) {
+            distance[source] = 0;
+            touched[touchedCount++] = source;
+            heap.clear();
+            heap.add(source, 0);
+            while (!heap.isEmpty()) {
+                long key = (long) heap.peekKey();
+                int u = heap.poll();
+                if (key > distance[u]) continue;
+                // Nodes not yet settled are at least as far as the sink, which the cap below covers
+                if (u == sink) break;
+                long base = distance[u] + potential[u];
+                for (int a = firstArc[u], end = firstArc[u + 1]; a < end; a++) {
+                    if (arcCapacity[a] == 0) continue;
+                    int v = arcTo[a];
+                    long candidate = base + arcCost[a] - potential[v];
+                    if (candidate < distance[v]) {
+                        if (distance[v] == INF) touched[touchedCount++] = v;
+                        distance[v] = candidate;
+                        parentArc[v] = a;
+                        heap.add(v, candidate);
+                    }
+                }
+            }
+            long reached = distance[sink];
+            long push = 0;
+            if (reached != INF) {
+                // Adding min(distance, reached) to every potential keeps reduced costs non-negative;
+                // shifted down by reached, only the nodes closer than the sink change
+                for (int i = 0; i < touchedCount; i++) {
+                    int v = touched[i];
+                    if (distance[v] < reached) potential[v] += distance[v] - reached;
+                }
+                push = maxFlow - flow;
+                for (int v = sink; v != source; v = arcTo[arcTwin[parentArc[v]]]) {
+                    push = Math.min(push, arcCapacity[parentArc[v]]);
+                }
+                for (int v = sink; v != source; v = arcTo[arcTwin[parentArc[v]]]) {
+                    int a = parentArc[v];
+                    arcCapacity[a] -= push;
+                    arcCapacity[arcTwin[a]] += push;
+                    totalCost += push * arcCost[a];
+                }
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                distance[touched[i]] = INF;
+            }
+            touchedCount = 0;
+            if (reached == INF) break;
+            flow += push;
+        }
+        return new Result(flow, totalCost);
+    }
+
+    private void link(int from, int to, long capacity, long cost) {
+        edgeFrom[edges] = from;
+        edgeTo[edges] = to;
+        edgeCapacity[edges] = capacity;
+        edgeCost[edges] = cost;
+        edges++;
+    }
+
+    /**
+     * Group the edges by tail so each search scans one contiguous run per node
+     */
+    private void layOut() {
+        firstArc = new int[nodes + 1];
+        for (int e = 0; e < edges; e++) {
+            firstArc[edgeFrom[e] + 1]++;
+        }
+        for (int u = 0; u < nodes; u++) {
+            firstArc[u + 1] += firstArc[u];
+        }
+        int[] next = Arrays.copyOf(firstArc, nodes);
+        position = new int[edges];
+        arcTo = new int[edges];
+        arcCapacity = new long[edges];
+        arcCost = new long[edges];
+        for (int e = 0; e < edges; e++) {
+            int a = next[edgeFrom[e]]++;
+            position[e] = a;
+            arcTo[a] = edgeTo[e];
+            arcCapacity[a] = edgeCapacity[e];
+            arcCost[a] = edgeCost[e];
+        }
+        arcTwin = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            arcTwin[position[e]] = position[e ^ 1];
+        }
+        edgeFrom = null;
+        edgeTo = null;
+        edgeCapacity = null;
+        edgeCost = null;
+    }
+}
@@ -0,0 +1,257 @@
+package com.relief.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent locality-sensitive hashing index of texts by MinHash signature, for finding
+ * near-duplicates without comparing against every indexed text.
+ *
+ * A text's signature holds, for each of {@code bands * rows} hash functions, the minimum hash over
+ * its character shingles; two signatures agree at a position with probability equal to the
+ * Jaccard similarity of the shingle sets. Signatures are split into bands and each band is a
+ * bucket key, so two texts of similarity {@code s} share at least one bucket with probability
+ * {@code 1 - (1 - s^rows)^bands}: few rows per band favour recall, more favour precision.
+ *
+ * Buckets are further keyed by a caller-defined partition (a map cell and time slot, say), so a
+ * lookup only meets entries of the partitions it asks for. Like {@link GeoCellIndex}, readers
+ * never block writers.
+ *
+ * Every entry sits in one bucket per band, and most buckets hold a single entry, so a bucket is
+ * stored as that key alone or as a small copy-on-write array of keys rather than a set.
+ *
+ * @param <K> key type
+ * @param <V> payload type
+ */
+public final class MinHashLshIndex<K, V> {
+
+    private final int bands;
+    private final int rows;
+    private final int shingleLength;
+    private final long[] multipliers;
+    private final long[] increments;
+    private final Map<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    /** Bucket to its key, or to an {@code Object[]} of keys when it holds several */
+    private final Map<Long, Object> buckets = new ConcurrentHashMap<>();
+
+    public record Entry<K, V>(K key, long partition, int[] signature, V value) {}
+
+    public MinHashLshIndex(int bands, int rows, int shingleLength, long seed) {
+        if (bands < 1 || rows < 1 || shingleLength < 1) {
+            throw new IllegalArgumentException("Bands, rows and shingle length must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.shingleLength = shingleLength;
+        Random random = new Random(seed);
+        multipliers = new long[bands * rows];
+        increments = new long[bands * rows];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry<K, V> get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * MinHash signature of the text's character shingles, or null if the text is empty. Texts
+     * shorter than one shingle are a single shingle.
+     */
+    public int[] signature(CharSequence text) {
+        int length = text.length();
+        if (length == 0) return null;
+        int[] signature = new int[multipliers.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int last = Math.max(0, length - shingleLength);
+        for (int start = 0; start <= last; start++) {
+            long shingle = 0;
+            for (int i = start, end = Math.min(length, start + shingleLength); i < end; i++) {
+                shingle = shingle * 31 + text.charAt(i);
+            }
+            shingle = mix(shingle);
+            for (int h = 0; h < signature.length; h++) {
+                // Multiply-shift hashing: the high bits of an odd multiplier's product are well mixed
+                int value = (int) ((multipliers[h] * shingle + increments[h]) >>> 33);
+                if (value < signature[h]) signature[h] = value;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Fraction of signature positions that agree, an estimate of the shingle Jaccard similarity
+     */
+    public static double estimateSimilarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (double) equal / a.length;
+    }
+
+    public void put(K key, long partition, int[] signature, V value) {
+        if (signature.length != multipliers.length) {
+            throw new IllegalArgumentException("Signature has " + signature.length + " values, expected " + multipliers.length);
+        }
+        entries.compute(key, (k, previous) -> {
+            Entry<K, V> entry = new Entry<>(k, partition, signature, value);
+            for (int band = 0; band < bands; band++) {
+                long bucket = bucket(partition, signature, band);
+                if (previous != null && bucket(previous.partition(), previous.signature(), band) == bucket) continue;
+                if (previous != null) leaveBucket(k, bucket(previous.partition(), previous.signature(), band));
+                buckets.merge(bucket, k, MinHashLshIndex::withKey);
+            }
+            return entry;
+        });
+    }
+
+    public void remove(K key) {
+        entries.computeIfPresent(key, (k, previous) -> {
+            leaveBuckets(k, previous);
+            return null;
+        });
+    }
+
+    /**
+     * Removes every entry matching the predicate
+     *
+     * @return number of entries removed
+     */
+    public int removeIf(Predicate<Entry<K, V>> predicate) {
+        int[] removed = {0};
+        for (Entry<K, V> entry : entries.values()) {
+            if (predicate.test(entry)) {
+                entries.computeIfPresent(entry.key(), (k, current) -> {
+                    if (current != entry) return current;
+                    leaveBuckets(k, current);
+                    removed[0]++;
+                    return null;
+                });
+            }
+        }
+        return removed[0];
+    }
+
+    /**
+     * Entries in the given partitions sharing at least one band with the signature and matching
+     * the filter, in no particular order
+     */
+    public List<Entry<K, V>> candidates(long[] partitions, int[] signature, Predicate<Entry<K, V>> filter) {
+        List<Entry<K, V>> result = new ArrayList<>();
+        Set<K> seen = new HashSet<>();
+        for (long partition : partitions) {
+            for (int band = 0; band < bands; band++) {
+                Object members = buckets.get(bucket(partition, signature, band));
+                if (members == null) continue;
+                if (members instanceof Object[] keys) {
+                    for (Object key : keys) {
+                        addCandidate(key, partition, signature, filter, seen, result);
+                    }
+                } else {
+                    addCandidate(members, partition, signature, filter, seen, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addCandidate(Object member, long partition, int[] signature, Predicate<Entry<K, V>> filter,
+                              Set<K> seen, List<Entry<K, V>> result) {
+        @SuppressWarnings("unchecked")
+        K key = (K) member;
+        if (!seen.add(key)) return;
+        Entry<K, V> entry = entries.get(key);
+        // Bucket keys are hashes: confirm the partition and one band really match
+        if (entry != null && entry.partition() == partition && sharesBand(entry.signature(), signature)
+            && (filter == null || filter.test(entry))) {
+            result.add(entry);
+        }
+    }
+
+    private boolean sharesBand(int[] a, int[] b) {
+        for (int band = 0; band < bands; band++) {
+            int from = band * rows;
+            boolean equal = true;
+            for (int i = from; i < from + rows && equal; i++) {
+                equal = a[i] == b[i];
+            }
+            if (equal) return true;
+        }
+        return false;
+    }
+
+    private long bucket(long partition, int[] signature, int band) {
+        long hash = mix(partition) + band;
+        for (int i = band * rows, end = i + rows; i < end; i++) {
+            hash = mix(hash ^ signature[i]);
+        }
+        return hash;
+    }
+
+    private void leaveBuckets(K key, Entry<K, V> entry) {
+        for (int band = 0; band < bands; band++) {
+            leaveBucket(key, bucket(entry.partition(), entry.signature(), band));
+        }
+    }
+
+    private void leaveBucket(K key, long bucket) {
+        buckets.computeIfPresent(bucket, (b, members) -> withoutKey(members, key));
+    }
+
+    private static Object withKey(Object members, Object key) {
+        if (members instanceof Object[] keys) {
+            for (Object member : keys) {
+                if (member.equals(key)) return members;
+            }
+            Object[] grown = Arrays.copyOf(keys, keys.length + 1);
+            grown[keys.length] = key;
+            return grown;
+        }
+        return members.equals(key) ? members : new Object[]{members, key};
+    }
+
+    /**
+     * The bucket without the key, or null once it is empty
+     */
+    private static Object withoutKey(Object members, Object key) {
+        if (!(members instanceof Object[] keys)) {
+            return members.equals(key) ? null : members;
+        }
+        int at = -1;
+        for (int i = 0; i < keys.length && at < 0; i++) {
+            if (keys[i].equals(key)) at = i;
+        }
+        if (at < 0) return members;
+        if (keys.length == 2) return keys[1 - at];
+        Object[] shrunk = new Object[keys.length - 1];
+        System.arraycopy(keys, 0, shrunk, 0, at);
+        System.arraycopy(keys, at + 1, shrunk, at, keys.length - at - 1);
+        return shrunk;
+    }
+
+    /**
+     * 64-bit finalizer from MurmurHash3
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
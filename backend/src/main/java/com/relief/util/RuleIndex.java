@@ -0,0 +1,150 @@
+package com.relief.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Immutable decision table over request-matching rules.
+ *
+ * Rules are compiled once into bit masks keyed by their discriminating attributes: one mask per
+ * request type and per status (plus the masks of rules accepting any type or status), one per
+ * severity band between distinct thresholds, and one of rules that do not need a location.
+ * Matching a request is two hash lookups, a binary search over the bands and an AND of a few
+ * machine words per 64 rules; only rules whose bit survives are returned, in compile order.
+ *
+ * Rule sets are swapped by compiling a new index, so readers never see a partially updated table.
+ *
+ * @param <R> rule type
+ */
+public final class RuleIndex<R> {
+
+    /**
+     * Attributes a rule matches on. Null type or status sets accept any value.
+     */
+    public record Criteria(Set<String> types, Set<String> statuses, int minSeverity, boolean locationRequired) {}
+
+    private final List<R> rules;
+    private final int words;
+    private final Map<String, long[]> byType = new HashMap<>();
+    private final long[] anyType;
+    private final Map<String, long[]> byStatus = new HashMap<>();
+    private final long[] anyStatus;
+    private final int[] bandThresholds;
+    private final long[][] bandMasks;
+    private final long[] locationFree;
+    private final long[] all;
+
+    private RuleIndex(List<R> rules, Function<R, Criteria> criteria) {
+        this.rules = List.copyOf(rules);
+        this.words = (rules.size() + 63) >>> 6;
+        this.anyType = new long[words];
+        this.anyStatus = new long[words];
+        this.locationFree = new long[words];
+        this.all = new long[words];
+
+        Criteria[] compiled = new Criteria[rules.size()];
+        TreeSet<Integer> thresholds = new TreeSet<>();
+        for (int i = 0; i < compiled.length; i++) {
+            Criteria c = criteria.apply(rules.get(i));
+            compiled[i] = c;
+            thresholds.add(c.minSeverity());
+            set(all, i);
+            if (!c.locationRequired()) set(locationFree, i);
+            if (c.types() == null) set(anyType, i);
+            else for (String type : c.types()) set(byType.computeIfAbsent(type, k -> new long[words]), i);
+            if (c.statuses() == null) set(anyStatus, i);
+            else for (String status : c.statuses()) set(byStatus.computeIfAbsent(status, k -> new long[words]), i);
+        }
+        // Rules with a type or status set also hold the wildcard rules, so a lookup is one mask
+        byType.values().forEach(mask -> or(mask, anyType));
+        byStatus.values().forEach(mask -> or(mask, anyStatus));
+
+        // Band b covers severities in [bandThresholds[b], bandThresholds[b + 1])
+        this.bandThresholds = thresholds.stream().mapToInt(Integer::intValue).toArray();
+        this.bandMasks = new long[bandThresholds.length][words];
+        for (int i = 0; i < compiled.length; i++) {
+            int first = Arrays.binarySearch(bandThresholds, compiled[i].minSeverity());
+            for (int b = first; b < bandThresholds.length; b++) {
+                set(bandMasks[b], i);
+            }
+        }
+    }
+
+    /**
+     * Compile rules in evaluation order
+     */
+    public static <R> RuleIndex<R> compile(List<R> rules, Function<R, Criteria> criteria) {
+        return new RuleIndex<>(rules, criteria);
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    public List<R> rules() {
+        return rules;
+    }
+
+    /**
+     * All matching rules in compile order. A null severity matches no rule with a positive threshold.
+     */
+    public List<R> matches(String type, String status, Integer severity, boolean hasLocation) {
+        long[] band = band(severity);
+        if (band == null) return new ArrayList<>();
+        long[] types = type == null ? anyType : byType.getOrDefault(type, anyType);
+        long[] statuses = status == null ? anyStatus : byStatus.getOrDefault(status, anyStatus);
+        long[] location = hasLocation ? all : locationFree;
+
+        List<R> result = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            long bits = types[w] & statuses[w] & band[w] & location[w];
+            while (bits != 0) {
+                result.add(rules.get((w << 6) + Long.numberOfTrailingZeros(bits)));
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * First matching rule in compile order, or null
+     */
+    public R firstMatch(String type, String status, Integer severity, boolean hasLocation) {
+        long[] band = band(severity);
+        if (band == null) return null;
+        long[] types = type == null ? anyType : byType.getOrDefault(type, anyType);
+        long[] statuses = status == null ? anyStatus : byStatus.getOrDefault(status, anyStatus);
+        long[] location = hasLocation ? all : locationFree;
+
+        for (int w = 0; w < words; w++) {
+            long bits = types[w] & statuses[w] & band[w] & location[w];
+            if (bits != 0) {
+                return rules.get((w << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return null;
+    }
+
+    private long[] band(Integer severity) {
+        int value = severity != null ? severity : 0;
+        int position = Arrays.binarySearch(bandThresholds, value);
+        int band = position >= 0 ? position : -position - 2;
+        return band >= 0 ? bandMasks[band] : null;
+    }
+
+    private static void set(long[] mask, int bit) {
+        mask[bit >>> 6] |= 1L << bit;
+    }
+
+    private static void or(long[] target, long[] source) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= source[w];
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.relief.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel of keyed deadlines.
+ *
+ * Four levels of 64 slots each cover 64, 4096, 262144 and 16777216 ticks ahead. A timer sits in
+ * the lowest level whose range holds its distance from now and is cascaded one level down when
+ * the clock enters its slot, so scheduling, cancelling and firing are O(1) and advancing the clock
+ * only visits the slots it passes. Deadlines beyond the top level wait in its last slot and are
+ * re-placed as they come within range.
+ *
+ * Each key has at most one timer; scheduling a key again moves it. Thread-safe; expired keys are
+ * returned to the caller rather than run under the lock.
+ *
+ * @param <K> key type
+ */
+public final class TimingWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Set<Timer<K>>[][] slots = new Set[LEVELS][SLOTS];
+    private final List<K> due = new ArrayList<>();
+    private long currentTick;
+
+    private static final class Timer<K> {
+        final K key;
+        final long deadlineTick;
+        int level = -1;
+        int slot;
+
+        Timer(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    public synchronized boolean contains(K key) {
+        return timers.containsKey(key);
+    }
+
+    /**
+     * Schedule or move the key's timer. Deadlines already passed fire on the next advance.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        add(key, deadlineMillis);
+    }
+
+    /**
+     * Schedule the key unless it already has a timer
+     *
+     * @return false if the key was already scheduled
+     */
+    public synchronized boolean scheduleIfAbsent(K key, long deadlineMillis) {
+        if (timers.containsKey(key)) return false;
+        add(key, deadlineMillis);
+        return true;
+    }
+
+    /**
+     * @return false if the key had no timer
+     */
+    public synchronized boolean cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer == null) return false;
+        if (timer.level >= 0) {
+            slots[timer.level][timer.slot].remove(timer);
+        } else {
+            due.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Move the clock to {@code nowMillis} and remove and return every key whose deadline has passed
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (timers.size() == due.size()) {
+            // Nothing is waiting in the slots, so the clock can jump
+            currentTick = Math.max(currentTick, targetTick);
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                }
+            }
+            cascade(0, (int) (currentTick & SLOT_MASK));
+        }
+
+        List<K> expired = new ArrayList<>(due);
+        for (K key : expired) {
+            timers.remove(key);
+        }
+        due.clear();
+        return expired;
+    }
+
+    private void add(K key, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Timer<K> timer = new Timer<>(key, deadlineTick);
+        timers.put(key, timer);
+        place(timer);
+    }
+
+    /**
+     * Empty a slot, firing timers that are due and re-placing the rest at lower levels
+     */
+    private void cascade(int level, int slot) {
+        Set<Timer<K>> timersInSlot = slots[level][slot];
+        if (timersInSlot == null || timersInSlot.isEmpty()) return;
+        slots[level][slot] = null;
+        for (Timer<K> timer : timersInSlot) {
+            place(timer);
+        }
+    }
+
+    private void place(Timer<K> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            timer.level = -1;
+            due.add(timer.key);
+            return;
+        }
+        // Beyond the top level: park in the slot the top level reaches last
+        long placementTick = delta < MAX_SPAN ? timer.deadlineTick : currentTick + MAX_SPAN - 1;
+        delta = placementTick - currentTick;
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((placementTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Set<Timer<K>> timersInSlot = slots[level][slot];
+        if (timersInSlot == null) {
+            timersInSlot = new LinkedHashSet<>();
+            slots[level][slot] = timersInSlot;
+        }
+        timersInSlot.add(timer);
+        timer.level = level;
+        timer.slot = slot;
+    }
+}
@@ -0,0 +1,89 @@
+package com.relief.util;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint sets over int ids with union by size and path halving, backed by primitive arrays that
+ * grow with the largest id seen. {@link #reset(int)} makes an id a singleton again, which lets a
+ * caller that keeps the underlying edges rebuild one component after an edge is deleted: reset
+ * every member of the old component, then union along the remaining edges.
+ */
+public final class UnionFind {
+
+    private int[] parent;
+    private int[] size;
+
+    public UnionFind() {
+        this(1024);
+    }
+
+    public UnionFind(int initialCapacity) {
+        parent = new int[Math.max(16, initialCapacity)];
+        size = new int[parent.length];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    public int find(int id) {
+        ensureCapacity(id);
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Join the sets of both ids
+     *
+     * @return root of the joined set
+     */
+    public int union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) return rootA;
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+        return rootA;
+    }
+
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    /**
+     * Number of ids in the set of the given id
+     */
+    public int size(int id) {
+        return size[find(id)];
+    }
+
+    /**
+     * Make the id a singleton. Only sound when every other member of its set is reset too, since
+     * they may point at it.
+     */
+    public void reset(int id) {
+        ensureCapacity(id);
+        parent[id] = id;
+        size[id] = 1;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < parent.length) return;
+        int previous = parent.length;
+        int capacity = Math.max(id + 1, previous * 2);
+        parent = Arrays.copyOf(parent, capacity);
+        size = Arrays.copyOf(size, capacity);
+        for (int i = previous; i < capacity; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+}
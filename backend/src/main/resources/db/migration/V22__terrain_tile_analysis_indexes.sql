@@ -0,0 +1,4 @@
+-- Indexes for per-tile terrain analysis lookups (flood-prone and accessible areas)
+
+CREATE INDEX IF NOT EXISTS idx_terrain_flood_risk ON terrain_analysis (flood_risk_score DESC);
+CREATE INDEX IF NOT EXISTS idx_terrain_accessibility_slope ON terrain_analysis (accessibility_score DESC, slope_max);
@@ -0,0 +1,27 @@
+-- Task dependency edges: task_id can start once depends_on_task_id is completed
+
+CREATE TABLE IF NOT EXISTS task_dependencies (
+    task_id UUID NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+    depends_on_task_id UUID NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+    created_at TIMESTAMPTZ DEFAULT now(),
+    PRIMARY KEY (task_id, depends_on_task_id),
+    CONSTRAINT check_task_dependency_not_self CHECK (task_id <> depends_on_task_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_task_dependencies_depends_on ON task_dependencies (depends_on_task_id);
+
+-- Carry over task IDs from the legacy comma-separated tasks.dependencies column, where present
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'tasks' AND column_name = 'dependencies') THEN
+        INSERT INTO task_dependencies (task_id, depends_on_task_id)
+        SELECT t.id, trim(dep.value)::uuid
+        FROM tasks t
+        CROSS JOIN LATERAL unnest(string_to_array(t.dependencies, ',')) AS dep(value)
+        WHERE trim(dep.value) ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$'
+          AND trim(dep.value)::uuid <> t.id
+          AND EXISTS (SELECT 1 FROM tasks d WHERE d.id = trim(dep.value)::uuid)
+        ON CONFLICT DO NOTHING;
+    END IF;
+END $$;
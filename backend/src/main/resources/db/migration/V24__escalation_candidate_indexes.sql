@@ -0,0 +1,6 @@
+-- Partial indexes for rebuilding escalation timers from open requests and in-flight tasks
+
+CREATE INDEX IF NOT EXISTS idx_needs_requests_escalation_open ON needs_requests (created_at)
+    WHERE status IN ('OPEN', 'IN_PROGRESS');
+CREATE INDEX IF NOT EXISTS idx_tasks_escalation_eta ON tasks (eta)
+    WHERE status IN ('assigned', 'picked_up') AND eta IS NOT NULL AND request_id IS NOT NULL;
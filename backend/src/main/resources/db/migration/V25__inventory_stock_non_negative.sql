@@ -0,0 +1,6 @@
+-- Reservations are conditional updates that never take quantities below zero; enforce the same
+-- invariant in the database. NOT VALID skips checking rows written before this migration.
+ALTER TABLE inventory_stock ADD CONSTRAINT check_inventory_stock_qty_available_non_negative
+    CHECK (qty_available >= 0) NOT VALID;
+ALTER TABLE inventory_stock ADD CONSTRAINT check_inventory_stock_qty_reserved_non_negative
+    CHECK (qty_reserved >= 0) NOT VALID;
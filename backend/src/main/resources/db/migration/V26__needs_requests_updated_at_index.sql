@@ -0,0 +1,2 @@
+-- Duplicate clustering reads the requests changed since its last watermark
+CREATE INDEX IF NOT EXISTS idx_needs_requests_updated_at ON needs_requests (updated_at);
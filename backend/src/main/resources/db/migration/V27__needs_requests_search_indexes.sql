@@ -0,0 +1,12 @@
+-- Composite indexes for the filtered request listing, which orders by (created_at, id) newest
+-- first and seeks past the previous page instead of using OFFSET. The bounding box filter uses
+-- the existing GiST index on geom_point.
+
+CREATE INDEX IF NOT EXISTS idx_needs_requests_created_id ON needs_requests (created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_needs_requests_status_created_id ON needs_requests (status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_needs_requests_type_created_id ON needs_requests (type, created_at DESC, id DESC);
+
+-- Superseded by the composites above, which share their leading columns
+DROP INDEX IF EXISTS idx_needs_requests_created_at;
+DROP INDEX IF EXISTS idx_needs_requests_status;
+DROP INDEX IF EXISTS idx_needs_requests_type;
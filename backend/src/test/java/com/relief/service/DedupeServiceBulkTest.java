@@ -0,0 +1,209 @@
+package com.relief.service;
+
+import com.relief.repository.DedupeGroupRepository;
+import com.relief.repository.DedupeLinkRepository;
+import com.relief.service.ai.DuplicateCandidateIndex;
+import com.relief.service.escalation.EscalationScheduler;
+import com.relief.service.spatial.SpatialCandidateIndex;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * The set-based merge and dismiss statements against a real database, and the index evictions
+ * that must wait for the merge to commit.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class DedupeServiceBulkTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+
+    private final AuditService audit = mock(AuditService.class);
+    private final DuplicateCandidateIndex duplicates = mock(DuplicateCandidateIndex.class);
+    private final SpatialCandidateIndex spatial = mock(SpatialCandidateIndex.class);
+    private final EscalationScheduler timers = mock(EscalationScheduler.class);
+    private DedupeService service;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(POSTGRES.getJdbcUrl());
+        config.setUsername(POSTGRES.getUsername());
+        config.setPassword(POSTGRES.getPassword());
+        dataSource = new HikariDataSource(config);
+        jdbc = new JdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbc.execute("""
+            CREATE TABLE needs_requests (
+                id UUID PRIMARY KEY,
+                status VARCHAR(50),
+                updated_at TIMESTAMP
+            );
+            CREATE TABLE dedupe_groups (
+                id UUID PRIMARY KEY,
+                entity_type VARCHAR(50),
+                status VARCHAR(50),
+                note TEXT,
+                created_at TIMESTAMP DEFAULT now()
+            );
+            CREATE TABLE dedupe_links (
+                group_id UUID REFERENCES dedupe_groups(id),
+                entity_id UUID
+            )
+            """);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        if (dataSource != null) dataSource.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbc.execute("TRUNCATE dedupe_links, dedupe_groups, needs_requests");
+        service = new DedupeService(mock(DedupeGroupRepository.class), mock(DedupeLinkRepository.class), audit,
+            new SimpleMeterRegistry(), jdbc, provider(duplicates), provider(spatial), provider(timers));
+    }
+
+    @Test
+    void mergeGroupsMarksDuplicatesOnceAndReportsMissingGroups() {
+        UUID canonical = request("new");
+        UUID duplicate = request("assigned");
+        UUID withoutStatus = request(null);
+        UUID alreadyMerged = request("merged");
+        UUID otherCanonical = request("new");
+        UUID first = group("NEEDS", "OPEN", canonical, duplicate, withoutStatus, alreadyMerged);
+        // The canonical request of the first group is linked here too and must stay unmerged
+        UUID second = group("NEEDS_REQUEST", "OPEN", otherCanonical, canonical);
+        UUID missing = UUID.randomUUID();
+        List<DedupeService.GroupMerge> merges = List.of(
+            new DedupeService.GroupMerge(first, canonical),
+            new DedupeService.GroupMerge(second, otherCanonical),
+            new DedupeService.GroupMerge(missing, canonical));
+
+        DedupeService.BulkMergeResult result = transactions.execute(status -> service.mergeGroups(merges, null));
+
+        assertEquals(2, result.groupsMerged());
+        assertEquals(2, result.requestsMerged());
+        assertEquals(List.of(missing), result.missingGroups());
+        assertEquals("new", status(canonical));
+        assertEquals("new", status(otherCanonical));
+        assertEquals("merged", status(duplicate));
+        assertEquals("merged", status(withoutStatus));
+        assertEquals("MERGED", groupStatus(first));
+        assertEquals("MERGED", groupStatus(second));
+
+        // Merging again finds nothing left to mark
+        DedupeService.BulkMergeResult again = transactions.execute(status -> service.mergeGroups(merges, null));
+        assertEquals(2, again.groupsMerged());
+        assertEquals(0, again.requestsMerged());
+        verify(duplicates, times(1)).removeRequest(duplicate);
+        verify(duplicates, never()).removeRequest(alreadyMerged);
+    }
+
+    @Test
+    void mergedRequestsLeaveIndexesOnlyAfterCommit() {
+        UUID canonical = request("new");
+        UUID duplicate = request("new");
+        UUID group = group("NEEDS", "OPEN", canonical, duplicate);
+        List<DedupeService.GroupMerge> merges = List.of(new DedupeService.GroupMerge(group, canonical));
+
+        transactions.executeWithoutResult(status -> {
+            service.mergeGroups(merges, null);
+            status.setRollbackOnly();
+        });
+        verifyNoInteractions(duplicates, spatial, timers);
+        assertEquals("new", status(duplicate));
+
+        transactions.executeWithoutResult(status -> {
+            service.mergeGroups(merges, null);
+            verifyNoInteractions(duplicates, spatial, timers);
+        });
+        verify(duplicates).removeRequest(duplicate);
+        verify(spatial).removeRequest(duplicate);
+        verify(timers).removeRequest(duplicate);
+        verify(duplicates, never()).removeRequest(canonical);
+    }
+
+    @Test
+    void dismissOpenGroupsLeavesDecidedGroupsAlone() {
+        UUID open = group("NEEDS", "OPEN", request("new"));
+        UUID merged = group("NEEDS", "MERGED", request("new"));
+        UUID dismissed = group("NEEDS", "DISMISSED", request("new"));
+
+        int count = transactions.execute(status ->
+            service.dismissOpenGroups(List.of(open, merged, dismissed, UUID.randomUUID()), "superseded"));
+
+        assertEquals(1, count);
+        assertEquals("DISMISSED", groupStatus(open));
+        assertEquals("MERGED", groupStatus(merged));
+        verify(audit).logAdminActions(eq("DEDUPE_GROUP_DISMISSED"),
+            eq(List.of("Dedupe group %s dismissed: superseded".formatted(open))));
+        assertEquals(0, service.dismissOpenGroups(List.of(), "none"));
+    }
+
+    @Test
+    void emptyAndUnknownMergesTouchNothing() {
+        DedupeService.BulkMergeResult result = transactions.execute(status -> service.mergeGroups(
+            List.of(new DedupeService.GroupMerge(null, UUID.randomUUID())), null));
+
+        assertEquals(0, result.groupsMerged());
+        assertEquals(List.of(), result.missingGroups());
+        verify(audit, never()).logAdminActions(any(), anyList());
+    }
+
+    private static UUID request(String status) {
+        UUID id = UUID.randomUUID();
+        jdbc.update("INSERT INTO needs_requests (id, status) VALUES (?, ?)", id, status);
+        return id;
+    }
+
+    private static UUID group(String entityType, String status, UUID... members) {
+        UUID id = UUID.randomUUID();
+        jdbc.update("INSERT INTO dedupe_groups (id, entity_type, status) VALUES (?, ?, ?)", id, entityType, status);
+        for (UUID member : members) {
+            jdbc.update("INSERT INTO dedupe_links (group_id, entity_id) VALUES (?, ?)", id, member);
+        }
+        return id;
+    }
+
+    private static String status(UUID requestId) {
+        return jdbc.queryForObject("SELECT status FROM needs_requests WHERE id = ?", String.class, requestId);
+    }
+
+    private static String groupStatus(UUID groupId) {
+        return jdbc.queryForObject("SELECT status FROM dedupe_groups WHERE id = ?", String.class, groupId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> provider(T bean) {
+        ObjectProvider<T> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(bean);
+        return provider;
+    }
+}
@@ -4,9 +4,10 @@ import com.relief.entity.DedupeGroup;
 import com.relief.entity.DedupeLink;
 import com.relief.repository.DedupeGroupRepository;
 import com.relief.repository.DedupeLinkRepository;
-import com.relief.repository.NeedsRequestRepository;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,9 +21,9 @@ public class DedupeServiceTest {
     void mergeGroupMarksMergedAndAudits() {
         DedupeGroupRepository groupRepo = mock(DedupeGroupRepository.class);
         DedupeLinkRepository linkRepo = mock(DedupeLinkRepository.class);
-        NeedsRequestRepository needsRepo = mock(NeedsRequestRepository.class);
         AuditService audit = mock(AuditService.class);
-        DedupeService service = new DedupeService(groupRepo, linkRepo, needsRepo, audit, new SimpleMeterRegistry());
+        DedupeService service = new DedupeService(groupRepo, linkRepo, audit, new SimpleMeterRegistry(),
+                mock(JdbcTemplate.class), mock(ObjectProvider.class), mock(ObjectProvider.class), mock(ObjectProvider.class));
 
         UUID groupId = UUID.randomUUID();
         DedupeGroup group = DedupeGroup.builder().id(groupId).entityType("NEEDS").status("OPEN").createdAt(LocalDateTime.now()).build();
@@ -0,0 +1,145 @@
+package com.relief.service;
+
+import com.relief.dto.RequestsFilter;
+import com.relief.service.RequestQueryService.Cursor;
+import com.relief.service.RequestQueryService.SearchQuery;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Cursors encoded and decoded back, and the SQL and parameters each combination of filters
+ * produces, without a database
+ */
+public class RequestQueryServiceTest {
+
+    private static final String SELECT = "SELECT * FROM needs_requests WHERE TRUE";
+    private static final String ENVELOPE = " AND geom_point && ST_MakeEnvelope(?, ?, ?, ?, 4326)";
+    private static final String ORDER = " ORDER BY created_at DESC, id DESC LIMIT ";
+
+    @Test
+    void cursorRoundTripsEveryTimePrecision() {
+        Random random = new Random(49);
+        for (int i = 0; i < 1000; i++) {
+            LocalDateTime createdAt = LocalDateTime.of(2020 + random.nextInt(10), 1 + random.nextInt(12),
+                1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+            // Whole minutes, whole seconds, milliseconds and nanoseconds print differently
+            createdAt = switch (i % 4) {
+                case 0 -> createdAt;
+                case 1 -> createdAt.withSecond(random.nextInt(60));
+                case 2 -> createdAt.withSecond(random.nextInt(60)).withNano(random.nextInt(1000) * 1_000_000);
+                default -> createdAt.withSecond(random.nextInt(60)).withNano(random.nextInt(1_000_000_000));
+            };
+            Cursor cursor = new Cursor(createdAt, new UUID(random.nextLong(), random.nextLong()));
+
+            String encoded = cursor.encode();
+            assertEquals(cursor, Cursor.decode(encoded), encoded);
+            assertEquals(encoded, Base64.getUrlEncoder().withoutPadding().encodeToString(
+                Base64.getUrlDecoder().decode(encoded)), "url-safe without padding");
+        }
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : List.of("", "not a cursor!", encode("2024-06-01T10:00"),
+                encode("2024-06-01T10:00,not-a-uuid"), encode("yesterday," + UUID.randomUUID()))) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Cursor.decode(cursor), cursor);
+            assertEquals("Invalid cursor", e.getMessage());
+        }
+    }
+
+    @Test
+    void withoutFiltersListsNewRequests() {
+        SearchQuery query = SearchQuery.of(new RequestsFilter(), 50);
+
+        assertEquals(SELECT + " AND status = ?" + ORDER + 51, query.sql());
+        assertEquals(List.of("new"), query.params());
+    }
+
+    @Test
+    void combinedFiltersAreAndedWithTheirParametersInOrder() {
+        Cursor cursor = new Cursor(LocalDateTime.of(2024, 6, 1, 9, 30, 15), UUID.randomUUID());
+        RequestsFilter filter = new RequestsFilter();
+        filter.setStatus("assigned");
+        filter.setType("water");
+        filter.setMinSeverity(3);
+        filter.setFrom("2024-06-01T00:00:00Z");
+        filter.setTo("2024-06-02T12:00:00Z");
+        filter.setBbox(" 10.5,20,30,40.25 ");
+        filter.setCursor(cursor.encode());
+
+        SearchQuery query = SearchQuery.of(filter, 20);
+
+        assertEquals(SELECT + " AND status = ? AND type = ? AND severity >= ? AND created_at >= ? AND created_at <= ?"
+            + ENVELOPE + " AND (created_at, id) < (?, ?)" + ORDER + 21, query.sql());
+        assertEquals(List.of("assigned", "water", 3, LocalDateTime.of(2024, 6, 1, 0, 0),
+            LocalDateTime.of(2024, 6, 2, 12, 0), 10.5, 20.0, 30.0, 40.25, cursor.createdAt(), cursor.id()),
+            query.params());
+    }
+
+    @Test
+    void anyFilterReplacesTheDefaultStatus() {
+        RequestsFilter filter = new RequestsFilter();
+        filter.setMinSeverity(4);
+        filter.setStatus(" ");
+
+        SearchQuery query = SearchQuery.of(filter, 10);
+
+        assertEquals(SELECT + " AND severity >= ?" + ORDER + 11, query.sql());
+        assertEquals(List.of(4), query.params());
+    }
+
+    @Test
+    void commaBboxAndRectangularWktMatchTheSameEnvelope() {
+        SearchQuery corners = SearchQuery.of(bbox("10,20,30,40"), 10);
+        SearchQuery swapped = SearchQuery.of(bbox("30, 40, 10, 20"), 10);
+        SearchQuery polygon = SearchQuery.of(bbox("POLYGON((10 20, 30 20, 30 40, 10 40, 10 20))"), 10);
+
+        assertEquals(SELECT + ENVELOPE + ORDER + 11, corners.sql());
+        assertEquals(List.of(10.0, 20.0, 30.0, 40.0), corners.params());
+        assertEquals(corners, swapped);
+        assertEquals(corners, polygon);
+    }
+
+    @Test
+    void nonRectangularWktAlsoGetsTheExactTest() {
+        String triangle = "POLYGON((10 20, 30 20, 20 40, 10 20))";
+
+        SearchQuery query = SearchQuery.of(bbox(triangle), 10);
+
+        assertEquals(SELECT + ENVELOPE + " AND ST_Within(geom_point, ST_GeomFromText(?, 4326))" + ORDER + 11,
+            query.sql());
+        assertEquals(List.of(10.0, 20.0, 30.0, 40.0, triangle), query.params());
+    }
+
+    @Test
+    void unparsableFiltersAreRejected() {
+        for (String bbox : List.of("1,2,3", "1,2,x,4", "1,2,3,4,5", "POLYGON((1 2, 3")) {
+            assertThrows(IllegalArgumentException.class, () -> SearchQuery.of(bbox(bbox), 10), bbox);
+        }
+        RequestsFilter filter = new RequestsFilter();
+        filter.setFrom("2024-06-01");
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.of(filter, 10));
+        filter.setFrom(null);
+        filter.setCursor("not a cursor!");
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.of(filter, 10));
+    }
+
+    private static RequestsFilter bbox(String bbox) {
+        RequestsFilter filter = new RequestsFilter();
+        filter.setBbox(bbox);
+        return filter;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+package com.relief.service.ai;
+
+import com.relief.util.MinHashLshIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duplicate lookup for one incoming report against 5000 recent reports from the same camp:
+ * MinHash signature, bucket probe and exact scoring of the candidates, versus exact scoring of
+ * every report as before. Run {@link #main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class DuplicateCandidateBenchmark {
+
+    private static final int REPORTS = 5000;
+    private static final String[] WORDS = ("need water food medicine family children elderly flood roof trapped "
+        + "house street barangay near church school help please urgent rescue boat evacuation center sick fever "
+        + "injured leg baby milk diapers rice canned goods blanket tarp shelter collapsed bridge road blocked power "
+        + "outage no electricity three five ten people stranded second floor hospital insulin oxygen dialysis "
+        + "pregnant woman labor landslide mud river overflow chest deep purok sitio hall market gym covered court "
+        + "plaza san isidro santa cruz poblacion riverside hilltop mabini rizal bonifacio luna quezon del pilar "
+        + "mother father grandmother twins toddler teenager neighbor cousin asthma diabetes wheelchair bedridden "
+        + "drinking clean bottled gallons liters noodles sardines bread formula hygiene soap toothpaste mosquito "
+        + "generator flashlight batteries candles radio phone charger wet cold hungry thirsty since yesterday "
+        + "morning night hours days waiting nobody came already called hotline twice again still").split(" ");
+
+    private final TextSimilarityService textSimilarity = new TextSimilarityService();
+    private MinHashLshIndex<Integer, String> index;
+    private String[] reports;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new MinHashLshIndex<>(DuplicateCandidateIndex.BANDS, DuplicateCandidateIndex.ROWS,
+            DuplicateCandidateIndex.SHINGLE_LENGTH, 42);
+        reports = new String[REPORTS];
+        for (int i = 0; i < REPORTS; i++) {
+            reports[i] = report(random);
+            index.put(i, 0, index.signature(TextSimilarityService.normalizeText(reports[i])), reports[i]);
+        }
+        queries = new String[256];
+        for (int q = 0; q < queries.length; q++) {
+            // Half resend an indexed report with a word swapped in, half are new
+            queries[q] = q % 2 == 0
+                ? reports[random.nextInt(REPORTS)] + " " + WORDS[random.nextInt(WORDS.length)]
+                : report(random);
+        }
+    }
+
+    @Benchmark
+    public void lshCandidates(Blackhole blackhole) {
+        String query = queries[next++ & (queries.length - 1)];
+        int[] signature = index.signature(TextSimilarityService.normalizeText(query));
+        for (MinHashLshIndex.Entry<Integer, String> candidate : index.candidates(new long[] {0}, signature, null)) {
+            blackhole.consume(textSimilarity.calculateSimilarity(query, candidate.value()));
+        }
+    }
+
+    @Benchmark
+    public void exhaustiveScoring(Blackhole blackhole) {
+        String query = queries[next++ & (queries.length - 1)];
+        for (String report : reports) {
+            blackhole.consume(textSimilarity.calculateSimilarity(query, report));
+        }
+    }
+
+    private static String report(Random random) {
+        StringBuilder report = new StringBuilder();
+        for (int n = 6 + random.nextInt(12); n > 0; n--) {
+            if (report.length() > 0) report.append(' ');
+            report.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return report.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(DuplicateCandidateBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,231 @@
+package com.relief.service.ai;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.util.GeoCellIndex;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Recall and precision of the duplicate candidates against exhaustive scoring with the real
+ * duplicate decision, over synthetic SMS-style reports around one city. A third of the reports are
+ * resent, some with dropped words, typos, swaps and additions and some rewritten, from the same
+ * spot or a few hundred metres to a few kilometres away and hours before or after; unrelated
+ * reports also come from the same spots. Guards the band/row configuration of
+ * {@link DuplicateCandidateIndex} and the nearby requests {@link AIDedupeService} adds to it.
+ */
+public class DuplicateCandidateRecallTest {
+
+    private static final String[] WORDS = ("need water food medicine family children elderly flood roof trapped "
+        + "house street barangay near church school help please urgent rescue boat evacuation center sick fever "
+        + "injured leg baby milk diapers rice canned goods blanket tarp shelter collapsed bridge road blocked power "
+        + "outage no electricity three five ten people stranded second floor hospital insulin oxygen dialysis "
+        + "pregnant woman labor landslide mud river overflow chest deep purok sitio hall market gym covered court "
+        + "plaza san isidro santa cruz poblacion riverside hilltop mabini rizal bonifacio luna quezon del pilar "
+        + "mother father grandmother twins toddler teenager neighbor cousin asthma diabetes wheelchair bedridden "
+        + "drinking clean bottled gallons liters noodles sardines bread formula hygiene soap toothpaste mosquito "
+        + "generator flashlight batteries candles radio phone charger wet cold hungry thirsty since yesterday "
+        + "morning night hours days waiting nobody came already called hotline twice again still").split(" ");
+    private static final String[] TYPES = {"food", "water", "medical", "evacuation", "sos", "other"};
+    private static final double RADIUS_METERS = 10_000;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+    private final TextSimilarityService textSimilarity = new TextSimilarityService();
+
+    @Test
+    void candidatesFindScoredDuplicatesAndLittleElse() {
+        Random random = new Random(11);
+        LocalDateTime now = LocalDateTime.now();
+        List<NeedsRequest> requests = new ArrayList<>();
+        for (int g = 0; g < 400; g++) {
+            NeedsRequest original = request(randomReport(random), TYPES[random.nextInt(TYPES.length)],
+                14.55 + random.nextDouble() * 0.1, 120.95 + random.nextDouble() * 0.1,
+                now.minusMinutes(60 + random.nextInt(20 * 60)));
+            requests.add(original);
+            if (g % 3 == 0) {
+                for (int d = 1 + random.nextInt(3); d > 0; d--) {
+                    String notes = random.nextInt(3) == 0
+                        ? rewrite(original.getNotes(), random) : resend(original.getNotes(), random);
+                    requests.add(near(original, notes, original.getType(), random));
+                }
+            }
+            if (g % 4 == 0) {
+                String type = random.nextBoolean() ? original.getType() : TYPES[random.nextInt(TYPES.length)];
+                requests.add(near(original, randomReport(random), type, random));
+            }
+        }
+        DuplicateCandidateIndex index = loadedIndex(requests);
+        AIDedupeService dedupe = new AIDedupeService(null, null, textSimilarity, new LocationSimilarityService(),
+            null, index);
+        LocalDateTime since = now.minusHours(24);
+
+        long duplicates = 0;
+        long textLight = 0;
+        long found = 0;
+        long candidates = 0;
+        for (NeedsRequest request : requests) {
+            AIDedupeService.DuplicateFeatures features = features(request);
+            Set<UUID> candidateIds = new HashSet<>(dedupe.candidateIds(features, RADIUS_METERS, since));
+            candidates += candidateIds.size();
+            for (NeedsRequest other : requests) {
+                if (other == request || other.getCreatedAt().isBefore(since)
+                    || distanceMeters(request, other) > RADIUS_METERS) continue;
+                boolean duplicate = dedupe.calculateSimilarityScore(features, features(other),
+                    AIDedupeService.DUPLICATE_THRESHOLD) >= AIDedupeService.DUPLICATE_THRESHOLD;
+                if (!duplicate) continue;
+                duplicates++;
+                if (textSimilarity.calculateSimilarity(DuplicateCandidateIndex.comparisonText(request),
+                    DuplicateCandidateIndex.comparisonText(other)) < AIDedupeService.CANDIDATE_TEXT_SIMILARITY) {
+                    textLight++;
+                }
+                if (candidateIds.contains(other.getId())) found++;
+            }
+        }
+
+        double recall = (double) found / duplicates;
+        double precision = (double) found / candidates;
+        double candidatesPerRequest = (double) candidates / requests.size();
+        assertTrue(duplicates > 200, "corpus should contain duplicates, found " + duplicates);
+        assertTrue(textLight > 50, "corpus should contain duplicates with little text in common, found " + textLight);
+        assertTrue(recall >= 0.95, "recall " + recall);
+        assertTrue(precision >= 0.08, "precision " + precision);
+        assertTrue(candidatesPerRequest <= 0.05 * requests.size(), "candidates per request " + candidatesPerRequest);
+    }
+
+    @Test
+    void candidatesRespectRadiusAndTimeWindowAcrossPartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        String notes = "family of five trapped on roof near san isidro church need rescue boat";
+        NeedsRequest query = request(notes, "sos", 14.6495, 121.0495, now);
+        // About 9 km north: a different map cell, still within the radius
+        NeedsRequest nearbyCell = request(notes, "sos", 14.7305, 121.0495, now.minusMinutes(5));
+        // Created in an earlier time slot but inside the window
+        NeedsRequest earlierSlot = request(notes, "sos", 14.6500, 121.0500, now.minusHours(20));
+        NeedsRequest outsideRadius = request(notes, "sos", 14.7900, 121.0495, now.minusMinutes(5));
+        NeedsRequest outsideWindow = request(notes, "sos", 14.6500, 121.0500, now.minusHours(23));
+        DuplicateCandidateIndex index = loadedIndex(List.of(query, nearbyCell, earlierSlot, outsideRadius, outsideWindow));
+
+        Set<UUID> candidates = new HashSet<>(index.candidates(query, RADIUS_METERS, now.minusHours(22)));
+
+        assertEquals(Set.of(nearbyCell.getId(), earlierSlot.getId()), candidates);
+    }
+
+    private DuplicateCandidateIndex loadedIndex(List<NeedsRequest> requests) {
+        NeedsRequestRepository repository = mock(NeedsRequestRepository.class);
+        when(repository.findLocatedRequestsCreatedSince(any())).thenReturn(requests);
+        DuplicateCandidateIndex index = new DuplicateCandidateIndex(repository);
+        index.load();
+        return index;
+    }
+
+    private NeedsRequest request(String notes, String type, double latitude, double longitude, LocalDateTime createdAt) {
+        NeedsRequest request = new NeedsRequest();
+        request.setId(UUID.randomUUID());
+        request.setNotes(notes);
+        request.setType(type);
+        request.setStatus("new");
+        request.setGeomPoint(geometryFactory.createPoint(new Coordinate(longitude, latitude)));
+        request.setCreatedAt(createdAt);
+        return request;
+    }
+
+    private AIDedupeService.DuplicateFeatures features(NeedsRequest request) {
+        return AIDedupeService.DuplicateFeatures.of(request, DuplicateCandidateIndex.textProfile(request));
+    }
+
+    private static double distanceMeters(NeedsRequest a, NeedsRequest b) {
+        return GeoCellIndex.distanceMeters(a.getGeomPoint().getY(), a.getGeomPoint().getX(),
+            b.getGeomPoint().getY(), b.getGeomPoint().getX());
+    }
+
+    /**
+     * A request near the original: mostly within 100 m, some up to a kilometre and a few several
+     * kilometres away, up to eight hours before or after it but not in the future
+     */
+    private NeedsRequest near(NeedsRequest original, String notes, String type, Random random) {
+        double offset = switch (random.nextInt(10)) {
+            case 0 -> 0.02 + random.nextDouble() * 0.03;
+            case 1, 2, 3 -> 0.001 + random.nextDouble() * 0.008;
+            default -> random.nextDouble() * 0.0006;
+        };
+        double angle = random.nextDouble() * 2 * Math.PI;
+        LocalDateTime createdAt = original.getCreatedAt().plusMinutes(random.nextInt(16 * 60) - 8 * 60);
+        LocalDateTime now = LocalDateTime.now();
+        return request(notes, type, original.getGeomPoint().getY() + offset * Math.sin(angle),
+            original.getGeomPoint().getX() + offset * Math.cos(angle), createdAt.isAfter(now) ? now : createdAt);
+    }
+
+    private static String randomReport(Random random) {
+        List<String> words = new ArrayList<>();
+        for (int n = 6 + random.nextInt(12); n > 0; n--) {
+            words.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return String.join(" ", words);
+    }
+
+    /**
+     * The report as resent by the same household: words dropped, misspelled, swapped and added
+     */
+    private static String resend(String report, Random random) {
+        List<String> words = new ArrayList<>(Arrays.asList(report.split(" ")));
+        for (int k = random.nextInt(3); k > 0 && words.size() > 3; k--) {
+            words.remove(random.nextInt(words.size()));
+        }
+        for (int k = random.nextInt(3); k > 0; k--) {
+            int i = random.nextInt(words.size());
+            words.set(i, misspell(words.get(i), random));
+        }
+        if (random.nextBoolean() && words.size() > 1) {
+            int i = random.nextInt(words.size() - 1);
+            Collections.swap(words, i, i + 1);
+        }
+        for (int k = random.nextInt(3); k > 0; k--) {
+            words.add(random.nextInt(words.size() + 1), WORDS[random.nextInt(WORDS.length)]);
+        }
+        return String.join(" ", words);
+    }
+
+    /**
+     * The same need reported again in other words: some of the report's words, in order, among new
+     * ones
+     */
+    private static String rewrite(String report, Random random) {
+        List<String> words = new ArrayList<>();
+        for (String word : report.split(" ")) {
+            if (random.nextInt(5) < 2) words.add(word);
+        }
+        for (int k = 2 + random.nextInt(5); k > 0; k--) {
+            words.add(random.nextInt(words.size() + 1), WORDS[random.nextInt(WORDS.length)]);
+        }
+        return String.join(" ", words);
+    }
+
+    private static String misspell(String word, Random random) {
+        if (word.length() < 3) return word;
+        int at = random.nextInt(word.length());
+        char letter = (char) ('a' + random.nextInt(26));
+        return switch (random.nextInt(3)) {
+            case 0 -> word.substring(0, at) + word.substring(at + 1);
+            case 1 -> word.substring(0, at) + letter + word.substring(at + 1);
+            default -> word.substring(0, at) + letter + word.substring(at);
+        };
+    }
+}
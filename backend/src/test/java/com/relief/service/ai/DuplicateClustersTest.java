@@ -0,0 +1,150 @@
+package com.relief.service.ai;
+
+import com.relief.service.ai.AIDedupeService.DuplicateFeatures;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Incremental clusters against connected components recomputed from scratch. Requests are points
+ * on a line of minutes, linked when at most three minutes apart, so the true components are runs
+ * of points without a larger gap; batches add, move, remove and expire requests at random.
+ */
+public class DuplicateClustersTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int LINK_MINUTES = 3;
+
+    private final List<UUID> known = new ArrayList<>();
+
+    @Test
+    void removingBridgeSplitsCluster() {
+        DuplicateClusters clusters = new DuplicateClusters(0.5, this::everyKnown, DuplicateClustersTest::score);
+        DuplicateFeatures a = at(0);
+        DuplicateFeatures bridge = at(3);
+        DuplicateFeatures c = at(6);
+        clusters.apply(List.of(change(a, 1), change(bridge, 1), change(c, 1)), List.of());
+        assertEquals(List.of(List.of(a.id(), bridge.id(), c.id())), ids(clusters.drainChangedClusters(2)));
+
+        clusters.apply(List.of(), List.of(bridge.id()));
+        assertEquals(List.of(), clusters.drainChangedClusters(2));
+        assertEquals(2, clusters.size());
+    }
+
+    @Test
+    void incrementalClustersMatchRecomputedComponents() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 200; trial++) {
+            Map<UUID, Integer> minutes = new HashMap<>();
+            List<UUID> live = new ArrayList<>();
+            Map<UUID, Set<UUID>> emitted = new HashMap<>();
+            DuplicateClusters clusters = new DuplicateClusters(0.5, request -> new ArrayList<>(minutes.keySet()),
+                DuplicateClustersTest::score);
+            int range = 50 + random.nextInt(300);
+
+            for (int step = 0; step < 60; step++) {
+                List<DuplicateClusters.Change> upserts = new ArrayList<>();
+                List<UUID> removals = new ArrayList<>();
+                for (int k = 1 + random.nextInt(12); k > 0; k--) {
+                    int op = random.nextInt(10);
+                    if (op < 8 || live.isEmpty()) {
+                        // Add a request, or move an existing one
+                        UUID id = op < 5 || live.isEmpty() ? UUID.randomUUID() : live.get(random.nextInt(live.size()));
+                        if (!minutes.containsKey(id)) live.add(id);
+                        int minute = random.nextInt(range);
+                        minutes.put(id, minute);
+                        upserts.add(change(new DuplicateFeatures(id, null, BASE.plusMinutes(minute), "sos", null),
+                            step * 100 + k));
+                    } else {
+                        UUID id = live.remove(random.nextInt(live.size()));
+                        minutes.remove(id);
+                        emitted.remove(id);
+                        removals.add(id);
+                    }
+                }
+                // Removals are applied first, so an id removed later in the batch must not be upserted
+                upserts.removeIf(change -> !minutes.containsKey(change.features().id()));
+                clusters.apply(upserts, removals);
+
+                if (random.nextInt(8) == 0) {
+                    int cutoff = random.nextInt(range / 4);
+                    for (Iterator<Map.Entry<UUID, Integer>> it = minutes.entrySet().iterator(); it.hasNext(); ) {
+                        Map.Entry<UUID, Integer> entry = it.next();
+                        if (entry.getValue() < cutoff) {
+                            it.remove();
+                            live.remove(entry.getKey());
+                            emitted.remove(entry.getKey());
+                        }
+                    }
+                    clusters.expire(BASE.plusMinutes(cutoff));
+                }
+
+                for (List<DuplicateClusters.Member> cluster : clusters.drainChangedClusters(1)) {
+                    Set<UUID> members = new HashSet<>();
+                    cluster.forEach(member -> members.add(member.requestId()));
+                    members.forEach(member -> emitted.put(member, members));
+                }
+
+                assertEquals(minutes.size(), clusters.size());
+                Map<UUID, Set<UUID>> expected = components(minutes);
+                for (UUID id : minutes.keySet()) {
+                    assertEquals(expected.get(id), emitted.get(id), "trial " + trial + ", step " + step);
+                }
+            }
+        }
+    }
+
+    private static Map<UUID, Set<UUID>> components(Map<UUID, Integer> minutes) {
+        List<UUID> ordered = new ArrayList<>(minutes.keySet());
+        ordered.sort(Comparator.comparing(minutes::get));
+        Map<UUID, Set<UUID>> components = new HashMap<>();
+        Set<UUID> current = new HashSet<>();
+        Integer previous = null;
+        for (UUID id : ordered) {
+            int minute = minutes.get(id);
+            if (previous != null && minute - previous > LINK_MINUTES) {
+                for (UUID member : current) components.put(member, current);
+                current = new HashSet<>();
+            }
+            current.add(id);
+            previous = minute;
+        }
+        for (UUID member : current) components.put(member, current);
+        return components;
+    }
+
+    private List<UUID> everyKnown(DuplicateFeatures request) {
+        return known;
+    }
+
+    private DuplicateFeatures at(int minute) {
+        DuplicateFeatures features = new DuplicateFeatures(UUID.randomUUID(), null, BASE.plusMinutes(minute), "sos", null);
+        known.add(features.id());
+        return features;
+    }
+
+    private static DuplicateClusters.Change change(DuplicateFeatures features, int version) {
+        return new DuplicateClusters.Change(features, BASE.plusSeconds(version));
+    }
+
+    private static double score(DuplicateFeatures a, DuplicateFeatures b, double minScore) {
+        return Math.abs(Duration.between(a.createdAt(), b.createdAt()).toMinutes()) <= LINK_MINUTES ? 1.0 : 0.0;
+    }
+
+    private static List<List<UUID>> ids(List<List<DuplicateClusters.Member>> clusters) {
+        return clusters.stream().map(cluster -> cluster.stream().map(DuplicateClusters.Member::requestId).toList()).toList();
+    }
+}
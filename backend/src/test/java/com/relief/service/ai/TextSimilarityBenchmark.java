@@ -0,0 +1,135 @@
+package com.relief.service.ai;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring one report against 1000 others, half of them resends of it: cached profiles with and
+ * without the duplicate threshold, versus the previous string-based scoring that normalized,
+ * tokenized and filled a full edit-distance matrix per pair. Run {@link #main} on the test
+ * classpath; add {@code -prof gc} to see allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class TextSimilarityBenchmark {
+
+    private static final int REPORTS = 1000;
+    private static final String[] WORDS = ("need water food medicine family children elderly flood roof trapped "
+        + "house street barangay near church school help please urgent rescue boat evacuation center sick fever "
+        + "injured leg baby milk diapers rice canned goods blanket tarp shelter collapsed bridge road blocked power "
+        + "outage no electricity three five ten people stranded second floor hospital insulin oxygen dialysis "
+        + "pregnant woman labor landslide mud river overflow chest deep purok sitio hall market gym covered court").split(" ");
+
+    private final TextSimilarityService service = new TextSimilarityService();
+    private String query;
+    private String[] reports;
+    private TextProfile queryProfile;
+    private TextProfile[] profiles;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        query = report(random, 14);
+        reports = new String[REPORTS];
+        profiles = new TextProfile[REPORTS];
+        for (int i = 0; i < REPORTS; i++) {
+            reports[i] = i % 2 == 0 ? query.replace(' ', ',') + " " + WORDS[random.nextInt(WORDS.length)] : report(random, 6 + random.nextInt(12));
+            profiles[i] = TextProfile.of(reports[i]);
+        }
+        queryProfile = TextProfile.of(query);
+    }
+
+    @Benchmark
+    public void profiles(Blackhole blackhole) {
+        for (TextProfile profile : profiles) {
+            blackhole.consume(service.calculateSimilarity(queryProfile, profile));
+        }
+    }
+
+    @Benchmark
+    public void profilesWithThreshold(Blackhole blackhole) {
+        for (TextProfile profile : profiles) {
+            blackhole.consume(service.calculateSimilarity(queryProfile, profile, 0.7));
+        }
+    }
+
+    @Benchmark
+    public void previousStrings(Blackhole blackhole) {
+        for (String report : reports) {
+            blackhole.consume(previousSimilarity(query, report));
+        }
+    }
+
+    private static String report(Random random, int words) {
+        StringBuilder report = new StringBuilder();
+        for (int n = words; n > 0; n--) {
+            if (report.length() > 0) report.append(' ');
+            report.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return report.toString();
+    }
+
+    private static double previousSimilarity(String text1, String text2) {
+        String normalized1 = text1.toLowerCase().replaceAll("[^a-z0-9\\s]", " ").replaceAll("\\s+", " ").trim();
+        String normalized2 = text2.toLowerCase().replaceAll("[^a-z0-9\\s]", " ").replaceAll("\\s+", " ").trim();
+
+        Set<String> words1 = new HashSet<>(Arrays.asList(normalized1.split("\\s+")));
+        Set<String> words2 = new HashSet<>(Arrays.asList(normalized2.split("\\s+")));
+        Set<String> intersection = new HashSet<>(words1);
+        intersection.retainAll(words2);
+        Set<String> union = new HashSet<>(words1);
+        union.addAll(words2);
+        double jaccard = union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+
+        Map<String, Integer> vector1 = new HashMap<>();
+        Map<String, Integer> vector2 = new HashMap<>();
+        for (String word : normalized1.split("\\s+")) if (word.length() > 2) vector1.merge(word, 1, Integer::sum);
+        for (String word : normalized2.split("\\s+")) if (word.length() > 2) vector2.merge(word, 1, Integer::sum);
+        Set<String> allWords = new HashSet<>(vector1.keySet());
+        allWords.addAll(vector2.keySet());
+        double dot = 0, norm1 = 0, norm2 = 0;
+        for (String word : allWords) {
+            int count1 = vector1.getOrDefault(word, 0);
+            int count2 = vector2.getOrDefault(word, 0);
+            dot += count1 * count2;
+            norm1 += count1 * count1;
+            norm2 += count2 * count2;
+        }
+        double cosine = norm1 == 0 || norm2 == 0 ? 0.0 : dot / (Math.sqrt(norm1) * Math.sqrt(norm2));
+
+        int[][] dp = new int[normalized1.length() + 1][normalized2.length() + 1];
+        for (int i = 0; i <= normalized1.length(); i++) {
+            for (int j = 0; j <= normalized2.length(); j++) {
+                if (i == 0) dp[i][j] = j;
+                else if (j == 0) dp[i][j] = i;
+                else dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
+                    dp[i - 1][j - 1] + (normalized1.charAt(i - 1) == normalized2.charAt(j - 1) ? 0 : 1));
+            }
+        }
+        int maxLength = Math.max(normalized1.length(), normalized2.length());
+        double levenshtein = maxLength == 0 ? 1.0 : 1.0 - (double) dp[normalized1.length()][normalized2.length()] / maxLength;
+
+        return (jaccard * 0.4) + (cosine * 0.4) + (levenshtein * 0.2);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(TextSimilarityBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
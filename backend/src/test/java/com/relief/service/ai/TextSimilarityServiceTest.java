@@ -0,0 +1,206 @@
+package com.relief.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Profile-based scoring against the previous string-based scoring that normalized, tokenized and
+ * filled a full edit-distance matrix per pair: mixed case, punctuation, repeated and short words,
+ * blank texts and texts longer than one 64-character block, with and without a threshold
+ */
+public class TextSimilarityServiceTest {
+
+    private static final String[] WORDS = ("need water food medicine family children elderly flood roof trapped "
+        + "house street barangay near church school help please urgent rescue boat evacuation center sick fever "
+        + "injured leg baby milk rice tarp no of at 3 5 10 2nd people stranded insulin oxygen purok sitio "
+        + "Need WATER Brgy. St. #12 (urgent) pls!! 911 -- ... caf\u00e9 ni\u00f1o").split(" ");
+
+    private final TextSimilarityService service = new TextSimilarityService();
+
+    @Test
+    void scoresMatchThePreviousImplementation() {
+        Random random = new Random(46);
+        List<String> texts = texts(random, 300);
+        for (int i = 0; i < texts.size(); i++) {
+            String text1 = texts.get(i);
+            String text2 = i % 2 == 0 ? resend(text1, random) : texts.get(random.nextInt(texts.size()));
+            String label = "'" + text1 + "' vs '" + text2 + "'";
+            assertEquals(previousSimilarity(text1, text2), service.calculateSimilarity(text1, text2), 1e-12, label);
+        }
+    }
+
+    @Test
+    void thresholdsKeepScoresThatReachThem() {
+        Random random = new Random(47);
+        List<String> texts = texts(random, 300);
+        for (int i = 0; i < texts.size(); i++) {
+            String text1 = texts.get(i);
+            String text2 = i % 2 == 0 ? resend(text1, random) : texts.get(random.nextInt(texts.size()));
+            TextProfile profile1 = TextProfile.of(text1);
+            TextProfile profile2 = TextProfile.of(text2);
+            double expected = previousSimilarity(text1, text2);
+            // The exact score, values around it, and thresholds anywhere in range
+            double[] thresholds = {expected, expected - 1e-9, expected + 1e-9, expected - 0.05, expected + 0.05,
+                random.nextDouble(), -0.5, 1.5};
+            for (double threshold : thresholds) {
+                String label = "'" + text1 + "' vs '" + text2 + "' at " + threshold;
+                double score = service.calculateSimilarity(profile1, profile2, threshold);
+                if (expected >= threshold) {
+                    assertEquals(expected, score, 1e-12, label);
+                } else {
+                    assertTrue(score < threshold, label + " scored " + score);
+                }
+            }
+        }
+    }
+
+    @Test
+    void levenshteinDistanceStopsOnlyPastTheBound() {
+        Random random = new Random(48);
+        for (int trial = 0; trial < 2000; trial++) {
+            String s1 = randomString(random, random.nextInt(trial < 1000 ? 20 : 300));
+            String s2 = random.nextBoolean() ? edit(s1, random, random.nextInt(1 + s1.length() / 4))
+                : randomString(random, random.nextInt(trial < 1000 ? 20 : 300));
+            int distance = dynamicProgrammingDistance(s1, s2);
+            int maxLength = Math.max(s1.length(), s2.length());
+            for (int bound : new int[]{0, distance - 1, distance, distance + 1, random.nextInt(maxLength + 1), maxLength}) {
+                if (bound < 0) continue;
+                String label = "'" + s1 + "' vs '" + s2 + "' within " + bound;
+                int expected = distance <= bound ? distance : bound + 1;
+                assertEquals(expected, TextSimilarityService.calculateLevenshteinDistance(s1, s2, bound), label);
+                assertEquals(expected, TextSimilarityService.calculateLevenshteinDistance(s2, s1, bound), label + " swapped");
+            }
+        }
+    }
+
+    @Test
+    void blankTextsScoreZero() {
+        for (String blank : Arrays.asList(null, "", "   ", "\t\n")) {
+            assertEquals(0.0, service.calculateSimilarity(blank, "need water"), String.valueOf(blank));
+            assertEquals(0.0, service.calculateSimilarity("need water", blank), String.valueOf(blank));
+        }
+        // Punctuation alone is not blank: it normalizes to one empty word on each side
+        assertEquals(previousSimilarity("!!!", "..."), service.calculateSimilarity("!!!", "..."), 1e-12);
+    }
+
+    /**
+     * Reports of a few to a hundred words, so that some normalize to more than two 64-character
+     * blocks, and a few that are blank or only punctuation
+     */
+    private static List<String> texts(Random random, int count) {
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 0) {
+                texts.add(i % 100 == 0 ? " " : "?!");
+                continue;
+            }
+            int words = random.nextInt(4) == 0 ? 30 + random.nextInt(70) : 1 + random.nextInt(15);
+            StringBuilder text = new StringBuilder();
+            for (int n = words; n > 0; n--) {
+                if (text.length() > 0) text.append(random.nextInt(6) == 0 ? ", " : " ");
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+
+    /**
+     * The text with words dropped, repeated and replaced
+     */
+    private static String resend(String text, Random random) {
+        List<String> words = new ArrayList<>(Arrays.asList(text.split(" ")));
+        for (int k = random.nextInt(4); k > 0 && words.size() > 1; k--) {
+            switch (random.nextInt(3)) {
+                case 0 -> words.remove(random.nextInt(words.size()));
+                case 1 -> words.add(random.nextInt(words.size() + 1), words.get(random.nextInt(words.size())));
+                default -> words.set(random.nextInt(words.size()), WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    private static String randomString(Random random, int length) {
+        String alphabet = "abcdefgh 0123";
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+
+    private static String edit(String s, Random random, int edits) {
+        StringBuilder edited = new StringBuilder(s);
+        for (int k = 0; k < edits; k++) {
+            int at = random.nextInt(edited.length() + 1);
+            char c = (char) ('a' + random.nextInt(8));
+            switch (random.nextInt(3)) {
+                case 0 -> edited.insert(at, c);
+                case 1 -> { if (at < edited.length()) edited.deleteCharAt(at); }
+                default -> { if (at < edited.length()) edited.setCharAt(at, c); }
+            }
+        }
+        return edited.toString();
+    }
+
+    private static double previousSimilarity(String text1, String text2) {
+        if (text1 == null || text2 == null || text1.trim().isEmpty() || text2.trim().isEmpty()) {
+            return 0.0;
+        }
+        String normalized1 = text1.toLowerCase().replaceAll("[^a-z0-9\\s]", " ").replaceAll("\\s+", " ").trim();
+        String normalized2 = text2.toLowerCase().replaceAll("[^a-z0-9\\s]", " ").replaceAll("\\s+", " ").trim();
+
+        Set<String> words1 = new HashSet<>(Arrays.asList(normalized1.split("\\s+")));
+        Set<String> words2 = new HashSet<>(Arrays.asList(normalized2.split("\\s+")));
+        Set<String> intersection = new HashSet<>(words1);
+        intersection.retainAll(words2);
+        Set<String> union = new HashSet<>(words1);
+        union.addAll(words2);
+        double jaccard = union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+
+        Map<String, Integer> vector1 = new HashMap<>();
+        Map<String, Integer> vector2 = new HashMap<>();
+        for (String word : normalized1.split("\\s+")) if (word.length() > 2) vector1.merge(word, 1, Integer::sum);
+        for (String word : normalized2.split("\\s+")) if (word.length() > 2) vector2.merge(word, 1, Integer::sum);
+        Set<String> allWords = new HashSet<>(vector1.keySet());
+        allWords.addAll(vector2.keySet());
+        double dot = 0, norm1 = 0, norm2 = 0;
+        for (String word : allWords) {
+            int count1 = vector1.getOrDefault(word, 0);
+            int count2 = vector2.getOrDefault(word, 0);
+            dot += count1 * count2;
+            norm1 += count1 * count1;
+            norm2 += count2 * count2;
+        }
+        double cosine = norm1 == 0 || norm2 == 0 ? 0.0 : dot / (Math.sqrt(norm1) * Math.sqrt(norm2));
+
+        int maxLength = Math.max(normalized1.length(), normalized2.length());
+        double levenshtein = maxLength == 0 ? 1.0
+            : 1.0 - (double) dynamicProgrammingDistance(normalized1, normalized2) / maxLength;
+
+        return (jaccard * 0.4) + (cosine * 0.4) + (levenshtein * 0.2);
+    }
+
+    private static int dynamicProgrammingDistance(String s1, String s2) {
+        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0) dp[i][j] = j;
+                else if (j == 0) dp[i][j] = i;
+                else dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
+                    dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1));
+            }
+        }
+        return dp[s1.length()][s2.length()];
+    }
+}
@@ -0,0 +1,176 @@
+package com.relief.service.escalation;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.entity.Task;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.repository.TaskRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Timers set from entity state and fired by {@link EscalationScheduler#tick()} under a clock the
+ * test moves, across the wheel's level boundaries and through moves, cancellations, early checks
+ * and failures
+ */
+public class EscalationSchedulerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 8, 0);
+
+    private final AutoEscalationService escalations = mock(AutoEscalationService.class);
+    private final MutableClock clock = new MutableClock(START);
+    private final EscalationScheduler scheduler = new EscalationScheduler(escalations,
+        mock(NeedsRequestRepository.class), mock(TaskRepository.class), clock);
+    private int requests;
+
+    @Test
+    void requestTimersFireAtTheirDeadlinesAcrossWheelLevels() {
+        // 30 seconds, 2 hours and 4 days ahead sit in the first, third and fourth levels
+        LocalDateTime[] deadlines = {START.plusSeconds(30), START.plusHours(2), START.plusDays(4)};
+        UUID[] ids = new UUID[deadlines.length];
+        for (int i = 0; i < deadlines.length; i++) {
+            ids[i] = scheduleRequest(deadlines[i]);
+        }
+        assertEquals(3, scheduler.size());
+
+        for (int i = 0; i < deadlines.length; i++) {
+            tickAt(deadlines[i].minusSeconds(1));
+            verify(escalations, never()).escalateRequestIfDue(ids[i]);
+            tickAt(deadlines[i]);
+            verify(escalations).escalateRequestIfDue(ids[i]);
+        }
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void movedAndCancelledTimersFollowTheLatestState() {
+        NeedsRequest moved = request();
+        deadlineFor(moved, START.plusMinutes(1));
+        scheduler.updateRequest(moved);
+        deadlineFor(moved, START.plusMinutes(10));
+        scheduler.updateRequest(moved);
+
+        NeedsRequest deleted = request();
+        deadlineFor(deleted, START.plusMinutes(1));
+        scheduler.updateRequest(deleted);
+        scheduler.removeRequest(deleted.getId());
+
+        NeedsRequest closed = request();
+        deadlineFor(closed, START.plusMinutes(1));
+        scheduler.updateRequest(closed);
+        deadlineFor(closed, null);
+        scheduler.updateRequest(closed);
+
+        tickAt(START.plusMinutes(1));
+        verify(escalations, never()).escalateRequestIfDue(any());
+        tickAt(START.plusMinutes(10));
+        verify(escalations).escalateRequestIfDue(moved.getId());
+        verify(escalations, never()).escalateRequestIfDue(deleted.getId());
+        verify(escalations, never()).escalateRequestIfDue(closed.getId());
+    }
+
+    @Test
+    void requestNotYetDueIsCheckedAgainAtItsNewDeadline() {
+        UUID id = scheduleRequest(START.plusMinutes(1));
+        when(escalations.escalateRequestIfDue(id)).thenReturn(START.plusMinutes(5), (LocalDateTime) null);
+
+        tickAt(START.plusMinutes(1));
+        tickAt(START.plusMinutes(5).minusSeconds(1));
+        verify(escalations, times(1)).escalateRequestIfDue(id);
+        tickAt(START.plusMinutes(5));
+        verify(escalations, times(2)).escalateRequestIfDue(id);
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void failedEscalationIsRetriedAfterAMinute() {
+        UUID id = scheduleRequest(START.plusMinutes(1));
+        when(escalations.escalateRequestIfDue(id)).thenThrow(new IllegalStateException("database unavailable"))
+            .thenReturn(null);
+
+        tickAt(START.plusMinutes(1));
+        tickAt(START.plusMinutes(2).minusSeconds(1));
+        verify(escalations, times(1)).escalateRequestIfDue(id);
+        tickAt(START.plusMinutes(2));
+        verify(escalations, times(2)).escalateRequestIfDue(id);
+    }
+
+    @Test
+    void taskTimersFireAndCancelLikeRequests() {
+        Task overdue = Task.builder().id(UUID.randomUUID()).status("assigned").eta(START.plusMinutes(3)).build();
+        Task removed = Task.builder().id(UUID.randomUUID()).status("assigned").eta(START.plusMinutes(2)).build();
+        when(escalations.taskEscalationDeadline(eq("assigned"), any(), anyBoolean()))
+            .thenAnswer(call -> call.getArgument(1));
+        scheduler.updateTask(overdue);
+        scheduler.updateTask(removed);
+        scheduler.removeTask(removed.getId());
+
+        tickAt(START.plusMinutes(3));
+        verify(escalations).escalateTaskIfDue(overdue.getId());
+        verify(escalations, never()).escalateTaskIfDue(removed.getId());
+        verify(escalations, never()).escalateRequestIfDue(any());
+    }
+
+    private UUID scheduleRequest(LocalDateTime deadline) {
+        NeedsRequest request = request();
+        deadlineFor(request, deadline);
+        scheduler.updateRequest(request);
+        return request.getId();
+    }
+
+    /**
+     * Requests are told apart by creation time, which the stubbed deadline rule keys on
+     */
+    private NeedsRequest request() {
+        return NeedsRequest.builder().id(UUID.randomUUID()).type("sos").status("new").severity(5)
+            .createdAt(START.minusSeconds(++requests)).build();
+    }
+
+    private void deadlineFor(NeedsRequest request, LocalDateTime deadline) {
+        when(escalations.requestEscalationDeadline(any(), any(), any(), eq(request.getCreatedAt())))
+            .thenReturn(deadline);
+    }
+
+    private void tickAt(LocalDateTime time) {
+        clock.set(time);
+        scheduler.tick();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(LocalDateTime start) {
+            set(start);
+        }
+
+        void set(LocalDateTime time) {
+            now = time.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.relief.service.indoor;
+
+import com.relief.domain.indoor.IndoorEdge;
+import com.relief.domain.indoor.IndoorNode;
+import com.relief.domain.indoor.IndoorRouteType;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routes over the compressed sparse row graph against Dijkstra over the plain edge list, on
+ * random maps with one-way, closed, restricted and emergency-only edges, plus the flag overlay,
+ * the incoming-arc index and the local frame fit
+ */
+public class IndoorGraphTest {
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory();
+    private static final IndoorRouteType[] ROUTE_TYPES = {
+        IndoorRouteType.SHORTEST_PATH, IndoorRouteType.EMERGENCY_EVACUATION
+    };
+
+    @Test
+    void shortestPathMatchesEdgeListDijkstra() {
+        Random random = new Random(28);
+        for (int trial = 0; trial < 200; trial++) {
+            List<IndoorNode> nodes = nodes(2 + random.nextInt(30));
+            List<IndoorEdge> edges = randomEdges(random, nodes, random.nextInt(nodes.size() * 3));
+            IndoorGraph graph = IndoorGraph.build(1L, nodes, edges);
+
+            for (int query = 0; query < 10; query++) {
+                int from = random.nextInt(nodes.size());
+                int to = random.nextInt(nodes.size());
+                for (IndoorRouteType routeType : ROUTE_TYPES) {
+                    String label = "trial " + trial + " " + from + "->" + to + " " + routeType;
+                    double expected = reference(nodes.size(), edges, from, to, routeType);
+                    IndoorGraph.Path path = graph.shortestPath(from, to, routeType);
+                    if (Double.isInfinite(expected)) {
+                        assertNull(path, label);
+                        continue;
+                    }
+                    assertNotNull(path, label);
+                    assertEquals(expected, path.cost(), 1e-9, label);
+                    assertEquals(from, path.nodes()[0], label);
+                    assertEquals(to, path.nodes()[path.nodes().length - 1], label);
+                    assertEquals(path.cost(), walkCost(graph, path, routeType), 1e-9, label);
+                }
+            }
+        }
+    }
+
+    @Test
+    void oneWayEdgeIsNotWalkedBackwards() {
+        List<IndoorNode> nodes = nodes(3);
+        IndoorGraph graph = IndoorGraph.build(1L, nodes, List.of(
+            edge(1, nodes.get(0), nodes.get(1), 5, false),
+            edge(2, nodes.get(1), nodes.get(2), 5, true)));
+
+        assertArrayEquals(new int[] {0, 1, 2}, graph.shortestPath(0, 2, IndoorRouteType.SHORTEST_PATH).nodes());
+        assertNull(graph.shortestPath(2, 0, IndoorRouteType.SHORTEST_PATH));
+        assertEquals(3, graph.arcCount());
+    }
+
+    @Test
+    void weightScalesCostButNotDistance() {
+        List<IndoorNode> nodes = nodes(3);
+        IndoorEdge direct = edge(1, nodes.get(0), nodes.get(2), 10, true);
+        direct.setWeight(3.0);
+        IndoorGraph graph = IndoorGraph.build(1L, nodes, List.of(direct,
+            edge(2, nodes.get(0), nodes.get(1), 8, true),
+            edge(3, nodes.get(1), nodes.get(2), 8, true)));
+
+        IndoorGraph.Path path = graph.shortestPath(0, 2, IndoorRouteType.SHORTEST_PATH);
+
+        // 30 weighted for the direct corridor against 16 around it
+        assertArrayEquals(new int[] {0, 1, 2}, path.nodes());
+        assertEquals(16, path.distance(), 1e-9);
+        assertEquals(16, path.cost(), 1e-9);
+    }
+
+    @Test
+    void edgeFlagOverlayReroutesWithoutTouchingTheOriginal() {
+        List<IndoorNode> nodes = nodes(4);
+        List<IndoorEdge> edges = List.of(
+            edge(10, nodes.get(0), nodes.get(1), 1, true),
+            edge(11, nodes.get(1), nodes.get(3), 1, true),
+            edge(12, nodes.get(0), nodes.get(2), 2, true),
+            edge(13, nodes.get(2), nodes.get(3), 2, true));
+        IndoorGraph graph = IndoorGraph.build(1L, nodes, edges);
+
+        IndoorGraph closed = graph.withEdgeFlags(11L, false, false);
+
+        assertArrayEquals(new int[] {0, 1, 3}, graph.shortestPath(0, 3, IndoorRouteType.SHORTEST_PATH).nodes());
+        assertArrayEquals(new int[] {0, 2, 3}, closed.shortestPath(0, 3, IndoorRouteType.SHORTEST_PATH).nodes());
+        BitSet changed = closed.changedArcs(graph);
+        assertEquals(2, changed.cardinality(), "both directions of the closed edge");
+        for (int arc = changed.nextSetBit(0); arc >= 0; arc = changed.nextSetBit(arc + 1)) {
+            assertTrue(graph.arcSource(arc) == 1 || graph.arcSource(arc) == 3);
+        }
+
+        IndoorGraph restricted = closed.withEdgeFlags(11L, true, true);
+        assertArrayEquals(new int[] {0, 2, 3}, restricted.shortestPath(0, 3, IndoorRouteType.SHORTEST_PATH).nodes());
+        assertArrayEquals(new int[] {0, 1, 3},
+            restricted.withEdgeFlags(11L, true, false).shortestPath(0, 3, IndoorRouteType.SHORTEST_PATH).nodes());
+
+        assertSame(graph, graph.withEdgeFlags(99L, false, false));
+        assertNull(graph.changedArcs(IndoorGraph.build(1L, nodes, edges)), "different topology arrays");
+    }
+
+    @Test
+    void edgesToUnknownNodesAreIgnored() {
+        List<IndoorNode> nodes = nodes(2);
+        IndoorNode stranger = IndoorNode.builder().id(99L).build();
+        IndoorGraph graph = IndoorGraph.build(1L, nodes, List.of(
+            edge(1, nodes.get(0), stranger, 1, true),
+            edge(2, nodes.get(0), nodes.get(1), 4, true)));
+
+        assertEquals(2, graph.arcCount());
+        assertTrue(graph.indexOf(99L).isEmpty());
+        assertEquals(1, graph.indexOf(nodes.get(1).getId()).getAsInt());
+    }
+
+    @Test
+    void incomingIndexListsEveryArcAtItsTarget() {
+        Random random = new Random(280);
+        List<IndoorNode> nodes = nodes(40);
+        IndoorGraph graph = IndoorGraph.build(1L, nodes, randomEdges(random, nodes, 120));
+
+        int[] seen = new int[graph.arcCount()];
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            for (int k = graph.inStart(node); k < graph.inEnd(node); k++) {
+                int arc = graph.inArc(k);
+                assertEquals(node, graph.arcTarget(arc));
+                seen[arc]++;
+            }
+            for (int arc = graph.outStart(node); arc < graph.outEnd(node); arc++) {
+                assertEquals(node, graph.arcSource(arc));
+            }
+        }
+        int[] once = new int[graph.arcCount()];
+        Arrays.fill(once, 1);
+        assertArrayEquals(once, seen);
+    }
+
+    @Test
+    void localFrameInvertsTheNodePlacement() {
+        // Local axes rotated 30 degrees from east/north, 2 local units per metre, offset 100, 50
+        double angle = Math.toRadians(30);
+        double lon0 = 13.4, lat0 = 52.5;
+        double metersPerDegreeLon = 111_320.0 * Math.cos(Math.toRadians(lat0));
+        List<IndoorNode> nodes = new ArrayList<>();
+        Random random = new Random(2828);
+        for (int i = 0; i < 12; i++) {
+            double east = random.nextDouble() * 80, north = random.nextDouble() * 60;
+            nodes.add(IndoorNode.builder()
+                .id((long) i + 1)
+                .position(GEOMETRY.createPoint(new Coordinate(lon0 + east / metersPerDegreeLon, lat0 + north / 110_540.0)))
+                .localX(100 + 2 * (Math.cos(angle) * east - Math.sin(angle) * north))
+                .localY(50 + 2 * (Math.sin(angle) * east + Math.cos(angle) * north))
+                .build());
+        }
+        IndoorGraph graph = IndoorGraph.build(1L, nodes, List.of());
+
+        for (IndoorNode node : nodes) {
+            double[] local = graph.toLocal(node.getPosition().getX(), node.getPosition().getY());
+            assertEquals(node.getLocalX(), local[0], 1e-6, "x of node " + node.getId());
+            assertEquals(node.getLocalY(), local[1], 1e-6, "y of node " + node.getId());
+        }
+    }
+
+    @Test
+    void collinearNodesHaveNoLocalFrame() {
+        List<IndoorNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(IndoorNode.builder()
+                .id((long) i + 1)
+                .position(GEOMETRY.createPoint(new Coordinate(13.4 + i * 1e-4, 52.5)))
+                .localX((double) i)
+                .localY(0.0)
+                .build());
+        }
+
+        assertNull(IndoorGraph.build(1L, nodes, List.of()).toLocal(13.4, 52.5));
+        assertNull(IndoorGraph.build(1L, nodes.subList(0, 2), List.of()).toLocal(13.4, 52.5));
+    }
+
+    private static List<IndoorNode> nodes(int count) {
+        List<IndoorNode> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Ids apart from indices, so a mix-up between the two shows
+            nodes.add(IndoorNode.builder().id(1000L + i).build());
+        }
+        return nodes;
+    }
+
+    private static List<IndoorEdge> randomEdges(Random random, List<IndoorNode> nodes, int count) {
+        List<IndoorEdge> edges = new ArrayList<>(count);
+        for (int e = 0; e < count; e++) {
+            IndoorEdge edge = edge(e + 1, nodes.get(random.nextInt(nodes.size())),
+                nodes.get(random.nextInt(nodes.size())), 1 + random.nextInt(20), random.nextInt(4) != 0);
+            edge.setWeight(random.nextInt(3) == 0 ? 1.0 + random.nextInt(4) / 2.0 : null);
+            edge.setIsAccessible(random.nextInt(8) == 0 ? Boolean.FALSE : random.nextBoolean() ? Boolean.TRUE : null);
+            edge.setIsRestricted(random.nextInt(10) == 0);
+            edge.setIsEmergencyRoute(random.nextInt(2) == 0);
+            edges.add(edge);
+        }
+        return edges;
+    }
+
+    private static IndoorEdge edge(long id, IndoorNode from, IndoorNode to, double distance, boolean bidirectional) {
+        return IndoorEdge.builder()
+            .id(id)
+            .fromNode(from)
+            .toNode(to)
+            .distance(distance)
+            .weight(1.0)
+            .isBidirectional(bidirectional)
+            .isAccessible(true)
+            .isRestricted(false)
+            .isEmergencyRoute(true)
+            .build();
+    }
+
+    /**
+     * Quadratic Dijkstra straight off the edge list, with the entity flags read directly
+     */
+    private static double reference(int n, List<IndoorEdge> edges, int from, int to, IndoorRouteType routeType) {
+        double[] best = new double[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        best[from] = 0;
+        for (int round = 0; round < n; round++) {
+            int current = -1;
+            for (int i = 0; i < n; i++) {
+                if (!done[i] && (current < 0 || best[i] < best[current])) current = i;
+            }
+            if (current < 0 || Double.isInfinite(best[current])) break;
+            done[current] = true;
+            for (IndoorEdge edge : edges) {
+                if (Boolean.FALSE.equals(edge.getIsAccessible()) || edge.getIsRestricted()) continue;
+                if (routeType == IndoorRouteType.EMERGENCY_EVACUATION && !edge.getIsEmergencyRoute()) continue;
+                double cost = edge.getDistance() * (edge.getWeight() != null ? edge.getWeight() : 1.0);
+                int source = (int) (edge.getFromNode().getId() - 1000);
+                int target = (int) (edge.getToNode().getId() - 1000);
+                if (source == current) best[target] = Math.min(best[target], best[current] + cost);
+                if (edge.getIsBidirectional() && target == current) {
+                    best[source] = Math.min(best[source], best[current] + cost);
+                }
+            }
+        }
+        return best[to];
+    }
+
+    /**
+     * Cost of the path re-priced from the cheapest traversable arc between each pair of nodes
+     */
+    private static double walkCost(IndoorGraph graph, IndoorGraph.Path path, IndoorRouteType routeType) {
+        double cost = 0;
+        for (int i = 1; i < path.nodes().length; i++) {
+            int source = path.nodes()[i - 1];
+            double step = Double.POSITIVE_INFINITY;
+            for (int arc = graph.outStart(source); arc < graph.outEnd(source); arc++) {
+                if (graph.arcTarget(arc) == path.nodes()[i] && graph.isTraversable(arc, routeType)) {
+                    step = Math.min(step, graph.arcCost(arc));
+                }
+            }
+            assertFalse(Double.isInfinite(step), "no arc " + source + "->" + path.nodes()[i]);
+            cost += step;
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,261 @@
+package com.relief.service.indoor;
+
+import com.relief.domain.indoor.IndoorEdge;
+import com.relief.domain.indoor.IndoorNode;
+import com.relief.domain.indoor.PositioningMethod;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Kalman gating, track resets, snapping onto graph edges and the conversion into the map's local
+ * frame, with positions written in metres east and north of a fixed origin
+ */
+public class IndoorTrackFilterTest {
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory();
+    private static final double LON0 = 13.4;
+    private static final double LAT0 = 52.5;
+    private static final double METERS_PER_DEGREE_LON = 111_320.0 * Math.cos(Math.toRadians(LAT0));
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+    private static final PositioningMethod BEACON = PositioningMethod.BLUETOOTH_BEACONS;
+
+    @Test
+    void firstFixStartsTheTrackAtTheReading() {
+        IndoorTrackFilter track = track(4, 3);
+
+        assertTrue(fix(track, 4, 3, 0, 2.0, 1_000, null));
+
+        assertEquals(4, east(track), 1e-6);
+        assertEquals(3, north(track), 1e-6);
+        assertEquals(2.0, track.accuracy(), 1e-9);
+        assertEquals(0, (int) track.floorLevel());
+        assertEquals(1_000, track.timestampMillis());
+    }
+
+    @Test
+    void nearbyFixIsBlendedAndTightensTheEstimate() {
+        IndoorTrackFilter track = track(0, 0);
+        fix(track, 0, 0, 0, 2.0, 0, null);
+
+        assertTrue(fix(track, 2, 0, 0, 2.0, 1_000, null));
+
+        // The prior has grown a little over the second, so the gain is just over one half
+        assertTrue(east(track) > 1.0 && east(track) < 1.2, "east " + east(track));
+        assertEquals(0, north(track), 1e-6);
+        assertTrue(track.accuracy() < 2.0, "accuracy " + track.accuracy());
+    }
+
+    @Test
+    void outliersAreGatedUntilTheyRepeat() {
+        IndoorTrackFilter track = track(0, 0);
+        for (int second = 0; second < 5; second++) {
+            assertTrue(fix(track, 0, 0, 0, 1.0, second * 1_000L, null));
+        }
+
+        // 50 m in a second is far outside five standard deviations
+        assertFalse(fix(track, 50, 0, 0, 1.0, 5_000, null));
+        assertFalse(fix(track, 50, 0, 0, 1.0, 6_000, null));
+        assertEquals(0, east(track), 0.1, "rejected fixes leave the estimate");
+
+        // The third consecutive rejection restarts the track where the readings now are
+        assertTrue(fix(track, 50, 0, 0, 1.0, 7_000, null));
+        assertEquals(50, east(track), 1e-6);
+        assertEquals(1.0, track.accuracy(), 1e-9);
+        assertEquals(0, track.speed(), 1e-9);
+    }
+
+    @Test
+    void acceptedFixClearsTheRejectionCount() {
+        IndoorTrackFilter track = track(0, 0);
+        fix(track, 0, 0, 0, 1.0, 0, null);
+
+        assertFalse(fix(track, 50, 0, 0, 1.0, 1_000, null));
+        assertFalse(fix(track, 50, 0, 0, 1.0, 2_000, null));
+        assertTrue(fix(track, 0.5, 0, 0, 1.0, 3_000, null));
+        assertFalse(fix(track, 50, 0, 0, 1.0, 4_000, null), "counting starts again");
+    }
+
+    @Test
+    void staleReadingIsRejected() {
+        IndoorTrackFilter track = track(0, 0);
+        fix(track, 0, 0, 0, 1.0, 10_000, null);
+
+        assertFalse(fix(track, 0.2, 0, 0, 1.0, 9_999, null));
+        assertEquals(10_000, track.timestampMillis());
+    }
+
+    @Test
+    void floorChangeResetsInsteadOfGating() {
+        IndoorTrackFilter track = track(0, 0);
+        fix(track, 0, 0, 0, 1.0, 0, null);
+
+        assertTrue(fix(track, 40, 30, 2, 1.0, 500, null));
+
+        assertEquals(2, (int) track.floorLevel());
+        assertEquals(40, east(track), 1e-6);
+        assertEquals(30, north(track), 1e-6);
+    }
+
+    @Test
+    void deadReckoningUpdatesVelocity() {
+        IndoorTrackFilter track = track(0, 0);
+        fix(track, 0, 0, 0, 1.0, 0, null);
+
+        assertTrue(track.update(lon(0), lat(0), 0, 1.0, 1.4, 90.0, PositioningMethod.PEDESTRIAN_DEAD_RECKONING,
+            1_000, null));
+
+        assertTrue(track.speed() > 0.5, "speed " + track.speed());
+        assertEquals(90, track.heading(), 1e-6, "due east");
+
+        // Beacons report no motion even when a speed is attached
+        IndoorTrackFilter beacon = track(0, 0);
+        fix(beacon, 0, 0, 0, 1.0, 0, null);
+        beacon.update(lon(0), lat(0), 0, 1.0, 1.4, 90.0, BEACON, 1_000, null);
+        assertEquals(0, beacon.speed(), 1e-9);
+    }
+
+    @Test
+    void fixNearAnEdgeSnapsOntoItAndInterpolatesLocalCoordinates() {
+        // Corridor A-B along the east axis, 20 m long, 2 local units per metre
+        IndoorGraph graph = graph(List.of(
+            node(1, 0, 0, 0, 100, 200),
+            node(2, 20, 0, 0, 140, 200)));
+        IndoorTrackFilter track = track(10, 2);
+
+        assertTrue(fix(track, 10, 2, 0, 2.0, 0, graph));
+
+        assertEquals(10, east(track), 1e-3);
+        assertEquals(0, north(track), 1e-3);
+        assertTrue(track.snappedArc() >= 0);
+        int[] ends = {graph.arcSource(track.snappedArc()), graph.arcTarget(track.snappedArc())};
+        assertTrue((ends[0] == 0 && ends[1] == 1) || (ends[0] == 1 && ends[1] == 0), "corridor arc");
+        double[] local = track.mapLocalCoordinates(graph);
+        assertEquals(120, local[0], 1e-2);
+        assertEquals(200, local[1], 1e-2);
+
+        // Moving along the corridor keeps it on the same edge
+        assertTrue(fix(track, 16, 1, 0, 2.0, 1_000, graph));
+        assertEquals(0, north(track), 1e-3);
+        assertTrue(east(track) > 10 && east(track) <= 16, "east " + east(track));
+        assertEquals(1, track.snappedNode(), "past the middle, B is nearer");
+        assertEquals(100 + 2 * east(track), track.mapLocalCoordinates(graph)[0], 1e-2);
+    }
+
+    @Test
+    void fixAwayFromEveryEdgeAnchorsToTheNearestNode() {
+        IndoorGraph graph = graph(List.of(
+            node(1, 0, 0, 0, 100, 200),
+            node(2, 20, 0, 0, 140, 200)));
+        IndoorTrackFilter track = track(3, 8);
+
+        fix(track, 3, 8, 0, 2.0, 0, graph);
+
+        // Off the corridor the estimate stays where it was measured
+        assertEquals(3, east(track), 1e-6);
+        assertEquals(8, north(track), 1e-6);
+        assertEquals(-1, track.snappedArc());
+        assertEquals(0, track.snappedNode());
+        // Two nodes cannot fix a frame, so the anchor's coordinates stand in
+        assertArrayEquals(new double[] {100, 200}, track.mapLocalCoordinates(graph), 1e-9);
+    }
+
+    @Test
+    void offEdgeEstimateUsesTheFittedFrame() {
+        IndoorGraph graph = graph(List.of(
+            node(1, 0, 0, 0, 100, 200),
+            node(2, 20, 0, 0, 140, 200),
+            node(3, 0, 20, 0, 100, 240)));
+        IndoorTrackFilter track = track(30, 30);
+
+        fix(track, 30, 30, 0, 2.0, 0, graph);
+
+        assertEquals(-1, track.snappedArc());
+        double[] local = track.mapLocalCoordinates(graph);
+        assertEquals(160, local[0], 1e-2);
+        assertEquals(260, local[1], 1e-2);
+    }
+
+    @Test
+    void nodesOnOtherFloorsAreIgnored() {
+        IndoorGraph graph = graph(List.of(
+            node(1, 0, 0, 0, 100, 200),
+            node(2, 20, 0, 0, 140, 200),
+            node(3, 10, 3, 1, 0, 0),
+            node(4, 10, -3, 1, 0, 0)));
+        IndoorTrackFilter track = track(10, 2.5);
+
+        fix(track, 10, 2.5, 0, 2.0, 0, graph);
+
+        // The floor-1 edge passes right under the reading, but the track is on floor 0
+        assertEquals(0, north(track), 1e-3);
+        int arc = track.snappedArc();
+        assertTrue(graph.arcSource(arc) < 2 && graph.arcTarget(arc) < 2, "floor-0 corridor");
+    }
+
+    @Test
+    void withoutGraphLocalCoordinatesAreTheOrigin() {
+        IndoorTrackFilter track = track(5, 5);
+        fix(track, 5, 5, 0, 1.0, 0, null);
+
+        assertArrayEquals(new double[] {0, 0}, track.mapLocalCoordinates(null), 0.0);
+        assertEquals(-1, track.snappedNode());
+    }
+
+    private static IndoorTrackFilter track(double east, double north) {
+        return new IndoorTrackFilter(1L, lon(east), lat(north));
+    }
+
+    private static boolean fix(IndoorTrackFilter track, double east, double north, int floor, double accuracy,
+                               long timestampMillis, IndoorGraph graph) {
+        return track.update(lon(east), lat(north), floor, accuracy, null, null, BEACON, timestampMillis, graph);
+    }
+
+    private static double lon(double east) {
+        return LON0 + east / METERS_PER_DEGREE_LON;
+    }
+
+    private static double lat(double north) {
+        return LAT0 + north / METERS_PER_DEGREE_LAT;
+    }
+
+    private static double east(IndoorTrackFilter track) {
+        return (track.longitude() - LON0) * METERS_PER_DEGREE_LON;
+    }
+
+    private static double north(IndoorTrackFilter track) {
+        return (track.latitude() - LAT0) * METERS_PER_DEGREE_LAT;
+    }
+
+    private static IndoorNode node(long id, double east, double north, int floor, double localX, double localY) {
+        return IndoorNode.builder()
+            .id(id)
+            .position(GEOMETRY.createPoint(new Coordinate(lon(east), lat(north))))
+            .localX(localX)
+            .localY(localY)
+            .floorLevel(floor)
+            .build();
+    }
+
+    /**
+     * Nodes joined pairwise in list order by bidirectional edges
+     */
+    private static IndoorGraph graph(List<IndoorNode> nodes) {
+        List<IndoorEdge> edges = new ArrayList<>();
+        for (int i = 0; i + 1 < nodes.size(); i += 2) {
+            edges.add(IndoorEdge.builder()
+                .id((long) i)
+                .fromNode(nodes.get(i))
+                .toNode(nodes.get(i + 1))
+                .distance(20.0)
+                .isBidirectional(true)
+                .build());
+        }
+        return IndoorGraph.build(1L, nodes, edges);
+    }
+}
@@ -0,0 +1,192 @@
+package com.relief.service.inventory;
+
+import com.relief.exception.BadRequestException;
+import com.relief.repository.InventoryHubRepository;
+import com.relief.repository.InventoryStockRepository;
+import com.relief.repository.ItemCatalogRepository;
+import com.relief.repository.StockMovementRepository;
+import com.relief.service.InventoryService;
+import com.relief.service.InventoryService.MovementLine;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Batches of scanned movement lines applied through the real reservation engine and ledger:
+ * credits land before debits, a failing line leaves neither stock nor ledger changed, and ledger
+ * rows reach the database only as the transaction commits.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class InventoryServiceMovementsTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+    private static InventoryService inventory;
+
+    private final UUID hubId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private final UUID water = UUID.randomUUID();
+    private final UUID blankets = UUID.randomUUID();
+
+    @BeforeAll
+    static void setUpDatabase() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(POSTGRES.getJdbcUrl());
+        config.setUsername(POSTGRES.getUsername());
+        config.setPassword(POSTGRES.getPassword());
+        dataSource = new HikariDataSource(config);
+        jdbc = new JdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        inventory = new InventoryService(mock(InventoryHubRepository.class), mock(InventoryStockRepository.class),
+            mock(ItemCatalogRepository.class), mock(StockMovementRepository.class),
+            new StockReservationEngine(jdbc), new StockMovementLedger(jdbc), mock(InventorySnapshot.class));
+        jdbc.execute("""
+            CREATE TABLE inventory_stock (
+                id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+                hub_id UUID,
+                item_id UUID,
+                qty_available INTEGER DEFAULT 0 CHECK (qty_available >= 0),
+                qty_reserved INTEGER DEFAULT 0 CHECK (qty_reserved >= 0),
+                updated_at TIMESTAMPTZ DEFAULT now(),
+                UNIQUE(hub_id, item_id)
+            )
+            """);
+        jdbc.execute("""
+            CREATE TABLE stock_movements (
+                id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+                hub_id UUID,
+                item_id UUID,
+                movement_type VARCHAR(50) NOT NULL
+                    CHECK (movement_type IN ('in', 'out', 'reserve', 'release', 'adjustment')),
+                quantity INTEGER NOT NULL,
+                reason TEXT,
+                user_id UUID,
+                created_at TIMESTAMPTZ DEFAULT now()
+            )
+            """);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        if (dataSource != null) dataSource.close();
+    }
+
+    @BeforeEach
+    void seedStock() {
+        // Water is out of stock; blankets are all reserved
+        jdbc.update("INSERT INTO inventory_stock (hub_id, item_id, qty_available, qty_reserved) VALUES (?, ?, 0, 0)",
+            hubId, water);
+        jdbc.update("INSERT INTO inventory_stock (hub_id, item_id, qty_available, qty_reserved) VALUES (?, ?, 0, 4)",
+            hubId, blankets);
+    }
+
+    @Test
+    void creditsApplyBeforeDebitsWhateverTheLineOrder() {
+        List<MovementLine> lines = List.of(
+            new MovementLine(hubId, water, "out", 30, "Issued to shelter"),
+            new MovementLine(hubId, blankets, "reserve", 4, null),
+            new MovementLine(hubId, water, "in", 50, "Container received"),
+            new MovementLine(hubId, blankets, "release", 4, null));
+
+        int applied = transactions.execute(status -> inventory.applyMovements(lines, userId));
+
+        assertEquals(4, applied);
+        assertArrayEquals(new int[] {20, 0}, stock(water));
+        assertArrayEquals(new int[] {0, 4}, stock(blankets));
+        // One ledger row per line, with the line's reason or the bulk default
+        assertEquals(List.of(
+                "in 50 Container received",
+                "out 30 Issued to shelter",
+                "release 4 Bulk stock movement",
+                "reserve 4 Bulk stock movement"),
+            jdbc.queryForList("""
+                SELECT movement_type || ' ' || quantity || ' ' || reason FROM stock_movements
+                WHERE hub_id = ? AND user_id = ? ORDER BY movement_type
+                """, String.class, hubId, userId));
+    }
+
+    @Test
+    void failingLineLeavesStockAndLedgerUnchanged() {
+        List<MovementLine> lines = List.of(
+            new MovementLine(hubId, water, "in", 50, null),
+            new MovementLine(hubId, blankets, "release", 3, null),
+            new MovementLine(hubId, water, "out", 51, null));
+
+        assertThrows(BadRequestException.class,
+            () -> transactions.execute(status -> inventory.applyMovements(lines, userId)));
+
+        assertArrayEquals(new int[] {0, 0}, stock(water));
+        assertArrayEquals(new int[] {0, 4}, stock(blankets));
+        assertEquals(0, ledgerCount());
+    }
+
+    @Test
+    void unsupportedMovementTypeIsRejectedBeforeAnyChange() {
+        List<MovementLine> lines = List.of(
+            new MovementLine(hubId, water, "in", 5, null),
+            new MovementLine(hubId, water, "adjustment", 1, null));
+
+        assertThrows(BadRequestException.class,
+            () -> transactions.execute(status -> inventory.applyMovements(lines, userId)));
+
+        assertArrayEquals(new int[] {0, 0}, stock(water));
+        assertEquals(0, ledgerCount());
+    }
+
+    @Test
+    void ledgerIsWrittenOnlyAsTheTransactionCommits() {
+        List<MovementLine> lines = List.of(
+            new MovementLine(hubId, water, "in", 10, null),
+            new MovementLine(hubId, water, "out", 4, null));
+
+        long seenInside = transactions.execute(status -> {
+            inventory.applyMovements(lines, userId);
+            // Same connection, so rows already inserted would be visible here
+            return ledgerCount();
+        });
+
+        assertEquals(0, seenInside);
+        assertEquals(2, ledgerCount());
+        assertArrayEquals(new int[] {6, 0}, stock(water));
+    }
+
+    @Test
+    void rolledBackTransactionWritesNoLedgerRows() {
+        transactions.executeWithoutResult(status -> {
+            inventory.applyMovements(List.of(new MovementLine(hubId, water, "in", 10, null)), userId);
+            status.setRollbackOnly();
+        });
+
+        assertArrayEquals(new int[] {0, 0}, stock(water));
+        assertEquals(0, ledgerCount());
+    }
+
+    private int[] stock(UUID itemId) {
+        return jdbc.queryForObject(
+            "SELECT qty_available, qty_reserved FROM inventory_stock WHERE hub_id = ? AND item_id = ?",
+            (rs, row) -> new int[] {rs.getInt(1), rs.getInt(2)}, hubId, itemId);
+    }
+
+    private long ledgerCount() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM stock_movements WHERE hub_id = ?", Long.class, hubId);
+    }
+}
@@ -0,0 +1,66 @@
+package com.relief.service.inventory;
+
+import com.relief.exception.BadRequestException;
+import com.relief.repository.InventoryStockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Paging through snapshot rows in hub and item order, the low-stock filter and counts, and the
+ * page numbers and sizes that are rejected
+ */
+public class InventorySnapshotTest {
+
+    private final InventoryStockRepository repository = mock(InventoryStockRepository.class);
+    private final InventorySnapshot snapshot = new InventorySnapshot(repository, 10);
+    private final UUID north = UUID.randomUUID();
+    private final UUID south = UUID.randomUUID();
+
+    @Test
+    void pagesFollowHubAndItemOrder() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(row(south, "South", "Item " + i, 20));
+            rows.add(row(north, "North", "Item " + i, i * 5));
+        }
+        when(repository.findSnapshotRows()).thenReturn(rows);
+        snapshot.reload();
+
+        Page<InventorySnapshot.StockRow> first = snapshot.find(null, null, false, 0, 4);
+        assertEquals(10, first.getTotalElements());
+        assertEquals(List.of("North", "North", "North", "North"), first.map(InventorySnapshot.StockRow::hubName).getContent());
+        assertEquals(List.of("Item 0", "Item 1", "Item 2", "Item 3"),
+            first.map(InventorySnapshot.StockRow::itemName).getContent());
+        assertEquals(List.of("Item 0", "Item 1"),
+            snapshot.find(null, null, false, 2, 4).map(InventorySnapshot.StockRow::itemName).getContent());
+        assertTrue(snapshot.find(null, null, false, 5, 4).getContent().isEmpty(), "past the last page");
+
+        Page<InventorySnapshot.StockRow> low = snapshot.find(north, null, true, 0, 50);
+        assertEquals(List.of("Item 0", "Item 1"), low.map(InventorySnapshot.StockRow::itemName).getContent());
+        assertEquals(new InventorySnapshot.StockCounts(5, 2, 1), snapshot.hubCounts(north));
+        assertEquals(new InventorySnapshot.StockCounts(10, 2, 1), snapshot.totals());
+    }
+
+    @Test
+    void invalidPagesAreRejected() {
+        assertThrows(BadRequestException.class, () -> snapshot.find(null, null, false, -1, 50));
+        assertThrows(BadRequestException.class, () -> snapshot.find(null, null, false, 0, 0));
+        assertThrows(BadRequestException.class,
+            () -> snapshot.find(null, null, false, 0, InventorySnapshot.MAX_PAGE_SIZE + 1));
+        assertTrue(snapshot.find(null, null, false, 0, InventorySnapshot.MAX_PAGE_SIZE).getContent().isEmpty());
+    }
+
+    private static Object[] row(UUID hubId, String hubName, String itemName, int available) {
+        return new Object[]{UUID.randomUUID(), hubId, hubName, UUID.randomUUID(), itemName.toUpperCase(), itemName,
+            "box", available, 0, LocalDateTime.of(2024, 5, 1, 12, 0)};
+    }
+}
@@ -0,0 +1,90 @@
+package com.relief.service.inventory;
+
+import com.relief.entity.InventoryHub;
+import com.relief.entity.ItemCatalog;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Solving transfer plans for 2000 items over 300 hubs spread across a 200 km square, with a third
+ * of the hubs short of every item: the worst case of a cold run, where no item can be reused from
+ * the previous plan. Run {@link #main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class RebalancingPlannerBenchmark {
+
+    private static final int HUBS = 300;
+    private static final int ITEMS = 2000;
+
+    private List<InventoryHub> hubs;
+    private List<ItemCatalog> items;
+    private List<int[]> balances;
+    private RebalancingPlanner.HubCosts costs;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] x = new double[HUBS];
+        double[] y = new double[HUBS];
+        hubs = new ArrayList<>(HUBS);
+        for (int h = 0; h < HUBS; h++) {
+            x[h] = random.nextDouble() * 200_000;
+            y[h] = random.nextDouble() * 200_000;
+            hubs.add(InventoryHub.builder().id(UUID.randomUUID()).name("Hub " + h).build());
+        }
+        // Straight-line seconds at 40 km/h
+        long[] hubToHub = new long[HUBS * HUBS];
+        for (int from = 0; from < HUBS; from++) {
+            for (int to = 0; to < HUBS; to++) {
+                hubToHub[from * HUBS + to] = Math.round(Math.hypot(x[from] - x[to], y[from] - y[to]) / 11.1);
+            }
+        }
+        costs = new RebalancingPlanner.HubCosts(hubToHub, RebalancingPlanner.nearestSources(hubToHub, HUBS), new int[0]);
+
+        items = new ArrayList<>(ITEMS);
+        balances = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(ItemCatalog.builder().id(UUID.randomUUID()).code("SKU_" + i).build());
+            int[] balance = new int[HUBS];
+            for (int h = 0; h < HUBS; h++) {
+                balance[h] = random.nextInt(3) == 0 ? -random.nextInt(200) : random.nextInt(300);
+            }
+            balances.add(balance);
+        }
+    }
+
+    @Benchmark
+    public void solveAllItems(Blackhole blackhole) {
+        for (int i = 0; i < ITEMS; i++) {
+            blackhole.consume(RebalancingPlanner.solve(items.get(i), balances.get(i), costs, hubs));
+        }
+    }
+
+    @Benchmark
+    public void solveAllItemsParallel(Blackhole blackhole) {
+        IntStream.range(0, ITEMS).parallel()
+            .mapToObj(i -> RebalancingPlanner.solve(items.get(i), balances.get(i), costs, hubs))
+            .forEach(blackhole::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(RebalancingPlannerBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+package com.relief.service.inventory;
+
+import com.relief.entity.InventoryHub;
+import com.relief.entity.ItemCatalog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-item transfer plans against exhaustive search over every integral way to move surpluses to
+ * deficits, on small random hub networks where some hubs cannot reach each other
+ */
+public class RebalancingPlannerTest {
+
+    private static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final ItemCatalog item = ItemCatalog.builder().id(UUID.randomUUID()).code("WATER_BOTTLES").build();
+
+    @Test
+    void solveMovesMostStockAtLeastTravelTime() {
+        Random random = new Random(13);
+        for (int trial = 0; trial < 300; trial++) {
+            int hubCount = 2 + random.nextInt(4);
+            List<InventoryHub> hubs = hubs(hubCount);
+            int[] balance = new int[hubCount];
+            for (int h = 0; h < hubCount; h++) {
+                balance[h] = random.nextInt(7) - 3;
+            }
+            long[] hubToHub = new long[hubCount * hubCount];
+            for (int from = 0; from < hubCount; from++) {
+                for (int to = 0; to < hubCount; to++) {
+                    hubToHub[from * hubCount + to] = from == to ? 0
+                        : random.nextInt(5) == 0 ? UNREACHABLE : 60 + random.nextInt(3600);
+                }
+            }
+            RebalancingPlanner.HubCosts costs = new RebalancingPlanner.HubCosts(hubToHub,
+                RebalancingPlanner.nearestSources(hubToHub, hubCount), new int[0]);
+
+            RebalancingPlanner.ItemState state = RebalancingPlanner.solve(item, balance.clone(), costs, hubs);
+
+            Map<UUID, Integer> hubIndex = new HashMap<>();
+            for (int h = 0; h < hubCount; h++) {
+                hubIndex.put(hubs.get(h).getId(), h);
+            }
+            int[] sent = new int[hubCount];
+            int[] received = new int[hubCount];
+            long moved = 0;
+            long travel = 0;
+            for (RebalancingPlanner.Transfer transfer : state.transfers()) {
+                int from = hubIndex.get(transfer.fromHubId());
+                int to = hubIndex.get(transfer.toHubId());
+                assertEquals(hubToHub[from * hubCount + to], transfer.travelSeconds(), "trial " + trial);
+                assertTrue(transfer.quantity() > 0, "trial " + trial);
+                sent[from] += transfer.quantity();
+                received[to] += transfer.quantity();
+                moved += transfer.quantity();
+                travel += transfer.quantity() * transfer.travelSeconds();
+            }
+            int totalDeficit = 0;
+            for (int h = 0; h < hubCount; h++) {
+                assertTrue(sent[h] <= Math.max(0, balance[h]), "trial " + trial + ": hub " + h + " sends too much");
+                assertTrue(received[h] <= Math.max(0, -balance[h]), "trial " + trial + ": hub " + h + " gets too much");
+                totalDeficit += Math.max(0, -balance[h]);
+            }
+
+            long[] best = best(balance.clone(), hubToHub, hubCount, 0, 0, 0);
+            assertEquals(best[0], moved, "trial " + trial + " moved");
+            assertEquals(best[1], travel, "trial " + trial + " travel");
+            assertEquals(totalDeficit - best[0], state.unmet(), "trial " + trial + " unmet");
+        }
+    }
+
+    @Test
+    void deficitOutOfReachStaysUnmet() {
+        List<InventoryHub> hubs = hubs(3);
+        // Hub 0 has stock; hub 1 is short and reachable, hub 2 is short and cut off
+        long[] hubToHub = {
+            0, 600, UNREACHABLE,
+            600, 0, UNREACHABLE,
+            UNREACHABLE, UNREACHABLE, 0};
+        RebalancingPlanner.HubCosts costs = new RebalancingPlanner.HubCosts(hubToHub,
+            RebalancingPlanner.nearestSources(hubToHub, 3), new int[0]);
+
+        RebalancingPlanner.ItemState state = RebalancingPlanner.solve(item, new int[] {10, -4, -5}, costs, hubs);
+
+        assertEquals(1, state.transfers().size());
+        RebalancingPlanner.Transfer transfer = state.transfers().get(0);
+        assertEquals(hubs.get(0).getId(), transfer.fromHubId());
+        assertEquals(hubs.get(1).getId(), transfer.toHubId());
+        assertEquals(4, transfer.quantity());
+        assertEquals(5, state.unmet());
+    }
+
+    @Test
+    void balancedItemNeedsNoTransfers() {
+        List<InventoryHub> hubs = hubs(2);
+        long[] hubToHub = {0, 60, 60, 0};
+        RebalancingPlanner.HubCosts costs = new RebalancingPlanner.HubCosts(hubToHub,
+            RebalancingPlanner.nearestSources(hubToHub, 2), new int[0]);
+
+        assertEquals(List.of(), RebalancingPlanner.solve(item, new int[] {3, 0}, costs, hubs).transfers());
+        RebalancingPlanner.ItemState shortEverywhere = RebalancingPlanner.solve(item, new int[] {-2, -1}, costs, hubs);
+        assertEquals(List.of(), shortEverywhere.transfers());
+        assertEquals(3, shortEverywhere.unmet());
+    }
+
+    private static List<InventoryHub> hubs(int count) {
+        List<InventoryHub> hubs = new ArrayList<>(count);
+        for (int h = 0; h < count; h++) {
+            hubs.add(InventoryHub.builder().id(UUID.randomUUID()).name("Hub " + h).build());
+        }
+        return hubs;
+    }
+
+    /**
+     * Most units moved, then least travel, over every amount each surplus-to-deficit pair could
+     * carry; pairs are numbered from * hubCount + to
+     */
+    private static long[] best(int[] balance, long[] hubToHub, int hubCount, int pair, long moved, long travel) {
+        if (pair == hubCount * hubCount) return new long[] {moved, travel};
+        int from = pair / hubCount;
+        int to = pair % hubCount;
+        long seconds = hubToHub[pair];
+        int most = from == to || seconds == UNREACHABLE ? 0
+            : Math.min(Math.max(0, balance[from]), Math.max(0, -balance[to]));
+        long[] best = null;
+        for (int amount = 0; amount <= most; amount++) {
+            balance[from] -= amount;
+            balance[to] += amount;
+            long[] candidate = best(balance, hubToHub, hubCount, pair + 1, moved + amount, travel + amount * seconds);
+            balance[from] += amount;
+            balance[to] -= amount;
+            if (best == null || candidate[0] > best[0] || candidate[0] == best[0] && candidate[1] < best[1]) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+}
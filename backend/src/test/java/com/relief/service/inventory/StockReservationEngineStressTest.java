@@ -0,0 +1,178 @@
+package com.relief.service.inventory;
+
+import com.relief.exception.BadRequestException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many dispatchers reserving the same few hot items: the stock must never go negative and must
+ * account for exactly the reservations that succeeded.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class StockReservationEngineStressTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationEngineStressTest.class);
+
+    private static final int ITEMS = 4;
+    private static final int INITIAL_QTY = 2_000;
+    private static final int THREADS = 32;
+    private static final int REQUESTS = 20_000;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+    private static StockReservationEngine engine;
+
+    private final UUID hubId = UUID.randomUUID();
+    private final List<UUID> itemIds = new ArrayList<>();
+
+    @BeforeAll
+    static void setUpDatabase() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(POSTGRES.getJdbcUrl());
+        config.setUsername(POSTGRES.getUsername());
+        config.setPassword(POSTGRES.getPassword());
+        config.setMaximumPoolSize(THREADS);
+        dataSource = new HikariDataSource(config);
+        jdbc = new JdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        engine = new StockReservationEngine(jdbc);
+        jdbc.execute("""
+            CREATE TABLE inventory_stock (
+                id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+                hub_id UUID,
+                item_id UUID,
+                qty_available INTEGER DEFAULT 0 CHECK (qty_available >= 0),
+                qty_reserved INTEGER DEFAULT 0 CHECK (qty_reserved >= 0),
+                updated_at TIMESTAMPTZ DEFAULT now(),
+                UNIQUE(hub_id, item_id)
+            )
+            """);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        if (dataSource != null) dataSource.close();
+    }
+
+    @BeforeEach
+    void seedStock() {
+        for (int i = 0; i < ITEMS; i++) {
+            UUID itemId = UUID.randomUUID();
+            itemIds.add(itemId);
+            jdbc.update("INSERT INTO inventory_stock (hub_id, item_id, qty_available) VALUES (?, ?, ?)",
+                hubId, itemId, INITIAL_QTY);
+        }
+    }
+
+    @Test
+    void concurrentMultiItemReservationsNeverOversell() throws Exception {
+        AtomicLongArray reserved = new AtomicLongArray(ITEMS);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(REQUESTS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (remaining.getAndDecrement() > 0) {
+                    int[] quantities = new int[ITEMS];
+                    List<StockReservationEngine.Line> lines = new ArrayList<>();
+                    for (int line = random.nextInt(1, 4); line > 0; line--) {
+                        int item = random.nextInt(ITEMS);
+                        int quantity = random.nextInt(1, 6);
+                        quantities[item] += quantity;
+                        lines.add(new StockReservationEngine.Line(hubId, itemIds.get(item), quantity));
+                    }
+                    try {
+                        transactions.executeWithoutResult(status -> engine.reserve(lines));
+                        for (int item = 0; item < ITEMS; item++) reserved.addAndGet(item, quantities[item]);
+                        succeeded.incrementAndGet();
+                    } catch (BadRequestException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("{} reservations in {} s ({}/s), {} rejected", REQUESTS, String.format("%.2f", seconds),
+            Math.round(REQUESTS / seconds), rejected.get());
+
+        assertEquals(REQUESTS, succeeded.get() + rejected.get());
+        assertTrue(rejected.get() > 0, "stock should run out during the test");
+        for (int item = 0; item < ITEMS; item++) {
+            int available = jdbc.queryForObject(
+                "SELECT qty_available FROM inventory_stock WHERE hub_id = ? AND item_id = ?", Integer.class,
+                hubId, itemIds.get(item));
+            int qtyReserved = jdbc.queryForObject(
+                "SELECT qty_reserved FROM inventory_stock WHERE hub_id = ? AND item_id = ?", Integer.class,
+                hubId, itemIds.get(item));
+            assertTrue(available >= 0);
+            assertEquals(reserved.get(item), qtyReserved);
+            assertEquals(INITIAL_QTY, available + qtyReserved);
+        }
+    }
+
+    @Test
+    void failedLineRollsBackWholeReservation() {
+        List<StockReservationEngine.Line> lines = List.of(
+            new StockReservationEngine.Line(hubId, itemIds.get(0), 10),
+            new StockReservationEngine.Line(hubId, itemIds.get(1), INITIAL_QTY + 1));
+
+        assertThrows(BadRequestException.class,
+            () -> transactions.executeWithoutResult(status -> engine.reserve(lines)));
+
+        for (int item = 0; item < 2; item++) {
+            assertEquals(INITIAL_QTY, jdbc.queryForObject(
+                "SELECT qty_available FROM inventory_stock WHERE hub_id = ? AND item_id = ?", Integer.class,
+                hubId, itemIds.get(item)));
+        }
+    }
+
+    @Test
+    void releaseCannotExceedReserved() {
+        UUID itemId = itemIds.get(0);
+        transactions.executeWithoutResult(status ->
+            engine.reserve(List.of(new StockReservationEngine.Line(hubId, itemId, 5))));
+
+        assertThrows(BadRequestException.class, () -> transactions.executeWithoutResult(status ->
+            engine.release(List.of(new StockReservationEngine.Line(hubId, itemId, 6)))));
+        transactions.executeWithoutResult(status ->
+            engine.release(List.of(new StockReservationEngine.Line(hubId, itemId, 5))));
+
+        assertEquals(INITIAL_QTY, jdbc.queryForObject(
+            "SELECT qty_available FROM inventory_stock WHERE hub_id = ? AND item_id = ?", Integer.class,
+            hubId, itemId));
+    }
+}
@@ -0,0 +1,318 @@
+package com.relief.service.optimization;
+
+import com.relief.service.optimization.DynamicRoutingService.RoadClosure;
+import com.relief.service.optimization.DynamicRoutingService.RouteDelta;
+import com.relief.service.optimization.DynamicRoutingService.Waypoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Incremental repair of a dispatched route: closures, slow-downs and urgent stops change only the
+ * remaining stops, and every delta replayed onto the previous waypoints gives the new route.
+ * Positions are written in metres east and north of the origin, and the clock is fixed.
+ */
+public class ActiveRouteTest {
+
+    private static final double LAT0 = 52.5;
+    private static final double LON0 = 13.4;
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+    private static final double METERS_PER_DEGREE_LON = 111_320.0 * Math.cos(Math.toRadians(LAT0));
+    /** 60 km/h: one kilometre per minute */
+    private static final double SPEED_KMH = 60;
+
+    private final long[] now = {0};
+
+    @Test
+    void closureOnALegIsRoutedAround() {
+        // Square tour O-A-B-C; the closure sits on A-B, so the repair must stop driving it
+        ActiveRoute route = route(List.of(stop(0, 1000), stop(1000, 1000), stop(1000, 0)));
+        assertEquals(4.0, route.distanceKm(), 0.01);
+
+        RouteDelta delta = route.applyClosures(List.of(closure(500, 1000, 100)), "flood");
+
+        assertNotNull(delta);
+        List<Waypoint> waypoints = route.waypoints();
+        assertEquals(4, waypoints.size());
+        for (int p = 1; p + 1 < waypoints.size(); p++) {
+            boolean a = isAt(waypoints.get(p), 0, 1000) || isAt(waypoints.get(p + 1), 0, 1000);
+            boolean b = isAt(waypoints.get(p), 1000, 1000) || isAt(waypoints.get(p + 1), 1000, 1000);
+            assertFalse(a && b, "A and B are no longer adjacent");
+        }
+        // Two sides and two diagonals, no detour
+        assertEquals((2000 + 2 * Math.hypot(1000, 1000)) / 1000, route.distanceKm(), 0.05);
+        assertEquals(route.distanceKm(), delta.distanceKm(), 1e-9);
+        assertEquals(1, delta.version());
+        assertEquals(1, route.closureCount());
+    }
+
+    @Test
+    void stopInsideAClosureIsDropped() {
+        ActiveRoute route = route(List.of(stop(0, 1000), stop(1000, 1000), stop(1000, 0)));
+
+        RouteDelta delta = route.applyClosures(List.of(closure(1000, 1000, 50)), "flood");
+
+        assertEquals(1, delta.droppedStops().size());
+        assertTrue(isAt(delta.droppedStops().get(0), 1000, 1000));
+        assertEquals(3, route.waypoints().size());
+        for (Waypoint waypoint : route.waypoints()) {
+            assertFalse(isAt(waypoint, 1000, 1000), "dropped stop is gone");
+        }
+    }
+
+    @Test
+    void closureAwayFromTheRemainingRouteIsIgnored() {
+        ActiveRoute route = route(List.of(stop(0, 1000), stop(1000, 1000), stop(1000, 0)));
+
+        assertNull(route.applyClosures(List.of(closure(-5000, -5000, 100)), "flood"));
+        assertEquals(0, route.closureCount());
+
+        // After the vehicle has passed A, the origin-A leg is behind it
+        route.advance(1);
+        assertNull(route.applyClosures(List.of(closure(0, 500, 100)), "flood"));
+        assertEquals(0, route.version());
+    }
+
+    @Test
+    void visitedStopsAreNeverMoved() {
+        ActiveRoute route = route(List.of(stop(0, 1000), stop(1000, 1000), stop(1000, 0), stop(500, -500)));
+        route.advance(2);
+
+        RouteDelta delta = route.applyClosures(List.of(closure(1000, 500, 100)), "flood");
+
+        assertNotNull(delta);
+        assertTrue(delta.fromWaypoint() >= 3, "from " + delta.fromWaypoint());
+        assertTrue(isAt(route.waypoints().get(1), 0, 1000));
+        assertTrue(isAt(route.waypoints().get(2), 1000, 1000));
+    }
+
+    @Test
+    void closuresExpireUnlessReportedAgain() {
+        // A single stop: both legs run along the same line, and nothing can be reordered
+        ActiveRoute route = route(List.of(stop(0, 1000)));
+        double plain = route.distanceKm();
+
+        route.applyClosures(List.of(closure(0, 500, 50)), "flood");
+        assertEquals(1, route.closureCount());
+        assertEquals(3 * plain, route.distanceKm(), 1e-9, "both legs detour");
+
+        now[0] = ActiveRoute.CLOSURE_TTL_MILLIS / 2;
+        route.applyClosures(List.of(closure(0, 500, 50)), "flood");
+        assertEquals(1, route.closureCount(), "renewed, not duplicated");
+
+        now[0] = ActiveRoute.CLOSURE_TTL_MILLIS;
+        assertEquals(1, route.closureCount());
+
+        now[0] = ActiveRoute.CLOSURE_TTL_MILLIS * 3 / 2;
+        assertEquals(0, route.closureCount());
+        assertEquals(plain, route.distanceKm(), 1e-9);
+    }
+
+    @Test
+    void onlyTheNewestClosuresAreKept() {
+        ActiveRoute route = route(List.of(stop(0, 2000)));
+
+        for (int i = 0; i < ActiveRoute.MAX_CLOSURES + 10; i++) {
+            now[0] = i;
+            route.applyClosures(List.of(closure(0, 10 + 20 * i, 1)), "flood");
+        }
+
+        assertEquals(ActiveRoute.MAX_CLOSURES, route.closureCount());
+    }
+
+    @Test
+    void slowDownRepairsStopsThatBecomeLate() {
+        // A is 3 km east, B 3 km west and due within 20 minutes; both orders drive 12 km
+        ActiveRoute route = route(List.of(stop(3000, 0), new VrpProblem.Stop(LAT0, lon(-3000), 0, 0, 20, 0)));
+        assertEquals(12, route.durationMinutes(), 0.1);
+
+        RouteDelta delta = route.setTravelFactor(3, "traffic");
+
+        // A first would reach B after 27 minutes
+        assertTrue(isAt(route.waypoints().get(1), -3000, 0), "B first");
+        assertEquals(1, delta.fromWaypoint());
+        assertEquals(2, delta.replacedCount());
+        assertEquals(36, route.durationMinutes(), 0.3);
+        assertEquals(3, route.travelFactor(), 0.0);
+    }
+
+    @Test
+    void slowDownWithoutLatenessOnlyRescales() {
+        ActiveRoute route = route(List.of(stop(0, 1000), stop(1000, 1000), stop(1000, 0)));
+
+        RouteDelta delta = route.setTravelFactor(1.5, "weather");
+
+        assertEquals(0, delta.replacedCount());
+        assertTrue(delta.waypoints().isEmpty());
+        assertEquals(6, delta.durationMinutes(), 0.1);
+        assertNull(route.setTravelFactor(1.5, "weather"), "unchanged factor");
+    }
+
+    @Test
+    void urgentStopGoesToItsCheapestPosition() {
+        ActiveRoute route = route(List.of(stop(0, 1000), stop(1000, 1000), stop(1000, 0)));
+        VrpProblem.Stop urgent = stop(1000, 500);
+
+        // On the B-C side, so it costs almost nothing to visit on the way
+        assertEquals(0, route.insertionCost(urgent), 1.0);
+        assertEquals(4, route.waypoints().size(), "pricing does not insert");
+
+        RouteDelta delta = route.insertStop(urgent, "urgent");
+
+        List<Waypoint> waypoints = route.waypoints();
+        assertEquals(5, waypoints.size());
+        assertTrue(isAt(waypoints.get(3), 1000, 500), "between B and C");
+        assertEquals(3, delta.fromWaypoint());
+        assertEquals(0, delta.replacedCount());
+        assertEquals(1, delta.waypoints().size());
+    }
+
+    @Test
+    void dispatchedLegsArePricedFromThePlanMatrices() {
+        List<VrpProblem.Stop> stops = List.of(stop(0, 1000), stop(1000, 1000));
+        // Road legs twice as long as the straight line and oneway between the stops
+        double[] meters = {
+            0, 2000, 2828,
+            2000, 0, 2000,
+            2828, 5000, 0};
+        double[] minutes = {
+            0, 4, 5,
+            4, 0, 4,
+            5, 9, 0};
+        VrpProblem problem = VrpProblem.withMatrices(stops, 1, 10, 10, 600, meters, minutes);
+        ActiveRoute forward = ActiveRoute.dispatched("r", LAT0, LON0, stops, SPEED_KMH, 0, problem, new int[] {1, 2});
+        ActiveRoute backward = ActiveRoute.dispatched("r", LAT0, LON0, List.of(stops.get(1), stops.get(0)),
+            SPEED_KMH, 0, problem, new int[] {2, 1});
+
+        assertEquals(problem.routeDistance(new int[] {1, 2}) / 1000, forward.distanceKm(), 1e-9);
+        assertEquals(problem.duration(new int[] {1, 2}), forward.durationMinutes(), 1e-9);
+        assertEquals(problem.routeDistance(new int[] {2, 1}) / 1000, backward.distanceKm(), 1e-9);
+        assertEquals(problem.duration(new int[] {2, 1}), backward.durationMinutes(), 1e-9);
+
+        // Stops added later have no road legs and are priced by great-circle distance
+        forward.insertStop(stop(1000, 1500), "urgent");
+        List<Waypoint> waypoints = new ArrayList<>(forward.waypoints());
+        assertEquals(4, waypoints.size());
+        waypoints.add(waypoints.get(0));
+        double expected = 0;
+        for (int p = 0; p + 1 < waypoints.size(); p++) {
+            int from = matrixNode(waypoints.get(p));
+            int to = matrixNode(waypoints.get(p + 1));
+            expected += from >= 0 && to >= 0 ? meters[from * 3 + to] : haversine(waypoints.get(p), waypoints.get(p + 1));
+        }
+        assertEquals(expected / 1000, forward.distanceKm(), 1e-9);
+    }
+
+    @Test
+    void deltasReplayOntoThePreviousWaypoints() {
+        Random random = new Random(32);
+        for (int trial = 0; trial < 200; trial++) {
+            String label = "trial " + trial;
+            List<VrpProblem.Stop> stops = new ArrayList<>();
+            int count = 2 + random.nextInt(10);
+            for (int i = 0; i < count; i++) {
+                stops.add(new VrpProblem.Stop(lat(random.nextInt(10_000) - 5000), lon(random.nextInt(10_000) - 5000),
+                    0, 0, random.nextInt(4) == 0 ? 20 + random.nextInt(100) : Double.POSITIVE_INFINITY, 2));
+            }
+            ActiveRoute route = new ActiveRoute("r", LAT0, LON0, stops, SPEED_KMH, 0, null, null, () -> now[0]);
+            List<Waypoint> previous = route.waypoints();
+            int visited = 0;
+
+            for (int step = 0; step < 8 && !route.isCompleted(); step++) {
+                RouteDelta delta;
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        // A closure on a random remaining leg
+                        int p = visited + random.nextInt(previous.size() - visited);
+                        Waypoint from = previous.get(p);
+                        Waypoint to = p + 1 < previous.size() ? previous.get(p + 1) : previous.get(0);
+                        double east = (east(from) + east(to)) / 2;
+                        double north = (north(from) + north(to)) / 2;
+                        delta = route.applyClosures(List.of(closure(east, north, 10 + random.nextInt(300))), "flood");
+                    }
+                    case 1 -> delta = route.setTravelFactor(1 + random.nextInt(30) / 10.0, "traffic");
+                    case 2 -> delta = route.insertStop(stop(random.nextInt(10_000) - 5000,
+                        random.nextInt(10_000) - 5000), "urgent");
+                    default -> {
+                        visited = Math.min(previous.size() - 1, visited + random.nextInt(2));
+                        route.advance(visited);
+                        continue;
+                    }
+                }
+                List<Waypoint> current = route.waypoints();
+                if (delta == null) {
+                    assertEquals(coordinates(previous), coordinates(current), label);
+                    continue;
+                }
+
+                assertTrue(delta.fromWaypoint() > visited, label + " visited stops stay put");
+                List<Waypoint> replayed = new ArrayList<>(previous.subList(0, delta.fromWaypoint()));
+                replayed.addAll(delta.waypoints());
+                replayed.addAll(previous.subList(delta.fromWaypoint() + delta.replacedCount(), previous.size()));
+                assertEquals(coordinates(current), coordinates(replayed), label + " step " + step);
+                assertEquals(coordinates(previous.subList(0, visited + 1)), coordinates(current.subList(0, visited + 1)),
+                    label);
+                assertEquals(route.distanceKm(), delta.distanceKm(), 1e-9, label);
+                assertEquals(route.version(), delta.version(), label);
+                previous = current;
+            }
+        }
+    }
+
+    private ActiveRoute route(List<VrpProblem.Stop> stops) {
+        return new ActiveRoute("r", LAT0, LON0, stops, SPEED_KMH, 0, null, null, () -> now[0]);
+    }
+
+    private static VrpProblem.Stop stop(double east, double north) {
+        return new VrpProblem.Stop(lat(north), lon(east), 0, 0, Double.POSITIVE_INFINITY, 0);
+    }
+
+    private static RoadClosure closure(double east, double north, double radiusMeters) {
+        return new RoadClosure(lat(north), lon(east), radiusMeters);
+    }
+
+    private static double lat(double north) {
+        return LAT0 + north / METERS_PER_DEGREE_LAT;
+    }
+
+    private static double lon(double east) {
+        return LON0 + east / METERS_PER_DEGREE_LON;
+    }
+
+    private static double east(Waypoint waypoint) {
+        return (Double.parseDouble(waypoint.getLongitude()) - LON0) * METERS_PER_DEGREE_LON;
+    }
+
+    private static double north(Waypoint waypoint) {
+        return (Double.parseDouble(waypoint.getLatitude()) - LAT0) * METERS_PER_DEGREE_LAT;
+    }
+
+    private static boolean isAt(Waypoint waypoint, double east, double north) {
+        return Math.abs(east(waypoint) - east) < 1e-3 && Math.abs(north(waypoint) - north) < 1e-3;
+    }
+
+    /** Matrix node of the dispatched origin, A and B, or -1 for the urgent stop */
+    private static int matrixNode(Waypoint waypoint) {
+        if (isAt(waypoint, 0, 0)) return 0;
+        if (isAt(waypoint, 0, 1000)) return 1;
+        if (isAt(waypoint, 1000, 1000)) return 2;
+        return -1;
+    }
+
+    private static double haversine(Waypoint from, Waypoint to) {
+        return VrpProblem.haversine(Double.parseDouble(from.getLatitude()), Double.parseDouble(from.getLongitude()),
+            Double.parseDouble(to.getLatitude()), Double.parseDouble(to.getLongitude()));
+    }
+
+    private static List<String> coordinates(List<Waypoint> waypoints) {
+        List<String> coordinates = new ArrayList<>(waypoints.size());
+        for (Waypoint waypoint : waypoints) {
+            coordinates.add(waypoint.getLatitude() + "," + waypoint.getLongitude());
+        }
+        return coordinates;
+    }
+}
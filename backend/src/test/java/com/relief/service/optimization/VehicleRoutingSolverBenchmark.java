@@ -0,0 +1,130 @@
+package com.relief.service.optimization;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VRP solver against the previous nearest-neighbour ordering on 500 random stops around a hub
+ * (about 30 km across). {@link #main} prints route lengths for both before running JMH on the
+ * test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class VehicleRoutingSolverBenchmark {
+
+    private static final int STOPS = 500;
+    private static final double HUB_LAT = 14.60;
+    private static final double HUB_LON = 121.00;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final VehicleRoutingSolver solver = new VehicleRoutingSolver(pool);
+
+    private List<String> destinations;
+    private VrpProblem tour;
+    private VrpProblem fleet;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        destinations = new ArrayList<>(STOPS);
+        List<VrpProblem.Stop> open = new ArrayList<>(STOPS);
+        List<VrpProblem.Stop> windowed = new ArrayList<>(STOPS);
+        for (int i = 0; i < STOPS; i++) {
+            double lat = HUB_LAT + (random.nextDouble() - 0.5) * 0.27;
+            double lon = HUB_LON + (random.nextDouble() - 0.5) * 0.28;
+            destinations.add(lat + "," + lon);
+            open.add(new VrpProblem.Stop(lat, lon, 0, 0, Double.POSITIVE_INFINITY, 0));
+            double earliest = random.nextInt(6) * 60;
+            windowed.add(new VrpProblem.Stop(lat, lon, 1 + random.nextInt(20), earliest, earliest + 180, 5));
+        }
+        tour = VrpProblem.of(HUB_LAT, HUB_LON, open, 1, Integer.MAX_VALUE, Integer.MAX_VALUE, 50, Double.POSITIVE_INFINITY);
+        fleet = VrpProblem.of(HUB_LAT, HUB_LON, windowed, 25, 250, 4500, 40, 10 * 60);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public double nearestNeighbor() {
+        return nearestNeighborDistance(HUB_LAT + "", HUB_LON + "", destinations);
+    }
+
+    @Benchmark
+    public double singleVehicleTour() {
+        return solver.solve(tour, 1, 200, 0).distance();
+    }
+
+    @Benchmark
+    public double capacitatedFleetWithTimeWindows() {
+        return solver.solve(fleet, pool.getParallelism(), 1000, 0).distance();
+    }
+
+    /**
+     * The greedy ordering previously used by {@code DynamicRoutingService}: string coordinates are
+     * re-parsed on every distance evaluation.
+     */
+    static double nearestNeighborDistance(String originLat, String originLon, List<String> destinations) {
+        String currentLat = originLat;
+        String currentLon = originLon;
+        Set<String> remaining = new HashSet<>(destinations);
+        double total = 0;
+        while (!remaining.isEmpty()) {
+            String lat = currentLat;
+            String lon = currentLon;
+            String nearest = remaining.stream()
+                .min(Comparator.comparingDouble(dest -> distance(lat, lon, dest.split(",")[0], dest.split(",")[1])))
+                .orElseThrow();
+            remaining.remove(nearest);
+            String[] parts = nearest.split(",");
+            total += distance(currentLat, currentLon, parts[0], parts[1]);
+            currentLat = parts[0];
+            currentLon = parts[1];
+        }
+        return total + distance(currentLat, currentLon, originLat, originLon);
+    }
+
+    private static double distance(String lat1, String lon1, String lat2, String lon2) {
+        double lat1d = Double.parseDouble(lat1);
+        double lon1d = Double.parseDouble(lon1);
+        double lat2d = Double.parseDouble(lat2);
+        double lon2d = Double.parseDouble(lon2);
+        double dLat = Math.toRadians(lat2d - lat1d);
+        double dLon = Math.toRadians(lon2d - lon1d);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1d)) * Math.cos(Math.toRadians(lat2d)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371000 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        VehicleRoutingSolverBenchmark benchmark = new VehicleRoutingSolverBenchmark();
+        benchmark.setUp();
+        VehicleRoutingSolver.Solution fleetSolution = benchmark.solver.solve(benchmark.fleet,
+            benchmark.pool.getParallelism(), 1000, 0);
+        System.out.printf("Nearest neighbour tour: %.1f km%n", benchmark.nearestNeighbor() / 1000);
+        System.out.printf("VRP single-vehicle tour: %.1f km%n", benchmark.singleVehicleTour() / 1000);
+        System.out.printf("VRP fleet: %d routes, %d unassigned, %.1f km%n", fleetSolution.routes().length,
+            fleetSolution.unassigned().length, fleetSolution.distance() / 1000);
+        benchmark.tearDown();
+
+        new Runner(new OptionsBuilder()
+            .include(VehicleRoutingSolverBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.relief.service.optimization;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Solver against exhaustive search on small instances whose distance matrix has oneway streets:
+ * some pairs are much longer in one direction, so reversing a segment changes its length.
+ */
+public class VehicleRoutingSolverTest {
+
+    private static final int STOPS = 7;
+
+    private final VehicleRoutingSolver solver = new VehicleRoutingSolver(ForkJoinPool.commonPool());
+
+    @Test
+    void findsOptimumOnAsymmetricMatrices() {
+        Random random = new Random(11);
+        int trials = 100;
+        int optimal = 0;
+        double totalGap = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            VrpProblem problem = onewayProblem(random, 1 + trial % 2, STOPS);
+            VehicleRoutingSolver.Solution solution = solver.solve(problem, 8, 1000, trial);
+
+            assertEquals(0, solution.unassigned().length, "trial " + trial);
+            double reported = 0;
+            for (int[] route : solution.routes()) {
+                reported += problem.routeDistance(route);
+            }
+            assertEquals(reported, solution.distance(), 1e-6);
+            double gap = solution.distance() / optimum(problem) - 1;
+            assertTrue(gap > -1e-9, "trial " + trial);
+            if (gap < 1e-9) optimal++;
+            totalGap += gap;
+        }
+        // Local search can stop in a local optimum, but pricing reversals wrongly leaves it in
+        // worse ones far more often
+        assertTrue(optimal >= 80, optimal + " of " + trials + " optimal");
+        assertTrue(totalGap / trials < 0.01, "mean gap " + totalGap / trials);
+    }
+
+    /**
+     * Random points on a plane with Euclidean distances, where a third of the directed pairs take
+     * a detour of up to three times the straight line
+     */
+    private static VrpProblem onewayProblem(Random random, int vehicles, int capacity) {
+        int size = STOPS + 1;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextDouble() * 1000;
+            y[i] = random.nextDouble() * 1000;
+        }
+        double[] distance = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i == j) continue;
+                double straight = Math.hypot(x[i] - x[j], y[i] - y[j]);
+                distance[i * size + j] = random.nextInt(3) == 0 ? straight * (1 + 2 * random.nextDouble()) : straight;
+            }
+        }
+        List<VrpProblem.Stop> stops = new ArrayList<>();
+        for (int i = 0; i < STOPS; i++) {
+            stops.add(new VrpProblem.Stop(0, 0, 1, 0, Double.POSITIVE_INFINITY, 0));
+        }
+        return VrpProblem.withMatrices(stops, vehicles, capacity, STOPS, Double.POSITIVE_INFINITY,
+            distance, distance.clone());
+    }
+
+    /**
+     * Shortest plan over every order of the stops and every split of it into at most as many routes as vehicles, up to two
+     */
+    private static double optimum(VrpProblem problem) {
+        List<Integer> order = new ArrayList<>();
+        for (int stop = 1; stop < problem.size(); stop++) {
+            order.add(stop);
+        }
+        double[] best = {Double.POSITIVE_INFINITY};
+        permute(order, 0, problem, best);
+        return best[0];
+    }
+
+    private static void permute(List<Integer> order, int k, VrpProblem problem, double[] best) {
+        if (k == order.size()) {
+            // With one vehicle the second route stays empty
+            for (int split = problem.vehicles() > 1 ? 0 : order.size(); split <= order.size(); split++) {
+                int[] first = order.subList(0, split).stream().mapToInt(Integer::intValue).toArray();
+                int[] second = order.subList(split, order.size()).stream().mapToInt(Integer::intValue).toArray();
+                if (!problem.isFeasible(first, first.length) || !problem.isFeasible(second, second.length)) continue;
+                double total = (first.length > 0 ? problem.routeDistance(first) : 0)
+                    + (second.length > 0 ? problem.routeDistance(second) : 0);
+                best[0] = Math.min(best[0], total);
+            }
+            return;
+        }
+        for (int i = k; i < order.size(); i++) {
+            Collections.swap(order, k, i);
+            permute(order, k + 1, problem, best);
+            Collections.swap(order, k, i);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.relief.service.roadnetwork;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contraction hierarchy query latency on a synthetic 300x300 street grid (~100 m blocks) with
+ * arterials every tenth row and column, missing segments and one-way streets. The closure variants
+ * close a district in the middle of the grid. Run {@link #main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ContractionHierarchyBenchmark {
+
+    private static final int SIZE = 300;
+    private static final int TARGETS = 200;
+    private static final int QUERIES = 1024;
+
+    private ContractionHierarchy hierarchy;
+    private ContractionHierarchy.ClosureOverlay open;
+    private ContractionHierarchy.ClosureOverlay closed;
+    private int[] sources;
+    private int[] destinations;
+    private int[] targets;
+    private final double[] seconds = new double[TARGETS];
+    private final double[] meters = new double[TARGETS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        int nodes = SIZE * SIZE;
+        int[] latE7 = new int[nodes];
+        int[] lonE7 = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            latE7[i] = (int) ((14.5 + (i / SIZE) * 0.001 + random.nextDouble() * 0.0003) * 1e7);
+            lonE7[i] = (int) ((121.0 + (i % SIZE) * 0.001 + random.nextDouble() * 0.0003) * 1e7);
+        }
+
+        List<int[]> arcs = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            int row = i / SIZE;
+            int col = i % SIZE;
+            for (int[] step : new int[][]{{0, 1}, {1, 0}}) {
+                int r = row + step[0];
+                int c = col + step[1];
+                if (r >= SIZE || c >= SIZE || random.nextDouble() < 0.1) continue;
+                int j = r * SIZE + c;
+                double length = RoadGraph.haversine(latE7[i] / 1e7, lonE7[i] / 1e7, latE7[j] / 1e7, lonE7[j] / 1e7);
+                double kmh = row % 10 == 0 || col % 10 == 0 ? 60 : 30;
+                int weight = (int) Math.max(1, Math.round(length * 36.0 / kmh));
+                int oneway = random.nextDouble() < 0.1 ? (random.nextBoolean() ? 1 : -1) : 0;
+                if (oneway >= 0) arcs.add(new int[]{i, j, weight, (int) length});
+                if (oneway <= 0) arcs.add(new int[]{j, i, weight, (int) length});
+            }
+        }
+        int[] tails = new int[arcs.size()];
+        int[] heads = new int[arcs.size()];
+        int[] weights = new int[arcs.size()];
+        float[] lengths = new float[arcs.size()];
+        for (int a = 0; a < arcs.size(); a++) {
+            tails[a] = arcs.get(a)[0];
+            heads[a] = arcs.get(a)[1];
+            weights[a] = arcs.get(a)[2];
+            lengths[a] = arcs.get(a)[3];
+        }
+        RoadGraph graph = RoadGraph.of(latE7, lonE7, tails, heads, weights, lengths);
+        hierarchy = ContractionHierarchy.build(graph);
+
+        BitSet closedArcs = new BitSet();
+        double lo = SIZE * 0.0004;
+        double hi = SIZE * 0.0006;
+        graph.forEachNodeIn(14.5 + lo, 121.0 + lo, 14.5 + hi, 121.0 + hi,
+            node -> closedArcs.set(graph.firstOut(node), graph.endOut(node)));
+        open = hierarchy.overlay(new BitSet());
+        closed = hierarchy.overlay(closedArcs);
+
+        sources = random.ints(QUERIES, 0, nodes).toArray();
+        destinations = random.ints(QUERIES, 0, nodes).toArray();
+        targets = random.ints(TARGETS, 0, nodes).toArray();
+    }
+
+    @Benchmark
+    public ContractionHierarchy.RoadPath pointToPoint() {
+        int i = next++ & (QUERIES - 1);
+        return hierarchy.route(sources[i], destinations[i], open);
+    }
+
+    @Benchmark
+    public ContractionHierarchy.RoadPath pointToPointWithClosures() {
+        int i = next++ & (QUERIES - 1);
+        return hierarchy.route(sources[i], destinations[i], closed);
+    }
+
+    @Benchmark
+    public double[] oneToMany() {
+        hierarchy.travelTimes(sources[next++ & (QUERIES - 1)], targets, open, seconds, meters);
+        return seconds;
+    }
+
+    @Benchmark
+    public double[] oneToManyWithClosures() {
+        hierarchy.travelTimes(sources[next++ & (QUERIES - 1)], targets, closed, seconds, meters);
+        return seconds;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(ContractionHierarchyBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
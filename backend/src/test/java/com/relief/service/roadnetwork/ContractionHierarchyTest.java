@@ -0,0 +1,255 @@
+package com.relief.service.roadnetwork;
+
+import com.relief.service.roadnetwork.ContractionHierarchy.ClosureOverlay;
+import com.relief.service.roadnetwork.ContractionHierarchy.RoadPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contraction hierarchy queries against plain Dijkstra on the base graph, on random road graphs
+ * with one-way streets, unreachable nodes and parallel arcs, with and without closure overlays.
+ * Arc lengths are the straight-line distance between their ends, so the A* fallback used around
+ * closures keeps an admissible heuristic.
+ */
+public class ContractionHierarchyTest {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    @Test
+    void pointToPointMatchesDijkstra() {
+        Random random = new Random(33);
+        for (int trial = 0; trial < 40; trial++) {
+            RoadGraph graph = randomGraph(random, 20 + random.nextInt(120));
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+            for (BitSet closed : closures(random, graph)) {
+                ClosureOverlay overlay = hierarchy.overlay(closed);
+                for (int query = 0; query < 30; query++) {
+                    int source = random.nextInt(graph.nodeCount());
+                    int target = random.nextInt(graph.nodeCount());
+                    String label = "trial " + trial + " closed " + closed.cardinality() + " " + source + "->" + target;
+
+                    int expected = dijkstra(graph, source, closed)[target];
+                    RoadPath path = hierarchy.route(source, target, overlay);
+                    if (expected == INFINITY) {
+                        assertNull(path, label);
+                        continue;
+                    }
+                    assertNotNull(path, label);
+                    assertEquals(expected / 10.0, path.seconds(), 1e-9, label);
+                    assertOpenPath(graph, closed, path, source, target, label);
+                }
+            }
+        }
+    }
+
+    @Test
+    void oneToManyAndMatrixMatchDijkstra() {
+        Random random = new Random(34);
+        for (int trial = 0; trial < 30; trial++) {
+            RoadGraph graph = randomGraph(random, 20 + random.nextInt(120));
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+            for (BitSet closed : closures(random, graph)) {
+                ClosureOverlay overlay = hierarchy.overlay(closed);
+                int[] sources = randomNodes(random, graph, 1 + random.nextInt(6));
+                int[] targets = randomNodes(random, graph, 1 + random.nextInt(12));
+                String label = "trial " + trial + " closed " + closed.cardinality();
+
+                double[] matrixSeconds = new double[sources.length * targets.length];
+                double[] matrixMeters = new double[matrixSeconds.length];
+                hierarchy.travelTimeMatrix(sources, targets, overlay, matrixSeconds, matrixMeters);
+                for (int s = 0; s < sources.length; s++) {
+                    int[] expected = dijkstra(graph, sources[s], closed);
+                    double[] seconds = new double[targets.length];
+                    double[] meters = new double[targets.length];
+                    hierarchy.travelTimes(sources[s], targets, overlay, seconds, meters);
+                    for (int t = 0; t < targets.length; t++) {
+                        double reference = expected[targets[t]] == INFINITY
+                            ? Double.POSITIVE_INFINITY : expected[targets[t]] / 10.0;
+                        String pair = label + " " + sources[s] + "->" + targets[t];
+                        assertEquals(reference, seconds[t], 1e-9, pair + " one-to-many");
+                        assertEquals(reference, matrixSeconds[s * targets.length + t], 1e-9, pair + " matrix");
+                        assertEquals(Double.isInfinite(reference), Double.isInfinite(meters[t]), pair);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void closingEveryArcOfANodeCutsItOff() {
+        Random random = new Random(35);
+        RoadGraph graph = randomGraph(random, 80);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        int node = 0;
+        while (graph.endOut(node) == graph.firstOut(node)) node++;
+
+        BitSet closed = new BitSet(graph.arcCount());
+        for (int tail = 0; tail < graph.nodeCount(); tail++) {
+            for (int arc = graph.firstOut(tail); arc < graph.endOut(tail); arc++) {
+                if (tail == node || graph.head(arc) == node) closed.set(arc);
+            }
+        }
+        ClosureOverlay overlay = hierarchy.overlay(closed);
+
+        for (int other = 0; other < graph.nodeCount(); other++) {
+            if (other == node) continue;
+            assertNull(hierarchy.route(node, other, overlay), "from " + other);
+            assertNull(hierarchy.route(other, node, overlay), "to " + other);
+        }
+        // Reopening restores the hierarchy's own answers
+        ClosureOverlay open = hierarchy.overlay(new BitSet());
+        assertTrue(open.isEmpty());
+        int[] expected = dijkstra(graph, node, new BitSet());
+        for (int other = 0; other < graph.nodeCount(); other++) {
+            RoadPath path = hierarchy.route(node, other, open);
+            assertEquals(expected[other] == INFINITY, path == null, "to " + other);
+        }
+    }
+
+    /**
+     * The empty overlay plus a few random sets of closed arcs, from a handful to a quarter
+     */
+    private static List<BitSet> closures(Random random, RoadGraph graph) {
+        List<BitSet> closures = new ArrayList<>();
+        closures.add(new BitSet());
+        for (double share : new double[]{0.02, 0.1, 0.25}) {
+            BitSet closed = new BitSet(graph.arcCount());
+            for (int arc = 0; arc < graph.arcCount(); arc++) {
+                if (random.nextDouble() < share) closed.set(arc);
+            }
+            closures.add(closed);
+        }
+        return closures;
+    }
+
+    /**
+     * Points in a few kilometres square, each joined to a few random near neighbours at a random
+     * road speed; some streets are one-way, some nodes get no streets at all, and duplicate picks
+     * give parallel arcs
+     */
+    private static RoadGraph randomGraph(Random random, int nodes) {
+        int[] latE7 = new int[nodes];
+        int[] lonE7 = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            latE7[i] = (int) ((14.5 + random.nextDouble() * 0.03) * 1e7);
+            lonE7[i] = (int) ((121.0 + random.nextDouble() * 0.03) * 1e7);
+        }
+
+        List<int[]> arcs = new ArrayList<>();
+        List<Float> lengths = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            if (random.nextInt(15) == 0) continue;
+            int degree = 1 + random.nextInt(3);
+            for (int k = 0; k < degree; k++) {
+                int j = nearby(random, latE7, lonE7, i);
+                if (j == i) continue;
+                double length = RoadGraph.haversine(latE7[i] / 1e7, lonE7[i] / 1e7, latE7[j] / 1e7, lonE7[j] / 1e7);
+                double kmh = 20 + random.nextInt(7) * 10;
+                int weight = (int) Math.max(1, Math.round(length * 36.0 / kmh));
+                int oneway = random.nextDouble() < 0.2 ? (random.nextBoolean() ? 1 : -1) : 0;
+                if (oneway >= 0) {
+                    arcs.add(new int[]{i, j, weight});
+                    lengths.add((float) length);
+                }
+                if (oneway <= 0) {
+                    arcs.add(new int[]{j, i, weight + random.nextInt(3)});
+                    lengths.add((float) length);
+                }
+            }
+        }
+        int[] tails = new int[arcs.size()];
+        int[] heads = new int[arcs.size()];
+        int[] weights = new int[arcs.size()];
+        float[] arcLengths = new float[arcs.size()];
+        for (int a = 0; a < arcs.size(); a++) {
+            tails[a] = arcs.get(a)[0];
+            heads[a] = arcs.get(a)[1];
+            weights[a] = arcs.get(a)[2];
+            arcLengths[a] = lengths.get(a);
+        }
+        return RoadGraph.of(latE7, lonE7, tails, heads, weights, arcLengths);
+    }
+
+    /**
+     * Nearest of a few random candidates, so streets stay short but the graph is not a lattice
+     */
+    private static int nearby(Random random, int[] latE7, int[] lonE7, int from) {
+        int best = from;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < 6; c++) {
+            int candidate = random.nextInt(latE7.length);
+            if (candidate == from) continue;
+            double distance = Math.hypot(latE7[candidate] - latE7[from], lonE7[candidate] - lonE7[from]);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static int[] randomNodes(Random random, RoadGraph graph, int count) {
+        int[] nodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = random.nextInt(graph.nodeCount());
+        }
+        return nodes;
+    }
+
+    /**
+     * Quadratic Dijkstra over the open base arcs, in deciseconds
+     */
+    private static int[] dijkstra(RoadGraph graph, int source, BitSet closed) {
+        int[] distance = new int[graph.nodeCount()];
+        boolean[] settled = new boolean[graph.nodeCount()];
+        Arrays.fill(distance, INFINITY);
+        distance[source] = 0;
+        while (true) {
+            int node = -1;
+            for (int v = 0; v < graph.nodeCount(); v++) {
+                if (!settled[v] && distance[v] != INFINITY && (node < 0 || distance[v] < distance[node])) node = v;
+            }
+            if (node < 0) return distance;
+            settled[node] = true;
+            for (int arc = graph.firstOut(node); arc < graph.endOut(node); arc++) {
+                if (closed.get(arc)) continue;
+                int next = graph.head(arc);
+                distance[next] = Math.min(distance[next], distance[node] + graph.weight(arc));
+            }
+        }
+    }
+
+    /**
+     * The path runs from source to target over open arcs whose cheapest weights add up to its
+     * travel time, and its length is the length of those arcs
+     */
+    private static void assertOpenPath(RoadGraph graph, BitSet closed, RoadPath path, int source, int target,
+                                       String label) {
+        int[] nodes = path.nodes();
+        assertEquals(source, nodes[0], label);
+        assertEquals(target, nodes[nodes.length - 1], label);
+        long time = 0;
+        double meters = 0;
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            int cheapest = -1;
+            for (int arc = graph.firstOut(nodes[i]); arc < graph.endOut(nodes[i]); arc++) {
+                if (!closed.get(arc) && graph.head(arc) == nodes[i + 1]
+                    && (cheapest < 0 || graph.weight(arc) < graph.weight(cheapest))) {
+                    cheapest = arc;
+                }
+            }
+            assertTrue(cheapest >= 0, label + " open arc " + nodes[i] + "->" + nodes[i + 1]);
+            time += graph.weight(cheapest);
+            meters += graph.length(cheapest);
+        }
+        assertEquals(path.seconds(), time / 10.0, 1e-9, label + " time along the path");
+        assertEquals(meters, path.meters(), 1e-3 * Math.max(1, meters), label + " length along the path");
+    }
+}
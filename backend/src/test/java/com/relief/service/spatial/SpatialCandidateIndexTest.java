@@ -0,0 +1,119 @@
+package com.relief.service.spatial;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.entity.User;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Which requests and helpers the index keeps as they are saved, and the creation-time filter of
+ * request queries
+ */
+public class SpatialCandidateIndexTest {
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+    private static final double LAT = 14.5995;
+    private static final double LON = 120.9842;
+
+    private final SpatialCandidateIndex index = new SpatialCandidateIndex(null, null);
+
+    @Test
+    void requestQueriesSkipRequestsCreatedBeforeTheWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        NeedsRequest recent = request("new", now.minusHours(1), 0.001);
+        NeedsRequest older = request("new", now.minusHours(10), 0.002);
+        NeedsRequest oldest = request("assigned", now.minusHours(20), 0.003);
+        for (NeedsRequest request : List.of(recent, older, oldest)) {
+            index.updateRequest(request);
+        }
+
+        assertEquals(List.of(recent.getId(), older.getId(), oldest.getId()),
+            index.requestsWithin(LAT, LON, 10_000, now.minusHours(24)));
+        assertEquals(List.of(recent.getId(), older.getId()), index.requestsWithin(LAT, LON, 10_000, now.minusHours(12)));
+        assertEquals(List.of(recent.getId()), index.nearestRequests(LAT, LON, 5, 10_000, now.minusHours(2)));
+        assertEquals(List.of(recent.getId(), older.getId()), index.requestsWithin(LAT, LON, 10_000, older.getCreatedAt()),
+            "the window is inclusive");
+        assertEquals(List.of(recent.getId(), older.getId()), index.nearestRequests(LAT, LON, 2, 10_000, now.minusHours(24)));
+    }
+
+    @Test
+    void closedOrExpiredRequestsAreNotIndexed() {
+        LocalDateTime now = LocalDateTime.now();
+        NeedsRequest open = request("new", now.minusHours(1), 0.001);
+        NeedsRequest stale = request("new", now.minusHours(30), 0.002);
+        NeedsRequest unlocated = request("new", now, 0.003);
+        unlocated.setGeomPoint(null);
+        index.updateRequest(open);
+        index.updateRequest(stale);
+        index.updateRequest(unlocated);
+        assertEquals(List.of(open.getId()), index.requestsWithin(LAT, LON, 10_000, now.minusDays(7)));
+
+        for (String status : List.of("completed", "CANCELLED", "merged")) {
+            open.setStatus(status);
+            index.updateRequest(open);
+            assertTrue(index.requestsWithin(LAT, LON, 10_000, now.minusDays(7)).isEmpty(), status);
+            open.setStatus("new");
+            index.updateRequest(open);
+        }
+
+        index.removeRequest(open.getId());
+        assertEquals(0, index.getStatus().openRequests());
+    }
+
+    @Test
+    void onlyEnabledLocatedHelpersAreIndexed() {
+        User helper = helper(0.01);
+        User dispatcher = helper(0.02);
+        dispatcher.setRole("DISPATCHER");
+        User disabled = helper(0.03);
+        disabled.setDisabled(true);
+        index.updateHelper(helper);
+        index.updateHelper(dispatcher);
+        index.updateHelper(disabled);
+
+        assertEquals(List.of(helper.getId()), index.helpersWithin(LAT, LON, 50_000));
+
+        helper.setGeomPoint(point(1.0));
+        index.updateHelper(helper);
+        assertTrue(index.helpersWithin(LAT, LON, 50_000).isEmpty(), "moved away");
+        assertEquals(List.of(helper.getId()), index.nearestHelpers(LAT, LON, 3, 200_000));
+
+        helper.setGeomPoint(null);
+        index.updateHelper(helper);
+        assertEquals(0, index.getStatus().helpers());
+    }
+
+    private static NeedsRequest request(String status, LocalDateTime createdAt, double north) {
+        return NeedsRequest.builder()
+            .id(UUID.randomUUID())
+            .status(status)
+            .geomPoint(point(north))
+            .createdAt(createdAt)
+            .build();
+    }
+
+    private static User helper(double north) {
+        return User.builder()
+            .id(UUID.randomUUID())
+            .role("HELPER")
+            .geomPoint(point(north))
+            .updatedAt(LocalDateTime.now())
+            .build();
+    }
+
+    /**
+     * Point {@code north} degrees of latitude north of the test location
+     */
+    private static Point point(double north) {
+        return GEOMETRY.createPoint(new Coordinate(LON, LAT + north));
+    }
+}
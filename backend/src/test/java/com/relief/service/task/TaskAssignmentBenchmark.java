@@ -0,0 +1,101 @@
+package com.relief.service.task;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch assignment of 5000 tasks to 2000 helpers spread over a 100 km region, with a 12-skill
+ * vocabulary, mixed workloads and completion histories. Run {@link #main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class TaskAssignmentBenchmark {
+
+    private static final int TASKS = 5000;
+    private static final int HELPERS = 2000;
+    private static final int CANDIDATES_PER_TASK = 64;
+    private static final String[] SKILLS = {
+        "DELIVERY", "DRIVING", "CUSTOMER_SERVICE", "FIRST_AID", "MEDICAL", "LIFTING",
+        "COMMUNICATION", "COORDINATION", "EXPERIENCED", "SENIOR", "BOAT", "TRANSLATION"
+    };
+    private static final String[] TYPES = {"delivery", "medical", "evacuation", "supply_check"};
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private TaskMatchScorer scorer;
+    private int[] allTasks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<TaskMatchScorer.HelperProfile> helpers = new ArrayList<>(HELPERS);
+        for (int h = 0; h < HELPERS; h++) {
+            Set<String> skills = new HashSet<>();
+            for (int s = 3 + random.nextInt(4); s > 0; s--) {
+                skills.add(SKILLS[random.nextInt(SKILLS.length)]);
+            }
+            int completed = random.nextInt(40);
+            helpers.add(new TaskMatchScorer.HelperProfile(
+                skills, random.nextInt(6),
+                14.2 + random.nextDouble() * 0.9, 120.8 + random.nextDouble() * 0.9,
+                completed, random.nextInt(5),
+                Map.of(TYPES[random.nextInt(TYPES.length)], 30.0 + random.nextInt(300))));
+        }
+
+        List<TaskMatchScorer.TaskProfile> tasks = new ArrayList<>(TASKS);
+        for (int t = 0; t < TASKS; t++) {
+            StringBuilder required = new StringBuilder();
+            for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                if (!required.isEmpty()) required.append(',');
+                required.append(SKILLS[random.nextInt(SKILLS.length)]);
+            }
+            tasks.add(new TaskMatchScorer.TaskProfile(
+                required.toString(),
+                14.2 + random.nextDouble() * 0.9, 120.8 + random.nextDouble() * 0.9,
+                TYPES[random.nextInt(TYPES.length)],
+                random.nextBoolean() ? (long) random.nextInt(24 * 60) : null));
+        }
+
+        scorer = new TaskMatchScorer(helpers, tasks);
+        allTasks = new int[TASKS];
+        for (int t = 0; t < TASKS; t++) {
+            allTasks[t] = t;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public TaskMatchScorer.Candidates scoreCandidates() {
+        return scorer.candidates(allTasks, scorer.capacities(), null, CANDIDATES_PER_TASK, pool);
+    }
+
+    @Benchmark
+    public int[] assign() {
+        return TaskAssignmentSolver.assign(scorer, null, CANDIDATES_PER_TASK, pool);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(TaskAssignmentBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,100 @@
+package com.relief.service.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Min-cost flow assignment against exhaustive search over every way to give each task one of its
+ * candidates or none, on small random instances with tight capacities
+ */
+public class TaskAssignmentSolverTest {
+
+    @Test
+    void matchesExhaustiveSearch() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 500; trial++) {
+            int tasks = 1 + random.nextInt(7);
+            int helpers = 1 + random.nextInt(4);
+            int[] capacity = new int[helpers];
+            for (int h = 0; h < helpers; h++) {
+                capacity[h] = random.nextInt(3);
+            }
+            TaskMatchScorer.Candidates candidates = randomCandidates(random, tasks, helpers);
+
+            int[] assignment = TaskAssignmentSolver.solve(candidates, capacity.clone());
+
+            int[] load = new int[helpers];
+            double total = 0;
+            for (int t = 0; t < tasks; t++) {
+                if (assignment[t] == TaskAssignmentSolver.UNASSIGNED) continue;
+                load[assignment[t]]++;
+                total += score(candidates, t, assignment[t]);
+            }
+            for (int h = 0; h < helpers; h++) {
+                assertTrue(load[h] <= capacity[h], "trial " + trial + ": helper " + h + " over capacity");
+            }
+            assertEquals(best(candidates, 0, capacity.clone()), total, 1e-5, "trial " + trial);
+        }
+    }
+
+    @Test
+    void movesEarlierTaskToFreeBestHelperForLaterOne() {
+        // Both tasks prefer helper 0, which takes one; only task 1 has no alternative
+        TaskMatchScorer.Candidates candidates = new TaskMatchScorer.Candidates(
+            new int[]{0, 2, 3},
+            new int[]{0, 1, 0},
+            new float[]{0.9f, 0.8f, 0.9f});
+
+        int[] assignment = TaskAssignmentSolver.solve(candidates, new int[]{1, 1});
+
+        assertEquals(1, assignment[0]);
+        assertEquals(0, assignment[1]);
+    }
+
+    private static TaskMatchScorer.Candidates randomCandidates(Random random, int tasks, int helpers) {
+        int[] start = new int[tasks + 1];
+        List<Integer> helperList = new ArrayList<>();
+        List<Float> scoreList = new ArrayList<>();
+        for (int t = 0; t < tasks; t++) {
+            for (int h = 0; h < helpers; h++) {
+                if (random.nextInt(3) == 0) continue;
+                helperList.add(h);
+                scoreList.add(random.nextInt(20) / 20f);
+            }
+            start[t + 1] = helperList.size();
+        }
+        int[] helper = new int[helperList.size()];
+        float[] score = new float[scoreList.size()];
+        for (int c = 0; c < helper.length; c++) {
+            helper[c] = helperList.get(c);
+            score[c] = scoreList.get(c);
+        }
+        return new TaskMatchScorer.Candidates(start, helper, score);
+    }
+
+    private static double score(TaskMatchScorer.Candidates candidates, int task, int helper) {
+        for (int c = candidates.start()[task]; c < candidates.start()[task + 1]; c++) {
+            if (candidates.helper()[c] == helper) return candidates.score()[c];
+        }
+        throw new AssertionError("task " + task + " assigned to helper " + helper + " outside its candidates");
+    }
+
+    private static double best(TaskMatchScorer.Candidates candidates, int task, int[] remaining) {
+        if (task == candidates.taskCount()) return 0;
+        double best = best(candidates, task + 1, remaining);
+        for (int c = candidates.start()[task]; c < candidates.start()[task + 1]; c++) {
+            int helper = candidates.helper()[c];
+            if (remaining[helper] == 0) continue;
+            remaining[helper]--;
+            best = Math.max(best, candidates.score()[c] + best(candidates, task + 1, remaining));
+            remaining[helper]++;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,185 @@
+package com.relief.service.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The incremental counters behind cycle rejection, canStart and the ready set against a plain
+ * map of statuses and edges, recomputed from scratch after every random operation
+ */
+public class TaskDependencyGraphTest {
+
+    private static final String[] STATUSES = {"new", "assigned", "picked_up", "delivered", "completed"};
+
+    private final TaskDependencyGraph graph = new TaskDependencyGraph();
+
+    @Test
+    void rejectsEdgesThatCloseACycle() {
+        UUID a = task("new");
+        UUID b = task("new");
+        UUID c = task("new");
+        assertTrue(graph.addDependency(a, b));
+        assertTrue(graph.addDependency(b, c));
+        assertFalse(graph.addDependency(a, b));
+
+        assertThrows(IllegalArgumentException.class, () -> graph.addDependency(a, a));
+        assertThrows(IllegalArgumentException.class, () -> graph.addDependency(b, a));
+        assertThrows(IllegalArgumentException.class, () -> graph.addDependency(c, a));
+        assertThrows(IllegalArgumentException.class, () -> graph.addDependency(a, UUID.randomUUID()));
+        assertEquals(List.of(b), graph.dependencies(a));
+        assertTrue(graph.isAcyclic(a));
+
+        // Once the chain is cut the former back edge is allowed
+        assertTrue(graph.removeDependency(b, c));
+        assertTrue(graph.addDependency(c, a));
+    }
+
+    @Test
+    void canStartFollowsDependencyCompletion() {
+        UUID task = task("new");
+        UUID first = task("assigned");
+        UUID second = task("new");
+        assertFalse(graph.canStart(UUID.randomUUID()));
+        assertTrue(graph.canStart(task));
+        assertEquals(Set.of(task, second), Set.copyOf(graph.readyTasks()));
+
+        graph.addDependency(task, first);
+        graph.addDependency(task, second);
+        assertFalse(graph.canStart(task));
+        assertEquals(List.of(second), graph.readyTasks());
+
+        graph.upsertTask(first, "delivered", 30);
+        assertFalse(graph.canStart(task));
+        graph.upsertTask(second, "completed", 30);
+        assertTrue(graph.canStart(task));
+        assertEquals(List.of(task), graph.readyTasks());
+
+        // Reopening a dependency blocks the task again; removing it frees the task
+        graph.upsertTask(first, "assigned", 30);
+        assertFalse(graph.canStart(task));
+        graph.removeTask(first);
+        assertTrue(graph.canStart(task));
+        assertFalse(graph.canStart(first));
+
+        graph.upsertTask(task, "assigned", 30);
+        assertEquals(List.of(), graph.readyTasks());
+    }
+
+    @Test
+    void reusedSlotsStartWithoutEdgesOrState() {
+        UUID done = task("completed");
+        UUID blocked = task("new");
+        UUID dependent = task("new");
+        graph.addDependency(blocked, task("assigned"));
+        graph.addDependency(dependent, done);
+        graph.removeTask(done);
+        graph.removeTask(blocked);
+
+        // The next tasks take over the freed slots
+        UUID fresh = task("new");
+        UUID other = task("assigned");
+        assertTrue(graph.canStart(fresh));
+        assertEquals(List.of(), graph.dependencies(fresh));
+        assertEquals(List.of(), graph.dependents(fresh));
+        assertEquals(List.of(), graph.dependencies(dependent));
+        assertEquals(Set.of(fresh, dependent), Set.copyOf(graph.readyTasks()));
+
+        graph.addDependency(dependent, other);
+        assertFalse(graph.canStart(dependent));
+        assertEquals(List.of(dependent, other), graph.criticalPath(dependent).path());
+    }
+
+    @Test
+    void matchesRecomputedReadinessUnderRandomOperations() {
+        Random random = new Random(36);
+        List<UUID> known = new ArrayList<>();
+        Map<UUID, String> status = new HashMap<>();
+        Map<UUID, Set<UUID>> edges = new HashMap<>();
+
+        for (int step = 0; step < 5000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 2 || known.size() < 2) {
+                UUID id = known.isEmpty() || random.nextInt(3) == 0
+                    ? UUID.randomUUID() : known.get(random.nextInt(known.size()));
+                String next = STATUSES[random.nextInt(STATUSES.length)];
+                graph.upsertTask(id, next, random.nextInt(120));
+                if (status.put(id, next) == null) {
+                    known.add(id);
+                    edges.put(id, new HashSet<>());
+                }
+            } else if (operation < 7) {
+                UUID task = known.get(random.nextInt(known.size()));
+                UUID dependency = known.get(random.nextInt(known.size()));
+                boolean cycle = task.equals(dependency) || reaches(edges, dependency, task);
+                if (cycle) {
+                    assertThrows(IllegalArgumentException.class, () -> graph.addDependency(task, dependency),
+                        "step " + step);
+                } else {
+                    assertEquals(edges.get(task).add(dependency), graph.addDependency(task, dependency),
+                        "step " + step);
+                }
+            } else if (operation < 9) {
+                UUID task = known.get(random.nextInt(known.size()));
+                UUID dependency = known.get(random.nextInt(known.size()));
+                assertEquals(edges.get(task).remove(dependency), graph.removeDependency(task, dependency),
+                    "step " + step);
+            } else {
+                UUID removed = known.remove(random.nextInt(known.size()));
+                graph.removeTask(removed);
+                status.remove(removed);
+                edges.remove(removed);
+                edges.values().forEach(dependencies -> dependencies.remove(removed));
+            }
+
+            Set<UUID> expectedReady = new HashSet<>();
+            for (UUID id : known) {
+                boolean free = true;
+                for (UUID dependency : edges.get(id)) {
+                    if (!TaskDependencyGraph.COMPLETED_STATUSES.contains(status.get(dependency))) free = false;
+                }
+                assertEquals(free, graph.canStart(id), "step " + step);
+                if (free && "new".equals(status.get(id))) expectedReady.add(id);
+            }
+            List<UUID> ready = graph.readyTasks();
+            assertEquals(expectedReady.size(), ready.size(), "step " + step);
+            assertEquals(expectedReady, Set.copyOf(ready), "step " + step);
+            assertEquals(known.size(), graph.size(), "step " + step);
+        }
+    }
+
+    private UUID task(String status) {
+        UUID id = UUID.randomUUID();
+        graph.upsertTask(id, status, 30);
+        return id;
+    }
+
+    /**
+     * Whether {@code target} is among the transitive dependencies of {@code from}
+     */
+    private static boolean reaches(Map<UUID, Set<UUID>> edges, UUID from, UUID target) {
+        Set<UUID> seen = new HashSet<>();
+        Deque<UUID> stack = new ArrayDeque<>(List.of(from));
+        while (!stack.isEmpty()) {
+            for (UUID dependency : edges.get(stack.pop())) {
+                if (dependency.equals(target)) return true;
+                if (seen.add(dependency)) stack.push(dependency);
+            }
+        }
+        return false;
+    }
+}
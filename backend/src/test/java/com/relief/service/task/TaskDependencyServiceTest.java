@@ -0,0 +1,146 @@
+package com.relief.service.task;
+
+import com.relief.entity.Task;
+import com.relief.repository.TaskDependencyRepository;
+import com.relief.repository.TaskRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Readiness, dependency chains and critical paths answered from the database until the graph is
+ * loaded or while it does not know a task, and from the graph alone afterwards, without the read
+ * path writing to the graph
+ */
+public class TaskDependencyServiceTest {
+
+    private final TaskRepository tasks = mock(TaskRepository.class);
+    private final TaskDependencyRepository dependencies = mock(TaskDependencyRepository.class);
+    private final TaskDependencyGraph graph = new TaskDependencyGraph();
+    private final TaskDependencyService service = new TaskDependencyService(tasks, dependencies, graph);
+
+    @Test
+    void canStartAsksTheDatabaseUntilTheGraphIsLoaded() {
+        // Saved after startup, so known to the graph before its edges are loaded
+        Task task = task("new");
+        graph.upsertTask(task.getId(), "new", 30);
+        when(dependencies.countOpenDependencies(eq(task.getId()), any())).thenReturn(1L);
+
+        assertFalse(service.canStartTask(task));
+
+        graph.markLoaded();
+        assertTrue(service.canStartTask(task));
+        verify(dependencies, times(1)).countOpenDependencies(any(), any());
+    }
+
+    @Test
+    void canStartAsksTheDatabaseForTasksTheGraphDoesNotKnow() {
+        graph.markLoaded();
+        Task blocked = task("new");
+        Task free = task("new");
+        when(dependencies.countOpenDependencies(eq(blocked.getId()), any())).thenReturn(2L);
+        when(dependencies.countOpenDependencies(eq(free.getId()), any())).thenReturn(0L);
+
+        assertFalse(service.canStartTask(blocked));
+        assertTrue(service.canStartTask(free));
+    }
+
+    @Test
+    void readyTasksComeFromTheDatabaseUntilTheGraphIsLoaded() {
+        Task ready = task("new");
+        when(tasks.findReadyToStart(TaskDependencyGraph.COMPLETED_STATUSES)).thenReturn(List.of(ready));
+
+        assertEquals(List.of(ready), service.getReadyToStartTasks());
+        verify(tasks, never()).findAllById(any());
+    }
+
+    @Test
+    void readyTasksSkipStaleEntriesWithoutChangingTheGraph() {
+        graph.markLoaded();
+        Task ready = task("new");
+        Task assigned = task("assigned");
+        graph.upsertTask(ready.getId(), "new", 30);
+        graph.upsertTask(assigned.getId(), "new", 30);
+        when(tasks.findAllById(any())).thenReturn(List.of(ready, assigned));
+
+        assertEquals(List.of(ready), service.getReadyToStartTasks());
+        assertEquals(2, graph.readyTasks().size());
+    }
+
+    @Test
+    void dependencyChainAndCriticalPathComeFromTheDatabaseUntilTheGraphIsLoaded() {
+        // root needs first and third, first needs second; third alone outlasts first and second
+        Task root = task("new", "FIRST_AID");
+        Task first = task("assigned", "FOOD_DELIVERY");
+        Task second = task("assigned", "GROCERY_PICKUP");
+        Task third = task("new", "EVACUATION_COORDINATION");
+        Map<UUID, List<Task>> edges = Map.of(root.getId(), List.of(first, third), first.getId(), List.of(second));
+        Map<UUID, Task> byId = Map.of(first.getId(), first, second.getId(), second, third.getId(), third);
+        when(dependencies.findEdgesFrom(any())).thenAnswer(call -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (UUID id : call.<Collection<UUID>>getArgument(0)) {
+                for (Task dependency : edges.getOrDefault(id, List.of())) {
+                    rows.add(new Object[]{id, dependency.getId()});
+                }
+            }
+            return rows;
+        });
+        when(tasks.findAllById(any())).thenAnswer(call -> call.<Collection<UUID>>getArgument(0).stream()
+            .map(byId::get).toList());
+
+        assertEquals(List.of(first, third, second), service.getTaskDependencyChain(root).getDependencies());
+        assertEquals(List.of(root, third), service.getCriticalPath(root));
+        TaskDependencyService.TaskWorkflowVisualization visualization = service.getTaskWorkflowVisualization(root);
+        assertEquals(List.of(root, first, third, second), visualization.getAllTasks());
+        assertEquals(4, visualization.getMetrics().getTotalTasks());
+        assertEquals(0, graph.size());
+    }
+
+    @Test
+    void removingADependencyRestoresOnRollbackOnlyAnEdgeTheGraphHeld() {
+        graph.markLoaded();
+        UUID task = UUID.randomUUID();
+        UUID held = UUID.randomUUID();
+        UUID persistedOnly = UUID.randomUUID();
+        graph.upsertTask(task, "new", 30);
+        graph.upsertTask(held, "assigned", 30);
+        graph.upsertTask(persistedOnly, "assigned", 30);
+        graph.addDependency(task, held);
+        when(dependencies.existsById(any())).thenReturn(true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(service.removeDependency(task, held));
+            assertTrue(service.removeDependency(task, persistedOnly));
+            assertEquals(List.of(), graph.dependencies(task));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(held), graph.dependencies(task));
+    }
+
+    private static Task task(String status) {
+        return Task.builder().id(UUID.randomUUID()).status(status).build();
+    }
+
+    private static Task task(String status, String type) {
+        return Task.builder().id(UUID.randomUUID()).status(status).type(type).build();
+    }
+}
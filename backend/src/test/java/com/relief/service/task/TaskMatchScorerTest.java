@@ -0,0 +1,68 @@
+package com.relief.service.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Location scores by straight-line distance bands, and by drive-time bands for helpers given a
+ * road drive time
+ */
+public class TaskMatchScorerTest {
+
+    private static final double LAT = 52.5;
+    private static final double LON = 13.4;
+    /** Kilometres per degree of latitude */
+    private static final double KM_PER_DEGREE = 111.195;
+
+    @Test
+    void straightLineDistanceFallsIntoBands() {
+        TaskMatchScorer scorer = scorer(3, 10, 20, 40, 80);
+
+        assertEquals(1.0, scorer.locationScore(0, 0), 1e-9);
+        assertEquals(0.8, scorer.locationScore(0, 1), 1e-9);
+        assertEquals(0.6, scorer.locationScore(0, 2), 1e-9);
+        assertEquals(0.4, scorer.locationScore(0, 3), 1e-9);
+        assertEquals(0.2, scorer.locationScore(0, 4), 1e-9);
+    }
+
+    @Test
+    void driveTimesReplaceStraightLineBands() {
+        TaskMatchScorer scorer = scorer(3, 3, 3, 3, 3);
+
+        // Helpers 3, 1 and 0 out of order; helper 4 keeps its straight-line score
+        scorer.driveTimes(0, new int[]{3, 1, 0, 2}, new float[]{50, 20, 5, Float.POSITIVE_INFINITY});
+
+        assertEquals(1.0, scorer.locationScore(0, 0), 1e-9);
+        assertEquals(0.8, scorer.locationScore(0, 1), 1e-9);
+        assertEquals(0.0, scorer.locationScore(0, 2), 1e-9, "no open route");
+        assertEquals(0.4, scorer.locationScore(0, 3), 1e-9);
+        assertEquals(1.0, scorer.locationScore(0, 4), 1e-9);
+        assertEquals(0.4 + 0.3 + 0.2 * 0.4 + 0.1 * 0.5, scorer.score(0, 3), 1e-9);
+    }
+
+    @Test
+    void unlocatedHelpersKeepANeutralScore() {
+        TaskMatchScorer scorer = new TaskMatchScorer(
+            List.of(new TaskMatchScorer.HelperProfile(Set.of(), 0, null, null, 0, 0, Map.of())),
+            List.of(new TaskMatchScorer.TaskProfile(null, LAT, LON, "delivery", null)));
+
+        assertEquals(0.5, scorer.locationScore(0, 0), 1e-9);
+    }
+
+    /**
+     * One task and helpers due north of it at the given distances in kilometres
+     */
+    private static TaskMatchScorer scorer(double... helperKm) {
+        List<TaskMatchScorer.HelperProfile> helpers = new ArrayList<>();
+        for (double km : helperKm) {
+            helpers.add(new TaskMatchScorer.HelperProfile(Set.of(), 0, LAT + km / KM_PER_DEGREE, LON, 0, 0, Map.of()));
+        }
+        return new TaskMatchScorer(helpers, List.of(new TaskMatchScorer.TaskProfile(null, LAT, LON, "delivery", null)));
+    }
+}
@@ -0,0 +1,114 @@
+package com.relief.service.task;
+
+import com.relief.entity.NeedsRequest;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching 100k requests against 1000 task creation rules over 40 request types and 6 statuses,
+ * compiled index versus the previous linear scan. Run {@link #main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class TaskRuleEngineBenchmark {
+
+    private static final int RULES = 1000;
+    private static final int REQUESTS = 100_000;
+    private static final int TYPES = 40;
+    private static final String[] STATUSES = {"new", "assigned", "in_progress", "ESCALATED", "completed", "cancelled"};
+
+    private TaskRuleEngine engine;
+    private List<TaskCreationRule> rules;
+    private NeedsRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rules = new ArrayList<>(RULES);
+        for (int r = 0; r < RULES; r++) {
+            TaskCreationRule rule = new TaskCreationRule();
+            rule.setId("RULE_" + r);
+            rule.setName("Rule " + r);
+            // One rule in ten accepts every type, the rest one to three types
+            if (random.nextInt(10) > 0) {
+                Set<String> types = new HashSet<>();
+                for (int t = 1 + random.nextInt(3); t > 0; t--) {
+                    types.add("TYPE_" + random.nextInt(TYPES));
+                }
+                rule.setRequestTypes(types);
+            }
+            if (random.nextBoolean()) {
+                rule.setRequestStatuses(Set.of(STATUSES[random.nextInt(STATUSES.length)],
+                    STATUSES[random.nextInt(STATUSES.length)]));
+            }
+            rule.setMinSeverity(1 + random.nextInt(5));
+            rule.setPriority(random.nextInt(5));
+            rule.setLocationRequired(random.nextBoolean());
+            rule.setTaskTemplates(List.of());
+            rules.add(rule);
+        }
+        engine = new TaskRuleEngine();
+        engine.replaceRules(rules);
+
+        GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+        requests = new NeedsRequest[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            NeedsRequest request = new NeedsRequest();
+            request.setType("TYPE_" + random.nextInt(TYPES + 10));
+            request.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            request.setSeverity(1 + random.nextInt(5));
+            if (random.nextInt(4) > 0) {
+                Point point = geometryFactory.createPoint(new Coordinate(120.8 + random.nextDouble(), 14.2 + random.nextDouble()));
+                request.setGeomPoint(point);
+            }
+            requests[i] = request;
+        }
+    }
+
+    @Benchmark
+    public void compiledIndex(Blackhole blackhole) {
+        for (NeedsRequest request : requests) {
+            blackhole.consume(engine.getApplicableRules(request));
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (NeedsRequest request : requests) {
+            List<TaskCreationRule> applicable = new ArrayList<>();
+            for (TaskCreationRule rule : rules) {
+                if (rule.getRequestTypes() != null && !rule.getRequestTypes().contains(request.getType())) continue;
+                if (request.getSeverity() < rule.getMinSeverity()) continue;
+                if (rule.getRequestStatuses() != null && !rule.getRequestStatuses().contains(request.getStatus())) continue;
+                if (rule.isLocationRequired() && request.getGeomPoint() == null) continue;
+                applicable.add(rule);
+            }
+            applicable.sort((a, b) -> Integer.compare(b.getPriority(), a.getPriority()));
+            blackhole.consume(applicable);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(TaskRuleEngineBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
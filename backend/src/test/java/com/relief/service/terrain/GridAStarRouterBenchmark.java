@@ -0,0 +1,81 @@
+package com.relief.service.terrain;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grid router throughput on a synthetic 2000x2000 raster (30 m cells) with rolling hills,
+ * a steep ridge and a flood-prone river corridor. Run {@link #main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class GridAStarRouterBenchmark {
+
+    private static final int SIZE = 2000;
+
+    private final GridAStarRouter router = new GridAStarRouter();
+    private final GridAStarRouter.CostModel model = GridAStarRouter.CostModel.of(15, 2.0);
+
+    private TerrainCostRaster raster;
+    private int source;
+    private int target;
+
+    @Setup
+    public void setUp() {
+        float[] elevation = new float[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                double hills = 40 * Math.sin(x / 60.0) * Math.cos(y / 45.0);
+                double ridge = Math.abs(x - SIZE / 2) < 6 && y > SIZE / 5 ? 400 : 0;
+                elevation[y * SIZE + x] = (float) (100 + hills + ridge);
+            }
+        }
+        raster = new TerrainCostRaster(SIZE, SIZE, 105.0, 20.0, 30.0, elevation);
+
+        GeometryFactory factory = new GeometryFactory();
+        double lonSpan = raster.cellLon(SIZE - 1) - raster.cellLon(0);
+        double latSpan = raster.cellLat((SIZE - 1) * SIZE) - raster.cellLat(0);
+        raster.applyPenalty(factory.createPolygon(new Coordinate[]{
+            new Coordinate(105.0, 20.0 + latSpan * 0.45),
+            new Coordinate(105.0 + lonSpan, 20.0 + latSpan * 0.45),
+            new Coordinate(105.0 + lonSpan, 20.0 + latSpan * 0.55),
+            new Coordinate(105.0, 20.0 + latSpan * 0.55),
+            new Coordinate(105.0, 20.0 + latSpan * 0.45)
+        }), 3.0);
+
+        source = 10 * SIZE + 10;
+        target = (SIZE - 10) * SIZE + (SIZE - 10);
+    }
+
+    @Benchmark
+    public GridAStarRouter.GridPath unidirectional() {
+        return router.findPath(raster, source, target, model, false);
+    }
+
+    @Benchmark
+    public GridAStarRouter.GridPath bidirectional() {
+        return router.findPath(raster, source, target, model, true);
+    }
+
+    @Benchmark
+    public List<GridAStarRouter.GridPath> threeAlternatives() {
+        return router.findAlternatives(raster, source, target, model, true, 3, 8, 0.5, 0.8);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(GridAStarRouterBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,155 @@
+package com.relief.service.terrain;
+
+import com.relief.service.terrain.GridAStarRouter.CostModel;
+import com.relief.service.terrain.GridAStarRouter.GridPath;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Forward and bidirectional A* against Dijkstra over the same move costs, on small random
+ * rasters with hills, cliffs steeper than the model allows and penalised cells
+ */
+public class GridAStarRouterTest {
+
+    private static final double CELL_SIZE = 30.0;
+    private static final GeometryFactory GEOMETRY = new GeometryFactory();
+
+    private final GridAStarRouter router = new GridAStarRouter();
+    private final CostModel model = CostModel.of(20, 2.0);
+
+    @Test
+    void findsCheapestPathOnRandomRasters() {
+        Random random = new Random(26);
+        for (int trial = 0; trial < 300; trial++) {
+            int width = 3 + random.nextInt(14);
+            int height = 3 + random.nextInt(14);
+            TerrainCostRaster raster = raster(random, width, height);
+            int source = random.nextInt(raster.size());
+            int target = random.nextInt(raster.size());
+            double optimum = dijkstra(raster, source, target);
+
+            for (boolean bidirectional : new boolean[] {false, true}) {
+                GridPath path = router.findPath(raster, source, target, model, bidirectional);
+                String label = "trial " + trial + (bidirectional ? " bidirectional" : " forward");
+                if (Double.isInfinite(optimum)) {
+                    assertNull(path, label);
+                    continue;
+                }
+                assertNotNull(path, label);
+                assertEquals(source, path.cells()[0], label);
+                assertEquals(target, path.cells()[path.cells().length - 1], label);
+                assertAdjacent(raster, path.cells(), label);
+                double walked = router.pathCost(raster, path.cells(), model, null);
+                // Search costs are accumulated in floats
+                assertEquals(walked, path.cost(), 1e-4 * (1 + walked), label);
+                assertEquals(optimum, walked, 1e-4 * (1 + optimum), label);
+            }
+        }
+    }
+
+    @Test
+    void flatGridCostsTheOctileDistance() {
+        TerrainCostRaster raster = new TerrainCostRaster(8, 5, 105.0, 20.0, CELL_SIZE, new float[40]);
+
+        GridPath path = router.findPath(raster, 0, 4 * 8 + 7, model, false);
+
+        // Four diagonal moves and three straight ones
+        assertEquals(CELL_SIZE * (3 + 4 * Math.sqrt(2)), path.cost(), 1e-3);
+        assertEquals(8, path.cells().length);
+    }
+
+    @Test
+    void cliffWallWithoutGapIsUnreachable() {
+        int width = 6;
+        float[] elevation = new float[width * 4];
+        for (int y = 0; y < 4; y++) {
+            // Column 3 rises far above the maximum grade from both sides
+            elevation[y * width + 3] = 500;
+        }
+        TerrainCostRaster raster = new TerrainCostRaster(width, 4, 105.0, 20.0, CELL_SIZE, elevation);
+
+        assertNull(router.findPath(raster, 0, 5, model, false));
+        assertNull(router.findPath(raster, 0, 5, model, true));
+    }
+
+    @Test
+    void sourceEqualToTargetIsAnEmptyWalk() {
+        TerrainCostRaster raster = new TerrainCostRaster(2, 2, 105.0, 20.0, CELL_SIZE, new float[4]);
+
+        GridPath path = router.findPath(raster, 3, 3, model, true);
+
+        assertArrayEquals(new int[] {3}, path.cells());
+        assertEquals(0, path.cost());
+    }
+
+    private TerrainCostRaster raster(Random random, int width, int height) {
+        float[] elevation = new float[width * height];
+        for (int i = 0; i < elevation.length; i++) {
+            // Mostly gentle slopes, with the odd cliff no move may climb
+            elevation[i] = random.nextInt(10) == 0 ? 400 + random.nextInt(50) : random.nextInt(12);
+        }
+        TerrainCostRaster raster = new TerrainCostRaster(width, height, 105.0, 20.0, CELL_SIZE, elevation);
+        for (int cell = 0; cell < raster.size(); cell++) {
+            if (random.nextInt(5) == 0) {
+                Envelope bounds = raster.cellEnvelope(cell % width, cell / width, cell % width, cell / width);
+                raster.applyPenalty(GEOMETRY.createPolygon(new Coordinate[] {
+                    new Coordinate(bounds.getMinX(), bounds.getMinY()),
+                    new Coordinate(bounds.getMaxX(), bounds.getMinY()),
+                    new Coordinate(bounds.getMaxX(), bounds.getMaxY()),
+                    new Coordinate(bounds.getMinX(), bounds.getMaxY()),
+                    new Coordinate(bounds.getMinX(), bounds.getMinY())
+                }), 1 + random.nextInt(4));
+            }
+        }
+        return raster;
+    }
+
+    /**
+     * Dijkstra with the router's own price of each single move
+     */
+    private double dijkstra(TerrainCostRaster raster, int source, int target) {
+        double[] distance = new double[raster.size()];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        distance[source] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] {0, source});
+        int width = raster.width();
+        while (!queue.isEmpty()) {
+            double[] head = queue.poll();
+            int cell = (int) head[1];
+            if (head[0] > distance[cell]) continue;
+            if (cell == target) return head[0];
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int x = cell % width + dx;
+                    int y = cell / width + dy;
+                    if ((dx == 0 && dy == 0) || x < 0 || y < 0 || x >= width || y >= raster.height()) continue;
+                    int neighbor = y * width + x;
+                    double candidate = distance[cell] + router.pathCost(raster, new int[] {cell, neighbor}, model, null);
+                    if (candidate < distance[neighbor]) {
+                        distance[neighbor] = candidate;
+                        queue.add(new double[] {candidate, neighbor});
+                    }
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static void assertAdjacent(TerrainCostRaster raster, int[] cells, String label) {
+        int width = raster.width();
+        for (int i = 1; i < cells.length; i++) {
+            int dx = Math.abs(cells[i] % width - cells[i - 1] % width);
+            int dy = Math.abs(cells[i] / width - cells[i - 1] / width);
+            assertTrue(Math.max(dx, dy) == 1, label + ": jump at " + i);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.relief.service.terrain;
+
+import com.relief.service.terrain.TerrainGridAnalyzer.Result;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Horn slope and aspect, D8 flow direction and flow accumulation on small fixed rasters whose
+ * answers follow from the geometry, and the same grids cut into tiles of different sizes
+ */
+public class TerrainGridAnalyzerTest {
+
+    private static final double CELL_SIZE = 30.0;
+    /** D8 direction indexes of the analyzer; rows grow northwards */
+    private static final int EAST = 0, SOUTH = 6, WEST = 4;
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private final TerrainGridAnalyzer analyzer = new TerrainGridAnalyzer(POOL, 8);
+
+    @AfterAll
+    static void shutDownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void planeRisingEastFacesWestAndDrainsWest() {
+        int width = 10, height = 7;
+        // 3 m per cell towards the east
+        Result result = analyzer.analyze(raster(width, height, (x, y) -> 3 * x));
+
+        double slope = Math.toDegrees(Math.atan(3 / CELL_SIZE));
+        for (int y = 0; y < height; y++) {
+            // Interior columns only: the replicated edge halves the gradient on the border
+            for (int x = 1; x < width - 1; x++) {
+                int cell = y * width + x;
+                assertEquals(slope, result.slope()[cell], 1e-4, "slope at " + x + "," + y);
+                assertEquals(270, result.aspect()[cell], 1e-3, "aspect at " + x + "," + y);
+            }
+            for (int x = 1; x < width; x++) {
+                assertEquals(WEST, result.flowDirection()[y * width + x], "direction at " + x + "," + y);
+            }
+            // The west edge has nowhere lower to go and collects its whole row
+            assertEquals(-1, result.flowDirection()[y * width]);
+            assertEquals(width, result.flowAccumulation()[y * width]);
+            assertEquals(1, result.flowAccumulation()[y * width + width - 1]);
+        }
+    }
+
+    @Test
+    void planeRisingNorthFacesSouth() {
+        int width = 9, height = 9;
+        Result result = analyzer.analyze(raster(width, height, (x, y) -> 5 * y));
+
+        int center = 4 * width + 4;
+        assertEquals(Math.toDegrees(Math.atan(5 / CELL_SIZE)), result.slope()[center], 1e-4);
+        assertEquals(180, result.aspect()[center], 1e-3);
+        assertEquals(SOUTH, result.flowDirection()[center]);
+        assertEquals(height, result.flowAccumulation()[4]);
+    }
+
+    @Test
+    void flatGroundHasNoAspectAndNoFlow() {
+        int width = 12, height = 10;
+        Result result = analyzer.analyze(raster(width, height, (x, y) -> 42));
+
+        for (int cell = 0; cell < width * height; cell++) {
+            assertEquals(0, result.slope()[cell], 0.0);
+            assertEquals(-1, result.aspect()[cell], 0.0);
+            assertEquals(-1, result.flowDirection()[cell]);
+            assertEquals(1, result.flowAccumulation()[cell]);
+        }
+        assertEquals(42, result.summary().avgElevation(), 1e-9);
+        assertEquals(0, result.summary().elevationVariance(), 1e-9);
+    }
+
+    @Test
+    void valleyCollectsBothSlopesIntoItsOutlet() {
+        int width = 9, height = 6, floor = 4;
+        // Steep sides towards column 4, whose floor falls gently to the south
+        Result result = analyzer.analyze(raster(width, height, (x, y) -> 10 * Math.abs(x - floor) + y));
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x;
+                int expected = x < floor ? EAST : x > floor ? WEST : y > 0 ? SOUTH : -1;
+                assertEquals(expected, result.flowDirection()[cell], "direction at " + x + "," + y);
+            }
+            // The floor carries its own row and every row upstream of it
+            assertEquals(width * (height - y), result.flowAccumulation()[y * width + floor], "row " + y);
+        }
+        assertEquals(width * height, result.summary().maxFlowAccumulation());
+    }
+
+    @Test
+    void tileSizeDoesNotChangeTheResult() {
+        Random random = new Random(27);
+        for (int trial = 0; trial < 20; trial++) {
+            int width = 5 + random.nextInt(40);
+            int height = 5 + random.nextInt(40);
+            float[] elevation = new float[width * height];
+            for (int i = 0; i < elevation.length; i++) {
+                elevation[i] = random.nextInt(200) / 4f;
+            }
+            TerrainCostRaster raster = new TerrainCostRaster(width, height, 105.0, 20.0, CELL_SIZE, elevation);
+
+            Result whole = new TerrainGridAnalyzer(POOL, 64).analyze(raster);
+            Result tiled = new TerrainGridAnalyzer(POOL, 8).analyze(raster);
+
+            String label = "trial " + trial;
+            assertArrayEquals(whole.slope(), tiled.slope(), 0f, label);
+            assertArrayEquals(whole.aspect(), tiled.aspect(), 0f, label);
+            assertArrayEquals(whole.flowDirection(), tiled.flowDirection(), label);
+            assertArrayEquals(whole.flowAccumulation(), tiled.flowAccumulation(), label);
+            assertEquals(whole.summary().avgElevation(), tiled.summary().avgElevation(), 1e-6, label);
+            assertEquals(whole.summary().slopeMaximum(), tiled.summary().slopeMaximum(), 1e-6, label);
+            assertEquals(whole.summary().maxFlowAccumulation(), tiled.summary().maxFlowAccumulation(), label);
+        }
+    }
+
+    @Test
+    void tilesSmallerThanTheKernelAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TerrainGridAnalyzer(POOL, 4));
+    }
+
+    private interface Surface {
+        double elevation(int x, int y);
+    }
+
+    private static TerrainCostRaster raster(int width, int height, Surface surface) {
+        float[] elevation = new float[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                elevation[y * width + x] = (float) surface.elevation(x, y);
+            }
+        }
+        return new TerrainCostRaster(width, height, 105.0, 20.0, CELL_SIZE, elevation);
+    }
+}
@@ -0,0 +1,162 @@
+package com.relief.service.workflow;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.entity.Task;
+import com.relief.entity.User;
+import com.relief.repository.NeedsRequestRepository;
+import com.relief.repository.TaskRepository;
+import com.relief.repository.UserRepository;
+import com.relief.repository.WorkflowExecutionRepository;
+import com.relief.service.NotificationService;
+import com.relief.service.workflow.WorkflowOrchestrationService.WorkflowExecutionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Workflows on a one-thread step executor, where any step blocking on another step's future
+ * would never finish and steps queue behind each other, parallel branches creating a task each,
+ * and the checkpoint written before the first step
+ */
+public class WorkflowOrchestrationServiceTest {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final WorkflowTemplateService templates = mock(WorkflowTemplateService.class);
+    private final WorkflowCheckpointWriter checkpoints = mock(WorkflowCheckpointWriter.class);
+    private final Map<UUID, Task> savedTasks = new ConcurrentHashMap<>();
+    private final WorkflowOrchestrationService service = new WorkflowOrchestrationService(taskRepository,
+        userRepository, mock(NeedsRequestRepository.class), templates, mock(NotificationService.class),
+        mock(WorkflowExecutionRepository.class), checkpoints, 1, 30);
+    private final NeedsRequest request = NeedsRequest.builder().id(UUID.randomUUID()).build();
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void nestedParallelAndWaitStepsHoldNoExecutorThread() {
+        WorkflowStep parallel = step("parallel", WorkflowStepType.PARALLEL_EXECUTION, Map.of());
+        parallel.setParallelSteps(List.of(
+            step("wait-1", WorkflowStepType.WAIT_FOR_CONDITION, Map.of("waitSeconds", 1)),
+            step("create", WorkflowStepType.CREATE_TASK, Map.of("taskType", "FOOD_DELIVERY"))));
+        WorkflowStep conditional = step("conditional", WorkflowStepType.CONDITIONAL_BRANCH, Map.of());
+        conditional.setTrueStep(parallel);
+        stubPlan(List.of(conditional, step("wait-2", WorkflowStepType.WAIT_FOR_CONDITION, Map.of("waitSeconds", 1))));
+        stubTaskSaves();
+
+        WorkflowExecutionResult result = assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> service.executeWorkflow(request, "test"));
+
+        assertEquals("COMPLETED", result.getStatus());
+        assertEquals(2, result.getStepResults().size());
+        assertEquals("Parallel execution completed: 2/2 successful", result.getStepResults().get(0).getMessage());
+    }
+
+    @Test
+    void parallelBranchesAssignTheTaskOfTheLastBranch() {
+        WorkflowStep parallel = step("create-both", WorkflowStepType.PARALLEL_EXECUTION, Map.of());
+        parallel.setParallelSteps(List.of(
+            step("create-food", WorkflowStepType.CREATE_TASK, Map.of("taskType", "FOOD_DELIVERY")),
+            step("create-water", WorkflowStepType.CREATE_TASK, Map.of("taskType", "WATER_DELIVERY"))));
+        stubPlan(List.of(parallel, step("assign", WorkflowStepType.ASSIGN_USER, Map.of("assigneeRole", "HELPER"))));
+        stubTaskSaves();
+        User helper = User.builder().id(UUID.randomUUID()).build();
+        when(userRepository.findByRoleAndNotDisabled("HELPER")).thenReturn(List.of(helper));
+
+        WorkflowExecutionResult result = service.executeWorkflow(request, "test");
+
+        assertEquals("COMPLETED", result.getStatus());
+        // Branch variables are joined in declaration order, so the water task is the one assigned
+        ArgumentCaptor<WorkflowCheckpointWriter.Checkpoint> checkpoint =
+            ArgumentCaptor.forClass(WorkflowCheckpointWriter.Checkpoint.class);
+        verify(checkpoints, atLeastOnce()).submit(checkpoint.capture());
+        Map<?, ?> variables = (Map<?, ?>) checkpoint.getValue().executionData().get("variables");
+        assertEquals("WATER_DELIVERY", variables.get("taskType"));
+        Task water = savedTasks.get(UUID.fromString((String) variables.get("taskId")));
+        assertEquals(helper, water.getAssignee());
+        assertEquals(2, savedTasks.size());
+        assertEquals(1, savedTasks.values().stream().filter(task -> task.getAssignee() != null).count());
+    }
+
+    @Test
+    void stepTimeoutsStartWhenTheStepStarts() {
+        // One thread: each create takes 1.2 s, so the second one queues for 1.2 s before it starts
+        WorkflowStep first = step("create-food", WorkflowStepType.CREATE_TASK, Map.of("taskType", "FOOD_DELIVERY"));
+        WorkflowStep second = step("create-water", WorkflowStepType.CREATE_TASK, Map.of("taskType", "WATER_DELIVERY"));
+        first.setTimeoutSeconds(2);
+        second.setTimeoutSeconds(2);
+        WorkflowStep parallel = step("create-both", WorkflowStepType.PARALLEL_EXECUTION, Map.of());
+        parallel.setParallelSteps(List.of(first, second));
+        stubPlan(List.of(parallel));
+        when(taskRepository.save(any())).thenAnswer(call -> {
+            Thread.sleep(1200);
+            Task task = call.getArgument(0);
+            task.setId(UUID.randomUUID());
+            return task;
+        });
+
+        WorkflowExecutionResult result = service.executeWorkflow(request, "test");
+
+        assertEquals("COMPLETED", result.getStatus());
+        assertEquals("Parallel execution completed: 2/2 successful", result.getStepResults().get(0).getMessage());
+    }
+
+    @Test
+    void newExecutionsAreWrittenBeforeTheFirstStep() {
+        stubPlan(List.of(step("create", WorkflowStepType.CREATE_TASK, Map.of("taskType", "FOOD_DELIVERY"))));
+        stubTaskSaves();
+
+        WorkflowExecutionResult result = service.executeWorkflow(request, "test");
+
+        ArgumentCaptor<WorkflowCheckpointWriter.Checkpoint> written =
+            ArgumentCaptor.forClass(WorkflowCheckpointWriter.Checkpoint.class);
+        InOrder order = inOrder(checkpoints, taskRepository);
+        order.verify(checkpoints).writeNow(written.capture());
+        order.verify(taskRepository).save(any());
+        assertEquals(result.getExecutionId(), written.getValue().executionId());
+        assertEquals("IN_PROGRESS", written.getValue().status());
+        assertEquals(List.of(), written.getValue().executionData().get("stepResults"));
+    }
+
+    private void stubPlan(List<WorkflowStep> steps) {
+        WorkflowTemplate template = new WorkflowTemplate();
+        template.setName("test");
+        template.setSteps(steps);
+        when(templates.getPlan("test")).thenReturn(WorkflowPlan.compile(UUID.randomUUID(), LocalDateTime.now(), template));
+    }
+
+    private void stubTaskSaves() {
+        when(taskRepository.save(any())).thenAnswer(call -> {
+            Task task = call.getArgument(0);
+            if (task.getId() == null) task.setId(UUID.randomUUID());
+            savedTasks.put(task.getId(), task);
+            return task;
+        });
+        when(taskRepository.findById(any())).thenAnswer(call -> Optional.ofNullable(savedTasks.get(call.<UUID>getArgument(0))));
+    }
+
+    private static WorkflowStep step(String name, WorkflowStepType type, Map<String, Object> parameters) {
+        WorkflowStep step = new WorkflowStep();
+        step.setName(name);
+        step.setType(type);
+        step.setRequired(true);
+        step.setParameters(parameters);
+        return step;
+    }
+}
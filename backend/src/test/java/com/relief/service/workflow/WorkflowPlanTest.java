@@ -0,0 +1,141 @@
+package com.relief.service.workflow;
+
+import com.relief.service.workflow.WorkflowOrchestrationService.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Template compilation: step order and typed parameters, dependencies resolved from step names
+ * with the sequential default, conditions decided up front, and the templates compilation rejects
+ */
+public class WorkflowPlanTest {
+
+    @Test
+    void stepsKeepTemplateOrderAndRunInSequenceByDefault() {
+        UUID assignee = UUID.randomUUID();
+        WorkflowStep create = step("create", WorkflowStepType.CREATE_TASK, null);
+        create.setParameters(Map.of("taskType", "FOOD_DELIVERY", "assigneeId", assignee.toString()));
+        create.setTimeoutSeconds(0);
+        WorkflowStep wait = step("wait", WorkflowStepType.WAIT_FOR_CONDITION, null);
+        wait.setParameters(Map.of("waitSeconds", "5"));
+        wait.setTimeoutSeconds(20);
+        WorkflowStep notify = step("notify", WorkflowStepType.SEND_NOTIFICATION, null);
+
+        UUID templateId = UUID.randomUUID();
+        LocalDateTime version = LocalDateTime.of(2024, 5, 1, 12, 0);
+        WorkflowPlan plan = WorkflowPlan.compile(templateId, version, template(create, wait, notify));
+
+        assertEquals(templateId, plan.templateId());
+        assertEquals(version, plan.version());
+        assertEquals(List.of("create", "wait", "notify"), plan.steps().stream().map(WorkflowPlan.Step::name).toList());
+        assertEquals(List.of(List.of(), List.of(0), List.of(1)), dependencies(plan));
+
+        WorkflowPlan.Step compiledCreate = plan.steps().get(0);
+        assertEquals("FOOD_DELIVERY", compiledCreate.parameters().taskType());
+        assertEquals(assignee, compiledCreate.parameters().assigneeId());
+        assertNull(compiledCreate.timeoutSeconds(), "a zero timeout means the default");
+        assertEquals(5, plan.steps().get(1).parameters().waitSeconds());
+        assertEquals(20, (int) plan.steps().get(1).timeoutSeconds());
+        assertSame(WorkflowPlan.Parameters.NONE, plan.steps().get(2).parameters());
+    }
+
+    @Test
+    void dependsOnResolvesStepNames() {
+        WorkflowStep food = step("food", WorkflowStepType.CREATE_TASK, List.of());
+        WorkflowStep water = step("water", WorkflowStepType.CREATE_TASK, List.of());
+        WorkflowStep assign = step("assign", WorkflowStepType.ASSIGN_USER, List.of("water", "food"));
+        WorkflowStep notify = step("notify", WorkflowStepType.SEND_NOTIFICATION, null);
+        WorkflowStep audit = step("audit", WorkflowStepType.SEND_NOTIFICATION, List.of("food"));
+
+        WorkflowPlan plan = WorkflowPlan.compile(UUID.randomUUID(), null, template(food, water, assign, notify, audit));
+
+        assertEquals(List.of(List.of(), List.of(), List.of(1, 0), List.of(2), List.of(0)), dependencies(plan));
+        assertArrayEquals(new int[]{2, 4}, plan.graph().dependents(0));
+        assertArrayEquals(new int[]{3}, plan.graph().dependents(2));
+        assertArrayEquals(new int[0], plan.graph().dependents(4));
+    }
+
+    @Test
+    void invalidTemplatesAreRejected() {
+        WorkflowStep first = step("first", WorkflowStepType.CREATE_TASK, null);
+        assertRejected("unknown step missing", first, step("second", WorkflowStepType.CREATE_TASK, List.of("missing")));
+        assertRejected("ambiguous step name twin", step("twin", WorkflowStepType.CREATE_TASK, null),
+            step("twin", WorkflowStepType.CREATE_TASK, null), step("third", WorkflowStepType.ASSIGN_USER, List.of("twin")));
+        assertRejected("form a cycle", step("a", WorkflowStepType.CREATE_TASK, List.of("b")),
+            step("b", WorkflowStepType.CREATE_TASK, List.of("a")));
+        assertRejected("form a cycle", step("self", WorkflowStepType.CREATE_TASK, List.of("self")));
+
+        WorkflowStep badAssignee = step("assign", WorkflowStepType.ASSIGN_USER, null);
+        badAssignee.setParameters(Map.of("assigneeId", "not-a-uuid"));
+        assertRejected("invalid assigneeId", badAssignee);
+        WorkflowStep badWait = step("wait", WorkflowStepType.WAIT_FOR_CONDITION, null);
+        badWait.setParameters(Map.of("waitSeconds", "soon"));
+        assertRejected("invalid waitSeconds", badWait);
+
+        // Duplicate names are fine as long as no step depends on them
+        WorkflowPlan plan = WorkflowPlan.compile(UUID.randomUUID(), null, template(
+            step("twin", WorkflowStepType.CREATE_TASK, null), step("twin", WorkflowStepType.CREATE_TASK, null)));
+        assertEquals(2, plan.steps().size());
+    }
+
+    @Test
+    void conditionsAreDecidedWhenCompiled() {
+        WorkflowContext context = new WorkflowContext(null);
+        context.addVariable("count", 3);
+        context.addVariable("taskType", "FOOD_DELIVERY");
+
+        assertTrue(condition("count", "greater_than", 2).test(context));
+        assertFalse(condition("count", "greater_than", 3).test(context));
+        assertTrue(condition("count", "less_than", 3.5).test(context));
+        assertFalse(condition("count", "greater_than", "2").test(context), "numeric operators need numbers");
+        assertTrue(condition("count", "equals", 3).test(context));
+        assertTrue(condition("taskType", "contains", "FOOD").test(context));
+        assertTrue(condition("missing", "not_contains", "FOOD").test(context));
+        assertTrue(condition("taskType", "not_equals", "WATER_DELIVERY").test(context));
+        assertFalse(condition("taskType", "matches", "FOOD.*").test(context), "unknown operators never match");
+    }
+
+    private static WorkflowPlan.Condition condition(String variable, String operator, Object expected) {
+        WorkflowStep step = step("check", WorkflowStepType.CREATE_TASK, null);
+        step.setCondition(new WorkflowCondition(variable, operator, expected));
+        return WorkflowPlan.compile(UUID.randomUUID(), null, template(step)).steps().get(0).condition();
+    }
+
+    private static void assertRejected(String message, WorkflowStep... steps) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> WorkflowPlan.compile(UUID.randomUUID(), null, template(steps)));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    private static List<List<Integer>> dependencies(WorkflowPlan plan) {
+        List<List<Integer>> dependencies = new ArrayList<>();
+        for (int i = 0; i < plan.graph().size(); i++) {
+            dependencies.add(Arrays.stream(plan.graph().dependencies(i)).boxed().toList());
+        }
+        return dependencies;
+    }
+
+    private static WorkflowTemplate template(WorkflowStep... steps) {
+        WorkflowTemplate template = new WorkflowTemplate();
+        template.setName("test");
+        template.setSteps(List.of(steps));
+        return template;
+    }
+
+    private static WorkflowStep step(String name, WorkflowStepType type, List<String> dependsOn) {
+        WorkflowStep step = new WorkflowStep();
+        step.setName(name);
+        step.setType(type);
+        step.setRequired(true);
+        step.setDependsOn(dependsOn);
+        return step;
+    }
+}
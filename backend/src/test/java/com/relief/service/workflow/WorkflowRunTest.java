@@ -0,0 +1,146 @@
+package com.relief.service.workflow;
+
+import com.relief.entity.NeedsRequest;
+import com.relief.service.workflow.WorkflowOrchestrationService.StepExecutionResult;
+import com.relief.service.workflow.WorkflowOrchestrationService.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Steps launched as timers of known length over a template's dependency graph: the run takes
+ * the time of its longest chain rather than the sum of its steps, no step starts before its
+ * dependencies finish, and each step only sees the variables of the steps it depends on
+ */
+public class WorkflowRunTest {
+
+    private static final long STEP_MILLIS = 200;
+
+    private final NeedsRequest request = NeedsRequest.builder().id(UUID.randomUUID()).build();
+
+    @Test
+    void twelveStepDagFinishesInTheTimeOfItsLongestBranch() {
+        // start, three branches of three steps, then merge and report: six steps on every chain
+        List<WorkflowStep> steps = new ArrayList<>();
+        steps.add(step("start", List.of()));
+        List<String> tails = new ArrayList<>();
+        for (String branch : List.of("a", "b", "c")) {
+            String previous = "start";
+            for (int i = 1; i <= 3; i++) {
+                steps.add(step(branch + i, List.of(previous)));
+                previous = branch + i;
+            }
+            tails.add(previous);
+        }
+        steps.add(step("merge", tails));
+        steps.add(step("report", null));
+        WorkflowPlan plan = plan(steps);
+        assertEquals(12, plan.steps().size());
+
+        Map<String, Long> started = new ConcurrentHashMap<>();
+        Map<String, Long> finished = new ConcurrentHashMap<>();
+        WorkflowRun run = new WorkflowRun(plan, new WorkflowContext(request), Map.of());
+        long begin = System.nanoTime();
+        run.start((step, context) -> {
+            started.put(step.name(), System.nanoTime());
+            return after(STEP_MILLIS, () -> {
+                finished.put(step.name(), System.nanoTime());
+                return new StepExecutionResult(step.name(), true, "done");
+            });
+        }, progress -> {}).join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        assertEquals(12, run.completedSteps().size());
+        assertTrue(elapsedMillis >= 6 * STEP_MILLIS, "took " + elapsedMillis + " ms");
+        // Running the twelve steps one after another would take twice as long
+        assertTrue(elapsedMillis < 9 * STEP_MILLIS, "took " + elapsedMillis + " ms");
+        for (int i = 0; i < steps.size(); i++) {
+            for (int dependency : plan.graph().dependencies(i)) {
+                String name = steps.get(i).getName();
+                String dependencyName = steps.get(dependency).getName();
+                assertTrue(started.get(name) >= finished.get(dependencyName), name + " before " + dependencyName);
+            }
+        }
+    }
+
+    @Test
+    void concurrentBranchesKeepTheirOwnVariables() {
+        // Two create/assign chains side by side, and a report after both
+        WorkflowPlan plan = plan(List.of(
+            step("create-a", List.of()),
+            step("create-b", List.of()),
+            step("assign-a", List.of("create-a")),
+            step("assign-b", List.of("create-b")),
+            step("report", List.of("assign-a", "assign-b"))));
+        Map<String, Long> delays = Map.of("create-a", 0L, "create-b", 50L, "assign-a", 150L,
+            "assign-b", 300L, "report", 0L);
+
+        WorkflowContext context = new WorkflowContext(request);
+        context.addVariable("region", "north");
+        Map<String, Object> seen = new ConcurrentHashMap<>();
+        WorkflowRun run = new WorkflowRun(plan, context, Map.of());
+        run.start((step, scope) -> {
+            seen.put(step.name(), scope.getVariables().getOrDefault("taskId", "none") + "/" + scope.getVariable("region"));
+            if (step.name().startsWith("create")) scope.addVariable("taskId", step.name());
+            if (step.name().startsWith("assign")) scope.addVariable("assignee", step.name());
+            return after(delays.get(step.name()), () -> new StepExecutionResult(step.name(), true, "done"));
+        }, progress -> {}).join();
+
+        assertEquals("none/north", seen.get("create-b"));
+        assertEquals("create-a/north", seen.get("assign-a"));
+        assertEquals("create-b/north", seen.get("assign-b"));
+        // assign-b finished last, so its chain's task is the one the report sees
+        assertEquals("create-b/north", seen.get("report"));
+        assertEquals(Map.of("region", "north", "taskId", "create-b", "assignee", "assign-b"), run.variables());
+        assertEquals(Map.of("region", "north"), context.getVariables());
+    }
+
+    @Test
+    void stepsSeeVariablesOfDependenciesTheyDoNotDirectlyName() {
+        WorkflowPlan plan = plan(List.of(
+            step("create", List.of()),
+            step("notify", null),
+            step("assign", null)));
+        Map<String, Object> seen = new ConcurrentHashMap<>();
+        WorkflowRun run = new WorkflowRun(plan, new WorkflowContext(request), Map.of());
+        run.start((step, scope) -> {
+            seen.put(step.name(), scope.getVariables().getOrDefault("taskId", "none"));
+            if (step.name().equals("create")) scope.addVariable("taskId", "t1");
+            return CompletableFuture.completedFuture(new StepExecutionResult(step.name(), true, "done"));
+        }, progress -> {}).join();
+
+        assertEquals("t1", seen.get("notify"));
+        assertEquals("t1", seen.get("assign"));
+    }
+
+    private static CompletableFuture<StepExecutionResult> after(long millis, Supplier<StepExecutionResult> result) {
+        return CompletableFuture.supplyAsync(result, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
+    }
+
+    private static WorkflowStep step(String name, List<String> dependsOn) {
+        WorkflowStep step = new WorkflowStep();
+        step.setName(name);
+        step.setType(WorkflowStepType.WAIT_FOR_CONDITION);
+        step.setRequired(true);
+        step.setDependsOn(dependsOn);
+        return step;
+    }
+
+    private static WorkflowPlan plan(List<WorkflowStep> steps) {
+        WorkflowTemplate template = new WorkflowTemplate();
+        template.setName("test");
+        template.setSteps(steps);
+        return WorkflowPlan.compile(UUID.randomUUID(), LocalDateTime.now(), template);
+    }
+}
@@ -0,0 +1,82 @@
+package com.relief.service.workflow;
+
+import com.relief.entity.WorkflowTemplateEntity;
+import com.relief.repository.WorkflowTemplateRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compiled plans cached by template id and version: served without a database read until the
+ * template is saved or deactivated, and recompiled for the new version while earlier plans keep
+ * the version they were compiled from
+ */
+public class WorkflowTemplateServiceTest {
+
+    private final WorkflowTemplateRepository repository = mock(WorkflowTemplateRepository.class);
+    private final WorkflowTemplateConverter converter = mock(WorkflowTemplateConverter.class);
+    private final WorkflowTemplateService service = new WorkflowTemplateService(repository, converter);
+    private final WorkflowTemplateEntity entity = WorkflowTemplateEntity.builder()
+        .id(UUID.randomUUID())
+        .name("intake")
+        .templateData(Map.of())
+        .updatedAt(LocalDateTime.of(2024, 5, 1, 12, 0))
+        .build();
+
+    @Test
+    void plansAreCachedUntilTheTemplateChanges() {
+        when(repository.findByName("intake")).thenReturn(Optional.of(entity));
+        when(converter.toWorkflowTemplate(any())).thenAnswer(call -> template());
+        when(repository.save(any())).thenAnswer(call -> {
+            WorkflowTemplateEntity saved = call.getArgument(0);
+            saved.setUpdatedAt(saved.getUpdatedAt().plusMinutes(5));
+            return saved;
+        });
+
+        WorkflowPlan first = service.getPlan("intake");
+        assertSame(first, service.getPlan("intake"));
+        verify(repository, times(1)).findByName("intake");
+        assertEquals(entity.getId(), first.templateId());
+
+        service.saveTemplate(template());
+        WorkflowPlan second = service.getPlan("intake");
+        assertNotSame(first, second);
+        assertEquals(entity.getId(), second.templateId());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 5), second.version());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 0), first.version(), "a running execution keeps its plan");
+        assertSame(second, service.getPlan("intake"));
+
+        service.deactivateTemplate("intake");
+        assertNull(service.getPlan("intake"));
+    }
+
+    @Test
+    void invalidTemplatesAreReportedByName() {
+        when(repository.findByName("intake")).thenReturn(Optional.of(entity));
+        WorkflowTemplate template = template();
+        template.getSteps().get(0).setDependsOn(List.of("missing"));
+        when(converter.toWorkflowTemplate(any())).thenReturn(template);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.getPlan("intake"));
+        assertTrue(e.getMessage().startsWith("Invalid workflow template intake"), e.getMessage());
+    }
+
+    private static WorkflowTemplate template() {
+        WorkflowStep step = new WorkflowStep();
+        step.setName("create");
+        step.setType(WorkflowStepType.CREATE_TASK);
+        step.setParameters(Map.of("taskType", "FOOD_DELIVERY"));
+        WorkflowTemplate template = new WorkflowTemplate();
+        template.setName("intake");
+        template.setSteps(List.of(step));
+        return template;
+    }
+}
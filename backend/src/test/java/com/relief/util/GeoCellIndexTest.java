@@ -0,0 +1,152 @@
+package com.relief.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Radius and nearest-neighbour queries against a scan of every point, including queries that
+ * wrap the antimeridian, reach a pole or span more cells than there are points, and keys that
+ * move between cells
+ */
+public class GeoCellIndexTest {
+
+    @Test
+    void radiusQueriesMatchAFullScan() {
+        Random random = new Random(35);
+        for (int trial = 0; trial < 60; trial++) {
+            double cellDegrees = new double[]{0.01, 0.05, 0.5, 5}[trial % 4];
+            GeoCellIndex<Integer, Integer> index = new GeoCellIndex<>(cellDegrees);
+            double[][] points = randomPoints(random, trial, 50 + random.nextInt(400));
+            for (int key = 0; key < points.length; key++) {
+                index.put(key, points[key][0], points[key][1], key % 3);
+            }
+
+            for (int query = 0; query < 20; query++) {
+                double[] center = points[random.nextInt(points.length)];
+                double lat = center[0] + random.nextGaussian() * 0.05;
+                double lon = center[1] + random.nextGaussian() * 0.05;
+                double radius = Math.pow(10, 1 + random.nextDouble() * 5);
+                String label = "trial " + trial + " query " + query + " radius " + (int) radius;
+
+                List<GeoCellIndex.Neighbor<Integer, Integer>> found = index.withinRadius(lat, lon, radius, null);
+                assertEquals(scan(points, lat, lon, radius, -1), keys(found), label);
+                for (int i = 1; i < found.size(); i++) {
+                    assertTrue(found.get(i - 1).distanceMeters() <= found.get(i).distanceMeters(), label + " nearest first");
+                }
+                List<GeoCellIndex.Neighbor<Integer, Integer>> filtered =
+                    index.withinRadius(lat, lon, radius, entry -> entry.value() == 0);
+                assertEquals(scan(points, lat, lon, radius, 0), keys(filtered), label + " filtered");
+            }
+        }
+    }
+
+    @Test
+    void nearestMatchesAFullScan() {
+        Random random = new Random(36);
+        for (int trial = 0; trial < 40; trial++) {
+            GeoCellIndex<Integer, Integer> index = new GeoCellIndex<>(0.05);
+            double[][] points = randomPoints(random, trial, 20 + random.nextInt(200));
+            for (int key = 0; key < points.length; key++) {
+                index.put(key, points[key][0], points[key][1], key);
+            }
+            double[] center = points[random.nextInt(points.length)];
+            int k = 1 + random.nextInt(15);
+            double maxMeters = Math.pow(10, 3 + random.nextDouble() * 3);
+
+            List<Integer> expected = scan(points, center[0], center[1], maxMeters, -1);
+            List<Integer> found = keys(index.nearest(center[0], center[1], k, maxMeters, null));
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), found, "trial " + trial);
+        }
+    }
+
+    @Test
+    void movedKeysAreFoundOnlyAtTheirNewPosition() {
+        GeoCellIndex<String, Integer> index = new GeoCellIndex<>(0.05);
+        index.put("a", 14.50, 121.00, 1);
+        index.put("a", 14.80, 121.30, 2);
+
+        assertTrue(index.withinRadius(14.50, 121.00, 1000, null).isEmpty());
+        List<GeoCellIndex.Neighbor<String, Integer>> found = index.withinRadius(14.80, 121.30, 1000, null);
+        assertEquals(1, found.size());
+        assertEquals(2, (int) found.get(0).value());
+        assertEquals(1, index.size());
+
+        // Bulk loads never overwrite a position that was updated in the meantime
+        index.putIfAbsent("a", 14.50, 121.00, 3);
+        assertEquals(2, (int) index.get("a").value());
+    }
+
+    @Test
+    void removedKeysLeaveTheirCells() {
+        GeoCellIndex<Integer, Integer> index = new GeoCellIndex<>(0.05);
+        for (int key = 0; key < 10; key++) {
+            index.put(key, 14.5 + key * 0.001, 121.0, key);
+        }
+
+        index.remove(3);
+        assertEquals(5, index.removeIf(entry -> entry.value() >= 5));
+
+        assertEquals(List.of(0, 1, 2, 4), keys(index.withinRadius(14.5, 121.0, 10_000, null)));
+        assertNull(index.get(3));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void invalidCellSizesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new GeoCellIndex<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new GeoCellIndex<>(11));
+    }
+
+    /**
+     * Points clustered around a centre that moves between trials: mid latitudes, the antimeridian
+     * and near the north pole
+     */
+    private static double[][] randomPoints(Random random, int trial, int count) {
+        double[][] centers = {{14.5, 121.0}, {-33.9, 179.95}, {89.7, 10.0}, {51.5, -0.1}};
+        double[] center = centers[trial % centers.length];
+        double[][] points = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double lat = center[0] + random.nextGaussian() * 0.2;
+            double lon = center[1] + random.nextGaussian() * 0.2;
+            // Over the pole rather than onto it, so no two points tie on distance
+            if (lat > 90) {
+                lat = 180 - lat;
+                lon += 180;
+            }
+            if (lon >= 180) lon -= 360;
+            if (lon < -180) lon += 360;
+            points[i] = new double[]{lat, lon};
+        }
+        return points;
+    }
+
+    /**
+     * Keys within the radius by distance; {@code value} filters on {@code key % 3} unless negative
+     */
+    private static List<Integer> scan(double[][] points, double lat, double lon, double radius, int value) {
+        Map<Integer, Double> distances = new HashMap<>();
+        for (int key = 0; key < points.length; key++) {
+            double distance = GeoCellIndex.distanceMeters(lat, lon, points[key][0], points[key][1]);
+            if (distance <= radius && (value < 0 || key % 3 == value)) distances.put(key, distance);
+        }
+        List<Integer> keys = new ArrayList<>(distances.keySet());
+        keys.sort(Comparator.comparingDouble(distances::get));
+        return keys;
+    }
+
+    private static <K> List<K> keys(List<? extends GeoCellIndex.Neighbor<K, ?>> neighbors) {
+        List<K> keys = new ArrayList<>(neighbors.size());
+        for (GeoCellIndex.Neighbor<K, ?> neighbor : neighbors) {
+            keys.add(neighbor.key());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,120 @@
+package com.relief.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InvertedIndexTest {
+
+    @Test
+    void ranksRareAndRepeatedTermsHigher() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        index.put(1, "need water for family", "water");
+        index.put(2, "need insulin for grandmother, insulin ran out", "medical");
+        index.put(3, "need insulin and water", "medical");
+        index.put(4, "need food", "food");
+
+        assertEquals(List.of(2, 3), keys(index.search("insulin", null, 10)));
+        // The rare term decides the order over the common one
+        assertEquals(List.of(3, 2, 1, 4), keys(index.search("need insulin water", null, 10)));
+    }
+
+    @Test
+    void matchesMisspellingsAndPrefixesBelowExactTerms() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        index.put(1, "insulin needed", null);
+        index.put(2, "insullin neded asap", null);
+        index.put(3, "evacuation center full", null);
+        index.put(4, "Caf\u00e9 near the plaza", null);
+
+        assertEquals(List.of(1, 2), keys(index.search("insulin", null, 10)));
+        assertEquals(List.of(2, 1), keys(index.search("insullin", null, 10)));
+        assertEquals(List.of(3), keys(index.search("evacu", null, 10)));
+        assertEquals(List.of(3), keys(index.search("evacuaton", null, 10)));
+        assertEquals(List.of(4), keys(index.search("cafe", null, 10)));
+    }
+
+    @Test
+    void countsFacetsBeforeFilteringByOne() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        index.put(1, "boat rescue needed", "sos");
+        index.put(2, "rescue boat for elderly", "evacuation");
+        index.put(3, "rescue trapped family", "sos");
+        index.put(4, "rice and water", "food");
+
+        InvertedIndex.Result<Integer> result = index.search("rescue", "sos", 10);
+        assertEquals(Set.of(1, 3), Set.copyOf(keys(result)));
+        assertEquals(2, result.totalHits());
+        assertEquals(Map.of("sos", 2, "evacuation", 1), result.facets());
+        InvertedIndex.Result<Integer> filtered = index.search("rescue", null, key -> key % 2 == 0, 10);
+        assertEquals(List.of(2), keys(filtered));
+        assertEquals(Map.of("evacuation", 1), filtered.facets());
+    }
+
+    @Test
+    void replacesAndRemovesDocumentsAcrossPurges() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        for (int i = 0; i < 2000; i++) {
+            index.put(i, "blanket request " + i, "other");
+        }
+        // Enough rewrites to purge dead postings more than once
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 2000; i++) {
+                index.put(i, (i % 2 == 0 ? "tarp request " : "blanket request ") + i + " round" + round, "other");
+            }
+        }
+        for (int i = 1; i < 2000; i += 4) {
+            index.remove(i);
+        }
+
+        assertEquals(1500, index.size());
+        assertEquals(1000, index.search("tarp", null, 10).totalHits());
+        assertEquals(500, index.search("blanket", null, 10).totalHits());
+        // Earlier rounds are one edit away, but only as replaced documents
+        assertEquals(1500, index.search("round4", null, 10).totalHits());
+        assertEquals(List.of(), keys(index.search("1", null, 10)));
+        assertEquals(List.of(3), keys(index.search("3", null, 10)));
+    }
+
+    @Test
+    void replacesEditsWhoseContentHashCollides() {
+        InvertedIndex<Integer> index = new InvertedIndex<>();
+        // "Aa" and "BB" share a String hash code; the index must still tell them apart
+        index.put(1, "Aa", "sos");
+        index.put(1, "BB", "sos");
+        index.put(2, "shelter full", "evacuation");
+        index.put(2, "shelter full", "food");
+
+        assertEquals(List.of(1), keys(index.search("bb", null, 10)));
+        assertEquals(List.of(), keys(index.search("aa", null, 10)));
+        assertEquals(Map.of("food", 1), index.search("shelter", null, 10).facets());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void highlightsMatchesInEscapedSnippet() {
+        String notes = "Family of five TRAPPED on the roof near the church <purok 3>, please send a boat";
+        String snippet = InvertedIndex.highlight(notes, Set.of("trapped", "roof"), 60);
+
+        assertTrue(snippet.contains("<em>TRAPPED</em> on the <em>roof</em>"), snippet);
+        assertTrue(snippet.contains("&lt;purok"), snippet);
+        assertTrue(snippet.endsWith("..."), snippet);
+    }
+
+    @Test
+    void editDistanceCountsTranspositionsAsOneEdit() {
+        assertEquals(1, InvertedIndex.editDistance("water", "wtaer", 2));
+        assertEquals(1, InvertedIndex.editDistance("water", "watr", 2));
+        assertEquals(2, InvertedIndex.editDistance("medicine", "medcne", 2));
+        assertEquals(2, InvertedIndex.editDistance("food", "blanket", 1));
+    }
+
+    private static List<Integer> keys(InvertedIndex.Result<Integer> result) {
+        return result.hits().stream().map(InvertedIndex.Hit::key).toList();
+    }
+}
@@ -0,0 +1,148 @@
+package com.relief.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Successive shortest paths against exhaustive search over every integral transportation plan,
+ * on small random instances with missing arcs and more supply or demand than the other side
+ */
+public class MinCostFlowTest {
+
+    private static final long MISSING = -1;
+
+    @Test
+    void matchesExhaustiveTransportation() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 300; trial++) {
+            int[] supply = randomAmounts(random);
+            int[] demand = randomAmounts(random);
+            long[][] cost = randomCosts(random, supply.length, demand.length);
+
+            // Nodes: 0 source, 1 sink, then supplies, then demands
+            MinCostFlow flow = new MinCostFlow(2 + supply.length + demand.length);
+            int[][] arcs = new int[supply.length][demand.length];
+            for (int s = 0; s < supply.length; s++) {
+                flow.addEdge(0, 2 + s, supply[s], 0);
+            }
+            for (int d = 0; d < demand.length; d++) {
+                flow.addEdge(2 + supply.length + d, 1, demand[d], 0);
+            }
+            for (int s = 0; s < supply.length; s++) {
+                for (int d = 0; d < demand.length; d++) {
+                    if (cost[s][d] != MISSING) {
+                        arcs[s][d] = flow.addEdge(2 + s, 2 + supply.length + d, Long.MAX_VALUE / 8, cost[s][d]);
+                    }
+                }
+            }
+            MinCostFlow.Result result = flow.solve(0, 1, Long.MAX_VALUE);
+
+            long[] best = best(supply.clone(), demand.clone(), cost, 0, 0, 0);
+            assertEquals(best[0], result.flow(), "trial " + trial + " flow");
+            assertEquals(best[1], result.cost(), "trial " + trial + " cost");
+            long arcCost = 0;
+            for (int s = 0; s < supply.length; s++) {
+                for (int d = 0; d < demand.length; d++) {
+                    if (cost[s][d] != MISSING) arcCost += flow.flow(arcs[s][d]) * cost[s][d];
+                }
+            }
+            assertEquals(result.cost(), arcCost, "trial " + trial + " arc flows");
+        }
+    }
+
+    @Test
+    void addingOneSourceAtATimeReachesTheSameCost() {
+        Random random = new Random(8);
+        for (int trial = 0; trial < 300; trial++) {
+            int sources = 1 + random.nextInt(6);
+            int[] demand = randomAmounts(random);
+            long[][] cost = randomCosts(random, sources, demand.length);
+
+            // Nodes: 0 source, 1 sink, 2 overflow, then unit sources, then demands. Every source can
+            // reach the overflow, as every task in an assignment can stay unassigned.
+            MinCostFlow together = new MinCostFlow(3 + sources + demand.length);
+            MinCostFlow oneByOne = new MinCostFlow(3 + sources + demand.length);
+            for (MinCostFlow flow : new MinCostFlow[] {together, oneByOne}) {
+                for (int s = 0; s < sources; s++) {
+                    flow.addEdge(0, 3 + s, 1, 0);
+                    flow.addEdge(3 + s, 2, 1, 20);
+                    for (int d = 0; d < demand.length; d++) {
+                        if (cost[s][d] != MISSING) flow.addEdge(3 + s, 3 + sources + d, 1, cost[s][d]);
+                    }
+                }
+                for (int d = 0; d < demand.length; d++) {
+                    flow.addEdge(3 + sources + d, 1, demand[d], 0);
+                }
+                flow.addEdge(2, 1, sources, 0);
+            }
+            MinCostFlow.Result expected = together.solve(0, 1, sources);
+
+            long costSum = 0;
+            for (int s = 0; s < sources; s++) {
+                MinCostFlow.Result step = oneByOne.solve(3 + s, 1, 1);
+                assertEquals(1, step.flow(), "trial " + trial + " source " + s);
+                costSum += step.cost();
+            }
+            // Routing a source later may re-route earlier ones; the total still matches
+            assertEquals(sources, expected.flow(), "trial " + trial + " flow");
+            assertEquals(expected.cost(), costSum, "trial " + trial + " cost");
+        }
+    }
+
+    @Test
+    void rejectsNegativeCostsAndEdgesAfterSolving() {
+        MinCostFlow flow = new MinCostFlow(2);
+        assertThrows(IllegalArgumentException.class, () -> flow.addEdge(0, 1, 1, -1));
+        int edge = flow.addEdge(0, 1, 3, 2);
+        assertEquals(0, flow.flow(edge));
+
+        assertEquals(new MinCostFlow.Result(3, 6), flow.solve(0, 1, 5));
+        assertEquals(3, flow.flow(edge));
+        assertThrows(IllegalStateException.class, () -> flow.addEdge(1, 0, 1, 1));
+    }
+
+    private static int[] randomAmounts(Random random) {
+        int[] amounts = new int[1 + random.nextInt(3)];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = random.nextInt(4);
+        }
+        return amounts;
+    }
+
+    private static long[][] randomCosts(Random random, int rows, int columns) {
+        long[][] cost = new long[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                cost[r][c] = random.nextInt(4) == 0 ? MISSING : random.nextInt(20);
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Largest flow, then lowest cost, over every amount each remaining arc could carry
+     */
+    private static long[] best(int[] supply, int[] demand, long[][] cost, int cell, long flow, long spent) {
+        int columns = demand.length;
+        if (cell == supply.length * columns) return new long[] {flow, spent};
+        int s = cell / columns;
+        int d = cell % columns;
+        long[] best = null;
+        int most = cost[s][d] == MISSING ? 0 : Math.min(supply[s], demand[d]);
+        for (int amount = 0; amount <= most; amount++) {
+            supply[s] -= amount;
+            demand[d] -= amount;
+            long[] candidate = best(supply, demand, cost, cell + 1, flow + amount, spent + amount * cost[s][d]);
+            supply[s] += amount;
+            demand[d] += amount;
+            if (best == null || candidate[0] > best[0] || candidate[0] == best[0] && candidate[1] < best[1]) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+}
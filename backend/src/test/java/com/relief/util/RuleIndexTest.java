@@ -0,0 +1,125 @@
+package com.relief.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The bit-mask decision table against a linear scan of the rules in compile order, with wildcard
+ * types and statuses, shared severity thresholds, missing attributes, more rules than fit in one
+ * mask word, and rules sorted by priority with ties the way the rule engines order them
+ */
+public class RuleIndexTest {
+
+    private static final String[] TYPES = {"Medical Emergency", "Food Request", "Water Request", "Evacuation", "Shelter"};
+    private static final String[] STATUSES = {"new", "assigned", "in_progress", "completed"};
+
+    private record Rule(int id, int priority, RuleIndex.Criteria criteria) {}
+
+    @Test
+    void matchesEqualALinearScan() {
+        Random random = new Random(37);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Rule> rules = randomRules(random, 1 + random.nextInt(trial < 10 ? 10 : 200));
+            // Highest priority first; the stable sort keeps ties in registration order
+            rules.sort(Comparator.comparingInt(Rule::priority).reversed());
+            RuleIndex<Rule> index = RuleIndex.compile(rules, Rule::criteria);
+            assertEquals(rules, index.rules());
+
+            for (int query = 0; query < 200; query++) {
+                String type = random.nextInt(8) == 0 ? null : pick(random, TYPES, "Unknown");
+                String status = random.nextInt(8) == 0 ? null : pick(random, STATUSES, "archived");
+                Integer severity = random.nextInt(8) == 0 ? null : random.nextInt(7);
+                boolean hasLocation = random.nextBoolean();
+                String label = "trial " + trial + " " + type + "/" + status + "/" + severity + "/" + hasLocation;
+
+                List<Rule> expected = new ArrayList<>();
+                for (Rule rule : rules) {
+                    if (matches(rule.criteria(), type, status, severity, hasLocation)) expected.add(rule);
+                }
+                List<Rule> found = index.matches(type, status, severity, hasLocation);
+                assertEquals(expected, found, label);
+                assertEquals(expected.isEmpty() ? null : expected.get(0),
+                    index.firstMatch(type, status, severity, hasLocation), label + " first");
+                for (int i = 1; i < found.size(); i++) {
+                    Rule previous = found.get(i - 1);
+                    Rule next = found.get(i);
+                    assertTrue(previous.priority() > next.priority()
+                        || previous.priority() == next.priority() && previous.id() < next.id(), label + " order");
+                }
+            }
+        }
+    }
+
+    @Test
+    void wildcardsMatchValuesNoRuleNames() {
+        Rule anyType = new Rule(0, 1, new RuleIndex.Criteria(null, Set.of("new"), 1, false));
+        Rule anyStatus = new Rule(1, 1, new RuleIndex.Criteria(Set.of("Shelter"), null, 3, true));
+        Rule anything = new Rule(2, 1, new RuleIndex.Criteria(null, null, 0, false));
+        RuleIndex<Rule> index = RuleIndex.compile(List.of(anyType, anyStatus, anything), Rule::criteria);
+
+        assertEquals(List.of(anyType, anything), index.matches("Unknown", "new", 2, false));
+        assertEquals(List.of(anyType, anyStatus, anything), index.matches("Shelter", "new", 3, true));
+        assertEquals(List.of(anyStatus, anything), index.matches("Shelter", "archived", 5, true));
+        assertEquals(List.of(anything), index.matches(null, null, null, false));
+        assertEquals(anything, index.firstMatch("Shelter", "archived", 2, true));
+    }
+
+    @Test
+    void emptyOrUnreachableRuleSetsMatchNothing() {
+        assertEquals(List.of(), RuleIndex.<Rule>compile(List.of(), Rule::criteria).matches("Shelter", "new", 5, true));
+
+        Rule severe = new Rule(0, 1, new RuleIndex.Criteria(null, null, 4, false));
+        RuleIndex<Rule> index = RuleIndex.compile(List.of(severe), Rule::criteria);
+        assertEquals(List.of(), index.matches("Shelter", "new", 3, true));
+        assertNull(index.firstMatch("Shelter", "new", null, true));
+        assertEquals(severe, index.firstMatch("Shelter", "new", 4, true));
+    }
+
+    /**
+     * Rules over a few types, statuses and thresholds so that wildcards, shared thresholds and
+     * equal priorities are common
+     */
+    private static List<Rule> randomRules(Random random, int count) {
+        List<Rule> rules = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            Set<String> types = random.nextInt(4) == 0 ? null : subset(random, TYPES);
+            Set<String> statuses = random.nextInt(3) == 0 ? null : subset(random, STATUSES);
+            rules.add(new Rule(id, random.nextInt(4),
+                new RuleIndex.Criteria(types, statuses, random.nextInt(6), random.nextBoolean())));
+        }
+        return rules;
+    }
+
+    private static Set<String> subset(Random random, String[] values) {
+        Set<String> subset = new HashSet<>();
+        for (String value : values) {
+            if (random.nextInt(3) == 0) subset.add(value);
+        }
+        return subset;
+    }
+
+    private static String pick(Random random, String[] values, String unknown) {
+        int i = random.nextInt(values.length + 1);
+        return i < values.length ? values[i] : unknown;
+    }
+
+    /**
+     * A rule applies when each of its attributes accepts the request's; a missing type or status
+     * is only accepted by wildcards and a missing severity counts as zero
+     */
+    private static boolean matches(RuleIndex.Criteria criteria, String type, String status, Integer severity,
+                                   boolean hasLocation) {
+        return (criteria.types() == null || type != null && criteria.types().contains(type))
+            && (criteria.statuses() == null || status != null && criteria.statuses().contains(status))
+            && criteria.minSeverity() <= (severity != null ? severity : 0)
+            && (hasLocation || !criteria.locationRequired());
+    }
+}
@@ -0,0 +1,140 @@
+package com.relief.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The wheel driven by explicit clock values: timers placed in every level and beyond the top one
+ * fire on exactly their tick, and random schedule, move, cancel and advance sequences fire the
+ * same keys at the same times as a plain map of deadlines
+ */
+public class TimingWheelTest {
+
+    private static final long TICK = 1000;
+    /** Not a multiple of the tick, so deadlines round up within it */
+    private static final long START = 1_700_000_000_123L;
+    private static final long ALIGNED = 1_700_000_000_000L;
+
+    @Test
+    void firesOnDeadlineTickAcrossLevelBoundaries() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        long startTick = Math.floorDiv(START, TICK);
+        // Distances at and around each level's span of 64, 4096, 262144 and 16777216 ticks
+        long[] distances = {1, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 262_145,
+            16_777_215, 16_777_216, 16_777_300, 20_000_000};
+        for (long distance : distances) {
+            wheel.schedule("t" + distance, (startTick + distance) * TICK);
+        }
+
+        for (long distance : distances) {
+            long deadline = (startTick + distance) * TICK;
+            assertEquals(List.of(), wheel.advance(deadline - 1), "before " + distance);
+            assertEquals(List.of("t" + distance), wheel.advance(deadline), "at " + distance);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineWithinATickFiresAtTheTickAfterIt() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.schedule("a", START + 1500);
+
+        // START + 1500 rounds up to the second tick boundary after START
+        long boundary = Math.floorDiv(START + 1500 + TICK - 1, TICK) * TICK;
+        assertEquals(List.of(), wheel.advance(boundary - 1));
+        assertEquals(List.of("a"), wheel.advance(boundary));
+    }
+
+    @Test
+    void movesCancelsAndKeepsExistingTimers() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, ALIGNED);
+        wheel.schedule("moved", ALIGNED + 10 * TICK);
+        wheel.schedule("moved", ALIGNED + 5000 * TICK);
+        wheel.schedule("cancelled", ALIGNED + 20 * TICK);
+        assertTrue(wheel.cancel("cancelled"));
+        assertFalse(wheel.cancel("cancelled"));
+        wheel.schedule("kept", ALIGNED + 30 * TICK);
+        assertFalse(wheel.scheduleIfAbsent("kept", ALIGNED + 2 * TICK));
+        assertTrue(wheel.scheduleIfAbsent("past", ALIGNED - 60 * TICK));
+
+        // A passed deadline fires on the next advance even without the clock moving
+        assertEquals(List.of("past"), wheel.advance(ALIGNED));
+        assertEquals(List.of(), wheel.advance(ALIGNED + 29 * TICK));
+        assertEquals(List.of("kept"), wheel.advance(ALIGNED + 30 * TICK));
+        assertEquals(List.of(), wheel.advance(ALIGNED + 4999 * TICK));
+        assertTrue(wheel.contains("moved"));
+        assertEquals(List.of("moved"), wheel.advance(ALIGNED + 5000 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void idleWheelJumpsAheadAndStillPlacesNewTimers() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, ALIGNED);
+        long later = ALIGNED + 100_000_000L * TICK;
+        assertEquals(List.of(), wheel.advance(later));
+
+        wheel.schedule("a", later + 70 * TICK);
+        assertEquals(List.of(), wheel.advance(later + 69 * TICK));
+        assertEquals(List.of("a"), wheel.advance(later + 70 * TICK));
+    }
+
+    @Test
+    void matchesMapOfDeadlinesUnderRandomOperations() {
+        Random random = new Random(21);
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, START);
+        Map<Integer, Long> deadlineTicks = new HashMap<>();
+        long now = START;
+
+        for (int step = 0; step < 20_000; step++) {
+            int key = random.nextInt(200);
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                long deadline = now + randomDistance(random);
+                wheel.schedule(key, deadline);
+                deadlineTicks.put(key, Math.floorDiv(deadline + TICK - 1, TICK));
+            } else if (operation < 5) {
+                long deadline = now + randomDistance(random);
+                boolean added = wheel.scheduleIfAbsent(key, deadline);
+                assertEquals(!deadlineTicks.containsKey(key), added, "step " + step);
+                deadlineTicks.putIfAbsent(key, Math.floorDiv(deadline + TICK - 1, TICK));
+            } else if (operation < 6) {
+                assertEquals(deadlineTicks.remove(key) != null, wheel.cancel(key), "step " + step);
+            } else {
+                now += Math.abs(randomDistance(random));
+                long nowTick = Math.floorDiv(now, TICK);
+                List<Integer> expected = new ArrayList<>();
+                deadlineTicks.forEach((k, tick) -> {
+                    if (tick <= nowTick) expected.add(k);
+                });
+                expected.forEach(deadlineTicks::remove);
+                List<Integer> fired = new ArrayList<>(wheel.advance(now));
+                fired.sort(null);
+                expected.sort(null);
+                assertEquals(expected, fired, "step " + step);
+            }
+            assertEquals(deadlineTicks.size(), wheel.size(), "step " + step);
+        }
+    }
+
+    /**
+     * Mostly near, sometimes a level or two up, occasionally past
+     */
+    private static long randomDistance(Random random) {
+        return switch (random.nextInt(6)) {
+            case 0 -> -random.nextInt(5) * TICK;
+            case 1, 2 -> random.nextInt(80 * (int) TICK);
+            case 3 -> random.nextInt(5000) * TICK;
+            case 4 -> random.nextInt(300_000) * TICK;
+            default -> random.nextInt((int) TICK) + random.nextInt(70) * TICK;
+        };
+    }
+}
@@ -1,5 +1,7 @@
 import { apiClient } from './apiClient';
 
+const ANALYSIS_POLL_INTERVAL_MS = 1000;
+
 export interface ElevationPoint {
   longitude: number;
   latitude: number;
@@ -33,6 +35,18 @@ export interface TerrainAnalysis {
   analysisData: string;
 }
 
+export interface TerrainAnalysisJob {
+  jobId: string;
+  analysisType: string;
+  status: 'QUEUED' | 'RUNNING' | 'COMPLETED' | 'FAILED';
+  tileCount: number;
+  tilesStored: number;
+  analysisId?: number;
+  error?: string;
+  submittedAt: string;
+  completedAt?: string;
+}
+
 export interface TerrainRoute {
   startPoint: { longitude: number; latitude: number };
   endPoint: { longitude: number; latitude: number };
@@ -124,17 +138,27 @@ export class TerrainService {
   }
 
   /**
-   * Perform terrain analysis for an area
+   * Perform terrain analysis for an area: submit the job and poll it until the stored analysis
+   * is available
    */
   static async performTerrainAnalysis(
     coordinates: Array<{ longitude: number; latitude: number }>,
     analysisType: string
   ): Promise<TerrainAnalysis | null> {
     try {
-      const response = await apiClient.post<TerrainAnalysis>('/terrain/analysis', {
+      let job = await apiClient.post<TerrainAnalysisJob>('/terrain/analysis', {
         coordinates,
         analysisType
       });
+      while (job && (job.status === 'QUEUED' || job.status === 'RUNNING')) {
+        await new Promise(resolve => setTimeout(resolve, ANALYSIS_POLL_INTERVAL_MS));
+        job = await apiClient.get<TerrainAnalysisJob>(`/terrain/analysis/jobs/${job.jobId}`);
+      }
+      if (!job || job.status !== 'COMPLETED' || job.analysisId == null) {
+        console.error('Terrain analysis job did not complete:', job?.error);
+        return null;
+      }
+      const response = await apiClient.get<TerrainAnalysis>(`/terrain/analysis/${job.analysisId}`);
       return response || null;
     } catch (error) {
       console.error('Failed to perform terrain analysis:', error);